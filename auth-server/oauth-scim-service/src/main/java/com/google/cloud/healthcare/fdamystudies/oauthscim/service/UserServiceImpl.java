@@ -67,6 +67,7 @@ import com.google.cloud.healthcare.fdamystudies.common.PlatformComponent;
 import com.google.cloud.healthcare.fdamystudies.common.TextEncryptor;
 import com.google.cloud.healthcare.fdamystudies.common.UserAccountStatus;
 import com.google.cloud.healthcare.fdamystudies.exceptions.ErrorCodeException;
+import com.google.cloud.healthcare.fdamystudies.filter.TokenIntrospectionCache;
 import com.google.cloud.healthcare.fdamystudies.oauthscim.common.AuthScimAuditHelper;
 import com.google.cloud.healthcare.fdamystudies.oauthscim.config.AppPropertyConfig;
 import com.google.cloud.healthcare.fdamystudies.oauthscim.mapper.UserMapper;
@@ -110,6 +111,8 @@ public class UserServiceImpl implements UserService {
 
   @Autowired private TextEncryptor encryptor;
 
+  @Autowired private TokenIntrospectionCache tokenIntrospectionCache;
+
   @Override
   @Transactional
   public UserResponse createUser(UserRequest userRequest) {
@@ -630,6 +633,7 @@ public class UserServiceImpl implements UserService {
       throw new ErrorCodeException(ErrorCode.USER_NOT_FOUND);
     }
 
+    tokenIntrospectionCache.invalidateUser(userId);
     return revokeAndReplaceRefreshToken(userId, null, auditRequest);
   }
 
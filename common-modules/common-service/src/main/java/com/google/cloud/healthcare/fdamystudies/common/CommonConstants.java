@@ -8,6 +8,8 @@
 
 package com.google.cloud.healthcare.fdamystudies.common;
 
+import java.util.regex.Pattern;
+
 public final class CommonConstants {
   private CommonConstants() {}
 
@@ -56,6 +58,8 @@ public final class CommonConstants {
   public static final String EMAIL_REGEX =
       "^[A-Za-z0-9_+]+([\\.-]?[A-Za-z0-9_+]+)*@\\w+([\\.-]?\\w+)*(\\.\\w{2,3})+$";
 
+  public static final Pattern EMAIL_PATTERN = Pattern.compile(EMAIL_REGEX);
+
   public static final String APPLICATION_X_WWW_FORM_URLENCODED_CHARSET_UTF_8 =
       "application/x-www-form-urlencoded;charset=UTF-8";
 
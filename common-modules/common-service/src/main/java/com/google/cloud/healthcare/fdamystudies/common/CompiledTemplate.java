@@ -0,0 +1,146 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+
+/**
+ * A text with ${name} and {{name}} placeholders, parsed once into literal segments and slots.
+ * Rendering appends the segments and the slot values to a buffer without parsing the text again. A
+ * placeholder without a value is left in the text as is; values are inserted as they are, and are
+ * not searched for placeholders.
+ *
+ * <p>Compiled templates are kept in a registry keyed by their text, so the email subjects and
+ * bodies read from the configuration, and the audit event descriptions, are each parsed once.
+ */
+public final class CompiledTemplate {
+
+  private static XLogger logger = XLoggerFactory.getXLogger(CompiledTemplate.class.getName());
+
+  private static final String[][] DELIMITERS = {{"${", "}"}, {"{{", "}}"}};
+
+  private static final int MAX_REGISTERED_TEMPLATES = 512;
+
+  private static final int MAX_REUSED_BUFFER_CAPACITY = 64 * 1024;
+
+  private static final Map<String, CompiledTemplate> REGISTRY = new ConcurrentHashMap<>();
+
+  private static final ThreadLocal<StringBuilder> BUFFER =
+      ThreadLocal.withInitial(() -> new StringBuilder(1024));
+
+  private final String text;
+
+  /** literals[i] is followed by the slot i, the last literal ends the text. */
+  private final String[] literals;
+
+  private final String[] slotNames;
+
+  private final String[] placeholders;
+
+  private final int literalLength;
+
+  private CompiledTemplate(String text, List<String> literals, List<String[]> slots) {
+    this.text = text;
+    this.literals = literals.toArray(new String[0]);
+    this.slotNames = new String[slots.size()];
+    this.placeholders = new String[slots.size()];
+    for (int i = 0; i < slots.size(); i++) {
+      slotNames[i] = slots.get(i)[0];
+      placeholders[i] = slots.get(i)[1];
+    }
+    this.literalLength = literals.stream().mapToInt(String::length).sum();
+  }
+
+  /** Returns the compiled form of the text, compiling it on first use. */
+  public static CompiledTemplate of(String text) {
+    CompiledTemplate template = REGISTRY.get(text);
+    if (template == null) {
+      template = compile(text);
+      // texts built at run time should not fill the registry
+      if (REGISTRY.size() < MAX_REGISTERED_TEMPLATES) {
+        REGISTRY.putIfAbsent(text, template);
+      }
+    }
+    return template;
+  }
+
+  public static CompiledTemplate compile(String text) {
+    List<String> literals = new ArrayList<>();
+    List<String[]> slots = new ArrayList<>();
+    int literalStart = 0;
+    int index = 0;
+    while (index < text.length()) {
+      String[] delimiters = delimitersAt(text, index);
+      if (delimiters == null) {
+        index++;
+        continue;
+      }
+
+      int nameStart = index + delimiters[0].length();
+      int end = text.indexOf(delimiters[1], nameStart);
+      if (end < 0) {
+        index = nameStart;
+        continue;
+      }
+      literals.add(text.substring(literalStart, index));
+      int placeholderEnd = end + delimiters[1].length();
+      slots.add(
+          new String[] {text.substring(nameStart, end), text.substring(index, placeholderEnd)});
+      literalStart = placeholderEnd;
+      index = placeholderEnd;
+    }
+    literals.add(text.substring(literalStart));
+    return new CompiledTemplate(text, literals, slots);
+  }
+
+  private static String[] delimitersAt(String text, int index) {
+    for (String[] delimiters : DELIMITERS) {
+      if (text.startsWith(delimiters[0], index)) {
+        return delimiters;
+      }
+    }
+    return null;
+  }
+
+  /** Renders the template into a buffer reused by the calling thread. */
+  public String render(Map<String, String> values) {
+    if (slotNames.length == 0) {
+      return text;
+    }
+
+    StringBuilder buffer = BUFFER.get();
+    buffer.setLength(0);
+    renderTo(values, buffer);
+    String rendered = buffer.toString();
+    if (buffer.capacity() > MAX_REUSED_BUFFER_CAPACITY) {
+      BUFFER.remove();
+    }
+    return rendered;
+  }
+
+  public void renderTo(Map<String, String> values, StringBuilder out) {
+    out.ensureCapacity(out.length() + literalLength + 32 * slotNames.length);
+    for (int i = 0; i < slotNames.length; i++) {
+      out.append(literals[i]);
+      String value = values.get(slotNames[i]);
+      if (StringUtils.isEmpty(value)) {
+        logger.error(
+            String.format("missing value for placeholder: '%s' in '%s'", slotNames[i], text));
+      }
+      out.append(value != null ? value : placeholders[i]);
+    }
+    out.append(literals[slotNames.length]);
+  }
+}
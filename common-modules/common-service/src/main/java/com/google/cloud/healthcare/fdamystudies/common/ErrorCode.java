@@ -182,6 +182,12 @@ public enum ErrorCode {
       HttpStatus.INTERNAL_SERVER_ERROR.toString(),
       "The uploaded file does not adhere to the given template"),
 
+  INVALID_IMPORT_JOB_FILE_UPLOAD(
+      400, "EC_0130", Constants.BAD_REQUEST, "Please upload a .xlsx file"),
+
+  IMPORT_JOB_NOT_FOUND(
+      404, "EC_0131", HttpStatus.NOT_FOUND.toString(), "Participant import job not found"),
+
   CANNOT_UPDATE_ENROLLMENT_TARGET_FOR_CLOSE_STUDY(
       400,
       "EC_0038",
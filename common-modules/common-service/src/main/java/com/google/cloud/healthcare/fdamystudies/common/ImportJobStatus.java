@@ -0,0 +1,15 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.common;
+
+public enum ImportJobStatus {
+  IN_PROGRESS,
+  COMPLETED,
+  FAILED;
+}
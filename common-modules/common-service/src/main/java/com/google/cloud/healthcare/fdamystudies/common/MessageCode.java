@@ -71,6 +71,11 @@ public enum MessageCode {
 
   IMPORT_PARTICIPANT_SUCCESS(HttpStatus.OK, "MSG_0021", "Email list imported successfully"),
 
+  IMPORT_PARTICIPANT_JOB_STARTED(HttpStatus.ACCEPTED, "MSG_0046", "Email list import started"),
+
+  GET_IMPORT_PARTICIPANT_JOB_SUCCESS(
+      HttpStatus.OK, "MSG_0047", "Email list import status fetched successfully"),
+
   UPDATE_STATUS_SUCCESS(HttpStatus.OK, "MSG_0022", "Onboarding status updated successfully"),
 
   GET_SITES_SUCCESS(HttpStatus.OK, "MSG_0023", "Sites fetched successfully"),
@@ -9,37 +9,17 @@
 package com.google.cloud.healthcare.fdamystudies.common;
 
 import java.util.Map;
-import org.apache.commons.lang3.StringUtils;
-import org.slf4j.ext.XLogger;
-import org.slf4j.ext.XLoggerFactory;
-import org.springframework.util.PropertyPlaceholderHelper;
-import org.springframework.util.PropertyPlaceholderHelper.PlaceholderResolver;
 
 public final class PlaceholderReplacer {
 
   private PlaceholderReplacer() {}
 
-  private static XLogger logger = XLoggerFactory.getXLogger(PlaceholderReplacer.class.getName());
-
+  /**
+   * Replaces the ${name} and {{name}} placeholders with their values. The text is compiled once and
+   * kept by {@link CompiledTemplate}.
+   */
   public static String replaceNamedPlaceholders(
       final String textWithNamedPlaceholders, Map<String, String> values) {
-
-    PlaceholderResolver placeholderResolver =
-        placeholderName -> {
-          String result = values.get(placeholderName);
-          if (StringUtils.isEmpty(result)) {
-            logger.error(
-                String.format(
-                    "missing value for placeholder: '%s' in '%s'",
-                    placeholderName, textWithNamedPlaceholders));
-          }
-          return result;
-        };
-    PropertyPlaceholderHelper helper = new PropertyPlaceholderHelper("${", "}");
-    String replacedTextResult =
-        helper.replacePlaceholders(textWithNamedPlaceholders, placeholderResolver);
-
-    helper = new PropertyPlaceholderHelper("{{", "}}");
-    return helper.replacePlaceholders(replacedTextResult, placeholderResolver);
+    return CompiledTemplate.of(textWithNamedPlaceholders).render(values);
   }
 }
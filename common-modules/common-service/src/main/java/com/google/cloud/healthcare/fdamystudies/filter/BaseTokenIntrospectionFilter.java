@@ -28,19 +28,16 @@ import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.ext.XLogger;
 import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.server.PathContainer;
-import org.springframework.web.util.pattern.PathPattern;
-import org.springframework.web.util.pattern.PathPatternParser;
 
-public abstract class BaseTokenIntrospectionFilter implements Filter {
+public abstract class BaseTokenIntrospectionFilter implements Filter, InitializingBean {
 
   private XLogger logger = XLoggerFactory.getXLogger(BaseTokenIntrospectionFilter.class.getName());
 
@@ -52,6 +49,10 @@ public abstract class BaseTokenIntrospectionFilter implements Filter {
 
   @Autowired private AuditEventHelper auditEventHelper;
 
+  @Autowired private TokenIntrospectionCache tokenIntrospectionCache;
+
+  private UriTemplateMatcher uriTemplateMatcher;
+
   @Override
   public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
       throws IOException, ServletException {
@@ -74,22 +75,17 @@ public abstract class BaseTokenIntrospectionFilter implements Filter {
     }
   }
 
-  private boolean validatePathAndHttpMethod(HttpServletRequest req) {
-    String method = req.getMethod().toUpperCase();
-    for (Map.Entry<String, String[]> entry : getUriTemplateAndHttpMethodsMap().entrySet()) {
-      if (ArrayUtils.contains(entry.getValue(), method)
-          && checkPathMatches(entry.getKey(), req.getRequestURI())) {
-        return true;
-      }
-    }
-    return false;
+  /**
+   * Compiles the uri templates once the subclass has populated them in its @PostConstruct method,
+   * which runs before afterPropertiesSet().
+   */
+  @Override
+  public void afterPropertiesSet() {
+    uriTemplateMatcher = new UriTemplateMatcher(getUriTemplateAndHttpMethodsMap());
   }
 
-  private static boolean checkPathMatches(String uriTemplate, String path) {
-    PathPatternParser parser = new PathPatternParser();
-    parser.setMatchOptionalTrailingSeparator(true);
-    PathPattern p = parser.parse(uriTemplate);
-    return p.matches(PathContainer.parsePath(path));
+  private boolean validatePathAndHttpMethod(HttpServletRequest req) {
+    return uriTemplateMatcher.matches(req.getMethod(), req.getRequestURI());
   }
 
   private void validateOAuthToken(
@@ -99,11 +95,17 @@ public abstract class BaseTokenIntrospectionFilter implements Filter {
     AuditLogEventRequest auditRequest = AuditEventMapper.fromHttpServletRequest(req);
 
     String token = StringUtils.replace(auth, "Bearer", "").trim();
+    if (tokenIntrospectionCache.isActive(token)) {
+      chain.doFilter(request, response);
+      return;
+    }
+
     ObjectNode params = getObjectNode();
     params.put(TOKEN, token);
     ResponseEntity<JsonNode> oauthResponse = oauthService.introspectToken(params);
     if (oauthResponse.getStatusCode().is2xxSuccessful()) {
       if (oauthResponse.getBody().get(ACTIVE).booleanValue()) {
+        tokenIntrospectionCache.putActive(token, oauthResponse.getBody());
         chain.doFilter(request, response);
       } else {
         logger.exit("token is invalid, return 401 Unauthorized response");
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.filter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Short lived cache of successful token introspections used by {@link
+ * BaseTokenIntrospectionFilter}. Entries are keyed by the SHA-256 hash of the access token, so raw
+ * tokens are never held in memory, and each entry expires after the configured TTL or at the
+ * token's {@code exp}, whichever comes first. Only active tokens are cached.
+ */
+@Component
+public class TokenIntrospectionCache {
+
+  private XLogger logger = XLoggerFactory.getXLogger(TokenIntrospectionCache.class.getName());
+
+  private static final String EXP = "exp";
+
+  private static final String SUB = "sub";
+
+  @Value("${commonservice.token.introspection.cache.enabled:true}")
+  private boolean enabled;
+
+  @Value("${commonservice.token.introspection.cache.ttl.seconds:60}")
+  private long ttlSeconds;
+
+  @Value("${commonservice.token.introspection.cache.max.size:10000}")
+  private long maxSize;
+
+  @Autowired private ObjectProvider<MeterRegistry> meterRegistry;
+
+  private Cache<String, IntrospectedToken> cache;
+
+  private final AtomicLong hits = new AtomicLong();
+
+  private final AtomicLong misses = new AtomicLong();
+
+  @PostConstruct
+  public void init() {
+    cache =
+        CacheBuilder.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+            .recordStats()
+            .build();
+
+    meterRegistry.ifAvailable(
+        registry -> {
+          FunctionCounter.builder("token.introspection.cache.hits", hits, AtomicLong::get)
+              .register(registry);
+          FunctionCounter.builder("token.introspection.cache.misses", misses, AtomicLong::get)
+              .register(registry);
+          FunctionCounter.builder(
+                  "token.introspection.cache.evictions", cache, c -> c.stats().evictionCount())
+              .register(registry);
+          Gauge.builder("token.introspection.cache.size", cache, Cache::size).register(registry);
+        });
+    logger.info(
+        String.format(
+            "token introspection cache enabled=%b, ttlSeconds=%d, maxSize=%d",
+            enabled, ttlSeconds, maxSize));
+  }
+
+  /** Returns true when the token was recently introspected as active and has not expired. */
+  public boolean isActive(String token) {
+    if (!enabled) {
+      return false;
+    }
+
+    String key = hash(token);
+    IntrospectedToken introspectedToken = cache.getIfPresent(key);
+    if (introspectedToken != null && introspectedToken.expiresAt > System.currentTimeMillis()) {
+      hits.incrementAndGet();
+      return true;
+    }
+
+    if (introspectedToken != null) {
+      cache.invalidate(key);
+    }
+    misses.incrementAndGet();
+    return false;
+  }
+
+  /** Caches an active introspection result until the TTL or the token's exp, whichever is first. */
+  public void putActive(String token, JsonNode introspection) {
+    if (!enabled) {
+      return;
+    }
+
+    long now = System.currentTimeMillis();
+    long expiresAt = now + TimeUnit.SECONDS.toMillis(ttlSeconds);
+    long exp = introspection.path(EXP).asLong(0);
+    if (exp > 0) {
+      expiresAt = Math.min(expiresAt, TimeUnit.SECONDS.toMillis(exp));
+    }
+
+    if (expiresAt > now) {
+      cache.put(hash(token), new IntrospectedToken(introspection.path(SUB).asText(null), expiresAt));
+    }
+  }
+
+  public void invalidateToken(String token) {
+    if (StringUtils.isNotEmpty(token)) {
+      cache.invalidate(hash(token));
+    }
+  }
+
+  /** Drops every cached token issued to the given user, used on logout and account deactivation. */
+  public void invalidateUser(String userId) {
+    if (StringUtils.isNotEmpty(userId)) {
+      cache.asMap().values().removeIf(introspectedToken -> userId.equals(introspectedToken.subject));
+      logger.info(String.format("cached tokens invalidated for userId=%s", userId));
+    }
+  }
+
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  private static String hash(String token) {
+    return DigestUtils.sha256Hex(token);
+  }
+
+  private static final class IntrospectedToken {
+
+    private final String subject;
+
+    private final long expiresAt;
+
+    private IntrospectedToken(String subject, long expiresAt) {
+      this.subject = subject;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.filter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.PathContainer.Element;
+import org.springframework.http.server.PathContainer.PathSegment;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+/**
+ * Matches request paths against a fixed set of uri templates. Templates are parsed once and
+ * indexed by HTTP method and by the literal path that precedes their first variable, so a request
+ * is only matched against the patterns that share one of its path prefixes.
+ */
+public final class UriTemplateMatcher {
+
+  private static final String PATH_SEPARATOR = "/";
+
+  private static final char[] TEMPLATE_VARIABLE_CHARS = {'{', '*', '?'};
+
+  private final Map<String, Map<String, List<PathPattern>>> patternsByMethodAndPrefix;
+
+  /** @param uriTemplateAndHttpMethods key=uriTemplate, value=array of http method names */
+  public UriTemplateMatcher(Map<String, String[]> uriTemplateAndHttpMethods) {
+    PathPatternParser parser = new PathPatternParser();
+    parser.setMatchOptionalTrailingSeparator(true);
+
+    Map<String, Map<String, List<PathPattern>>> index = new HashMap<>();
+    for (Map.Entry<String, String[]> entry : uriTemplateAndHttpMethods.entrySet()) {
+      PathPattern pattern = parser.parse(entry.getKey());
+      String prefix = literalPrefix(entry.getKey());
+      for (String method : entry.getValue()) {
+        index
+            .computeIfAbsent(method.toUpperCase(), k -> new HashMap<>())
+            .computeIfAbsent(prefix, k -> new ArrayList<>())
+            .add(pattern);
+      }
+    }
+    this.patternsByMethodAndPrefix = Collections.unmodifiableMap(index);
+  }
+
+  public boolean matches(String method, String path) {
+    Map<String, List<PathPattern>> patternsByPrefix =
+        patternsByMethodAndPrefix.get(method.toUpperCase());
+    if (patternsByPrefix == null) {
+      return false;
+    }
+
+    // Prefixes are compared with decoded segments, the same values PathPattern matches against,
+    // so an encoded literal or a matrix variable in the request path cannot skip its pattern.
+    PathContainer pathContainer = null;
+    String lookupPath = path;
+    if (StringUtils.containsAny(path, '%', ';')) {
+      pathContainer = PathContainer.parsePath(path);
+      lookupPath = decodedPath(pathContainer);
+    }
+
+    String prefix = StringUtils.removeEnd(lookupPath, PATH_SEPARATOR);
+    while (true) {
+      List<PathPattern> patterns = patternsByPrefix.get(prefix);
+      if (patterns != null) {
+        if (pathContainer == null) {
+          pathContainer = PathContainer.parsePath(path);
+        }
+        for (PathPattern pattern : patterns) {
+          if (pattern.matches(pathContainer)) {
+            return true;
+          }
+        }
+      }
+
+      int separatorIndex = prefix.lastIndexOf(PATH_SEPARATOR);
+      if (separatorIndex < 0) {
+        return false;
+      }
+      prefix = prefix.substring(0, separatorIndex);
+    }
+  }
+
+  private static String decodedPath(PathContainer pathContainer) {
+    StringBuilder decodedPath = new StringBuilder();
+    for (Element element : pathContainer.elements()) {
+      decodedPath.append(
+          element instanceof PathSegment ? ((PathSegment) element).valueToMatch() : element.value());
+    }
+    return decodedPath.toString();
+  }
+
+  /** Returns the template up to the path separator before its first variable or wildcard. */
+  static String literalPrefix(String uriTemplate) {
+    String literal = uriTemplate;
+    int variableIndex = StringUtils.indexOfAny(uriTemplate, TEMPLATE_VARIABLE_CHARS);
+    if (variableIndex >= 0) {
+      literal = uriTemplate.substring(0, Math.max(0, uriTemplate.lastIndexOf('/', variableIndex)));
+    }
+    return StringUtils.removeEnd(literal, PATH_SEPARATOR);
+  }
+}
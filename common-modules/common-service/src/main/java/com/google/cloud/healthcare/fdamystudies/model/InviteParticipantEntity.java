@@ -9,6 +9,7 @@
 package com.google.cloud.healthcare.fdamystudies.model;
 
 import java.io.Serializable;
+import java.sql.Timestamp;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
@@ -61,4 +62,10 @@ public class InviteParticipantEntity implements Serializable {
 
   @Column(name = "app_version")
   private String appVersion;
+
+  @Column(name = "lease_owner")
+  private String leaseOwner;
+
+  @Column(name = "lease_expiry_time")
+  private Timestamp leaseExpiryTime;
 }
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.model;
+
+import static com.google.cloud.healthcare.fdamystudies.common.ColumnConstraints.LARGE_LENGTH;
+import static com.google.cloud.healthcare.fdamystudies.common.ColumnConstraints.SMALL_LENGTH;
+
+import java.io.Serializable;
+import java.sql.Timestamp;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.UpdateTimestamp;
+
+/** Progress of a participant email list imported in the background for a site. */
+@ToString
+@Setter
+@Getter
+@Entity
+@Table(
+    name = "participant_import_jobs",
+    indexes = {
+      @Index(name = "participant_import_jobs_site_id_idx", columnList = "site_id"),
+    })
+public class ParticipantImportJobEntity implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  @ToString.Exclude
+  @Id
+  @GeneratedValue(generator = "system-uuid")
+  @GenericGenerator(name = "system-uuid", strategy = "uuid")
+  @Column(name = "id", updatable = false, nullable = false)
+  private String id;
+
+  @Column(name = "site_id", nullable = false, updatable = false)
+  private String siteId;
+
+  @Column(name = "file_name", length = LARGE_LENGTH)
+  private String fileName;
+
+  @Column(name = "status", nullable = false, length = SMALL_LENGTH)
+  private String status;
+
+  @Column(name = "processed_rows", nullable = false)
+  private long processedRows;
+
+  @Column(name = "imported_count", nullable = false)
+  private long importedCount;
+
+  @Column(name = "duplicate_count", nullable = false)
+  private long duplicateCount;
+
+  @Column(name = "invalid_count", nullable = false)
+  private long invalidCount;
+
+  @Column(name = "error_code", length = SMALL_LENGTH)
+  private String errorCode;
+
+  @Column(name = "created_by", length = LARGE_LENGTH)
+  private String createdBy;
+
+  @Column(name = "created_time")
+  @CreationTimestamp
+  private Timestamp created;
+
+  @Column(name = "updated_time")
+  @UpdateTimestamp
+  private Timestamp modified;
+}
@@ -10,12 +10,14 @@ package com.google.cloud.healthcare.fdamystudies.repository;
 
 import com.google.cloud.healthcare.fdamystudies.model.AuthInfoEntity;
 import com.google.cloud.healthcare.fdamystudies.model.UserDetailsEntity;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -40,4 +42,9 @@ public interface AuthInfoRepository extends JpaRepository<AuthInfoEntity, String
   public void deleteByDeviceTokenAndUserId(String deviceToken, String userId);
 
   public List<AuthInfoEntity> findByDeviceToken(String deviceToken);
+
+  @Transactional
+  @Modifying
+  @Query("UPDATE AuthInfoEntity ai SET ai.deviceToken=NULL where ai.deviceToken in (:deviceTokens)")
+  public int clearDeviceTokens(@Param("deviceTokens") Collection<String> deviceTokens);
 }
@@ -9,6 +9,7 @@
 package com.google.cloud.healthcare.fdamystudies.repository;
 
 import com.google.cloud.healthcare.fdamystudies.model.InviteParticipantEntity;
+import java.sql.Timestamp;
 import java.util.List;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -25,25 +26,56 @@ import org.springframework.stereotype.Repository;
 public interface InviteParticipantsEmailRepository
     extends JpaRepository<InviteParticipantEntity, String> {
 
-  @Query(value = "SELECT * FROM invite_participants WHERE status = 0", nativeQuery = true)
-  public List<InviteParticipantEntity> findAllWithStatusZero();
+  /**
+   * Returns invitations that are not leased, or whose lease has expired. An invitation at status 1
+   * without a lease expiry, as an earlier release left when it stopped while sending the email, is
+   * claimable too.
+   */
+  @Query(
+      value =
+          "SELECT id FROM invite_participants WHERE status = 0 OR (status = 1 "
+              + "AND (lease_expiry_time IS NULL OR lease_expiry_time <= :now)) LIMIT :limit",
+      nativeQuery = true)
+  public List<String> findClaimableIds(@Param("now") Timestamp now, @Param("limit") int limit);
 
+  /**
+   * Leases the given invitations to the owner until leaseExpiry. Invitations that another
+   * dispatcher has leased since they were read are left out, so each one is sent by one dispatcher
+   * at a time.
+   */
   @Modifying
   @Query(
       value =
-          "UPDATE invite_participants set status=:newStatus WHERE study_info_id =:studyInfoId and participant_registry_site_id=:participantRegistryId and app_id=:appId",
+          "UPDATE invite_participants SET status = 1, lease_owner = :leaseOwner, "
+              + "lease_expiry_time = :leaseExpiry WHERE id IN (:ids) "
+              + "AND (status = 0 OR (status = 1 "
+              + "AND (lease_expiry_time IS NULL OR lease_expiry_time <= :now)))",
       nativeQuery = true)
-  public int updateStatus(
-      @Param("studyInfoId") String studyInfoId,
-      @Param("participantRegistryId") String participantRegistryId,
-      @Param("appId") String appId,
-      @Param("newStatus") int newStatus);
+  public int claim(
+      @Param("ids") List<String> ids,
+      @Param("leaseOwner") String leaseOwner,
+      @Param("now") Timestamp now,
+      @Param("leaseExpiry") Timestamp leaseExpiry);
+
+  public List<InviteParticipantEntity> findByLeaseOwner(String leaseOwner);
+
+  @Modifying
+  @Query(
+      value =
+          "UPDATE invite_participants SET status = 0, lease_owner = NULL, "
+              + "lease_expiry_time = NULL WHERE id IN (:ids)",
+      nativeQuery = true)
+  public int releaseLeases(@Param("ids") List<String> ids);
+
+  @Modifying
+  @Query(value = "DELETE FROM invite_participants WHERE id IN (:ids)", nativeQuery = true)
+  public int deleteByIds(@Param("ids") List<String> ids);
 
   @Modifying
   @Query(
       value =
-          "DELETE from invite_participants WHERE study_info_id =:studyInfoId and participant_registry_site_id=:participantRegistryId and app_id=:appId",
+          "DELETE FROM invite_participants WHERE participant_registry_site_id IN (:participantRegistrySiteIds)",
       nativeQuery = true)
-  public int deleteByParticipantRegistryIdAndStudyIdAndAppId(
-      String studyInfoId, String participantRegistryId, String appId);
+  public int deleteByParticipantRegistrySiteIds(
+      @Param("participantRegistrySiteIds") List<String> participantRegistrySiteIds);
 }
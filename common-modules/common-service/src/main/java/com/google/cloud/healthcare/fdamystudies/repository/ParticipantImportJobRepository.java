@@ -0,0 +1,45 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.repository;
+
+import com.google.cloud.healthcare.fdamystudies.model.ParticipantImportJobEntity;
+import java.sql.Timestamp;
+import java.util.Optional;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+@ConditionalOnProperty(
+    value = "participant.manager.repository.enabled",
+    havingValue = "true",
+    matchIfMissing = false)
+public interface ParticipantImportJobRepository
+    extends JpaRepository<ParticipantImportJobEntity, String> {
+
+  public Optional<ParticipantImportJobEntity> findByIdAndSiteId(String id, String siteId);
+
+  /**
+   * Fails the jobs in progress that recorded no progress since staleBefore, as the instance that
+   * ran them stopped.
+   */
+  @Modifying
+  @Query(
+      value =
+          "UPDATE participant_import_jobs SET status = 'FAILED', error_code = :errorCode, "
+              + "updated_time = :now WHERE status = 'IN_PROGRESS' AND updated_time < :staleBefore",
+      nativeQuery = true)
+  public int failStaleJobs(
+      @Param("staleBefore") Timestamp staleBefore,
+      @Param("now") Timestamp now,
+      @Param("errorCode") String errorCode);
+}
@@ -10,6 +10,7 @@ package com.google.cloud.healthcare.fdamystudies.repository;
 import com.google.cloud.healthcare.fdamystudies.model.ParticipantRegistrySiteCount;
 import com.google.cloud.healthcare.fdamystudies.model.ParticipantRegistrySiteEntity;
 import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -30,6 +31,13 @@ import org.springframework.stereotype.Repository;
 public interface ParticipantRegistrySiteRepository
     extends JpaRepository<ParticipantRegistrySiteEntity, String> {
 
+  /** Loads the participants along with their site, the site's location, study and app. */
+  @Query(
+      "SELECT pr FROM ParticipantRegistrySiteEntity pr JOIN FETCH pr.site s JOIN FETCH s.location "
+          + "JOIN FETCH s.study st JOIN FETCH st.app WHERE pr.id in (:ids)")
+  public List<ParticipantRegistrySiteEntity> findWithSiteByIds(
+      @Param("ids") Collection<String> ids);
+
   @Query("SELECT pr FROM ParticipantRegistrySiteEntity pr WHERE pr.site.id in (:siteIds)")
   public List<ParticipantRegistrySiteEntity> findBySiteIds(@Param("siteIds") List<String> siteIds);
 
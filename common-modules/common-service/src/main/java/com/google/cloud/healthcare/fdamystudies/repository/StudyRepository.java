@@ -17,6 +17,7 @@ import com.google.cloud.healthcare.fdamystudies.model.StudyEntity;
 import com.google.cloud.healthcare.fdamystudies.model.StudyInfo;
 import com.google.cloud.healthcare.fdamystudies.model.StudyParticipantDetails;
 import com.google.cloud.healthcare.fdamystudies.model.StudySiteInfo;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -35,6 +36,9 @@ public interface StudyRepository extends JpaRepository<StudyEntity, String> {
   @Query("SELECT study from StudyEntity study where study.id=:studyId")
   public Optional<StudyEntity> findByStudyId(String studyId);
 
+  @Query("SELECT study from StudyEntity study JOIN FETCH study.app where study.id in (:studyIds)")
+  public List<StudyEntity> findWithAppByStudyIds(@Param("studyIds") Collection<String> studyIds);
+
   @Query("SELECT study from StudyEntity study where study.app.id in (:appIds)")
   public List<StudyEntity> findByAppIds(@Param("appIds") List<String> appIds);
 
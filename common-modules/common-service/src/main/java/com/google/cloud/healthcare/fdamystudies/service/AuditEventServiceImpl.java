@@ -10,20 +10,45 @@ package com.google.cloud.healthcare.fdamystudies.service;
 
 import static com.google.cloud.healthcare.fdamystudies.common.JsonUtils.getObjectMapper;
 
-import com.google.cloud.MonitoredResource;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.cloud.healthcare.fdamystudies.beans.AuditLogEventRequest;
-import com.google.cloud.logging.LogEntry;
-import com.google.cloud.logging.Logging;
-import com.google.cloud.logging.LoggingOptions;
-import com.google.cloud.logging.Payload;
-import com.google.cloud.logging.Severity;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Map;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import org.slf4j.ext.XLogger;
 import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
+/**
+ * Ships audit events to the configured {@link AuditLogSink} without blocking the caller. Events are
+ * buffered in a bounded queue and written by a background thread in batches of up to batch.size
+ * events, or whatever arrived within flush.interval.ms. A batch the sink rejects is spilled to a
+ * local file and replayed after the next successful write. Events offered while the queue is full
+ * are dropped and counted. Spilled lines that can't be read back are moved to a rejected file next
+ * to the spill file.
+ */
 @Service
 @ConditionalOnProperty(
     value = "commonservice.auditlogevent.enabled",
@@ -33,32 +58,296 @@ public class AuditEventServiceImpl implements AuditEventService {
 
   private XLogger logger = XLoggerFactory.getXLogger(AuditEventServiceImpl.class.getName());
 
-  private static final String AUDIT_LOG_NAME = "application-audit-log";
+  @Value("${commonservice.auditlogevent.buffer.capacity:10000}")
+  private int bufferCapacity;
+
+  @Value("${commonservice.auditlogevent.batch.size:100}")
+  private int batchSize;
+
+  @Value("${commonservice.auditlogevent.flush.interval.ms:1000}")
+  private long flushIntervalMs;
+
+  @Value("${commonservice.auditlogevent.spill.path:logs/audit-log-spill.jsonl}")
+  private String spillPath;
+
+  @Autowired private AuditLogSink auditLogSink;
+
+  @Autowired private ObjectProvider<MeterRegistry> meterRegistry;
+
+  private final ObjectMapper objectMapper = getObjectMapper();
+
+  private final AtomicLong shipped = new AtomicLong();
+
+  private final AtomicLong dropped = new AtomicLong();
+
+  private final AtomicLong spilled = new AtomicLong();
+
+  private BlockingQueue<AuditLogEventRequest> buffer;
+
+  private Thread shipperThread;
+
+  private volatile boolean running;
+
+  // only read and written by the shipper thread
+  private boolean spillPending;
+
+  @PostConstruct
+  public void init() {
+    buffer = new ArrayBlockingQueue<>(bufferCapacity);
+    meterRegistry.ifAvailable(
+        registry -> {
+          Gauge.builder("audit.log.queue.depth", buffer, BlockingQueue::size).register(registry);
+          FunctionCounter.builder("audit.log.events.shipped", shipped, AtomicLong::get)
+              .register(registry);
+          FunctionCounter.builder("audit.log.events.dropped", dropped, AtomicLong::get)
+              .register(registry);
+          FunctionCounter.builder("audit.log.events.spilled", spilled, AtomicLong::get)
+              .register(registry);
+        });
+
+    // events spilled before a restart are replayed after the first successful write
+    spillPending = Files.exists(Paths.get(spillPath)) || Files.exists(getReplayPath());
+    running = true;
+    shipperThread = new Thread(this::ship, "audit-log-shipper");
+    shipperThread.setDaemon(true);
+    shipperThread.start();
+  }
 
   @Override
   public void postAuditLogEvent(AuditLogEventRequest auditRequest) {
-    logger.entry(
-        String.format("begin postAuditLogEvent() for %s event", auditRequest.getEventCode()));
+    if (!buffer.offer(auditRequest)) {
+      long count = dropped.incrementAndGet();
+      logger.warn(
+          String.format(
+              "audit log buffer is full, %s event dropped (%d dropped so far)",
+              auditRequest.getEventCode(), count));
+    }
+  }
+
+  public int getQueueDepth() {
+    return buffer.size();
+  }
+
+  public long getShippedCount() {
+    return shipped.get();
+  }
+
+  public long getDroppedCount() {
+    return dropped.get();
+  }
+
+  public long getSpilledCount() {
+    return spilled.get();
+  }
+
+  /** Stops accepting new batches and ships whatever is still buffered. */
+  @PreDestroy
+  public void shutdown() throws InterruptedException {
+    running = false;
+    shipperThread.join(TimeUnit.SECONDS.toMillis(30));
+  }
+
+  private void ship() {
+    List<AuditLogEventRequest> batch = new ArrayList<>(batchSize);
+    while (running || !buffer.isEmpty()) {
+      try {
+        nextBatch(batch);
+      } catch (InterruptedException e) {
+        // the shipper owns this thread, an interrupt only asks it to drain and stop
+        running = false;
+      }
+
+      if (!batch.isEmpty()) {
+        deliver(batch);
+        batch.clear();
+      }
+    }
+    logger.info(
+        String.format(
+            "audit log shipper stopped, shipped=%d, dropped=%d, spilled=%d",
+            shipped.get(), dropped.get(), spilled.get()));
+  }
 
-    try (Logging logging = LoggingOptions.getDefaultInstance().getService()) {
+  /** Waits for the first event, then collects until the batch is full or the interval elapses. */
+  private void nextBatch(List<AuditLogEventRequest> batch) throws InterruptedException {
+    AuditLogEventRequest first = buffer.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+    if (first == null) {
+      return;
+    }
 
-      // The data to write to the log
-      Map<String, Object> jsonPayloadMap = getObjectMapper().convertValue(auditRequest, Map.class);
+    batch.add(first);
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+    while (batch.size() < batchSize) {
+      buffer.drainTo(batch, batchSize - batch.size());
+      long remaining = deadline - System.nanoTime();
+      if (batch.size() >= batchSize || remaining <= 0 || !running) {
+        return;
+      }
 
-      LogEntry entry =
-          LogEntry.newBuilder(Payload.JsonPayload.of(jsonPayloadMap))
-              .setTimestamp(auditRequest.getOccurred().getTime())
-              .setSeverity(Severity.INFO)
-              .setLogName(AUDIT_LOG_NAME)
-              .setResource(MonitoredResource.newBuilder("global").build())
-              .build();
+      AuditLogEventRequest next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+      if (next == null) {
+        return;
+      }
+      batch.add(next);
+    }
+  }
 
-      // Writes the log entry asynchronously
-      logging.write(Collections.singleton(entry));
+  private void deliver(List<AuditLogEventRequest> batch) {
+    try {
+      auditLogSink.write(batch);
+      shipped.addAndGet(batch.size());
     } catch (Exception e) {
-      logger.error(String.format("%s failed with an exception", auditRequest.getEventCode()), e);
+      logger.error(
+          String.format("audit log sink unavailable, spilling %d events", batch.size()), e);
+      spill(batch);
+      return;
+    }
+
+    if (spillPending) {
+      replaySpilledEvents();
+    }
+  }
+
+  private void spill(List<AuditLogEventRequest> batch) {
+    Path path = Paths.get(spillPath);
+    try {
+      if (path.getParent() != null) {
+        Files.createDirectories(path.getParent());
+      }
+      try (BufferedWriter writer =
+          Files.newBufferedWriter(
+              path, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+        for (AuditLogEventRequest auditRequest : batch) {
+          writer.write(objectMapper.writeValueAsString(auditRequest));
+          writer.newLine();
+        }
+      }
+      spilled.addAndGet(batch.size());
+      spillPending = true;
+    } catch (IOException e) {
+      dropped.addAndGet(batch.size());
+      logger.error(String.format("failed to spill %d audit events", batch.size()), e);
+    }
+  }
+
+  /**
+   * Re-sends spilled events in batches. The spill file is moved aside first, so events that fail
+   * again are spilled to a fresh file instead of being sent twice. A replay file left by a replay
+   * that failed or was cut short by a restart holds older events, so it is finished first.
+   */
+  private void replaySpilledEvents() {
+    spillPending = false;
+    Path replayPath = getReplayPath();
+    try {
+      if (Files.exists(replayPath) && !replay(replayPath)) {
+        return;
+      }
+      Path path = Paths.get(spillPath);
+      if (Files.exists(path)) {
+        Files.deleteIfExists(getReplayProgressPath());
+        Files.move(path, replayPath);
+        replay(replayPath);
+      }
+    } catch (IOException e) {
+      // the replay file is kept, and resumed after the next successful write
+      spillPending = true;
+      logger.error("failed to replay spilled audit events", e);
+    }
+  }
+
+  /**
+   * Sends the events of the replay file, then deletes it. The number of lines handled so far is
+   * kept in the progress file, so a replay that is resumed skips the events already sent. Returns
+   * false if the sink became unavailable, in which case the remaining events were spilled again.
+   */
+  private boolean replay(Path replayPath) throws IOException {
+    long handledLines = readReplayProgress();
+    long lineNumber = 0;
+    long replayed = 0;
+    boolean sinkAvailable = true;
+    List<AuditLogEventRequest> batch = new ArrayList<>(batchSize);
+    try (BufferedReader reader = Files.newBufferedReader(replayPath, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (++lineNumber <= handledLines || line.trim().isEmpty()) {
+          continue;
+        }
+        try {
+          batch.add(objectMapper.readValue(line, AuditLogEventRequest.class));
+        } catch (JsonProcessingException e) {
+          reject(line, e);
+        }
+        if (batch.size() == batchSize) {
+          sinkAvailable = replayBatch(batch, sinkAvailable);
+          replayed += sinkAvailable ? batch.size() : 0;
+          batch.clear();
+          writeReplayProgress(lineNumber);
+        }
+      }
+    }
+    if (!batch.isEmpty() && replayBatch(batch, sinkAvailable)) {
+      replayed += batch.size();
+    }
+    Files.delete(replayPath);
+    Files.deleteIfExists(getReplayProgressPath());
+    logger.info(String.format("%d spilled audit events replayed", replayed));
+    return sinkAvailable;
+  }
+
+  private long readReplayProgress() {
+    Path progressPath = getReplayProgressPath();
+    if (!Files.exists(progressPath)) {
+      return 0;
+    }
+    try {
+      return Long.parseLong(new String(Files.readAllBytes(progressPath), StandardCharsets.UTF_8));
+    } catch (IOException | NumberFormatException e) {
+      // the whole replay file is sent again rather than losing events
+      logger.warn("unreadable replay progress of spilled audit events, replaying all of them", e);
+      return 0;
+    }
+  }
+
+  private void writeReplayProgress(long handledLines) throws IOException {
+    Files.write(
+        getReplayProgressPath(), String.valueOf(handledLines).getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** Moves a spilled line that can't be read back to the rejected file. */
+  private void reject(String line, JsonProcessingException cause) {
+    logger.error("unreadable spilled audit event, moved to the rejected file", cause);
+    try {
+      Files.write(
+          Paths.get(spillPath + ".rejected"),
+          Collections.singletonList(line),
+          StandardCharsets.UTF_8,
+          StandardOpenOption.CREATE,
+          StandardOpenOption.APPEND);
+    } catch (IOException e) {
+      logger.error("failed to keep an unreadable spilled audit event", e);
+    }
+    dropped.incrementAndGet();
+  }
+
+  private Path getReplayPath() {
+    return Paths.get(spillPath + ".replay");
+  }
+
+  private Path getReplayProgressPath() {
+    return Paths.get(spillPath + ".replay.progress");
+  }
+
+  private boolean replayBatch(List<AuditLogEventRequest> batch, boolean sinkAvailable) {
+    if (sinkAvailable) {
+      try {
+        auditLogSink.write(batch);
+        shipped.addAndGet(batch.size());
+        return true;
+      } catch (Exception e) {
+        logger.error("audit log sink unavailable while replaying spilled events", e);
+      }
     }
-    logger.exit(
-        String.format("postAuditLogEvent() for %s event finished", auditRequest.getEventCode()));
+    spill(batch);
+    return false;
   }
 }
@@ -0,0 +1,22 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.service;
+
+import com.google.cloud.healthcare.fdamystudies.beans.AuditLogEventRequest;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination of the batches shipped by {@link AuditEventServiceImpl}. A write either stores the
+ * whole batch or throws, in which case the batch is spilled to a local file and retried later.
+ */
+public interface AuditLogSink {
+
+  public void write(List<AuditLogEventRequest> auditRequests) throws IOException;
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.service;
+
+import static com.google.cloud.healthcare.fdamystudies.common.JsonUtils.getObjectMapper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.cloud.MonitoredResource;
+import com.google.cloud.healthcare.fdamystudies.beans.AuditLogEventRequest;
+import com.google.cloud.logging.LogEntry;
+import com.google.cloud.logging.Logging;
+import com.google.cloud.logging.LoggingOptions;
+import com.google.cloud.logging.Payload;
+import com.google.cloud.logging.Severity;
+import com.google.cloud.logging.Synchronicity;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.PreDestroy;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes audit events to Cloud Logging. The client is created on the first write and reused for
+ * every batch after that; it is recreated only after a failed write.
+ */
+@Component
+@ConditionalOnProperty(
+    value = "commonservice.auditlogevent.sink",
+    havingValue = "cloud",
+    matchIfMissing = true)
+public class CloudLoggingAuditLogSink implements AuditLogSink {
+
+  private XLogger logger = XLoggerFactory.getXLogger(CloudLoggingAuditLogSink.class.getName());
+
+  private static final String AUDIT_LOG_NAME = "application-audit-log";
+
+  private static final MonitoredResource GLOBAL_RESOURCE =
+      MonitoredResource.newBuilder("global").build();
+
+  private final ObjectMapper objectMapper = getObjectMapper();
+
+  private Logging logging;
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public synchronized void write(List<AuditLogEventRequest> auditRequests) {
+    List<LogEntry> entries = new ArrayList<>(auditRequests.size());
+    for (AuditLogEventRequest auditRequest : auditRequests) {
+      Map<String, Object> jsonPayloadMap = objectMapper.convertValue(auditRequest, Map.class);
+      entries.add(
+          LogEntry.newBuilder(Payload.JsonPayload.of(jsonPayloadMap))
+              .setTimestamp(auditRequest.getOccurred().getTime())
+              .setSeverity(Severity.INFO)
+              .setLogName(AUDIT_LOG_NAME)
+              .setResource(GLOBAL_RESOURCE)
+              .build());
+    }
+
+    try {
+      getLogging().write(entries);
+    } catch (RuntimeException e) {
+      close();
+      throw e;
+    }
+  }
+
+  private Logging getLogging() {
+    if (logging == null) {
+      logging = LoggingOptions.getDefaultInstance().getService();
+      // failures must surface here so the batch can be spilled and retried
+      logging.setWriteSynchronicity(Synchronicity.SYNC);
+    }
+    return logging;
+  }
+
+  @PreDestroy
+  public synchronized void close() {
+    if (logging != null) {
+      try {
+        logging.close();
+      } catch (Exception e) {
+        logger.warn("failed to close the cloud logging client", e);
+      }
+      logging = null;
+    }
+  }
+}
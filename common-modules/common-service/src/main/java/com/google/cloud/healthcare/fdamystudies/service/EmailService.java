@@ -10,8 +10,13 @@ package com.google.cloud.healthcare.fdamystudies.service;
 
 import com.google.cloud.healthcare.fdamystudies.beans.EmailRequest;
 import com.google.cloud.healthcare.fdamystudies.beans.EmailResponse;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
 
 public interface EmailService {
 
   public EmailResponse sendMimeMail(EmailRequest emailRequest);
+
+  /** Builds the message for the request with its placeholders filled in, without sending it. */
+  public MimeMessage createMimeMessage(EmailRequest emailRequest) throws MessagingException;
 }
@@ -13,7 +13,13 @@ import com.google.cloud.healthcare.fdamystudies.beans.EmailResponse;
 import com.google.cloud.healthcare.fdamystudies.common.ErrorCode;
 import com.google.cloud.healthcare.fdamystudies.common.MessageCode;
 import com.google.cloud.healthcare.fdamystudies.common.PlaceholderReplacer;
+import java.io.UnsupportedEncodingException;
 import java.util.Calendar;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.mail.MessagingException;
+import javax.mail.internet.AddressException;
+import javax.mail.internet.InternetAddress;
 import javax.mail.internet.MimeMessage;
 import org.apache.commons.lang3.ArrayUtils;
 import org.slf4j.ext.XLogger;
@@ -36,26 +42,15 @@ public class EmailServiceImpl implements EmailService {
 
   @Autowired private JavaMailSender emailSender;
 
+  // Messages are mutable and are sent from several threads, so each send builds its own message;
+  // what every message shares, the parsed sender address, is prepared once per sender.
+  private final Map<String, InternetAddress> senderAddresses = new ConcurrentHashMap<>();
+
   @Override
   public EmailResponse sendMimeMail(EmailRequest emailRequest) {
     logger.entry("Begin sendMimeMail()");
     try {
-      MimeMessage message = emailSender.createMimeMessage();
-      MimeMessageHelper helper = new MimeMessageHelper(message, false);
-      helper.setFrom(emailRequest.getFrom());
-      helper.setTo(emailRequest.getTo());
-
-      if (ArrayUtils.isNotEmpty(emailRequest.getCc())) {
-        helper.setCc(emailRequest.getCc());
-      }
-
-      if (ArrayUtils.isNotEmpty(emailRequest.getBcc())) {
-        helper.setBcc(emailRequest.getBcc());
-      }
-
-      message.setSubject(getSubject(emailRequest));
-      message.setText(getBodyContent(emailRequest), "utf-8", "html");
-      message.setSentDate(Calendar.getInstance().getTime());
+      MimeMessage message = createMimeMessage(emailRequest);
       emailSender.send(message);
       logger.exit(String.format("status=%d", HttpStatus.ACCEPTED.value()));
       return new EmailResponse(MessageCode.EMAIL_ACCEPTED_BY_MAIL_SERVER);
@@ -65,6 +60,47 @@ public class EmailServiceImpl implements EmailService {
     }
   }
 
+  @Override
+  public MimeMessage createMimeMessage(EmailRequest emailRequest) throws MessagingException {
+    MimeMessage message = emailSender.createMimeMessage();
+    MimeMessageHelper helper = new MimeMessageHelper(message, false);
+    helper.setFrom(getSenderAddress(emailRequest.getFrom(), helper.getEncoding()));
+    helper.setTo(emailRequest.getTo());
+
+    if (ArrayUtils.isNotEmpty(emailRequest.getCc())) {
+      helper.setCc(emailRequest.getCc());
+    }
+
+    if (ArrayUtils.isNotEmpty(emailRequest.getBcc())) {
+      helper.setBcc(emailRequest.getBcc());
+    }
+
+    message.setSubject(getSubject(emailRequest));
+    message.setText(getBodyContent(emailRequest), "utf-8", "html");
+    message.setSentDate(Calendar.getInstance().getTime());
+    return message;
+  }
+
+  private InternetAddress getSenderAddress(String from, String encoding) throws MessagingException {
+    InternetAddress address = senderAddresses.get(from);
+    if (address == null) {
+      InternetAddress[] parsed = InternetAddress.parse(from);
+      if (parsed.length != 1) {
+        throw new AddressException("Illegal address", from);
+      }
+      address = parsed[0];
+      if (encoding != null) {
+        try {
+          address = new InternetAddress(address.getAddress(), address.getPersonal(), encoding);
+        } catch (UnsupportedEncodingException e) {
+          throw new MessagingException("Failed to parse sender address", e);
+        }
+      }
+      senderAddresses.put(from, address);
+    }
+    return address;
+  }
+
   private String getSubject(EmailRequest emailRequest) {
     if (emailRequest.getTemplateArgs() != null) {
       return PlaceholderReplacer.replaceNamedPlaceholders(
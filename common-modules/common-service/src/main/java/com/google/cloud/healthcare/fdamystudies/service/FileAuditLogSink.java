@@ -0,0 +1,63 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.service;
+
+import static com.google.cloud.healthcare.fdamystudies.common.JsonUtils.getObjectMapper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.cloud.healthcare.fdamystudies.beans.AuditLogEventRequest;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Appends audit events to a local file, one JSON document per line. Intended for local runs and
+ * tests where Cloud Logging is not available.
+ */
+@Component
+@ConditionalOnProperty(value = "commonservice.auditlogevent.sink", havingValue = "file")
+public class FileAuditLogSink implements AuditLogSink {
+
+  private final ObjectMapper objectMapper = getObjectMapper();
+
+  @Value("${commonservice.auditlogevent.file.path:logs/audit-log-events.jsonl}")
+  private String filePath;
+
+  @Override
+  public synchronized void write(List<AuditLogEventRequest> auditRequests) throws IOException {
+    Path path = Paths.get(filePath);
+    if (path.getParent() != null) {
+      Files.createDirectories(path.getParent());
+    }
+
+    try (BufferedWriter writer =
+        Files.newBufferedWriter(
+            path,
+            StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.APPEND)) {
+      for (AuditLogEventRequest auditRequest : auditRequests) {
+        writer.write(objectMapper.writeValueAsString(auditRequest));
+        writer.newLine();
+      }
+    }
+  }
+
+  public Path getFilePath() {
+    return Paths.get(filePath);
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class CompiledTemplateTest {
+
+  @Test
+  public void shouldRenderAdjacentPlaceholders() {
+    Map<String, String> values = new HashMap<>();
+    values.put("first", "A");
+    values.put("second", "B");
+    values.put("third", "C");
+
+    assertEquals("ABC", CompiledTemplate.compile("${first}${second}{{third}}").render(values));
+    assertEquals(
+        "[A-B]C", CompiledTemplate.compile("[${first}-{{second}}]${third}").render(values));
+  }
+
+  @Test
+  public void shouldLeavePlaceholdersWithoutValueAsIs() {
+    Map<String, String> values = new HashMap<>();
+    values.put("name", "Jane");
+
+    assertEquals(
+        "Dear Jane, your code is ${code} {{expiry}}",
+        CompiledTemplate.compile("Dear ${name}, your code is ${code} {{expiry}}").render(values));
+    assertEquals(
+        "Dear Jane ${name", CompiledTemplate.compile("Dear ${name} ${name").render(values));
+    assertEquals("no placeholders", CompiledTemplate.compile("no placeholders").render(values));
+  }
+
+  @Test
+  public void shouldInsertValuesAsTheyAre() {
+    Map<String, String> values = new HashMap<>();
+    values.put("path", "C:\\studies\\$1");
+    values.put("price", "$5 {{name}} ${path}");
+    values.put("name", "Jane");
+
+    assertEquals(
+        "C:\\studies\\$1 costs $5 {{name}} ${path}",
+        CompiledTemplate.compile("${path} costs {{price}}").render(values));
+  }
+
+  @Test
+  public void shouldRenderToTheEndOfTheBuffer() {
+    Map<String, String> values = new HashMap<>();
+    values.put("name", "Jane");
+    StringBuilder out = new StringBuilder("Subject: ");
+
+    CompiledTemplate.compile("Hello ${name}").renderTo(values, out);
+
+    assertEquals("Subject: Hello Jane", out.toString());
+  }
+
+  @Test
+  public void shouldStopRegisteringTemplatesWhenTheRegistryIsFull() {
+    Map<String, String> values = new HashMap<>();
+    values.put("index", "value");
+    String firstText = "first registered ${index}";
+    CompiledTemplate first = CompiledTemplate.of(firstText);
+
+    // the registry holds at most 512 templates, some may be registered by other tests
+    int unregistered = -1;
+    for (int i = 0; i < 600 && unregistered < 0; i++) {
+      String text = "template " + i + " ${index}";
+      if (CompiledTemplate.of(text) != CompiledTemplate.of(text)) {
+        unregistered = i;
+      }
+    }
+
+    assertTrue(unregistered >= 0 && unregistered < 512);
+    // registered templates are kept, later texts are compiled for each use
+    assertSame(first, CompiledTemplate.of(firstText));
+    String text = "template " + unregistered + " ${index}";
+    assertNotSame(CompiledTemplate.of(text), CompiledTemplate.of(text));
+    assertEquals("template " + unregistered + " value", CompiledTemplate.of(text).render(values));
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.filter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class UriTemplateMatcherTest {
+
+  private final UriTemplateMatcher matcher = new UriTemplateMatcher(newUriTemplates());
+
+  @Test
+  public void shouldMatchLiteralPaths() {
+    assertTrue(matcher.matches("GET", "/participant-manager-datastore/users/me"));
+    assertTrue(matcher.matches("GET", "/participant-manager-datastore/users/me/"));
+    assertTrue(matcher.matches("get", "/participant-manager-datastore/users/me"));
+
+    assertFalse(matcher.matches("GET", "/participant-manager-datastore/users"));
+    assertFalse(matcher.matches("GET", "/participant-manager-datastore/users/me/sites"));
+    assertFalse(matcher.matches("GET", "/participant-manager-datastore/users/meme"));
+    assertFalse(matcher.matches("GET", "/other-service/users/me"));
+    assertFalse(matcher.matches("GET", "/"));
+    assertFalse(matcher.matches("GET", ""));
+  }
+
+  @Test
+  public void shouldMatchOnlyTheMethodsOfTheTemplate() {
+    assertFalse(matcher.matches("POST", "/participant-manager-datastore/users/me"));
+    assertFalse(matcher.matches("DELETE", "/participant-manager-datastore/users/me"));
+    assertTrue(matcher.matches("PUT", "/participant-manager-datastore/sites/1/participants"));
+    assertTrue(matcher.matches("POST", "/participant-manager-datastore/sites/1/participants"));
+    assertFalse(matcher.matches("GET", "/participant-manager-datastore/sites/1/participants"));
+    assertFalse(matcher.matches("PATCH", "/participant-manager-datastore/sites/1/participants"));
+  }
+
+  @Test
+  public void shouldMatchVariableSegments() {
+    assertTrue(matcher.matches("GET", "/participant-manager-datastore/studies/1/sites"));
+    assertTrue(matcher.matches("GET", "/participant-manager-datastore/studies/abc-2/sites/"));
+
+    assertFalse(matcher.matches("GET", "/participant-manager-datastore/studies/sites"));
+    assertFalse(matcher.matches("GET", "/participant-manager-datastore/studies//sites"));
+    assertFalse(matcher.matches("GET", "/participant-manager-datastore/studies/1/2/sites"));
+    assertFalse(matcher.matches("GET", "/participant-manager-datastore/studies/1/sites/2"));
+    assertFalse(matcher.matches("GET", "/participant-manager-datastore/studies/1"));
+  }
+
+  @Test
+  public void shouldMatchTemplatesWithOverlappingPrefixes() {
+    // a literal template and a variable template below the same prefix
+    assertTrue(matcher.matches("GET", "/participant-manager-datastore/studies/export"));
+    assertTrue(matcher.matches("GET", "/participant-manager-datastore/studies/1/sites"));
+    assertFalse(matcher.matches("GET", "/participant-manager-datastore/studies/export/1"));
+
+    // a shorter template does not match the paths of a longer one, and the reverse
+    assertTrue(matcher.matches("DELETE", "/participant-manager-datastore/sites/1"));
+    assertTrue(matcher.matches("DELETE", "/participant-manager-datastore/sites/1/"));
+    assertFalse(matcher.matches("DELETE", "/participant-manager-datastore/sites/1/participants"));
+    assertFalse(matcher.matches("POST", "/participant-manager-datastore/sites/1"));
+    assertTrue(
+        matcher.matches("POST", "/participant-manager-datastore/sites/1/participants/2/enable"));
+    assertFalse(matcher.matches("POST", "/participant-manager-datastore/sites/1/participants/2"));
+  }
+
+  @Test
+  public void shouldMatchWildcards() {
+    assertTrue(matcher.matches("GET", "/participant-manager-datastore/apps"));
+    assertTrue(matcher.matches("GET", "/participant-manager-datastore/apps/1"));
+    assertTrue(matcher.matches("GET", "/participant-manager-datastore/apps/1/studies/2"));
+    assertFalse(matcher.matches("GET", "/participant-manager-datastore/application"));
+    assertFalse(matcher.matches("POST", "/participant-manager-datastore/apps/1"));
+  }
+
+  @Test
+  public void shouldMatchEncodedAndMatrixVariablePaths() {
+    assertTrue(matcher.matches("GET", "/participant-manager-datastore/users/%6De"));
+    assertTrue(matcher.matches("GET", "/participant-manager-datastore/users/me;version=1"));
+    assertTrue(matcher.matches("GET", "/participant-manager-datastore/studies/1%202/sites"));
+    assertFalse(matcher.matches("GET", "/participant-manager-datastore/users/m%2Fe"));
+    assertFalse(matcher.matches("GET", "/participant-manager-datastore/studies/1%2F2/sites/3"));
+  }
+
+  @Test
+  public void shouldIndexTemplatesByTheLiteralPrefixBeforeTheirFirstVariable() {
+    assertEquals(
+        "/participant-manager-datastore/users/me",
+        UriTemplateMatcher.literalPrefix("/participant-manager-datastore/users/me/"));
+    assertEquals(
+        "/participant-manager-datastore/studies",
+        UriTemplateMatcher.literalPrefix("/participant-manager-datastore/studies/{studyId}/sites"));
+    assertEquals(
+        "/participant-manager-datastore/apps",
+        UriTemplateMatcher.literalPrefix("/participant-manager-datastore/apps/**"));
+    assertEquals("", UriTemplateMatcher.literalPrefix("/{service}/users"));
+  }
+
+  private static Map<String, String[]> newUriTemplates() {
+    Map<String, String[]> uriTemplates = new HashMap<>();
+    uriTemplates.put("/participant-manager-datastore/users/me", new String[] {"GET"});
+    uriTemplates.put(
+        "/participant-manager-datastore/studies/{studyId}/sites", new String[] {"GET"});
+    uriTemplates.put("/participant-manager-datastore/studies/export", new String[] {"GET"});
+    uriTemplates.put("/participant-manager-datastore/sites/{siteId}", new String[] {"DELETE"});
+    uriTemplates.put(
+        "/participant-manager-datastore/sites/{siteId}/participants", new String[] {"PUT", "post"});
+    uriTemplates.put(
+        "/participant-manager-datastore/sites/{siteId}/participants/{participantId}/enable",
+        new String[] {"POST"});
+    uriTemplates.put("/participant-manager-datastore/apps/**", new String[] {"GET"});
+    return uriTemplates;
+  }
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.service;
+
+import static com.google.cloud.healthcare.fdamystudies.common.JsonUtils.getObjectMapper;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import com.google.cloud.healthcare.fdamystudies.beans.AuditLogEventRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class AuditEventServiceImplTest {
+
+  @TempDir Path tempDir;
+
+  private AuditEventServiceImpl auditEventService;
+
+  @AfterEach
+  public void shutdown() throws InterruptedException {
+    if (auditEventService != null) {
+      auditEventService.shutdown();
+    }
+  }
+
+  @Test
+  public void shouldDropEventsOfferedWhileTheBufferIsFull() throws Exception {
+    CountDownLatch writing = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    RecordingSink sink =
+        new RecordingSink() {
+          @Override
+          public void write(List<AuditLogEventRequest> auditRequests) throws IOException {
+            writing.countDown();
+            try {
+              release.await();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+            super.write(auditRequests);
+          }
+        };
+    auditEventService = newAuditEventService(sink, 2, 1, 100);
+
+    // Step 1: the shipper holds the first event in a write that doesn't return
+    auditEventService.postAuditLogEvent(newAuditRequest("EVENT_1"));
+    assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+    // Step 2: two events fill the buffer and the next one is dropped
+    auditEventService.postAuditLogEvent(newAuditRequest("EVENT_2"));
+    auditEventService.postAuditLogEvent(newAuditRequest("EVENT_3"));
+    auditEventService.postAuditLogEvent(newAuditRequest("EVENT_4"));
+    assertEquals(2, auditEventService.getQueueDepth());
+    assertEquals(1, auditEventService.getDroppedCount());
+
+    // Step 3: the buffered events are shipped once the sink returns
+    release.countDown();
+    await(() -> auditEventService.getShippedCount() == 3);
+    assertEquals(Arrays.asList("EVENT_1", "EVENT_2", "EVENT_3"), sink.getEventCodes());
+  }
+
+  @Test
+  public void shouldWriteFullBatchesThenWhatArrivedWithinTheInterval() throws Exception {
+    RecordingSink sink = new RecordingSink();
+    auditEventService = newAuditEventService(sink, 100, 3, 500);
+
+    for (int i = 1; i <= 5; i++) {
+      auditEventService.postAuditLogEvent(newAuditRequest("EVENT_" + i));
+    }
+
+    await(() -> auditEventService.getShippedCount() == 5);
+    assertEquals(Arrays.asList(3, 2), sink.getBatchSizes());
+    assertEquals(
+        Arrays.asList("EVENT_1", "EVENT_2", "EVENT_3", "EVENT_4", "EVENT_5"), sink.getEventCodes());
+  }
+
+  @Test
+  public void shouldSpillRejectedBatchesAndReplayThemAfterTheNextWrite() throws Exception {
+    FileAuditLogSink fileSink = newFileAuditLogSink();
+    UnavailableSink sink = new UnavailableSink(fileSink);
+    auditEventService = newAuditEventService(sink, 100, 2, 50);
+    Path spillPath = tempDir.resolve("audit-log-spill.jsonl");
+
+    // Step 1: batches the sink rejects are spilled to the local file
+    sink.available = false;
+    auditEventService.postAuditLogEvent(newAuditRequest("EVENT_1"));
+    auditEventService.postAuditLogEvent(newAuditRequest("EVENT_2"));
+    await(() -> auditEventService.getSpilledCount() == 2);
+    assertEquals(Arrays.asList("EVENT_1", "EVENT_2"), readEventCodes(spillPath));
+    assertFalse(Files.exists(fileSink.getFilePath()));
+
+    // Step 2: the next write succeeds, and the spilled events are replayed after it
+    sink.available = true;
+    auditEventService.postAuditLogEvent(newAuditRequest("EVENT_3"));
+    await(() -> auditEventService.getShippedCount() == 3);
+    assertEquals(
+        Arrays.asList("EVENT_3", "EVENT_1", "EVENT_2"), readEventCodes(fileSink.getFilePath()));
+    assertFalse(Files.exists(spillPath));
+    assertEquals(0, auditEventService.getDroppedCount());
+  }
+
+  @Test
+  public void shouldReplayEventsSpilledBeforeARestart() throws Exception {
+    Files.write(
+        tempDir.resolve("audit-log-spill.jsonl"),
+        Collections.singletonList(toJson(newAuditRequest("EVENT_1"))),
+        StandardCharsets.UTF_8);
+    Files.write(
+        tempDir.resolve("audit-log-spill.jsonl.replay"),
+        Collections.singletonList(toJson(newAuditRequest("EVENT_2"))),
+        StandardCharsets.UTF_8);
+    FileAuditLogSink fileSink = newFileAuditLogSink();
+    auditEventService = newAuditEventService(fileSink, 100, 10, 50);
+
+    auditEventService.postAuditLogEvent(newAuditRequest("EVENT_3"));
+
+    // the replay file left before the restart holds the older events
+    await(() -> auditEventService.getShippedCount() == 3);
+    assertEquals(
+        Arrays.asList("EVENT_3", "EVENT_2", "EVENT_1"), readEventCodes(fileSink.getFilePath()));
+    assertFalse(Files.exists(tempDir.resolve("audit-log-spill.jsonl")));
+    assertFalse(Files.exists(tempDir.resolve("audit-log-spill.jsonl.replay")));
+  }
+
+  @Test
+  public void shouldResumeAReplayWithoutResendingShippedEvents() throws Exception {
+    Files.write(
+        tempDir.resolve("audit-log-spill.jsonl.replay"),
+        Arrays.asList(
+            toJson(newAuditRequest("EVENT_1")),
+            toJson(newAuditRequest("EVENT_2")),
+            toJson(newAuditRequest("EVENT_3"))),
+        StandardCharsets.UTF_8);
+    // the first two events were shipped before the restart
+    Files.write(
+        tempDir.resolve("audit-log-spill.jsonl.replay.progress"),
+        "2".getBytes(StandardCharsets.UTF_8));
+    FileAuditLogSink fileSink = newFileAuditLogSink();
+    auditEventService = newAuditEventService(fileSink, 100, 2, 50);
+
+    auditEventService.postAuditLogEvent(newAuditRequest("EVENT_4"));
+
+    await(() -> auditEventService.getShippedCount() == 2);
+    assertEquals(Arrays.asList("EVENT_4", "EVENT_3"), readEventCodes(fileSink.getFilePath()));
+    assertFalse(Files.exists(tempDir.resolve("audit-log-spill.jsonl.replay")));
+    assertFalse(Files.exists(tempDir.resolve("audit-log-spill.jsonl.replay.progress")));
+  }
+
+  @Test
+  public void shouldMoveUnreadableSpilledLinesToTheRejectedFile() throws Exception {
+    Files.write(
+        tempDir.resolve("audit-log-spill.jsonl"),
+        Arrays.asList(
+            toJson(newAuditRequest("EVENT_1")), "{not json", toJson(newAuditRequest("EVENT_2"))),
+        StandardCharsets.UTF_8);
+    FileAuditLogSink fileSink = newFileAuditLogSink();
+    auditEventService = newAuditEventService(fileSink, 100, 10, 50);
+
+    auditEventService.postAuditLogEvent(newAuditRequest("EVENT_3"));
+
+    await(() -> auditEventService.getShippedCount() == 3);
+    assertEquals(
+        Arrays.asList("EVENT_3", "EVENT_1", "EVENT_2"), readEventCodes(fileSink.getFilePath()));
+    assertEquals(
+        Collections.singletonList("{not json"),
+        Files.readAllLines(tempDir.resolve("audit-log-spill.jsonl.rejected")));
+    assertEquals(1, auditEventService.getDroppedCount());
+    assertFalse(Files.exists(tempDir.resolve("audit-log-spill.jsonl.replay")));
+
+    // a later replay is not held up by the rejected line
+    Files.write(
+        tempDir.resolve("audit-log-spill.jsonl"),
+        Collections.singletonList(toJson(newAuditRequest("EVENT_4"))),
+        StandardCharsets.UTF_8);
+    ReflectionTestUtils.setField(auditEventService, "spillPending", true);
+    auditEventService.postAuditLogEvent(newAuditRequest("EVENT_5"));
+    await(() -> auditEventService.getShippedCount() == 5);
+    assertFalse(Files.exists(tempDir.resolve("audit-log-spill.jsonl")));
+  }
+
+  private AuditEventServiceImpl newAuditEventService(
+      AuditLogSink sink, int bufferCapacity, int batchSize, long flushIntervalMs) {
+    AuditEventServiceImpl service = new AuditEventServiceImpl();
+    ReflectionTestUtils.setField(service, "bufferCapacity", bufferCapacity);
+    ReflectionTestUtils.setField(service, "batchSize", batchSize);
+    ReflectionTestUtils.setField(service, "flushIntervalMs", flushIntervalMs);
+    ReflectionTestUtils.setField(
+        service, "spillPath", tempDir.resolve("audit-log-spill.jsonl").toString());
+    ReflectionTestUtils.setField(service, "auditLogSink", sink);
+    ReflectionTestUtils.setField(
+        service,
+        "meterRegistry",
+        new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+    service.init();
+    return service;
+  }
+
+  private FileAuditLogSink newFileAuditLogSink() {
+    FileAuditLogSink fileSink = new FileAuditLogSink();
+    ReflectionTestUtils.setField(
+        fileSink, "filePath", tempDir.resolve("audit-log-events.jsonl").toString());
+    return fileSink;
+  }
+
+  private static AuditLogEventRequest newAuditRequest(String eventCode) {
+    AuditLogEventRequest auditRequest = new AuditLogEventRequest();
+    auditRequest.setCorrelationId("correlation-" + eventCode);
+    auditRequest.setEventCode(eventCode);
+    auditRequest.setDescription("description of " + eventCode);
+    auditRequest.setSource("PARTICIPANT MANAGER");
+    auditRequest.setDestination("APPLICATION LOGS");
+    auditRequest.setSourceApplicationVersion("1.0");
+    return auditRequest;
+  }
+
+  private static String toJson(AuditLogEventRequest auditRequest) throws IOException {
+    return getObjectMapper().writeValueAsString(auditRequest);
+  }
+
+  private static List<String> readEventCodes(Path path) throws IOException {
+    List<String> eventCodes = new ArrayList<>();
+    for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+      eventCodes.add(getObjectMapper().readValue(line, AuditLogEventRequest.class).getEventCode());
+    }
+    return eventCodes;
+  }
+
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    for (int attempt = 0; attempt < 100; attempt++) {
+      if (condition.getAsBoolean()) {
+        return;
+      }
+      Thread.sleep(50);
+    }
+    fail("condition not met within 5 seconds");
+  }
+
+  private static class RecordingSink implements AuditLogSink {
+
+    private final List<List<AuditLogEventRequest>> batches = new ArrayList<>();
+
+    @Override
+    public void write(List<AuditLogEventRequest> auditRequests) throws IOException {
+      synchronized (batches) {
+        batches.add(new ArrayList<>(auditRequests));
+      }
+    }
+
+    private List<Integer> getBatchSizes() {
+      synchronized (batches) {
+        return batches.stream().map(List::size).collect(Collectors.toList());
+      }
+    }
+
+    private List<String> getEventCodes() {
+      synchronized (batches) {
+        return batches.stream()
+            .flatMap(List::stream)
+            .map(AuditLogEventRequest::getEventCode)
+            .collect(Collectors.toList());
+      }
+    }
+  }
+
+  private static class UnavailableSink implements AuditLogSink {
+
+    private final AuditLogSink delegate;
+
+    private volatile boolean available = true;
+
+    private UnavailableSink(AuditLogSink delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void write(List<AuditLogEventRequest> auditRequests) throws IOException {
+      if (!available) {
+        throw new IOException("sink unavailable");
+      }
+      delegate.write(auditRequests);
+    }
+  }
+}
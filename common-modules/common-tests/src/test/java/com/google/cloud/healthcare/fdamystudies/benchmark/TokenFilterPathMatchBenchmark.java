@@ -0,0 +1,195 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.benchmark;
+
+import com.google.cloud.healthcare.fdamystudies.filter.UriTemplateMatcher;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang3.ArrayUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+/**
+ * Compares the per-request template parsing previously done by BaseTokenIntrospectionFilter with
+ * {@link UriTemplateMatcher}. The route tables mirror the TokenIntrospectionFilter of each service.
+ *
+ * <p>Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.google.cloud.healthcare.fdamystudies.benchmark.TokenFilterPathMatchBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenFilterPathMatchBenchmark {
+
+  private static final String GET = "GET";
+  private static final String POST = "POST";
+  private static final String PUT = "PUT";
+  private static final String PATCH = "PATCH";
+  private static final String DELETE = "DELETE";
+
+  @Param({
+    "auth-server",
+    "participant-manager-datastore",
+    "participant-user-datastore",
+    "participant-enroll-datastore",
+    "participant-consent-datastore",
+    "response-datastore"
+  })
+  private String service;
+
+  private Map<String, String[]> uriTemplateAndMethods;
+
+  private UriTemplateMatcher uriTemplateMatcher;
+
+  private String[][] requests;
+
+  @Setup
+  public void setUp() {
+    uriTemplateAndMethods = routes(service);
+    uriTemplateMatcher = new UriTemplateMatcher(uriTemplateAndMethods);
+    requests = requests(service);
+  }
+
+  @Benchmark
+  public void parsePerRequest(Blackhole blackhole) {
+    for (String[] request : requests) {
+      blackhole.consume(legacyMatches(request[0], request[1]));
+    }
+  }
+
+  @Benchmark
+  public void precompiled(Blackhole blackhole) {
+    for (String[] request : requests) {
+      blackhole.consume(uriTemplateMatcher.matches(request[0], request[1]));
+    }
+  }
+
+  private boolean legacyMatches(String method, String path) {
+    for (Map.Entry<String, String[]> entry : uriTemplateAndMethods.entrySet()) {
+      if (ArrayUtils.contains(entry.getValue(), method)) {
+        PathPatternParser parser = new PathPatternParser();
+        parser.setMatchOptionalTrailingSeparator(true);
+        PathPattern p = parser.parse(entry.getKey());
+        if (p.matches(PathContainer.parsePath(path))) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static Map<String, String[]> routes(String contextPath) {
+    Map<String, String[]> routes = new HashMap<>();
+    String ctx = "/" + contextPath;
+    switch (contextPath) {
+      case "auth-server":
+        routes.put(ctx + "/users", new String[] {POST});
+        routes.put(ctx + "/users/{userId}", new String[] {PUT, DELETE});
+        routes.put(ctx + "/users/{userId}/change_password", new String[] {PUT});
+        break;
+      case "participant-manager-datastore":
+        routes.put(ctx + "/apps", new String[] {GET});
+        routes.put(ctx + "/apps/{appId}/participants", new String[] {GET});
+        routes.put(ctx + "/consents/{consentId}/consentDocument", new String[] {GET});
+        routes.put(ctx + "/locations", new String[] {POST, GET});
+        routes.put(ctx + "/locations/{locationId}", new String[] {PUT, GET});
+        routes.put(ctx + "/sites", new String[] {POST, GET});
+        routes.put(ctx + "/sites/{siteId}/decommission", new String[] {PUT});
+        routes.put(ctx + "/sites/{siteId}/participants", new String[] {POST, GET});
+        routes.put(ctx + "/sites/{siteId}/participants/invite", new String[] {POST});
+        routes.put(ctx + "/sites/{participantRegistrySiteId}/participant", new String[] {GET});
+        routes.put(ctx + "/sites/{siteId}/participants/import", new String[] {POST});
+        routes.put(ctx + "/sites/{siteId}/participants/status", new String[] {PATCH});
+        routes.put(ctx + "/studies", new String[] {GET});
+        routes.put(ctx + "/studies/{studyId}/participants", new String[] {GET});
+        routes.put(ctx + "/studies/{studyId}/targetEnrollment", new String[] {PATCH});
+        routes.put(ctx + "/users", new String[] {POST, GET});
+        routes.put(ctx + "/users/{superAdminUserId}/", new String[] {PUT});
+        routes.put(ctx + "/users/{adminId}", new String[] {GET});
+        routes.put(ctx + "/users/admin/{adminId}", new String[] {GET});
+        routes.put(ctx + "/users/{userId}", new String[] {GET, PATCH});
+        routes.put(ctx + "/users/{userId}/profile", new String[] {PUT});
+        break;
+      case "participant-user-datastore":
+        routes.put(ctx + "/studies/studymetadata", new String[] {POST});
+        routes.put(ctx + "/studies/sendNotification", new String[] {POST});
+        routes.put(ctx + "/deactivate", new String[] {DELETE});
+        routes.put(ctx + "/updateUserProfile", new String[] {POST});
+        routes.put(ctx + "/userProfile", new String[] {GET});
+        break;
+      case "participant-enroll-datastore":
+        routes.put(ctx + "/studyState", new String[] {GET});
+        routes.put(ctx + "/updateStudyState", new String[] {POST});
+        routes.put(ctx + "/withdrawfromstudy", new String[] {POST});
+        routes.put(ctx + "/validateEnrollmentToken", new String[] {POST});
+        routes.put(ctx + "/enroll", new String[] {POST});
+        routes.put(ctx + "/participantInfo", new String[] {GET});
+        break;
+      case "participant-consent-datastore":
+        routes.put(ctx + "/updateEligibilityConsentStatus", new String[] {POST});
+        routes.put(ctx + "/consentDocument", new String[] {GET});
+        break;
+      default:
+        routes.put(ctx + "/participant/add", new String[] {POST});
+        routes.put(ctx + "/participant/process-response", new String[] {POST});
+        routes.put(ctx + "/participant/process-response-async", new String[] {POST});
+        routes.put(ctx + "/participant/process-response-status", new String[] {GET});
+        routes.put(ctx + "/participant/getresponse", new String[] {GET});
+        routes.put(ctx + "/participant/withdraw", new String[] {POST});
+        routes.put(ctx + "/participant/get-activity-state", new String[] {GET});
+        routes.put(ctx + "/participant/update-activity-state", new String[] {POST});
+        routes.put(ctx + "/studymetadata", new String[] {POST});
+        break;
+    }
+    return routes;
+  }
+
+  /** Every route template with its variables filled in, plus unprotected requests that miss. */
+  private static String[][] requests(String contextPath) {
+    Map<String, String[]> routes = routes(contextPath);
+    String[][] requests = new String[routes.size() + 3][];
+    int i = 0;
+    for (Map.Entry<String, String[]> entry : routes.entrySet()) {
+      requests[i++] =
+          new String[] {entry.getValue()[0], entry.getKey().replaceAll("\\{[^}]+}", "a1b2c3")};
+    }
+    requests[i++] = new String[] {GET, "/" + contextPath + "/healthCheck"};
+    requests[i++] = new String[] {POST, "/" + contextPath + "/unknown/resource/path"};
+    requests[i] = new String[] {DELETE, "/" + contextPath + "/v2/api-docs"};
+    return requests;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(
+            new OptionsBuilder()
+                .include(TokenFilterPathMatchBenchmark.class.getSimpleName())
+                .build())
+        .run();
+  }
+}
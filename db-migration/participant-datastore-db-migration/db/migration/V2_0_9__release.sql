@@ -0,0 +1,24 @@
+/* Progress of participant email lists imported in the background (POST /sites/{siteId}/participants/import-jobs) */
+CREATE TABLE IF NOT EXISTS `mystudies_participant_datastore`.`participant_import_jobs` (
+  `id` varchar(255) NOT NULL,
+  `site_id` varchar(255) NOT NULL,
+  `file_name` varchar(255) DEFAULT NULL,
+  `status` varchar(64) NOT NULL,
+  `processed_rows` bigint NOT NULL DEFAULT '0',
+  `imported_count` bigint NOT NULL DEFAULT '0',
+  `duplicate_count` bigint NOT NULL DEFAULT '0',
+  `invalid_count` bigint NOT NULL DEFAULT '0',
+  `error_code` varchar(64) DEFAULT NULL,
+  `created_by` varchar(255) DEFAULT NULL,
+  `created_time` datetime DEFAULT NULL,
+  `updated_time` datetime DEFAULT NULL,
+  PRIMARY KEY (`id`),
+  KEY `participant_import_jobs_site_id_idx` (`site_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
+/* Leases taken on invitation emails by the dispatcher that sends them */
+ALTER TABLE `mystudies_participant_datastore`.`invite_participants`
+  ADD COLUMN `lease_owner` varchar(255) DEFAULT NULL,
+  ADD COLUMN `lease_expiry_time` datetime DEFAULT NULL,
+  ADD KEY `invite_participants_status_idx` (`status`, `lease_expiry_time`),
+  ADD KEY `invite_participants_lease_owner_idx` (`lease_owner`);
@@ -0,0 +1,24 @@
+/* Durable queue for asynchronous activity response ingestion (POST /participant/process-response-async) */
+CREATE TABLE IF NOT EXISTS `mystudies_response_server`.`activity_response_submissions` (
+  `id` varchar(255) NOT NULL,
+  `participant_id` varchar(64) NOT NULL,
+  `study_id` varchar(32) NOT NULL,
+  `activity_id` varchar(64) NOT NULL,
+  `activity_version` varchar(32) NOT NULL,
+  `user_id` varchar(64) DEFAULT NULL,
+  `status` varchar(32) NOT NULL,
+  `stage` varchar(32) NOT NULL,
+  `attempts` int NOT NULL DEFAULT '0',
+  `error_code` int DEFAULT NULL,
+  `error_message` varchar(255) DEFAULT NULL,
+  `payload` longtext,
+  `audit_request` text,
+  `next_attempt_time` datetime DEFAULT NULL,
+  `lease_expiry_time` datetime DEFAULT NULL,
+  `lease_owner` varchar(64) DEFAULT NULL,
+  `created_time` datetime DEFAULT NULL,
+  `modified_time` datetime DEFAULT NULL,
+  PRIMARY KEY (`id`),
+  KEY `activity_response_submissions_status_next_attempt_idx` (`status`,`next_attempt_time`),
+  KEY `activity_response_submissions_participant_id_idx` (`participant_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci;
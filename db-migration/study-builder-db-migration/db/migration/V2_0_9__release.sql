@@ -0,0 +1,2 @@
+/* Lease of the instance moving the cloud storage of a study (MoveCloudStorageSchedulerService) */
+ALTER TABLE fda_hphc.studies ADD cloud_storage_lease_expiry DATETIME DEFAULT NULL;
@@ -0,0 +1,26 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.bean;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A stored file as read at one point in time. The generation, when the storage keeps one,
+ * identifies that exact content, so that reads of the file return the content the ETag was issued
+ * for.
+ */
+@Getter
+@AllArgsConstructor
+public class StoredFileBean {
+  private String path;
+  private long size;
+  private String etag;
+  private Long generation;
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.controller;
+
+import static com.google.cloud.healthcare.fdamystudies.common.ConsentManagementEnum.READ_OPERATION_FAILED_FOR_SIGNED_CONSENT_DOCUMENT;
+import static com.google.cloud.healthcare.fdamystudies.common.ConsentManagementEnum.READ_OPERATION_SUCCEEDED_FOR_SIGNED_CONSENT_DOCUMENT;
+import static com.google.cloud.healthcare.fdamystudies.common.ConsentManagementEnum.SIGNED_CONSENT_DOCUMENT_SAVED;
+import static com.google.cloud.healthcare.fdamystudies.common.ConsentManagementEnum.SIGNED_CONSENT_DOCUMENT_SAVE_FAILED;
+
+import com.google.cloud.healthcare.fdamystudies.bean.StoredFileBean;
+import com.google.cloud.healthcare.fdamystudies.bean.UpdateEligibilityConsentBean;
+import com.google.cloud.healthcare.fdamystudies.beans.AuditLogEventRequest;
+import com.google.cloud.healthcare.fdamystudies.common.ConsentAuditHelper;
+import com.google.cloud.healthcare.fdamystudies.common.ErrorCode;
+import com.google.cloud.healthcare.fdamystudies.common.IdGenerator;
+import com.google.cloud.healthcare.fdamystudies.config.ApplicationPropertyConfiguration;
+import com.google.cloud.healthcare.fdamystudies.exceptions.ErrorCodeException;
+import com.google.cloud.healthcare.fdamystudies.mapper.AuditEventMapper;
+import com.google.cloud.healthcare.fdamystudies.model.StudyConsentEntity;
+import com.google.cloud.healthcare.fdamystudies.model.StudyEntity;
+import com.google.cloud.healthcare.fdamystudies.service.FileStorageService;
+import com.google.cloud.healthcare.fdamystudies.service.UserConsentManagementService;
+import com.google.cloud.storage.StorageException;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+
+/**
+ * Transfers the signed consent document as binary PDF content, streamed between the client and the
+ * file storage, in place of the Base64 content of /consentDocument and
+ * /updateEligibilityConsentStatus.
+ */
+@Api(
+    tags = "Consent",
+    value = "consent document",
+    description = "Operations pertaining to consent document content")
+@RestController
+public class ConsentDocumentController {
+
+  private XLogger logger = XLoggerFactory.getXLogger(ConsentDocumentController.class.getName());
+
+  private static final String BYTES = "bytes";
+
+  private static final String BEGIN_REQUEST_LOG = "%s request";
+
+  @Autowired private UserConsentManagementService userConsentManagementService;
+
+  @Autowired private FileStorageService cloudStorageService;
+
+  @Autowired private ConsentAuditHelper consentAuditHelper;
+
+  @Autowired private ApplicationPropertyConfiguration appConfig;
+
+  @ApiOperation(
+      value =
+          "Streams the signed consent document, answering Range, If-Range and If-None-Match requests")
+  @GetMapping("/consentDocument/pdf")
+  public void downloadConsentDocument(
+      @RequestHeader("userId") String userId,
+      @RequestParam("studyId") String studyId,
+      @RequestParam(value = "consentVersion", required = false) String consentVersion,
+      HttpServletRequest request,
+      HttpServletResponse response)
+      throws IOException {
+    logger.entry(String.format(BEGIN_REQUEST_LOG, request.getRequestURI()));
+    AuditLogEventRequest auditRequest = AuditEventMapper.fromHttpServletRequest(request);
+    StudyConsentEntity studyConsent =
+        getStudyConsent(userId, studyId, consentVersion, auditRequest);
+
+    StoredFileBean file = null;
+    if (studyConsent != null
+        && studyConsent.getPdfStorage() == 1
+        && StringUtils.isNotEmpty(studyConsent.getPdfPath())) {
+      file = cloudStorageService.getFile(studyConsent.getPdfPath());
+    }
+    if (file == null) {
+      consentAuditHelper.logEvent(READ_OPERATION_FAILED_FOR_SIGNED_CONSENT_DOCUMENT, auditRequest);
+      throw new ErrorCodeException(ErrorCode.CONSENT_DATA_NOT_AVAILABLE);
+    }
+
+    String etag = "\"" + file.getEtag() + "\"";
+    if (new ServletWebRequest(request, response).checkNotModified(etag)) {
+      logger.exit(String.format("status=%d", HttpStatus.NOT_MODIFIED.value()));
+      return;
+    }
+
+    long size = file.getSize();
+    long start = 0;
+    long end = size - 1;
+    response.setHeader(HttpHeaders.ACCEPT_RANGES, BYTES);
+    String range = request.getHeader(HttpHeaders.RANGE);
+    String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+    // a range of a changed document is not served, the whole document is sent instead
+    if (range != null && (ifRange == null || ifRange.equals(etag))) {
+      List<HttpRange> ranges = parseRanges(range);
+      // several ranges are answered with the whole document, which is allowed by RFC 7233
+      if (ranges.size() == 1) {
+        start = ranges.get(0).getRangeStart(size);
+        end = ranges.get(0).getRangeEnd(size);
+        if (start >= size || start > end) {
+          response.setHeader(HttpHeaders.CONTENT_RANGE, BYTES + " */" + size);
+          response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+          logger.exit(String.format("status=%d", response.getStatus()));
+          return;
+        }
+        response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+        response.setHeader(
+            HttpHeaders.CONTENT_RANGE, String.format("%s %d-%d/%d", BYTES, start, end, size));
+      }
+    }
+
+    String fileName = StringUtils.substringAfterLast(file.getPath(), "/");
+    response.setContentType(MediaType.APPLICATION_PDF_VALUE);
+    response.setHeader(
+        HttpHeaders.CONTENT_DISPOSITION,
+        ContentDisposition.builder("inline").filename(fileName).build().toString());
+    response.setContentLengthLong(end - start + 1);
+    if (!HttpMethod.HEAD.matches(request.getMethod())) {
+      try {
+        cloudStorageService.download(file, start, end - start + 1, response.getOutputStream());
+      } catch (StorageException e) {
+        consentAuditHelper.logEvent(
+            READ_OPERATION_FAILED_FOR_SIGNED_CONSENT_DOCUMENT, auditRequest);
+        logger.error("Download consent document from cloud storage failed", e);
+        throw new ErrorCodeException(ErrorCode.APPLICATION_ERROR);
+      }
+    }
+
+    consentAuditHelper.logEvent(
+        READ_OPERATION_SUCCEEDED_FOR_SIGNED_CONSENT_DOCUMENT,
+        auditRequest,
+        Collections.singletonMap("file_name", file.getPath()));
+    logger.exit(String.format("status=%d", response.getStatus()));
+  }
+
+  @ApiOperation(
+      value =
+          "Stores the signed consent document of a consent saved with /updateEligibilityConsentStatus, reading the PDF content as it is uploaded")
+  @PutMapping(
+      value = "/consentDocument/pdf",
+      consumes = MediaType.APPLICATION_PDF_VALUE,
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<UpdateEligibilityConsentBean> uploadConsentDocument(
+      @RequestHeader("userId") String userId,
+      @RequestParam("studyId") String studyId,
+      @RequestParam("consentVersion") String consentVersion,
+      HttpServletRequest request)
+      throws IOException {
+    logger.entry(String.format(BEGIN_REQUEST_LOG, request.getRequestURI()));
+    AuditLogEventRequest auditRequest = AuditEventMapper.fromHttpServletRequest(request);
+    StudyConsentEntity studyConsent =
+        getStudyConsent(userId, studyId, consentVersion, auditRequest);
+    if (studyConsent == null) {
+      throw new ErrorCodeException(ErrorCode.CONSENT_DATA_NOT_AVAILABLE);
+    }
+
+    String underDirectory =
+        studyId
+            + "/"
+            + studyConsent.getParticipantStudy().getParticipantId()
+            + "-"
+            + IdGenerator.id();
+    String fileName =
+        consentVersion + "_" + new SimpleDateFormat("MMddyyyyHHmmss").format(new Date()) + ".pdf";
+    Map<String, String> map = new HashMap<>();
+    map.put("file_name", fileName);
+    map.put("consent_version", consentVersion);
+    map.put("directory_name", appConfig.getBucketName());
+
+    String path;
+    try {
+      path = cloudStorageService.saveFile(fileName, request.getInputStream(), underDirectory);
+    } catch (StorageException e) {
+      consentAuditHelper.logEvent(SIGNED_CONSENT_DOCUMENT_SAVE_FAILED, auditRequest, map);
+      logger.error("Save consent document in cloud storage failed", e);
+      throw new ErrorCodeException(ErrorCode.APPLICATION_ERROR);
+    }
+    userConsentManagementService.updateConsentDocumentPath(studyConsent.getId(), path);
+    consentAuditHelper.logEvent(SIGNED_CONSENT_DOCUMENT_SAVED, auditRequest, map);
+
+    UpdateEligibilityConsentBean updateEligibilityConsentBean =
+        new UpdateEligibilityConsentBean(
+            com.google.cloud.healthcare.fdamystudies.utils.ErrorCode.EC_200.code(),
+            com.google.cloud.healthcare.fdamystudies.utils.ErrorCode.EC_110.errorMessage(),
+            path);
+    logger.exit(String.format("status=%d", updateEligibilityConsentBean.getCode()));
+    return new ResponseEntity<>(updateEligibilityConsentBean, HttpStatus.OK);
+  }
+
+  private StudyConsentEntity getStudyConsent(
+      String userId, String studyId, String consentVersion, AuditLogEventRequest auditRequest) {
+    StudyEntity studyInfo = userConsentManagementService.getStudyInfo(studyId);
+    if (studyInfo == null) {
+      throw new ErrorCodeException(ErrorCode.STUDY_NOT_FOUND);
+    }
+    auditRequest.setUserId(userId);
+    auditRequest.setStudyId(studyInfo.getCustomId());
+    auditRequest.setStudyVersion(String.valueOf(studyInfo.getVersion()));
+
+    StudyConsentEntity studyConsent =
+        userConsentManagementService.getStudyConsent(userId, studyInfo.getId(), consentVersion);
+    if (studyConsent != null && studyConsent.getParticipantStudy() != null) {
+      auditRequest.setParticipantId(studyConsent.getParticipantStudy().getParticipantId());
+    }
+    return studyConsent;
+  }
+
+  private List<HttpRange> parseRanges(String range) {
+    try {
+      return HttpRange.parseRanges(range);
+    } catch (IllegalArgumentException e) {
+      // a malformed Range header is ignored
+      return Collections.emptyList();
+    }
+  }
+}
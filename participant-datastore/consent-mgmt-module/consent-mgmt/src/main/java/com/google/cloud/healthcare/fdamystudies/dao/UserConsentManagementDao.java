@@ -24,6 +24,8 @@ public interface UserConsentManagementDao {
 
   public String saveStudyConsent(StudyConsentEntity studyConsent);
 
+  public void updateConsentDocumentPath(String studyConsentId, String pdfPath);
+
   public AppOrgInfoBean getUserAppDetailsByAllApi(String userId, String appId);
 
   public StudyEntity getStudyInfo(String customStudyId);
@@ -225,6 +225,18 @@ public class UserConsentManagementDaoImpl implements UserConsentManagementDao {
     return addConsentMessage;
   }
 
+  @Override
+  public void updateConsentDocumentPath(String studyConsentId, String pdfPath) {
+    logger.entry("Begin updateConsentDocumentPath()");
+    Session session = this.sessionFactory.getCurrentSession();
+    StudyConsentEntity studyConsent = session.get(StudyConsentEntity.class, studyConsentId);
+    if (studyConsent != null) {
+      studyConsent.setPdfPath(pdfPath);
+      studyConsent.setPdfStorage(1);
+    }
+    logger.exit("updateConsentDocumentPath() - Ends ");
+  }
+
   @Override
   public AppOrgInfoBean getUserAppDetailsByAllApi(String userId, String appId) {
     logger.entry("Begin validatedUserAppDetailsByAllApi()");
@@ -8,7 +8,9 @@
 
 package com.google.cloud.healthcare.fdamystudies.service;
 
+import com.google.cloud.ReadChannel;
 import com.google.cloud.WriteChannel;
+import com.google.cloud.healthcare.fdamystudies.bean.StoredFileBean;
 import com.google.cloud.healthcare.fdamystudies.common.ErrorCode;
 import com.google.cloud.healthcare.fdamystudies.config.ApplicationPropertyConfiguration;
 import com.google.cloud.healthcare.fdamystudies.exceptions.ErrorCodeException;
@@ -16,15 +18,20 @@ import com.google.cloud.storage.Blob;
 import com.google.cloud.storage.BlobId;
 import com.google.cloud.storage.BlobInfo;
 import com.google.cloud.storage.Storage;
-import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.ext.XLogger;
 import org.slf4j.ext.XLoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
 
 @Service
 public class CloudStorageService implements FileStorageService {
@@ -35,25 +42,36 @@ public class CloudStorageService implements FileStorageService {
 
   private static final String PATH_SEPARATOR = "/";
 
+  private static final int READ_CHUNK_SIZE = 2 * 1024 * 1024;
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
   @Autowired private ApplicationPropertyConfiguration appConfig;
 
   @Override
   public String saveFile(String fileName, String content, String underDirectory) {
-    String absoluteFileName = null;
-    if (!StringUtils.isBlank(content)) {
-      absoluteFileName =
-          underDirectory == null ? fileName : underDirectory + PATH_SEPARATOR + fileName;
-      BlobInfo blobInfo = BlobInfo.newBuilder(appConfig.getBucketName(), absoluteFileName).build();
-      byte[] bytes = null;
-
-      try (WriteChannel writer = storageService.writer(blobInfo)) {
-        bytes = Base64.getDecoder().decode(content.replaceAll("\n", ""));
-
-        writer.write(ByteBuffer.wrap(bytes, 0, bytes.length));
-      } catch (IOException e) {
-        logger.error("Save file in cloud storage failed", e);
-        throw new ErrorCodeException(ErrorCode.APPLICATION_ERROR);
-      }
+    if (StringUtils.isBlank(content)) {
+      return null;
+    }
+    // the MIME decoder skips the line breaks of the content as it decodes
+    return saveFile(
+        fileName,
+        Base64.getMimeDecoder()
+            .wrap(new ByteArrayInputStream(content.getBytes(StandardCharsets.US_ASCII))),
+        underDirectory);
+  }
+
+  @Override
+  public String saveFile(String fileName, InputStream content, String underDirectory) {
+    String absoluteFileName =
+        underDirectory == null ? fileName : underDirectory + PATH_SEPARATOR + fileName;
+    BlobInfo blobInfo = BlobInfo.newBuilder(appConfig.getBucketName(), absoluteFileName).build();
+
+    try (WriteChannel writer = storageService.writer(blobInfo)) {
+      StreamUtils.copy(content, Channels.newOutputStream(writer));
+    } catch (IOException e) {
+      logger.error("Save file in cloud storage failed", e);
+      throw new ErrorCodeException(ErrorCode.APPLICATION_ERROR);
     }
     return absoluteFileName;
   }
@@ -62,11 +80,41 @@ public class CloudStorageService implements FileStorageService {
   public String getDocumentContent(String filepath) {
     if (StringUtils.isNotBlank(filepath)) {
       Blob blob = storageService.get(BlobId.of(appConfig.getBucketName(), filepath));
-      ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-      blob.downloadTo(outputStream);
-      return new String(Base64.getEncoder().encode(blob.getContent()));
+      return Base64.getEncoder().encodeToString(blob.getContent());
     }
 
     return StringUtils.EMPTY;
   }
+
+  @Override
+  public StoredFileBean getFile(String filepath) {
+    Blob blob = storageService.get(BlobId.of(appConfig.getBucketName(), filepath));
+    if (blob == null) {
+      return null;
+    }
+    return new StoredFileBean(filepath, blob.getSize(), blob.getEtag(), blob.getGeneration());
+  }
+
+  @Override
+  public void download(StoredFileBean file, long offset, long length, OutputStream out)
+      throws IOException {
+    BlobId blobId = BlobId.of(appConfig.getBucketName(), file.getPath(), file.getGeneration());
+    try (ReadChannel reader = storageService.reader(blobId)) {
+      // a small range is fetched with one small request rather than a full chunk
+      reader.setChunkSize((int) Math.max(1, Math.min(length, READ_CHUNK_SIZE)));
+      reader.seek(offset);
+      ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+      long remaining = length;
+      while (remaining > 0) {
+        buffer.clear();
+        buffer.limit((int) Math.min(remaining, BUFFER_SIZE));
+        int read = reader.read(buffer);
+        if (read < 0) {
+          break;
+        }
+        out.write(buffer.array(), 0, read);
+        remaining -= read;
+      }
+    }
+  }
 }
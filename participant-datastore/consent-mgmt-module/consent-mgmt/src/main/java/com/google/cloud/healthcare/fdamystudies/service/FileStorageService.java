@@ -8,9 +8,23 @@
 
 package com.google.cloud.healthcare.fdamystudies.service;
 
+import com.google.cloud.healthcare.fdamystudies.bean.StoredFileBean;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
 public interface FileStorageService {
 
   String saveFile(String fileName, String content, String underDirectory);
 
+  /** Copies the content to the file as it is read, and returns the path of the file. */
+  String saveFile(String fileName, InputStream content, String underDirectory);
+
   String getDocumentContent(String filepath);
+
+  /** Returns the size and ETag of the file, or null if there is no such file. */
+  StoredFileBean getFile(String filepath);
+
+  /** Writes length bytes of the file, starting at offset, to the output stream. */
+  void download(StoredFileBean file, long offset, long length, OutputStream out) throws IOException;
 }
@@ -25,6 +25,8 @@ public interface UserConsentManagementService {
 
   public String saveStudyConsent(StudyConsentEntity studyConsent);
 
+  public void updateConsentDocumentPath(String studyConsentId, String pdfPath);
+
   public ConsentStudyResponseBean getStudyConsentDetails(
       String userId, String studyId, String consentVersion, AuditLogEventRequest auditRequest);
 
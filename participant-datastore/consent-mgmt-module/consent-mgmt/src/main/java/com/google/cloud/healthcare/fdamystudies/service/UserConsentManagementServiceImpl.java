@@ -65,6 +65,12 @@ public class UserConsentManagementServiceImpl implements UserConsentManagementSe
     return userConsentManagementDao.saveStudyConsent(studyConsent);
   }
 
+  @Override
+  @Transactional
+  public void updateConsentDocumentPath(String studyConsentId, String pdfPath) {
+    userConsentManagementDao.updateConsentDocumentPath(studyConsentId, pdfPath);
+  }
+
   @Override
   @Transactional(readOnly = true)
   public ConsentStudyResponseBean getStudyConsentDetails(
@@ -15,7 +15,9 @@ public enum ApiEndpoint {
   UPDATE_ELIGIBILITY_CONSENT(
       "http://localhost:8080/participant-consent-datastore/updateEligibilityConsentStatus"),
 
-  CONSENT_DOCUMENT("http://localhost:8080/participant-consent-datastore/consentDocument");
+  CONSENT_DOCUMENT("http://localhost:8080/participant-consent-datastore/consentDocument"),
+
+  CONSENT_DOCUMENT_PDF("http://localhost:8080/participant-consent-datastore/consentDocument/pdf");
 
   private String url;
 
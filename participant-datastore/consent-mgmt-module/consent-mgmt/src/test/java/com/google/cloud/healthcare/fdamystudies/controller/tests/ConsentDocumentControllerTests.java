@@ -0,0 +1,176 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.controller.tests;
+
+import static com.google.cloud.healthcare.fdamystudies.common.ConsentManagementEnum.READ_OPERATION_SUCCEEDED_FOR_SIGNED_CONSENT_DOCUMENT;
+import static com.google.cloud.healthcare.fdamystudies.common.ConsentManagementEnum.SIGNED_CONSENT_DOCUMENT_SAVED;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.cloud.healthcare.fdamystudies.bean.ConsentReqBean;
+import com.google.cloud.healthcare.fdamystudies.bean.ConsentStatusBean;
+import com.google.cloud.healthcare.fdamystudies.common.ApiEndpoint;
+import com.google.cloud.healthcare.fdamystudies.common.BaseMockIT;
+import com.google.cloud.healthcare.fdamystudies.controller.ConsentDocumentController;
+import com.google.cloud.healthcare.fdamystudies.controller.UserConsentManagementController;
+import com.google.cloud.healthcare.fdamystudies.service.FileStorageService;
+import com.google.cloud.healthcare.fdamystudies.service.LocalFileStorageService;
+import com.google.cloud.healthcare.fdamystudies.testutils.Constants;
+import com.google.cloud.healthcare.fdamystudies.testutils.TestUtils;
+import java.io.InputStream;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+@ExtendWith(MockitoExtension.class)
+public class ConsentDocumentControllerTests extends BaseMockIT {
+
+  private static final String SITE_ID = "1";
+
+  @InjectMocks @Autowired private UserConsentManagementController userConsentController;
+
+  @InjectMocks @Autowired private ConsentDocumentController controller;
+
+  @Spy private FileStorageService cloudStorageService = new LocalFileStorageService();
+
+  @Autowired private ObjectMapper objectMapper;
+
+  @Test
+  public void shouldStreamConsentDocumentWithRangeAndEtag() throws Exception {
+    saveConsent(Constants.VERSION_2_0);
+    byte[] document = Constants.CONTENT_1_0.getBytes();
+
+    MvcResult result =
+        mockMvc
+            .perform(downloadRequest(Constants.VERSION_2_0))
+            .andDo(print())
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_PDF))
+            .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+            .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, document.length))
+            .andReturn();
+    assertArrayEquals(document, result.getResponse().getContentAsByteArray());
+    String etag = result.getResponse().getHeader(HttpHeaders.ETAG);
+
+    mockMvc
+        .perform(downloadRequest(Constants.VERSION_2_0).header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isNotModified());
+
+    mockMvc
+        .perform(downloadRequest(Constants.VERSION_2_0).header(HttpHeaders.RANGE, "bytes=5-7"))
+        .andExpect(status().isPartialContent())
+        .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 5-7/" + document.length))
+        .andExpect(content().string("pdf"));
+
+    mockMvc
+        .perform(
+            downloadRequest(Constants.VERSION_2_0)
+                .header(HttpHeaders.RANGE, "bytes=5-7")
+                .header(HttpHeaders.IF_RANGE, "\"changed\""))
+        .andExpect(status().isOk())
+        .andExpect(content().string(Constants.CONTENT_1_0));
+
+    clearAuditRequests();
+    mockMvc
+        .perform(downloadRequest(Constants.VERSION_2_0).header(HttpHeaders.RANGE, "bytes=100-"))
+        .andExpect(status().isRequestedRangeNotSatisfiable())
+        .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */" + document.length));
+
+    mockMvc
+        .perform(downloadRequest(Constants.VERSION_2_0).header(HttpHeaders.RANGE, "bytes=-3"))
+        .andExpect(status().isPartialContent())
+        .andExpect(content().string("ent"));
+
+    verifyAuditEventCall(READ_OPERATION_SUCCEEDED_FOR_SIGNED_CONSENT_DOCUMENT);
+  }
+
+  @Test
+  public void shouldStoreUploadedConsentDocumentAsStream() throws Exception {
+    saveConsent(Constants.VERSION_2_1);
+    byte[] document = new byte[256 * 1024];
+    new Random(7).nextBytes(document);
+
+    clearInvocations(cloudStorageService);
+    clearAuditRequests();
+    HttpHeaders headers = TestUtils.getCommonHeaders();
+    mockMvc
+        .perform(
+            put(ApiEndpoint.CONSENT_DOCUMENT_PDF.getPath())
+                .headers(headers)
+                .contextPath(getContextPath())
+                .param("studyId", Constants.STUDYOF_HEALTH)
+                .param("consentVersion", Constants.VERSION_2_1)
+                .contentType(MediaType.APPLICATION_PDF)
+                .content(document))
+        .andDo(print())
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.consentDocumentFileName").isNotEmpty());
+
+    verify(cloudStorageService).saveFile(anyString(), any(InputStream.class), anyString());
+    verifyAuditEventCall(SIGNED_CONSENT_DOCUMENT_SAVED);
+
+    MvcResult result =
+        mockMvc
+            .perform(downloadRequest(Constants.VERSION_2_1))
+            .andExpect(status().isOk())
+            .andReturn();
+    assertArrayEquals(document, result.getResponse().getContentAsByteArray());
+  }
+
+  @Test
+  public void shouldReturnBadRequestForMissingConsent() throws Exception {
+    mockMvc.perform(downloadRequest("9.9")).andDo(print()).andExpect(status().isBadRequest());
+  }
+
+  private void saveConsent(String version) throws Exception {
+    ConsentReqBean consent =
+        new ConsentReqBean(version, Constants.STATUS_COMPLETE, Constants.ENCODED_CONTENT_1_0);
+    ConsentStatusBean consentStatus =
+        new ConsentStatusBean(
+            Constants.STUDYOF_HEALTH, SITE_ID, true, consent, Constants.SHARING_VALUE);
+
+    HttpHeaders headers = TestUtils.getCommonHeaders();
+    TestUtils.addContentTypeAcceptHeaders(headers);
+    mockMvc
+        .perform(
+            post(ApiEndpoint.UPDATE_ELIGIBILITY_CONSENT.getPath())
+                .content(objectMapper.writeValueAsString(consentStatus))
+                .headers(headers)
+                .contextPath(getContextPath()))
+        .andExpect(status().isOk());
+  }
+
+  private MockHttpServletRequestBuilder downloadRequest(String version) throws Exception {
+    return get(ApiEndpoint.CONSENT_DOCUMENT_PDF.getPath())
+        .headers(TestUtils.getCommonHeaders())
+        .contextPath(getContextPath())
+        .param("studyId", Constants.STUDYOF_HEALTH)
+        .param("consentVersion", version);
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.service;
+
+import com.google.cloud.healthcare.fdamystudies.bean.StoredFileBean;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Base64;
+import org.apache.commons.lang3.StringUtils;
+
+/** Keeps the files in a temporary directory, in place of the cloud storage bucket. */
+public class LocalFileStorageService implements FileStorageService {
+
+  private final Path root;
+
+  public LocalFileStorageService() {
+    try {
+      root = Files.createTempDirectory("consent-documents");
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public String saveFile(String fileName, String content, String underDirectory) {
+    if (StringUtils.isBlank(content)) {
+      return null;
+    }
+    return saveFile(
+        fileName,
+        Base64.getMimeDecoder()
+            .wrap(new ByteArrayInputStream(content.getBytes(StandardCharsets.US_ASCII))),
+        underDirectory);
+  }
+
+  @Override
+  public String saveFile(String fileName, InputStream content, String underDirectory) {
+    String absoluteFileName = underDirectory == null ? fileName : underDirectory + "/" + fileName;
+    try {
+      Path file = root.resolve(absoluteFileName);
+      Files.createDirectories(file.getParent());
+      Files.copy(content, file, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return absoluteFileName;
+  }
+
+  @Override
+  public String getDocumentContent(String filepath) {
+    try {
+      return Base64.getEncoder().encodeToString(Files.readAllBytes(root.resolve(filepath)));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public StoredFileBean getFile(String filepath) {
+    Path file = root.resolve(filepath);
+    if (!Files.isRegularFile(file)) {
+      return null;
+    }
+    try {
+      long size = Files.size(file);
+      long lastModified = Files.getLastModifiedTime(file).toMillis();
+      return new StoredFileBean(
+          filepath, size, Long.toHexString(lastModified) + "-" + Long.toHexString(size), null);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void download(StoredFileBean file, long offset, long length, OutputStream out)
+      throws IOException {
+    try (FileChannel channel =
+        FileChannel.open(root.resolve(file.getPath()), StandardOpenOption.READ)) {
+      channel.transferTo(offset, length, Channels.newChannel(out));
+    }
+  }
+}
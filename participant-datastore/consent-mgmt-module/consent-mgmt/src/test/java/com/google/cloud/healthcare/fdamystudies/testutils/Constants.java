@@ -13,6 +13,8 @@ public class Constants {
   public static final String VERSION_1_0 = "1.0";
   public static final String VERSION_1_2 = "1.2";
   public static final String VERSION_1_3 = "1.3";
+  public static final String VERSION_2_0 = "2.0";
+  public static final String VERSION_2_1 = "2.1";
 
   // A very long version to cause db exception while saving study_consent
   public static final String VERSION_VERY_LONG =
@@ -431,7 +431,29 @@ CREATE TABLE IF NOT EXISTS `invite_participants` (
   `mobile_platform` varchar(255) DEFAULT NULL,
   `source` varchar(255) DEFAULT NULL,
   `user_id` varchar(255) DEFAULT NULL,
-  PRIMARY KEY (`id`)
+  `lease_owner` varchar(255) DEFAULT NULL,
+  `lease_expiry_time` datetime DEFAULT NULL,
+  PRIMARY KEY (`id`),
+  KEY `invite_participants_status_idx` (`status`, `lease_expiry_time`),
+  KEY `invite_participants_lease_owner_idx` (`lease_owner`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
+DROP TABLE IF EXISTS `participant_import_jobs`;
+CREATE TABLE IF NOT EXISTS `participant_import_jobs` (
+  `id` varchar(255) NOT NULL,
+  `site_id` varchar(255) NOT NULL,
+  `file_name` varchar(255) DEFAULT NULL,
+  `status` varchar(64) NOT NULL,
+  `processed_rows` bigint NOT NULL DEFAULT '0',
+  `imported_count` bigint NOT NULL DEFAULT '0',
+  `duplicate_count` bigint NOT NULL DEFAULT '0',
+  `invalid_count` bigint NOT NULL DEFAULT '0',
+  `error_code` varchar(64) DEFAULT NULL,
+  `created_by` varchar(255) DEFAULT NULL,
+  `created_time` datetime DEFAULT NULL,
+  `updated_time` datetime DEFAULT NULL,
+  PRIMARY KEY (`id`),
+  KEY `participant_import_jobs_site_id_idx` (`site_id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8;
 
 DROP TABLE IF EXISTS `participant_enrollment_history`;
@@ -8,8 +8,11 @@
 
 package com.google.cloud.healthcare.fdamystudies.config;
 
+import com.google.cloud.healthcare.fdamystudies.service.ApnsClientPool;
+import java.util.concurrent.ThreadPoolExecutor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
 @Configuration
@@ -19,4 +22,28 @@ public class AppConfig extends CommonModuleConfiguration {
   public BCryptPasswordEncoder passwordEncoder() {
     return new BCryptPasswordEncoder();
   }
+
+  // Sends the chunks of FCM push notifications. When all threads are busy and the queue is full,
+  // the request thread sends its own chunk, which slows the caller down instead of failing it.
+  @Bean(name = "fcmPushExecutor")
+  public ThreadPoolTaskExecutor fcmPushExecutor(ApplicationPropertyConfiguration appConfig) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(appConfig.getFcmParallelism());
+    executor.setMaxPoolSize(appConfig.getFcmParallelism());
+    executor.setQueueCapacity(appConfig.getFcmParallelism() * 4);
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+    executor.setThreadNamePrefix("fcm-push-");
+    executor.setWaitForTasksToCompleteOnShutdown(true);
+    executor.setAwaitTerminationSeconds(30);
+    executor.initialize();
+    return executor;
+  }
+
+  @Bean
+  public ApnsClientPool apnsClientPool(ApplicationPropertyConfiguration appConfig) {
+    return new ApnsClientPool(
+        appConfig.getIosPushNotificationType(),
+        appConfig.getIosPushConcurrentConnections(),
+        appConfig.getIosPushMaxInFlight());
+  }
 }
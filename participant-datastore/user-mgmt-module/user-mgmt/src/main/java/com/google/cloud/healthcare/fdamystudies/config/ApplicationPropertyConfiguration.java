@@ -32,12 +32,27 @@ public class ApplicationPropertyConfiguration {
   @Value("${messaging.fcm.url}")
   private String apiUrlFcm;
 
+  @Value("${messaging.fcm.batch.size}")
+  private int fcmBatchSize;
+
+  @Value("${messaging.fcm.parallelism}")
+  private int fcmParallelism;
+
+  @Value("${messaging.fcm.timeout.millis}")
+  private int fcmTimeoutMillis;
+
   @Value("${response.server.url.participant.withdraw}")
   private String withdrawStudyUrl;
 
   @Value("${ios.push.notification.type}")
   private String iosPushNotificationType;
 
+  @Value("${ios.push.concurrent.connections}")
+  private int iosPushConcurrentConnections;
+
+  @Value("${ios.push.max.in.flight}")
+  private int iosPushMaxInFlight;
+
   // Feedback & Contactus mail content starts
   @Value("${feedback.mail.content}")
   private String feedbackMailBody;
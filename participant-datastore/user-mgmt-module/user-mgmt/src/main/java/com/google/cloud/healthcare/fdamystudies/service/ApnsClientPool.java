@@ -0,0 +1,215 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.service;
+
+import com.eatthepath.pushy.apns.ApnsClient;
+import com.eatthepath.pushy.apns.ApnsClientBuilder;
+import com.eatthepath.pushy.apns.PushNotificationResponse;
+import com.eatthepath.pushy.apns.util.SimpleApnsPushNotification;
+import com.google.cloud.healthcare.fdamystudies.model.AppEntity;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+
+/**
+ * Keeps one APNs client per app, built from the app's iOS certificate and kept until the
+ * certificate or its password changes. The clients share one event loop group, and keep their
+ * HTTP/2 connections open between pushes.
+ *
+ * <p>Notifications are pipelined over the client's connections with at most maxInFlight
+ * notifications awaiting a response, and the responses are collected as they arrive.
+ */
+public class ApnsClientPool {
+
+  private static final XLogger logger = XLoggerFactory.getXLogger(ApnsClientPool.class.getName());
+
+  private static final Set<String> DEAD_TOKEN_REASONS =
+      new HashSet<>(Arrays.asList("BadDeviceToken", "Unregistered"));
+
+  private final String apnsServer;
+
+  private final int concurrentConnections;
+
+  private final int maxInFlight;
+
+  private final EventLoopGroup eventLoopGroup;
+
+  private final Map<String, AppClient> clients = new ConcurrentHashMap<>();
+
+  public ApnsClientPool(String apnsServer, int concurrentConnections, int maxInFlight) {
+    this.apnsServer = apnsServer;
+    this.concurrentConnections = concurrentConnections;
+    this.maxInFlight = maxInFlight;
+    this.eventLoopGroup = new NioEventLoopGroup(concurrentConnections);
+  }
+
+  /** Sends the payload to each of the device tokens, and waits for all the responses. */
+  public Result send(AppEntity app, String payload, Collection<String> deviceTokens)
+      throws IOException {
+    ApnsClient client = getClient(app);
+    Semaphore inFlight = new Semaphore(maxInFlight);
+    Result result = new Result();
+    long startNanos = System.nanoTime();
+    List<CompletableFuture<Void>> responses = new ArrayList<>(deviceTokens.size());
+    for (String deviceToken : deviceTokens) {
+      inFlight.acquireUninterruptibly();
+      responses.add(
+          client
+              .sendNotification(
+                  new SimpleApnsPushNotification(deviceToken, app.getIosBundleId(), payload))
+              .handle(
+                  (response, e) -> {
+                    inFlight.release();
+                    result.record(deviceToken, response, e);
+                    return null;
+                  }));
+    }
+    CompletableFuture.allOf(responses.toArray(new CompletableFuture[0])).join();
+
+    long elapsedNanos = System.nanoTime() - startNanos;
+    logger.info(
+        String.format(
+            "APNs push of %d notifications for app %s took %d ms, %.1f notifications/s: %d accepted, %d rejected, %d failed",
+            deviceTokens.size(),
+            app.getAppId(),
+            TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+            deviceTokens.size() * 1e9 / Math.max(elapsedNanos, 1),
+            result.accepted.get(),
+            result.rejected.get(),
+            result.failed.get()));
+    return result;
+  }
+
+  /** Returns the client of the app, building it on first use or when the certificate changed. */
+  ApnsClient getClient(AppEntity app) throws IOException {
+    String fingerprint =
+        DigestUtils.sha256Hex(app.getIosCertificate() + ":" + app.getIosCertificatePassword());
+    AppClient appClient = clients.get(app.getAppId());
+    if (appClient != null && appClient.fingerprint.equals(fingerprint)) {
+      return appClient.client;
+    }
+
+    synchronized (this) {
+      appClient = clients.get(app.getAppId());
+      if (appClient != null && appClient.fingerprint.equals(fingerprint)) {
+        return appClient.client;
+      }
+
+      byte[] certificate =
+          Base64.getDecoder().decode(StringUtils.remove(app.getIosCertificate(), '\n'));
+      ApnsClient client =
+          newClientBuilder()
+              .setEventLoopGroup(eventLoopGroup)
+              .setConcurrentConnections(concurrentConnections)
+              .setClientCredentials(
+                  new ByteArrayInputStream(certificate), app.getIosCertificatePassword())
+              .build();
+      clients.put(app.getAppId(), new AppClient(fingerprint, client));
+      if (appClient != null) {
+        // notifications in flight on the previous client are completed before it closes
+        appClient.client.close();
+      }
+      logger.info(String.format("APNs client built for app %s", app.getAppId()));
+      return client;
+    }
+  }
+
+  protected ApnsClientBuilder newClientBuilder() {
+    return new ApnsClientBuilder().setApnsServer(apnsServer);
+  }
+
+  public void close() {
+    for (AppClient appClient : clients.values()) {
+      try {
+        appClient.client.close().get(10, TimeUnit.SECONDS);
+      } catch (Exception e) {
+        logger.warn("failed to close APNs client", e);
+      }
+    }
+    clients.clear();
+    eventLoopGroup.shutdownGracefully();
+  }
+
+  private static class AppClient {
+
+    private final String fingerprint;
+
+    private final ApnsClient client;
+
+    private AppClient(String fingerprint, ApnsClient client) {
+      this.fingerprint = fingerprint;
+      this.client = client;
+    }
+  }
+
+  /** Counts the responses of a push, and collects the device tokens APNs no longer accepts. */
+  public static class Result {
+
+    private final AtomicInteger accepted = new AtomicInteger();
+
+    private final AtomicInteger rejected = new AtomicInteger();
+
+    private final AtomicInteger failed = new AtomicInteger();
+
+    private final List<String> deadTokens = Collections.synchronizedList(new ArrayList<>());
+
+    private void record(
+        String deviceToken,
+        PushNotificationResponse<SimpleApnsPushNotification> response,
+        Throwable e) {
+      if (e != null) {
+        failed.incrementAndGet();
+        logger.error("Failed to send push notification.", e);
+      } else if (response.isAccepted()) {
+        accepted.incrementAndGet();
+      } else {
+        rejected.incrementAndGet();
+        logger.info("Notification rejected by the APNs gateway: " + response.getRejectionReason());
+        if (DEAD_TOKEN_REASONS.contains(response.getRejectionReason())) {
+          deadTokens.add(deviceToken);
+        }
+      }
+    }
+
+    public int getAccepted() {
+      return accepted.get();
+    }
+
+    public int getRejected() {
+      return rejected.get();
+    }
+
+    public int getFailed() {
+      return failed.get();
+    }
+
+    public List<String> getDeadTokens() {
+      return new ArrayList<>(deadTokens);
+    }
+  }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.cloud.healthcare.fdamystudies.beans.FcmPushNotificationResponse;
+import com.google.cloud.healthcare.fdamystudies.beans.NotificationBean;
+import com.google.cloud.healthcare.fdamystudies.config.ApplicationPropertyConfiguration;
+import com.google.cloud.healthcare.fdamystudies.model.AppEntity;
+import com.google.cloud.healthcare.fdamystudies.repository.AuthInfoRepository;
+import com.google.common.collect.Lists;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.json.JSONArray;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Sends FCM push notifications to any number of device tokens. The tokens are split into chunks of
+ * messaging.fcm.batch.size, the most FCM accepts in one request, and the chunks are sent
+ * concurrently over a pool of keep-alive connections.
+ *
+ * <p>The per token results of the chunks are merged into one response in the FCM format, and the
+ * tokens FCM reports as unregistered or invalid are removed from auth_info.
+ */
+@Component
+public class FcmPushDispatcher {
+
+  private static final XLogger logger =
+      XLoggerFactory.getXLogger(FcmPushDispatcher.class.getName());
+
+  private static final Set<String> DEAD_TOKEN_ERRORS =
+      new HashSet<>(Arrays.asList("NotRegistered", "InvalidRegistration"));
+
+  private static final String RESULTS = "results";
+
+  private static final String ERROR = "error";
+
+  @Autowired private ApplicationPropertyConfiguration appConfig;
+
+  @Autowired private AuthInfoRepository authInfoRepository;
+
+  @Autowired private ObjectMapper objectMapper;
+
+  @Autowired private ObjectProvider<MeterRegistry> meterRegistry;
+
+  @Autowired
+  @Qualifier("fcmPushExecutor")
+  private TaskExecutor fcmPushExecutor;
+
+  private CloseableHttpClient httpClient;
+
+  private RestTemplate restTemplate;
+
+  @PostConstruct
+  public void init() {
+    PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+    connectionManager.setMaxTotal(appConfig.getFcmParallelism());
+    connectionManager.setDefaultMaxPerRoute(appConfig.getFcmParallelism());
+    RequestConfig requestConfig =
+        RequestConfig.custom()
+            .setConnectTimeout(appConfig.getFcmTimeoutMillis())
+            .setConnectionRequestTimeout(appConfig.getFcmTimeoutMillis())
+            .setSocketTimeout(appConfig.getFcmTimeoutMillis())
+            .build();
+    httpClient =
+        HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(requestConfig)
+            .evictIdleConnections(60, TimeUnit.SECONDS)
+            .build();
+    restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+  }
+
+  @PreDestroy
+  public void close() {
+    try {
+      httpClient.close();
+    } catch (Exception e) {
+      logger.warn("failed to close the FCM http client", e);
+    }
+  }
+
+  public FcmPushNotificationResponse send(NotificationBean notification, AppEntity app) {
+    Set<String> tokens = new LinkedHashSet<>();
+    JSONArray deviceTokens = notification.getDeviceToken();
+    for (int i = 0; i < deviceTokens.length(); i++) {
+      String token = deviceTokens.optString(i);
+      if (StringUtils.isNotBlank(token)) {
+        tokens.add(token);
+      }
+    }
+    if (tokens.isEmpty()) {
+      return new FcmPushNotificationResponse(null, HttpStatus.OK.value(), "SUCCESS");
+    }
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    headers.set(HttpHeaders.AUTHORIZATION, "key=" + app.getAndroidServerKey());
+    ObjectNode data = toData(notification);
+
+    long startNanos = System.nanoTime();
+    List<List<String>> chunks =
+        Lists.partition(new ArrayList<>(tokens), appConfig.getFcmBatchSize());
+    List<CompletableFuture<ChunkResult>> futures = new ArrayList<>();
+    for (List<String> chunk : chunks) {
+      futures.add(CompletableFuture.supplyAsync(() -> send(chunk, data, headers), fcmPushExecutor));
+    }
+
+    ObjectNode merged = objectMapper.createObjectNode();
+    ArrayNode results = objectMapper.createArrayNode();
+    List<String> deadTokens = new ArrayList<>();
+    int success = 0;
+    int failure = 0;
+    int canonicalIds = 0;
+    int failedChunks = 0;
+    HttpStatus failedStatus = null;
+    for (CompletableFuture<ChunkResult> future : futures) {
+      ChunkResult chunkResult = future.join();
+      if (!chunkResult.status.is2xxSuccessful()) {
+        failedChunks++;
+        failedStatus = chunkResult.status;
+        failure += chunkResult.tokens.size();
+        for (int i = 0; i < chunkResult.tokens.size(); i++) {
+          results.addObject().put(ERROR, chunkResult.status.getReasonPhrase());
+        }
+        continue;
+      }
+
+      JsonNode response = chunkResult.response;
+      if (response == null) {
+        // FCM accepted the chunk without a body, so there are no per token results to merge
+        continue;
+      }
+      if (!merged.has("multicast_id")) {
+        merged.set("multicast_id", response.path("multicast_id"));
+      }
+      success += response.path("success").asInt();
+      failure += response.path("failure").asInt();
+      canonicalIds += response.path("canonical_ids").asInt();
+      JsonNode chunkResults = response.path(RESULTS);
+      for (int i = 0; i < chunkResults.size(); i++) {
+        JsonNode result = chunkResults.get(i);
+        results.add(result);
+        if (i < chunkResult.tokens.size()
+            && DEAD_TOKEN_ERRORS.contains(result.path(ERROR).asText())) {
+          deadTokens.add(chunkResult.tokens.get(i));
+        }
+      }
+    }
+    merged.put("success", success);
+    merged.put("failure", failure);
+    merged.put("canonical_ids", canonicalIds);
+    merged.set(RESULTS, results);
+
+    int pruned = deadTokens.isEmpty() ? 0 : authInfoRepository.clearDeviceTokens(deadTokens);
+    long elapsedNanos = System.nanoTime() - startNanos;
+    record(success, failure, pruned);
+    logger.info(
+        String.format(
+            "FCM push of %d tokens in %d chunks (%d failed) took %d ms, %.1f tokens/s: %d succeeded, %d failed, %d dead tokens removed",
+            tokens.size(),
+            chunks.size(),
+            failedChunks,
+            TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+            tokens.size() * 1e9 / Math.max(elapsedNanos, 1),
+            success,
+            failure,
+            pruned));
+
+    if (failedChunks == chunks.size()) {
+      return new FcmPushNotificationResponse(
+          merged, failedStatus.value(), failedStatus.getReasonPhrase());
+    }
+    return new FcmPushNotificationResponse(merged, HttpStatus.OK.value(), "SUCCESS");
+  }
+
+  private ObjectNode toData(NotificationBean notification) {
+    ObjectNode data = objectMapper.createObjectNode();
+    data.put("subtype", notification.getNotificationSubType());
+    data.put("type", notification.getNotificationType());
+    data.put("title", notification.getNotificationTitle());
+    data.put("message", notification.getNotificationText());
+    if (StringUtils.isNotEmpty(notification.getCustomStudyId())) {
+      data.put("studyId", notification.getCustomStudyId());
+    }
+    return data;
+  }
+
+  private ChunkResult send(List<String> tokens, ObjectNode data, HttpHeaders headers) {
+    ObjectNode body = objectMapper.createObjectNode();
+    ArrayNode registrationIds = body.putArray("registration_ids");
+    tokens.forEach(registrationIds::add);
+    body.put("priority", "high");
+    body.set("data", data);
+
+    long startNanos = System.nanoTime();
+    HttpStatus status;
+    JsonNode response = null;
+    try {
+      ResponseEntity<JsonNode> responseEntity =
+          restTemplate.postForEntity(
+              appConfig.getApiUrlFcm(), new HttpEntity<>(body, headers), JsonNode.class);
+      status = responseEntity.getStatusCode();
+      response = responseEntity.getBody();
+    } catch (HttpStatusCodeException e) {
+      logger.error(
+          String.format(
+              "FCM rejected a chunk of %d tokens, status=%d, response=%s",
+              tokens.size(), e.getRawStatusCode(), e.getResponseBodyAsString()));
+      status = e.getStatusCode();
+    } catch (RestClientException e) {
+      logger.error(String.format("failed to send a chunk of %d tokens to FCM", tokens.size()), e);
+      status = HttpStatus.SERVICE_UNAVAILABLE;
+    }
+
+    long elapsedNanos = System.nanoTime() - startNanos;
+    String statusTag = String.valueOf(status.value());
+    meterRegistry.ifAvailable(
+        registry ->
+            Timer.builder("fcm.push.request")
+                .tag("status", statusTag)
+                .register(registry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS));
+    return new ChunkResult(tokens, status, response);
+  }
+
+  private void record(int success, int failure, int pruned) {
+    meterRegistry.ifAvailable(
+        registry -> {
+          Counter.builder("fcm.push.tokens")
+              .tag("result", "success")
+              .register(registry)
+              .increment(success);
+          Counter.builder("fcm.push.tokens")
+              .tag("result", "failure")
+              .register(registry)
+              .increment(failure);
+          Counter.builder("fcm.push.tokens.removed").register(registry).increment(pruned);
+        });
+  }
+
+  private static class ChunkResult {
+
+    private final List<String> tokens;
+
+    private final HttpStatus status;
+
+    private final JsonNode response;
+
+    private ChunkResult(List<String> tokens, HttpStatus status, JsonNode response) {
+      this.tokens = tokens;
+      this.status = status;
+      this.response = response;
+    }
+  }
+}
@@ -11,14 +11,8 @@ package com.google.cloud.healthcare.fdamystudies.service;
 import static com.google.cloud.healthcare.fdamystudies.common.UserMgmntEvent.PUSH_NOTIFICATION_FAILED;
 import static com.google.cloud.healthcare.fdamystudies.common.UserMgmntEvent.PUSH_NOTIFICATION_SENT;
 
-import com.eatthepath.pushy.apns.ApnsClient;
-import com.eatthepath.pushy.apns.ApnsClientBuilder;
-import com.eatthepath.pushy.apns.PushNotificationResponse;
 import com.eatthepath.pushy.apns.util.SimpleApnsPayloadBuilder;
-import com.eatthepath.pushy.apns.util.SimpleApnsPushNotification;
-import com.eatthepath.pushy.apns.util.concurrent.PushNotificationFuture;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.cloud.healthcare.fdamystudies.bean.StudyMetadataBean;
 import com.google.cloud.healthcare.fdamystudies.beans.AuditLogEventRequest;
 import com.google.cloud.healthcare.fdamystudies.beans.ErrorBean;
@@ -32,25 +26,19 @@ import com.google.cloud.healthcare.fdamystudies.dao.CommonDao;
 import com.google.cloud.healthcare.fdamystudies.dao.StudiesDao;
 import com.google.cloud.healthcare.fdamystudies.model.AppEntity;
 import com.google.cloud.healthcare.fdamystudies.model.StudyEntity;
+import com.google.cloud.healthcare.fdamystudies.repository.AuthInfoRepository;
 import com.google.cloud.healthcare.fdamystudies.util.AppConstants;
 import com.google.cloud.healthcare.fdamystudies.util.ErrorCode;
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang3.StringUtils;
 import org.json.JSONArray;
-import org.json.JSONObject;
 import org.slf4j.ext.XLogger;
 import org.slf4j.ext.XLoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -73,6 +61,12 @@ public class StudiesServicesImpl implements StudiesServices {
 
   @Autowired UserMgmntAuditHelper userMgmntAuditLogHelper;
 
+  @Autowired private FcmPushDispatcher fcmPushDispatcher;
+
+  @Autowired private ApnsClientPool apnsClientPool;
+
+  @Autowired private AuthInfoRepository authInfoRepository;
+
   @Override
   @Transactional()
   public ErrorBean saveStudyMetadata(StudyMetadataBean studyMetadataBean) {
@@ -283,55 +277,12 @@ public class StudiesServicesImpl implements StudiesServices {
 
   public FcmPushNotificationResponse pushFcmNotification(
       NotificationBean notification, AppEntity appPropertiesDetails) throws IOException {
-
-    String authKey = "";
     logger.entry("Begin pushFCMNotification()");
 
     if (notification.getDeviceToken() != null
         && notification.getDeviceToken().length() > 0
         && appPropertiesDetails != null) {
-
-      authKey = appPropertiesDetails.getAndroidServerKey(); // You FCM AUTH key
-
-      URL url = new URL((String) applicationPropertyConfiguration.getApiUrlFcm());
-      HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-
-      conn.setUseCaches(false);
-      conn.setDoInput(true);
-      conn.setDoOutput(true);
-
-      conn.setRequestMethod("POST");
-      conn.setRequestProperty("Authorization", "key=" + authKey);
-      conn.setRequestProperty("Content-Type", "application/json");
-
-      JSONObject json = new JSONObject();
-
-      json.put("registration_ids", notification.getDeviceToken());
-      json.put("priority", "high");
-
-      JSONObject dataInfo = new JSONObject();
-      dataInfo.put("subtype", notification.getNotificationSubType());
-      dataInfo.put("type", notification.getNotificationType());
-      dataInfo.put("title", notification.getNotificationTitle());
-      dataInfo.put("message", notification.getNotificationText());
-      if (notification.getCustomStudyId() != null
-          && StringUtils.isNotEmpty(notification.getCustomStudyId())) {
-        dataInfo.put("studyId", notification.getCustomStudyId());
-      }
-      json.put("data", dataInfo);
-      OutputStreamWriter wr = new OutputStreamWriter(conn.getOutputStream());
-      wr.write(json.toString());
-      wr.flush();
-      String response = IOUtils.toString(conn.getInputStream(), StandardCharsets.UTF_8);
-      JsonNode responseJson = new ObjectMapper().readTree(response);
-      FcmPushNotificationResponse fcmNotificationResponse =
-          new FcmPushNotificationResponse(
-              responseJson, conn.getResponseCode(), conn.getResponseMessage());
-      logger.trace(
-          String.format(
-              "FCM Notification Response status=%d, response=%s",
-              conn.getResponseCode(), response));
-      return fcmNotificationResponse;
+      return fcmPushDispatcher.send(notification, appPropertiesDetails);
     }
 
     return new FcmPushNotificationResponse(null, HttpStatus.OK.value(), "SUCCESS");
@@ -341,72 +292,26 @@ public class StudiesServicesImpl implements StudiesServices {
       throws IOException {
 
     logger.entry("Begin pushNotification()");
-    String certificatePassword = "";
-
-    File file = null;
     if (notificationBean.getDeviceToken() != null
         && notificationBean.getDeviceToken().length() > 0
         && appPropertiesDetails != null) {
-      certificatePassword = appPropertiesDetails.getIosCertificatePassword();
-
-      byte[] decodedBytes;
-      FileOutputStream fop;
-      decodedBytes =
-          java.util.Base64.getDecoder()
-              .decode(appPropertiesDetails.getIosCertificate().replaceAll("\n", ""));
-      file = File.createTempFile("pushCert_" + appPropertiesDetails.getAppId(), ".p12");
-      fop = new FileOutputStream(file);
-      fop.write(decodedBytes);
-      fop.flush();
-      fop.close();
-      file.deleteOnExit();
-
-      if (file != null) {
-        ApnsClient apnsClient =
-            new ApnsClientBuilder()
-                .setApnsServer(applicationPropertyConfiguration.getIosPushNotificationType())
-                .setClientCredentials(new File(file.getPath()), certificatePassword)
-                .build();
-
-        String payload =
-            new SimpleApnsPayloadBuilder()
-                .setAlertBody(notificationBean.getNotificationText())
-                .addCustomProperty("subtype", notificationBean.getNotificationSubType())
-                .addCustomProperty("type", notificationBean.getNotificationType())
-                .addCustomProperty("studyId", notificationBean.getCustomStudyId())
-                .setSound("default")
-                .build();
-
-        for (int i = 0; i < notificationBean.getDeviceToken().length(); i++) {
-          String token = (String) notificationBean.getDeviceToken().get(i);
-          SimpleApnsPushNotification pushNotification =
-              new SimpleApnsPushNotification(token, appPropertiesDetails.getIosBundleId(), payload);
-          try {
-            final PushNotificationFuture<
-                    SimpleApnsPushNotification,
-                    PushNotificationResponse<SimpleApnsPushNotification>>
-                result = apnsClient.sendNotification(pushNotification);
-
-            // getting the response from APNs
-            final PushNotificationResponse<SimpleApnsPushNotification> pushNotificationResponse =
-                result.get();
-            if (pushNotificationResponse.isAccepted()) {
-              logger.info("Push notification accepted by APNs gateway.");
-            } else {
-              logger.info(
-                  "Notification rejected by the APNs gateway: "
-                      + pushNotificationResponse.getRejectionReason());
-              if (pushNotificationResponse.getTokenInvalidationTimestamp() != null) {
-                logger.info(
-                    "\t…and the token is invalid as of "
-                        + pushNotificationResponse.getTokenInvalidationTimestamp());
-              }
-            }
-          } catch (final Exception e) {
-            logger.error("Failed to send push notification.");
-            e.printStackTrace();
-          }
-        }
+      String payload =
+          new SimpleApnsPayloadBuilder()
+              .setAlertBody(notificationBean.getNotificationText())
+              .addCustomProperty("subtype", notificationBean.getNotificationSubType())
+              .addCustomProperty("type", notificationBean.getNotificationType())
+              .addCustomProperty("studyId", notificationBean.getCustomStudyId())
+              .setSound("default")
+              .build();
+
+      Set<String> deviceTokens = new LinkedHashSet<>();
+      for (int i = 0; i < notificationBean.getDeviceToken().length(); i++) {
+        deviceTokens.add((String) notificationBean.getDeviceToken().get(i));
+      }
+      ApnsClientPool.Result result =
+          apnsClientPool.send(appPropertiesDetails, payload, deviceTokens);
+      if (!result.getDeadTokens().isEmpty()) {
+        authInfoRepository.clearDeviceTokens(result.getDeadTokens());
       }
     }
   }
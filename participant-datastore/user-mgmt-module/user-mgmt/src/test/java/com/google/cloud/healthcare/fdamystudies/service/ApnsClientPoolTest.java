@@ -0,0 +1,131 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.eatthepath.pushy.apns.ApnsClientBuilder;
+import com.eatthepath.pushy.apns.server.MockApnsServer;
+import com.eatthepath.pushy.apns.server.MockApnsServerBuilder;
+import com.eatthepath.pushy.apns.server.RejectedNotificationException;
+import com.eatthepath.pushy.apns.server.RejectionReason;
+import com.google.cloud.healthcare.fdamystudies.model.AppEntity;
+import java.io.File;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Sends notifications through {@link ApnsClientPool} to a local mock APNs server. The server and
+ * client credentials in src/test/resources/apns are self-signed test certificates.
+ */
+public class ApnsClientPoolTest {
+
+  private static final String BAD_DEVICE_TOKEN = "bad-device-token";
+
+  private static final String PAYLOAD = "{\"aps\":{\"alert\":{\"body\":\"text\"}}}";
+
+  private File serverCertificate;
+
+  private MockApnsServer apnsServer;
+
+  private ApnsClientPool apnsClientPool;
+
+  private final AtomicInteger connections = new AtomicInteger();
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    serverCertificate = new ClassPathResource("apns/server.pem").getFile();
+    apnsServer =
+        new MockApnsServerBuilder()
+            .setServerCredentials(
+                serverCertificate, new ClassPathResource("apns/server-key.pem").getFile(), null)
+            .setHandlerFactory(
+                sslSession -> {
+                  connections.incrementAndGet();
+                  return (headers, payload) -> {
+                    if (headers.path().toString().endsWith(BAD_DEVICE_TOKEN)) {
+                      throw new RejectedNotificationException(RejectionReason.BAD_DEVICE_TOKEN);
+                    }
+                  };
+                })
+            .build();
+    int port;
+    try (ServerSocket socket = new ServerSocket(0)) {
+      port = socket.getLocalPort();
+    }
+    apnsServer.start(port).get();
+
+    apnsClientPool =
+        new ApnsClientPool("localhost", 1, 100) {
+          @Override
+          protected ApnsClientBuilder newClientBuilder() {
+            return new ApnsClientBuilder()
+                .setApnsServer("localhost", port)
+                .setTrustedServerCertificateChain(serverCertificate);
+          }
+        };
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    apnsClientPool.close();
+    apnsServer.shutdown().get();
+  }
+
+  @Test
+  void shouldPipelineNotificationsOverOneConnection() throws Exception {
+    List<String> deviceTokens = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      deviceTokens.add(String.format("device-token-%04d", i));
+    }
+    deviceTokens.add(BAD_DEVICE_TOKEN);
+
+    ApnsClientPool.Result result =
+        apnsClientPool.send(app("apns/client-1.p12"), PAYLOAD, deviceTokens);
+
+    assertEquals(2000, result.getAccepted());
+    assertEquals(1, result.getRejected());
+    assertEquals(0, result.getFailed());
+    assertEquals(1, result.getDeadTokens().size());
+    assertEquals(BAD_DEVICE_TOKEN, result.getDeadTokens().get(0));
+    assertEquals(1, connections.get());
+  }
+
+  @Test
+  void shouldReuseClientUntilCertificateChanges() throws Exception {
+    AppEntity app = app("apns/client-1.p12");
+    assertSame(apnsClientPool.getClient(app), apnsClientPool.getClient(app));
+
+    AppEntity renewed = app("apns/client-2.p12");
+    assertNotSame(apnsClientPool.getClient(app), apnsClientPool.getClient(renewed));
+    assertSame(apnsClientPool.getClient(renewed), apnsClientPool.getClient(renewed));
+  }
+
+  private AppEntity app(String certificate) throws Exception {
+    AppEntity app = new AppEntity();
+    app.setAppId("GCPMS001");
+    app.setIosBundleId("com.example.mystudies");
+    try (InputStream in = new ClassPathResource(certificate).getInputStream()) {
+      app.setIosCertificate(Base64.getEncoder().encodeToString(StreamUtils.copyToByteArray(in)));
+    }
+    app.setIosCertificatePassword("password");
+    return app;
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.service;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.matchingJsonPath;
+import static com.github.tomakehurst.wiremock.client.WireMock.ok;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.serverError;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import com.google.cloud.healthcare.fdamystudies.beans.FcmPushNotificationResponse;
+import com.google.cloud.healthcare.fdamystudies.beans.NotificationBean;
+import com.google.cloud.healthcare.fdamystudies.common.BaseMockIT;
+import com.google.cloud.healthcare.fdamystudies.model.AppEntity;
+import com.google.cloud.healthcare.fdamystudies.model.AuthInfoEntity;
+import com.google.cloud.healthcare.fdamystudies.repository.AppRepository;
+import com.google.cloud.healthcare.fdamystudies.repository.AuthInfoRepository;
+import com.google.cloud.healthcare.fdamystudies.testutils.Constants;
+import com.google.cloud.healthcare.fdamystudies.util.AppConstants;
+import java.util.ArrayList;
+import java.util.List;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+
+public class FcmPushDispatcherTest extends BaseMockIT {
+
+  private static final String FCM_SEND_PATH = "/fcm/send";
+
+  @Autowired private FcmPushDispatcher fcmPushDispatcher;
+
+  @Autowired private AppRepository appRepository;
+
+  @Autowired private AuthInfoRepository authInfoRepository;
+
+  private List<StubMapping> stubs = new ArrayList<>();
+
+  @AfterEach
+  public void removeStubs() {
+    stubs.forEach(getWireMockServer()::removeStub);
+    stubs.clear();
+  }
+
+  @Test
+  public void shouldSendTokensInChunksAndMergeResults() throws Exception {
+    List<String> tokens = tokens(2500);
+    stubChunk(tokens.get(0), okJson(successResponse(1000)));
+    stubChunk(tokens.get(1000), okJson(successResponse(1000)));
+    stubChunk(tokens.get(2000), okJson(successResponse(500)));
+
+    FcmPushNotificationResponse response = fcmPushDispatcher.send(notification(tokens), app());
+
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    JsonNode fcmResponse = response.getFcmResponse();
+    assertEquals(2500, fcmResponse.get("success").asInt());
+    assertEquals(0, fcmResponse.get("failure").asInt());
+    assertEquals(2500, fcmResponse.get("results").size());
+    getWireMockServer().verify(3, postRequestedFor(urlEqualTo(FCM_SEND_PATH)));
+    getWireMockServer()
+        .verify(
+            0,
+            postRequestedFor(urlEqualTo(FCM_SEND_PATH))
+                .withRequestBody(matchingJsonPath("$.registration_ids[1000]")));
+  }
+
+  @Test
+  public void shouldRemoveUnregisteredTokens() throws Exception {
+    List<String> tokens = new ArrayList<>();
+    tokens.add(Constants.ANDROID_DEVICE_TOKEN);
+    tokens.add("token-1");
+    JSONObject fcmResponse = new JSONObject(successResponse(2));
+    fcmResponse.put("success", 1).put("failure", 1);
+    fcmResponse.getJSONArray("results").put(0, new JSONObject().put("error", "NotRegistered"));
+    stubChunk(tokens.get(0), okJson(fcmResponse.toString()));
+
+    try {
+      FcmPushNotificationResponse response = fcmPushDispatcher.send(notification(tokens), app());
+
+      assertEquals(HttpStatus.OK.value(), response.getStatus());
+      assertEquals(1, response.getFcmResponse().get("success").asInt());
+      assertEquals(1, response.getFcmResponse().get("failure").asInt());
+      assertNull(
+          authInfoRepository.findById(Constants.ANDROID_AUTH_INFO_ID).get().getDeviceToken());
+    } finally {
+      AuthInfoEntity authInfo = authInfoRepository.findById(Constants.ANDROID_AUTH_INFO_ID).get();
+      authInfo.setDeviceToken(Constants.ANDROID_DEVICE_TOKEN);
+      authInfoRepository.saveAndFlush(authInfo);
+    }
+  }
+
+  @Test
+  public void shouldReportFailedChunkWithoutLosingOtherChunks() throws Exception {
+    List<String> tokens = tokens(1500);
+    stubChunk(tokens.get(0), okJson(successResponse(1000)));
+    stubChunk(tokens.get(1000), serverError());
+
+    FcmPushNotificationResponse response = fcmPushDispatcher.send(notification(tokens), app());
+
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    JsonNode fcmResponse = response.getFcmResponse();
+    assertEquals(1000, fcmResponse.get("success").asInt());
+    assertEquals(500, fcmResponse.get("failure").asInt());
+    assertEquals(1500, fcmResponse.get("results").size());
+    assertEquals(
+        HttpStatus.INTERNAL_SERVER_ERROR.getReasonPhrase(),
+        fcmResponse.get("results").get(1000).get("error").asText());
+  }
+
+  @Test
+  public void shouldTreatSuccessfulChunkWithoutBodyAsSent() throws Exception {
+    List<String> tokens = tokens(1500);
+    stubChunk(tokens.get(0), okJson(successResponse(1000)));
+    stubChunk(tokens.get(1000), ok());
+
+    FcmPushNotificationResponse response = fcmPushDispatcher.send(notification(tokens), app());
+
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    JsonNode fcmResponse = response.getFcmResponse();
+    assertEquals(1000, fcmResponse.get("success").asInt());
+    assertEquals(0, fcmResponse.get("failure").asInt());
+    assertEquals(1000, fcmResponse.get("results").size());
+  }
+
+  private void stubChunk(String firstToken, ResponseDefinitionBuilder response) {
+    stubs.add(
+        getWireMockServer()
+            .stubFor(
+                post(urlEqualTo(FCM_SEND_PATH))
+                    .withRequestBody(matchingJsonPath("$.registration_ids[0]", equalTo(firstToken)))
+                    .atPriority(1)
+                    .willReturn(response)));
+  }
+
+  private String successResponse(int tokens) throws JSONException {
+    JSONArray results = new JSONArray();
+    for (int i = 0; i < tokens; i++) {
+      results.put(new JSONObject().put("message_id", "0:1491324495516461%31bd1c9631bd1c9" + i));
+    }
+    return new JSONObject()
+        .put("multicast_id", 1046966001648131421L)
+        .put("success", tokens)
+        .put("failure", 0)
+        .put("canonical_ids", 0)
+        .put("results", results)
+        .toString();
+  }
+
+  private List<String> tokens(int count) {
+    List<String> tokens = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      tokens.add(String.format("token-%04d", i));
+    }
+    return tokens;
+  }
+
+  private NotificationBean notification(List<String> tokens) {
+    NotificationBean notification = new NotificationBean();
+    notification.setNotificationType(AppConstants.GATEWAY);
+    notification.setNotificationSubType(AppConstants.STUDY_EVENT);
+    notification.setNotificationTitle("title");
+    notification.setNotificationText("text");
+    notification.setDeviceToken(new JSONArray(tokens));
+    return notification;
+  }
+
+  private AppEntity app() {
+    return appRepository.findByAppId(Constants.APP_ID_VALUE).get();
+  }
+}
@@ -76,4 +76,7 @@ public final class Constants {
   public static final String IOS_APP_VERSION = "2.8.69";
   public static final String DEVICE_TOKEN =
       "7B3F1433E1157D370EE8A6BA2E612B27EC2C0081771FC8BA1ECFCBB07BBA5A17";
+  public static final String ANDROID_AUTH_INFO_ID = "223";
+  public static final String ANDROID_DEVICE_TOKEN =
+      "d3FncrcvPbw:APA91bHYlhS69KhhxIx8uoD152GT6JdfzF-bpmJiS04E9wVJapS5ELJwhwthRlDKPHR3OrAEap13-TxLc5EIc4OGME1iDRi04W3LYRtYkCdPQ76h5rTj1RTVT7q4SMASMVozESR2-gZl";
 }
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.beans;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.google.cloud.healthcare.fdamystudies.common.MessageCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@JsonInclude(Include.NON_NULL)
+@Getter
+@Setter
+@NoArgsConstructor
+public class ImportParticipantJobResponse extends BaseResponse {
+
+  private String jobId;
+
+  private String status;
+
+  private long processedRows;
+
+  private long importedCount;
+
+  private long duplicateCount;
+
+  private long invalidCount;
+
+  private String errorCode;
+
+  public ImportParticipantJobResponse(MessageCode messageCode) {
+    super(messageCode);
+  }
+}
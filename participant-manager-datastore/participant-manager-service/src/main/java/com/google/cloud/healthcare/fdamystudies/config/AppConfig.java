@@ -8,10 +8,13 @@
 
 package com.google.cloud.healthcare.fdamystudies.config;
 
+import com.google.cloud.healthcare.fdamystudies.service.SmtpConnectionPool;
 import com.google.cloud.storage.Storage;
 import com.google.cloud.storage.StorageOptions;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 @Configuration
 public class AppConfig extends CommonModuleConfiguration {
@@ -19,4 +22,40 @@ public class AppConfig extends CommonModuleConfiguration {
   public Storage storageService() {
     return StorageOptions.getDefaultInstance().getService();
   }
+
+  // Runs background participant email list imports. Each import holds a spooled workbook on the
+  // local disk, so the pool and its queue are kept small.
+  @Bean(name = "participantImportExecutor")
+  public ThreadPoolTaskExecutor participantImportExecutor(AppPropertyConfig appConfig) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(appConfig.getParticipantImportWorkerPoolSize());
+    executor.setMaxPoolSize(appConfig.getParticipantImportWorkerPoolSize());
+    executor.setQueueCapacity(appConfig.getParticipantImportQueueCapacity());
+    executor.setThreadNamePrefix("participant-import-");
+    executor.setWaitForTasksToCompleteOnShutdown(true);
+    executor.setAwaitTerminationSeconds(30);
+    executor.initialize();
+    return executor;
+  }
+
+  // Sends invitation emails, one task per email of the leased batch. The dispatcher waits for a
+  // batch before leasing the next one, so the queue never holds more than one batch.
+  @Bean(name = "inviteParticipantEmailExecutor")
+  public ThreadPoolTaskExecutor inviteParticipantEmailExecutor(AppPropertyConfig appConfig) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(appConfig.getInviteParticipantEmailParallelism());
+    executor.setMaxPoolSize(appConfig.getInviteParticipantEmailParallelism());
+    executor.setQueueCapacity(appConfig.getInviteParticipantBatchSize());
+    executor.setThreadNamePrefix("invite-participant-email-");
+    executor.setWaitForTasksToCompleteOnShutdown(true);
+    executor.setAwaitTerminationSeconds(30);
+    executor.initialize();
+    return executor;
+  }
+
+  @Bean
+  public SmtpConnectionPool smtpConnectionPool(
+      JavaMailSender emailSender, AppPropertyConfig appConfig) {
+    return new SmtpConnectionPool(emailSender, appConfig.getInviteParticipantEmailParallelism());
+  }
 }
@@ -77,4 +77,28 @@ public class AppPropertyConfig implements Serializable {
 
   @Value("${signed.url.duration.in.hours}")
   private int signedUrlDurationInHours;
+
+  @Value("${participant.import.batch.size}")
+  private int participantImportBatchSize;
+
+  @Value("${participant.import.worker.pool.size}")
+  private int participantImportWorkerPoolSize;
+
+  @Value("${participant.import.queue.capacity}")
+  private int participantImportQueueCapacity;
+
+  @Value("${participant.import.stale.job.timeout.minutes}")
+  private int participantImportStaleJobTimeoutMinutes;
+
+  @Value("${invite.participant.batch.size}")
+  private int inviteParticipantBatchSize;
+
+  @Value("${invite.participant.email.parallelism}")
+  private int inviteParticipantEmailParallelism;
+
+  @Value("${invite.participant.emails.per.second}")
+  private double inviteParticipantEmailsPerSecond;
+
+  @Value("${invite.participant.lease.seconds}")
+  private int inviteParticipantLeaseSeconds;
 }
@@ -11,6 +11,7 @@ package com.google.cloud.healthcare.fdamystudies.controller;
 import static com.google.cloud.healthcare.fdamystudies.common.CommonConstants.USER_ID_HEADER;
 
 import com.google.cloud.healthcare.fdamystudies.beans.AuditLogEventRequest;
+import com.google.cloud.healthcare.fdamystudies.beans.ImportParticipantJobResponse;
 import com.google.cloud.healthcare.fdamystudies.beans.ImportParticipantResponse;
 import com.google.cloud.healthcare.fdamystudies.beans.InviteParticipantRequest;
 import com.google.cloud.healthcare.fdamystudies.beans.InviteParticipantResponse;
@@ -37,6 +38,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.ext.XLogger;
 import org.slf4j.ext.XLoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -205,6 +207,43 @@ public class SiteController {
     return ResponseEntity.status(participants.getHttpStatusCode()).body(participants);
   }
 
+  @ApiOperation(value = "Starts importing participants from a .xlsx file in the background")
+  @PostMapping(
+      value = "/sites/{siteId}/participants/import-jobs",
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<ImportParticipantJobResponse> startImportParticipantJob(
+      @PathVariable String siteId,
+      @RequestHeader(name = USER_ID_HEADER) String userId,
+      @RequestParam("file") MultipartFile inputFile,
+      HttpServletRequest request) {
+    logger.entry(BEGIN_REQUEST_LOG, request.getRequestURI());
+    AuditLogEventRequest auditRequest = AuditEventMapper.fromHttpServletRequest(request);
+
+    ImportParticipantJobResponse importJob =
+        siteService.startImportParticipantJob(userId, siteId, inputFile, auditRequest);
+    logger.exit(String.format(STATUS_LOG, importJob.getHttpStatusCode()));
+    return ResponseEntity.status(importJob.getHttpStatusCode())
+        .header(HttpHeaders.LOCATION, request.getRequestURI() + "/" + importJob.getJobId())
+        .body(importJob);
+  }
+
+  @ApiOperation(value = "Returns the progress of a participant import started in the background")
+  @GetMapping(
+      value = "/sites/{siteId}/participants/import-jobs/{jobId}",
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<ImportParticipantJobResponse> getImportParticipantJob(
+      @PathVariable String siteId,
+      @PathVariable String jobId,
+      @RequestHeader(name = USER_ID_HEADER) String userId,
+      HttpServletRequest request) {
+    logger.entry(BEGIN_REQUEST_LOG, request.getRequestURI());
+
+    ImportParticipantJobResponse importJob =
+        siteService.getImportParticipantJob(userId, siteId, jobId);
+    logger.exit(String.format(STATUS_LOG, importJob.getHttpStatusCode()));
+    return ResponseEntity.status(importJob.getHttpStatusCode()).body(importJob);
+  }
+
   @ApiOperation(value = "Updates onbording status for a participant")
   @PatchMapping("/sites/{siteId}/participants/status")
   public ResponseEntity<ParticipantStatusResponse> updateOnboardingStatus(
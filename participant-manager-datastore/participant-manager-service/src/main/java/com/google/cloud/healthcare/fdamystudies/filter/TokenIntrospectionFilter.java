@@ -63,6 +63,13 @@ public class TokenIntrospectionFilter extends BaseTokenIntrospectionFilter {
     uriTemplateAndMethods.put(
         String.format("%s/sites/{siteId}/participants/import", context.getContextPath()),
         new String[] {HttpMethod.POST.name()});
+    uriTemplateAndMethods.put(
+        String.format("%s/sites/{siteId}/participants/import-jobs", context.getContextPath()),
+        new String[] {HttpMethod.POST.name()});
+    uriTemplateAndMethods.put(
+        String.format(
+            "%s/sites/{siteId}/participants/import-jobs/{jobId}", context.getContextPath()),
+        new String[] {HttpMethod.GET.name()});
     uriTemplateAndMethods.put(
         String.format("%s/sites/{siteId}/participants/status", context.getContextPath()),
         new String[] {HttpMethod.PATCH.name()});
@@ -11,17 +11,20 @@ package com.google.cloud.healthcare.fdamystudies.mapper;
 import static com.google.cloud.healthcare.fdamystudies.common.CommonConstants.NOT_APPLICABLE;
 
 import com.google.cloud.healthcare.fdamystudies.beans.Enrollment;
+import com.google.cloud.healthcare.fdamystudies.beans.ImportParticipantJobResponse;
 import com.google.cloud.healthcare.fdamystudies.beans.ParticipantDetail;
 import com.google.cloud.healthcare.fdamystudies.beans.ParticipantDetailRequest;
 import com.google.cloud.healthcare.fdamystudies.beans.ParticipantRegistryDetail;
 import com.google.cloud.healthcare.fdamystudies.common.CommonConstants;
 import com.google.cloud.healthcare.fdamystudies.common.DateTimeUtils;
 import com.google.cloud.healthcare.fdamystudies.common.EnrollmentStatus;
+import com.google.cloud.healthcare.fdamystudies.common.MessageCode;
 import com.google.cloud.healthcare.fdamystudies.common.OnboardingStatus;
 import com.google.cloud.healthcare.fdamystudies.common.Permission;
 import com.google.cloud.healthcare.fdamystudies.common.UserStatus;
 import com.google.cloud.healthcare.fdamystudies.model.AppParticipantsInfo;
 import com.google.cloud.healthcare.fdamystudies.model.ParticipantEnrollmentHistory;
+import com.google.cloud.healthcare.fdamystudies.model.ParticipantImportJobEntity;
 import com.google.cloud.healthcare.fdamystudies.model.ParticipantRegistrySiteEntity;
 import com.google.cloud.healthcare.fdamystudies.model.ParticipantStudyEntity;
 import com.google.cloud.healthcare.fdamystudies.model.SiteEntity;
@@ -253,4 +256,17 @@ public final class ParticipantMapper {
     participantStudyEntity.setStudy(participantRegistrySite.getStudy());
     return participantStudyEntity;
   }
+
+  public static ImportParticipantJobResponse toImportParticipantJobResponse(
+      ParticipantImportJobEntity importJob, MessageCode messageCode) {
+    ImportParticipantJobResponse response = new ImportParticipantJobResponse(messageCode);
+    response.setJobId(importJob.getId());
+    response.setStatus(importJob.getStatus());
+    response.setProcessedRows(importJob.getProcessedRows());
+    response.setImportedCount(importJob.getImportedCount());
+    response.setDuplicateCount(importJob.getDuplicateCount());
+    response.setInvalidCount(importJob.getInvalidCount());
+    response.setErrorCode(importJob.getErrorCode());
+    return response;
+  }
 }
@@ -0,0 +1,18 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.service;
+
+public interface InviteParticipantEmailService {
+
+  /**
+   * Sends the pending invitation emails, leasing them in batches so that service instances running
+   * at the same time do not send the same email. Returns the number of emails sent.
+   */
+  public int sendInvitationEmails();
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.service;
+
+import static com.google.cloud.healthcare.fdamystudies.common.ParticipantManagerEvent.INVITATION_EMAIL_FAILED;
+import static com.google.cloud.healthcare.fdamystudies.common.ParticipantManagerEvent.INVITATION_EMAIL_SENT;
+
+import com.google.cloud.healthcare.fdamystudies.beans.AuditLogEventRequest;
+import com.google.cloud.healthcare.fdamystudies.beans.EmailRequest;
+import com.google.cloud.healthcare.fdamystudies.common.IdGenerator;
+import com.google.cloud.healthcare.fdamystudies.common.ParticipantManagerAuditLogHelper;
+import com.google.cloud.healthcare.fdamystudies.config.AppPropertyConfig;
+import com.google.cloud.healthcare.fdamystudies.mapper.SiteMapper;
+import com.google.cloud.healthcare.fdamystudies.model.InviteParticipantEntity;
+import com.google.cloud.healthcare.fdamystudies.model.ParticipantRegistrySiteEntity;
+import com.google.cloud.healthcare.fdamystudies.model.SiteEntity;
+import com.google.cloud.healthcare.fdamystudies.model.StudyEntity;
+import com.google.cloud.healthcare.fdamystudies.repository.InviteParticipantsEmailRepository;
+import com.google.cloud.healthcare.fdamystudies.repository.ParticipantRegistrySiteRepository;
+import com.google.cloud.healthcare.fdamystudies.repository.StudyRepository;
+import com.google.common.util.concurrent.RateLimiter;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Service
+public class InviteParticipantEmailServiceImpl implements InviteParticipantEmailService {
+
+  private XLogger logger =
+      XLoggerFactory.getXLogger(InviteParticipantEmailServiceImpl.class.getName());
+
+  @Autowired private InviteParticipantsEmailRepository invitedParticipantsEmailRepository;
+
+  @Autowired private ParticipantRegistrySiteRepository participantRegistrySiteRepository;
+
+  @Autowired private StudyRepository studyRepository;
+
+  @Autowired private EmailService emailService;
+
+  @Autowired private SmtpConnectionPool smtpConnectionPool;
+
+  @Autowired private AppPropertyConfig appPropertyConfig;
+
+  @Autowired private ParticipantManagerAuditLogHelper participantManagerHelper;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  @Autowired
+  @Qualifier("inviteParticipantEmailExecutor")
+  private TaskExecutor inviteParticipantEmailExecutor;
+
+  private RateLimiter rateLimiter;
+
+  @PostConstruct
+  public void init() {
+    rateLimiter = RateLimiter.create(appPropertyConfig.getInviteParticipantEmailsPerSecond());
+  }
+
+  @Override
+  public int sendInvitationEmails() {
+    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    List<String> failedInviteIds = new ArrayList<>();
+    int sent = 0;
+    while (true) {
+      String leaseOwner = IdGenerator.id();
+      List<InviteParticipantEntity> leased =
+          transactionTemplate.execute(status -> leaseBatch(leaseOwner));
+      if (leased.isEmpty()) {
+        break;
+      }
+
+      List<Invitation> invitations = transactionTemplate.execute(status -> prepare(leased));
+      Map<Invitation, Boolean> results = send(invitations);
+
+      List<String> sentParticipantIds = new ArrayList<>();
+      for (Map.Entry<Invitation, Boolean> result : results.entrySet()) {
+        if (result.getValue()) {
+          sentParticipantIds.add(result.getKey().participantRegistrySiteId);
+        } else {
+          failedInviteIds.addAll(result.getKey().inviteIds);
+        }
+      }
+      if (!sentParticipantIds.isEmpty()) {
+        // duplicate invitations for the same participant are deleted along with the one sent
+        transactionTemplate.executeWithoutResult(
+            status ->
+                invitedParticipantsEmailRepository.deleteByParticipantRegistrySiteIds(
+                    sentParticipantIds));
+      }
+      sent += sentParticipantIds.size();
+
+      for (Map.Entry<Invitation, Boolean> result : results.entrySet()) {
+        Invitation invitation = result.getKey();
+        participantManagerHelper.logEvent(
+            result.getValue() ? INVITATION_EMAIL_SENT : INVITATION_EMAIL_FAILED,
+            invitation.auditRequest,
+            Collections.singletonMap("site_id", invitation.auditRequest.getSiteId()));
+      }
+    }
+
+    // failed emails are retried in the next run, rather than leased again straight away
+    if (!failedInviteIds.isEmpty()) {
+      transactionTemplate.executeWithoutResult(
+          status -> invitedParticipantsEmailRepository.releaseLeases(failedInviteIds));
+    }
+    logger.info(
+        String.format("%d invitation emails sent, %d failed", sent, failedInviteIds.size()));
+    return sent;
+  }
+
+  private List<InviteParticipantEntity> leaseBatch(String leaseOwner) {
+    long now = System.currentTimeMillis();
+    List<String> claimableIds =
+        invitedParticipantsEmailRepository.findClaimableIds(
+            new Timestamp(now), appPropertyConfig.getInviteParticipantBatchSize());
+    if (claimableIds.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    Timestamp leaseExpiry =
+        new Timestamp(
+            now + TimeUnit.SECONDS.toMillis(appPropertyConfig.getInviteParticipantLeaseSeconds()));
+    invitedParticipantsEmailRepository.claim(
+        claimableIds, leaseOwner, new Timestamp(now), leaseExpiry);
+    return invitedParticipantsEmailRepository.findByLeaseOwner(leaseOwner);
+  }
+
+  /**
+   * Loads the participants and studies of the leased invitations with one query each, and builds
+   * one email per participant. Invitations whose participant or study no longer exists are deleted.
+   */
+  private List<Invitation> prepare(List<InviteParticipantEntity> leased) {
+    Map<String, ParticipantRegistrySiteEntity> participantsById =
+        participantRegistrySiteRepository
+            .findWithSiteByIds(
+                leased.stream()
+                    .map(InviteParticipantEntity::getParticipantRegistrySite)
+                    .collect(Collectors.toSet()))
+            .stream()
+            .collect(Collectors.toMap(ParticipantRegistrySiteEntity::getId, Function.identity()));
+    Map<String, StudyEntity> studiesById =
+        studyRepository
+            .findWithAppByStudyIds(
+                leased.stream().map(InviteParticipantEntity::getStudy).collect(Collectors.toSet()))
+            .stream()
+            .collect(Collectors.toMap(StudyEntity::getId, Function.identity()));
+
+    List<String> orphanInviteIds = new ArrayList<>();
+    Map<String, Invitation> invitationsByKey = new LinkedHashMap<>();
+    for (InviteParticipantEntity invite : leased) {
+      ParticipantRegistrySiteEntity participantRegistrySite =
+          participantsById.get(invite.getParticipantRegistrySite());
+      StudyEntity study = studiesById.get(invite.getStudy());
+      if (participantRegistrySite == null || study == null) {
+        orphanInviteIds.add(invite.getId());
+        continue;
+      }
+
+      String key =
+          invite.getStudy() + "_" + invite.getParticipantRegistrySite() + "_" + invite.getAppId();
+      invitationsByKey
+          .computeIfAbsent(
+              key,
+              k ->
+                  new Invitation(
+                      participantRegistrySite.getId(),
+                      toEmailRequest(participantRegistrySite, study),
+                      toAuditRequest(invite, participantRegistrySite)))
+          .inviteIds
+          .add(invite.getId());
+    }
+
+    if (!orphanInviteIds.isEmpty()) {
+      logger.warn(
+          String.format(
+              "Participant registry or study not found for %d invited participants so deleting these records from invite participant table",
+              orphanInviteIds.size()));
+      invitedParticipantsEmailRepository.deleteByIds(orphanInviteIds);
+    }
+    return new ArrayList<>(invitationsByKey.values());
+  }
+
+  /** Sends the emails on the executor, and waits for all of them to be sent or to fail. */
+  private Map<Invitation, Boolean> send(Collection<Invitation> invitations) {
+    Map<Invitation, CompletableFuture<Boolean>> futures = new LinkedHashMap<>();
+    for (Invitation invitation : invitations) {
+      CompletableFuture<Boolean> future;
+      try {
+        future =
+            CompletableFuture.supplyAsync(
+                () -> send(invitation.emailRequest), inviteParticipantEmailExecutor);
+      } catch (TaskRejectedException e) {
+        logger.warn("invitation email rejected by the executor", e);
+        future = CompletableFuture.completedFuture(false);
+      }
+      futures.put(invitation, future);
+    }
+
+    Map<Invitation, Boolean> results = new LinkedHashMap<>();
+    futures.forEach((invitation, future) -> results.put(invitation, future.join()));
+    return results;
+  }
+
+  private boolean send(EmailRequest emailRequest) {
+    rateLimiter.acquire();
+    try {
+      smtpConnectionPool.send(emailService.createMimeMessage(emailRequest));
+      return true;
+    } catch (Exception e) {
+      logger.error("failed to send invitation email", e);
+      return false;
+    }
+  }
+
+  private EmailRequest toEmailRequest(
+      ParticipantRegistrySiteEntity participantRegistrySite, StudyEntity study) {
+    Map<String, String> templateArgs = new HashMap<>();
+    templateArgs.put("study name", study.getName());
+    templateArgs.put("App Name", study.getApp().getAppName());
+    templateArgs.put("enrolment token", participantRegistrySite.getEnrollmentToken());
+    templateArgs.put("contact email address", study.getContactEmail());
+    return new EmailRequest(
+        appPropertyConfig.getFromEmail(),
+        new String[] {participantRegistrySite.getEmail()},
+        null,
+        null,
+        appPropertyConfig.getParticipantInviteSubject(),
+        appPropertyConfig.getParticipantInviteBody(),
+        templateArgs);
+  }
+
+  private AuditLogEventRequest toAuditRequest(
+      InviteParticipantEntity invite, ParticipantRegistrySiteEntity participantRegistrySite) {
+    SiteEntity site = participantRegistrySite.getSite();
+    AuditLogEventRequest auditRequest = SiteMapper.prepareAuditlogRequest(invite);
+    auditRequest.setSiteId(site.getLocation().getCustomId());
+    auditRequest.setStudyId(site.getStudy().getCustomId());
+    auditRequest.setAppId(site.getStudy().getApp().getAppId());
+    auditRequest.setParticipantId(participantRegistrySite.getId());
+    auditRequest.setStudyVersion(String.valueOf(site.getStudy().getVersion()));
+    return auditRequest;
+  }
+
+  private static class Invitation {
+
+    private final String participantRegistrySiteId;
+
+    private final EmailRequest emailRequest;
+
+    private final AuditLogEventRequest auditRequest;
+
+    private final List<String> inviteIds = new ArrayList<>();
+
+    private Invitation(
+        String participantRegistrySiteId,
+        EmailRequest emailRequest,
+        AuditLogEventRequest auditRequest) {
+      this.participantRegistrySiteId = participantRegistrySiteId;
+      this.emailRequest = emailRequest;
+      this.auditRequest = auditRequest;
+    }
+  }
+}
@@ -45,6 +45,7 @@ import com.google.cloud.healthcare.fdamystudies.common.ParticipantManagerEvent;
 import com.google.cloud.healthcare.fdamystudies.common.Permission;
 import com.google.cloud.healthcare.fdamystudies.config.AppPropertyConfig;
 import com.google.cloud.healthcare.fdamystudies.exceptions.ErrorCodeException;
+import com.google.cloud.healthcare.fdamystudies.filter.TokenIntrospectionCache;
 import com.google.cloud.healthcare.fdamystudies.mapper.AuditEventMapper;
 import com.google.cloud.healthcare.fdamystudies.mapper.UserMapper;
 import com.google.cloud.healthcare.fdamystudies.model.AppEntity;
@@ -122,6 +123,8 @@ public class ManageUserServiceImpl implements ManageUserService {
 
   @Autowired private OAuthService oauthService;
 
+  @Autowired private TokenIntrospectionCache tokenIntrospectionCache;
+
   @Override
   @Transactional
   public AdminUserResponse createUser(UserRequest user, AuditLogEventRequest auditRequest) {
@@ -565,6 +568,7 @@ public class ManageUserServiceImpl implements ManageUserService {
 
   private void logoutAdminUser(String authUserId, AuditLogEventRequest auditRequest) {
     logger.entry("logoutAdminUser()");
+    tokenIntrospectionCache.invalidateUser(authUserId);
 
     HttpHeaders headers = new HttpHeaders();
     headers.setContentType(MediaType.APPLICATION_JSON);
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.service;
+
+import com.google.cloud.healthcare.fdamystudies.beans.AuditLogEventRequest;
+import com.google.cloud.healthcare.fdamystudies.beans.ImportParticipantResponse;
+import com.google.cloud.healthcare.fdamystudies.model.SiteEntity;
+import java.nio.file.Path;
+import java.util.Set;
+
+public interface ParticipantImportService {
+
+  /**
+   * Saves the emails that are not registered for the site's study yet as new participants, and
+   * returns them along with the emails that already are.
+   */
+  public ImportParticipantResponse saveParticipants(
+      Set<String> emails, String userId, SiteEntity siteEntity);
+
+  /**
+   * Streams the email column of the spooled .xlsx workbook into the site in batches, recording
+   * progress on the import job after each batch. The workbook is deleted once the import ends.
+   *
+   * <p>The workbook is spooled to the local disk of the instance and is not durable: a job whose
+   * instance stops is not resumed, but marked failed by {@link #failStaleImportJobs()}.
+   */
+  public void runImportJob(
+      String importJobId,
+      Path workbook,
+      String userId,
+      String siteId,
+      AuditLogEventRequest auditRequest);
+
+  /**
+   * Marks failed the jobs in progress that recorded no progress for
+   * participant.import.stale.job.timeout.minutes, and returns their number. A job still running
+   * stops at its next batch.
+   */
+  public int failStaleImportJobs();
+}
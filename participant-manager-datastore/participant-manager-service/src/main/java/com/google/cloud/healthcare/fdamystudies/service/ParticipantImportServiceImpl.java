@@ -0,0 +1,316 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.service;
+
+import static com.google.cloud.healthcare.fdamystudies.common.CommonConstants.EMAIL_PATTERN;
+import static com.google.cloud.healthcare.fdamystudies.common.ParticipantManagerEvent.PARTICIPANTS_EMAIL_LIST_IMPORTED;
+import static com.google.cloud.healthcare.fdamystudies.common.ParticipantManagerEvent.PARTICIPANTS_EMAIL_LIST_IMPORT_FAILED;
+import static com.google.cloud.healthcare.fdamystudies.common.ParticipantManagerEvent.PARTICIPANTS_EMAIL_LIST_IMPORT_PARTIAL_FAILED;
+
+import com.google.cloud.healthcare.fdamystudies.beans.AuditLogEventRequest;
+import com.google.cloud.healthcare.fdamystudies.beans.ImportParticipantResponse;
+import com.google.cloud.healthcare.fdamystudies.beans.ParticipantDetail;
+import com.google.cloud.healthcare.fdamystudies.common.EnrollmentStatus;
+import com.google.cloud.healthcare.fdamystudies.common.ErrorCode;
+import com.google.cloud.healthcare.fdamystudies.common.ImportJobStatus;
+import com.google.cloud.healthcare.fdamystudies.common.MessageCode;
+import com.google.cloud.healthcare.fdamystudies.common.OnboardingStatus;
+import com.google.cloud.healthcare.fdamystudies.common.ParticipantManagerAuditLogHelper;
+import com.google.cloud.healthcare.fdamystudies.config.AppPropertyConfig;
+import com.google.cloud.healthcare.fdamystudies.exceptions.ErrorCodeException;
+import com.google.cloud.healthcare.fdamystudies.mapper.ParticipantMapper;
+import com.google.cloud.healthcare.fdamystudies.model.ParticipantImportJobEntity;
+import com.google.cloud.healthcare.fdamystudies.model.ParticipantRegistrySiteEntity;
+import com.google.cloud.healthcare.fdamystudies.model.ParticipantStudyEntity;
+import com.google.cloud.healthcare.fdamystudies.model.SiteEntity;
+import com.google.cloud.healthcare.fdamystudies.repository.ParticipantImportJobRepository;
+import com.google.cloud.healthcare.fdamystudies.repository.ParticipantRegistrySiteRepository;
+import com.google.cloud.healthcare.fdamystudies.repository.ParticipantStudyRepository;
+import com.google.cloud.healthcare.fdamystudies.repository.SiteRepository;
+import com.google.cloud.healthcare.fdamystudies.util.XlsxColumnReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Service
+public class ParticipantImportServiceImpl implements ParticipantImportService {
+
+  private static final int EMAIL_ADDRESS_COLUMN = 0;
+
+  private XLogger logger = XLoggerFactory.getXLogger(ParticipantImportServiceImpl.class.getName());
+
+  @Autowired private SiteRepository siteRepository;
+
+  @Autowired private ParticipantRegistrySiteRepository participantRegistrySiteRepository;
+
+  @Autowired private ParticipantStudyRepository participantStudyRepository;
+
+  @Autowired private ParticipantImportJobRepository participantImportJobRepository;
+
+  @Autowired private AppPropertyConfig appPropertyConfig;
+
+  @Autowired private ParticipantManagerAuditLogHelper participantManagerHelper;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  @Override
+  @Transactional
+  public ImportParticipantResponse saveParticipants(
+      Set<String> emails, String userId, SiteEntity siteEntity) {
+
+    List<ParticipantRegistrySiteEntity> participantRegistrySiteEntities =
+        (List<ParticipantRegistrySiteEntity>)
+            CollectionUtils.emptyIfNull(
+                participantRegistrySiteRepository.findByStudyIdAndEmails(
+                    siteEntity.getStudy().getId(), emails));
+
+    List<String> participantRegistryEmails =
+        (List<String>)
+            CollectionUtils.emptyIfNull(
+                participantRegistrySiteEntities.stream()
+                    .filter(
+                        participant ->
+                            !participant
+                                    .getOnboardingStatus()
+                                    .equals(OnboardingStatus.DISABLED.getCode())
+                                || participant.getSite().equals(siteEntity))
+                    .map(ParticipantRegistrySiteEntity::getEmail)
+                    .distinct()
+                    .collect(Collectors.toList()));
+
+    List<String> newEmails =
+        (List<String>)
+            CollectionUtils.removeAll(new ArrayList<String>(emails), participantRegistryEmails);
+
+    Timestamp enrollmentTokenExpiry =
+        new Timestamp(
+            Instant.now()
+                .plus(appPropertyConfig.getEnrollmentTokenExpiryInHours(), ChronoUnit.HOURS)
+                .toEpochMilli());
+
+    // both tables are written with saveAll and a single flush, so the inserts go out as JDBC
+    // batches of hibernate.jdbc.batch_size rows instead of one round trip per row
+    List<ParticipantDetail> savedParticipants = new ArrayList<>();
+    List<ParticipantRegistrySiteEntity> newParticipantRegistrySites = new ArrayList<>();
+    for (String email : newEmails) {
+      ParticipantDetail participantDetail = new ParticipantDetail();
+      participantDetail.setEmail(email);
+      ParticipantRegistrySiteEntity participantRegistrySite =
+          ParticipantMapper.fromParticipantDetail(participantDetail, siteEntity);
+      participantRegistrySite.setCreatedBy(userId);
+      participantRegistrySite.setEnrollmentTokenExpiry(enrollmentTokenExpiry);
+      newParticipantRegistrySites.add(participantRegistrySite);
+      savedParticipants.add(participantDetail);
+    }
+    participantRegistrySiteRepository.saveAll(newParticipantRegistrySites);
+
+    List<ParticipantStudyEntity> newParticipantStudies = new ArrayList<>();
+    for (int i = 0; i < newParticipantRegistrySites.size(); i++) {
+      ParticipantRegistrySiteEntity participantRegistrySite = newParticipantRegistrySites.get(i);
+      ParticipantStudyEntity participantStudyEntity =
+          ParticipantMapper.toParticipantStudyEntity(
+              participantRegistrySite, EnrollmentStatus.YET_TO_ENROLL);
+      participantStudyEntity.setParticipantId(null);
+      participantStudyEntity.setUserDetails(null);
+      participantStudyEntity.setEnrolledDate(null);
+      newParticipantStudies.add(participantStudyEntity);
+      savedParticipants.get(i).setId(participantRegistrySite.getId());
+    }
+    participantStudyRepository.saveAll(newParticipantStudies);
+    participantStudyRepository.flush();
+
+    logger.exit(
+        String.format(
+            "%d duplicates email found and %d new emails saved",
+            participantRegistryEmails.size(), newEmails.size()));
+    return new ImportParticipantResponse(
+        MessageCode.IMPORT_PARTICIPANT_SUCCESS, savedParticipants, participantRegistryEmails);
+  }
+
+  @Override
+  public void runImportJob(
+      String importJobId,
+      Path workbook,
+      String userId,
+      String siteId,
+      AuditLogEventRequest auditRequest) {
+    logger.entry(String.format("begin runImportJob() for import job %s", importJobId));
+    Map<String, String> map = Collections.singletonMap("site_id", auditRequest.getSiteId());
+    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    int batchSize = appPropertyConfig.getParticipantImportBatchSize();
+    ImportProgress progress = new ImportProgress();
+    Set<String> batch = new LinkedHashSet<>();
+
+    try {
+      XlsxColumnReader.read(
+          workbook,
+          EMAIL_ADDRESS_COLUMN,
+          (rowNum, email) -> {
+            // the header row was checked before the job was started
+            if (rowNum == 0) {
+              return true;
+            }
+            progress.processedRows++;
+            if (!isValidEmail(email)) {
+              progress.invalidCount++;
+            } else {
+              batch.add(email);
+            }
+            if (batch.size() >= batchSize) {
+              saveBatch(transactionTemplate, importJobId, batch, userId, siteId, progress);
+            }
+            return true;
+          });
+      saveBatch(transactionTemplate, importJobId, batch, userId, siteId, progress);
+
+      participantManagerHelper.logEvent(
+          progress.invalidCount == 0 && progress.duplicateCount == 0
+              ? PARTICIPANTS_EMAIL_LIST_IMPORTED
+              : PARTICIPANTS_EMAIL_LIST_IMPORT_PARTIAL_FAILED,
+          auditRequest,
+          map);
+      updateImportJob(transactionTemplate, importJobId, progress, ImportJobStatus.COMPLETED, null);
+      logger.exit(
+          String.format(
+              "import job %s completed, %d rows read, %d new emails saved",
+              importJobId, progress.processedRows, progress.importedCount));
+    } catch (Exception e) {
+      logger.error(String.format("import job %s failed", importJobId), e);
+      ErrorCode errorCode =
+          e instanceof ErrorCodeException
+              ? ((ErrorCodeException) e).getErrorCode()
+              : ErrorCode.FAILED_TO_IMPORT_PARTICIPANTS;
+      participantManagerHelper.logEvent(PARTICIPANTS_EMAIL_LIST_IMPORT_FAILED, auditRequest, map);
+      updateImportJob(
+          transactionTemplate, importJobId, progress, ImportJobStatus.FAILED, errorCode.getCode());
+    } finally {
+      try {
+        Files.deleteIfExists(workbook);
+      } catch (IOException e) {
+        logger.warn(String.format("failed to delete spooled workbook %s", workbook), e);
+      }
+    }
+  }
+
+  @Override
+  @Transactional
+  public int failStaleImportJobs() {
+    long now = System.currentTimeMillis();
+    Timestamp staleBefore =
+        new Timestamp(
+            now
+                - TimeUnit.MINUTES.toMillis(
+                    appPropertyConfig.getParticipantImportStaleJobTimeoutMinutes()));
+    int failedJobs =
+        participantImportJobRepository.failStaleJobs(
+            staleBefore, new Timestamp(now), ErrorCode.FAILED_TO_IMPORT_PARTICIPANTS.getCode());
+    if (failedJobs > 0) {
+      logger.warn(
+          String.format(
+              "%d import jobs made no progress since %s, failed", failedJobs, staleBefore));
+    }
+    return failedJobs;
+  }
+
+  /**
+   * Saves a batch of emails and the job progress in one transaction, so the progress reported never
+   * runs ahead of the participants saved. A job that was marked failed in the meantime stops
+   * without saving the batch.
+   */
+  private void saveBatch(
+      TransactionTemplate transactionTemplate,
+      String importJobId,
+      Set<String> batch,
+      String userId,
+      String siteId,
+      ImportProgress progress) {
+    transactionTemplate.execute(
+        status -> {
+          if (!batch.isEmpty()) {
+            SiteEntity siteEntity =
+                siteRepository
+                    .findById(siteId)
+                    .orElseThrow(() -> new ErrorCodeException(ErrorCode.SITE_NOT_FOUND));
+            ImportParticipantResponse response = saveParticipants(batch, userId, siteEntity);
+            progress.importedCount += response.getParticipants().size();
+            progress.duplicateCount += response.getDuplicateEmails().size();
+          }
+          updateImportJob(importJobId, progress, ImportJobStatus.IN_PROGRESS, null);
+          return null;
+        });
+    batch.clear();
+  }
+
+  private void updateImportJob(
+      TransactionTemplate transactionTemplate,
+      String importJobId,
+      ImportProgress progress,
+      ImportJobStatus status,
+      String errorCode) {
+    transactionTemplate.execute(
+        transactionStatus -> {
+          updateImportJob(importJobId, progress, status, errorCode);
+          return null;
+        });
+  }
+
+  private void updateImportJob(
+      String importJobId, ImportProgress progress, ImportJobStatus status, String errorCode) {
+    ParticipantImportJobEntity importJob =
+        participantImportJobRepository
+            .findById(importJobId)
+            .orElseThrow(() -> new ErrorCodeException(ErrorCode.IMPORT_JOB_NOT_FOUND));
+    if (status == ImportJobStatus.IN_PROGRESS
+        && !ImportJobStatus.IN_PROGRESS.name().equals(importJob.getStatus())) {
+      throw new ErrorCodeException(ErrorCode.FAILED_TO_IMPORT_PARTICIPANTS);
+    }
+    importJob.setStatus(status.name());
+    importJob.setProcessedRows(progress.processedRows);
+    importJob.setImportedCount(progress.importedCount);
+    importJob.setDuplicateCount(progress.duplicateCount);
+    importJob.setInvalidCount(progress.invalidCount);
+    importJob.setErrorCode(errorCode);
+    participantImportJobRepository.save(importJob);
+  }
+
+  private static boolean isValidEmail(String email) {
+    return StringUtils.isNotBlank(email) && EMAIL_PATTERN.matcher(email).matches();
+  }
+
+  private static class ImportProgress {
+
+    private long processedRows;
+
+    private long importedCount;
+
+    private long duplicateCount;
+
+    private long invalidCount;
+  }
+}
@@ -9,6 +9,7 @@
 package com.google.cloud.healthcare.fdamystudies.service;
 
 import com.google.cloud.healthcare.fdamystudies.beans.AuditLogEventRequest;
+import com.google.cloud.healthcare.fdamystudies.beans.ImportParticipantJobResponse;
 import com.google.cloud.healthcare.fdamystudies.beans.ImportParticipantResponse;
 import com.google.cloud.healthcare.fdamystudies.beans.InviteParticipantRequest;
 import com.google.cloud.healthcare.fdamystudies.beans.InviteParticipantResponse;
@@ -53,6 +54,12 @@ public interface SiteService {
   public ImportParticipantResponse importParticipants(
       String userId, String siteId, MultipartFile multipartFile, AuditLogEventRequest auditRequest);
 
+  public ImportParticipantJobResponse startImportParticipantJob(
+      String userId, String siteId, MultipartFile multipartFile, AuditLogEventRequest auditRequest);
+
+  public ImportParticipantJobResponse getImportParticipantJob(
+      String userId, String siteId, String importJobId);
+
   public ParticipantStatusResponse updateOnboardingStatus(
       ParticipantStatusRequest request, AuditLogEventRequest auditRequest);
 
@@ -12,14 +12,12 @@ import static com.google.cloud.healthcare.fdamystudies.common.CommonConstants.AC
 import static com.google.cloud.healthcare.fdamystudies.common.CommonConstants.CLOSE_STUDY;
 import static com.google.cloud.healthcare.fdamystudies.common.CommonConstants.DEACTIVATED;
 import static com.google.cloud.healthcare.fdamystudies.common.CommonConstants.DEFAULT_PERCENTAGE;
-import static com.google.cloud.healthcare.fdamystudies.common.CommonConstants.EMAIL_REGEX;
+import static com.google.cloud.healthcare.fdamystudies.common.CommonConstants.EMAIL_PATTERN;
 import static com.google.cloud.healthcare.fdamystudies.common.CommonConstants.INACTIVE_STATUS;
 import static com.google.cloud.healthcare.fdamystudies.common.CommonConstants.OPEN;
 import static com.google.cloud.healthcare.fdamystudies.common.CommonConstants.OPEN_STUDY;
 import static com.google.cloud.healthcare.fdamystudies.common.CommonConstants.STATUS_ACTIVE;
 import static com.google.cloud.healthcare.fdamystudies.common.ParticipantManagerEvent.ENROLLMENT_TARGET_UPDATED;
-import static com.google.cloud.healthcare.fdamystudies.common.ParticipantManagerEvent.INVITATION_EMAIL_FAILED;
-import static com.google.cloud.healthcare.fdamystudies.common.ParticipantManagerEvent.INVITATION_EMAIL_SENT;
 import static com.google.cloud.healthcare.fdamystudies.common.ParticipantManagerEvent.PARTICIPANTS_EMAIL_LIST_IMPORTED;
 import static com.google.cloud.healthcare.fdamystudies.common.ParticipantManagerEvent.PARTICIPANTS_EMAIL_LIST_IMPORT_FAILED;
 import static com.google.cloud.healthcare.fdamystudies.common.ParticipantManagerEvent.PARTICIPANTS_EMAIL_LIST_IMPORT_PARTIAL_FAILED;
@@ -33,8 +31,7 @@ import static com.google.cloud.healthcare.fdamystudies.common.ParticipantManager
 
 import com.google.cloud.healthcare.fdamystudies.beans.AuditLogEventRequest;
 import com.google.cloud.healthcare.fdamystudies.beans.ConsentHistory;
-import com.google.cloud.healthcare.fdamystudies.beans.EmailRequest;
-import com.google.cloud.healthcare.fdamystudies.beans.EmailResponse;
+import com.google.cloud.healthcare.fdamystudies.beans.ImportParticipantJobResponse;
 import com.google.cloud.healthcare.fdamystudies.beans.ImportParticipantResponse;
 import com.google.cloud.healthcare.fdamystudies.beans.InviteParticipantRequest;
 import com.google.cloud.healthcare.fdamystudies.beans.InviteParticipantResponse;
@@ -56,6 +53,7 @@ import com.google.cloud.healthcare.fdamystudies.beans.UpdateTargetEnrollmentRequ
 import com.google.cloud.healthcare.fdamystudies.beans.UpdateTargetEnrollmentResponse;
 import com.google.cloud.healthcare.fdamystudies.common.EnrollmentStatus;
 import com.google.cloud.healthcare.fdamystudies.common.ErrorCode;
+import com.google.cloud.healthcare.fdamystudies.common.ImportJobStatus;
 import com.google.cloud.healthcare.fdamystudies.common.MessageCode;
 import com.google.cloud.healthcare.fdamystudies.common.OnboardingStatus;
 import com.google.cloud.healthcare.fdamystudies.common.ParticipantManagerAuditLogHelper;
@@ -75,6 +73,7 @@ import com.google.cloud.healthcare.fdamystudies.model.EnrolledInvitedCount;
 import com.google.cloud.healthcare.fdamystudies.model.InviteParticipantEntity;
 import com.google.cloud.healthcare.fdamystudies.model.LocationEntity;
 import com.google.cloud.healthcare.fdamystudies.model.ParticipantEnrollmentHistory;
+import com.google.cloud.healthcare.fdamystudies.model.ParticipantImportJobEntity;
 import com.google.cloud.healthcare.fdamystudies.model.ParticipantRegistrySiteCount;
 import com.google.cloud.healthcare.fdamystudies.model.ParticipantRegistrySiteEntity;
 import com.google.cloud.healthcare.fdamystudies.model.ParticipantStudyEntity;
@@ -89,6 +88,7 @@ import com.google.cloud.healthcare.fdamystudies.repository.AppPermissionReposito
 import com.google.cloud.healthcare.fdamystudies.repository.InviteParticipantsEmailRepository;
 import com.google.cloud.healthcare.fdamystudies.repository.LocationRepository;
 import com.google.cloud.healthcare.fdamystudies.repository.ParticipantEnrollmentHistoryRepository;
+import com.google.cloud.healthcare.fdamystudies.repository.ParticipantImportJobRepository;
 import com.google.cloud.healthcare.fdamystudies.repository.ParticipantRegistrySiteRepository;
 import com.google.cloud.healthcare.fdamystudies.repository.ParticipantStudyRepository;
 import com.google.cloud.healthcare.fdamystudies.repository.SitePermissionRepository;
@@ -98,8 +98,11 @@ import com.google.cloud.healthcare.fdamystudies.repository.StudyPermissionReposi
 import com.google.cloud.healthcare.fdamystudies.repository.StudyRepository;
 import com.google.cloud.healthcare.fdamystudies.repository.UserRegAdminRepository;
 import com.google.cloud.healthcare.fdamystudies.util.ParticipantManagerUtil;
+import com.google.cloud.healthcare.fdamystudies.util.XlsxColumnReader;
 import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
@@ -115,13 +118,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.poi.EncryptedDocumentException;
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
@@ -129,12 +133,16 @@ import org.apache.poi.ss.usermodel.WorkbookFactory;
 import org.slf4j.ext.XLogger;
 import org.slf4j.ext.XLoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
+import org.xml.sax.SAXException;
 
 @Service
 public class SiteServiceImpl implements SiteService {
@@ -143,6 +151,8 @@ public class SiteServiceImpl implements SiteService {
 
   private static final int EMAIL_ADDRESS_COLUMN = 0;
 
+  private static final String EMAIL_ADDRESS_HEADER = "Email Address";
+
   private XLogger logger = XLoggerFactory.getXLogger(SiteServiceImpl.class.getName());
 
   @Autowired private SiteRepository siteRepository;
@@ -167,16 +177,24 @@ public class SiteServiceImpl implements SiteService {
 
   @Autowired private AppPropertyConfig appPropertyConfig;
 
-  @Autowired private EmailService emailService;
-
   @Autowired private ParticipantManagerAuditLogHelper participantManagerHelper;
 
   @Autowired private InviteParticipantsEmailRepository invitedParticipantsEmailRepository;
 
+  @Autowired private InviteParticipantEmailService inviteParticipantEmailService;
+
   @Autowired private ParticipantEnrollmentHistoryRepository participantEnrollmentHistoryRepository;
 
   @Autowired private ParticipantManagerUtil participantManagerUtil;
 
+  @Autowired private ParticipantImportService participantImportService;
+
+  @Autowired private ParticipantImportJobRepository participantImportJobRepository;
+
+  @Autowired
+  @Qualifier("participantImportExecutor")
+  private TaskExecutor participantImportExecutor;
+
   @Override
   @Transactional
   public SiteResponse addSite(SiteRequest siteRequest, AuditLogEventRequest auditRequest) {
@@ -905,41 +923,10 @@ public class SiteServiceImpl implements SiteService {
       throw new ErrorCodeException(ErrorCode.INVALID_FILE_UPLOAD);
     }
 
-    // Validate site type, status and access permission
-    Optional<SiteEntity> optSite = siteRepository.findById(siteId);
-
-    if (!optSite.isPresent() || !optSite.get().getStatus().equals(ACTIVE_STATUS)) {
-      throw new ErrorCodeException(ErrorCode.SITE_NOT_EXIST_OR_INACTIVE);
-    }
-
-    SiteEntity siteEntity = optSite.get();
-    auditRequest.setSiteId(siteEntity.getLocation().getCustomId());
-    auditRequest.setUserId(userId);
-    auditRequest.setStudyId(siteEntity.getStudy().getCustomId());
-    auditRequest.setAppId(siteEntity.getStudy().getApp().getAppId());
-    auditRequest.setStudyVersion(String.valueOf(siteEntity.getStudy().getVersion()));
-
+    SiteEntity siteEntity = validateSiteForImport(userId, siteId, auditRequest);
     Map<String, String> map =
         Collections.singletonMap("site_id", siteEntity.getLocation().getCustomId());
 
-    if (siteEntity.getStudy() != null && OPEN_STUDY.equals(siteEntity.getStudy().getType())) {
-      participantManagerHelper.logEvent(PARTICIPANTS_EMAIL_LIST_IMPORT_FAILED, auditRequest, map);
-      throw new ErrorCodeException(ErrorCode.OPEN_STUDY);
-    }
-
-    Optional<UserRegAdminEntity> optUserRegAdminEntity = validateUserId(userId);
-
-    if (!optUserRegAdminEntity.get().isSuperAdmin()) {
-      Optional<SitePermissionEntity> optSitePermission =
-          sitePermissionRepository.findSitePermissionByUserIdAndSiteId(userId, siteId);
-
-      if (!optSitePermission.isPresent()
-          || !optSitePermission.get().getCanEdit().value().equals(Permission.EDIT.value())) {
-        participantManagerHelper.logEvent(PARTICIPANTS_EMAIL_LIST_IMPORT_FAILED, auditRequest, map);
-        throw new ErrorCodeException(ErrorCode.MANAGE_SITE_PERMISSION_ACCESS_DENIED);
-      }
-    }
-
     // iterate and save valid email id's
     try (Workbook workbook =
         WorkbookFactory.create(new BufferedInputStream(multipartFile.getInputStream()))) {
@@ -947,7 +934,7 @@ public class SiteServiceImpl implements SiteService {
       Sheet sheet = workbook.getSheetAt(0);
       Row row = sheet.getRow(0);
       String columnName = row.getCell(EMAIL_ADDRESS_COLUMN).getStringCellValue();
-      if (!"Email Address".equalsIgnoreCase(columnName)) {
+      if (!EMAIL_ADDRESS_HEADER.equalsIgnoreCase(columnName)) {
         participantManagerHelper.logEvent(PARTICIPANTS_EMAIL_LIST_IMPORT_FAILED, auditRequest, map);
         throw new ErrorCodeException(ErrorCode.DOCUMENT_NOT_IN_PRESCRIBED_FORMAT);
       }
@@ -966,7 +953,7 @@ public class SiteServiceImpl implements SiteService {
         }
 
         String email = r.getCell(EMAIL_ADDRESS_COLUMN).getStringCellValue();
-        if (StringUtils.isBlank(email) || !Pattern.matches(EMAIL_REGEX, email)) {
+        if (StringUtils.isBlank(email) || !EMAIL_PATTERN.matcher(email).matches()) {
           invalidEmails.add(email);
           continue;
         }
@@ -974,7 +961,7 @@ public class SiteServiceImpl implements SiteService {
       }
 
       ImportParticipantResponse importParticipantResponse =
-          saveImportParticipant(validEmails, userId, siteEntity);
+          participantImportService.saveParticipants(validEmails, userId, siteEntity);
       importParticipantResponse.getInvalidEmails().addAll(invalidEmails);
 
       ParticipantManagerEvent participantManagerEvent =
@@ -991,67 +978,160 @@ public class SiteServiceImpl implements SiteService {
     }
   }
 
-  private ImportParticipantResponse saveImportParticipant(
-      Set<String> emails, String userId, SiteEntity siteEntity) {
+  @Override
+  public ImportParticipantJobResponse startImportParticipantJob(
+      String userId,
+      String siteId,
+      MultipartFile multipartFile,
+      AuditLogEventRequest auditRequest) {
+    logger.entry("begin startImportParticipantJob()");
 
-    List<ParticipantRegistrySiteEntity> participantRegistrySiteEntities =
-        (List<ParticipantRegistrySiteEntity>)
-            CollectionUtils.emptyIfNull(
-                participantRegistrySiteRepository.findByStudyIdAndEmails(
-                    siteEntity.getStudy().getId(), emails));
+    if (!StringUtils.endsWith(multipartFile.getOriginalFilename(), ".xlsx")) {
+      throw new ErrorCodeException(ErrorCode.INVALID_IMPORT_JOB_FILE_UPLOAD);
+    }
 
-    List<String> participantRegistryEmails =
-        (List<String>)
-            CollectionUtils.emptyIfNull(
-                participantRegistrySiteEntities
-                    .stream()
-                    .filter(
-                        participant ->
-                            !participant
-                                    .getOnboardingStatus()
-                                    .equals(OnboardingStatus.DISABLED.getCode())
-                                || participant.getSite().equals(siteEntity))
-                    .map(ParticipantRegistrySiteEntity::getEmail)
-                    .distinct()
-                    .collect(Collectors.toList()));
-
-    List<String> newEmails =
-        (List<String>)
-            CollectionUtils.removeAll(new ArrayList<String>(emails), participantRegistryEmails);
-
-    List<ParticipantDetail> savedParticipants = new ArrayList<>();
-    for (String email : newEmails) {
-      ParticipantDetail participantDetail = new ParticipantDetail();
-      participantDetail.setEmail(email);
-      ParticipantRegistrySiteEntity participantRegistrySite =
-          ParticipantMapper.fromParticipantDetail(participantDetail, siteEntity);
-      participantRegistrySite.setCreatedBy(userId);
-      participantRegistrySite.setEnrollmentTokenExpiry(
-          new Timestamp(
-              Instant.now()
-                  .plus(appPropertyConfig.getEnrollmentTokenExpiryInHours(), ChronoUnit.HOURS)
-                  .toEpochMilli()));
-      participantRegistrySite =
-          participantRegistrySiteRepository.saveAndFlush(participantRegistrySite);
+    SiteEntity siteEntity = validateSiteForImport(userId, siteId, auditRequest);
+    Map<String, String> map =
+        Collections.singletonMap("site_id", siteEntity.getLocation().getCustomId());
 
-      ParticipantStudyEntity participantStudyEntity =
-          ParticipantMapper.toParticipantStudyEntity(
-              participantRegistrySite, EnrollmentStatus.YET_TO_ENROLL);
-      participantStudyEntity.setParticipantId(null);
-      participantStudyEntity.setUserDetails(null);
-      participantStudyEntity.setEnrolledDate(null);
-      participantStudyRepository.saveAndFlush(participantStudyEntity);
+    // the upload is spooled to a local file, which the job then reads row by row
+    Path workbook = null;
+    try {
+      workbook = Files.createTempFile("participant-import-", ".xlsx");
+      multipartFile.transferTo(workbook.toFile());
+      if (!hasEmailAddressHeader(workbook)) {
+        participantManagerHelper.logEvent(PARTICIPANTS_EMAIL_LIST_IMPORT_FAILED, auditRequest, map);
+        throw new ErrorCodeException(ErrorCode.DOCUMENT_NOT_IN_PRESCRIBED_FORMAT);
+      }
+    } catch (IOException | OpenXML4JException | SAXException | RuntimeException e) {
+      deleteSpooledWorkbook(workbook);
+      if (e instanceof ErrorCodeException) {
+        throw (ErrorCodeException) e;
+      }
+      logger.error("failed to read the uploaded participant email list", e);
+      participantManagerHelper.logEvent(PARTICIPANTS_EMAIL_LIST_IMPORT_FAILED, auditRequest, map);
+      throw new ErrorCodeException(ErrorCode.FAILED_TO_IMPORT_PARTICIPANTS);
+    }
 
-      participantDetail.setId(participantRegistrySite.getId());
-      savedParticipants.add(participantDetail);
+    ParticipantImportJobEntity importJob = new ParticipantImportJobEntity();
+    importJob.setSiteId(siteId);
+    importJob.setFileName(multipartFile.getOriginalFilename());
+    importJob.setStatus(ImportJobStatus.IN_PROGRESS.name());
+    importJob.setCreatedBy(userId);
+    importJob = participantImportJobRepository.saveAndFlush(importJob);
+
+    String importJobId = importJob.getId();
+    Path spooledWorkbook = workbook;
+    try {
+      participantImportExecutor.execute(
+          () ->
+              participantImportService.runImportJob(
+                  importJobId, spooledWorkbook, userId, siteId, auditRequest));
+    } catch (TaskRejectedException e) {
+      logger.error(String.format("import job %s rejected, too many imports running", importJobId));
+      deleteSpooledWorkbook(spooledWorkbook);
+      importJob.setStatus(ImportJobStatus.FAILED.name());
+      importJob.setErrorCode(ErrorCode.FAILED_TO_IMPORT_PARTICIPANTS.getCode());
+      participantImportJobRepository.saveAndFlush(importJob);
+      participantManagerHelper.logEvent(PARTICIPANTS_EMAIL_LIST_IMPORT_FAILED, auditRequest, map);
+      throw new ErrorCodeException(ErrorCode.FAILED_TO_IMPORT_PARTICIPANTS);
     }
 
-    logger.exit(
-        String.format(
-            "%d duplicates email found and %d new emails saved",
-            participantRegistryEmails.size(), newEmails.size()));
-    return new ImportParticipantResponse(
-        MessageCode.IMPORT_PARTICIPANT_SUCCESS, savedParticipants, participantRegistryEmails);
+    logger.exit(String.format("import job %s started for site %s", importJobId, siteId));
+    return ParticipantMapper.toImportParticipantJobResponse(
+        importJob, MessageCode.IMPORT_PARTICIPANT_JOB_STARTED);
+  }
+
+  @Override
+  public ImportParticipantJobResponse getImportParticipantJob(
+      String userId, String siteId, String importJobId) {
+    logger.entry("begin getImportParticipantJob()");
+
+    Optional<UserRegAdminEntity> optUserRegAdminEntity = validateUserId(userId);
+    if (!optUserRegAdminEntity.get().isSuperAdmin()
+        && !sitePermissionRepository
+            .findSitePermissionByUserIdAndSiteId(userId, siteId)
+            .isPresent()) {
+      throw new ErrorCodeException(ErrorCode.SITE_PERMISSION_ACCESS_DENIED);
+    }
+
+    ParticipantImportJobEntity importJob =
+        participantImportJobRepository
+            .findByIdAndSiteId(importJobId, siteId)
+            .orElseThrow(() -> new ErrorCodeException(ErrorCode.IMPORT_JOB_NOT_FOUND));
+
+    logger.exit(String.format("import job %s is %s", importJobId, importJob.getStatus()));
+    return ParticipantMapper.toImportParticipantJobResponse(
+        importJob, MessageCode.GET_IMPORT_PARTICIPANT_JOB_SUCCESS);
+  }
+
+  /**
+   * Checks that the site is active and belongs to a closed study the user can edit, and fills in
+   * the audit request for the import.
+   */
+  private SiteEntity validateSiteForImport(
+      String userId, String siteId, AuditLogEventRequest auditRequest) {
+    // Validate site type, status and access permission
+    Optional<SiteEntity> optSite = siteRepository.findById(siteId);
+
+    if (!optSite.isPresent() || !optSite.get().getStatus().equals(ACTIVE_STATUS)) {
+      throw new ErrorCodeException(ErrorCode.SITE_NOT_EXIST_OR_INACTIVE);
+    }
+
+    SiteEntity siteEntity = optSite.get();
+    auditRequest.setSiteId(siteEntity.getLocation().getCustomId());
+    auditRequest.setUserId(userId);
+    auditRequest.setStudyId(siteEntity.getStudy().getCustomId());
+    auditRequest.setAppId(siteEntity.getStudy().getApp().getAppId());
+    auditRequest.setStudyVersion(String.valueOf(siteEntity.getStudy().getVersion()));
+
+    Map<String, String> map =
+        Collections.singletonMap("site_id", siteEntity.getLocation().getCustomId());
+
+    if (siteEntity.getStudy() != null && OPEN_STUDY.equals(siteEntity.getStudy().getType())) {
+      participantManagerHelper.logEvent(PARTICIPANTS_EMAIL_LIST_IMPORT_FAILED, auditRequest, map);
+      throw new ErrorCodeException(ErrorCode.OPEN_STUDY);
+    }
+
+    Optional<UserRegAdminEntity> optUserRegAdminEntity = validateUserId(userId);
+
+    if (!optUserRegAdminEntity.get().isSuperAdmin()) {
+      Optional<SitePermissionEntity> optSitePermission =
+          sitePermissionRepository.findSitePermissionByUserIdAndSiteId(userId, siteId);
+
+      if (!optSitePermission.isPresent()
+          || !optSitePermission.get().getCanEdit().value().equals(Permission.EDIT.value())) {
+        participantManagerHelper.logEvent(PARTICIPANTS_EMAIL_LIST_IMPORT_FAILED, auditRequest, map);
+        throw new ErrorCodeException(ErrorCode.MANAGE_SITE_PERMISSION_ACCESS_DENIED);
+      }
+    }
+    return siteEntity;
+  }
+
+  private boolean hasEmailAddressHeader(Path workbook)
+      throws IOException, OpenXML4JException, SAXException {
+    AtomicReference<String> columnName = new AtomicReference<>();
+    XlsxColumnReader.read(
+        workbook,
+        EMAIL_ADDRESS_COLUMN,
+        (rowNum, value) -> {
+          if (rowNum == 0) {
+            columnName.set(value);
+          }
+          return false;
+        });
+    return EMAIL_ADDRESS_HEADER.equalsIgnoreCase(columnName.get());
+  }
+
+  private void deleteSpooledWorkbook(Path workbook) {
+    if (workbook == null) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(workbook);
+    } catch (IOException e) {
+      logger.warn(String.format("failed to delete spooled workbook %s", workbook), e);
+    }
   }
 
   @Override
@@ -1435,109 +1515,7 @@ public class SiteServiceImpl implements SiteService {
   }
 
   @Override
-  @Transactional
   public void sendInvitationEmail() {
-
-    List<InviteParticipantEntity> listOfInvitedParticipants =
-        invitedParticipantsEmailRepository.findAllWithStatusZero();
-
-    Set<String> uniqueRecords = new HashSet<>();
-    for (InviteParticipantEntity invitedParticipantsEmailEntity : listOfInvitedParticipants) {
-
-      if (isDuplicateEntity(invitedParticipantsEmailEntity, uniqueRecords)) {
-        continue;
-      }
-
-      int updatedRows =
-          invitedParticipantsEmailRepository.updateStatus(
-              invitedParticipantsEmailEntity.getStudy(),
-              invitedParticipantsEmailEntity.getParticipantRegistrySite(),
-              invitedParticipantsEmailEntity.getAppId(),
-              1);
-
-      if (updatedRows == 0) {
-        // this record may be taken by another service instance
-        continue;
-      }
-
-      Optional<ParticipantRegistrySiteEntity> optParticipantRegistrySiteEntity =
-          participantRegistrySiteRepository.findById(
-              invitedParticipantsEmailEntity.getParticipantRegistrySite());
-
-      Optional<StudyEntity> optStudy =
-          studyRepository.findByStudyId(invitedParticipantsEmailEntity.getStudy());
-
-      if (!optParticipantRegistrySiteEntity.isPresent() || !optStudy.isPresent()) {
-        logger.warn(
-            "Participant registry or study not found for invited participants so deleting this record from invite participant table");
-        invitedParticipantsEmailRepository.deleteByParticipantRegistryIdAndStudyIdAndAppId(
-            invitedParticipantsEmailEntity.getStudy(),
-            invitedParticipantsEmailEntity.getParticipantRegistrySite(),
-            invitedParticipantsEmailEntity.getAppId());
-        continue;
-      }
-
-      ParticipantRegistrySiteEntity participantRegistrySiteEntity =
-          optParticipantRegistrySiteEntity.get();
-
-      Map<String, String> templateArgs = new HashMap<>();
-      templateArgs.put("study name", optStudy.get().getName());
-      templateArgs.put("App Name", optStudy.get().getApp().getAppName());
-      templateArgs.put("enrolment token", participantRegistrySiteEntity.getEnrollmentToken());
-      templateArgs.put("contact email address", optStudy.get().getContactEmail());
-      EmailRequest emailRequest =
-          new EmailRequest(
-              appPropertyConfig.getFromEmail(),
-              new String[] {participantRegistrySiteEntity.getEmail()},
-              null,
-              null,
-              appPropertyConfig.getParticipantInviteSubject(),
-              appPropertyConfig.getParticipantInviteBody(),
-              templateArgs);
-      EmailResponse emailResponse = emailService.sendMimeMail(emailRequest);
-
-      SiteEntity site = participantRegistrySiteEntity.getSite();
-      Map<String, String> map =
-          Collections.singletonMap("site_id", site.getLocation().getCustomId());
-      AuditLogEventRequest auditRequest =
-          SiteMapper.prepareAuditlogRequest(invitedParticipantsEmailEntity);
-      auditRequest.setSiteId(site.getLocation().getCustomId());
-      auditRequest.setStudyId(site.getStudy().getCustomId());
-      auditRequest.setAppId(site.getStudy().getApp().getAppId());
-      auditRequest.setParticipantId(participantRegistrySiteEntity.getId());
-      auditRequest.setStudyVersion(String.valueOf(site.getStudy().getVersion()));
-
-      if (MessageCode.EMAIL_ACCEPTED_BY_MAIL_SERVER
-          .getMessage()
-          .equals(emailResponse.getMessage())) {
-        invitedParticipantsEmailRepository.deleteByParticipantRegistryIdAndStudyIdAndAppId(
-            invitedParticipantsEmailEntity.getStudy(),
-            invitedParticipantsEmailEntity.getParticipantRegistrySite(),
-            invitedParticipantsEmailEntity.getAppId());
-
-        participantManagerHelper.logEvent(INVITATION_EMAIL_SENT, auditRequest, map);
-
-      } else {
-        invitedParticipantsEmailRepository.updateStatus(
-            invitedParticipantsEmailEntity.getStudy(),
-            invitedParticipantsEmailEntity.getParticipantRegistrySite(),
-            invitedParticipantsEmailEntity.getAppId(),
-            0);
-
-        participantManagerHelper.logEvent(INVITATION_EMAIL_FAILED, auditRequest, map);
-      }
-    }
-  }
-
-  public boolean isDuplicateEntity(
-      InviteParticipantEntity invitedParticipants, Set<String> uniqueRecords) {
-    String key =
-        invitedParticipants.getStudy()
-            + "_"
-            + invitedParticipants.getParticipantRegistrySite()
-            + "_"
-            + invitedParticipants.getAppId();
-
-    return !uniqueRecords.add(key);
+    inviteParticipantEmailService.sendInvitationEmails();
   }
 }
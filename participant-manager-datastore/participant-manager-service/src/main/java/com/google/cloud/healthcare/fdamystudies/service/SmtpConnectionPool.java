@@ -0,0 +1,106 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.service;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import javax.mail.MessagingException;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+/**
+ * Sends messages over SMTP connections that are kept open between messages. {@link
+ * JavaMailSender#send(MimeMessage)} opens, authenticates and closes a connection for every message;
+ * here a sender borrows an idle connection, and returns it once the message is accepted. Up to
+ * maxIdleConnections are kept open; a connection that fails or was dropped by the server is closed
+ * and replaced.
+ *
+ * <p>When the mail sender is not a {@link JavaMailSenderImpl}, messages are handed to it as is.
+ */
+public class SmtpConnectionPool {
+
+  private XLogger logger = XLoggerFactory.getXLogger(SmtpConnectionPool.class.getName());
+
+  private final JavaMailSender emailSender;
+
+  private final BlockingQueue<Transport> idleConnections;
+
+  private volatile boolean closed;
+
+  public SmtpConnectionPool(JavaMailSender emailSender, int maxIdleConnections) {
+    this.emailSender = emailSender;
+    this.idleConnections = new LinkedBlockingQueue<>(maxIdleConnections);
+  }
+
+  public void send(MimeMessage message) throws MessagingException {
+    if (!(emailSender instanceof JavaMailSenderImpl)) {
+      emailSender.send(message);
+      return;
+    }
+
+    Transport transport = borrow((JavaMailSenderImpl) emailSender);
+    boolean reusable = false;
+    try {
+      message.saveChanges();
+      transport.sendMessage(message, message.getAllRecipients());
+      reusable = true;
+    } finally {
+      giveBack(transport, reusable);
+    }
+  }
+
+  public void close() {
+    closed = true;
+    Transport transport;
+    while ((transport = idleConnections.poll()) != null) {
+      closeQuietly(transport);
+    }
+  }
+
+  private Transport borrow(JavaMailSenderImpl mailSender) throws MessagingException {
+    Transport transport;
+    while ((transport = idleConnections.poll()) != null) {
+      // isConnected() sends a NOOP, which finds connections the server has timed out
+      if (transport.isConnected()) {
+        return transport;
+      }
+      closeQuietly(transport);
+    }
+    return connect(mailSender);
+  }
+
+  private void giveBack(Transport transport, boolean reusable) {
+    if (!reusable || closed || !idleConnections.offer(transport)) {
+      closeQuietly(transport);
+    }
+  }
+
+  private Transport connect(JavaMailSenderImpl mailSender) throws MessagingException {
+    String protocol = StringUtils.defaultIfEmpty(mailSender.getProtocol(), "smtp");
+    Transport transport = mailSender.getSession().getTransport(protocol);
+    String username = StringUtils.defaultIfEmpty(mailSender.getUsername(), null);
+    String password = username == null ? null : mailSender.getPassword();
+    transport.connect(mailSender.getHost(), mailSender.getPort(), username, password);
+    logger.debug(String.format("opened %s connection to %s", protocol, mailSender.getHost()));
+    return transport;
+  }
+
+  private void closeQuietly(Transport transport) {
+    try {
+      transport.close();
+    } catch (MessagingException e) {
+      logger.warn("failed to close SMTP connection", e);
+    }
+  }
+}
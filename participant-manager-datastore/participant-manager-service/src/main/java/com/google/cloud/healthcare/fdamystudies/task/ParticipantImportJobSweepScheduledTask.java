@@ -0,0 +1,34 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.task;
+
+import com.google.cloud.healthcare.fdamystudies.service.ParticipantImportService;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ParticipantImportJobSweepScheduledTask {
+
+  private XLogger logger =
+      XLoggerFactory.getXLogger(ParticipantImportJobSweepScheduledTask.class.getName());
+
+  @Autowired private ParticipantImportService participantImportService;
+
+  @Scheduled(
+      fixedDelayString = "${participant.import.stale.job.sweep.delay.ms}",
+      initialDelayString = "${participant.import.stale.job.sweep.delay.ms}")
+  public void failStaleImportJobs() {
+    logger.entry("begin failStaleImportJobs()");
+    int failedJobs = participantImportService.failStaleImportJobs();
+    logger.exit(String.format("failStaleImportJobs() completed, %d jobs failed", failedJobs));
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import javax.xml.parsers.ParserConfigurationException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.SAXHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+/**
+ * Reads one column of the first sheet of a .xlsx workbook with the POI event API. Sheet rows are
+ * parsed as a SAX stream and handed over one at a time, so memory does not grow with the number of
+ * rows; only the shared strings table of the workbook is held in memory.
+ */
+public final class XlsxColumnReader {
+
+  private XlsxColumnReader() {}
+
+  @FunctionalInterface
+  public interface CellHandler {
+
+    /**
+     * Receives the formatted value of the column for a row that has a cell in it. Returns false to
+     * stop reading.
+     */
+    boolean accept(int rowNum, String value);
+  }
+
+  public static void read(Path workbook, int column, CellHandler handler)
+      throws IOException, OpenXML4JException, SAXException {
+    try (OPCPackage pkg = OPCPackage.open(workbook.toFile(), PackageAccess.READ)) {
+      XSSFReader xssfReader = new XSSFReader(pkg);
+      XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) xssfReader.getSheetsData();
+      if (!sheets.hasNext()) {
+        return;
+      }
+
+      XMLReader parser = SAXHelper.newXMLReader();
+      parser.setContentHandler(
+          new XSSFSheetXMLHandler(
+              xssfReader.getStylesTable(),
+              new ReadOnlySharedStringsTable(pkg),
+              new ColumnHandler(column, handler),
+              new DataFormatter(),
+              false));
+      try (InputStream sheet = sheets.next()) {
+        parser.parse(new InputSource(sheet));
+      } catch (StopReadingException e) {
+        // the handler has seen enough rows
+      }
+    } catch (ParserConfigurationException e) {
+      throw new SAXException(e);
+    }
+  }
+
+  private static class ColumnHandler implements SheetContentsHandler {
+
+    private final int column;
+
+    private final CellHandler handler;
+
+    private int rowNum;
+
+    private int nextColumn;
+
+    private ColumnHandler(int column, CellHandler handler) {
+      this.column = column;
+      this.handler = handler;
+    }
+
+    @Override
+    public void startRow(int rowNum) {
+      this.rowNum = rowNum;
+      this.nextColumn = 0;
+    }
+
+    @Override
+    public void endRow(int rowNum) {}
+
+    @Override
+    public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+      // the cell reference is optional in the file format, cells are then in column order
+      int cellColumn =
+          cellReference == null ? nextColumn : new CellReference(cellReference).getCol();
+      nextColumn = cellColumn + 1;
+      if (cellColumn == column && !handler.accept(rowNum, formattedValue)) {
+        throw new StopReadingException();
+      }
+    }
+
+    @Override
+    public void headerFooter(String text, boolean isHeader, String tagName) {}
+  }
+
+  private static class StopReadingException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private StopReadingException() {
+      super(null, null, false, false);
+    }
+  }
+}
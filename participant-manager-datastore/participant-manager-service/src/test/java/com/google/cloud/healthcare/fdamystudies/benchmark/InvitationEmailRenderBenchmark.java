@@ -0,0 +1,121 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.benchmark;
+
+import com.google.cloud.healthcare.fdamystudies.common.PlaceholderReplacer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.util.PropertyPlaceholderHelper;
+
+/**
+ * Renders the subject and body of 100,000 participant invitation emails with the two
+ * PropertyPlaceholderHelper passes previously run by PlaceholderReplacer, and with the compiled
+ * templates it now uses.
+ *
+ * <p>Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.google.cloud.healthcare.fdamystudies.benchmark.InvitationEmailRenderBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InvitationEmailRenderBenchmark {
+
+  private static final int INVITATIONS = 100_000;
+
+  private String subject;
+
+  private String body;
+
+  private List<Map<String, String>> templateArgs;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    Properties properties = new Properties();
+    try (InputStream in = getClass().getResourceAsStream("/application.properties")) {
+      properties.load(in);
+    }
+    subject = properties.getProperty("participant.invite.subject");
+    body = properties.getProperty("participant.invite.body");
+
+    templateArgs = new ArrayList<>(INVITATIONS);
+    for (int i = 0; i < INVITATIONS; i++) {
+      Map<String, String> args = new HashMap<>();
+      args.put("study name", "Study of Health " + (i % 20));
+      args.put("App Name", "MyStudies");
+      args.put("enrolment token", RandomStringUtils.randomAlphanumeric(8));
+      args.put("contact email address", "support@grr.la");
+      // resolved from the environment when the service loads its configuration
+      args.put("enrollmentTokenExpiryInHours", "48");
+      templateArgs.add(args);
+    }
+
+    for (Map<String, String> args : templateArgs.subList(0, 100)) {
+      if (!replaceWithPlaceholderHelper(body, args)
+          .equals(PlaceholderReplacer.replaceNamedPlaceholders(body, args))) {
+        throw new IllegalStateException("compiled template output differs");
+      }
+    }
+  }
+
+  @Benchmark
+  public void placeholderHelper(Blackhole blackhole) {
+    for (Map<String, String> args : templateArgs) {
+      blackhole.consume(replaceWithPlaceholderHelper(subject, args));
+      blackhole.consume(replaceWithPlaceholderHelper(body, args));
+    }
+  }
+
+  @Benchmark
+  public void compiledTemplate(Blackhole blackhole) {
+    for (Map<String, String> args : templateArgs) {
+      blackhole.consume(PlaceholderReplacer.replaceNamedPlaceholders(subject, args));
+      blackhole.consume(PlaceholderReplacer.replaceNamedPlaceholders(body, args));
+    }
+  }
+
+  private static String replaceWithPlaceholderHelper(String text, Map<String, String> values) {
+    PropertyPlaceholderHelper helper = new PropertyPlaceholderHelper("${", "}");
+    String replaced = helper.replacePlaceholders(text, values::get);
+    helper = new PropertyPlaceholderHelper("{{", "}}");
+    return helper.replacePlaceholders(replaced, values::get);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(
+            new OptionsBuilder()
+                .include(InvitationEmailRenderBenchmark.class.getSimpleName())
+                .build())
+        .run();
+  }
+}
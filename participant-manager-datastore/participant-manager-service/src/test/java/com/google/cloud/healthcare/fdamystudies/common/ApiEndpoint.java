@@ -67,6 +67,12 @@ public enum ApiEndpoint {
   IMPORT_PARTICIPANT(
       "http://localhost:8003/participant-manager-datastore/sites/{siteId}/participants/import"),
 
+  START_IMPORT_PARTICIPANT_JOB(
+      "http://localhost:8003/participant-manager-datastore/sites/{siteId}/participants/import-jobs"),
+
+  GET_IMPORT_PARTICIPANT_JOB(
+      "http://localhost:8003/participant-manager-datastore/sites/{siteId}/participants/import-jobs/{jobId}"),
+
   UPDATE_ONBOARDING_STATUS(
       "http://localhost:8003/participant-manager-datastore/sites/{siteId}/participants/status"),
 
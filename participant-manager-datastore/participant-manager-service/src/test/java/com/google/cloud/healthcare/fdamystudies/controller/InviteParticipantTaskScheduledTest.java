@@ -8,10 +8,18 @@
 
 package com.google.cloud.healthcare.fdamystudies.controller;
 
+import static com.google.cloud.healthcare.fdamystudies.common.ParticipantManagerEvent.INVITATION_EMAIL_FAILED;
 import static com.google.cloud.healthcare.fdamystudies.common.ParticipantManagerEvent.INVITATION_EMAIL_SENT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import com.google.cloud.healthcare.fdamystudies.beans.AuditLogEventRequest;
@@ -30,14 +38,20 @@ import com.google.cloud.healthcare.fdamystudies.model.UserRegAdminEntity;
 import com.google.cloud.healthcare.fdamystudies.repository.InviteParticipantsEmailRepository;
 import com.google.cloud.healthcare.fdamystudies.repository.ParticipantRegistrySiteRepository;
 import com.google.cloud.healthcare.fdamystudies.service.SiteService;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Map;
+import javax.mail.MessagingException;
 import javax.mail.internet.MimeMessage;
 import org.apache.commons.collections4.map.HashedMap;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatcher;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mail.MailSendException;
 
 public class InviteParticipantTaskScheduledTest extends BaseMockIT {
 
@@ -116,6 +130,121 @@ public class InviteParticipantTaskScheduledTest extends BaseMockIT {
     verifyAuditEventCall(auditEventMap, INVITATION_EMAIL_SENT);
   }
 
+  @Test
+  public void shouldSendOneEmailForDuplicateInvitations() throws Exception {
+    String email = "duplicate.invitation@grr.la";
+    prepareParticipant(email);
+    saveInvitation(false, null, null);
+    saveInvitation(false, null, null);
+
+    siteService.sendInvitationEmail();
+
+    verify(emailSender, times(1)).send(argThat(sentTo(email)));
+    assertTrue(invitedParticipantsEmailRepository.findAll().isEmpty());
+  }
+
+  @Test
+  public void shouldNotSendEmailLeasedByAnotherDispatcher() throws Exception {
+    String email = "leased.invitation@grr.la";
+    prepareParticipant(email);
+    String leaseOwner = IdGenerator.id();
+    InviteParticipantEntity invitation =
+        saveInvitation(
+            true, leaseOwner, Timestamp.from(Instant.now().plus(10, ChronoUnit.MINUTES)));
+
+    siteService.sendInvitationEmail();
+
+    verify(emailSender, never()).send(argThat(sentTo(email)));
+    InviteParticipantEntity leased =
+        invitedParticipantsEmailRepository.findById(invitation.getId()).get();
+    assertEquals(leaseOwner, leased.getLeaseOwner());
+
+    // the lease expires, as it would when the other dispatcher stops before sending the email
+    leased.setLeaseExpiryTime(Timestamp.from(Instant.now().minus(1, ChronoUnit.MINUTES)));
+    invitedParticipantsEmailRepository.saveAndFlush(leased);
+
+    siteService.sendInvitationEmail();
+
+    verify(emailSender, times(1)).send(argThat(sentTo(email)));
+    assertTrue(invitedParticipantsEmailRepository.findAll().isEmpty());
+  }
+
+  @Test
+  public void shouldSendEmailLeasedWithoutExpiry() throws Exception {
+    String email = "unexpired.invitation@grr.la";
+    prepareParticipant(email);
+    saveInvitation(true, null, null);
+
+    siteService.sendInvitationEmail();
+
+    verify(emailSender, times(1)).send(argThat(sentTo(email)));
+    assertTrue(invitedParticipantsEmailRepository.findAll().isEmpty());
+  }
+
+  @Test
+  public void shouldReleaseFailedEmailForNextRun() throws Exception {
+    String email = "failed.invitation@grr.la";
+    prepareParticipant(email);
+    doThrow(new MailSendException("connection refused"))
+        .when(emailSender)
+        .send(argThat(sentTo(email)));
+    InviteParticipantEntity invitation = saveInvitation(false, null, null);
+
+    siteService.sendInvitationEmail();
+
+    InviteParticipantEntity released =
+        invitedParticipantsEmailRepository.findById(invitation.getId()).get();
+    assertFalse(released.isStatus());
+    assertNull(released.getLeaseOwner());
+    assertNull(released.getLeaseExpiryTime());
+
+    AuditLogEventRequest auditRequest = new AuditLogEventRequest();
+    auditRequest.setSiteId(siteEntity.getLocation().getCustomId());
+    auditRequest.setStudyId(studyEntity.getCustomId());
+    auditRequest.setAppId(appEntity.getAppId());
+    auditRequest.setParticipantId(participantRegistrySiteEntity.getId());
+    auditRequest.setStudyVersion(String.valueOf(studyEntity.getVersion()));
+
+    Map<String, AuditLogEventRequest> auditEventMap = new HashedMap<>();
+    auditEventMap.put(INVITATION_EMAIL_FAILED.getEventCode(), auditRequest);
+
+    verifyAuditEventCall(auditEventMap, INVITATION_EMAIL_FAILED);
+  }
+
+  private void prepareParticipant(String email) {
+    studyEntity.setApp(appEntity);
+    siteEntity.setStudy(studyEntity);
+    siteEntity.setLocation(locationEntity);
+    participantRegistrySiteEntity.setEmail(email);
+    testDataHelper.getSiteRepository().save(siteEntity);
+    testDataHelper.getParticipantRegistrySiteRepository().save(participantRegistrySiteEntity);
+  }
+
+  private InviteParticipantEntity saveInvitation(
+      boolean status, String leaseOwner, Timestamp leaseExpiryTime) {
+    InviteParticipantEntity inviteParticipantsEmail = new InviteParticipantEntity();
+    inviteParticipantsEmail.setParticipantRegistrySite(participantRegistrySiteEntity.getId());
+    inviteParticipantsEmail.setStudy(siteEntity.getStudy().getId());
+    inviteParticipantsEmail.setAppId(appEntity.getAppId());
+    inviteParticipantsEmail.setCorrelationId(IdGenerator.id());
+    inviteParticipantsEmail.setAppVersion("1.0");
+    inviteParticipantsEmail.setMobilePlatform("UNKNOWN");
+    inviteParticipantsEmail.setStatus(status);
+    inviteParticipantsEmail.setLeaseOwner(leaseOwner);
+    inviteParticipantsEmail.setLeaseExpiryTime(leaseExpiryTime);
+    return invitedParticipantsEmailRepository.saveAndFlush(inviteParticipantsEmail);
+  }
+
+  private ArgumentMatcher<MimeMessage> sentTo(String email) {
+    return message -> {
+      try {
+        return email.equals(message.getAllRecipients()[0].toString());
+      } catch (MessagingException e) {
+        return false;
+      }
+    };
+  }
+
   @AfterEach
   public void clean() {
     testDataHelper.cleanUp();
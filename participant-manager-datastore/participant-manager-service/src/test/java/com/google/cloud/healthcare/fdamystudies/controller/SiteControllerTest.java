@@ -43,6 +43,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
@@ -63,6 +64,7 @@ import com.google.cloud.healthcare.fdamystudies.common.CommonConstants;
 import com.google.cloud.healthcare.fdamystudies.common.EnrollmentStatus;
 import com.google.cloud.healthcare.fdamystudies.common.ErrorCode;
 import com.google.cloud.healthcare.fdamystudies.common.IdGenerator;
+import com.google.cloud.healthcare.fdamystudies.common.ImportJobStatus;
 import com.google.cloud.healthcare.fdamystudies.common.JsonUtils;
 import com.google.cloud.healthcare.fdamystudies.common.MessageCode;
 import com.google.cloud.healthcare.fdamystudies.common.OnboardingStatus;
@@ -74,6 +76,7 @@ import com.google.cloud.healthcare.fdamystudies.model.AppEntity;
 import com.google.cloud.healthcare.fdamystudies.model.AppPermissionEntity;
 import com.google.cloud.healthcare.fdamystudies.model.LocationEntity;
 import com.google.cloud.healthcare.fdamystudies.model.ParticipantEnrollmentHistoryEntity;
+import com.google.cloud.healthcare.fdamystudies.model.ParticipantImportJobEntity;
 import com.google.cloud.healthcare.fdamystudies.model.ParticipantRegistrySiteEntity;
 import com.google.cloud.healthcare.fdamystudies.model.ParticipantStudyEntity;
 import com.google.cloud.healthcare.fdamystudies.model.SiteEntity;
@@ -86,6 +89,7 @@ import com.google.cloud.healthcare.fdamystudies.repository.ParticipantRegistrySi
 import com.google.cloud.healthcare.fdamystudies.repository.ParticipantStudyRepository;
 import com.google.cloud.healthcare.fdamystudies.repository.SiteRepository;
 import com.google.cloud.healthcare.fdamystudies.repository.StudyConsentRepository;
+import com.google.cloud.healthcare.fdamystudies.service.ParticipantImportService;
 import com.google.cloud.healthcare.fdamystudies.service.SiteService;
 import com.jayway.jsonpath.JsonPath;
 import java.io.File;
@@ -94,6 +98,7 @@ import java.nio.file.Files;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -108,6 +113,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.ResourceUtils;
 
 public class SiteControllerTest extends BaseMockIT {
@@ -123,6 +130,8 @@ public class SiteControllerTest extends BaseMockIT {
   @Autowired private ParticipantStudyRepository participantStudyRepository;
   @Autowired private ParticipantRegistrySiteRepository participantRegistrySiteRepository;
   @Autowired private StudyConsentRepository studyConsentRepository;
+  @Autowired private ParticipantImportService participantImportService;
+  @Autowired private PlatformTransactionManager transactionManager;
 
   private UserRegAdminEntity userRegAdminEntity;
   private StudyEntity studyEntity;
@@ -2076,6 +2085,150 @@ public class SiteControllerTest extends BaseMockIT {
     verifyTokenIntrospectRequest();
   }
 
+  @Test
+  public void shouldImportNewParticipantAndInvalidEmailInBackground() throws Exception {
+    siteEntity.setLocation(locationEntity);
+    testDataHelper.getSiteRepository().saveAndFlush(siteEntity);
+    HttpHeaders headers = testDataHelper.newCommonHeaders();
+    headers.add(USER_ID_HEADER, userRegAdminEntity.getId());
+
+    // Step 1: Call API to start the import job
+    MockMultipartFile file =
+        getMultipartFile("classpath:Email_Import_Template_Invalid_Emails.xlsx");
+    MvcResult result =
+        mockMvc
+            .perform(
+                multipart(ApiEndpoint.START_IMPORT_PARTICIPANT_JOB.getPath(), siteEntity.getId())
+                    .file(file)
+                    .headers(headers)
+                    .contextPath(getContextPath()))
+            .andDo(print())
+            .andExpect(status().isAccepted())
+            .andExpect(
+                jsonPath("$.message", is(MessageCode.IMPORT_PARTICIPANT_JOB_STARTED.getMessage())))
+            .andExpect(jsonPath("$.jobId", notNullValue()))
+            .andReturn();
+
+    String jobId = JsonPath.read(result.getResponse().getContentAsString(), "$.jobId");
+
+    // Step 2: poll the job until the import has finished
+    awaitImportJob(jobId, headers);
+    mockMvc
+        .perform(
+            get(ApiEndpoint.GET_IMPORT_PARTICIPANT_JOB.getPath(), siteEntity.getId(), jobId)
+                .headers(headers)
+                .contextPath(getContextPath()))
+        .andDo(print())
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.status", is(ImportJobStatus.COMPLETED.name())))
+        .andExpect(jsonPath("$.processedRows", is(2)))
+        .andExpect(jsonPath("$.importedCount", is(1)))
+        .andExpect(jsonPath("$.duplicateCount", is(0)))
+        .andExpect(jsonPath("$.invalidCount", is(1)));
+
+    // Step 3: verify saved values
+    List<ParticipantRegistrySiteEntity> participantRegistrySites =
+        participantRegistrySiteRepository.findByStudyIdAndEmails(
+            studyEntity.getId(), new HashSet<>(Arrays.asList(IMPORT_EMAIL_2, INVALID_TEST_EMAIL)));
+    assertEquals(1, participantRegistrySites.size());
+    assertEquals(IMPORT_EMAIL_2, participantRegistrySites.get(0).getEmail());
+    assertEquals(siteEntity.getId(), participantRegistrySites.get(0).getSite().getId());
+    assertNotNull(
+        participantStudyRepository.findByParticipantRegistrySiteId(
+            participantRegistrySites.get(0).getId()));
+
+    verifyAuditEventCall(PARTICIPANTS_EMAIL_LIST_IMPORT_PARTIAL_FAILED);
+    verifyTokenIntrospectRequest(2);
+  }
+
+  @Test
+  public void shouldReturnBadHeadersForImportParticipantJob() throws Exception {
+    siteEntity.setLocation(locationEntity);
+    testDataHelper.getSiteRepository().saveAndFlush(siteEntity);
+    HttpHeaders headers = testDataHelper.newCommonHeaders();
+    headers.add(USER_ID_HEADER, userRegAdminEntity.getId());
+
+    MockMultipartFile file = getMultipartFile("classpath:Email_Import_Template_bad_header.xlsx");
+    mockMvc
+        .perform(
+            multipart(ApiEndpoint.START_IMPORT_PARTICIPANT_JOB.getPath(), siteEntity.getId())
+                .file(file)
+                .headers(headers)
+                .contextPath(getContextPath()))
+        .andDo(print())
+        .andExpect(status().isBadRequest())
+        .andExpect(
+            jsonPath(
+                "$.error_description",
+                is(ErrorCode.DOCUMENT_NOT_IN_PRESCRIBED_FORMAT.getDescription())));
+
+    assertEquals(0, testDataHelper.getParticipantImportJobRepository().count());
+    verifyAuditEventCall(PARTICIPANTS_EMAIL_LIST_IMPORT_FAILED);
+    verifyTokenIntrospectRequest();
+  }
+
+  @Test
+  public void shouldReturnImportJobNotFound() throws Exception {
+    HttpHeaders headers = testDataHelper.newCommonHeaders();
+    headers.add(USER_ID_HEADER, userRegAdminEntity.getId());
+
+    mockMvc
+        .perform(
+            get(
+                    ApiEndpoint.GET_IMPORT_PARTICIPANT_JOB.getPath(),
+                    siteEntity.getId(),
+                    IdGenerator.id())
+                .headers(headers)
+                .contextPath(getContextPath()))
+        .andDo(print())
+        .andExpect(status().isNotFound())
+        .andExpect(
+            jsonPath("$.error_description", is(ErrorCode.IMPORT_JOB_NOT_FOUND.getDescription())));
+
+    verifyTokenIntrospectRequest();
+  }
+
+  @Test
+  public void shouldFailStaleImportJobs() {
+    ParticipantImportJobEntity importJob = newImportJob(ImportJobStatus.IN_PROGRESS);
+    ParticipantImportJobEntity completedJob = newImportJob(ImportJobStatus.COMPLETED);
+
+    // Step 1: a job that recorded progress within the timeout is left running
+    assertEquals(0, participantImportService.failStaleImportJobs());
+    assertEquals(
+        ImportJobStatus.IN_PROGRESS.name(),
+        testDataHelper
+            .getParticipantImportJobRepository()
+            .findById(importJob.getId())
+            .get()
+            .getStatus());
+
+    // Step 2: once past the timeout, only the job in progress is failed
+    Timestamp now = new Timestamp(Instant.now().toEpochMilli());
+    int failedJobs =
+        new TransactionTemplate(transactionManager)
+            .execute(
+                status ->
+                    testDataHelper
+                        .getParticipantImportJobRepository()
+                        .failStaleJobs(
+                            new Timestamp(now.getTime() + 60000),
+                            now,
+                            ErrorCode.FAILED_TO_IMPORT_PARTICIPANTS.getCode()));
+    assertEquals(1, failedJobs);
+    importJob =
+        testDataHelper.getParticipantImportJobRepository().findById(importJob.getId()).get();
+    assertEquals(ImportJobStatus.FAILED.name(), importJob.getStatus());
+    assertEquals(ErrorCode.FAILED_TO_IMPORT_PARTICIPANTS.getCode(), importJob.getErrorCode());
+    assertEquals(
+        ImportJobStatus.COMPLETED.name(),
+        testDataHelper
+            .getParticipantImportJobRepository()
+            .findById(completedJob.getId())
+            .get()
+            .getStatus());
+  }
+
   @Test
   public void shouldReturnSiteNotExistOrInactiveError() throws Exception {
     HttpHeaders headers = testDataHelper.newCommonHeaders();
@@ -2617,6 +2770,27 @@ public class SiteControllerTest extends BaseMockIT {
     return request;
   }
 
+  private ParticipantImportJobEntity newImportJob(ImportJobStatus status) {
+    ParticipantImportJobEntity importJob = new ParticipantImportJobEntity();
+    importJob.setSiteId(siteEntity.getId());
+    importJob.setFileName("import.xlsx");
+    importJob.setStatus(status.name());
+    importJob.setCreatedBy(userRegAdminEntity.getId());
+    return testDataHelper.getParticipantImportJobRepository().saveAndFlush(importJob);
+  }
+
+  private void awaitImportJob(String jobId, HttpHeaders headers) throws Exception {
+    for (int attempt = 0; attempt < 100; attempt++) {
+      ParticipantImportJobEntity importJob =
+          testDataHelper.getParticipantImportJobRepository().findById(jobId).get();
+      if (!ImportJobStatus.IN_PROGRESS.name().equals(importJob.getStatus())) {
+        return;
+      }
+      Thread.sleep(100);
+    }
+    fail(String.format("import job %s did not finish", jobId));
+  }
+
   private MockMultipartFile getMultipartFile(String fileName) throws IOException {
     File file = ResourceUtils.getFile(fileName);
     MockMultipartFile multipart =
@@ -42,6 +42,7 @@ import com.google.cloud.healthcare.fdamystudies.repository.AppRepository;
 import com.google.cloud.healthcare.fdamystudies.repository.InviteParticipantsEmailRepository;
 import com.google.cloud.healthcare.fdamystudies.repository.LocationRepository;
 import com.google.cloud.healthcare.fdamystudies.repository.ParticipantEnrollmentHistoryRepository;
+import com.google.cloud.healthcare.fdamystudies.repository.ParticipantImportJobRepository;
 import com.google.cloud.healthcare.fdamystudies.repository.ParticipantRegistrySiteRepository;
 import com.google.cloud.healthcare.fdamystudies.repository.ParticipantStudyRepository;
 import com.google.cloud.healthcare.fdamystudies.repository.SitePermissionRepository;
@@ -108,6 +109,8 @@ public class TestDataHelper {
 
   @Autowired private InviteParticipantsEmailRepository invitedParticipantsEmailRepository;
 
+  @Autowired private ParticipantImportJobRepository participantImportJobRepository;
+
   @Autowired private UserAccountEmailSchedulerTaskRepository addNewAdminEmailServiceRepository;
 
   @Autowired private ParticipantEnrollmentHistoryRepository participantEnrollmentHistoryRepository;
@@ -490,5 +493,6 @@ public class TestDataHelper {
     getUserDetailsRepository().deleteAll();
     getInvitedParticipantsEmailRepository().deleteAll();
     getAddNewAdminEmailServiceRepository().deleteAll();
+    getParticipantImportJobRepository().deleteAll();
   }
 }
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+/** Sends messages through {@link SmtpConnectionPool} to a local stand-in for an SMTP server. */
+public class SmtpConnectionPoolTest {
+
+  private static final int SENDERS = 4;
+
+  private static final int MESSAGES_PER_SENDER = 10;
+
+  private StandInSmtpServer smtpServer;
+
+  private JavaMailSenderImpl mailSender;
+
+  private ExecutorService senders;
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    smtpServer = new StandInSmtpServer();
+    mailSender = new JavaMailSenderImpl();
+    mailSender.setHost("localhost");
+    mailSender.setPort(smtpServer.getPort());
+    senders = Executors.newFixedThreadPool(SENDERS);
+  }
+
+  @AfterEach
+  public void tearDown() throws IOException {
+    senders.shutdownNow();
+    smtpServer.close();
+  }
+
+  @Test
+  void shouldReuseConnectionsAcrossMessages() throws Exception {
+    SmtpConnectionPool smtpConnectionPool = new SmtpConnectionPool(mailSender, SENDERS);
+
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < SENDERS; i++) {
+      futures.add(
+          senders.submit(
+              () -> {
+                for (int j = 0; j < MESSAGES_PER_SENDER; j++) {
+                  smtpConnectionPool.send(createMessage());
+                }
+                return null;
+              }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    smtpConnectionPool.close();
+
+    assertEquals(SENDERS * MESSAGES_PER_SENDER, smtpServer.messages.get());
+    assertTrue(smtpServer.connections.get() <= SENDERS);
+  }
+
+  @Test
+  void shouldReconnectWhenServerDropsConnection() throws Exception {
+    SmtpConnectionPool smtpConnectionPool = new SmtpConnectionPool(mailSender, 1);
+    smtpServer.closeAfterMessage = true;
+
+    for (int i = 0; i < 3; i++) {
+      smtpConnectionPool.send(createMessage());
+    }
+    smtpConnectionPool.close();
+
+    assertEquals(3, smtpServer.messages.get());
+    assertEquals(3, smtpServer.connections.get());
+  }
+
+  private MimeMessage createMessage() throws Exception {
+    MimeMessage message = mailSender.createMimeMessage();
+    MimeMessageHelper helper = new MimeMessageHelper(message, false);
+    helper.setFrom("mockittest@gmail.com");
+    helper.setTo("participant@grr.la");
+    message.setSubject("Invitation to participate");
+    message.setText("<span>Hi</span>", "utf-8", "html");
+    return message;
+  }
+
+  /** Accepts any sender and recipient, and counts the connections and messages it receives. */
+  private static class StandInSmtpServer {
+
+    private final ServerSocket serverSocket;
+
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private final AtomicInteger messages = new AtomicInteger();
+
+    private volatile boolean closeAfterMessage;
+
+    private StandInSmtpServer() throws IOException {
+      serverSocket = new ServerSocket(0);
+      Thread acceptor = new Thread(this::accept, "stand-in-smtp-server");
+      acceptor.setDaemon(true);
+      acceptor.start();
+    }
+
+    private int getPort() {
+      return serverSocket.getLocalPort();
+    }
+
+    private void close() throws IOException {
+      serverSocket.close();
+    }
+
+    private void accept() {
+      while (!serverSocket.isClosed()) {
+        try {
+          Socket socket = serverSocket.accept();
+          connections.incrementAndGet();
+          Thread session = new Thread(() -> serve(socket));
+          session.setDaemon(true);
+          session.start();
+        } catch (IOException e) {
+          // the server was closed
+        }
+      }
+    }
+
+    private void serve(Socket socket) {
+      try (Socket client = socket;
+          BufferedReader in =
+              new BufferedReader(
+                  new InputStreamReader(client.getInputStream(), StandardCharsets.US_ASCII));
+          PrintWriter out = new PrintWriter(client.getOutputStream(), true)) {
+        reply(out, "220 localhost stand-in SMTP");
+        String line;
+        while ((line = in.readLine()) != null) {
+          String command = line.length() < 4 ? line : line.substring(0, 4).toUpperCase();
+          if ("EHLO".equals(command) || "HELO".equals(command)) {
+            reply(out, "250 localhost");
+          } else if ("DATA".equals(command)) {
+            reply(out, "354 End data with <CR><LF>.<CR><LF>");
+            while ((line = in.readLine()) != null && !".".equals(line)) {
+              // message content is not checked
+            }
+            messages.incrementAndGet();
+            reply(out, "250 OK");
+            if (closeAfterMessage) {
+              return;
+            }
+          } else if ("QUIT".equals(command)) {
+            reply(out, "221 Bye");
+            return;
+          } else {
+            reply(out, "250 OK");
+          }
+        }
+      } catch (IOException e) {
+        // the client went away
+      }
+    }
+
+    private void reply(PrintWriter out, String reply) {
+      out.print(reply + "\r\n");
+      out.flush();
+    }
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class XlsxColumnReaderTest {
+
+  private static final int EMAIL_ROWS = 150_000;
+
+  @TempDir static Path tempDir;
+
+  private static Path workbook;
+
+  @BeforeAll
+  public static void createWorkbook() throws Exception {
+    workbook = tempDir.resolve("participants.xlsx");
+    SXSSFWorkbook sxssfWorkbook = new SXSSFWorkbook(100);
+    try (OutputStream out = Files.newOutputStream(workbook)) {
+      Sheet sheet = sxssfWorkbook.createSheet();
+      sheet.createRow(0).createCell(0).setCellValue("Email Address");
+      for (int i = 1; i <= EMAIL_ROWS; i++) {
+        Row row = sheet.createRow(i);
+        // every 10th row has no email, only a value in the second column
+        if (i % 10 == 0) {
+          row.createCell(1).setCellValue("note " + i);
+        } else {
+          row.createCell(0).setCellValue(String.format("participant%06d@grr.la", i));
+        }
+      }
+      sxssfWorkbook.write(out);
+    } finally {
+      sxssfWorkbook.dispose();
+      sxssfWorkbook.close();
+    }
+  }
+
+  @Test
+  public void shouldReadEveryCellOfTheColumn() throws Exception {
+    AtomicInteger cells = new AtomicInteger();
+    AtomicReference<String> lastValue = new AtomicReference<>();
+    XlsxColumnReader.read(
+        workbook,
+        0,
+        (rowNum, value) -> {
+          cells.incrementAndGet();
+          lastValue.set(value);
+          return true;
+        });
+
+    assertEquals(1 + EMAIL_ROWS - EMAIL_ROWS / 10, cells.get());
+    assertEquals(String.format("participant%06d@grr.la", EMAIL_ROWS - 1), lastValue.get());
+  }
+
+  @Test
+  public void shouldStopReadingWhenTheHandlerDeclines() throws Exception {
+    AtomicInteger cells = new AtomicInteger();
+    AtomicReference<String> header = new AtomicReference<>();
+    XlsxColumnReader.read(
+        workbook,
+        0,
+        (rowNum, value) -> {
+          cells.incrementAndGet();
+          header.set(value);
+          return false;
+        });
+
+    assertEquals(1, cells.get());
+    assertEquals("Email Address", header.get());
+  }
+}
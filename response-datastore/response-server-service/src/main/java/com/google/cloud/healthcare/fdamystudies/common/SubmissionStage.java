@@ -0,0 +1,27 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.common;
+
+/** Stages of the asynchronous activity response pipeline, in execution order. */
+public enum SubmissionStage {
+  ACTIVITY_METADATA,
+  PARTICIPANT_STUDY_INFO,
+  RESPONSE_DATA,
+  ACTIVITY_STATE,
+  DONE;
+
+  public static SubmissionStage fromValue(String value) {
+    for (SubmissionStage e : SubmissionStage.values()) {
+      if (e.name().equals(value)) {
+        return e;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,25 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.common;
+
+public enum SubmissionStatus {
+  QUEUED,
+  PROCESSING,
+  COMPLETED,
+  FAILED;
+
+  public static SubmissionStatus fromValue(String value) {
+    for (SubmissionStatus e : SubmissionStatus.values()) {
+      if (e.name().equals(value)) {
+        return e;
+      }
+    }
+    return null;
+  }
+}
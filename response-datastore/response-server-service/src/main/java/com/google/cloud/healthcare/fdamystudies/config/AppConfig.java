@@ -9,7 +9,18 @@
 package com.google.cloud.healthcare.fdamystudies.config;
 
 import com.google.cloud.GcpLaunchStage.Beta;
+import com.google.cloud.healthcare.fdamystudies.bean.QuestionnaireActivityStructureBean;
+import com.google.cloud.healthcare.fdamystudies.dao.ResponsesDao;
+import com.google.cloud.healthcare.fdamystudies.service.ActivityStepsIndex;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
 @Configuration
@@ -19,4 +30,59 @@ public class AppConfig extends CommonModuleConfiguration {
   public BCryptPasswordEncoder passwordEncoder() {
     return new BCryptPasswordEncoder();
   }
+
+  // Bounded worker pool for the asynchronous response ingestion pipeline. The dispatcher only
+  // claims as many queued submissions as the pool can take, so the queue never overflows.
+  @Bean(name = "responseIngestionExecutor")
+  public ThreadPoolTaskExecutor responseIngestionExecutor(ApplicationConfiguration appConfig) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(appConfig.getIngestionWorkerPoolSize());
+    executor.setMaxPoolSize(appConfig.getIngestionWorkerPoolSize());
+    executor.setQueueCapacity(appConfig.getIngestionWorkerQueueCapacity());
+    executor.setThreadNamePrefix("response-ingestion-");
+    executor.setWaitForTasksToCompleteOnShutdown(true);
+    executor.setAwaitTerminationSeconds(30);
+    executor.initialize();
+    return executor;
+  }
+
+  // Published activity versions never change, so metadata fetched from the study datastore is
+  // cached per (studyId, activityId, activityVersion). Hit/miss/eviction counts are published as
+  // the "cache.*" meters tagged cache=activityMetadata.
+  @Bean(name = "activityMetadataCache")
+  public Cache<String, QuestionnaireActivityStructureBean> activityMetadataCache(
+      ApplicationConfiguration appConfig, ObjectProvider<MeterRegistry> meterRegistry) {
+    Cache<String, QuestionnaireActivityStructureBean> cache =
+        CacheBuilder.newBuilder()
+            .maximumSize(appConfig.getActivityMetadataCacheMaxSize())
+            .recordStats()
+            .build();
+    meterRegistry.ifAvailable(
+        registry -> GuavaCacheMetrics.monitor(registry, cache, "activityMetadata"));
+    return cache;
+  }
+
+  // The index of the metadata steps of each cached activity version, built by the first submission
+  // of that version. Keys are weak, and compared by identity, so an index goes with its metadata
+  // once the metadata is evicted from activityMetadataCache.
+  @Bean(name = "activityStepsIndexCache")
+  public Cache<QuestionnaireActivityStructureBean, ActivityStepsIndex> activityStepsIndexCache(
+      ObjectProvider<MeterRegistry> meterRegistry) {
+    Cache<QuestionnaireActivityStructureBean, ActivityStepsIndex> cache =
+        CacheBuilder.newBuilder().weakKeys().recordStats().build();
+    meterRegistry.ifAvailable(
+        registry -> GuavaCacheMetrics.monitor(registry, cache, "activityStepsIndex"));
+    return cache;
+  }
+
+  // The responses DAO used by the services, chosen by response.storage.type.
+  @Bean(name = "responsesDao")
+  public ResponsesDao responsesDao(
+      ApplicationConfiguration appConfig,
+      @Qualifier("cloudFirestoreResponsesDaoImpl") ResponsesDao cloudFirestoreResponsesDao,
+      @Qualifier("fileResponsesDaoImpl") ResponsesDao fileResponsesDao) {
+    return "file".equalsIgnoreCase(appConfig.getResponseStorageType())
+        ? fileResponsesDao
+        : cloudFirestoreResponsesDao;
+  }
 }
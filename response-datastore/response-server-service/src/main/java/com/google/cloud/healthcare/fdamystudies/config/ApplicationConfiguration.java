@@ -21,12 +21,39 @@ public class ApplicationConfiguration {
   @Value("${firestore.project.id}")
   private String firestoreProjectId;
 
+  @Value("${response.firestore.startup.init}")
+  private boolean firestoreStartupInit;
+
+  @Value("${response.firestore.channel.pool.size}")
+  private int firestoreChannelPoolSize;
+
+  @Value("${response.firestore.warmup.timeout.ms}")
+  private long firestoreWarmupTimeoutMs;
+
+  @Value("${response.firestore.page.size}")
+  private int firestorePageSize;
+
+  @Value("${response.firestore.max.inflight.batches}")
+  private int firestoreMaxInFlightBatches;
+
   @Value("${studydatastore.study.activity.metadata.url}")
   private String wcpStudyActivityMetadataUrl;
 
+  @Value("${response.storage.type}")
+  private String responseStorageType;
+
   @Value("${response.data.file.path}")
   private String responseDataFilePath;
 
+  @Value("${response.file.store.segment.max.bytes}")
+  private long fileStoreSegmentMaxBytes;
+
+  @Value("${response.file.store.compaction.garbage.ratio}")
+  private double fileStoreCompactionGarbageRatio;
+
+  @Value("${response.file.store.compaction.min.segments}")
+  private int fileStoreCompactionMinSegments;
+
   @Value("${last.response.only}")
   private String lastResponseOnly;
 
@@ -59,4 +86,25 @@ public class ApplicationConfiguration {
 
   @Value("${enroll.mgmt.service.url}")
   private String regServerPartStudyInfoUrl;
+
+  @Value("${response.ingestion.worker.pool.size}")
+  private int ingestionWorkerPoolSize;
+
+  @Value("${response.ingestion.worker.queue.capacity}")
+  private int ingestionWorkerQueueCapacity;
+
+  @Value("${response.ingestion.max.pending}")
+  private long ingestionMaxPending;
+
+  @Value("${response.ingestion.max.attempts}")
+  private int ingestionMaxAttempts;
+
+  @Value("${response.ingestion.retry.backoff.ms}")
+  private long ingestionRetryBackoffMs;
+
+  @Value("${response.ingestion.lease.ms}")
+  private long ingestionLeaseMs;
+
+  @Value("${studydatastore.activity.metadata.cache.max.size}")
+  private long activityMetadataCacheMaxSize;
 }
@@ -35,6 +35,7 @@ import static com.google.cloud.healthcare.fdamystudies.common.ResponseServerEven
 import static com.google.cloud.healthcare.fdamystudies.common.ResponseServerEvent.WITHDRAWAL_INFORMATION_UPDATE_FAILED;
 
 import com.google.cloud.healthcare.fdamystudies.bean.ActivityResponseBean;
+import com.google.cloud.healthcare.fdamystudies.bean.ActivityResponseSubmissionBean;
 import com.google.cloud.healthcare.fdamystudies.bean.ActivityStateRequestBean;
 import com.google.cloud.healthcare.fdamystudies.bean.ErrorBean;
 import com.google.cloud.healthcare.fdamystudies.bean.ParticipantActivityBean;
@@ -47,6 +48,7 @@ import com.google.cloud.healthcare.fdamystudies.beans.AuditLogEventRequest;
 import com.google.cloud.healthcare.fdamystudies.common.ResponseServerAuditLogHelper;
 import com.google.cloud.healthcare.fdamystudies.mapper.AuditEventMapper;
 import com.google.cloud.healthcare.fdamystudies.response.model.ParticipantInfoEntity;
+import com.google.cloud.healthcare.fdamystudies.service.ActivityResponseIngestionService;
 import com.google.cloud.healthcare.fdamystudies.service.ActivityResponseProcessorService;
 import com.google.cloud.healthcare.fdamystudies.service.ParticipantActivityStateResponseService;
 import com.google.cloud.healthcare.fdamystudies.service.ParticipantService;
@@ -55,6 +57,7 @@ import com.google.cloud.healthcare.fdamystudies.service.StudyMetadataService;
 import com.google.cloud.healthcare.fdamystudies.utils.AppConstants;
 import com.google.cloud.healthcare.fdamystudies.utils.AppUtil;
 import com.google.cloud.healthcare.fdamystudies.utils.ErrorCode;
+import com.google.cloud.healthcare.fdamystudies.utils.ProcessResponseException;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import java.sql.Timestamp;
@@ -69,6 +72,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.ext.XLogger;
 import org.slf4j.ext.XLoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -87,6 +91,8 @@ public class ProcessActivityResponseController {
 
   @Autowired private ActivityResponseProcessorService activityResponseProcessorService;
 
+  @Autowired private ActivityResponseIngestionService activityResponseIngestionService;
+
   @Autowired
   private ParticipantActivityStateResponseService participantActivityStateResponseService;
 
@@ -94,6 +100,8 @@ public class ProcessActivityResponseController {
 
   private static final String BEGIN_REQUEST_LOG = "%s request";
 
+  private static final String RETRY_AFTER_SECONDS = "30";
+
   private XLogger logger =
       XLoggerFactory.getXLogger(ProcessActivityResponseController.class.getName());
 
@@ -396,6 +404,131 @@ public class ProcessActivityResponseController {
     }
   }
 
+  @ApiOperation(
+      value =
+          "Queue activity response for participant, processing and storage in Google Cloud "
+              + "Firestore happens asynchronously")
+  @PostMapping("/participant/process-response-async")
+  public ResponseEntity<?> enqueueActivityResponseForParticipant(
+      @RequestBody ActivityResponseBean questionnaireActivityResponseBean,
+      @RequestHeader String userId,
+      HttpServletRequest request) {
+    logger.entry(String.format(BEGIN_REQUEST_LOG, request.getRequestURI()));
+    AuditLogEventRequest auditRequest = AuditEventMapper.fromHttpServletRequest(request);
+    auditRequest.setUserId(userId);
+    String applicationId = questionnaireActivityResponseBean.getApplicationId();
+    String studyId = questionnaireActivityResponseBean.getMetadata().getStudyId();
+    String activityId = questionnaireActivityResponseBean.getMetadata().getActivityId();
+    String activityVersion = questionnaireActivityResponseBean.getMetadata().getVersion();
+    String participantId = questionnaireActivityResponseBean.getParticipantId();
+    String secureEnrollmentToken = questionnaireActivityResponseBean.getTokenIdentifier();
+    if (StringUtils.isBlank(applicationId)
+        || StringUtils.isBlank(secureEnrollmentToken)
+        || StringUtils.isBlank(studyId)
+        || StringUtils.isBlank(activityId)
+        || StringUtils.isBlank(activityVersion)) {
+      ErrorBean errorBean =
+          AppUtil.dynamicResponse(
+              ErrorCode.EC_701.code(),
+              ErrorCode.EC_701.errorMessage(),
+              AppConstants.ERROR_STR,
+              ErrorCode.EC_701.errorMessage());
+      return new ResponseEntity<>(errorBean, HttpStatus.BAD_REQUEST);
+    }
+
+    auditRequest.setStudyId(studyId);
+    auditRequest.setParticipantId(participantId);
+    auditRequest.setStudyVersion(questionnaireActivityResponseBean.getMetadata().getStudyVersion());
+    Map<String, String> activityMap = new HashedMap<>();
+    activityMap.put(ACTIVITY_TYPE, questionnaireActivityResponseBean.getType());
+    activityMap.put(ACTIVITY_ID, activityId);
+    activityMap.put(ACTIVITY_VERSION, activityVersion);
+    activityMap.put(RUN_ID, questionnaireActivityResponseBean.getMetadata().getActivityRunId());
+    responseServerAuditLogHelper.logEvent(ACTIVITY_RESPONSE_RECEIVED, auditRequest, activityMap);
+
+    try {
+      // Participant validation is a local lookup, so it stays on the request thread and invalid
+      // submissions are rejected before they reach the queue
+      ParticipantInfoEntity participantBo = new ParticipantInfoEntity();
+      participantBo.setTokenId(secureEnrollmentToken);
+      participantBo.setParticipantId(participantId);
+      if (!participantService.isValidParticipant(participantBo)) {
+        throw new ProcessResponseException(ErrorCode.EC_706.errorMessage());
+      }
+    } catch (ProcessResponseException e) {
+      ErrorBean errorBean =
+          AppUtil.dynamicResponse(
+              ErrorCode.EC_706.code(),
+              ErrorCode.EC_706.errorMessage(),
+              AppConstants.ERROR_STR,
+              e.getMessage());
+      responseServerAuditLogHelper.logEvent(PARTICIPANT_ID_INVALID, auditRequest);
+      return new ResponseEntity<>(errorBean, HttpStatus.BAD_REQUEST);
+    }
+
+    if (!activityResponseIngestionService.canAcceptSubmission()) {
+      ErrorBean errorBean =
+          AppUtil.dynamicResponse(
+              ErrorCode.EC_709.code(),
+              ErrorCode.EC_709.errorMessage(),
+              AppConstants.ERROR_STR,
+              ErrorCode.EC_709.errorMessage());
+      HttpHeaders headers = new HttpHeaders();
+      headers.set(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+      return new ResponseEntity<>(errorBean, headers, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    try {
+      ActivityResponseSubmissionBean submissionBean =
+          activityResponseIngestionService.enqueueActivityResponse(
+              questionnaireActivityResponseBean, userId, auditRequest);
+      HttpHeaders headers = new HttpHeaders();
+      headers.set(
+          HttpHeaders.LOCATION,
+          String.format(
+              "%s/participant/process-response-status?submissionId=%s",
+              request.getContextPath(), submissionBean.getSubmissionId()));
+      logger.exit(String.format("submission %s queued", submissionBean.getSubmissionId()));
+      return new ResponseEntity<>(submissionBean, headers, HttpStatus.ACCEPTED);
+    } catch (Exception e) {
+      ErrorBean errorBean =
+          AppUtil.dynamicResponse(
+              ErrorCode.EC_707.code(),
+              ErrorCode.EC_707.errorMessage(),
+              AppConstants.ERROR_STR,
+              e.getMessage());
+      logger.error(
+          "Could not queue response for participant.\n Study Id: "
+              + studyId
+              + "\n Activity Id: "
+              + activityId
+              + "\n Activity Version: "
+              + activityVersion);
+      return new ResponseEntity<>(errorBean, HttpStatus.BAD_REQUEST);
+    }
+  }
+
+  @ApiOperation(value = "Get processing status of a queued activity response")
+  @GetMapping("/participant/process-response-status")
+  public ResponseEntity<?> getActivityResponseSubmissionStatus(
+      @RequestParam("submissionId") String submissionId,
+      @RequestHeader String userId,
+      HttpServletRequest request) {
+    logger.entry(String.format(BEGIN_REQUEST_LOG, request.getRequestURI()));
+    ActivityResponseSubmissionBean submissionBean =
+        activityResponseIngestionService.getSubmissionStatus(submissionId, userId);
+    if (submissionBean == null) {
+      ErrorBean errorBean =
+          AppUtil.dynamicResponse(
+              ErrorCode.EC_404.code(),
+              ErrorCode.EC_404.errorMessage(),
+              AppConstants.ERROR_STR,
+              ErrorCode.EC_404.errorMessage());
+      return new ResponseEntity<>(errorBean, HttpStatus.NOT_FOUND);
+    }
+    return new ResponseEntity<>(submissionBean, HttpStatus.OK);
+  }
+
   @ApiOperation(value = "Get activity response data for participant from Google Cloud Firestore")
   @GetMapping("/participant/getresponse")
   public ResponseEntity<?> getActivityResponseDataForParticipant(
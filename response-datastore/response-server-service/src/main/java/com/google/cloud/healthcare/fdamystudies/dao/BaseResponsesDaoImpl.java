@@ -0,0 +1,185 @@
+/*
+ * Copyright 2020-2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.dao;
+
+import com.google.cloud.healthcare.fdamystudies.bean.ResponseRows;
+import com.google.cloud.healthcare.fdamystudies.bean.SavedActivityResponse;
+import com.google.cloud.healthcare.fdamystudies.bean.StoredResponseBean;
+import com.google.cloud.healthcare.fdamystudies.config.ApplicationConfiguration;
+import com.google.cloud.healthcare.fdamystudies.utils.AppConstants;
+import com.google.gson.Gson;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/** Converts stored activity response documents into the legacy response query format. */
+public abstract class BaseResponsesDaoImpl implements ResponsesDao {
+
+  private XLogger logger = XLoggerFactory.getXLogger(BaseResponsesDaoImpl.class.getName());
+
+  @Autowired protected ApplicationConfiguration appConfig;
+
+  /**
+   * Converts the stored responses of a participant into a {@link StoredResponseBean}, keeping only
+   * the latest response when last.response.only is set. Returns null when there are none.
+   */
+  protected StoredResponseBean toStoredResponseBean(
+      String participantId, List<Map<String, Object>> activityResponseMapList) {
+    if (activityResponseMapList.isEmpty()) {
+      return null;
+    }
+    String lastResponseOnly = appConfig.getLastResponseOnly();
+    if (!StringUtils.isBlank(lastResponseOnly)
+        && lastResponseOnly.equalsIgnoreCase(AppConstants.TRUE_STR)) {
+      activityResponseMapList = filterResponseListByTimestamp(activityResponseMapList);
+    }
+    StoredResponseBean storedResponseBean = initStoredResponseBean();
+    return convertResponseDataToBean(participantId, activityResponseMapList, storedResponseBean);
+  }
+
+  protected StoredResponseBean convertResponseDataToBean(
+      String participantId,
+      List<Map<String, Object>> activityResponseMapList,
+      StoredResponseBean storedResponseBean) {
+    logger.entry("begin convertResponseDataToBean()");
+    List<ResponseRows> responsesList = new ArrayList<>();
+    for (Map<String, Object> activityResponseMap : activityResponseMapList) {
+      ResponseRows responsesRow = new ResponseRows();
+      // Add participant Id
+      Map<Object, Object> mapPartId = new HashMap<>();
+      Map<Object, Object> mapPartIdValue = new HashMap<>();
+      mapPartIdValue.put(AppConstants.VALUE_KEY_STR, participantId);
+      mapPartId.put(AppConstants.PARTICIPANT_ID_RESPONSE, mapPartIdValue);
+      responsesRow.getData().add(mapPartId);
+
+      // Add Created Timestamp
+      Map<Object, Object> mapTS = new HashMap<>();
+      Map<Object, Object> mapTsValue = new HashMap<>();
+
+      // Format timestamp to date
+      long timestampFromResponse = 0;
+      try {
+        timestampFromResponse =
+            Long.parseLong((String) activityResponseMap.get(AppConstants.CREATED_TS_KEY));
+
+        DateFormat simpleDateFormat = new SimpleDateFormat(AppConstants.ISO_DATE_FORMAT_RESPONSE);
+        String formattedDate = simpleDateFormat.format(timestampFromResponse);
+        mapTsValue.put(AppConstants.VALUE_KEY_STR, formattedDate);
+
+      } catch (NumberFormatException ne) {
+        logger.error(
+            "Could not format createdTimestamp field to long. createdTimestamp value is: "
+                + timestampFromResponse);
+        mapTsValue.put(AppConstants.VALUE_KEY_STR, String.valueOf(timestampFromResponse));
+      }
+
+      mapTS.put(AppConstants.CREATED_RESPONSE, mapTsValue);
+      responsesRow.getData().add(mapTS);
+      SavedActivityResponse savedActivityResponse =
+          new Gson().fromJson(new Gson().toJson(activityResponseMap), SavedActivityResponse.class);
+      List<Object> results = savedActivityResponse.getResults();
+      this.addResponsesToMap(responsesRow, results);
+      responsesList.add(responsesRow);
+      storedResponseBean.setRows(responsesList);
+    }
+    if (storedResponseBean.getRows() != null) {
+      storedResponseBean.setRowCount(storedResponseBean.getRows().size());
+    }
+    return storedResponseBean;
+  }
+
+  private void addResponsesToMap(ResponseRows responsesRow, List<Object> results) {
+    logger.entry("begin addResponsesToMap()");
+    if (results != null) {
+      for (Object result : results) {
+        if (result instanceof Map) {
+          Map<String, Object> mapResult = (Map<String, Object>) result;
+          String questionResultType = (String) mapResult.get(AppConstants.RESULT_TYPE_KEY);
+          String questionIdKey = null;
+          String questionValue = null;
+          Map<Object, Object> tempMapForQuestions = new HashMap<>();
+          Map<Object, Object> tempMapQuestionsValue = new HashMap<>();
+
+          if (!StringUtils.isBlank(questionResultType)) {
+            if (questionResultType.equalsIgnoreCase(AppConstants.GROUPED_FIELD_KEY)) {
+              Map<String, Object> resultsForm =
+                  (Map<String, Object>) mapResult.get("actvityValueGroup");
+              List<Object> obj = (List<Object>) resultsForm.get("results");
+              this.addResponsesToMap(responsesRow, obj);
+
+            } else {
+              questionIdKey = (String) mapResult.get(AppConstants.QUESTION_ID_KEY);
+              questionValue = (String) mapResult.get(AppConstants.VALUE_KEY_STR);
+              if (StringUtils.containsIgnoreCase(
+                      appConfig.getResponseSupportedQTypeDouble(), questionResultType)
+                  && !StringUtils.isBlank(questionValue)) {
+                Double questionValueDouble = null;
+                try {
+                  questionValueDouble = Double.parseDouble(questionValue);
+                  tempMapQuestionsValue.put(AppConstants.VALUE_KEY_STR, questionValueDouble);
+                  tempMapForQuestions.put(questionIdKey, tempMapQuestionsValue);
+                  responsesRow.getData().add(tempMapForQuestions);
+                } catch (NumberFormatException e) {
+                  logger.error(
+                      "Could not format value to Double. Value input string is: " + questionValue);
+                }
+              } else if (StringUtils.containsIgnoreCase(
+                      appConfig.getResponseSupportedQTypeDate(), questionResultType)
+                  && !StringUtils.isBlank(questionValue)) {
+                tempMapQuestionsValue.put(AppConstants.VALUE_KEY_STR, questionValue);
+                tempMapForQuestions.put(questionIdKey, tempMapQuestionsValue);
+                responsesRow.getData().add(tempMapForQuestions);
+              } else {
+                if (appConfig.getSupportStringResponse().equalsIgnoreCase(AppConstants.TRUE_STR)
+                    && StringUtils.containsIgnoreCase(
+                        appConfig.getResponseSupportedQTypeString(), questionResultType)
+                    && !StringUtils.isBlank(questionValue)) {
+                  tempMapQuestionsValue.put(AppConstants.VALUE_KEY_STR, questionValue);
+                  tempMapForQuestions.put(questionIdKey, tempMapQuestionsValue);
+                  responsesRow.getData().add(tempMapForQuestions);
+                }
+              }
+            }
+          }
+        }
+      }
+    }
+  }
+
+  protected List<Map<String, Object>> filterResponseListByTimestamp(
+      List<Map<String, Object>> activityResponseMapList) {
+
+    activityResponseMapList.sort(
+        Comparator.nullsLast(
+            Comparator.comparing(
+                m -> Long.parseLong((String) m.get(AppConstants.CREATED_TS_KEY)),
+                Comparator.nullsLast(Comparator.reverseOrder()))));
+    // Get the latest response for activityId, bases on ordering by timestamp value
+    activityResponseMapList = Arrays.asList(activityResponseMapList.get(0));
+
+    return activityResponseMapList;
+  }
+
+  protected StoredResponseBean initStoredResponseBean() {
+    StoredResponseBean retStoredResponseBean = new StoredResponseBean();
+    List<String> schemaNameList = Arrays.asList(AppConstants.RESPONSE_DATA_SCHEMA_NAME_LEGACY);
+    retStoredResponseBean.setSchemaName(schemaNameList);
+    retStoredResponseBean.setQueryName(AppConstants.RESPONSE_DATA_QUERY_NAME_LEGACY);
+    return retStoredResponseBean;
+  }
+}
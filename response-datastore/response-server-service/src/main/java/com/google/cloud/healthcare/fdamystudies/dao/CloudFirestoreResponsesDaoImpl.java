@@ -9,29 +9,23 @@
 package com.google.cloud.healthcare.fdamystudies.dao;
 
 import com.google.api.core.ApiFuture;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.FieldPath;
 import com.google.cloud.firestore.Firestore;
-import com.google.cloud.firestore.FirestoreOptions;
 import com.google.cloud.firestore.Query;
 import com.google.cloud.firestore.QueryDocumentSnapshot;
 import com.google.cloud.firestore.QuerySnapshot;
 import com.google.cloud.firestore.WriteBatch;
 import com.google.cloud.firestore.WriteResult;
-import com.google.cloud.healthcare.fdamystudies.bean.ResponseRows;
-import com.google.cloud.healthcare.fdamystudies.bean.SavedActivityResponse;
 import com.google.cloud.healthcare.fdamystudies.bean.StoredResponseBean;
-import com.google.cloud.healthcare.fdamystudies.config.ApplicationConfiguration;
 import com.google.cloud.healthcare.fdamystudies.utils.AppConstants;
 import com.google.cloud.healthcare.fdamystudies.utils.ProcessResponseException;
-import com.google.gson.Gson;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
+import java.util.function.BiConsumer;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.ext.XLogger;
 import org.slf4j.ext.XLoggerFactory;
@@ -43,9 +37,18 @@ import org.springframework.stereotype.Repository;
 
 @Repository
 @Qualifier("cloudFirestoreResponsesDaoImpl")
-public class CloudFirestoreResponsesDaoImpl implements ResponsesDao {
-  @Autowired private ApplicationConfiguration appConfig;
-  private Firestore responsesDb;
+public class CloudFirestoreResponsesDaoImpl extends BaseResponsesDaoImpl {
+
+  private static final String DELETE_OPERATION = "delete";
+
+  private static final String WITHDRAW_OPERATION = "withdraw";
+
+  private static final String LAST_DOCUMENT_ID_KEY = "lastDocumentId";
+
+  private static final String UPDATED_TS_KEY = "updatedTimestamp";
+
+  @Autowired private FirestoreClientProvider firestoreClientProvider;
+
   private XLogger logger =
       XLoggerFactory.getXLogger(CloudFirestoreResponsesDaoImpl.class.getName());
 
@@ -59,12 +62,13 @@ public class CloudFirestoreResponsesDaoImpl implements ResponsesDao {
       throws ProcessResponseException {
     logger.entry("begin saveStudyMetadata()");
     if (studyCollectionName != null && studyId != null && dataToStore != null) {
+      long startNanos = System.nanoTime();
       try {
 
         logger.info("saveStudyMetadata() : \n Study Collection Name: " + studyCollectionName);
-        initializeFirestore();
+        Firestore responsesDb = firestoreClientProvider.getFirestore();
         ApiFuture<WriteResult> cr =
-            this.responsesDb.collection(studyCollectionName).document(studyId).set(dataToStore);
+            responsesDb.collection(studyCollectionName).document(studyId).set(dataToStore);
         logger.debug(
             "saveStudyMetadata() : \n Study Collection Name: "
                 + studyCollectionName
@@ -73,6 +77,8 @@ public class CloudFirestoreResponsesDaoImpl implements ResponsesDao {
       } catch (Exception e) {
         logger.error(e.getMessage(), e);
         throw new ProcessResponseException(e.getMessage());
+      } finally {
+        firestoreClientProvider.recordRequest("saveStudyMetadata", startNanos);
       }
     } else {
 
@@ -93,18 +99,19 @@ public class CloudFirestoreResponsesDaoImpl implements ResponsesDao {
       String activitiesCollectionName,
       Map<String, Object> dataToStoreActivityResults)
       throws ProcessResponseException {
+    long startNanos = System.nanoTime();
     try {
       logger.entry("begin saveActivityResponseData()");
-      initializeFirestore();
+      Firestore responsesDb = firestoreClientProvider.getFirestore();
 
       Map<String, Object> studyVersionMap = new HashMap<>();
       studyVersionMap.put("studyVersion", dataToStoreActivityResults.get("studyVersion"));
       ApiFuture<WriteResult> futuresStudyColl =
-          this.responsesDb.collection(studyCollectionName).document(studyId).set(studyVersionMap);
+          responsesDb.collection(studyCollectionName).document(studyId).set(studyVersionMap);
       WriteResult wresultStudy = futuresStudyColl.get();
       logger.debug("Updated time: " + wresultStudy.getUpdateTime());
       ApiFuture<WriteResult> futuresActivities =
-          this.responsesDb
+          responsesDb
               .collection(studyCollectionName)
               .document(studyId)
               .collection(activitiesCollectionName)
@@ -115,6 +122,8 @@ public class CloudFirestoreResponsesDaoImpl implements ResponsesDao {
     } catch (Exception e) {
       logger.error(e.getMessage(), e);
       throw new ProcessResponseException(e.getMessage());
+    } finally {
+      firestoreClientProvider.recordRequest("saveActivityResponseData", startNanos);
     }
   }
 
@@ -127,16 +136,17 @@ public class CloudFirestoreResponsesDaoImpl implements ResponsesDao {
       String activityId,
       String questionKey)
       throws ProcessResponseException {
+    long startNanos = System.nanoTime();
     try {
       logger.entry("begin getActivityResponseDataForParticipant()");
-      initializeFirestore();
+      Firestore responsesDb = firestoreClientProvider.getFirestore();
       // Firestore does not allow compound queries without creating an index. Indexes can be created
       // only through the console or CLI, not programmatically. So this method will not depend on
       // the index to sort the data, based on timestamp in firestore. It will do the sort on the
       // query result object
       //
       final Query activitiesQuery =
-          this.responsesDb
+          responsesDb
               .collection(studyCollectionName)
               .document(studyId)
               .collection(AppConstants.ACTIVITIES_COLLECTION_NAME)
@@ -155,22 +165,13 @@ public class CloudFirestoreResponsesDaoImpl implements ResponsesDao {
         activityResponseMapList.add(mapObj);
       }
 
-      if (!activityResponseMapList.isEmpty()) {
-        String lastResponseOnly = appConfig.getLastResponseOnly();
-        if (!StringUtils.isBlank(lastResponseOnly)
-            && lastResponseOnly.equalsIgnoreCase(AppConstants.TRUE_STR)) {
-          activityResponseMapList = filterResponseListByTimestamp(activityResponseMapList);
-        }
-        StoredResponseBean storedResponseBean = initStoredResponseBean();
-        storedResponseBean =
-            convertResponseDataToBean(participantId, activityResponseMapList, storedResponseBean);
-        return storedResponseBean;
-      }
+      return toStoredResponseBean(participantId, activityResponseMapList);
     } catch (Exception e) {
       logger.error(e.getMessage(), e);
       throw new ProcessResponseException(e.getMessage());
+    } finally {
+      firestoreClientProvider.recordRequest("getActivityResponseDataForParticipant", startNanos);
     }
-    return null;
   }
 
   @Override
@@ -180,40 +181,18 @@ public class CloudFirestoreResponsesDaoImpl implements ResponsesDao {
       String activitiesCollectionName,
       String participantId)
       throws ProcessResponseException {
-    try {
-      logger.entry("begin deleteActivityResponseDataForParticipant()");
-      initializeFirestore();
-      final Query activitiesQueryByParticipantId =
-          this.responsesDb
-              .collection(studyCollectionName)
-              .document(studyId)
-              .collection(AppConstants.ACTIVITIES_COLLECTION_NAME)
-              .whereEqualTo(AppConstants.PARTICIPANT_ID_KEY, participantId);
-
-      final ApiFuture<QuerySnapshot> querySnapshot = activitiesQueryByParticipantId.get();
-      List<QueryDocumentSnapshot> documents;
-
-      documents = querySnapshot.get().getDocuments();
-
-      WriteBatch deleteBatch = this.responsesDb.batch();
-      int batchCount = 0;
-      for (QueryDocumentSnapshot document : documents) {
-        deleteBatch.delete(document.getReference());
-        batchCount++;
-        // Firestore - Each transaction or batch of writes can write to a maximum of 500 documents.
-        if (batchCount == AppConstants.FS_BATCH_COMMIT_LIMIT) {
-          deleteBatch.commit();
-          // Reset the batch, once it has been committed, so it is available again
-          deleteBatch = this.responsesDb.batch();
-          batchCount = 0;
-        }
-      }
-      deleteBatch.commit();
-
-    } catch (Exception e) {
-      logger.error(e.getMessage(), e);
-      throw new ProcessResponseException(e.getMessage());
-    }
+    logger.entry("begin deleteActivityResponseDataForParticipant()");
+    long deleted =
+        writeParticipantResponses(
+            studyCollectionName,
+            studyId,
+            participantId,
+            DELETE_OPERATION,
+            (batch, document) -> batch.delete(document));
+    logger.debug(
+        String.format(
+            "%d response(s) of participant %s deleted from study %s",
+            deleted, participantId, studyId));
   }
 
   @Override
@@ -221,38 +200,91 @@ public class CloudFirestoreResponsesDaoImpl implements ResponsesDao {
       String studyCollectionName, String studyId, String participantId)
       throws ProcessResponseException {
     logger.entry("begin updateWithdrawalStatusForParticipant()");
+    long updated =
+        writeParticipantResponses(
+            studyCollectionName,
+            studyId,
+            participantId,
+            WITHDRAW_OPERATION,
+            (batch, document) -> batch.update(document, AppConstants.WITHDRAWAL_STATUS_KEY, true));
+    logger.debug(
+        String.format(
+            "%d response(s) of participant %s flagged as withdrawn in study %s",
+            updated, participantId, studyId));
+  }
+
+  /**
+   * Applies the write to every response document of the participant, page by page, keeping up to
+   * response.firestore.max.inflight.batches batch commits in flight. Progress is checkpointed in
+   * the study's ResponseCheckpoints collection, so a call that fails or is cut short by a restart
+   * resumes where it stopped when it is repeated.
+   */
+  private long writeParticipantResponses(
+      String studyCollectionName,
+      String studyId,
+      String participantId,
+      String operation,
+      BiConsumer<WriteBatch, DocumentReference> write)
+      throws ProcessResponseException {
+    long startNanos = System.nanoTime();
     try {
-      initializeFirestore();
+      Firestore responsesDb = firestoreClientProvider.getFirestore();
+      DocumentReference studyDocument =
+          responsesDb.collection(studyCollectionName).document(studyId);
       final Query activitiesQueryByParticipantId =
-          this.responsesDb
-              .collection(studyCollectionName)
-              .document(studyId)
+          studyDocument
               .collection(AppConstants.ACTIVITIES_COLLECTION_NAME)
-              .whereEqualTo(AppConstants.PARTICIPANT_ID_KEY, participantId);
-
-      final ApiFuture<QuerySnapshot> querySnapshot = activitiesQueryByParticipantId.get();
-      List<QueryDocumentSnapshot> documents;
-
-      documents = querySnapshot.get().getDocuments();
-
-      WriteBatch updateBatch = this.responsesDb.batch();
-      int batchCount = 0;
-      for (QueryDocumentSnapshot document : documents) {
-
-        updateBatch.update(document.getReference(), AppConstants.WITHDRAWAL_STATUS_KEY, true);
-        batchCount++;
-        // Firestore - Each transaction or batch of writes can write to a maximum of 500 documents.
-        if (batchCount == AppConstants.FS_BATCH_COMMIT_LIMIT) {
-          updateBatch.commit();
-          // Reset the batch, once it has been committed, so it is available again
-          updateBatch = this.responsesDb.batch();
-          batchCount = 0;
-        }
+              .whereEqualTo(AppConstants.PARTICIPANT_ID_KEY, participantId)
+              .orderBy(FieldPath.documentId());
+      DocumentReference checkpoint =
+          studyDocument
+              .collection(AppConstants.CHECKPOINTS_COLLECTION_NAME)
+              .document(operation + AppConstants.HYPHEN + participantId);
+
+      String startAfterId = checkpoint.get().get().getString(LAST_DOCUMENT_ID_KEY);
+      if (startAfterId != null) {
+        logger.info(
+            String.format(
+                "resuming %s of participant %s responses after document %s",
+                operation, participantId, startAfterId));
       }
-      updateBatch.commit();
+
+      // Firestore - Each transaction or batch of writes can write to a maximum of 500 documents.
+      PagedBatchWriter<QueryDocumentSnapshot> batchWriter =
+          new PagedBatchWriter<>(
+              Math.min(appConfig.getFirestorePageSize(), AppConstants.FS_BATCH_COMMIT_LIMIT),
+              appConfig.getFirestoreMaxInFlightBatches(),
+              QueryDocumentSnapshot::getId);
+      long written =
+          batchWriter.run(
+              startAfterId,
+              (lastId, pageSize) -> {
+                Query page = activitiesQueryByParticipantId.limit(pageSize);
+                if (lastId != null) {
+                  page = page.startAfter(lastId);
+                }
+                return page.get().get().getDocuments();
+              },
+              documents -> {
+                WriteBatch batch = responsesDb.batch();
+                for (QueryDocumentSnapshot document : documents) {
+                  write.accept(batch, document.getReference());
+                }
+                return batch.commit();
+              },
+              lastCommittedId -> {
+                Map<String, Object> checkpointData = new HashMap<>();
+                checkpointData.put(LAST_DOCUMENT_ID_KEY, lastCommittedId);
+                checkpointData.put(UPDATED_TS_KEY, System.currentTimeMillis());
+                checkpoint.set(checkpointData).get();
+              });
+      checkpoint.delete().get();
+      return written;
     } catch (Exception e) {
       logger.error(e.getMessage(), e);
       throw new ProcessResponseException(e.getMessage());
+    } finally {
+      firestoreClientProvider.recordRequest(operation, startNanos);
     }
   }
 
@@ -264,7 +296,7 @@ public class CloudFirestoreResponsesDaoImpl implements ResponsesDao {
       String activityId)
       throws ProcessResponseException {
     logger.entry("begin getResponseDataScenarios()");
-    initializeFirestore();
+    Firestore responsesDb = firestoreClientProvider.getFirestore();
     // Sample queries
     // This is example code, to retrieve the response.
     // Do something with the response, based on the implementation
@@ -272,7 +304,7 @@ public class CloudFirestoreResponsesDaoImpl implements ResponsesDao {
     // 1. Get response data for an activity for a study
     try {
       final Query queryByActivity =
-          this.responsesDb
+          responsesDb
               .collection(studyCollectionName)
               .document(studyId)
               .collection(AppConstants.ACTIVITIES_COLLECTION_NAME)
@@ -287,7 +319,7 @@ public class CloudFirestoreResponsesDaoImpl implements ResponsesDao {
     // 2. Get response data for all activities, by participant Id
     try {
       final Query queryParticipant =
-          this.responsesDb
+          responsesDb
               .collection(studyCollectionName)
               .document(studyId)
               .collection(AppConstants.ACTIVITIES_COLLECTION_NAME)
@@ -302,7 +334,7 @@ public class CloudFirestoreResponsesDaoImpl implements ResponsesDao {
     // 3. Get response data for all activities, by site Id
     try {
       final Query querySite =
-          this.responsesDb
+          responsesDb
               .collection(studyCollectionName)
               .document(studyId)
               .collection(AppConstants.ACTIVITIES_COLLECTION_NAME)
@@ -316,7 +348,7 @@ public class CloudFirestoreResponsesDaoImpl implements ResponsesDao {
     // 4. Get response data by activity id, by site Id
     try {
       final Query activitiesQueryById =
-          this.responsesDb
+          responsesDb
               .collection(studyCollectionName)
               .document(studyId)
               .collection(AppConstants.ACTIVITIES_COLLECTION_NAME)
@@ -340,149 +372,4 @@ public class CloudFirestoreResponsesDaoImpl implements ResponsesDao {
     }
     return responseListRet;
   }
-
-  private void initializeFirestore() {
-    if (this.responsesDb == null) {
-      logger.debug("In CloudFirestoreResponsesDaoImpl constructor, initializing Firestore");
-      FirestoreOptions firestoreOptions =
-          FirestoreOptions.getDefaultInstance()
-              .toBuilder()
-              .setProjectId(appConfig.getFirestoreProjectId())
-              .build();
-      logger.debug("In CloudFirestoreResponsesDaoImpl constructor, Firestore Options initialized");
-      this.responsesDb = firestoreOptions.getService();
-      logger.debug("In CloudFirestoreResponsesDaoImpl constructor, Firestore DB initialized");
-    }
-  }
-
-  private StoredResponseBean convertResponseDataToBean(
-      String participantId,
-      List<Map<String, Object>> activityResponseMapList,
-      StoredResponseBean storedResponseBean) {
-    logger.entry("begin convertResponseDataToBean()");
-    List<ResponseRows> responsesList = new ArrayList<>();
-    for (Map<String, Object> activityResponseMap : activityResponseMapList) {
-      ResponseRows responsesRow = new ResponseRows();
-      // Add participant Id
-      Map<Object, Object> mapPartId = new HashMap<>();
-      Map<Object, Object> mapPartIdValue = new HashMap<>();
-      mapPartIdValue.put(AppConstants.VALUE_KEY_STR, participantId);
-      mapPartId.put(AppConstants.PARTICIPANT_ID_RESPONSE, mapPartIdValue);
-      responsesRow.getData().add(mapPartId);
-
-      // Add Created Timestamp
-      Map<Object, Object> mapTS = new HashMap<>();
-      Map<Object, Object> mapTsValue = new HashMap<>();
-
-      // Format timestamp to date
-      long timestampFromResponse = 0;
-      try {
-        timestampFromResponse =
-            Long.parseLong((String) activityResponseMap.get(AppConstants.CREATED_TS_KEY));
-
-        DateFormat simpleDateFormat = new SimpleDateFormat(AppConstants.ISO_DATE_FORMAT_RESPONSE);
-        String formattedDate = simpleDateFormat.format(timestampFromResponse);
-        mapTsValue.put(AppConstants.VALUE_KEY_STR, formattedDate);
-
-      } catch (NumberFormatException ne) {
-        logger.error(
-            "Could not format createdTimestamp field to long. createdTimestamp value is: "
-                + timestampFromResponse);
-        mapTsValue.put(AppConstants.VALUE_KEY_STR, String.valueOf(timestampFromResponse));
-      }
-
-      mapTS.put(AppConstants.CREATED_RESPONSE, mapTsValue);
-      responsesRow.getData().add(mapTS);
-      SavedActivityResponse savedActivityResponse =
-          new Gson().fromJson(new Gson().toJson(activityResponseMap), SavedActivityResponse.class);
-      List<Object> results = savedActivityResponse.getResults();
-      this.addResponsesToMap(responsesRow, results);
-      responsesList.add(responsesRow);
-      storedResponseBean.setRows(responsesList);
-    }
-    if (storedResponseBean.getRows() != null) {
-      storedResponseBean.setRowCount(storedResponseBean.getRows().size());
-    }
-    return storedResponseBean;
-  }
-
-  private void addResponsesToMap(ResponseRows responsesRow, List<Object> results) {
-    logger.entry("begin addResponsesToMap()");
-    if (results != null) {
-      for (Object result : results) {
-        if (result instanceof Map) {
-          Map<String, Object> mapResult = (Map<String, Object>) result;
-          String questionResultType = (String) mapResult.get(AppConstants.RESULT_TYPE_KEY);
-          String questionIdKey = null;
-          String questionValue = null;
-          Map<Object, Object> tempMapForQuestions = new HashMap<>();
-          Map<Object, Object> tempMapQuestionsValue = new HashMap<>();
-
-          if (!StringUtils.isBlank(questionResultType)) {
-            if (questionResultType.equalsIgnoreCase(AppConstants.GROUPED_FIELD_KEY)) {
-              Map<String, Object> resultsForm =
-                  (Map<String, Object>) mapResult.get("actvityValueGroup");
-              List<Object> obj = (List<Object>) resultsForm.get("results");
-              this.addResponsesToMap(responsesRow, obj);
-
-            } else {
-              questionIdKey = (String) mapResult.get(AppConstants.QUESTION_ID_KEY);
-              questionValue = (String) mapResult.get(AppConstants.VALUE_KEY_STR);
-              if (StringUtils.containsIgnoreCase(
-                      appConfig.getResponseSupportedQTypeDouble(), questionResultType)
-                  && !StringUtils.isBlank(questionValue)) {
-                Double questionValueDouble = null;
-                try {
-                  questionValueDouble = Double.parseDouble(questionValue);
-                  tempMapQuestionsValue.put(AppConstants.VALUE_KEY_STR, questionValueDouble);
-                  tempMapForQuestions.put(questionIdKey, tempMapQuestionsValue);
-                  responsesRow.getData().add(tempMapForQuestions);
-                } catch (NumberFormatException e) {
-                  logger.error(
-                      "Could not format value to Double. Value input string is: " + questionValue);
-                }
-              } else if (StringUtils.containsIgnoreCase(
-                      appConfig.getResponseSupportedQTypeDate(), questionResultType)
-                  && !StringUtils.isBlank(questionValue)) {
-                tempMapQuestionsValue.put(AppConstants.VALUE_KEY_STR, questionValue);
-                tempMapForQuestions.put(questionIdKey, tempMapQuestionsValue);
-                responsesRow.getData().add(tempMapForQuestions);
-              } else {
-                if (appConfig.getSupportStringResponse().equalsIgnoreCase(AppConstants.TRUE_STR)
-                    && StringUtils.containsIgnoreCase(
-                        appConfig.getResponseSupportedQTypeString(), questionResultType)
-                    && !StringUtils.isBlank(questionValue)) {
-                  tempMapQuestionsValue.put(AppConstants.VALUE_KEY_STR, questionValue);
-                  tempMapForQuestions.put(questionIdKey, tempMapQuestionsValue);
-                  responsesRow.getData().add(tempMapForQuestions);
-                }
-              }
-            }
-          }
-        }
-      }
-    }
-  }
-
-  private List<Map<String, Object>> filterResponseListByTimestamp(
-      List<Map<String, Object>> activityResponseMapList) {
-
-    activityResponseMapList.sort(
-        Comparator.nullsLast(
-            Comparator.comparing(
-                m -> Long.parseLong((String) m.get(AppConstants.CREATED_TS_KEY)),
-                Comparator.nullsLast(Comparator.reverseOrder()))));
-    // Get the latest response for activityId, bases on ordering by timestamp value
-    activityResponseMapList = Arrays.asList(activityResponseMapList.get(0));
-
-    return activityResponseMapList;
-  }
-
-  private StoredResponseBean initStoredResponseBean() {
-    StoredResponseBean retStoredResponseBean = new StoredResponseBean();
-    List<String> schemaNameList = Arrays.asList(AppConstants.RESPONSE_DATA_SCHEMA_NAME_LEGACY);
-    retStoredResponseBean.setSchemaName(schemaNameList);
-    retStoredResponseBean.setQueryName(AppConstants.RESPONSE_DATA_QUERY_NAME_LEGACY);
-    return retStoredResponseBean;
-  }
 }
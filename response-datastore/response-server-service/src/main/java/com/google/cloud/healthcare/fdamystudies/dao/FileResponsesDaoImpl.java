@@ -9,76 +9,74 @@
 package com.google.cloud.healthcare.fdamystudies.dao;
 
 import com.google.cloud.healthcare.fdamystudies.bean.StoredResponseBean;
-import com.google.cloud.healthcare.fdamystudies.config.ApplicationConfiguration;
+import com.google.cloud.healthcare.fdamystudies.dao.ResponseSegmentStore.StoredResponse;
 import com.google.cloud.healthcare.fdamystudies.utils.AppConstants;
 import com.google.cloud.healthcare.fdamystudies.utils.ProcessResponseException;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.PreDestroy;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.ext.XLogger;
 import org.slf4j.ext.XLoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Repository;
 
+/**
+ * Stores response data on the local file system, selected with response.storage.type=file. Each
+ * study keeps its responses in a {@link ResponseSegmentStore} under {@code
+ * <response.data.file.path>/<studyId>/Activities}, next to the study metadata document.
+ */
 @Repository
 @Qualifier("fileResponsesDaoImpl")
-public class FileResponsesDaoImpl implements ResponsesDao {
-  @Autowired private ApplicationConfiguration appConfig;
+public class FileResponsesDaoImpl extends BaseResponsesDaoImpl {
 
   private XLogger logger = XLoggerFactory.getXLogger(FileResponsesDaoImpl.class.getName());
 
+  private final ConcurrentMap<String, ResponseSegmentStore> stores = new ConcurrentHashMap<>();
+
   @Override
   public void saveStudyMetadata(
       String studyCollectionName, String studyId, Map<String, Object> dataToStore)
       throws ProcessResponseException {
-    if (studyCollectionName != null && dataToStore != null) {
-      try {
-
-        logger.info("saveStudyMetadata() : \n Study Collection Name: " + studyCollectionName);
-        // Implement save of responses data
-        Gson gson = new GsonBuilder().setPrettyPrinting().create();
-        String studyMetadataJsonStr = gson.toJson(dataToStore);
-        String studyDirName = appConfig.getResponseDataFilePath() + studyId;
-        Path studyDirPath = Paths.get(studyDirName);
-        if (!Files.exists(studyDirPath)) {
-          Files.createDirectories(studyDirPath);
-        }
-
-        Files.write(
-            Paths.get(
-                studyDirPath
-                    + AppConstants.FILE_SEPARATOR
-                    + studyCollectionName
-                    + AppConstants.JSON_FILE_EXTENSION),
-            studyMetadataJsonStr.getBytes(),
-            StandardOpenOption.CREATE,
-            StandardOpenOption.TRUNCATE_EXISTING);
-        logger.debug(
-            "saveStudyMetadata() : \n Study Collection Name: "
-                + studyCollectionName
-                + " save successfully. Path to StudyMetadata file: "
-                + appConfig.getResponseDataFilePath()
-                + studyCollectionName
-                + studyDirPath
-                + AppConstants.FILE_SEPARATOR
-                + studyCollectionName
-                + AppConstants.JSON_FILE_EXTENSION);
-
-      } catch (Exception e) {
-        logger.error(e.getMessage(), e);
-        throw new ProcessResponseException(e.getMessage());
-      }
-    }
-    {
+    if (studyCollectionName == null || studyId == null || dataToStore == null) {
       throw new ProcessResponseException(
           "FileResponsesDaoImpl.saveStudyMetadata() - "
               + "Study Collection is null or dataToStore is null");
     }
+
+    try {
+      logger.info("saveStudyMetadata() : \n Study Collection Name: " + studyCollectionName);
+      Gson gson = new GsonBuilder().setPrettyPrinting().create();
+      Path studyDirPath = getStudyDirPath(studyId);
+      Files.createDirectories(studyDirPath);
+      Path studyMetadataPath =
+          studyDirPath.resolve(studyCollectionName + AppConstants.JSON_FILE_EXTENSION);
+      Files.write(
+          studyMetadataPath,
+          gson.toJson(dataToStore).getBytes(StandardCharsets.UTF_8),
+          StandardOpenOption.CREATE,
+          StandardOpenOption.TRUNCATE_EXISTING);
+      logger.debug(
+          "saveStudyMetadata() : \n Study Collection Name: "
+              + studyCollectionName
+              + " save successfully. Path to StudyMetadata file: "
+              + studyMetadataPath);
+    } catch (Exception e) {
+      logger.error(e.getMessage(), e);
+      throw new ProcessResponseException(e.getMessage());
+    }
   }
 
   @Override
@@ -90,65 +88,61 @@ public class FileResponsesDaoImpl implements ResponsesDao {
       String activityId,
       String questionKey)
       throws ProcessResponseException {
-    // Unimplemeted method. A reference implementation has been provided for Cloud Firestore
-    throw new ProcessResponseException(
-        "Unimplemented method. Needs to be implemented with a datastore");
+    logger.entry("begin getActivityResponseDataForParticipant()");
+    try {
+      List<Map<String, Object>> activityResponseMapList = new ArrayList<>();
+      for (StoredResponse response : getStore(studyId).find(participantId, siteId, activityId)) {
+        Map<String, Object> activityResponseMap = response.getData();
+        if (StringUtils.isNotBlank(questionKey)
+            && !containsQuestion(
+                activityResponseMap.get(AppConstants.RESULTS_FIELD_KEY), questionKey)) {
+          continue;
+        }
+        if (response.isWithdrawn()) {
+          activityResponseMap.put(AppConstants.WITHDRAWAL_STATUS_KEY, true);
+        }
+        activityResponseMapList.add(activityResponseMap);
+      }
+      return toStoredResponseBean(participantId, activityResponseMapList);
+    } catch (Exception e) {
+      logger.error(e.getMessage(), e);
+      throw new ProcessResponseException(e.getMessage());
+    }
   }
 
   @Override
   public void saveActivityResponseData(
-      String studyCollectionName,
       String studyId,
+      String studyCollectionName,
       String activitiesCollectionName,
       Map<String, Object> dataToStoreActivityResults)
       throws ProcessResponseException {
-    // The conversion of the response data to a file is provided as sample implementation.
-    // Implementors should use the file representation of the response object or the
-    // JSON representation of the response object to store the responses in a suitable data store
-    if (studyCollectionName != null && dataToStoreActivityResults != null) {
-      try {
-        logger.info(
-            "saveActivityResponseData() : \n Study Collection Name: " + studyCollectionName);
-        Gson gson = new Gson();
-        StringBuilder studyResponseDataJsonStr = new StringBuilder();
-        studyResponseDataJsonStr.append(gson.toJson(dataToStoreActivityResults));
-
-        String studyDirName = appConfig.getResponseDataFilePath() + studyId;
-        Path studyDirPath = Paths.get(studyDirName);
-        if (!Files.exists(studyDirPath)) {
-          Files.createDirectories(studyDirPath);
-        }
-        Files.write(
-            Paths.get(
-                studyDirPath
-                    + AppConstants.FILE_SEPARATOR
-                    + studyCollectionName
-                    + AppConstants.HYPHEN
-                    + System.currentTimeMillis()
-                    + AppConstants.JSON_FILE_EXTENSION),
-            studyResponseDataJsonStr.toString().getBytes(),
-            StandardOpenOption.CREATE);
-        logger.debug(
-            "saveActivityResponseData() : \n Document in study collection: "
-                + studyCollectionName
-                + " with document ID. Path to StudyMetadata file: \n"
-                + studyDirPath
-                + AppConstants.FILE_SEPARATOR
-                + studyCollectionName
-                + AppConstants.HYPHEN
-                + System.currentTimeMillis()
-                + AppConstants.JSON_FILE_EXTENSION);
-      } catch (Exception e) {
-        logger.error(e.getMessage(), e);
-        throw new ProcessResponseException(
-            "FileResponsesDaoImpl.saveActivityResponseData() - "
-                + "Exception when saving data to file storage: "
-                + e.getMessage());
-      }
-    } else {
+    if (studyId == null || dataToStoreActivityResults == null) {
+      throw new ProcessResponseException(
+          "FileResponsesDaoImpl.saveActivityResponseData() - "
+              + "Study Id is null or dataToStoreResults is null");
+    }
+
+    try {
+      logger.info("saveActivityResponseData() : \n Study Collection Name: " + studyCollectionName);
+      String responseId =
+          getStore(studyId)
+              .put(
+                  (String) dataToStoreActivityResults.get(AppConstants.PARTICIPANT_ID_KEY),
+                  (String) dataToStoreActivityResults.get(AppConstants.SITE_ID_KEY),
+                  (String) dataToStoreActivityResults.get(AppConstants.ACTIVITY_ID_KEY),
+                  dataToStoreActivityResults);
+      logger.debug(
+          "saveActivityResponseData() : \n Response "
+              + responseId
+              + " saved in study collection: "
+              + studyCollectionName);
+    } catch (Exception e) {
+      logger.error(e.getMessage(), e);
       throw new ProcessResponseException(
           "FileResponsesDaoImpl.saveActivityResponseData() - "
-              + "Study Collection is null or dataToStoreResults is null");
+              + "Exception when saving data to file storage: "
+              + e.getMessage());
     }
   }
 
@@ -159,18 +153,111 @@ public class FileResponsesDaoImpl implements ResponsesDao {
       String activitiesCollectionName,
       String participantId)
       throws ProcessResponseException {
-    // Unimplemeted method. A reference implementation has been provided for Cloud Firestore
-    // Implementation of the query to return response data, goes here
-    throw new ProcessResponseException(
-        "Unimplemented method. Needs to be implemented with a datastore");
+    logger.entry("begin deleteActivityResponseDataForParticipant()");
+    try {
+      int deleted = getStore(studyId).deleteParticipant(participantId);
+      logger.debug(
+          String.format(
+              "%d response(s) of participant %s deleted from study %s",
+              deleted, participantId, studyId));
+    } catch (Exception e) {
+      logger.error(e.getMessage(), e);
+      throw new ProcessResponseException(e.getMessage());
+    }
   }
 
   @Override
   public void updateWithdrawalStatusForParticipant(
       String studyCollectionName, String studyId, String participantId)
       throws ProcessResponseException {
-    // Unimplemeted method. A reference implementation has been provided for Cloud Firestore
-    throw new ProcessResponseException(
-        "Unimplemented method. Needs to be implemented with a datastore");
+    logger.entry("begin updateWithdrawalStatusForParticipant()");
+    try {
+      int withdrawn = getStore(studyId).withdrawParticipant(participantId);
+      logger.debug(
+          String.format(
+              "%d response(s) of participant %s flagged as withdrawn in study %s",
+              withdrawn, participantId, studyId));
+    } catch (Exception e) {
+      logger.error(e.getMessage(), e);
+      throw new ProcessResponseException(e.getMessage());
+    }
+  }
+
+  /**
+   * Compacts every open study store that has accumulated the configured number of sealed segments,
+   * or whose sealed segments hold the configured share of deleted records.
+   */
+  public void compactSegments() {
+    for (Map.Entry<String, ResponseSegmentStore> entry : stores.entrySet()) {
+      ResponseSegmentStore store = entry.getValue();
+      if (store.getSealedSegmentCount() < appConfig.getFileStoreCompactionMinSegments()
+          && store.getGarbageRatio() < appConfig.getFileStoreCompactionGarbageRatio()) {
+        continue;
+      }
+      try {
+        store.compact();
+      } catch (IOException e) {
+        logger.error(String.format("failed to compact responses of study %s", entry.getKey()), e);
+      }
+    }
+  }
+
+  @PreDestroy
+  public void closeStores() {
+    for (ResponseSegmentStore store : stores.values()) {
+      try {
+        store.close();
+      } catch (IOException e) {
+        logger.error("failed to close response store", e);
+      }
+    }
+    stores.clear();
+  }
+
+  private ResponseSegmentStore getStore(String studyId) throws IOException {
+    try {
+      return stores.computeIfAbsent(
+          studyId,
+          id -> {
+            try {
+              return new ResponseSegmentStore(
+                  getStudyDirPath(id).resolve(AppConstants.ACTIVITIES_COLLECTION_NAME),
+                  appConfig.getFileStoreSegmentMaxBytes());
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private Path getStudyDirPath(String studyId) {
+    return Paths.get(appConfig.getResponseDataFilePath(), studyId);
+  }
+
+  /** Returns true when a result, or a result of a grouped step, answers the given question. */
+  private static boolean containsQuestion(Object results, String questionKey) {
+    if (!(results instanceof List)) {
+      return false;
+    }
+    for (Object result : (List<?>) results) {
+      if (!(result instanceof Map)) {
+        continue;
+      }
+      Map<?, ?> mapResult = (Map<?, ?>) result;
+      Object resultQuestionKey = mapResult.get(AppConstants.QUESTION_ID_KEY);
+      if (resultQuestionKey instanceof String
+          && questionKey.equalsIgnoreCase((String) resultQuestionKey)) {
+        return true;
+      }
+      Object valueGroup = mapResult.get("actvityValueGroup");
+      if (valueGroup instanceof Map
+          && containsQuestion(
+              ((Map<?, ?>) valueGroup).get(AppConstants.RESULTS_FIELD_KEY), questionKey)) {
+        return true;
+      }
+    }
+    return false;
   }
 }
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.dao;
+
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.FirestoreOptions;
+import com.google.cloud.healthcare.fdamystudies.config.ApplicationConfiguration;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Owns the Firestore client shared by the response DAOs. When response.firestore.startup.init is
+ * set and responses are stored in Firestore, the client is created, and a warm-up read opens its
+ * channels, while the application starts; otherwise it is created on first use. The client is
+ * closed on shutdown.
+ *
+ * <p>Client creation, warm-up and request latencies are logged and published as the
+ * firestore.client.startup and firestore.request timers.
+ */
+@Component
+public class FirestoreClientProvider {
+
+  private XLogger logger = XLoggerFactory.getXLogger(FirestoreClientProvider.class.getName());
+
+  private static final String WARMUP_COLLECTION_NAME = "Warmup";
+
+  @Autowired private ApplicationConfiguration appConfig;
+
+  @Autowired private ObjectProvider<MeterRegistry> meterRegistry;
+
+  private final AtomicBoolean firstRequest = new AtomicBoolean(true);
+
+  private volatile Firestore firestore;
+
+  @PostConstruct
+  public void init() {
+    if (appConfig.isFirestoreStartupInit()
+        && !"file".equalsIgnoreCase(appConfig.getResponseStorageType())) {
+      getFirestore();
+      warmUp();
+    }
+  }
+
+  public Firestore getFirestore() {
+    Firestore client = firestore;
+    if (client == null) {
+      synchronized (this) {
+        client = firestore;
+        if (client == null) {
+          long startNanos = System.nanoTime();
+          client = createFirestore();
+          firestore = client;
+          long elapsedNanos = recordStartup("create", startNanos);
+          logger.info(
+              String.format(
+                  "Firestore client created in %d ms, channel pool size %d",
+                  TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                  appConfig.getFirestoreChannelPoolSize()));
+        }
+      }
+    }
+    return client;
+  }
+
+  /** Records the latency of a DAO request, and logs it for the first request served. */
+  public void recordRequest(String operation, long startNanos) {
+    long elapsedNanos = System.nanoTime() - startNanos;
+    meterRegistry.ifAvailable(
+        registry ->
+            Timer.builder("firestore.request")
+                .tag("operation", operation)
+                .register(registry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS));
+    if (firstRequest.compareAndSet(true, false)) {
+      logger.info(
+          String.format(
+              "first Firestore request (%s) completed in %d ms",
+              operation, TimeUnit.NANOSECONDS.toMillis(elapsedNanos)));
+    }
+  }
+
+  @PreDestroy
+  public synchronized void close() {
+    if (firestore != null) {
+      try {
+        firestore.close();
+      } catch (Exception e) {
+        logger.error("failed to close Firestore client", e);
+      }
+      firestore = null;
+    }
+  }
+
+  private Firestore createFirestore() {
+    FirestoreOptions firestoreOptions =
+        FirestoreOptions.getDefaultInstance()
+            .toBuilder()
+            .setProjectId(appConfig.getFirestoreProjectId())
+            .setChannelProvider(
+                FirestoreOptions.getDefaultTransportChannelProviderBuilder()
+                    .setPoolSize(appConfig.getFirestoreChannelPoolSize())
+                    .build())
+            .build();
+    return firestoreOptions.getService();
+  }
+
+  /**
+   * Reads a document that does not need to exist, so credentials are fetched and the channels are
+   * connected before the first participant request. A failure is logged and left to the first
+   * request to surface.
+   */
+  private void warmUp() {
+    long startNanos = System.nanoTime();
+    try {
+      firestore
+          .collection(WARMUP_COLLECTION_NAME)
+          .document(WARMUP_COLLECTION_NAME)
+          .get()
+          .get(appConfig.getFirestoreWarmupTimeoutMs(), TimeUnit.MILLISECONDS);
+      long elapsedNanos = recordStartup("warmup", startNanos);
+      logger.info(
+          String.format(
+              "Firestore client warmed up in %d ms", TimeUnit.NANOSECONDS.toMillis(elapsedNanos)));
+    } catch (Exception e) {
+      logger.warn("Firestore warm-up request failed", e);
+    }
+  }
+
+  private long recordStartup(String phase, long startNanos) {
+    long elapsedNanos = System.nanoTime() - startNanos;
+    meterRegistry.ifAvailable(
+        registry ->
+            Timer.builder("firestore.client.startup")
+                .tag("phase", phase)
+                .register(registry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS));
+    return elapsedNanos;
+  }
+}
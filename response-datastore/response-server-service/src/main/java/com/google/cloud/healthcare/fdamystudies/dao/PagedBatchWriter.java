@@ -0,0 +1,207 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.dao;
+
+import com.google.api.core.ApiFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+
+/**
+ * Applies a batch write to every document of a query, one page at a time, with a bounded number of
+ * batch commits in flight.
+ *
+ * <p>Pages are read in document id order with a cursor, so only the pages of the batches in flight
+ * are held in memory. After each page, the id of the last document of the longest run of committed
+ * batches is saved as a checkpoint. A run that fails or is interrupted can be resumed from that
+ * checkpoint without writing the documents before it again.
+ */
+public class PagedBatchWriter<D> {
+
+  private XLogger logger = XLoggerFactory.getXLogger(PagedBatchWriter.class.getName());
+
+  /** Reads up to pageSize documents ordered by id, after the given id or from the start if null. */
+  @FunctionalInterface
+  public interface PageReader<D> {
+    List<D> read(String startAfterId, int pageSize) throws Exception;
+  }
+
+  /** Starts committing one batch write for the given documents. */
+  @FunctionalInterface
+  public interface BatchCommitter<D> {
+    ApiFuture<?> commit(List<D> documents);
+  }
+
+  /** Records the id of the last document up to which every batch has been committed. */
+  @FunctionalInterface
+  public interface CheckpointWriter {
+    void save(String lastCommittedId) throws Exception;
+  }
+
+  private final int pageSize;
+
+  private final int maxInFlightBatches;
+
+  private final Function<D, String> idOf;
+
+  public PagedBatchWriter(int pageSize, int maxInFlightBatches, Function<D, String> idOf) {
+    this.pageSize = pageSize;
+    this.maxInFlightBatches = maxInFlightBatches;
+    this.idOf = idOf;
+  }
+
+  /**
+   * Writes every remaining document and returns how many were committed. Throws the first commit
+   * failure once the batches already in flight have finished and the checkpoint is saved, with a
+   * failure to read a page or to save the checkpoint added as suppressed.
+   */
+  public long run(
+      String startAfterId,
+      PageReader<D> reader,
+      BatchCommitter<D> committer,
+      CheckpointWriter checkpointWriter)
+      throws Exception {
+    Semaphore inFlight = new Semaphore(maxInFlightBatches);
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    Watermark watermark = new Watermark(startAfterId);
+    String savedCheckpoint = startAfterId;
+    String cursor = startAfterId;
+    AtomicLong written = new AtomicLong();
+    Exception error = null;
+
+    try {
+      while (failure.get() == null) {
+        List<D> page = reader.read(cursor, pageSize);
+        if (page.isEmpty()) {
+          break;
+        }
+
+        inFlight.acquire();
+        cursor = idOf.apply(page.get(page.size() - 1));
+        Batch batch = watermark.add(cursor);
+        int documents = page.size();
+        ApiFuture<?> future;
+        try {
+          future = committer.commit(page);
+        } catch (RuntimeException e) {
+          inFlight.release();
+          throw e;
+        }
+        future.addListener(
+            () -> {
+              try {
+                future.get();
+                written.addAndGet(documents);
+                watermark.complete(batch);
+              } catch (ExecutionException e) {
+                failure.compareAndSet(null, e.getCause());
+              } catch (InterruptedException e) {
+                failure.compareAndSet(null, e);
+              } finally {
+                inFlight.release();
+              }
+            },
+            MoreExecutors.directExecutor());
+
+        savedCheckpoint = saveCheckpoint(checkpointWriter, watermark, savedCheckpoint);
+        if (page.size() < pageSize) {
+          break;
+        }
+      }
+    } catch (Exception e) {
+      error = e;
+    }
+
+    // wait for the batches in flight, so the checkpoint covers everything that was committed
+    inFlight.acquireUninterruptibly(maxInFlightBatches);
+    inFlight.release(maxInFlightBatches);
+
+    Throwable cause = failure.get();
+    if (cause != null) {
+      Exception commitFailure =
+          cause instanceof Exception ? (Exception) cause : new ExecutionException(cause);
+      if (error != null) {
+        commitFailure.addSuppressed(error);
+      }
+      error = commitFailure;
+    }
+    try {
+      saveCheckpoint(checkpointWriter, watermark, savedCheckpoint);
+    } catch (Exception e) {
+      if (error == null) {
+        throw e;
+      }
+      error.addSuppressed(e);
+    }
+    if (error != null) {
+      throw error;
+    }
+    return written.get();
+  }
+
+  private String saveCheckpoint(
+      CheckpointWriter checkpointWriter, Watermark watermark, String savedCheckpoint)
+      throws Exception {
+    String lastCommittedId = watermark.get();
+    if (lastCommittedId != null && !lastCommittedId.equals(savedCheckpoint)) {
+      checkpointWriter.save(lastCommittedId);
+      logger.debug("checkpoint saved at document " + lastCommittedId);
+    }
+    return lastCommittedId;
+  }
+
+  /** Tracks the last document id before which every batch has been committed. */
+  private static final class Watermark {
+
+    private final Deque<Batch> pending = new ArrayDeque<>();
+
+    private String lastCommittedId;
+
+    private Watermark(String lastCommittedId) {
+      this.lastCommittedId = lastCommittedId;
+    }
+
+    private synchronized Batch add(String lastId) {
+      Batch batch = new Batch(lastId);
+      pending.addLast(batch);
+      return batch;
+    }
+
+    private synchronized void complete(Batch batch) {
+      batch.committed = true;
+      // batches may finish out of order, the watermark only moves over a committed prefix
+      while (!pending.isEmpty() && pending.peekFirst().committed) {
+        lastCommittedId = pending.removeFirst().lastId;
+      }
+    }
+
+    private synchronized String get() {
+      return lastCommittedId;
+    }
+  }
+
+  private static final class Batch {
+
+    private final String lastId;
+
+    private boolean committed;
+
+    private Batch(String lastId) {
+      this.lastId = lastId;
+    }
+  }
+}
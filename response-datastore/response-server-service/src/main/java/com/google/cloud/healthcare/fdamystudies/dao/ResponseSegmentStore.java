@@ -0,0 +1,609 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.dao;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+
+/**
+ * Append-only store for the activity responses of one study.
+ *
+ * <p>Responses, participant deletions (tombstones) and withdrawals are appended as JSON lines to
+ * numbered segment files. The active segment is sealed once it reaches {@code maxSegmentBytes}. An
+ * in-memory index, rebuilt from the segments when the store is opened, maps each participant and
+ * activity to the file locations of its live responses, so queries read only the matching records.
+ *
+ * <p>{@link #compact()} rewrites the sealed segments into a new segment that holds only live
+ * responses, with their withdrawal flag applied, and removes the originals once it is in place. The
+ * new segment starts with the tombstones of the compacted segments, so that responses they deleted
+ * stay deleted if some of the originals remain after a crash. These tombstones are dropped by the
+ * next compaction, when the segments before them are gone.
+ */
+public class ResponseSegmentStore implements Closeable {
+
+  private XLogger logger = XLoggerFactory.getXLogger(ResponseSegmentStore.class.getName());
+
+  private static final Pattern SEGMENT_FILE_NAME = Pattern.compile("segment-(\\d{6})\\.log");
+
+  private static final String OP_PUT = "PUT";
+
+  private static final String OP_DELETE_PARTICIPANT = "DELETE_PARTICIPANT";
+
+  private static final String OP_WITHDRAW_PARTICIPANT = "WITHDRAW_PARTICIPANT";
+
+  private static final byte NEW_LINE = '\n';
+
+  private final Gson gson = new Gson();
+
+  private final Path directory;
+
+  private final long maxSegmentBytes;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  // segment id -> segment, in write order
+  private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+
+  // participantId -> activityId -> live responses, in write order
+  private final Map<String, Map<String, List<Location>>> participantIndex = new HashMap<>();
+
+  // response id -> location, used to resolve duplicates while replaying an interrupted compaction
+  private final Map<String, Location> responseIndex = new HashMap<>();
+
+  private Segment activeSegment;
+
+  private FileChannel activeChannel;
+
+  public ResponseSegmentStore(Path directory, long maxSegmentBytes) throws IOException {
+    this.directory = directory;
+    this.maxSegmentBytes = maxSegmentBytes;
+    Files.createDirectories(directory);
+    Files.deleteIfExists(directory.resolve("compaction.tmp"));
+    load();
+  }
+
+  /** Appends a response and returns its id. */
+  public String put(
+      String participantId, String siteId, String activityId, Map<String, Object> data)
+      throws IOException {
+    ResponseRecord record = new ResponseRecord();
+    record.op = OP_PUT;
+    record.id = UUID.randomUUID().toString();
+    record.participantId = participantId;
+    record.siteId = siteId;
+    record.activityId = activityId;
+    record.data = data;
+    byte[] line = toLine(record);
+
+    lock.writeLock().lock();
+    try {
+      long offset = append(line);
+      Location location =
+          new Location(record.id, participantId, siteId, activityId, activeSegment.id);
+      location.offset = offset;
+      location.length = line.length;
+      index(location);
+      activeSegment.liveBytes += line.length;
+      return record.id;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the stored data of a participant's responses to an activity, in write order. A null
+   * siteId matches every site.
+   */
+  public List<StoredResponse> find(String participantId, String siteId, String activityId)
+      throws IOException {
+    lock.readLock().lock();
+    try {
+      List<Location> locations =
+          participantIndex
+              .getOrDefault(participantId, Collections.emptyMap())
+              .getOrDefault(activityId, Collections.emptyList());
+      List<StoredResponse> responses = new ArrayList<>(locations.size());
+      Map<Integer, FileChannel> channels = new HashMap<>();
+      try {
+        for (Location location : locations) {
+          if (siteId != null && !siteId.equals(location.siteId)) {
+            continue;
+          }
+          FileChannel channel = channels.get(location.segmentId);
+          if (channel == null) {
+            channel = FileChannel.open(segments.get(location.segmentId).path);
+            channels.put(location.segmentId, channel);
+          }
+          ResponseRecord record = fromLine(read(channel, location.offset, location.length));
+          responses.add(new StoredResponse(record.data, location.withdrawn));
+        }
+      } finally {
+        for (FileChannel channel : channels.values()) {
+          channel.close();
+        }
+      }
+      return responses;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Appends a tombstone for the participant and returns the number of responses removed. */
+  public int deleteParticipant(String participantId) throws IOException {
+    return appendParticipantRecord(OP_DELETE_PARTICIPANT, participantId);
+  }
+
+  /** Flags the participant's stored responses as withdrawn and returns how many were flagged. */
+  public int withdrawParticipant(String participantId) throws IOException {
+    return appendParticipantRecord(OP_WITHDRAW_PARTICIPANT, participantId);
+  }
+
+  /** Returns the share of sealed segment bytes that belongs to deleted or superseded records. */
+  public double getGarbageRatio() {
+    lock.readLock().lock();
+    try {
+      long size = 0;
+      long liveBytes = 0;
+      for (Segment segment : segments.headMap(activeSegment.id).values()) {
+        size += segment.size;
+        liveBytes += segment.liveBytes;
+      }
+      return size == 0 ? 0 : (double) (size - liveBytes) / size;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public int getSealedSegmentCount() {
+    lock.readLock().lock();
+    try {
+      return segments.headMap(activeSegment.id).size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Merges the sealed segments and the active segment into a new segment holding only their live
+   * responses. Returns false when there was nothing to compact. Writes and queries keep running
+   * while the merged segment is written; only the final swap blocks them.
+   */
+  public synchronized boolean compact() throws IOException {
+    List<Location> liveLocations = new ArrayList<>();
+    TreeMap<Integer, Path> sealedSegments = new TreeMap<>();
+    Set<String> tombstones = new LinkedHashSet<>();
+    int targetId;
+    lock.writeLock().lock();
+    try {
+      if (segments.headMap(activeSegment.id).isEmpty()) {
+        return false;
+      }
+      // Seals the active segment and leaves the id after it free, so the merged segment is
+      // replayed after the segments it replaces and before anything written since
+      targetId = activeSegment.id + 1;
+      rollSegment(targetId + 1);
+      for (Segment segment : segments.headMap(targetId).values()) {
+        sealedSegments.put(segment.id, segment.path);
+        // tombstones of the oldest segment only delete responses in that segment
+        if (segment.id != segments.firstKey()) {
+          tombstones.addAll(segment.tombstones);
+        }
+      }
+      for (Location location : responseIndex.values()) {
+        if (sealedSegments.containsKey(location.segmentId)) {
+          liveLocations.add(location.copy());
+        }
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+
+    // Sealed segments are immutable, so they are read without holding the lock.
+    liveLocations.sort(
+        (a, b) ->
+            a.segmentId != b.segmentId
+                ? Integer.compare(a.segmentId, b.segmentId)
+                : Long.compare(a.offset, b.offset));
+    Path tempPath = directory.resolve("compaction.tmp");
+    Map<String, Location> compactedLocations = new HashMap<>();
+    long compactedSize = 0;
+    try (FileChannel out =
+        FileChannel.open(tempPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+      // The tombstones come first, so they don't delete the responses written after them
+      for (String participantId : tombstones) {
+        ResponseRecord record = new ResponseRecord();
+        record.op = OP_DELETE_PARTICIPANT;
+        record.participantId = participantId;
+        byte[] line = toLine(record);
+        writeFully(out, line);
+        compactedSize += line.length;
+      }
+      Map<Integer, FileChannel> channels = new HashMap<>();
+      try {
+        for (Location location : liveLocations) {
+          FileChannel channel = channels.get(location.segmentId);
+          if (channel == null) {
+            channel = FileChannel.open(sealedSegments.get(location.segmentId));
+            channels.put(location.segmentId, channel);
+          }
+          byte[] line = read(channel, location.offset, location.length);
+          if (location.withdrawn) {
+            ResponseRecord record = fromLine(line);
+            record.withdrawn = true;
+            line = toLine(record);
+          }
+          writeFully(out, line);
+          location.segmentId = targetId;
+          location.offset = compactedSize;
+          location.length = line.length;
+          compactedLocations.put(location.id, location);
+          compactedSize += line.length;
+        }
+      } finally {
+        for (FileChannel channel : channels.values()) {
+          channel.close();
+        }
+      }
+      out.force(true);
+    }
+
+    lock.writeLock().lock();
+    try {
+      // The compacted segments are deleted only once the merged segment is in place. After a crash
+      // in between, the remaining ones are replayed first, then the merged segment, whose
+      // tombstones and copies of the live responses restore the state they had when compacted.
+      Segment target =
+          new Segment(targetId, directory.resolve(String.format("segment-%06d.log", targetId)));
+      Files.move(tempPath, target.path, StandardCopyOption.ATOMIC_MOVE);
+      segments.put(targetId, target);
+      target.size = compactedSize;
+      target.tombstones.addAll(tombstones);
+      for (Map.Entry<Integer, Path> sealedSegment : sealedSegments.entrySet()) {
+        Files.deleteIfExists(sealedSegment.getValue());
+        segments.remove(sealedSegment.getKey());
+      }
+
+      for (Location compacted : compactedLocations.values()) {
+        // responses deleted while compacting stay deleted, their tombstone is in the active segment
+        Location location = responseIndex.get(compacted.id);
+        if (location != null && sealedSegments.containsKey(location.segmentId)) {
+          location.segmentId = compacted.segmentId;
+          location.offset = compacted.offset;
+          location.length = compacted.length;
+          target.liveBytes += compacted.length;
+        }
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+
+    logger.info(
+        String.format(
+            "compacted %d segment(s) of %s into segment %d, %d live responses",
+            sealedSegments.size(), directory, targetId, compactedLocations.size()));
+    return true;
+  }
+
+  @Override
+  public void close() throws IOException {
+    lock.writeLock().lock();
+    try {
+      if (activeChannel != null) {
+        activeChannel.force(false);
+        activeChannel.close();
+        activeChannel = null;
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private int appendParticipantRecord(String op, String participantId) throws IOException {
+    ResponseRecord record = new ResponseRecord();
+    record.op = op;
+    record.participantId = participantId;
+    byte[] line = toLine(record);
+
+    lock.writeLock().lock();
+    try {
+      append(line);
+      if (OP_DELETE_PARTICIPANT.equals(op)) {
+        activeSegment.tombstones.add(participantId);
+      }
+      return apply(record);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Applies a tombstone or withdrawal to the index and returns the number of responses hit. */
+  private int apply(ResponseRecord record) {
+    Map<String, List<Location>> activities = participantIndex.get(record.participantId);
+    if (activities == null) {
+      return 0;
+    }
+
+    int count = 0;
+    if (OP_DELETE_PARTICIPANT.equals(record.op)) {
+      participantIndex.remove(record.participantId);
+      for (List<Location> locations : activities.values()) {
+        for (Location location : locations) {
+          responseIndex.remove(location.id);
+          segments.get(location.segmentId).liveBytes -= location.length;
+          count++;
+        }
+      }
+    } else {
+      for (List<Location> locations : activities.values()) {
+        for (Location location : locations) {
+          location.withdrawn = true;
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  private void index(Location location) {
+    Location previous = responseIndex.put(location.id, location);
+    if (previous != null) {
+      participantIndex.get(previous.participantId).get(previous.activityId).remove(previous);
+      segments.get(previous.segmentId).liveBytes -= previous.length;
+    }
+    participantIndex
+        .computeIfAbsent(location.participantId, k -> new HashMap<>())
+        .computeIfAbsent(location.activityId, k -> new ArrayList<>())
+        .add(location);
+  }
+
+  private long append(byte[] line) throws IOException {
+    if (activeSegment.size >= maxSegmentBytes) {
+      rollSegment(activeSegment.id + 1);
+    }
+    long offset = activeSegment.size;
+    writeFully(activeChannel, line);
+    activeSegment.size += line.length;
+    return offset;
+  }
+
+  private void rollSegment(int id) throws IOException {
+    if (activeChannel != null) {
+      activeChannel.force(false);
+      activeChannel.close();
+    }
+    activeSegment = new Segment(id, directory.resolve(String.format("segment-%06d.log", id)));
+    segments.put(id, activeSegment);
+    activeChannel =
+        FileChannel.open(activeSegment.path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+  }
+
+  private void load() throws IOException {
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "segment-*.log")) {
+      for (Path file : files) {
+        Matcher matcher = SEGMENT_FILE_NAME.matcher(file.getFileName().toString());
+        if (matcher.matches()) {
+          int id = Integer.parseInt(matcher.group(1));
+          segments.put(id, new Segment(id, file));
+        }
+      }
+    }
+
+    for (Segment segment : segments.values()) {
+      replay(segment);
+    }
+
+    if (segments.isEmpty()) {
+      rollSegment(1);
+    } else {
+      activeSegment = segments.lastEntry().getValue();
+      activeChannel = FileChannel.open(activeSegment.path, StandardOpenOption.WRITE);
+      // drops a record that was only partially written before a crash
+      activeChannel.truncate(activeSegment.size);
+      activeChannel.position(activeSegment.size);
+    }
+    logger.info(
+        String.format(
+            "opened response store %s, %d segment(s), %d live responses",
+            directory, segments.size(), responseIndex.size()));
+  }
+
+  /** Rebuilds the index from one segment. */
+  private void replay(Segment segment) throws IOException {
+    byte[] content = Files.readAllBytes(segment.path);
+    int start = 0;
+    for (int i = 0; i < content.length; i++) {
+      if (content[i] != NEW_LINE) {
+        continue;
+      }
+      int length = i + 1 - start;
+      ResponseRecord record;
+      try {
+        record = fromLine(Arrays.copyOfRange(content, start, i + 1));
+      } catch (JsonParseException e) {
+        logger.warn(String.format("skipping unreadable record at %s:%d", segment.path, start), e);
+        start = i + 1;
+        continue;
+      }
+
+      if (OP_PUT.equals(record.op)) {
+        Location location =
+            new Location(
+                record.id, record.participantId, record.siteId, record.activityId, segment.id);
+        location.offset = start;
+        location.length = length;
+        location.withdrawn = Boolean.TRUE.equals(record.withdrawn);
+        index(location);
+        segment.liveBytes += length;
+      } else if (record.op != null) {
+        if (OP_DELETE_PARTICIPANT.equals(record.op)) {
+          segment.tombstones.add(record.participantId);
+        }
+        apply(record);
+      }
+      segment.size = i + 1;
+      start = i + 1;
+    }
+
+    if (start < content.length) {
+      logger.warn(
+          String.format(
+              "ignoring %d bytes of an incomplete record at the end of %s",
+              content.length - start, segment.path));
+    }
+  }
+
+  private byte[] toLine(ResponseRecord record) {
+    byte[] json = gson.toJson(record).getBytes(StandardCharsets.UTF_8);
+    byte[] line = new byte[json.length + 1];
+    System.arraycopy(json, 0, line, 0, json.length);
+    line[json.length] = NEW_LINE;
+    return line;
+  }
+
+  private ResponseRecord fromLine(byte[] line) {
+    return gson.fromJson(new String(line, StandardCharsets.UTF_8), ResponseRecord.class);
+  }
+
+  private static byte[] read(FileChannel channel, long offset, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, offset + buffer.position()) < 0) {
+        throw new IOException("unexpected end of segment at offset " + offset);
+      }
+    }
+    return buffer.array();
+  }
+
+  private static void writeFully(FileChannel channel, byte[] bytes) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  /** A response read from the store. */
+  public static final class StoredResponse {
+
+    private final Map<String, Object> data;
+
+    private final boolean withdrawn;
+
+    private StoredResponse(Map<String, Object> data, boolean withdrawn) {
+      this.data = data;
+      this.withdrawn = withdrawn;
+    }
+
+    public Map<String, Object> getData() {
+      return data;
+    }
+
+    public boolean isWithdrawn() {
+      return withdrawn;
+    }
+  }
+
+  private static final class Segment {
+
+    private final int id;
+
+    private final Path path;
+
+    private long size;
+
+    // bytes of records that are still referenced by the index
+    private long liveBytes;
+
+    // participants deleted by the tombstones in this segment
+    private final Set<String> tombstones = new LinkedHashSet<>();
+
+    private Segment(int id, Path path) {
+      this.id = id;
+      this.path = path;
+    }
+  }
+
+  private static final class Location {
+
+    private final String id;
+
+    private final String participantId;
+
+    private final String siteId;
+
+    private final String activityId;
+
+    private int segmentId;
+
+    private long offset;
+
+    private int length;
+
+    private boolean withdrawn;
+
+    private Location(
+        String id, String participantId, String siteId, String activityId, int segmentId) {
+      this.id = id;
+      this.participantId = participantId;
+      this.siteId = siteId;
+      this.activityId = activityId;
+      this.segmentId = segmentId;
+    }
+
+    private Location copy() {
+      Location copy = new Location(id, participantId, siteId, activityId, segmentId);
+      copy.offset = offset;
+      copy.length = length;
+      copy.withdrawn = withdrawn;
+      return copy;
+    }
+  }
+
+  private static final class ResponseRecord {
+
+    private String op;
+
+    private String id;
+
+    private String participantId;
+
+    private String siteId;
+
+    private String activityId;
+
+    private Boolean withdrawn;
+
+    private Map<String, Object> data;
+  }
+}
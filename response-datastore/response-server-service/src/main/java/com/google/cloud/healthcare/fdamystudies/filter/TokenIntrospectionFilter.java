@@ -34,6 +34,12 @@ public class TokenIntrospectionFilter extends BaseTokenIntrospectionFilter {
     uriTemplateAndMethods.put(
         String.format("%s/participant/process-response", context.getContextPath()),
         new String[] {HttpMethod.POST.name()});
+    uriTemplateAndMethods.put(
+        String.format("%s/participant/process-response-async", context.getContextPath()),
+        new String[] {HttpMethod.POST.name()});
+    uriTemplateAndMethods.put(
+        String.format("%s/participant/process-response-status", context.getContextPath()),
+        new String[] {HttpMethod.GET.name()});
     uriTemplateAndMethods.put(
         String.format("%s/participant/getresponse", context.getContextPath()),
         new String[] {HttpMethod.GET.name()});
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.repository;
+
+import com.google.cloud.healthcare.fdamystudies.response.model.ActivityResponseSubmissionEntity;
+import java.sql.Timestamp;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface ActivityResponseSubmissionRepository
+    extends JpaRepository<ActivityResponseSubmissionEntity, String> {
+
+  @Query(
+      value =
+          "SELECT id FROM activity_response_submissions "
+              + "WHERE (status = 'QUEUED' AND next_attempt_time <= :now) "
+              + "OR (status = 'PROCESSING' AND lease_expiry_time <= :now) "
+              + "ORDER BY created_time LIMIT :limit",
+      nativeQuery = true)
+  public List<String> findDueSubmissionIds(@Param("now") Timestamp now, @Param("limit") int limit);
+
+  /**
+   * Atomically moves a due submission to PROCESSING under the given lease owner. Returns 0 when
+   * another worker (or another instance of the service) has already claimed it.
+   */
+  @Modifying
+  @Transactional
+  @Query(
+      value =
+          "UPDATE activity_response_submissions SET status = 'PROCESSING', "
+              + "lease_expiry_time = :leaseExpiry, lease_owner = :leaseOwner WHERE id = :id "
+              + "AND ((status = 'QUEUED' AND next_attempt_time <= :now) "
+              + "OR (status = 'PROCESSING' AND lease_expiry_time <= :now))",
+      nativeQuery = true)
+  public int claimSubmission(
+      @Param("id") String id,
+      @Param("now") Timestamp now,
+      @Param("leaseExpiry") Timestamp leaseExpiry,
+      @Param("leaseOwner") String leaseOwner);
+
+  /**
+   * Records the stage reached by the lease owner and renews its lease. Returns 0 when the lease was
+   * taken over by another worker after it expired.
+   */
+  @Modifying
+  @Transactional
+  @Query(
+      "UPDATE ActivityResponseSubmissionEntity s SET s.stage = :stage, s.payload = :payload, "
+          + "s.leaseExpiryTime = :leaseExpiry, s.modified = CURRENT_TIMESTAMP "
+          + "WHERE s.id = :id AND s.status = 'PROCESSING' AND s.leaseOwner = :leaseOwner")
+  public int saveStage(
+      @Param("id") String id,
+      @Param("leaseOwner") String leaseOwner,
+      @Param("stage") String stage,
+      @Param("payload") String payload,
+      @Param("leaseExpiry") Timestamp leaseExpiry);
+
+  /**
+   * Ends the lease of the owner with the given status: COMPLETED, FAILED, or QUEUED for a retry.
+   * Returns 0 when the lease was taken over by another worker after it expired.
+   */
+  @Modifying
+  @Transactional
+  @Query(
+      "UPDATE ActivityResponseSubmissionEntity s SET s.status = :status, "
+          + "s.attempts = :attempts, s.nextAttemptTime = :nextAttemptTime, "
+          + "s.errorCode = :errorCode, s.errorMessage = :errorMessage, "
+          + "s.leaseExpiryTime = NULL, s.leaseOwner = NULL, s.modified = CURRENT_TIMESTAMP "
+          + "WHERE s.id = :id AND s.status = 'PROCESSING' AND s.leaseOwner = :leaseOwner")
+  public int releaseSubmission(
+      @Param("id") String id,
+      @Param("leaseOwner") String leaseOwner,
+      @Param("status") String status,
+      @Param("attempts") Integer attempts,
+      @Param("nextAttemptTime") Timestamp nextAttemptTime,
+      @Param("errorCode") Integer errorCode,
+      @Param("errorMessage") String errorMessage);
+
+  /**
+   * Ends the lease of the owner as COMPLETED and removes the submitted response, which is no longer
+   * needed once it is stored. Returns 0 when the lease was taken over by another worker after it
+   * expired.
+   */
+  @Modifying
+  @Transactional
+  @Query(
+      "UPDATE ActivityResponseSubmissionEntity s SET s.status = 'COMPLETED', "
+          + "s.attempts = :attempts, s.errorCode = NULL, s.errorMessage = NULL, "
+          + "s.payload = NULL, s.leaseExpiryTime = NULL, s.leaseOwner = NULL, "
+          + "s.modified = CURRENT_TIMESTAMP "
+          + "WHERE s.id = :id AND s.status = 'PROCESSING' AND s.leaseOwner = :leaseOwner")
+  public int completeSubmission(
+      @Param("id") String id,
+      @Param("leaseOwner") String leaseOwner,
+      @Param("attempts") Integer attempts);
+
+  @Query(
+      value =
+          "SELECT COUNT(*) FROM activity_response_submissions "
+              + "WHERE status IN ('QUEUED', 'PROCESSING')",
+      nativeQuery = true)
+  public long countPendingSubmissions();
+}
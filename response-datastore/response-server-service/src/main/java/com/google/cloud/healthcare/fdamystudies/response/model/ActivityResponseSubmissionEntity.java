@@ -0,0 +1,111 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.response.model;
+
+import static com.google.cloud.healthcare.fdamystudies.common.ColumnConstraints.LARGE_LENGTH;
+import static com.google.cloud.healthcare.fdamystudies.common.ColumnConstraints.SMALL_LENGTH;
+import static com.google.cloud.healthcare.fdamystudies.common.ColumnConstraints.XS_LENGTH;
+
+import java.io.Serializable;
+import java.sql.Timestamp;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.UpdateTimestamp;
+
+/**
+ * Durable queue entry for an activity response accepted through the asynchronous ingestion
+ * endpoint. The row keeps the raw submission, the pipeline stage reached so far and the retry
+ * bookkeeping, so a submission survives a restart and resumes from the stage where it stopped.
+ */
+@Setter
+@Getter
+@Entity
+@Table(
+    name = "activity_response_submissions",
+    indexes = {
+      @Index(
+          name = "activity_response_submissions_status_next_attempt_idx",
+          columnList = "status,next_attempt_time"),
+      @Index(
+          name = "activity_response_submissions_participant_id_idx",
+          columnList = "participant_id")
+    })
+public class ActivityResponseSubmissionEntity implements Serializable {
+
+  private static final long serialVersionUID = 4123180327733958311L;
+
+  @Id
+  @GeneratedValue(generator = "system-uuid")
+  @GenericGenerator(name = "system-uuid", strategy = "uuid")
+  @Column(name = "id", updatable = false, nullable = false)
+  private String id;
+
+  @Column(name = "participant_id", nullable = false, length = SMALL_LENGTH)
+  private String participantId;
+
+  @Column(name = "study_id", nullable = false, length = XS_LENGTH)
+  private String studyId;
+
+  @Column(name = "activity_id", nullable = false, length = SMALL_LENGTH)
+  private String activityId;
+
+  @Column(name = "activity_version", nullable = false, length = XS_LENGTH)
+  private String activityVersion;
+
+  @Column(name = "user_id", length = SMALL_LENGTH)
+  private String userId;
+
+  @Column(name = "status", nullable = false, length = XS_LENGTH)
+  private String status;
+
+  @Column(name = "stage", nullable = false, length = XS_LENGTH)
+  private String stage;
+
+  @Column(name = "attempts", nullable = false)
+  private Integer attempts = 0;
+
+  @Column(name = "error_code")
+  private Integer errorCode;
+
+  @Column(name = "error_message", length = LARGE_LENGTH)
+  private String errorMessage;
+
+  /** The submitted response, removed once the submission is completed. */
+  @Column(name = "payload", columnDefinition = "LONGTEXT")
+  private String payload;
+
+  @Column(name = "audit_request", columnDefinition = "TEXT")
+  private String auditRequest;
+
+  @Column(name = "next_attempt_time")
+  private Timestamp nextAttemptTime;
+
+  @Column(name = "lease_expiry_time")
+  private Timestamp leaseExpiryTime;
+
+  /** Identifies the claim of the worker processing the submission. */
+  @Column(name = "lease_owner", length = SMALL_LENGTH)
+  private String leaseOwner;
+
+  @Column(name = "created_time")
+  @CreationTimestamp
+  private Timestamp created;
+
+  @Column(name = "modified_time")
+  @UpdateTimestamp
+  private Timestamp modified;
+}
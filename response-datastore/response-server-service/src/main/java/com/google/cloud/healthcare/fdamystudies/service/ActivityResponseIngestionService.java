@@ -0,0 +1,29 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.service;
+
+import com.google.cloud.healthcare.fdamystudies.bean.ActivityResponseBean;
+import com.google.cloud.healthcare.fdamystudies.bean.ActivityResponseSubmissionBean;
+import com.google.cloud.healthcare.fdamystudies.beans.AuditLogEventRequest;
+import com.google.cloud.healthcare.fdamystudies.utils.ProcessResponseException;
+
+public interface ActivityResponseIngestionService {
+
+  boolean canAcceptSubmission();
+
+  ActivityResponseSubmissionBean enqueueActivityResponse(
+      ActivityResponseBean activityResponseBean, String userId, AuditLogEventRequest auditRequest)
+      throws ProcessResponseException;
+
+  ActivityResponseSubmissionBean getSubmissionStatus(String submissionId, String userId);
+
+  int dispatchDueSubmissions();
+
+  void processSubmission(String submissionId, String leaseOwner);
+}
@@ -0,0 +1,483 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.service;
+
+import static com.google.cloud.healthcare.fdamystudies.common.CommonConstants.ACTIVITY_ID;
+import static com.google.cloud.healthcare.fdamystudies.common.CommonConstants.ACTIVITY_TYPE;
+import static com.google.cloud.healthcare.fdamystudies.common.CommonConstants.ACTIVITY_VERSION;
+import static com.google.cloud.healthcare.fdamystudies.common.CommonConstants.RUN_ID;
+import static com.google.cloud.healthcare.fdamystudies.common.ResponseServerEvent.ACTIVITY_RESPONSE_DATA_PROCESSING_FAILED;
+import static com.google.cloud.healthcare.fdamystudies.common.ResponseServerEvent.ACTIVITY_RESPONSE_NOT_SAVED;
+import static com.google.cloud.healthcare.fdamystudies.common.ResponseServerEvent.ACTIVITY_RESPONSE_RECEIPT_FAILED;
+import static com.google.cloud.healthcare.fdamystudies.common.ResponseServerEvent.ACTIVITY_RESPONSE_SAVED;
+import static com.google.cloud.healthcare.fdamystudies.common.ResponseServerEvent.ACTIVITY_STATE_SAVED_OR_UPDATED_AFTER_RESPONSE_SUBMISSION;
+import static com.google.cloud.healthcare.fdamystudies.common.ResponseServerEvent.ACTIVTY_METADATA_RETRIEVAL_FAILED;
+import static com.google.cloud.healthcare.fdamystudies.common.ResponseServerEvent.ACTIVTY_METADATA_RETRIEVED;
+import static com.google.cloud.healthcare.fdamystudies.common.ResponseServerEvent.DATA_SHARING_CONSENT_VALUE_CONJOINED_WITH_ACTIVITY_RESPONSE_DATA;
+import static com.google.cloud.healthcare.fdamystudies.common.ResponseServerEvent.DATA_SHARING_CONSENT_VALUE_RETRIEVAL_FAILED;
+import static com.google.cloud.healthcare.fdamystudies.common.ResponseServerEvent.DATA_SHARING_CONSENT_VALUE_RETRIEVED;
+import static com.google.cloud.healthcare.fdamystudies.common.ResponseServerEvent.WITHDRAWAL_INFORMATION_RETREIVAL_FAILED;
+import static com.google.cloud.healthcare.fdamystudies.common.ResponseServerEvent.WITHDRAWAL_INFORMATION_RETRIEVED;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.cloud.healthcare.fdamystudies.bean.ActivityResponseBean;
+import com.google.cloud.healthcare.fdamystudies.bean.ActivityResponseSubmissionBean;
+import com.google.cloud.healthcare.fdamystudies.bean.ActivityStateRequestBean;
+import com.google.cloud.healthcare.fdamystudies.bean.ParticipantActivityBean;
+import com.google.cloud.healthcare.fdamystudies.bean.ParticipantStudyInformation;
+import com.google.cloud.healthcare.fdamystudies.bean.QuestionnaireActivityStructureBean;
+import com.google.cloud.healthcare.fdamystudies.bean.StudyActivityMetadataRequestBean;
+import com.google.cloud.healthcare.fdamystudies.beans.AuditLogEventRequest;
+import com.google.cloud.healthcare.fdamystudies.common.ResponseServerAuditLogHelper;
+import com.google.cloud.healthcare.fdamystudies.common.SubmissionStage;
+import com.google.cloud.healthcare.fdamystudies.common.SubmissionStatus;
+import com.google.cloud.healthcare.fdamystudies.config.ApplicationConfiguration;
+import com.google.cloud.healthcare.fdamystudies.exception.ProcessActivityStateException;
+import com.google.cloud.healthcare.fdamystudies.repository.ActivityResponseSubmissionRepository;
+import com.google.cloud.healthcare.fdamystudies.response.model.ActivityResponseSubmissionEntity;
+import com.google.cloud.healthcare.fdamystudies.utils.AppConstants;
+import com.google.cloud.healthcare.fdamystudies.utils.ErrorCode;
+import com.google.cloud.healthcare.fdamystudies.utils.ProcessResponseException;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadPoolExecutor;
+import org.apache.commons.collections4.map.HashedMap;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+@Service
+public class ActivityResponseIngestionServiceImpl implements ActivityResponseIngestionService {
+
+  @Autowired private ActivityResponseSubmissionRepository submissionRepository;
+
+  @Autowired private StudyMetadataService studyMetadataService;
+
+  @Autowired private ParticipantStudyInfoService partStudyInfoService;
+
+  @Autowired private ActivityResponseProcessorService activityResponseProcessorService;
+
+  @Autowired
+  private ParticipantActivityStateResponseService participantActivityStateResponseService;
+
+  @Autowired private ResponseServerAuditLogHelper responseServerAuditLogHelper;
+
+  @Autowired private ApplicationConfiguration appConfig;
+
+  @Autowired private ObjectMapper objectMapper;
+
+  @Autowired
+  @Qualifier("responseIngestionExecutor")
+  private ThreadPoolTaskExecutor responseIngestionExecutor;
+
+  private XLogger logger =
+      XLoggerFactory.getXLogger(ActivityResponseIngestionServiceImpl.class.getName());
+
+  @Override
+  public boolean canAcceptSubmission() {
+    return submissionRepository.countPendingSubmissions() < appConfig.getIngestionMaxPending();
+  }
+
+  @Override
+  public ActivityResponseSubmissionBean enqueueActivityResponse(
+      ActivityResponseBean activityResponseBean, String userId, AuditLogEventRequest auditRequest)
+      throws ProcessResponseException {
+    logger.entry("begin enqueueActivityResponse()");
+    ActivityResponseSubmissionEntity submission = new ActivityResponseSubmissionEntity();
+    submission.setParticipantId(activityResponseBean.getParticipantId());
+    submission.setStudyId(activityResponseBean.getMetadata().getStudyId());
+    submission.setActivityId(activityResponseBean.getMetadata().getActivityId());
+    submission.setActivityVersion(activityResponseBean.getMetadata().getVersion());
+    submission.setUserId(userId);
+    submission.setStatus(SubmissionStatus.QUEUED.name());
+    submission.setStage(SubmissionStage.ACTIVITY_METADATA.name());
+    submission.setAttempts(0);
+    submission.setNextAttemptTime(new Timestamp(System.currentTimeMillis()));
+    try {
+      submission.setPayload(objectMapper.writeValueAsString(activityResponseBean));
+      submission.setAuditRequest(objectMapper.writeValueAsString(auditRequest));
+    } catch (IOException e) {
+      logger.error(e.getMessage(), e);
+      throw new ProcessResponseException(
+          "Could not serialize the activity response submission: " + e.getMessage());
+    }
+    submission = submissionRepository.saveAndFlush(submission);
+
+    logger.exit("enqueueActivityResponse() - ends");
+    return toSubmissionBean(submission);
+  }
+
+  @Override
+  public ActivityResponseSubmissionBean getSubmissionStatus(String submissionId, String userId) {
+    ActivityResponseSubmissionEntity submission =
+        submissionRepository.findById(submissionId).orElse(null);
+    if (submission == null || !StringUtils.equals(submission.getUserId(), userId)) {
+      return null;
+    }
+    return toSubmissionBean(submission);
+  }
+
+  @Override
+  public int dispatchDueSubmissions() {
+    ThreadPoolExecutor pool = responseIngestionExecutor.getThreadPoolExecutor();
+    int capacity =
+        appConfig.getIngestionWorkerPoolSize()
+            + appConfig.getIngestionWorkerQueueCapacity()
+            - pool.getActiveCount()
+            - pool.getQueue().size();
+    if (capacity <= 0) {
+      logger.debug("dispatchDueSubmissions() - worker pool is saturated, skipping this cycle");
+      return 0;
+    }
+
+    long now = System.currentTimeMillis();
+    Timestamp leaseExpiry = new Timestamp(now + appConfig.getIngestionLeaseMs());
+    List<String> submissionIds =
+        submissionRepository.findDueSubmissionIds(new Timestamp(now), capacity);
+    int dispatched = 0;
+    for (String submissionId : submissionIds) {
+      String leaseOwner = UUID.randomUUID().toString();
+      if (submissionRepository.claimSubmission(
+              submissionId, new Timestamp(now), leaseExpiry, leaseOwner)
+          == 0) {
+        continue;
+      }
+      try {
+        responseIngestionExecutor.execute(() -> processSubmission(submissionId, leaseOwner));
+        dispatched++;
+      } catch (TaskRejectedException e) {
+        // The lease expires and the submission is picked up again in a later cycle
+        logger.warn("dispatchDueSubmissions() - worker pool rejected submission " + submissionId);
+        break;
+      }
+    }
+    return dispatched;
+  }
+
+  /**
+   * Runs the remaining stages of a submission claimed with the given lease owner. Each stage renews
+   * the lease, and each write is made only while the lease is still owned, so a worker whose lease
+   * expired and was taken over stops instead of overwriting the progress of the new owner. The
+   * stage that was running when the lease expired may run again under the new owner.
+   */
+  @Override
+  public void processSubmission(String submissionId, String leaseOwner) {
+    logger.entry("begin processSubmission()");
+    ActivityResponseSubmissionEntity submission =
+        submissionRepository.findById(submissionId).orElse(null);
+    if (submission == null
+        || !SubmissionStatus.PROCESSING.name().equals(submission.getStatus())
+        || !StringUtils.equals(submission.getLeaseOwner(), leaseOwner)) {
+      return;
+    }
+
+    ActivityResponseBean activityResponseBean;
+    AuditLogEventRequest auditRequest;
+    try {
+      activityResponseBean =
+          objectMapper.readValue(submission.getPayload(), ActivityResponseBean.class);
+      auditRequest =
+          objectMapper.readValue(submission.getAuditRequest(), AuditLogEventRequest.class);
+    } catch (IOException e) {
+      logger.error(e.getMessage(), e);
+      markFailed(submission, ErrorCode.EC_707, e.getMessage());
+      return;
+    }
+
+    QuestionnaireActivityStructureBean activityMetadata = null;
+    SubmissionStage stage = SubmissionStage.fromValue(submission.getStage());
+    try {
+      while (stage != SubmissionStage.DONE) {
+        switch (stage) {
+          case ACTIVITY_METADATA:
+            activityMetadata = getActivityMetadata(activityResponseBean, auditRequest);
+            if (activityMetadata == null) {
+              // The study datastore may not return the activity yet, retried with backoff
+              throw new ProcessResponseException(ErrorCode.EC_705.errorMessage());
+            }
+            responseServerAuditLogHelper.logEvent(
+                ACTIVTY_METADATA_RETRIEVED,
+                auditRequest,
+                getActivityEventValues(activityResponseBean, false));
+            break;
+          case PARTICIPANT_STUDY_INFO:
+            ParticipantStudyInformation partStudyInfo =
+                partStudyInfoService.getParticipantStudyInfo(
+                    submission.getStudyId(), submission.getParticipantId(), auditRequest);
+            if (partStudyInfo == null) {
+              responseServerAuditLogHelper.logEvent(
+                  DATA_SHARING_CONSENT_VALUE_RETRIEVAL_FAILED, auditRequest);
+              responseServerAuditLogHelper.logEvent(
+                  WITHDRAWAL_INFORMATION_RETREIVAL_FAILED, auditRequest);
+              markFailed(submission, ErrorCode.EC_715, ErrorCode.EC_715.errorMessage());
+              return;
+            }
+            if (!applyParticipantStudyInfo(activityResponseBean, partStudyInfo, auditRequest)) {
+              markFailed(submission, ErrorCode.EC_716, ErrorCode.EC_716.errorMessage());
+              return;
+            }
+            // Keep the enriched payload so a retry of a later stage does not call the
+            // registration server again
+            submission.setPayload(objectMapper.writeValueAsString(activityResponseBean));
+            break;
+          case RESPONSE_DATA:
+            if (activityMetadata == null) {
+              activityMetadata = getActivityMetadata(activityResponseBean, auditRequest);
+              if (activityMetadata == null) {
+                throw new ProcessResponseException(ErrorCode.EC_705.errorMessage());
+              }
+            }
+            activityResponseProcessorService.saveActivityResponseDataForParticipant(
+                activityMetadata, activityResponseBean, auditRequest);
+            break;
+          case ACTIVITY_STATE:
+            saveActivityState(activityResponseBean, auditRequest);
+            break;
+          default:
+            break;
+        }
+        stage = SubmissionStage.values()[stage.ordinal() + 1];
+        submission.setStage(stage.name());
+        if (submissionRepository.saveStage(
+                submission.getId(),
+                leaseOwner,
+                submission.getStage(),
+                submission.getPayload(),
+                new Timestamp(System.currentTimeMillis() + appConfig.getIngestionLeaseMs()))
+            == 0) {
+          logLeaseLost(submission);
+          return;
+        }
+      }
+
+      if (submissionRepository.completeSubmission(
+              submission.getId(), leaseOwner, submission.getAttempts())
+          == 0) {
+        logLeaseLost(submission);
+        return;
+      }
+      logger.exit("processSubmission() - ends");
+    } catch (Exception e) {
+      logger.error(e.getMessage(), e);
+      scheduleRetry(submission, stage, activityResponseBean, auditRequest, e);
+    }
+  }
+
+  private QuestionnaireActivityStructureBean getActivityMetadata(
+      ActivityResponseBean activityResponseBean, AuditLogEventRequest auditRequest)
+      throws ProcessResponseException {
+    StudyActivityMetadataRequestBean studyActivityMetadataRequestBean =
+        new StudyActivityMetadataRequestBean();
+    studyActivityMetadataRequestBean.setStudyId(activityResponseBean.getMetadata().getStudyId());
+    studyActivityMetadataRequestBean.setActivityId(
+        activityResponseBean.getMetadata().getActivityId());
+    studyActivityMetadataRequestBean.setActivityVersion(
+        activityResponseBean.getMetadata().getVersion());
+    return studyMetadataService.getStudyActivityMetadata(
+        activityResponseBean.getApplicationId(), studyActivityMetadataRequestBean, auditRequest);
+  }
+
+  private boolean applyParticipantStudyInfo(
+      ActivityResponseBean activityResponseBean,
+      ParticipantStudyInformation partStudyInfo,
+      AuditLogEventRequest auditRequest) {
+    String sharingConsent = partStudyInfo.getSharing();
+    Map<String, String> consentMap = new HashedMap<>();
+    consentMap.put("datasharing_consent_value", sharingConsent);
+    responseServerAuditLogHelper.logEvent(
+        DATA_SHARING_CONSENT_VALUE_RETRIEVED, auditRequest, consentMap);
+
+    activityResponseBean.setSharingConsent(sharingConsent);
+    responseServerAuditLogHelper.logEvent(
+        DATA_SHARING_CONSENT_VALUE_CONJOINED_WITH_ACTIVITY_RESPONSE_DATA,
+        auditRequest,
+        getActivityEventValues(activityResponseBean, true));
+
+    boolean withdrawalStatus = !StringUtils.isBlank(partStudyInfo.getWithdrawal());
+    Map<String, String> withdrawMap = new HashedMap<>();
+    withdrawMap.put("withdrawn_status", String.valueOf(withdrawalStatus));
+    responseServerAuditLogHelper.logEvent(
+        WITHDRAWAL_INFORMATION_RETRIEVED, auditRequest, withdrawMap);
+
+    if (withdrawalStatus) {
+      Map<String, String> notSaveMap = getActivityEventValues(activityResponseBean, false);
+      notSaveMap.put("submission_timestamp", activityResponseBean.getCreatedTimestamp());
+      responseServerAuditLogHelper.logEvent(ACTIVITY_RESPONSE_NOT_SAVED, auditRequest, notSaveMap);
+    }
+    return !withdrawalStatus;
+  }
+
+  private void saveActivityState(
+      ActivityResponseBean activityResponseBean, AuditLogEventRequest auditRequest)
+      throws ProcessActivityStateException {
+    ActivityStateRequestBean activityStateRequestBean = new ActivityStateRequestBean();
+    activityStateRequestBean.setParticipantId(activityResponseBean.getParticipantId());
+    activityStateRequestBean.setStudyId(activityResponseBean.getMetadata().getStudyId());
+
+    ParticipantActivityBean participantActivityBean = new ParticipantActivityBean();
+    participantActivityBean.setActivityId(activityResponseBean.getMetadata().getActivityId());
+    participantActivityBean.setActivityVersion(activityResponseBean.getMetadata().getVersion());
+    participantActivityBean.setActivityState(AppConstants.COMPLETED);
+    List<ParticipantActivityBean> activity = new ArrayList<>();
+    activity.add(participantActivityBean);
+    activityStateRequestBean.setActivity(activity);
+    participantActivityStateResponseService.saveParticipantActivities(activityStateRequestBean);
+
+    Map<String, String> activityStateMap = new HashedMap<>();
+    activityStateMap.put("activity_state", participantActivityBean.getActivityState());
+    activityStateMap.put(ACTIVITY_ID, participantActivityBean.getActivityId());
+    activityStateMap.put(ACTIVITY_VERSION, participantActivityBean.getActivityVersion());
+    activityStateMap.put(RUN_ID, activityResponseBean.getMetadata().getActivityRunId());
+    responseServerAuditLogHelper.logEvent(
+        ACTIVITY_STATE_SAVED_OR_UPDATED_AFTER_RESPONSE_SUBMISSION, auditRequest, activityStateMap);
+    responseServerAuditLogHelper.logEvent(
+        ACTIVITY_RESPONSE_SAVED, auditRequest, getActivityEventValues(activityResponseBean, true));
+  }
+
+  private void logMetadataRetrievalFailed(
+      ActivityResponseBean activityResponseBean, AuditLogEventRequest auditRequest) {
+    Map<String, String> receiptMap = getActivityEventValues(activityResponseBean, true);
+    receiptMap.remove(ACTIVITY_TYPE);
+    receiptMap.put("questionnaire_or_active_task", activityResponseBean.getType());
+    responseServerAuditLogHelper.logEvent(
+        ACTIVITY_RESPONSE_RECEIPT_FAILED, auditRequest, receiptMap);
+    responseServerAuditLogHelper.logEvent(
+        ACTIVTY_METADATA_RETRIEVAL_FAILED,
+        auditRequest,
+        getActivityEventValues(activityResponseBean, false));
+    responseServerAuditLogHelper.logEvent(
+        ACTIVITY_RESPONSE_DATA_PROCESSING_FAILED,
+        auditRequest,
+        getActivityEventValues(activityResponseBean, true));
+  }
+
+  private void scheduleRetry(
+      ActivityResponseSubmissionEntity submission,
+      SubmissionStage stage,
+      ActivityResponseBean activityResponseBean,
+      AuditLogEventRequest auditRequest,
+      Exception cause) {
+    int attempts = submission.getAttempts() + 1;
+    submission.setAttempts(attempts);
+    if (attempts >= appConfig.getIngestionMaxAttempts()) {
+      if (stage == SubmissionStage.ACTIVITY_METADATA) {
+        logMetadataRetrievalFailed(activityResponseBean, auditRequest);
+        markFailed(submission, ErrorCode.EC_705, cause.getMessage());
+      } else if (stage == SubmissionStage.ACTIVITY_STATE) {
+        markFailed(submission, ErrorCode.EC_714, cause.getMessage());
+      } else {
+        responseServerAuditLogHelper.logEvent(
+            ACTIVITY_RESPONSE_DATA_PROCESSING_FAILED,
+            auditRequest,
+            getActivityEventValues(activityResponseBean, true));
+        markFailed(submission, ErrorCode.EC_707, cause.getMessage());
+      }
+      return;
+    }
+
+    // Exponential backoff, the stage is kept so the retry resumes where this attempt stopped
+    long delay = appConfig.getIngestionRetryBackoffMs() * (1L << (attempts - 1));
+    submission.setNextAttemptTime(new Timestamp(System.currentTimeMillis() + delay));
+    if (!release(
+        submission,
+        SubmissionStatus.QUEUED,
+        submission.getErrorCode(),
+        StringUtils.abbreviate(cause.getMessage(), 255))) {
+      return;
+    }
+    logger.warn(
+        String.format(
+            "submission %s failed at stage %s, attempt %d, retry in %d ms",
+            submission.getId(), stage, attempts, delay));
+  }
+
+  private void markFailed(
+      ActivityResponseSubmissionEntity submission, ErrorCode errorCode, String errorMessage) {
+    if (!release(
+        submission,
+        SubmissionStatus.FAILED,
+        errorCode.code(),
+        StringUtils.abbreviate(errorMessage, 255))) {
+      return;
+    }
+    logger.error(
+        String.format(
+            "submission %s failed at stage %s with error code %d",
+            submission.getId(), submission.getStage(), errorCode.code()));
+  }
+
+  /**
+   * Ends the lease of the submission as FAILED, or QUEUED for a retry. Returns false if the lease
+   * was taken over.
+   */
+  private boolean release(
+      ActivityResponseSubmissionEntity submission,
+      SubmissionStatus status,
+      Integer errorCode,
+      String errorMessage) {
+    if (submissionRepository.releaseSubmission(
+            submission.getId(),
+            submission.getLeaseOwner(),
+            status.name(),
+            submission.getAttempts(),
+            submission.getNextAttemptTime(),
+            errorCode,
+            errorMessage)
+        == 0) {
+      logLeaseLost(submission);
+      return false;
+    }
+    submission.setStatus(status.name());
+    submission.setErrorCode(errorCode);
+    submission.setErrorMessage(errorMessage);
+    submission.setLeaseExpiryTime(null);
+    submission.setLeaseOwner(null);
+    return true;
+  }
+
+  private void logLeaseLost(ActivityResponseSubmissionEntity submission) {
+    logger.warn(
+        String.format(
+            "submission %s was taken over by another worker at stage %s, stopping",
+            submission.getId(), submission.getStage()));
+  }
+
+  private Map<String, String> getActivityEventValues(
+      ActivityResponseBean activityResponseBean, boolean includeRunId) {
+    Map<String, String> map = new HashedMap<>();
+    map.put(ACTIVITY_TYPE, activityResponseBean.getType());
+    map.put(ACTIVITY_ID, activityResponseBean.getMetadata().getActivityId());
+    map.put(ACTIVITY_VERSION, activityResponseBean.getMetadata().getVersion());
+    if (includeRunId) {
+      map.put(RUN_ID, activityResponseBean.getMetadata().getActivityRunId());
+    }
+    return map;
+  }
+
+  private ActivityResponseSubmissionBean toSubmissionBean(
+      ActivityResponseSubmissionEntity submission) {
+    ActivityResponseSubmissionBean submissionBean = new ActivityResponseSubmissionBean();
+    submissionBean.setSubmissionId(submission.getId());
+    submissionBean.setStatus(submission.getStatus());
+    submissionBean.setStage(submission.getStage());
+    submissionBean.setAttempts(submission.getAttempts());
+    submissionBean.setErrorCode(submission.getErrorCode());
+    submissionBean.setErrorMessage(submission.getErrorMessage());
+    return submissionBean;
+  }
+}
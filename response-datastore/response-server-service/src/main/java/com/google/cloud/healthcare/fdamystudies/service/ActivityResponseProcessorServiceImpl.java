@@ -28,17 +28,12 @@ import com.google.cloud.healthcare.fdamystudies.dao.ResponsesDao;
 import com.google.cloud.healthcare.fdamystudies.utils.AppConstants;
 import com.google.cloud.healthcare.fdamystudies.utils.AppUtil;
 import com.google.cloud.healthcare.fdamystudies.utils.ProcessResponseException;
+import com.google.common.cache.Cache;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import java.beans.BeanInfo;
-import java.beans.Introspector;
-import java.beans.PropertyDescriptor;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 import org.apache.commons.collections4.map.HashedMap;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.ext.XLogger;
@@ -50,13 +45,19 @@ import org.springframework.stereotype.Service;
 @Service
 public class ActivityResponseProcessorServiceImpl implements ActivityResponseProcessorService {
   @Autowired
-  @Qualifier("cloudFirestoreResponsesDaoImpl")
+  @Qualifier("responsesDao")
   private ResponsesDao responsesDao;
 
   @Autowired private ApplicationConfiguration appConfig;
 
   @Autowired private ResponseServerAuditLogHelper responseServerAuditLogHelper;
 
+  @Autowired
+  @Qualifier("activityStepsIndexCache")
+  private Cache<QuestionnaireActivityStructureBean, ActivityStepsIndex> activityStepsIndexCache;
+
+  private static final Gson GSON = new Gson();
+
   private XLogger logger =
       XLoggerFactory.getXLogger(ActivityResponseProcessorServiceImpl.class.getName());
 
@@ -95,7 +96,10 @@ public class ActivityResponseProcessorServiceImpl implements ActivityResponsePro
     if (activityMetadataResponse
         .getActivityId()
         .equalsIgnoreCase(activityMetadataBeanFromWcp.getMetadata().getActivityId())) {
-      processActivityResponses(questionnaireResponses, questionnaireMetadata);
+      ActivityStepsIndex activityStepsIndex =
+          activityStepsIndexCache.get(
+              activityMetadataBeanFromWcp, () -> ActivityStepsIndex.of(questionnaireMetadata));
+      processActivityResponses(questionnaireResponses, activityStepsIndex);
       Map<String, String> map = new HashedMap<>();
       map.put(ACTIVITY_TYPE, questionnaireActivityResponseBean.getType());
       map.put(ACTIVITY_ID, activityMetadataBeanFromWcp.getMetadata().getActivityId());
@@ -158,7 +162,7 @@ public class ActivityResponseProcessorServiceImpl implements ActivityResponsePro
 
   private void processActivityResponses(
       List<QuestionnaireActivityStepsBean> questionnaireResponses,
-      List<QuestionnaireActivityStepsBean> activityMetadataBeanFromWcp) {
+      ActivityStepsIndex activityStepsIndex) {
     QuestionnaireActivityStepsBean scoreSumResponseBean = null;
     for (QuestionnaireActivityStepsBean responseBean : questionnaireResponses) {
       if (responseBean.getKey().equals(AppConstants.DUMMY_SUM_QUESTION_KEY)) {
@@ -166,13 +170,13 @@ public class ActivityResponseProcessorServiceImpl implements ActivityResponsePro
       }
       if (responseBean.getResultType().equalsIgnoreCase(AppConstants.GROUPED_FIELD_KEY)) {
         ActivityValueGroupBean valueGroupResponse =
-            getValueGroupResponses(activityMetadataBeanFromWcp, responseBean);
+            getValueGroupResponses(activityStepsIndex, responseBean);
         responseBean.setActvityValueGroup(valueGroupResponse);
         // Remove the value object, as we have plugged in the metadata and added to the
         // ActivityValueGroupBean
         responseBean.setValue(AppConstants.EMPTY_STR);
       } else {
-        plugInMetadataToResponses(activityMetadataBeanFromWcp, responseBean, false);
+        plugInMetadataToResponses(activityStepsIndex, responseBean, false);
       }
     }
     // We might want to hide the dummy sum question from users with conditional branching,
@@ -180,7 +184,7 @@ public class ActivityResponseProcessorServiceImpl implements ActivityResponsePro
     // to be absent.
     if (scoreSumResponseBean == null) {
       // Try to create a response for the dummy sum question by copying from metadata.
-      scoreSumResponseBean = maybeCreateDummySumResponseFromMetadata(activityMetadataBeanFromWcp);
+      scoreSumResponseBean = maybeCreateDummySumResponseFromMetadata(activityStepsIndex);
       if (scoreSumResponseBean != null) {
         // If copying is successful, add it to the list of responses.
         questionnaireResponses.add(scoreSumResponseBean);
@@ -196,21 +200,15 @@ public class ActivityResponseProcessorServiceImpl implements ActivityResponsePro
   // Returns an empty response with metadata copied from the dummy sum question, or
   // null if the dummy sum question is not found in metadata.
   private static QuestionnaireActivityStepsBean maybeCreateDummySumResponseFromMetadata(
-      List<QuestionnaireActivityStepsBean> activityMetadataBeanFromWcp) {
-    List<QuestionnaireActivityStepsBean> metadataMatchList =
-        activityMetadataBeanFromWcp
-            .stream()
-            .filter(
-                QuestionnaireActivityStepsBeanPredicate.questionKeyMatch(
-                    AppConstants.DUMMY_SUM_QUESTION_KEY))
-            .collect(Collectors.<QuestionnaireActivityStepsBean>toList());
+      ActivityStepsIndex activityStepsIndex) {
+    QuestionnaireActivityStepsBean metadataMatchBean =
+        activityStepsIndex.findUniqueStep(AppConstants.DUMMY_SUM_QUESTION_KEY);
     // Return null if dummy sum question is not found from metadata.
-    if (metadataMatchList == null || metadataMatchList.size() != 1) {
+    if (metadataMatchBean == null) {
       return null;
     }
     // Otherwise, create a new entry and copy contents from metadata.
     QuestionnaireActivityStepsBean responseBean = new QuestionnaireActivityStepsBean();
-    QuestionnaireActivityStepsBean metadataMatchBean = metadataMatchList.get(0);
     responseBean.setResultType(metadataMatchBean.getResultType());
     responseBean.setKey(metadataMatchBean.getKey());
     responseBean.setSkippable(metadataMatchBean.getSkippable());
@@ -264,8 +262,7 @@ public class ActivityResponseProcessorServiceImpl implements ActivityResponsePro
   }
 
   private ActivityValueGroupBean getValueGroupResponses(
-      List<QuestionnaireActivityStepsBean> activityMetadataBeanFromWcp,
-      QuestionnaireActivityStepsBean responseBean) {
+      ActivityStepsIndex activityStepsIndex, QuestionnaireActivityStepsBean responseBean) {
     ActivityValueGroupBean activityValueGroupBeanRet = new ActivityValueGroupBean();
     List<QuestionnaireActivityStepsBean> valueResponseBeanList =
         new ArrayList<QuestionnaireActivityStepsBean>();
@@ -276,22 +273,20 @@ public class ActivityResponseProcessorServiceImpl implements ActivityResponsePro
         Object valuObj = valueList.get(i);
         if (valuObj instanceof List) {
           List<HashMap> objListMap = (ArrayList<HashMap>) valuObj;
-          Gson gson = new Gson();
           for (HashMap valueObjMap : objListMap) {
-            String json = gson.toJson(valueObjMap, Map.class);
+            String json = GSON.toJson(valueObjMap, Map.class);
             QuestionnaireActivityStepsBean valueBean =
-                gson.fromJson(json, QuestionnaireActivityStepsBean.class);
-            plugInMetadataToResponses(activityMetadataBeanFromWcp, valueBean, true);
+                GSON.fromJson(json, QuestionnaireActivityStepsBean.class);
+            plugInMetadataToResponses(activityStepsIndex, valueBean, true);
             valueResponseBeanList.add(valueBean);
           }
         } else {
           if (valuObj instanceof Map) {
             Map<String, Object> valueObjMap = (HashMap<String, Object>) valuObj;
-            Gson gson = new Gson();
-            String json = gson.toJson(valueObjMap, Map.class);
+            String json = GSON.toJson(valueObjMap, Map.class);
             QuestionnaireActivityStepsBean valueBean =
-                gson.fromJson(json, QuestionnaireActivityStepsBean.class);
-            plugInMetadataToResponses(activityMetadataBeanFromWcp, valueBean, true);
+                GSON.fromJson(json, QuestionnaireActivityStepsBean.class);
+            plugInMetadataToResponses(activityStepsIndex, valueBean, true);
             valueResponseBeanList.add(valueBean);
           }
         }
@@ -302,37 +297,18 @@ public class ActivityResponseProcessorServiceImpl implements ActivityResponsePro
   }
 
   private void plugInMetadataToResponses(
-      List<QuestionnaireActivityStepsBean> activityMetadataBeanFromWcp,
+      ActivityStepsIndex activityStepsIndex,
       QuestionnaireActivityStepsBean responseBean,
       boolean fromGrouped) {
-    List<QuestionnaireActivityStepsBean> metadataMatchList = null;
-
     String questionKey = responseBean.getKey();
-    if (fromGrouped) {
-      for (QuestionnaireActivityStepsBean stepBean : activityMetadataBeanFromWcp) {
-        List<QuestionnaireActivityStepsBean> stepsBean = stepBean.getSteps();
-        metadataMatchList =
-            stepsBean
-                .stream()
-                .filter(QuestionnaireActivityStepsBeanPredicate.questionKeyMatch(questionKey))
-                .collect(Collectors.<QuestionnaireActivityStepsBean>toList());
-        if (metadataMatchList != null && metadataMatchList.size() > 0) {
-          break;
-        }
-      }
-    } else {
-      metadataMatchList =
-          activityMetadataBeanFromWcp
-              .stream()
-              .filter(QuestionnaireActivityStepsBeanPredicate.questionKeyMatch(questionKey))
-              .collect(Collectors.<QuestionnaireActivityStepsBean>toList());
-    }
-    if (metadataMatchList != null) {
-      for (QuestionnaireActivityStepsBean metadataMatchBean : metadataMatchList) {
-        responseBean.setSkippable(metadataMatchBean.getSkippable());
-        responseBean.setText(metadataMatchBean.getText());
-        responseBean.setTitle(metadataMatchBean.getTitle());
-      }
+    QuestionnaireActivityStepsBean metadataMatchBean =
+        fromGrouped
+            ? activityStepsIndex.findFormStep(questionKey)
+            : activityStepsIndex.findStep(questionKey);
+    if (metadataMatchBean != null) {
+      responseBean.setSkippable(metadataMatchBean.getSkippable());
+      responseBean.setText(metadataMatchBean.getText());
+      responseBean.setTitle(metadataMatchBean.getTitle());
     }
   }
 
@@ -344,15 +320,14 @@ public class ActivityResponseProcessorServiceImpl implements ActivityResponsePro
     questionnaireActivityResponseBean.setCreatedTimestamp(
         String.valueOf(System.currentTimeMillis()));
     Map<String, Object> dataToStoreActivityResults =
-        this.getHashMapForBean(questionnaireActivityResponseBean.getMetadata());
+        ResponseDocumentMapper.toDocument(questionnaireActivityResponseBean.getMetadata());
     dataToStoreActivityResults.remove(AppConstants.DATA_FIELD_KEY);
 
     List<QuestionnaireActivityStepsBean> questionnaireResponses =
         questionnaireActivityResponseBean.getData().getResults();
     List<Map<String, Object>> stepsList = new ArrayList<Map<String, Object>>();
     for (QuestionnaireActivityStepsBean tmpBean : questionnaireResponses) {
-      Map<String, Object> dataToStoreTemp = getHashMapForBean(tmpBean);
-      stepsList.add(dataToStoreTemp);
+      stepsList.add(ResponseDocumentMapper.toDocument(tmpBean));
     }
     dataToStoreActivityResults.put(AppConstants.RESULTS_FIELD_KEY, stepsList);
     this.addParticipantDataToMap(questionnaireActivityResponseBean, dataToStoreActivityResults);
@@ -404,83 +379,6 @@ public class ActivityResponseProcessorServiceImpl implements ActivityResponsePro
   }
 
   private String getRawJsonInputData(Object argBean) {
-    Gson gson = new Gson();
-    return gson.toJson(argBean);
-  }
-
-  private Map<String, Object> getHashMapForBean(Object bean) throws Exception {
-    BeanInfo beanInfo;
-    beanInfo = Introspector.getBeanInfo(bean.getClass());
-    PropertyDescriptor[] propDescriptor = beanInfo.getPropertyDescriptors();
-    Map<String, Object> dataToStore = new HashMap<>();
-    GsonBuilder gsonBuilder = new GsonBuilder();
-    Gson gson = gsonBuilder.create();
-    List<Map<String, Object>> stepsList = new ArrayList<Map<String, Object>>();
-    for (PropertyDescriptor pd : propDescriptor) {
-      String propertyName = pd.getName();
-      if (!propertyName.equals(AppConstants.PROPERTY_NAME_CLASS)) {
-        Method getterMethod = pd.getReadMethod();
-        Object propertyValue = getterMethod.invoke(bean);
-        if (!(propertyValue instanceof String)) {
-          if (propertyValue instanceof ActivityValueGroupBean
-              || propertyValue instanceof ActivityMetadataBean) {
-            dataToStore.put(propertyName, getHashMapForBean(propertyValue));
-          } else if (propertyValue instanceof List) {
-            try {
-              ArrayList<Object> pvalueList = (ArrayList<Object>) propertyValue;
-              for (Object valueObj : pvalueList) {
-                if (valueObj instanceof QuestionnaireActivityStepsBean) {
-                  Map<String, Object> tempMap = getHashMapForBean(valueObj);
-                  stepsList.add(tempMap);
-                } else if (valueObj instanceof String) {
-                  if (valueObj != null) {
-                    Object tmpPropertyValue = dataToStore.get(propertyName);
-                    if (tmpPropertyValue != null) {
-                      String tmpPropertyValueStr = (String) tmpPropertyValue.toString();
-                      if (!StringUtils.isBlank(tmpPropertyValueStr)) {
-                        valueObj = tmpPropertyValueStr + AppConstants.COMMA_STR + valueObj;
-                      }
-                    }
-                    dataToStore.put(propertyName, valueObj);
-                  }
-                } else {
-                  if (valueObj != null) {
-                    propertyValue = gson.toJson(valueObj);
-                    Object tmpPropertyValue = dataToStore.get(propertyName);
-                    if (tmpPropertyValue != null) {
-                      String tmpPropertyValueStr = (String) tmpPropertyValue.toString();
-                      if (!StringUtils.isBlank(tmpPropertyValueStr)) {
-                        propertyValue =
-                            tmpPropertyValueStr + AppConstants.COMMA_STR + propertyValue;
-                      }
-                    }
-                    dataToStore.put(propertyName, propertyValue);
-                  }
-                }
-                if (stepsList != null && !stepsList.isEmpty()) {
-                  dataToStore.put(AppConstants.RESULTS_FIELD_KEY, stepsList);
-                }
-              }
-            } catch (ClassCastException ce) {
-              propertyValue = gson.toJson(propertyValue);
-              dataToStore.put(propertyName, getHashMapForBean(propertyValue));
-            }
-          } else {
-            propertyValue = gson.toJson(propertyValue);
-            dataToStore.put(propertyName, propertyValue);
-          }
-        } else {
-          if (propertyValue != null) {
-            dataToStore.put(propertyName, propertyValue);
-          }
-        }
-        logger.debug(
-            "getHashMapForBean() : \n Property Name: "
-                + propertyName
-                + "\t Property Value : "
-                + propertyValue);
-      }
-    }
-    return dataToStore;
+    return GSON.toJson(argBean);
   }
 }
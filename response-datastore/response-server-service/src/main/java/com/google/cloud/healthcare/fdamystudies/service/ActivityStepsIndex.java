@@ -0,0 +1,103 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.service;
+
+import com.google.cloud.healthcare.fdamystudies.bean.QuestionnaireActivityStepsBean;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The metadata steps of an activity, and the steps of its forms, by question key. Keys match
+ * regardless of case, as with {@link QuestionnaireActivityStepsBeanPredicate#questionKeyMatch}.
+ *
+ * <p>An index is built once for the metadata of an activity version, and is read concurrently by
+ * the submissions of that version.
+ */
+public final class ActivityStepsIndex {
+
+  private final Map<String, StepMatch> steps = new HashMap<>();
+
+  private final Map<String, QuestionnaireActivityStepsBean> formSteps = new HashMap<>();
+
+  private ActivityStepsIndex(List<QuestionnaireActivityStepsBean> metadataSteps) {
+    for (QuestionnaireActivityStepsBean metadataStep : metadataSteps) {
+      if (metadataStep.getKey() != null) {
+        String key = foldCase(metadataStep.getKey());
+        StepMatch match = steps.get(key);
+        if (match == null) {
+          steps.put(key, new StepMatch(metadataStep));
+        } else {
+          match.add(metadataStep);
+        }
+      }
+      if (metadataStep.getSteps() != null) {
+        // a key is kept for the first form that has it, with the last step of that form
+        Map<String, QuestionnaireActivityStepsBean> stepsOfForm = new HashMap<>();
+        for (QuestionnaireActivityStepsBean formStep : metadataStep.getSteps()) {
+          if (formStep.getKey() != null) {
+            stepsOfForm.put(foldCase(formStep.getKey()), formStep);
+          }
+        }
+        for (Map.Entry<String, QuestionnaireActivityStepsBean> formStep : stepsOfForm.entrySet()) {
+          formSteps.putIfAbsent(formStep.getKey(), formStep.getValue());
+        }
+      }
+    }
+  }
+
+  public static ActivityStepsIndex of(List<QuestionnaireActivityStepsBean> metadataSteps) {
+    return new ActivityStepsIndex(metadataSteps);
+  }
+
+  /** Returns the last step with the key, or null if there is none. */
+  public QuestionnaireActivityStepsBean findStep(String questionKey) {
+    StepMatch match = questionKey != null ? steps.get(foldCase(questionKey)) : null;
+    return match != null ? match.last : null;
+  }
+
+  /** Returns the step with the key, or null if there is none or more than one. */
+  public QuestionnaireActivityStepsBean findUniqueStep(String questionKey) {
+    StepMatch match = questionKey != null ? steps.get(foldCase(questionKey)) : null;
+    return match != null && match.count == 1 ? match.last : null;
+  }
+
+  /**
+   * Returns the step with the key in the first form that has one, the last one if the form has
+   * several, or null if no form has one.
+   */
+  public QuestionnaireActivityStepsBean findFormStep(String questionKey) {
+    return questionKey != null ? formSteps.get(foldCase(questionKey)) : null;
+  }
+
+  /** Maps each character as String.equalsIgnoreCase() compares it. */
+  private static String foldCase(String key) {
+    char[] chars = key.toCharArray();
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+    }
+    return new String(chars);
+  }
+
+  private static class StepMatch {
+
+    private QuestionnaireActivityStepsBean last;
+
+    private int count;
+
+    private StepMatch(QuestionnaireActivityStepsBean step) {
+      add(step);
+    }
+
+    private void add(QuestionnaireActivityStepsBean step) {
+      last = step;
+      count++;
+    }
+  }
+}
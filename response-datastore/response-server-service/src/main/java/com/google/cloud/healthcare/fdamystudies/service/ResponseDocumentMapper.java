@@ -0,0 +1,154 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.service;
+
+import com.google.cloud.healthcare.fdamystudies.bean.ActivityMetadataBean;
+import com.google.cloud.healthcare.fdamystudies.bean.ActivityValueGroupBean;
+import com.google.cloud.healthcare.fdamystudies.bean.QuestionnaireActivityStepsBean;
+import com.google.cloud.healthcare.fdamystudies.utils.AppConstants;
+import com.google.gson.Gson;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Converts the metadata and the steps of an activity response into the maps stored as the response
+ * document.
+ *
+ * <p>The readable properties of each bean class are looked up once, and their getters are bound to
+ * functions that are called directly. The properties are converted as they always have been:
+ *
+ * <ul>
+ *   <li>strings are kept as they are.
+ *   <li>an {@link ActivityMetadataBean} or an {@link ActivityValueGroupBean} is converted into a
+ *       map.
+ *   <li>the {@link QuestionnaireActivityStepsBean} elements of the lists of a bean are converted
+ *       into maps, and put together under "results".
+ *   <li>the other elements of a list are joined with commas, strings as they are and other values
+ *       as JSON, and a blank value is dropped when the next one is added.
+ *   <li>any other value, null included, is written as JSON.
+ * </ul>
+ */
+public final class ResponseDocumentMapper {
+
+  private static final Gson GSON = new Gson();
+
+  private static final ClassValue<Property[]> PROPERTIES =
+      new ClassValue<Property[]>() {
+        @Override
+        protected Property[] computeValue(Class<?> type) {
+          return compile(type);
+        }
+      };
+
+  private ResponseDocumentMapper() {}
+
+  public static Map<String, Object> toDocument(Object bean) {
+    Map<String, Object> document = new HashMap<>();
+    writeTo(bean, document);
+    return document;
+  }
+
+  /** Puts the converted properties of the bean into the document. */
+  public static void writeTo(Object bean, Map<String, Object> document) {
+    List<Map<String, Object>> results = null;
+    for (Property property : PROPERTIES.get(bean.getClass())) {
+      Object value = property.getter.apply(bean);
+      if (value instanceof String) {
+        document.put(property.name, value);
+      } else if (value instanceof ActivityValueGroupBean || value instanceof ActivityMetadataBean) {
+        document.put(property.name, toDocument(value));
+      } else if (value instanceof List) {
+        List<?> elements = (List<?>) value;
+        StringBuilder joined = null;
+        boolean blank = true;
+        for (Object element : elements) {
+          if (element instanceof QuestionnaireActivityStepsBean) {
+            if (results == null) {
+              results = new ArrayList<>();
+            }
+            results.add(toDocument(element));
+          } else if (element != null) {
+            String text = element instanceof String ? (String) element : GSON.toJson(element);
+            if (blank) {
+              joined = new StringBuilder(text);
+              blank = StringUtils.isBlank(text);
+            } else {
+              joined.append(AppConstants.COMMA_STR).append(text);
+            }
+          }
+        }
+        if (joined != null) {
+          document.put(property.name, joined.toString());
+        }
+        if (results != null && !elements.isEmpty()) {
+          document.put(AppConstants.RESULTS_FIELD_KEY, results);
+        }
+      } else {
+        document.put(property.name, GSON.toJson(value));
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Property[] compile(Class<?> type) {
+    try {
+      PropertyDescriptor[] descriptors = Introspector.getBeanInfo(type).getPropertyDescriptors();
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      List<Property> properties = new ArrayList<>();
+      for (PropertyDescriptor descriptor : descriptors) {
+        if (AppConstants.PROPERTY_NAME_CLASS.equals(descriptor.getName())
+            || descriptor.getReadMethod() == null) {
+          continue;
+        }
+        MethodHandle getter = lookup.unreflect(descriptor.getReadMethod());
+        CallSite callSite =
+            LambdaMetafactory.metafactory(
+                lookup,
+                "apply",
+                MethodType.methodType(Function.class),
+                MethodType.methodType(Object.class, Object.class),
+                getter,
+                MethodType.methodType(descriptor.getPropertyType(), type).wrap());
+        properties.add(
+            new Property(
+                descriptor.getName(),
+                (Function<Object, Object>) callSite.getTarget().invokeExact()));
+      }
+      return properties.toArray(new Property[properties.size()]);
+    } catch (IntrospectionException e) {
+      throw new IllegalStateException("Unable to read the properties of " + type.getName(), e);
+    } catch (Throwable e) {
+      throw new IllegalStateException("Unable to bind the getters of " + type.getName(), e);
+    }
+  }
+
+  private static class Property {
+
+    private final String name;
+
+    private final Function<Object, Object> getter;
+
+    private Property(String name, Function<Object, Object> getter) {
+      this.name = name;
+      this.getter = getter;
+    }
+  }
+}
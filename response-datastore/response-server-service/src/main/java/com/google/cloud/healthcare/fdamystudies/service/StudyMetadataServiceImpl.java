@@ -19,6 +19,10 @@ import com.google.cloud.healthcare.fdamystudies.mapper.AuditEventMapper;
 import com.google.cloud.healthcare.fdamystudies.utils.AppConstants;
 import com.google.cloud.healthcare.fdamystudies.utils.AppUtil;
 import com.google.cloud.healthcare.fdamystudies.utils.ProcessResponseException;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheLoader.InvalidCacheLoadException;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import java.beans.BeanInfo;
 import java.beans.IntrospectionException;
 import java.beans.Introspector;
@@ -28,6 +32,7 @@ import java.lang.reflect.Method;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.ext.XLogger;
 import org.slf4j.ext.XLoggerFactory;
@@ -48,7 +53,11 @@ public class StudyMetadataServiceImpl implements StudyMetadataService {
   @Autowired private ApplicationConfiguration appConfig;
 
   @Autowired
-  @Qualifier("cloudFirestoreResponsesDaoImpl")
+  @Qualifier("activityMetadataCache")
+  private Cache<String, QuestionnaireActivityStructureBean> activityMetadataCache;
+
+  @Autowired
+  @Qualifier("responsesDao")
   private ResponsesDao responsesDao;
 
   private XLogger logger = XLoggerFactory.getXLogger(StudyMetadataServiceImpl.class.getName());
@@ -96,6 +105,42 @@ public class StudyMetadataServiceImpl implements StudyMetadataService {
       AuditLogEventRequest auditRequest)
       throws ProcessResponseException {
     logger.entry("begin getStudyActivityMetadata()");
+    String cacheKey =
+        String.join(
+            "|",
+            studyActivityMetadataRequestBean.getStudyId(),
+            studyActivityMetadataRequestBean.getActivityId(),
+            studyActivityMetadataRequestBean.getActivityVersion());
+    QuestionnaireActivityStructureBean retQuestionnaireActivityStructureBean = null;
+    try {
+      // Concurrent misses for the same key wait on a single fetch
+      retQuestionnaireActivityStructureBean =
+          activityMetadataCache.get(
+              cacheKey,
+              () ->
+                  fetchStudyActivityMetadata(
+                      applicationId, studyActivityMetadataRequestBean, auditRequest));
+    } catch (InvalidCacheLoadException e) {
+      // The study datastore returned no activity, nothing is cached for this key
+      logger.warn("getStudyActivityMetadata() - no activity metadata for " + cacheKey);
+    } catch (ExecutionException e) {
+      throw (ProcessResponseException) e.getCause();
+    } catch (UncheckedExecutionException | ExecutionError e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw (Error) cause;
+    }
+    logger.exit("getStudyActivityMetadata() - ends");
+    return retQuestionnaireActivityStructureBean;
+  }
+
+  private QuestionnaireActivityStructureBean fetchStudyActivityMetadata(
+      String applicationId,
+      StudyActivityMetadataRequestBean studyActivityMetadataRequestBean,
+      AuditLogEventRequest auditRequest)
+      throws ProcessResponseException {
     HttpHeaders headers = null;
 
     ResponseEntity<?> responseEntity = null;
@@ -122,10 +167,7 @@ public class StudyMetadataServiceImpl implements StudyMetadataService {
             QuestionnaireActivityMetaDataBean.class);
     QuestionnaireActivityMetaDataBean metadataParentBean =
         (QuestionnaireActivityMetaDataBean) responseEntity.getBody();
-    QuestionnaireActivityStructureBean retQuestionnaireActivityStructureBean =
-        metadataParentBean.getActivity();
-    logger.exit("getStudyActivityMetadata() - ends");
-    return retQuestionnaireActivityStructureBean;
+    return metadataParentBean.getActivity();
   }
 
   private String getWcpAuthorizationHeader() throws ProcessResponseException {
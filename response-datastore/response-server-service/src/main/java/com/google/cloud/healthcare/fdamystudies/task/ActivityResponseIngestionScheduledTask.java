@@ -0,0 +1,33 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.task;
+
+import com.google.cloud.healthcare.fdamystudies.service.ActivityResponseIngestionService;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ActivityResponseIngestionScheduledTask {
+
+  private XLogger logger =
+      XLoggerFactory.getXLogger(ActivityResponseIngestionScheduledTask.class.getName());
+
+  @Autowired private ActivityResponseIngestionService ingestionService;
+
+  @Scheduled(fixedDelayString = "${response.ingestion.poll.interval.ms}")
+  public void dispatchQueuedSubmissions() {
+    int dispatched = ingestionService.dispatchDueSubmissions();
+    if (dispatched > 0) {
+      logger.debug(String.format("dispatched %d queued activity response(s)", dispatched));
+    }
+  }
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.task;
+
+import com.google.cloud.healthcare.fdamystudies.dao.FileResponsesDaoImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(value = "response.storage.type", havingValue = "file")
+public class ResponseSegmentCompactionScheduledTask {
+
+  @Autowired private FileResponsesDaoImpl fileResponsesDao;
+
+  @Scheduled(fixedDelayString = "${response.file.store.compaction.interval.ms}")
+  public void compactResponseSegments() {
+    fileResponsesDao.compactSegments();
+  }
+}
@@ -54,6 +54,7 @@ public class AppConstants {
   public static final String ACTIVITY_TYPE_TASK = "task";
   public static final String PARTICIPANT_METADATA_KEY = "Participants";
   public static final String ACTIVITIES_COLLECTION_NAME = "Activities";
+  public static final String CHECKPOINTS_COLLECTION_NAME = "ResponseCheckpoints";
   public static final String SUCCESS_MSG = "SUCCESS";
   public static final String COMPLETED = "Completed";
   public static final String WITHDRAWAL_STATUS_KEY = "withdrawalStatus";
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.benchmark;
+
+import com.google.cloud.healthcare.fdamystudies.bean.QuestionnaireActivityStepsBean;
+import com.google.cloud.healthcare.fdamystudies.service.ActivityStepsIndex;
+import com.google.cloud.healthcare.fdamystudies.service.QuestionnaireActivityStepsBeanPredicate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the matching of response steps to their metadata steps, previously a scan of the
+ * metadata steps for each response step in ActivityResponseProcessorServiceImpl, with {@link
+ * ActivityStepsIndex}. Half of the questions of the activity are in forms of 10 questions, and each
+ * form is answered 3 times.
+ *
+ * <p>Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.google.cloud.healthcare.fdamystudies.benchmark.ActivityMetadataJoinBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ActivityMetadataJoinBenchmark {
+
+  private static final int QUESTIONS_PER_FORM = 10;
+
+  private static final int ANSWERS_PER_FORM = 3;
+
+  @Param({"50", "200"})
+  private int questions;
+
+  private List<QuestionnaireActivityStepsBean> metadataSteps;
+
+  private ActivityStepsIndex index;
+
+  private List<QuestionnaireActivityStepsBean> responseSteps;
+
+  private List<QuestionnaireActivityStepsBean> responseFormSteps;
+
+  @Setup
+  public void setUp() {
+    metadataSteps = new ArrayList<>();
+    responseSteps = new ArrayList<>();
+    responseFormSteps = new ArrayList<>();
+    for (int question = 0; question < questions / 2; question++) {
+      metadataSteps.add(step("Question" + question));
+      responseSteps.add(step("question" + question));
+    }
+    for (int form = 0; form < questions / 2 / QUESTIONS_PER_FORM; form++) {
+      QuestionnaireActivityStepsBean formStep = step("Form" + form);
+      metadataSteps.add(formStep);
+      responseSteps.add(step("form" + form));
+      for (int question = 0; question < QUESTIONS_PER_FORM; question++) {
+        formStep.getSteps().add(step("Form" + form + "Question" + question));
+        for (int answer = 0; answer < ANSWERS_PER_FORM; answer++) {
+          responseFormSteps.add(step("form" + form + "question" + question));
+        }
+      }
+    }
+    index = ActivityStepsIndex.of(metadataSteps);
+  }
+
+  /** The previous plugInMetadataToResponses(), which scans the metadata for each response step. */
+  @Benchmark
+  public int scan() {
+    int matched = 0;
+    for (QuestionnaireActivityStepsBean responseStep : responseSteps) {
+      List<QuestionnaireActivityStepsBean> metadataMatchList =
+          metadataSteps.stream()
+              .filter(
+                  QuestionnaireActivityStepsBeanPredicate.questionKeyMatch(responseStep.getKey()))
+              .collect(Collectors.<QuestionnaireActivityStepsBean>toList());
+      for (QuestionnaireActivityStepsBean metadataMatchBean : metadataMatchList) {
+        matched += plugIn(metadataMatchBean, responseStep);
+      }
+    }
+    for (QuestionnaireActivityStepsBean responseStep : responseFormSteps) {
+      List<QuestionnaireActivityStepsBean> metadataMatchList = null;
+      for (QuestionnaireActivityStepsBean stepBean : metadataSteps) {
+        metadataMatchList =
+            stepBean.getSteps().stream()
+                .filter(
+                    QuestionnaireActivityStepsBeanPredicate.questionKeyMatch(responseStep.getKey()))
+                .collect(Collectors.<QuestionnaireActivityStepsBean>toList());
+        if (metadataMatchList != null && metadataMatchList.size() > 0) {
+          break;
+        }
+      }
+      for (QuestionnaireActivityStepsBean metadataMatchBean : metadataMatchList) {
+        matched += plugIn(metadataMatchBean, responseStep);
+      }
+    }
+    return matched;
+  }
+
+  /** The index of the activity version, built once and reused by its submissions. */
+  @Benchmark
+  public int indexed() {
+    return join(index);
+  }
+
+  /** An index built for the submission, as when the metadata is not cached. */
+  @Benchmark
+  public int indexedPerSubmission() {
+    return join(ActivityStepsIndex.of(metadataSteps));
+  }
+
+  private int join(ActivityStepsIndex index) {
+    int matched = 0;
+    for (QuestionnaireActivityStepsBean responseStep : responseSteps) {
+      matched += plugIn(index.findStep(responseStep.getKey()), responseStep);
+    }
+    for (QuestionnaireActivityStepsBean responseStep : responseFormSteps) {
+      matched += plugIn(index.findFormStep(responseStep.getKey()), responseStep);
+    }
+    return matched;
+  }
+
+  private static int plugIn(
+      QuestionnaireActivityStepsBean metadataMatchBean,
+      QuestionnaireActivityStepsBean responseStep) {
+    if (metadataMatchBean == null) {
+      return 0;
+    }
+    responseStep.setSkippable(metadataMatchBean.getSkippable());
+    responseStep.setText(metadataMatchBean.getText());
+    responseStep.setTitle(metadataMatchBean.getTitle());
+    return 1;
+  }
+
+  private static QuestionnaireActivityStepsBean step(String key) {
+    QuestionnaireActivityStepsBean step = new QuestionnaireActivityStepsBean();
+    step.setKey(key);
+    step.setTitle("Title of " + key);
+    step.setText("Text of " + key);
+    step.setSkippable(true);
+    return step;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(
+            new OptionsBuilder()
+                .include(ActivityMetadataJoinBenchmark.class.getSimpleName())
+                .build())
+        .run();
+  }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.benchmark;
+
+import com.google.cloud.healthcare.fdamystudies.bean.ActivityResponseBean;
+import com.google.cloud.healthcare.fdamystudies.bean.DestinationBean;
+import com.google.cloud.healthcare.fdamystudies.bean.QuestionnaireActivityStepsBean;
+import com.google.cloud.healthcare.fdamystudies.service.LegacyResponseDocumentMapper;
+import com.google.cloud.healthcare.fdamystudies.service.ResponseDocumentMapper;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the reflective conversion of a questionnaire response into its response document,
+ * previously done by ActivityResponseProcessorServiceImpl, with {@link ResponseDocumentMapper}, for
+ * questionnaires of several forms answered several times each.
+ *
+ * <p>Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.google.cloud.healthcare.fdamystudies.benchmark.ResponseDocumentMapperBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseDocumentMapperBenchmark {
+
+  private static final int QUESTIONS_PER_FORM = 10;
+
+  private static final int ANSWERS_PER_FORM = 5;
+
+  @Param({"5", "20"})
+  private int forms;
+
+  private ActivityResponseBean response;
+
+  @Setup
+  public void setUp() {
+    response = newQuestionnaireResponse(forms, QUESTIONS_PER_FORM, ANSWERS_PER_FORM);
+  }
+
+  @Benchmark
+  public List<Map<String, Object>> reflective() throws Exception {
+    List<Map<String, Object>> documents = new ArrayList<>();
+    documents.add(LegacyResponseDocumentMapper.getHashMapForBean(response.getMetadata()));
+    for (QuestionnaireActivityStepsBean step : response.getData().getResults()) {
+      documents.add(LegacyResponseDocumentMapper.getHashMapForBean(step));
+    }
+    return documents;
+  }
+
+  @Benchmark
+  public List<Map<String, Object>> compiled() {
+    List<Map<String, Object>> documents = new ArrayList<>();
+    documents.add(ResponseDocumentMapper.toDocument(response.getMetadata()));
+    for (QuestionnaireActivityStepsBean step : response.getData().getResults()) {
+      documents.add(ResponseDocumentMapper.toDocument(step));
+    }
+    return documents;
+  }
+
+  /**
+   * Returns a response with the given number of forms, each answered several times, followed by one
+   * question of each kind. The answers of a form are in its value, as they are received, and in its
+   * value group, as ActivityResponseProcessorServiceImpl adds them.
+   */
+  public static ActivityResponseBean newQuestionnaireResponse(
+      int forms, int questionsPerForm, int answersPerForm) {
+    ActivityResponseBean response = new ActivityResponseBean();
+    response.setParticipantId("participant1");
+    response.getMetadata().setStudyId("StudyofHealth");
+    response.getMetadata().setActivityId("Questionnaire1");
+    response.getMetadata().setActivityRunId("1");
+    response.getMetadata().setActivityType("questionnaire");
+    response.getMetadata().setVersion("1.0");
+
+    List<QuestionnaireActivityStepsBean> results = response.getData().getResults();
+    for (int form = 0; form < forms; form++) {
+      QuestionnaireActivityStepsBean formStep = newStep("form" + form, "grouped");
+      formStep.setRepeatable(true);
+      List<Object> answers = new ArrayList<>();
+      for (int answer = 0; answer < answersPerForm; answer++) {
+        List<Object> answerSteps = new ArrayList<>();
+        for (int question = 0; question < questionsPerForm; question++) {
+          QuestionnaireActivityStepsBean answerStep =
+              newQuestion("form" + form + "question" + question, question);
+          formStep.getActvityValueGroup().getValueGroup().add(answerStep);
+          Map<String, Object> answerMap = new LinkedHashMap<>();
+          answerMap.put("key", answerStep.getKey());
+          answerMap.put("resultType", answerStep.getResultType());
+          answerMap.put("value", answerStep.getValue());
+          answerSteps.add(answerMap);
+        }
+        answers.add(answerSteps);
+      }
+      formStep.setValue(answers);
+      for (int question = 0; question < questionsPerForm; question++) {
+        formStep.getSteps().add(newStep("form" + form + "question" + question, "textChoice"));
+      }
+      results.add(formStep);
+    }
+    for (int question = 0; question < questionsPerForm; question++) {
+      results.add(newQuestion("question" + question, question));
+    }
+    return response;
+  }
+
+  private static QuestionnaireActivityStepsBean newQuestion(String key, int kind) {
+    QuestionnaireActivityStepsBean step;
+    switch (kind % 5) {
+      case 0:
+        step = newStep(key, "textChoice");
+        step.setValue(new ArrayList<>(Arrays.asList("Option 1", "Option 3")));
+        step.getOptions().addAll(Arrays.asList("Option 1", "Option 2", "Option 3"));
+        break;
+      case 1:
+        step = newStep(key, "scale");
+        step.setValue(7.0);
+        step.getFormat().put("maxValue", 10);
+        step.getFormat().put("minValue", 0);
+        break;
+      case 2:
+        step = newStep(key, "boolean");
+        step.setValue(Boolean.TRUE);
+        break;
+      case 3:
+        step = newStep(key, "date");
+        step.setValue(null);
+        step.setSkipped(true);
+        break;
+      default:
+        step = newStep(key, "textScale");
+        step.setValue("Answer to " + key);
+    }
+    DestinationBean destination = new DestinationBean();
+    destination.setCondition("");
+    destination.setDestination(key + "next");
+    step.getDestinations().add(destination);
+    return step;
+  }
+
+  private static QuestionnaireActivityStepsBean newStep(String key, String resultType) {
+    QuestionnaireActivityStepsBean step = new QuestionnaireActivityStepsBean();
+    step.setType("question");
+    step.setResultType(resultType);
+    step.setKey(key);
+    step.setTitle("Title of " + key);
+    step.setText("Text of " + key);
+    step.setSkippable(false);
+    step.setSkipped(false);
+    step.setStartTime("2021-03-04T05:06:07.000+0000");
+    step.setEndTime("2021-03-04T05:06:17.000+0000");
+    return step;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(
+            new OptionsBuilder()
+                .include(ResponseDocumentMapperBenchmark.class.getSimpleName())
+                .build())
+        .run();
+  }
+}
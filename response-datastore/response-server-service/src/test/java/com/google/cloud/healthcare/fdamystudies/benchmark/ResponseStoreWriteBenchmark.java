@@ -0,0 +1,139 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.benchmark;
+
+import com.google.cloud.healthcare.fdamystudies.dao.ResponseSegmentStore;
+import com.google.cloud.healthcare.fdamystudies.utils.AppConstants;
+import com.google.gson.Gson;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the write throughput of the one-file-per-response writer previously used by
+ * FileResponsesDaoImpl with {@link ResponseSegmentStore}, and measures a participant/activity
+ * lookup against the store.
+ *
+ * <p>Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.google.cloud.healthcare.fdamystudies.benchmark.ResponseStoreWriteBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseStoreWriteBenchmark {
+
+  private static final String STUDY_COLLECTION_NAME = "StudyofHealth-RESPONSES";
+
+  private static final int PARTICIPANTS = 1000;
+
+  private final Gson gson = new Gson();
+
+  private Path legacyDirectory;
+
+  private Path storeDirectory;
+
+  private ResponseSegmentStore store;
+
+  private Map<String, Object> response;
+
+  private long sequence;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    legacyDirectory = Files.createTempDirectory("legacy-responses");
+    storeDirectory = Files.createTempDirectory("segment-responses");
+    store = new ResponseSegmentStore(storeDirectory, 64L * 1024 * 1024);
+    response = newResponse();
+    for (int i = 0; i < PARTICIPANTS * 10; i++) {
+      store.put("participant" + (i % PARTICIPANTS), "1", "Activity1", response);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    store.close();
+    delete(legacyDirectory);
+    delete(storeDirectory);
+  }
+
+  /** The previous FileResponsesDaoImpl.saveActivityResponseData(), one JSON file per response. */
+  @Benchmark
+  public Path oneFilePerResponse() throws IOException {
+    return Files.write(
+        legacyDirectory.resolve(
+            STUDY_COLLECTION_NAME
+                + AppConstants.HYPHEN
+                + (sequence++)
+                + AppConstants.JSON_FILE_EXTENSION),
+        gson.toJson(response).getBytes());
+  }
+
+  @Benchmark
+  public String segmentStorePut() throws IOException {
+    return store.put("participant" + (sequence++ % PARTICIPANTS), "1", "Activity1", response);
+  }
+
+  @Benchmark
+  public int segmentStoreFind() throws IOException {
+    return store.find("participant" + (sequence++ % PARTICIPANTS), "1", "Activity1").size();
+  }
+
+  private static Map<String, Object> newResponse() {
+    Map<String, Object> result = new HashMap<>();
+    result.put(AppConstants.RESULT_TYPE_KEY, "numeric");
+    result.put(AppConstants.QUESTION_ID_KEY, "q1");
+    result.put(AppConstants.VALUE_KEY_STR, "42");
+    List<Map<String, Object>> results = Collections.nCopies(20, result);
+
+    Map<String, Object> response = new HashMap<>();
+    response.put(AppConstants.PARTICIPANT_ID_KEY, "participant1");
+    response.put(AppConstants.SITE_ID_KEY, "1");
+    response.put(AppConstants.ACTIVITY_ID_KEY, "Activity1");
+    response.put(AppConstants.CREATED_TS_KEY, String.valueOf(System.currentTimeMillis()));
+    response.put(AppConstants.RESULTS_FIELD_KEY, results);
+    return response;
+  }
+
+  private static void delete(Path directory) throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(
+            new OptionsBuilder().include(ResponseStoreWriteBenchmark.class.getSimpleName()).build())
+        .run();
+  }
+}
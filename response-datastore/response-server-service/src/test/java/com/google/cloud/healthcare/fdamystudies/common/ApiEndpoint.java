@@ -28,6 +28,12 @@ public enum ApiEndpoint {
   PROCESS_ACTIVITY_RESPONSE(
       "http://localhost:8004/response-datastore/participant/process-response"),
 
+  PROCESS_ACTIVITY_RESPONSE_ASYNC(
+      "http://localhost:8004/response-datastore/participant/process-response-async"),
+
+  PROCESS_ACTIVITY_RESPONSE_STATUS(
+      "http://localhost:8004/response-datastore/participant/process-response-status"),
+
   GET_PROCESS_ACTIVITY_RESPONSE("http://localhost:8004/response-datastore/participant/getresponse"),
 
   WITHDRAW("http://localhost:8004/response-datastore/participant/withdraw");
@@ -43,31 +43,48 @@ import static com.google.cloud.healthcare.fdamystudies.utils.ErrorCode.EC_701;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
 import com.google.cloud.healthcare.fdamystudies.bean.ActivityResponseBean;
+import com.google.cloud.healthcare.fdamystudies.bean.QuestionnaireActivityStructureBean;
 import com.google.cloud.healthcare.fdamystudies.bean.StoredResponseBean;
 import com.google.cloud.healthcare.fdamystudies.beans.AuditLogEventRequest;
 import com.google.cloud.healthcare.fdamystudies.common.ApiEndpoint;
 import com.google.cloud.healthcare.fdamystudies.common.BaseMockIT;
 import com.google.cloud.healthcare.fdamystudies.common.IdGenerator;
 import com.google.cloud.healthcare.fdamystudies.common.JsonUtils;
+import com.google.cloud.healthcare.fdamystudies.common.SubmissionStage;
+import com.google.cloud.healthcare.fdamystudies.common.SubmissionStatus;
 import com.google.cloud.healthcare.fdamystudies.dao.CloudFirestoreResponsesDaoImpl;
 import com.google.cloud.healthcare.fdamystudies.helper.TestDataHelper;
+import com.google.cloud.healthcare.fdamystudies.repository.ActivityResponseSubmissionRepository;
 import com.google.cloud.healthcare.fdamystudies.repository.ParticipantActivitiesRepository;
 import com.google.cloud.healthcare.fdamystudies.repository.ParticipantInfoRepository;
+import com.google.cloud.healthcare.fdamystudies.response.model.ActivityResponseSubmissionEntity;
 import com.google.cloud.healthcare.fdamystudies.response.model.ParticipantActivitiesEntity;
 import com.google.cloud.healthcare.fdamystudies.response.model.ParticipantInfoEntity;
+import com.google.cloud.healthcare.fdamystudies.service.ActivityResponseIngestionService;
 import com.google.cloud.healthcare.fdamystudies.utils.Constants;
 import com.google.cloud.healthcare.fdamystudies.utils.TestUtils;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheStats;
+import com.jayway.jsonpath.JsonPath;
+import java.sql.Timestamp;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -80,6 +97,7 @@ import org.mockito.Captor;
 import org.skyscreamer.jsonassert.JSONAssert;
 import org.skyscreamer.jsonassert.JSONCompareMode;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.HttpHeaders;
 import org.springframework.test.web.servlet.MvcResult;
@@ -105,6 +123,14 @@ public class ProcessActivityResponseControllerTest extends BaseMockIT {
 
   @Autowired private ParticipantActivitiesRepository participantActivitiesRepository;
 
+  @Autowired private ActivityResponseSubmissionRepository submissionRepository;
+
+  @Autowired private ActivityResponseIngestionService ingestionService;
+
+  @Autowired
+  @Qualifier("activityMetadataCache")
+  private Cache<String, QuestionnaireActivityStructureBean> activityMetadataCache;
+
   @BeforeEach
   public void setUp() {
     participantBo = testDataHelper.saveParticipant();
@@ -207,6 +233,37 @@ public class ProcessActivityResponseControllerTest extends BaseMockIT {
         ACTIVITY_STATE_SAVED_OR_UPDATED_AFTER_RESPONSE_SUBMISSION);
   }
 
+  @Test
+  public void shouldFetchActivityMetadataOnceForRepeatedResponses() throws Exception {
+    CacheStats statsBefore = activityMetadataCache.stats();
+    HttpHeaders headers = TestUtils.newHeadersUser();
+    for (String activityRunId : new String[] {"1", "2"}) {
+      ActivityResponseBean activityResponseBean = setActivityResponseBean();
+      activityResponseBean.getMetadata().setStudyVersion(STUDY_VERSION);
+      activityResponseBean.getMetadata().setActivityRunId(activityRunId);
+
+      mockMvc
+          .perform(
+              post(ApiEndpoint.PROCESS_ACTIVITY_RESPONSE.getPath())
+                  .contextPath(getContextPath())
+                  .content(JsonUtils.asJsonString(activityResponseBean))
+                  .headers(headers))
+          .andDo(print())
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.message", is(SUCCESS)));
+    }
+
+    verify(
+        1,
+        getRequestedFor(
+            urlEqualTo(
+                "/study-datastore/activity?studyId=ASignature01"
+                    + "&activityId=Activity&activityVersion=1.0")));
+    CacheStats stats = activityMetadataCache.stats().minus(statsBefore);
+    assertEquals(1, stats.hitCount());
+    assertEquals(1, stats.missCount());
+  }
+
   @Test
   public void shouldReturnBadRequestForEmptyInputsOfProccessActivityResponse() throws Exception {
     ActivityResponseBean activityResponseBean = new ActivityResponseBean();
@@ -250,6 +307,194 @@ public class ProcessActivityResponseControllerTest extends BaseMockIT {
     verifyAuditEventCall(auditEventMap, PARTICIPANT_ID_INVALID);
   }
 
+  @Test
+  public void shouldQueueActivityResponseAndProcessAsynchronously() throws Exception {
+    // Step-1 call API to queue the activity response
+    ActivityResponseBean activityResponseBean = setActivityResponseBean();
+    activityResponseBean.getMetadata().setStudyVersion(STUDY_VERSION);
+    activityResponseBean.getMetadata().setActivityRunId("2");
+
+    HttpHeaders headers = TestUtils.newHeadersUser();
+    MvcResult result =
+        mockMvc
+            .perform(
+                post(ApiEndpoint.PROCESS_ACTIVITY_RESPONSE_ASYNC.getPath())
+                    .contextPath(getContextPath())
+                    .content(JsonUtils.asJsonString(activityResponseBean))
+                    .headers(headers))
+            .andDo(print())
+            .andExpect(status().isAccepted())
+            .andExpect(header().exists(HttpHeaders.LOCATION))
+            .andExpect(jsonPath("$.status", is(SubmissionStatus.QUEUED.name())))
+            .andReturn();
+    String submissionId =
+        JsonPath.read(result.getResponse().getContentAsString(), "$.submissionId");
+
+    // Step-2 the scheduled dispatcher runs the pipeline on the worker pool
+    verify(responsesDaoMock, timeout(10000))
+        .saveActivityResponseData(
+            eq(STUDY_ID_VALUE),
+            eq(STUDY_COLLECTION_NAME_VALUE),
+            eq(ACTIVITY_COLLECTION_NAME_VALUE),
+            any());
+
+    String submissionStatus = null;
+    for (int i = 0; i < 50; i++) {
+      MvcResult statusResult =
+          mockMvc
+              .perform(
+                  get(ApiEndpoint.PROCESS_ACTIVITY_RESPONSE_STATUS.getPath())
+                      .contextPath(getContextPath())
+                      .headers(headers)
+                      .queryParam("submissionId", submissionId))
+              .andExpect(status().isOk())
+              .andReturn();
+      submissionStatus = JsonPath.read(statusResult.getResponse().getContentAsString(), "$.status");
+      if (SubmissionStatus.COMPLETED.name().equals(submissionStatus)) {
+        break;
+      }
+      Thread.sleep(200);
+    }
+    assertEquals(SubmissionStatus.COMPLETED.name(), submissionStatus);
+
+    // Step-3: verify saved values
+    List<ParticipantActivitiesEntity> participantActivitiesList =
+        participantActivitiesRepository.findByStudyIdAndParticipantId(
+            STUDY_ID_VALUE, participantBo.getParticipantId());
+    assertEquals(1, participantActivitiesList.size());
+  }
+
+  @Test
+  public void shouldNotWriteSubmissionWhoseLeaseWasTakenOver() throws Exception {
+    ActivityResponseBean activityResponseBean = setActivityResponseBean();
+    activityResponseBean.getMetadata().setStudyVersion(STUDY_VERSION);
+    activityResponseBean.getMetadata().setActivityRunId("2");
+    ActivityResponseSubmissionEntity submission = new ActivityResponseSubmissionEntity();
+    submission.setParticipantId(activityResponseBean.getParticipantId());
+    submission.setStudyId(activityResponseBean.getMetadata().getStudyId());
+    submission.setActivityId(activityResponseBean.getMetadata().getActivityId());
+    submission.setActivityVersion(activityResponseBean.getMetadata().getVersion());
+    submission.setUserId(VALID_USER_ID);
+    submission.setStage(SubmissionStage.ACTIVITY_STATE.name());
+    submission.setPayload(getObjectMapper().writeValueAsString(activityResponseBean));
+    submission.setAuditRequest(getObjectMapper().writeValueAsString(new AuditLogEventRequest()));
+    // the lease of worker-1 expired and the submission was claimed again by worker-2
+    submission.setStatus(SubmissionStatus.PROCESSING.name());
+    submission.setLeaseOwner("worker-2");
+    submission.setLeaseExpiryTime(new Timestamp(System.currentTimeMillis() + 3600000));
+    String submissionId = submissionRepository.saveAndFlush(submission).getId();
+
+    ingestionService.processSubmission(submissionId, "worker-1");
+    assertEquals(
+        0,
+        submissionRepository.saveStage(
+            submissionId,
+            "worker-1",
+            SubmissionStage.DONE.name(),
+            submission.getPayload(),
+            new Timestamp(System.currentTimeMillis() + 3600000)));
+    assertEquals(
+        0,
+        submissionRepository.releaseSubmission(
+            submissionId, "worker-1", SubmissionStatus.COMPLETED.name(), 0, null, null, null));
+
+    submission = submissionRepository.findById(submissionId).get();
+    assertEquals(SubmissionStatus.PROCESSING.name(), submission.getStatus());
+    assertEquals(SubmissionStage.ACTIVITY_STATE.name(), submission.getStage());
+    assertEquals("worker-2", submission.getLeaseOwner());
+    assertTrue(
+        participantActivitiesRepository
+            .findByStudyIdAndParticipantId(STUDY_ID_VALUE, participantBo.getParticipantId())
+            .isEmpty());
+
+    ingestionService.processSubmission(submissionId, "worker-2");
+
+    submission = submissionRepository.findById(submissionId).get();
+    assertEquals(SubmissionStatus.COMPLETED.name(), submission.getStatus());
+    assertEquals(SubmissionStage.DONE.name(), submission.getStage());
+    assertNull(submission.getLeaseOwner());
+    assertNull(submission.getLeaseExpiryTime());
+    assertNull(submission.getPayload());
+    assertEquals(
+        1,
+        participantActivitiesRepository
+            .findByStudyIdAndParticipantId(STUDY_ID_VALUE, participantBo.getParticipantId())
+            .size());
+  }
+
+  @Test
+  public void shouldRetryQueuedResponseWhoseActivityMetadataIsMissing() throws Exception {
+    // Step-1 the study datastore returns no activity for this version
+    StubMapping missingActivity =
+        WireMock.stubFor(
+            WireMock.get(
+                    urlEqualTo(
+                        "/study-datastore/activity?studyId=ASignature01"
+                            + "&activityId=Activity&activityVersion=2.0"))
+                .willReturn(WireMock.okJson("{\"activity\":null}")));
+    try {
+      ActivityResponseBean activityResponseBean = setActivityResponseBean();
+      activityResponseBean.getMetadata().setVersion("2.0");
+      ActivityResponseSubmissionEntity submission = new ActivityResponseSubmissionEntity();
+      submission.setParticipantId(activityResponseBean.getParticipantId());
+      submission.setStudyId(activityResponseBean.getMetadata().getStudyId());
+      submission.setActivityId(activityResponseBean.getMetadata().getActivityId());
+      submission.setActivityVersion(activityResponseBean.getMetadata().getVersion());
+      submission.setUserId(VALID_USER_ID);
+      submission.setStage(SubmissionStage.ACTIVITY_METADATA.name());
+      submission.setPayload(getObjectMapper().writeValueAsString(activityResponseBean));
+      submission.setAuditRequest(getObjectMapper().writeValueAsString(new AuditLogEventRequest()));
+      submission.setStatus(SubmissionStatus.PROCESSING.name());
+      submission.setLeaseOwner("worker-1");
+      submission.setLeaseExpiryTime(new Timestamp(System.currentTimeMillis() + 3600000));
+      String submissionId = submissionRepository.saveAndFlush(submission).getId();
+
+      // Step-2 the submission is queued again with backoff instead of failing
+      long processed = System.currentTimeMillis();
+      ingestionService.processSubmission(submissionId, "worker-1");
+
+      submission = submissionRepository.findById(submissionId).get();
+      assertEquals(SubmissionStatus.QUEUED.name(), submission.getStatus());
+      assertEquals(SubmissionStage.ACTIVITY_METADATA.name(), submission.getStage());
+      assertEquals(1, submission.getAttempts().intValue());
+      assertTrue(submission.getNextAttemptTime().getTime() > processed);
+      assertNotNull(submission.getPayload());
+    } finally {
+      WireMock.removeStub(missingActivity);
+    }
+  }
+
+  @Test
+  public void shouldReturnBadRequestForInvalidParticipantOfQueuedResponse() throws Exception {
+    ActivityResponseBean activityResponseBean = setActivityResponseBean();
+    activityResponseBean.setParticipantId(IdGenerator.id());
+    HttpHeaders headers = TestUtils.newHeadersUser();
+    mockMvc
+        .perform(
+            post(ApiEndpoint.PROCESS_ACTIVITY_RESPONSE_ASYNC.getPath())
+                .contextPath(getContextPath())
+                .content(JsonUtils.asJsonString(activityResponseBean))
+                .headers(headers))
+        .andDo(print())
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.detailMessage", is(PARTICIPANT_ID_NOT_EXISTS_MESSAGE)));
+
+    assertEquals(0, submissionRepository.count());
+  }
+
+  @Test
+  public void shouldReturnNotFoundForUnknownSubmission() throws Exception {
+    HttpHeaders headers = TestUtils.newHeadersUser();
+    mockMvc
+        .perform(
+            get(ApiEndpoint.PROCESS_ACTIVITY_RESPONSE_STATUS.getPath())
+                .contextPath(getContextPath())
+                .headers(headers)
+                .queryParam("submissionId", IdGenerator.id()))
+        .andDo(print())
+        .andExpect(status().isNotFound());
+  }
+
   @Test
   public void shouldGetActivityResponse() throws Exception {
     String inputJsonContent = readJsonFile("/get_activity_response_data_for_participant.json");
@@ -422,6 +667,8 @@ public class ProcessActivityResponseControllerTest extends BaseMockIT {
 
   @AfterEach
   public void clean() {
+    activityMetadataCache.invalidateAll();
+    submissionRepository.deleteAll();
     participantBoRepository.deleteAll();
   }
 
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.healthcare.fdamystudies.bean.StoredResponseBean;
+import com.google.cloud.healthcare.fdamystudies.common.BaseMockIT;
+import com.google.cloud.healthcare.fdamystudies.config.ApplicationConfiguration;
+import com.google.cloud.healthcare.fdamystudies.dao.ResponseSegmentStore.StoredResponse;
+import com.google.cloud.healthcare.fdamystudies.utils.AppConstants;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+
+public class FileResponsesDaoImplTest extends BaseMockIT {
+
+  private static final String STUDY_ID = "StudyofHealth";
+
+  private static final String STUDY_COLLECTION_NAME = STUDY_ID + "-RESPONSES";
+
+  private static final String SITE_ID = "1";
+
+  private static final String ACTIVITY_ID = "Activity1";
+
+  @Autowired private FileResponsesDaoImpl fileResponsesDao;
+
+  @Autowired private ApplicationConfiguration appConfig;
+
+  @TempDir Path responseDataPath;
+
+  private String defaultResponseDataFilePath;
+
+  private long defaultSegmentMaxBytes;
+
+  @BeforeEach
+  public void setUp() {
+    defaultResponseDataFilePath = appConfig.getResponseDataFilePath();
+    defaultSegmentMaxBytes = appConfig.getFileStoreSegmentMaxBytes();
+    appConfig.setResponseDataFilePath(responseDataPath.toString());
+    // small segments, so a handful of responses spans several of them
+    appConfig.setFileStoreSegmentMaxBytes(512);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    fileResponsesDao.closeStores();
+    appConfig.setResponseDataFilePath(defaultResponseDataFilePath);
+    appConfig.setFileStoreSegmentMaxBytes(defaultSegmentMaxBytes);
+  }
+
+  @Test
+  void shouldReturnResponsesForParticipantActivityAndQuestion() throws Exception {
+    saveResponse("participant1", ACTIVITY_ID, "q1", "10");
+    saveResponse("participant1", ACTIVITY_ID, "q2", "20");
+    saveResponse("participant1", "Activity2", "q1", "30");
+    saveResponse("participant2", ACTIVITY_ID, "q1", "40");
+
+    StoredResponseBean allQuestions = getResponses("participant1", null);
+    assertEquals(2, allQuestions.getRowCount());
+
+    StoredResponseBean oneQuestion = getResponses("participant1", "q2");
+    assertEquals(1, oneQuestion.getRowCount());
+    assertTrue(oneQuestion.getRows().get(0).getData().toString().contains("q2"));
+    assertEquals(1, getResponses("participant1", "Q2").getRowCount());
+
+    assertNull(getResponses("participant3", null));
+  }
+
+  @Test
+  void shouldKeepDeletionsAndWithdrawalsAcrossCompactionAndRestart() throws Exception {
+    for (int i = 0; i < 10; i++) {
+      saveResponse("participant1", ACTIVITY_ID, "q1", String.valueOf(i));
+      saveResponse("participant2", ACTIVITY_ID, "q1", String.valueOf(i));
+    }
+    fileResponsesDao.deleteActivityResponseDataForParticipant(
+        STUDY_COLLECTION_NAME, STUDY_ID, AppConstants.ACTIVITIES_COLLECTION_NAME, "participant2");
+    fileResponsesDao.updateWithdrawalStatusForParticipant(
+        STUDY_COLLECTION_NAME, STUDY_ID, "participant1");
+    assertNull(getResponses("participant2", null));
+
+    long segmentsBeforeCompaction = countSegments();
+    fileResponsesDao.compactSegments();
+    assertTrue(countSegments() < segmentsBeforeCompaction);
+    assertEquals(10, getResponses("participant1", null).getRowCount());
+
+    // reopen the store from disk
+    fileResponsesDao.closeStores();
+    assertEquals(10, getResponses("participant1", null).getRowCount());
+    assertNull(getResponses("participant2", null));
+
+    fileResponsesDao.closeStores();
+    try (ResponseSegmentStore store = new ResponseSegmentStore(getActivitiesPath(), 512)) {
+      List<StoredResponse> responses = store.find("participant1", SITE_ID, ACTIVITY_ID);
+      assertEquals(10, responses.size());
+      assertTrue(responses.stream().allMatch(StoredResponse::isWithdrawn));
+      assertFalse(responses.get(0).getData().containsKey(AppConstants.WITHDRAWAL_STATUS_KEY));
+    }
+  }
+
+  @Test
+  void shouldKeepDeletionsWhenCompactedSegmentsRemainAfterACrash() throws Exception {
+    Path activitiesPath = getActivitiesPath();
+    Map<String, Object> data = Collections.singletonMap("value", "response");
+    Map<Path, byte[]> segmentsBeforeCompaction = new HashMap<>();
+    try (ResponseSegmentStore store = new ResponseSegmentStore(activitiesPath, 1)) {
+      // one record per segment, the deletions are in the newest segments
+      store.put("participant1", SITE_ID, ACTIVITY_ID, data);
+      store.put("participant2", SITE_ID, ACTIVITY_ID, data);
+      store.put("participant3", SITE_ID, ACTIVITY_ID, data);
+      store.deleteParticipant("participant3");
+      store.put("participant3", SITE_ID, ACTIVITY_ID, data);
+      store.deleteParticipant("participant2");
+      try (Stream<Path> files = Files.list(activitiesPath)) {
+        for (Path file : (Iterable<Path>) files::iterator) {
+          segmentsBeforeCompaction.put(file, Files.readAllBytes(file));
+        }
+      }
+
+      assertTrue(store.compact());
+    }
+
+    // the compacted segments were not deleted before the crash
+    for (Map.Entry<Path, byte[]> segment : segmentsBeforeCompaction.entrySet()) {
+      if (!Files.exists(segment.getKey())) {
+        Files.write(segment.getKey(), segment.getValue());
+      }
+    }
+    try (ResponseSegmentStore store = new ResponseSegmentStore(activitiesPath, 1)) {
+      assertEquals(1, store.find("participant1", SITE_ID, ACTIVITY_ID).size());
+      assertTrue(store.find("participant2", SITE_ID, ACTIVITY_ID).isEmpty());
+      assertEquals(1, store.find("participant3", SITE_ID, ACTIVITY_ID).size());
+
+      // the next compaction removes the remaining segments
+      assertTrue(store.compact());
+      assertEquals(1, store.find("participant1", SITE_ID, ACTIVITY_ID).size());
+      assertTrue(store.find("participant2", SITE_ID, ACTIVITY_ID).isEmpty());
+      assertEquals(1, store.find("participant3", SITE_ID, ACTIVITY_ID).size());
+    }
+    for (Path segment : segmentsBeforeCompaction.keySet()) {
+      assertFalse(Files.exists(segment));
+    }
+  }
+
+  private void saveResponse(
+      String participantId, String activityId, String questionKey, String value) throws Exception {
+    Map<String, Object> result = new HashMap<>();
+    result.put(AppConstants.RESULT_TYPE_KEY, "numeric");
+    result.put(AppConstants.QUESTION_ID_KEY, questionKey);
+    result.put(AppConstants.VALUE_KEY_STR, value);
+    List<Map<String, Object>> results = new ArrayList<>(Collections.singletonList(result));
+
+    Map<String, Object> dataToStore = new HashMap<>();
+    dataToStore.put(AppConstants.PARTICIPANT_ID_KEY, participantId);
+    dataToStore.put(AppConstants.SITE_ID_KEY, SITE_ID);
+    dataToStore.put(AppConstants.ACTIVITY_ID_KEY, activityId);
+    dataToStore.put(AppConstants.CREATED_TS_KEY, String.valueOf(System.currentTimeMillis()));
+    dataToStore.put(AppConstants.RESULTS_FIELD_KEY, results);
+    fileResponsesDao.saveActivityResponseData(
+        STUDY_ID, STUDY_COLLECTION_NAME, AppConstants.ACTIVITIES_COLLECTION_NAME, dataToStore);
+  }
+
+  private StoredResponseBean getResponses(String participantId, String questionKey)
+      throws Exception {
+    return fileResponsesDao.getActivityResponseDataForParticipant(
+        STUDY_COLLECTION_NAME, STUDY_ID, SITE_ID, participantId, ACTIVITY_ID, questionKey);
+  }
+
+  private Path getActivitiesPath() {
+    return responseDataPath.resolve(STUDY_ID).resolve(AppConstants.ACTIVITIES_COLLECTION_NAME);
+  }
+
+  private long countSegments() throws Exception {
+    try (Stream<Path> files = Files.list(getActivitiesPath())) {
+      return files.count();
+    }
+  }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.SettableApiFuture;
+import com.google.cloud.healthcare.fdamystudies.dao.PagedBatchWriter.PageReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+
+/**
+ * Runs {@link PagedBatchWriter} against an in-memory stand-in for a participant's Firestore
+ * response documents, where every batch commit takes {@link #COMMIT_LATENCY_MS}.
+ */
+public class PagedBatchWriterTest {
+
+  private XLogger logger = XLoggerFactory.getXLogger(PagedBatchWriterTest.class.getName());
+
+  private static final int DOCUMENTS = 50_000;
+
+  private static final int PAGE_SIZE = 500;
+
+  private static final long COMMIT_LATENCY_MS = 10;
+
+  private ScheduledExecutorService firestoreExecutor;
+
+  private NavigableMap<String, Boolean> withdrawnByDocumentId;
+
+  private AtomicReference<String> checkpoint;
+
+  @BeforeEach
+  public void setUp() {
+    firestoreExecutor = Executors.newScheduledThreadPool(16);
+    withdrawnByDocumentId = new ConcurrentSkipListMap<>();
+    for (int i = 0; i < DOCUMENTS; i++) {
+      withdrawnByDocumentId.put(String.format("response-%06d", i), false);
+    }
+    checkpoint = new AtomicReference<>();
+  }
+
+  @AfterEach
+  public void tearDown() {
+    firestoreExecutor.shutdownNow();
+  }
+
+  @Test
+  void shouldWithdrawFiftyThousandDocumentsWithParallelCommits() throws Exception {
+    assertEquals(1, withdrawAll(1));
+    tearDown();
+    setUp();
+    int maxInFlight = withdrawAll(8);
+
+    assertTrue(maxInFlight > 1);
+    assertTrue(maxInFlight <= 8);
+  }
+
+  @Test
+  void shouldResumeDeletionFromCheckpointAfterFailedCommit() throws Exception {
+    AtomicInteger commits = new AtomicInteger();
+    PagedBatchWriter<String> batchWriter = new PagedBatchWriter<>(PAGE_SIZE, 8, id -> id);
+
+    // the 30th batch fails, as a lost connection or a restart would
+    assertThrows(
+        IllegalStateException.class,
+        () ->
+            batchWriter.run(
+                null,
+                pageReader(),
+                documents ->
+                    commits.incrementAndGet() == 30
+                        ? failedCommit()
+                        : commit(() -> documents.forEach(withdrawnByDocumentId::remove)),
+                checkpoint::set));
+
+    String lastCommittedId = checkpoint.get();
+    assertNotNull(lastCommittedId);
+    // every document up to the checkpoint is gone, the failed batch is still there
+    assertTrue(withdrawnByDocumentId.headMap(lastCommittedId, true).isEmpty());
+    assertTrue(withdrawnByDocumentId.size() > 0);
+
+    long deleted =
+        batchWriter.run(
+            lastCommittedId,
+            pageReader(),
+            documents -> commit(() -> documents.forEach(withdrawnByDocumentId::remove)),
+            checkpoint::set);
+
+    assertTrue(deleted > 0);
+    assertTrue(withdrawnByDocumentId.isEmpty());
+  }
+
+  @Test
+  void shouldThrowCommitFailureWhenCheckpointCannotBeSaved() throws Exception {
+    SettableApiFuture<Void> firstCommit = SettableApiFuture.create();
+    AtomicInteger commits = new AtomicInteger();
+    PagedBatchWriter<String> batchWriter = new PagedBatchWriter<>(PAGE_SIZE, 2, id -> id);
+
+    IllegalStateException e =
+        assertThrows(
+            IllegalStateException.class,
+            () ->
+                batchWriter.run(
+                    null,
+                    pageReader(),
+                    documents -> {
+                      if (commits.incrementAndGet() == 1) {
+                        return firstCommit;
+                      }
+                      // the first batch is committed, then the second one fails
+                      firstCommit.set(null);
+                      SettableApiFuture<Void> secondCommit = SettableApiFuture.create();
+                      secondCommit.setException(new IllegalStateException("commit failed"));
+                      return secondCommit;
+                    },
+                    lastCommittedId -> {
+                      throw new IOException("checkpoint store unavailable");
+                    }));
+
+    assertEquals("commit failed", e.getMessage());
+    assertEquals(2, e.getSuppressed().length);
+    for (Throwable suppressed : e.getSuppressed()) {
+      assertTrue(suppressed instanceof IOException);
+    }
+  }
+
+  /** Withdraws every document and returns the most batch commits that were in flight at once. */
+  private int withdrawAll(int maxInFlightBatches) throws Exception {
+    PagedBatchWriter<String> batchWriter =
+        new PagedBatchWriter<>(PAGE_SIZE, maxInFlightBatches, id -> id);
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+
+    long start = System.nanoTime();
+    long written =
+        batchWriter.run(
+            null,
+            pageReader(),
+            documents -> {
+              maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+              return commit(
+                  () -> {
+                    documents.forEach(id -> withdrawnByDocumentId.put(id, true));
+                    inFlight.decrementAndGet();
+                  });
+            },
+            checkpoint::set);
+    logger.info(
+        String.format(
+            "%d documents withdrawn in %d ms with up to %d batches in flight",
+            DOCUMENTS,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+            maxInFlightBatches));
+
+    assertEquals(DOCUMENTS, written);
+    assertTrue(withdrawnByDocumentId.values().stream().allMatch(Boolean::booleanValue));
+    assertEquals(withdrawnByDocumentId.lastKey(), checkpoint.get());
+    return maxInFlight.get();
+  }
+
+  /** Reads documents in id order after the cursor, like an orderBy(documentId()) query. */
+  private PageReader<String> pageReader() {
+    return (startAfterId, pageSize) -> {
+      Map<String, Boolean> tail =
+          startAfterId == null
+              ? withdrawnByDocumentId
+              : withdrawnByDocumentId.tailMap(startAfterId, false);
+      List<String> page = new ArrayList<>(pageSize);
+      for (String id : tail.keySet()) {
+        if (page.size() == pageSize) {
+          break;
+        }
+        page.add(id);
+      }
+      return page;
+    };
+  }
+
+  private ApiFuture<?> commit(Runnable write) {
+    SettableApiFuture<Void> future = SettableApiFuture.create();
+    firestoreExecutor.schedule(
+        () -> {
+          write.run();
+          future.set(null);
+        },
+        COMMIT_LATENCY_MS,
+        TimeUnit.MILLISECONDS);
+    return future;
+  }
+
+  private ApiFuture<?> failedCommit() {
+    SettableApiFuture<Void> future = SettableApiFuture.create();
+    firestoreExecutor.schedule(
+        () -> future.setException(new IllegalStateException("commit failed")),
+        COMMIT_LATENCY_MS,
+        TimeUnit.MILLISECONDS);
+    return future;
+  }
+}
@@ -1,27 +1,39 @@
 package com.google.cloud.healthcare.fdamystudies.filter;
 
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+import static org.junit.Assert.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 
 import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.matching.ContainsPattern;
 import com.google.cloud.healthcare.fdamystudies.common.ApiEndpoint;
 import com.google.cloud.healthcare.fdamystudies.common.BaseMockIT;
 import com.google.cloud.healthcare.fdamystudies.common.PlatformComponent;
 import java.util.Collections;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 
 public class TokenIntrospectionFilterTest extends BaseMockIT {
 
+  private static final String CACHEABLE_TOKEN = "5b0d7c1e-2f4a-4c8e-9a63-1d2e3f4a5b6c";
+
+  @Autowired private TokenIntrospectionCache tokenIntrospectionCache;
+
   @BeforeEach
   public void setUp() {
     WireMock.resetAllRequests();
+    tokenIntrospectionCache.invalidateAll();
   }
 
   @ParameterizedTest
@@ -55,6 +67,42 @@ public class TokenIntrospectionFilterTest extends BaseMockIT {
     verifyTokenIntrospectRequest(1);
   }
 
+  @Test
+  @DisplayName("Test introspection result is cached until the user is invalidated")
+  void shouldReuseCachedIntrospectionUntilInvalidated() throws Exception {
+    HttpHeaders headers = getCommonHeaders();
+    headers.set("Authorization", "Bearer " + CACHEABLE_TOKEN);
+    long hitsBefore = tokenIntrospectionCache.getHitCount();
+
+    for (int i = 0; i < 2; i++) {
+      mockMvc
+          .perform(
+              get(ApiEndpoint.GET_ACTIVITY_STATE.getPath())
+                  .contextPath(getContextPath())
+                  .headers(headers))
+          .andDo(print());
+    }
+    verifyIntrospectRequest(CACHEABLE_TOKEN, 1);
+    assertEquals(1, tokenIntrospectionCache.getHitCount() - hitsBefore);
+
+    // logout drops every cached token of the user
+    tokenIntrospectionCache.invalidateUser("test");
+    mockMvc
+        .perform(
+            get(ApiEndpoint.GET_ACTIVITY_STATE.getPath())
+                .contextPath(getContextPath())
+                .headers(headers))
+        .andDo(print());
+    verifyIntrospectRequest(CACHEABLE_TOKEN, 2);
+  }
+
+  private void verifyIntrospectRequest(String token, int times) {
+    verify(
+        times,
+        postRequestedFor(urlEqualTo("/auth-server/oauth2/introspect"))
+            .withRequestBody(new ContainsPattern(token)));
+  }
+
   private HttpHeaders getCommonHeaders() {
     HttpHeaders headers = new HttpHeaders();
     headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.service;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.google.cloud.healthcare.fdamystudies.bean.QuestionnaireActivityStepsBean;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class ActivityStepsIndexTest {
+
+  @Test
+  public void shouldFindLastStepWithTheKeyRegardlessOfCase() {
+    QuestionnaireActivityStepsBean first = step("Weight");
+    QuestionnaireActivityStepsBean second = step("weight");
+    ActivityStepsIndex index = ActivityStepsIndex.of(Arrays.asList(first, step("height"), second));
+
+    assertSame(second, index.findStep("WEIGHT"));
+    assertNull(index.findUniqueStep("weight"));
+    assertSame(index.findStep("height"), index.findUniqueStep("Height"));
+    assertNull(index.findStep("age"));
+    assertNull(index.findStep(null));
+  }
+
+  @Test
+  public void shouldFindFormStepInTheFirstFormThatHasTheKey() {
+    QuestionnaireActivityStepsBean firstForm = step("form1");
+    QuestionnaireActivityStepsBean firstFormStep = step("medication");
+    QuestionnaireActivityStepsBean firstFormLastStep = step("Medication");
+    firstForm.getSteps().addAll(Arrays.asList(firstFormStep, step("dose"), firstFormLastStep));
+    QuestionnaireActivityStepsBean secondForm = step("form2");
+    QuestionnaireActivityStepsBean secondFormStep = step("medication");
+    QuestionnaireActivityStepsBean secondFormDose = step("frequency");
+    secondForm.getSteps().addAll(Arrays.asList(secondFormStep, secondFormDose));
+    List<QuestionnaireActivityStepsBean> metadataSteps =
+        Arrays.asList(step("question1"), firstForm, secondForm);
+    ActivityStepsIndex index = ActivityStepsIndex.of(metadataSteps);
+
+    assertSame(firstFormLastStep, index.findFormStep("MEDICATION"));
+    assertSame(secondFormDose, index.findFormStep("frequency"));
+    assertNull(index.findFormStep("question1"));
+    assertNull(index.findStep("medication"));
+    assertSame(
+        QuestionnaireActivityStepsBeanPredicate.filterAndGetByQuestionKey(
+                firstForm.getSteps(),
+                QuestionnaireActivityStepsBeanPredicate.questionKeyMatch("MEDICATION"))
+            .get(1),
+        index.findFormStep("MEDICATION"));
+  }
+
+  @Test
+  public void shouldMatchKeysAsEqualsIgnoreCase() {
+    // the dotless i and the Kelvin sign match their ASCII letters in String.equalsIgnoreCase()
+    QuestionnaireActivityStepsBean step = step("\u0131tem\u212A");
+    ActivityStepsIndex index = ActivityStepsIndex.of(Arrays.asList(step));
+
+    assertSame(step, index.findStep("ITEMk"));
+    assertNull(index.findStep("item"));
+  }
+
+  private static QuestionnaireActivityStepsBean step(String key) {
+    QuestionnaireActivityStepsBean step = new QuestionnaireActivityStepsBean();
+    step.setKey(key);
+    step.setTitle("Title of " + key);
+    return step;
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.service;
+
+import com.google.cloud.healthcare.fdamystudies.bean.ActivityMetadataBean;
+import com.google.cloud.healthcare.fdamystudies.bean.ActivityValueGroupBean;
+import com.google.cloud.healthcare.fdamystudies.bean.QuestionnaireActivityStepsBean;
+import com.google.cloud.healthcare.fdamystudies.utils.AppConstants;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.beans.BeanInfo;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+
+/**
+ * The reflective conversion that {@link ResponseDocumentMapper} replaced in
+ * ActivityResponseProcessorServiceImpl, kept to check the documents of the mapper and to compare
+ * their speed.
+ */
+public final class LegacyResponseDocumentMapper {
+
+  private static XLogger logger =
+      XLoggerFactory.getXLogger(LegacyResponseDocumentMapper.class.getName());
+
+  private LegacyResponseDocumentMapper() {}
+
+  @SuppressWarnings("unchecked")
+  public static Map<String, Object> getHashMapForBean(Object bean) throws Exception {
+    BeanInfo beanInfo;
+    beanInfo = Introspector.getBeanInfo(bean.getClass());
+    PropertyDescriptor[] propDescriptor = beanInfo.getPropertyDescriptors();
+    Map<String, Object> dataToStore = new HashMap<>();
+    GsonBuilder gsonBuilder = new GsonBuilder();
+    Gson gson = gsonBuilder.create();
+    List<Map<String, Object>> stepsList = new ArrayList<Map<String, Object>>();
+    for (PropertyDescriptor pd : propDescriptor) {
+      String propertyName = pd.getName();
+      if (!propertyName.equals(AppConstants.PROPERTY_NAME_CLASS)) {
+        Method getterMethod = pd.getReadMethod();
+        Object propertyValue = getterMethod.invoke(bean);
+        if (!(propertyValue instanceof String)) {
+          if (propertyValue instanceof ActivityValueGroupBean
+              || propertyValue instanceof ActivityMetadataBean) {
+            dataToStore.put(propertyName, getHashMapForBean(propertyValue));
+          } else if (propertyValue instanceof List) {
+            try {
+              ArrayList<Object> pvalueList = (ArrayList<Object>) propertyValue;
+              for (Object valueObj : pvalueList) {
+                if (valueObj instanceof QuestionnaireActivityStepsBean) {
+                  Map<String, Object> tempMap = getHashMapForBean(valueObj);
+                  stepsList.add(tempMap);
+                } else if (valueObj instanceof String) {
+                  if (valueObj != null) {
+                    Object tmpPropertyValue = dataToStore.get(propertyName);
+                    if (tmpPropertyValue != null) {
+                      String tmpPropertyValueStr = (String) tmpPropertyValue.toString();
+                      if (!StringUtils.isBlank(tmpPropertyValueStr)) {
+                        valueObj = tmpPropertyValueStr + AppConstants.COMMA_STR + valueObj;
+                      }
+                    }
+                    dataToStore.put(propertyName, valueObj);
+                  }
+                } else {
+                  if (valueObj != null) {
+                    propertyValue = gson.toJson(valueObj);
+                    Object tmpPropertyValue = dataToStore.get(propertyName);
+                    if (tmpPropertyValue != null) {
+                      String tmpPropertyValueStr = (String) tmpPropertyValue.toString();
+                      if (!StringUtils.isBlank(tmpPropertyValueStr)) {
+                        propertyValue =
+                            tmpPropertyValueStr + AppConstants.COMMA_STR + propertyValue;
+                      }
+                    }
+                    dataToStore.put(propertyName, propertyValue);
+                  }
+                }
+                if (stepsList != null && !stepsList.isEmpty()) {
+                  dataToStore.put(AppConstants.RESULTS_FIELD_KEY, stepsList);
+                }
+              }
+            } catch (ClassCastException ce) {
+              propertyValue = gson.toJson(propertyValue);
+              dataToStore.put(propertyName, getHashMapForBean(propertyValue));
+            }
+          } else {
+            propertyValue = gson.toJson(propertyValue);
+            dataToStore.put(propertyName, propertyValue);
+          }
+        } else {
+          if (propertyValue != null) {
+            dataToStore.put(propertyName, propertyValue);
+          }
+        }
+        logger.debug(
+            "getHashMapForBean() : \n Property Name: "
+                + propertyName
+                + "\t Property Value : "
+                + propertyValue);
+      }
+    }
+    return dataToStore;
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.google.cloud.healthcare.fdamystudies.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.google.cloud.healthcare.fdamystudies.bean.ActivityResponseBean;
+import com.google.cloud.healthcare.fdamystudies.bean.DestinationBean;
+import com.google.cloud.healthcare.fdamystudies.bean.QuestionnaireActivityStepsBean;
+import com.google.cloud.healthcare.fdamystudies.benchmark.ResponseDocumentMapperBenchmark;
+import com.google.gson.Gson;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Test;
+
+public class ResponseDocumentMapperTest {
+
+  private final Gson gson = new Gson();
+
+  @Test
+  public void shouldConvertStepsAsTheReflectiveConversion() throws Exception {
+    ActivityResponseBean response =
+        ResponseDocumentMapperBenchmark.newQuestionnaireResponse(3, 10, 4);
+
+    assertSameDocument(response.getMetadata());
+    for (QuestionnaireActivityStepsBean step : response.getData().getResults()) {
+      assertSameDocument(step);
+    }
+  }
+
+  @Test
+  public void shouldJoinListValuesAsTheReflectiveConversion() throws Exception {
+    QuestionnaireActivityStepsBean step = new QuestionnaireActivityStepsBean();
+    step.setTitle(null);
+    step.setOptions(new ArrayList<>(Arrays.asList(" ", "", null, "Option 1", " ", "Option 2")));
+    List<Object> value = new ArrayList<>();
+    value.add("");
+    value.add(3.5);
+    value.add(null);
+    value.add(new TreeMap<>(Collections.singletonMap("key", "a=b")));
+    step.setValue(value);
+    step.getDestinations().add(new DestinationBean());
+    step.getDestinations().add(new DestinationBean());
+    QuestionnaireActivityStepsBean nested = new QuestionnaireActivityStepsBean();
+    nested.setKey("nested");
+    step.getSteps().add(nested);
+    step.getActvityValueGroup().getValueGroup().add(nested);
+
+    Map<String, Object> document = assertSameDocument(step);
+    assertEquals("Option 1, ,Option 2", document.get("options"));
+    assertEquals("3.5,{\"key\":\"a\\u003db\"}", document.get("value"));
+    assertEquals("null", document.get("title"));
+  }
+
+  @Test
+  public void shouldConvertEmptyStepAsTheReflectiveConversion() throws Exception {
+    assertSameDocument(new QuestionnaireActivityStepsBean());
+  }
+
+  private Map<String, Object> assertSameDocument(Object bean) throws Exception {
+    Map<String, Object> expected = LegacyResponseDocumentMapper.getHashMapForBean(bean);
+    Map<String, Object> document = ResponseDocumentMapper.toDocument(bean);
+    assertEquals(expected, document);
+    assertEquals(gson.toJson(expected), gson.toJson(document));
+    return document;
+  }
+}
@@ -210,11 +210,12 @@ public class StudyBo implements Serializable {
   @Column(name = "is_cloud_storage_moved", columnDefinition = "int default 0")
   private Integer isCloudStorageMoved;
 
-  @Transient private byte[] exportSqlByte;
-
   @Column(name = "export_time")
   private Timestamp exportTime;
 
+  @Column(name = "cloud_storage_lease_expiry")
+  private Timestamp cloudStorageLeaseExpiry;
+
   public String getExportSignedUrl() {
     return exportSignedUrl;
   }
@@ -583,14 +584,6 @@ public class StudyBo implements Serializable {
     this.isCloudStorageMoved = isCloudStorageMoved;
   }
 
-  public byte[] getExportSqlByte() {
-    return exportSqlByte;
-  }
-
-  public void setExportSqlByte(byte[] exportSqlByte) {
-    this.exportSqlByte = exportSqlByte;
-  }
-
   public Timestamp getExportTime() {
     return exportTime;
   }
@@ -598,4 +591,12 @@ public class StudyBo implements Serializable {
   public void setExportTime(Timestamp exportTime) {
     this.exportTime = exportTime;
   }
+
+  public Timestamp getCloudStorageLeaseExpiry() {
+    return cloudStorageLeaseExpiry;
+  }
+
+  public void setCloudStorageLeaseExpiry(Timestamp cloudStorageLeaseExpiry) {
+    this.cloudStorageLeaseExpiry = cloudStorageLeaseExpiry;
+  }
 }
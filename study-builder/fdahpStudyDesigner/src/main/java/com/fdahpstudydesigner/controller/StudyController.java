@@ -83,18 +83,14 @@ import com.fdahpstudydesigner.service.StudyExportImportService;
 import com.fdahpstudydesigner.service.StudyQuestionnaireService;
 import com.fdahpstudydesigner.service.StudyService;
 import com.fdahpstudydesigner.service.UsersService;
+import com.fdahpstudydesigner.util.CloudStorageGateway;
 import com.fdahpstudydesigner.util.FdahpStudyDesignerConstants;
 import com.fdahpstudydesigner.util.FdahpStudyDesignerUtil;
 import com.fdahpstudydesigner.util.SessionObject;
-import com.google.cloud.ReadChannel;
-import com.google.cloud.storage.Blob;
-import com.google.cloud.storage.Storage;
-import com.google.cloud.storage.StorageOptions;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
 import java.net.URLEncoder;
-import java.nio.channels.Channels;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -846,10 +842,9 @@ public class StudyController {
                 + fileFolder
                 + "/"
                 + fileName;
-        Storage storage = StorageOptions.getDefaultInstance().getService();
-        Blob blob = storage.get(configMap.get("cloud.bucket.name"), path);
-        ReadChannel readChannel = blob.reader();
-        InputStream inputStream = Channels.newInputStream(readChannel);
+        InputStream inputStream =
+            CloudStorageGateway.getInstance()
+                .getContentStream(configMap.get("cloud.bucket.name"), path);
         response.setContentType("application/pdf");
         response.setHeader("Content-Disposition", "inline; filename=\"" + fileName + "\"");
         IOUtils.copy(inputStream, response.getOutputStream());
@@ -28,6 +28,7 @@ import com.fdahpstudydesigner.bean.PushNotificationBean;
 import com.fdahpstudydesigner.bo.NotificationBO;
 import com.fdahpstudydesigner.bo.NotificationHistoryBO;
 import com.fdahpstudydesigner.util.SessionObject;
+import java.util.Collection;
 import java.util.List;
 
 public interface NotificationDAO {
@@ -43,7 +44,11 @@ public interface NotificationDAO {
 
   public List<NotificationBO> getNotificationList(String studyId);
 
-  public List<PushNotificationBean> getPushNotificationList(String scheduledTimestamp);
+  public List<PushNotificationBean> claimPushNotifications(String scheduledTimestamp);
+
+  public void releasePushNotifications(Collection<String> notificationIds);
+
+  public void savePushNotificationHistory(List<PushNotificationBean> pushNotificationBeans);
 
   public String saveOrUpdateOrResendNotification(
       NotificationBO notificationBO,
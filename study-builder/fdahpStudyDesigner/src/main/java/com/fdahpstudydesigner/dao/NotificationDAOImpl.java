@@ -47,9 +47,13 @@ import com.fdahpstudydesigner.mapper.AuditEventMapper;
 import com.fdahpstudydesigner.util.FdahpStudyDesignerConstants;
 import com.fdahpstudydesigner.util.FdahpStudyDesignerUtil;
 import com.fdahpstudydesigner.util.SessionObject;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import javax.servlet.http.HttpServletRequest;
 import org.apache.commons.lang3.StringUtils;
 import org.hibernate.Query;
@@ -231,24 +235,36 @@ public class NotificationDAOImpl implements NotificationDAO {
     return notificationList;
   }
 
+  /**
+   * Returns the notifications due at the scheduled time and marks them sent, in one transaction.
+   * The due rows are read with FOR UPDATE, so when the scheduler runs on several study builder
+   * instances, each notification is claimed by exactly one of them.
+   *
+   * <p>The rows are marked sent before they are sent, so delivery is at most once: a failed request
+   * releases them with {@link #releasePushNotifications}, but the notifications claimed by an
+   * instance that stops before it sends them or releases them are not sent.
+   */
   @SuppressWarnings("unchecked")
   @Override
-  public List<PushNotificationBean> getPushNotificationList(String scheduledTimestamp) {
-    logger.entry("begin getPushNotificationList");
+  public List<PushNotificationBean> claimPushNotifications(String scheduledTimestamp) {
+    logger.entry("begin claimPushNotifications");
     Session session = null;
+    Transaction trans = null;
     String sb = "";
-    List<PushNotificationBean> pushNotificationBeans = null;
+    List<PushNotificationBean> pushNotificationBeans = new ArrayList<>();
     try {
       session = hibernateTemplate.getSessionFactory().openSession();
+      trans = session.beginTransaction();
       sb =
           "select n.notification_id as notificationId, n.notification_text as notificationText, s.custom_study_id as customStudyId, n.notification_type as notificationType, n.notification_subType as notificationSubType,n.app_id as appId"
               + " from (notification as n) LEFT OUTER JOIN studies as s ON s.id = n.study_id where n.schedule_timestamp <=:scheduledTimestamp"
               + " AND n.is_anchor_date = false AND n.notification_done = true AND n.notification_sent=false"
-              + " AND (n.notification_subType=:subType OR n.notification_type =:type OR s.status =:status)";
+              + " AND (n.notification_subType=:subType OR n.notification_type =:type OR s.status =:status)"
+              + " FOR UPDATE";
 
-      query =
+      pushNotificationBeans =
           session
-              .createSQLQuery(sb.toString())
+              .createSQLQuery(sb)
               .addScalar("notificationId")
               .addScalar("notificationText")
               .addScalar("customStudyId")
@@ -258,22 +274,101 @@ public class NotificationDAOImpl implements NotificationDAO {
               .setParameter("scheduledTimestamp", scheduledTimestamp)
               .setParameter("subType", FdahpStudyDesignerConstants.STUDY_EVENT)
               .setParameter("type", FdahpStudyDesignerConstants.NOTIFICATION_GT)
-              .setParameter("status", FdahpStudyDesignerConstants.STUDY_ACTIVE);
-      pushNotificationBeans =
-          query.setResultTransformer(Transformers.aliasToBean(PushNotificationBean.class)).list();
+              .setParameter("status", FdahpStudyDesignerConstants.STUDY_ACTIVE)
+              .setResultTransformer(Transformers.aliasToBean(PushNotificationBean.class))
+              .list();
 
+      if (!pushNotificationBeans.isEmpty()) {
+        Set<String> notificationIds = new HashSet<>();
+        for (PushNotificationBean pushNotificationBean : pushNotificationBeans) {
+          notificationIds.add(pushNotificationBean.getNotificationId());
+        }
+        session
+            .createQuery(
+                "update NotificationBO NBO set NBO.notificationSent = true"
+                    + " where NBO.notificationId IN (:notificationIds)")
+            .setParameterList("notificationIds", notificationIds)
+            .executeUpdate();
+      }
+      trans.commit();
     } catch (Exception e) {
-
-      logger.error("NotificationDAOImpl - getPushNotificationList - ERROR", e);
+      if (null != trans) {
+        trans.rollback();
+      }
+      pushNotificationBeans = new ArrayList<>();
+      logger.error("NotificationDAOImpl - claimPushNotifications - ERROR", e);
     } finally {
       if (null != session) {
         session.close();
       }
     }
-    logger.exit("getPushNotificationList - Ends");
+    logger.exit("claimPushNotifications - Ends");
     return pushNotificationBeans;
   }
 
+  /** Marks claimed notifications as not sent, so that the next run sends them again. */
+  @Override
+  public void releasePushNotifications(Collection<String> notificationIds) {
+    logger.entry("begin releasePushNotifications");
+    Session session = null;
+    Transaction trans = null;
+    try {
+      session = hibernateTemplate.getSessionFactory().openSession();
+      trans = session.beginTransaction();
+      session
+          .createQuery(
+              "update NotificationBO NBO set NBO.notificationSent = false"
+                  + " where NBO.notificationId IN (:notificationIds)")
+          .setParameterList("notificationIds", notificationIds)
+          .executeUpdate();
+      trans.commit();
+    } catch (Exception e) {
+      if (null != trans) {
+        trans.rollback();
+      }
+      logger.error("NotificationDAOImpl - releasePushNotifications - ERROR", e);
+    } finally {
+      if (null != session) {
+        session.close();
+      }
+    }
+    logger.exit("releasePushNotifications - Ends");
+  }
+
+  @Override
+  public void savePushNotificationHistory(List<PushNotificationBean> pushNotificationBeans) {
+    logger.entry("begin savePushNotificationHistory");
+    Session session = null;
+    Transaction trans = null;
+    try {
+      session = hibernateTemplate.getSessionFactory().openSession();
+      trans = session.beginTransaction();
+      String sentDateTime = FdahpStudyDesignerUtil.getCurrentDateTime();
+      for (PushNotificationBean pushNotificationBean : pushNotificationBeans) {
+        if (!FdahpStudyDesignerConstants.RESOURCE.equals(
+                pushNotificationBean.getNotificationSubType())
+            && !FdahpStudyDesignerConstants.STUDY_EVENT.equals(
+                pushNotificationBean.getNotificationSubType())) {
+          NotificationHistoryBO historyBO = new NotificationHistoryBO();
+          historyBO.setNotificationId(pushNotificationBean.getNotificationId());
+          historyBO.setNotificationSentDateTime(sentDateTime);
+          session.save(historyBO);
+        }
+      }
+      trans.commit();
+    } catch (Exception e) {
+      if (null != trans) {
+        trans.rollback();
+      }
+      logger.error("NotificationDAOImpl - savePushNotificationHistory - ERROR", e);
+    } finally {
+      if (null != session) {
+        session.close();
+      }
+    }
+    logger.exit("savePushNotificationHistory - Ends");
+  }
+
   @Override
   public String saveOrUpdateOrResendNotification(
       NotificationBO notificationBO,
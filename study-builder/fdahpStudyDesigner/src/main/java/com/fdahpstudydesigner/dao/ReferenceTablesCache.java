@@ -0,0 +1,142 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.fdahpstudydesigner.dao;
+
+import com.fdahpstudydesigner.bo.ReferenceTablesBo;
+import com.fdahpstudydesigner.util.FdahpStudyDesignerConstants;
+import com.fdahpstudydesigner.util.FdahpStudyDesignerUtil;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.orm.hibernate3.HibernateTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Keeps the rows of reference_tables, the study categories and research sponsors, in memory.
+ *
+ * <p>The study builder never writes reference_tables: its rows come from the database scripts and
+ * migrations. The rows are read again when they are older than reference.tables.refresh.seconds, so
+ * a migration applied to a running database is seen within that interval. Readers keep using the
+ * rows already read while they are read again, and if reading them fails.
+ */
+@Repository
+public class ReferenceTablesCache {
+
+  private static XLogger logger = XLoggerFactory.getXLogger(ReferenceTablesCache.class.getName());
+
+  private static final long DEFAULT_REFRESH_SECONDS = 300;
+
+  private final long refreshIntervalMillis =
+      TimeUnit.SECONDS.toMillis(
+          NumberUtils.toLong(
+              FdahpStudyDesignerUtil.getAppProperties().get("reference.tables.refresh.seconds"),
+              DEFAULT_REFRESH_SECONDS));
+
+  private volatile ReferenceTables referenceTables;
+
+  HibernateTemplate hibernateTemplate;
+
+  @Autowired
+  public void setSessionFactory(SessionFactory sessionFactory) {
+    this.hibernateTemplate = new HibernateTemplate(sessionFactory);
+  }
+
+  /** Returns the study categories and the research sponsors, keyed by their reference type. */
+  public HashMap<String, List<ReferenceTablesBo>> getReferenceListByCategory() {
+    HashMap<String, List<ReferenceTablesBo>> referenceMap = new HashMap<>();
+    for (Map.Entry<String, List<ReferenceTablesBo>> category :
+        getReferenceTables().byCategory.entrySet()) {
+      referenceMap.put(category.getKey(), new ArrayList<>(category.getValue()));
+    }
+    return referenceMap;
+  }
+
+  /** Returns the value of the reference with the given id, or null if there is none. */
+  public String getValue(String id) {
+    ReferenceTablesBo referenceTablesBo = getReferenceTables().byId.get(id);
+    return referenceTablesBo != null ? referenceTablesBo.getValue() : null;
+  }
+
+  private ReferenceTables getReferenceTables() {
+    ReferenceTables current = referenceTables;
+    if (current != null && System.currentTimeMillis() - current.loadedAt < refreshIntervalMillis) {
+      return current;
+    }
+    synchronized (this) {
+      if (referenceTables == current) {
+        ReferenceTables reloaded = load();
+        if (reloaded != null) {
+          referenceTables = reloaded;
+        } else if (current != null) {
+          // the rows read before are used until they can be read again
+          current.loadedAt = System.currentTimeMillis();
+        }
+      }
+      return referenceTables != null ? referenceTables : ReferenceTables.EMPTY;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private ReferenceTables load() {
+    logger.entry("begin load()");
+    Session session = null;
+    ReferenceTables reloaded = null;
+    try {
+      session = hibernateTemplate.getSessionFactory().openSession();
+      List<ReferenceTablesBo> allReferenceList =
+          session.createQuery("from ReferenceTablesBo order by category asc,id asc").list();
+      reloaded = new ReferenceTables(allReferenceList);
+    } catch (Exception e) {
+      logger.error("ReferenceTablesCache - load() - ERROR ", e);
+    } finally {
+      if ((null != session) && session.isOpen()) {
+        session.close();
+      }
+    }
+    logger.exit("load() - Ends");
+    return reloaded;
+  }
+
+  private static class ReferenceTables {
+
+    private static final ReferenceTables EMPTY =
+        new ReferenceTables(Collections.<ReferenceTablesBo>emptyList());
+
+    private final Map<String, ReferenceTablesBo> byId = new HashMap<>();
+
+    private final Map<String, List<ReferenceTablesBo>> byCategory = new HashMap<>();
+
+    private volatile long loadedAt = System.currentTimeMillis();
+
+    private ReferenceTables(List<ReferenceTablesBo> allReferenceList) {
+      for (ReferenceTablesBo referenceTablesBo : allReferenceList) {
+        byId.put(referenceTablesBo.getId(), referenceTablesBo);
+        String category = referenceTablesBo.getCategory();
+        if (StringUtils.isNotEmpty(category)
+            && (category.equals(FdahpStudyDesignerConstants.REFERENCE_TYPE_CATEGORIES)
+                || category.equals(FdahpStudyDesignerConstants.REFERENCE_TYPE_RESEARCH_SPONSORS))) {
+          if (!byCategory.containsKey(category)) {
+            byCategory.put(category, new ArrayList<ReferenceTablesBo>());
+          }
+          byCategory.get(category).add(referenceTablesBo);
+        }
+      }
+    }
+  }
+}
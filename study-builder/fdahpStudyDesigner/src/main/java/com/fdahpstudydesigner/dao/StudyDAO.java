@@ -48,6 +48,7 @@ import com.fdahpstudydesigner.bo.StudyPageBo;
 import com.fdahpstudydesigner.bo.StudyPermissionBO;
 import com.fdahpstudydesigner.bo.StudySequenceBo;
 import com.fdahpstudydesigner.util.SessionObject;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -219,6 +220,8 @@ public interface StudyDAO {
 
   public StudyBo getStudyByLatestVersion(String customStudyId);
 
+  public Map<String, StudyBo> getStudiesByLatestVersion(Collection<String> customStudyIds);
+
   public String getStudyCategory(String id);
 
   public Integer getEligibilityType(String studyId);
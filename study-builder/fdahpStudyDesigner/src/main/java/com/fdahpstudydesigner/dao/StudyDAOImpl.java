@@ -83,7 +83,7 @@ import com.fdahpstudydesigner.bo.UserBO;
 import com.fdahpstudydesigner.common.StudyBuilderAuditEvent;
 import com.fdahpstudydesigner.common.StudyBuilderAuditEventHelper;
 import com.fdahpstudydesigner.mapper.AuditEventMapper;
-import com.fdahpstudydesigner.service.StudyExportImportService;
+import com.fdahpstudydesigner.service.StudyResourceRelocationService;
 import com.fdahpstudydesigner.util.CustomMultipartFile;
 import com.fdahpstudydesigner.util.FdahpStudyDesignerConstants;
 import com.fdahpstudydesigner.util.FdahpStudyDesignerUtil;
@@ -99,14 +99,21 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 import javax.imageio.ImageIO;
@@ -134,6 +141,9 @@ public class StudyDAOImpl implements StudyDAO {
 
   private static final String EXPORT = "/Export/";
 
+  /** The number of ids given to each IN (...) query of getStudyList(). */
+  private static final int STUDY_LIST_QUERY_PARAMETERS = 500;
+
   @Autowired private HttpServletRequest request;
 
   @Autowired private StudyBuilderAuditEventHelper auditLogEventHelper;
@@ -142,7 +152,9 @@ public class StudyDAOImpl implements StudyDAO {
 
   @Autowired private NotificationDAO notificationDAO;
 
-  @Autowired private StudyExportImportService studyExportImportService;
+  @Autowired private StudyResourceRelocationService studyResourceRelocationService;
+
+  @Autowired private ReferenceTablesCache referenceTablesCache;
 
   HibernateTemplate hibernateTemplate;
   private Query query = null;
@@ -1883,50 +1895,14 @@ public class StudyDAOImpl implements StudyDAO {
     return studyPageBo;
   }
 
-  @SuppressWarnings({"unchecked"})
   @Override
   public HashMap<String, List<ReferenceTablesBo>> getreferenceListByCategory() {
     logger.entry("begin getreferenceListByCategory()");
-    Session session = null;
-    List<ReferenceTablesBo> allReferenceList = null;
-    List<ReferenceTablesBo> categoryList = new ArrayList<>();
-    List<ReferenceTablesBo> researchSponserList = new ArrayList<>();
     HashMap<String, List<ReferenceTablesBo>> referenceMap = new HashMap<>();
     try {
-      session = hibernateTemplate.getSessionFactory().openSession();
-      query = session.createQuery("from ReferenceTablesBo order by category asc,id asc");
-      allReferenceList = query.list();
-      if ((allReferenceList != null) && !allReferenceList.isEmpty()) {
-        for (ReferenceTablesBo referenceTablesBo : allReferenceList) {
-          if (StringUtils.isNotEmpty(referenceTablesBo.getCategory())) {
-            switch (referenceTablesBo.getCategory()) {
-              case FdahpStudyDesignerConstants.REFERENCE_TYPE_CATEGORIES:
-                categoryList.add(referenceTablesBo);
-                break;
-              case FdahpStudyDesignerConstants.REFERENCE_TYPE_RESEARCH_SPONSORS:
-                researchSponserList.add(referenceTablesBo);
-                break;
-
-              default:
-                break;
-            }
-          }
-        }
-        referenceMap = new HashMap<>();
-        if (!categoryList.isEmpty()) {
-          referenceMap.put(FdahpStudyDesignerConstants.REFERENCE_TYPE_CATEGORIES, categoryList);
-        }
-        if (!researchSponserList.isEmpty()) {
-          referenceMap.put(
-              FdahpStudyDesignerConstants.REFERENCE_TYPE_RESEARCH_SPONSORS, researchSponserList);
-        }
-      }
+      referenceMap = referenceTablesCache.getReferenceListByCategory();
     } catch (Exception e) {
       logger.error("StudyDAOImpl - getreferenceListByCategory() - ERROR ", e);
-    } finally {
-      if ((null != session) && session.isOpen()) {
-        session.close();
-      }
     }
     logger.exit("getreferenceListByCategory() - Ends");
     return referenceMap;
@@ -2123,21 +2099,20 @@ public class StudyDAOImpl implements StudyDAO {
     logger.entry("begin getStudyList()");
     Session session = null;
     List<StudyListBean> studyListBeans = null;
-    String name = "";
-    List<ReferenceTablesBo> referenceTablesBos = null;
-    StudyBo liveStudy = null;
-    StudyBo studyBo = null;
     try {
 
       session = hibernateTemplate.getSessionFactory().openSession();
 
       if (StringUtils.isNotEmpty(userId)) {
 
-        query = session.getNamedQuery("getUserById").setString("userId", userId);
-        UserBO userBO = (UserBO) query.uniqueResult();
+        UserBO userBO =
+            (UserBO)
+                session.getNamedQuery("getUserById").setString("userId", userId).uniqueResult();
+        boolean superAdmin = userBO.getRoleId().equals("1");
 
-        if (userBO.getRoleId().equals("1")) {
-          query =
+        Query studyListQuery = null;
+        if (superAdmin) {
+          studyListQuery =
               session.createQuery(
                   "select new com.fdahpstudydesigner.bean.StudyListBean(s.id,s.customStudyId,s.name,s.category,s.researchSponsor,user.firstName, user.lastName,s.status,s.createdOn,s.appId)"
                       + " from StudyBo s, UserBO user"
@@ -2146,7 +2121,7 @@ public class StudyDAOImpl implements StudyDAO {
                       + " order by s.createdOn desc");
 
         } else {
-          query =
+          studyListQuery =
               session.createQuery(
                   "select new com.fdahpstudydesigner.bean.StudyListBean(s.id,s.customStudyId,s.name,s.category,s.researchSponsor,user.firstName, user.lastName,p.viewPermission,s.status,s.createdOn,s.appId)"
                       + " from StudyBo s,StudyPermissionBO p, UserBO user"
@@ -2155,75 +2130,12 @@ public class StudyDAOImpl implements StudyDAO {
                       + " and s.version=0"
                       + " and p.userId=:impValue"
                       + " order by s.createdOn desc");
-          query.setString(FdahpStudyDesignerConstants.IMP_VALUE, userId);
+          studyListQuery.setString(FdahpStudyDesignerConstants.IMP_VALUE, userId);
         }
-        studyListBeans = query.list();
+        studyListBeans = studyListQuery.list();
 
         if ((studyListBeans != null) && !studyListBeans.isEmpty()) {
-          for (StudyListBean bean : studyListBeans) {
-            if (StringUtils.isNotEmpty(name)) {
-              bean.setProjectLeadName(name);
-            }
-            if (StringUtils.isNotEmpty(bean.getCategory())
-                && StringUtils.isNotEmpty(bean.getResearchSponsor())) {
-              // get the Category, Research Sponsor name of the
-              // study from categoryIds
-              query =
-                  session
-                      .createQuery("from ReferenceTablesBo where id in(:category)")
-                      .setParameter("category", bean.getCategory());
-              referenceTablesBos = query.list();
-              if ((referenceTablesBos != null) && !referenceTablesBos.isEmpty()) {
-                bean.setCategory(referenceTablesBos.get(0).getValue());
-              }
-            }
-            if (StringUtils.isNotEmpty(bean.getCustomStudyId())) {
-              liveStudy =
-                  (StudyBo)
-                      session
-                          .createQuery("from StudyBo where customStudyId=:studyId and live=1")
-                          .setParameter("studyId", bean.getCustomStudyId())
-                          .uniqueResult();
-              if (liveStudy != null) {
-                bean.setLiveStudyId(liveStudy.getId());
-              } else {
-                bean.setLiveStudyId(null);
-              }
-            }
-            // if is there any change in study then edit with dot
-            // will come
-            if ((bean.getId() != null) && (bean.getLiveStudyId() != null)) {
-              studyBo =
-                  (StudyBo)
-                      session
-                          .createQuery("from StudyBo where id=:id")
-                          .setParameter("id", bean.getId())
-                          .uniqueResult();
-              if (studyBo.getHasStudyDraft() == 1) {
-                bean.setFlag(true);
-              }
-            }
-            // if is there any team lead in that study
-            if (bean.getId() != null) {
-              String userInfo =
-                  (String)
-                      session
-                          .createQuery(
-                              "SELECT  u.firstName from StudyPermissionBO s , UserBO u where s.studyId=:id"
-                                  + " and s.userId=u.userId and s.projectLead=1")
-                          .setParameter("id", bean.getId())
-                          .setMaxResults(1)
-                          .uniqueResult();
-              if (StringUtils.isNotEmpty(userInfo)) {
-                bean.setProjectLeadName(userInfo);
-              } else {
-                bean.setProjectLeadName("None");
-              }
-            }
-            if (userBO.getRoleId().equals("1")) {
-              bean.setViewPermission(true);
-            }
-          }
+          setStudyListDetails(session, studyListBeans, superAdmin);
         }
       }
 
@@ -2238,6 +2150,105 @@ public class StudyDAOImpl implements StudyDAO {
     return studyListBeans;
   }
 
+  /**
+   * Sets the category name, the live study, the draft flag and the project lead of the studies of
+   * the list, with one query for the live studies and one for the project leads of all the studies.
+   */
+  @SuppressWarnings("unchecked")
+  private void setStudyListDetails(
+      Session session, List<StudyListBean> studyListBeans, boolean superAdmin) {
+    List<String> studyIds = new ArrayList<>();
+    Set<String> customStudyIds = new HashSet<>();
+    for (StudyListBean bean : studyListBeans) {
+      if (bean.getId() != null) {
+        studyIds.add(bean.getId());
+      }
+      if (StringUtils.isNotEmpty(bean.getCustomStudyId())) {
+        customStudyIds.add(bean.getCustomStudyId());
+      }
+    }
+
+    // the live study of each custom study id, and the draft flag of the studies of the list
+    Map<String, String> liveStudyIds = new HashMap<>();
+    Set<String> draftStudyIds = new HashSet<>();
+    for (List<String> customStudyIdList :
+        partition(new ArrayList<>(customStudyIds), STUDY_LIST_QUERY_PARAMETERS)) {
+      List<Object[]> studies =
+          session
+              .createQuery(
+                  "SELECT s.id, s.customStudyId, s.live, s.hasStudyDraft FROM StudyBo s"
+                      + " WHERE s.customStudyId IN (:customStudyIds) AND (s.live=1 OR s.version=0)")
+              .setParameterList("customStudyIds", customStudyIdList)
+              .list();
+      for (Object[] study : studies) {
+        if (Integer.valueOf(1).equals(study[2])) {
+          liveStudyIds.put((String) study[1], (String) study[0]);
+        }
+        if (Integer.valueOf(1).equals(study[3])) {
+          draftStudyIds.add((String) study[0]);
+        }
+      }
+    }
+
+    // the first project lead of each study
+    Map<String, String> projectLeadNames = new HashMap<>();
+    for (List<String> studyIdList : partition(studyIds, STUDY_LIST_QUERY_PARAMETERS)) {
+      List<Object[]> projectLeads =
+          session
+              .createQuery(
+                  "SELECT s.studyId, u.firstName from StudyPermissionBO s , UserBO u where s.studyId IN (:ids)"
+                      + " and s.userId=u.userId and s.projectLead=1")
+              .setParameterList("ids", studyIdList)
+              .list();
+      for (Object[] projectLead : projectLeads) {
+        if (!projectLeadNames.containsKey(projectLead[0])) {
+          projectLeadNames.put((String) projectLead[0], (String) projectLead[1]);
+        }
+      }
+    }
+
+    for (StudyListBean bean : studyListBeans) {
+      if (StringUtils.isNotEmpty(bean.getCategory())
+          && StringUtils.isNotEmpty(bean.getResearchSponsor())) {
+        // get the Category name of the study from its category id
+        String category = referenceTablesCache.getValue(bean.getCategory());
+        if (category != null) {
+          bean.setCategory(category);
+        }
+      }
+      if (StringUtils.isNotEmpty(bean.getCustomStudyId())) {
+        bean.setLiveStudyId(liveStudyIds.get(bean.getCustomStudyId()));
+      }
+      // if is there any change in study then edit with dot
+      // will come
+      if ((bean.getId() != null)
+          && (bean.getLiveStudyId() != null)
+          && draftStudyIds.contains(bean.getId())) {
+        bean.setFlag(true);
+      }
+      // if is there any team lead in that study
+      if (bean.getId() != null) {
+        String userInfo = projectLeadNames.get(bean.getId());
+        if (StringUtils.isNotEmpty(userInfo)) {
+          bean.setProjectLeadName(userInfo);
+        } else {
+          bean.setProjectLeadName("None");
+        }
+      }
+      if (superAdmin) {
+        bean.setViewPermission(true);
+      }
+    }
+  }
+
+  private static <T> List<List<T>> partition(List<T> list, int size) {
+    List<List<T>> partitions = new ArrayList<>();
+    for (int from = 0; from < list.size(); from += size) {
+      partitions.add(list.subList(from, Math.min(from + size, list.size())));
+    }
+    return partitions;
+  }
+
   @SuppressWarnings("unchecked")
   @Override
   public List<StudyListBean> getStudyListByUserId(String userId) {
@@ -6948,25 +6959,47 @@ public class StudyDAOImpl implements StudyDAO {
   }
 
   @Override
-  public String getStudyCategory(String id) {
-    logger.entry("begin getStudyCategory()");
+  public Map<String, StudyBo> getStudiesByLatestVersion(Collection<String> customStudyIds) {
+    logger.entry("begin getStudiesByLatestVersion()");
     Session session = null;
-    String searchQuery = "";
-    Query query = null;
-    String studyCatagory = "";
+    Map<String, StudyBo> studies = new HashMap<>();
+    if (customStudyIds.isEmpty()) {
+      return studies;
+    }
     try {
       session = hibernateTemplate.getSessionFactory().openSession();
-      searchQuery = " SELECT r.value From ReferenceTablesBo r WHERE r.id=:id ";
-      query = session.createQuery(searchQuery);
-      query.setString("id", id);
-      studyCatagory = (String) query.uniqueResult();
+      @SuppressWarnings("unchecked")
+      List<StudyBo> studyBos =
+          session
+              .createQuery(
+                  "From StudyBo s WHERE s.customStudyId IN (:customStudyIds)"
+                      + " AND s.version = (SELECT MAX(ls.version) From StudyBo ls"
+                      + " WHERE ls.customStudyId = s.customStudyId)")
+              .setParameterList("customStudyIds", customStudyIds)
+              .list();
+      for (StudyBo studyBo : studyBos) {
+        studies.put(studyBo.getCustomStudyId(), studyBo);
+      }
     } catch (Exception e) {
-      logger.error("StudyDAOImpl - getStudyCategory() - ERROR", e);
+      logger.error("StudyDAOImpl - getStudiesByLatestVersion() - ERROR", e);
     } finally {
       if ((null != session) && session.isOpen()) {
         session.close();
       }
     }
+    logger.exit("getStudiesByLatestVersion() - Ends");
+    return studies;
+  }
+
+  @Override
+  public String getStudyCategory(String id) {
+    logger.entry("begin getStudyCategory()");
+    String studyCatagory = "";
+    try {
+      studyCatagory = referenceTablesCache.getValue(id);
+    } catch (Exception e) {
+      logger.error("StudyDAOImpl - getStudyCategory() - ERROR", e);
+    }
     logger.exit("getStudyCategory() - Ends");
     return studyCatagory;
   }
@@ -7142,143 +7175,6 @@ public class StudyDAOImpl implements StudyDAO {
     return consentBoList;
   }
 
-  @SuppressWarnings("unchecked")
-  public void copyOrMoveStudyResources(
-      Session session,
-      StudyBo studyBo,
-      boolean delete,
-      boolean oldFilePath,
-      String newCustomStudyId) {
-    if (studyBo.getThumbnailImage() != null) {
-      FdahpStudyDesignerUtil.copyOrMoveStudyResources(
-          studyBo.getThumbnailImage(),
-          FdahpStudyDesignerConstants.STUDTYLOGO,
-          studyBo.getCustomStudyId(),
-          delete,
-          oldFilePath,
-          newCustomStudyId);
-    }
-
-    List<QuestionnairesStepsBo> questionnaireStepsList =
-        session
-            .createQuery(
-                "From QuestionnairesStepsBo where questionnairesId IN (SELECT q.id from QuestionnaireBo q where studyId=:studyId)")
-            .setString("studyId", studyBo.getId())
-            .list();
-    List<String> questionIds = new ArrayList();
-    for (QuestionnairesStepsBo questionnaireSteps : questionnaireStepsList) {
-      if (questionnaireSteps.getStepType().equals("Form")) {
-        List<String> questionIdList =
-            session
-                .createQuery("SELECT questionId FROM FormMappingBo where formId =:formId")
-                .setString("formId", questionnaireSteps.getInstructionFormId())
-                .list();
-        questionIds.addAll(questionIdList);
-      } else if (questionnaireSteps.getStepType().equals("Question")) {
-        questionIds.add(questionnaireSteps.getInstructionFormId());
-      }
-    }
-    if (!CollectionUtils.isEmpty(questionIds)) {
-
-      List<QuestionResponseSubTypeBo> questionResponseSubTypeList =
-          session
-              .createQuery(
-                  "From QuestionResponseSubTypeBo WHERE responseTypeId IN (:responseTypeId)")
-              .setParameterList("responseTypeId", questionIds)
-              .list();
-
-      for (QuestionResponseSubTypeBo questionResponseSubType : questionResponseSubTypeList) {
-
-        if (questionResponseSubType.getSelectedImage() != null) {
-          FdahpStudyDesignerUtil.copyOrMoveStudyResources(
-              questionResponseSubType.getSelectedImage(),
-              FdahpStudyDesignerConstants.QUESTIONNAIRE,
-              studyBo.getCustomStudyId(),
-              delete,
-              oldFilePath,
-              newCustomStudyId);
-        }
-
-        if (questionResponseSubType.getImage() != null) {
-          FdahpStudyDesignerUtil.copyOrMoveStudyResources(
-              questionResponseSubType.getImage(),
-              FdahpStudyDesignerConstants.QUESTIONNAIRE,
-              studyBo.getCustomStudyId(),
-              delete,
-              oldFilePath,
-              newCustomStudyId);
-        }
-      }
-
-      List<QuestionReponseTypeBo> questionResponseTypeList =
-          session
-              .createQuery(
-                  "From QuestionReponseTypeBo WHERE questionsResponseTypeId IN (:responseTypeId)")
-              .setParameterList("responseTypeId", questionIds)
-              .list();
-
-      for (QuestionReponseTypeBo questionResponseType : questionResponseTypeList) {
-        if (questionResponseType.getMinImage() != null) {
-          FdahpStudyDesignerUtil.copyOrMoveStudyResources(
-              questionResponseType.getMinImage(),
-              FdahpStudyDesignerConstants.QUESTIONNAIRE,
-              studyBo.getCustomStudyId(),
-              delete,
-              oldFilePath,
-              newCustomStudyId);
-        }
-
-        if (questionResponseType.getMaxImage() != null) {
-
-          FdahpStudyDesignerUtil.copyOrMoveStudyResources(
-              questionResponseType.getMaxImage(),
-              FdahpStudyDesignerConstants.QUESTIONNAIRE,
-              studyBo.getCustomStudyId(),
-              delete,
-              oldFilePath,
-              newCustomStudyId);
-        }
-      }
-    }
-    List<StudyPageBo> studyPageBoList =
-        session
-            .createQuery("from StudyPageBo where studyId=:studyId")
-            .setString("studyId", studyBo.getId())
-            .list();
-
-    for (StudyPageBo studyPageBo : studyPageBoList) {
-
-      if (studyPageBo.getImagePath() != null) {
-        FdahpStudyDesignerUtil.copyOrMoveStudyResources(
-            studyPageBo.getImagePath(),
-            FdahpStudyDesignerConstants.STUDTYPAGES,
-            studyBo.getCustomStudyId(),
-            delete,
-            oldFilePath,
-            newCustomStudyId);
-      }
-    }
-
-    List<ResourceBO> resourceBoList =
-        session
-            .createQuery("from ResourceBO where studyId=:studyId")
-            .setString("studyId", studyBo.getId())
-            .list();
-
-    for (ResourceBO resourceBo : resourceBoList) {
-
-      if (resourceBo.getPdfUrl() != null) {
-        FdahpStudyDesignerUtil.copyOrMoveStudyResources(
-            resourceBo.getPdfUrl(),
-            FdahpStudyDesignerConstants.RESOURCEPDFFILES,
-            studyBo.getCustomStudyId(),
-            delete,
-            oldFilePath,
-            newCustomStudyId);
-      }
-    }
-  }
-
   @Override
   public StudySequenceBo getStudySequenceByStudyId(String studyId) {
 
@@ -7699,279 +7595,119 @@ public class StudyDAOImpl implements StudyDAO {
     return message;
   }
 
-  @SuppressWarnings("unchecked")
-  public void moveOrCopyCloudStorage(
+  public StudyResourceRelocationService.Result moveOrCopyCloudStorage(
       Session session,
       StudyBo studyBo,
       boolean delete,
       boolean oldFilePath,
       String newCustomStudyId) {
-    if (studyBo.getThumbnailImage() != null) {
-      FdahpStudyDesignerUtil.copyOrMoveStudyResources(
-          studyBo.getThumbnailImage(),
-          FdahpStudyDesignerConstants.STUDTYLOGO,
-          studyBo.getCustomStudyId(),
-          delete,
-          oldFilePath,
-          newCustomStudyId);
-    }
-
-    List<QuestionnairesStepsBo> questionnaireStepsList =
-        session
-            .createQuery(
-                "From QuestionnairesStepsBo where questionnairesId IN (SELECT q.id from QuestionnaireBo q where studyId=:studyId)")
-            .setString("studyId", studyBo.getId())
-            .list();
-    List<String> questionIds = new ArrayList();
-    for (QuestionnairesStepsBo questionnaireSteps : questionnaireStepsList) {
-      if (questionnaireSteps.getStepType().equals("Form")) {
-        List<String> questionIdList =
-            session
-                .createQuery("SELECT questionId FROM FormMappingBo where formId =:formId")
-                .setString("formId", questionnaireSteps.getInstructionFormId())
-                .list();
-        questionIds.addAll(questionIdList);
-      } else if (questionnaireSteps.getStepType().equals("Question")) {
-        questionIds.add(questionnaireSteps.getInstructionFormId());
-      }
-    }
-    if (!CollectionUtils.isEmpty(questionIds)) {
-
-      List<QuestionResponseSubTypeBo> questionResponseSubTypeList =
-          session
-              .createQuery(
-                  "From QuestionResponseSubTypeBo WHERE responseTypeId IN (:responseTypeId)")
-              .setParameterList("responseTypeId", questionIds)
-              .list();
-
-      for (QuestionResponseSubTypeBo questionResponseSubType : questionResponseSubTypeList) {
-
-        if (questionResponseSubType.getSelectedImage() != null) {
-          FdahpStudyDesignerUtil.copyOrMoveStudyResources(
-              questionResponseSubType.getSelectedImage(),
-              FdahpStudyDesignerConstants.QUESTIONNAIRE,
-              studyBo.getCustomStudyId(),
-              delete,
-              oldFilePath,
-              newCustomStudyId);
-        }
-
-        if (questionResponseSubType.getImage() != null) {
-          FdahpStudyDesignerUtil.copyOrMoveStudyResources(
-              questionResponseSubType.getImage(),
-              FdahpStudyDesignerConstants.QUESTIONNAIRE,
-              studyBo.getCustomStudyId(),
-              delete,
-              oldFilePath,
-              newCustomStudyId);
-        }
-      }
-
-      List<QuestionReponseTypeBo> questionResponseTypeList =
-          session
-              .createQuery(
-                  "From QuestionReponseTypeBo WHERE questionsResponseTypeId IN (:responseTypeId)")
-              .setParameterList("responseTypeId", questionIds)
-              .list();
-
-      for (QuestionReponseTypeBo questionResponseType : questionResponseTypeList) {
-        if (questionResponseType.getMinImage() != null) {
-          FdahpStudyDesignerUtil.copyOrMoveStudyResources(
-              questionResponseType.getMinImage(),
-              FdahpStudyDesignerConstants.QUESTIONNAIRE,
-              studyBo.getCustomStudyId(),
-              delete,
-              oldFilePath,
-              newCustomStudyId);
-        }
-
-        if (questionResponseType.getMaxImage() != null) {
-
-          FdahpStudyDesignerUtil.copyOrMoveStudyResources(
-              questionResponseType.getMaxImage(),
-              FdahpStudyDesignerConstants.QUESTIONNAIRE,
-              studyBo.getCustomStudyId(),
-              delete,
-              oldFilePath,
-              newCustomStudyId);
-        }
-      }
-    }
-    List<StudyPageBo> studyPageBoList =
-        session
-            .createQuery("from StudyPageBo where studyId=:studyId")
-            .setString("studyId", studyBo.getId())
-            .list();
-
-    for (StudyPageBo studyPageBo : studyPageBoList) {
-
-      if (studyPageBo.getImagePath() != null) {
-        FdahpStudyDesignerUtil.copyOrMoveStudyResources(
-            studyPageBo.getImagePath(),
-            FdahpStudyDesignerConstants.STUDTYPAGES,
-            studyBo.getCustomStudyId(),
-            delete,
-            oldFilePath,
-            newCustomStudyId);
-      }
-    }
-
-    List<ResourceBO> resourceBoList =
-        session
-            .createQuery("from ResourceBO where studyId=:studyId")
-            .setString("studyId", studyBo.getId())
-            .list();
-
-    for (ResourceBO resourceBo : resourceBoList) {
-
-      if (resourceBo.getPdfUrl() != null) {
-        FdahpStudyDesignerUtil.copyOrMoveStudyResources(
-            resourceBo.getPdfUrl(),
-            FdahpStudyDesignerConstants.RESOURCEPDFFILES,
-            studyBo.getCustomStudyId(),
-            delete,
-            oldFilePath,
-            newCustomStudyId);
-      }
-    }
+    return moveOrCopyCloudStorageForExportStudy(
+        session, studyBo, delete, oldFilePath, newCustomStudyId, studyBo.getCustomStudyId());
   }
 
-  @SuppressWarnings("unchecked")
-  public void moveOrCopyCloudStorageForExportStudy(
+  /**
+   * Copies the resource files of the study from studies/oldCustomStudyId to
+   * studies/newCustomStudyId, or from the bucket root to studies/customStudyId if oldFilePath is
+   * true, and deletes the copied files if delete is true.
+   */
+  public StudyResourceRelocationService.Result moveOrCopyCloudStorageForExportStudy(
       Session session,
       StudyBo studyBo,
       boolean delete,
       boolean oldFilePath,
       String newCustomStudyId,
       String oldCustomStudyId) {
+    List<StudyResourceRelocationService.Relocation> manifest = new ArrayList<>();
+    for (Map.Entry<String, List<String>> resources :
+        getStudyResourceFiles(session, studyBo).entrySet()) {
+      for (String fileName : resources.getValue()) {
+        manifest.add(
+            FdahpStudyDesignerUtil.getStudyResourceRelocation(
+                fileName, resources.getKey(), oldCustomStudyId, oldFilePath, newCustomStudyId));
+      }
+    }
+    return studyResourceRelocationService.relocate(manifest, delete);
+  }
+
+  /**
+   * Returns the distinct names of the resource files of the study, keyed by the directory they are
+   * stored under, with one query for each kind of resource. A file can be used more than once, by
+   * several questions or pages, but is listed once.
+   */
+  @SuppressWarnings("unchecked")
+  public Map<String, List<String>> getStudyResourceFiles(Session session, StudyBo studyBo) {
+    List<String> logos = new ArrayList<>();
+    Set<String> questionnaireImages = new LinkedHashSet<>();
     if (studyBo.getThumbnailImage() != null) {
-      FdahpStudyDesignerUtil.copyOrMoveStudyResources(
-          studyBo.getThumbnailImage(),
-          FdahpStudyDesignerConstants.STUDTYLOGO,
-          oldCustomStudyId,
-          delete,
-          oldFilePath,
-          newCustomStudyId);
+      logos.add(studyBo.getThumbnailImage());
     }
 
-    List<QuestionnairesStepsBo> questionnaireStepsList =
+    List<Object[]> questionnaireSteps =
         session
             .createQuery(
-                "From QuestionnairesStepsBo where questionnairesId IN (SELECT q.id from QuestionnaireBo q where studyId=:studyId)")
+                "SELECT stepType, instructionFormId From QuestionnairesStepsBo where questionnairesId IN (SELECT q.id from QuestionnaireBo q where studyId=:studyId)")
             .setString("studyId", studyBo.getId())
             .list();
-    List<String> questionIds = new ArrayList();
-    for (QuestionnairesStepsBo questionnaireSteps : questionnaireStepsList) {
-      if (questionnaireSteps.getStepType().equals("Form")) {
-        List<String> questionIdList =
-            session
-                .createQuery("SELECT questionId FROM FormMappingBo where formId =:formId")
-                .setString("formId", questionnaireSteps.getInstructionFormId())
-                .list();
-        questionIds.addAll(questionIdList);
-      } else if (questionnaireSteps.getStepType().equals("Question")) {
-        questionIds.add(questionnaireSteps.getInstructionFormId());
+    List<String> questionIds = new ArrayList<>();
+    List<String> formIds = new ArrayList<>();
+    for (Object[] questionnaireStep : questionnaireSteps) {
+      if ("Form".equals(questionnaireStep[0])) {
+        formIds.add((String) questionnaireStep[1]);
+      } else if ("Question".equals(questionnaireStep[0])) {
+        questionIds.add((String) questionnaireStep[1]);
       }
     }
-    if (!CollectionUtils.isEmpty(questionIds)) {
+    if (!formIds.isEmpty()) {
+      questionIds.addAll(
+          session
+              .createQuery("SELECT questionId FROM FormMappingBo where formId IN (:formIds)")
+              .setParameterList("formIds", formIds)
+              .list());
+    }
 
-      List<QuestionResponseSubTypeBo> questionResponseSubTypeList =
+    if (!questionIds.isEmpty()) {
+      List<Object[]> subTypeImages =
           session
               .createQuery(
-                  "From QuestionResponseSubTypeBo WHERE responseTypeId IN (:responseTypeId)")
+                  "SELECT selectedImage, image From QuestionResponseSubTypeBo WHERE responseTypeId IN (:responseTypeId)")
               .setParameterList("responseTypeId", questionIds)
               .list();
-
-      for (QuestionResponseSubTypeBo questionResponseSubType : questionResponseSubTypeList) {
-
-        if (questionResponseSubType.getSelectedImage() != null) {
-          FdahpStudyDesignerUtil.copyOrMoveStudyResources(
-              questionResponseSubType.getSelectedImage(),
-              FdahpStudyDesignerConstants.QUESTIONNAIRE,
-              oldCustomStudyId,
-              delete,
-              oldFilePath,
-              newCustomStudyId);
-        }
-
-        if (questionResponseSubType.getImage() != null) {
-          FdahpStudyDesignerUtil.copyOrMoveStudyResources(
-              questionResponseSubType.getImage(),
-              FdahpStudyDesignerConstants.QUESTIONNAIRE,
-              oldCustomStudyId,
-              delete,
-              oldFilePath,
-              newCustomStudyId);
-        }
-      }
-
-      List<QuestionReponseTypeBo> questionResponseTypeList =
+      List<Object[]> responseTypeImages =
           session
               .createQuery(
-                  "From QuestionReponseTypeBo WHERE questionsResponseTypeId IN (:responseTypeId)")
+                  "SELECT minImage, maxImage From QuestionReponseTypeBo WHERE questionsResponseTypeId IN (:responseTypeId)")
               .setParameterList("responseTypeId", questionIds)
               .list();
-
-      for (QuestionReponseTypeBo questionResponseType : questionResponseTypeList) {
-        if (questionResponseType.getMinImage() != null) {
-          FdahpStudyDesignerUtil.copyOrMoveStudyResources(
-              questionResponseType.getMinImage(),
-              FdahpStudyDesignerConstants.QUESTIONNAIRE,
-              oldCustomStudyId,
-              delete,
-              oldFilePath,
-              newCustomStudyId);
-        }
-
-        if (questionResponseType.getMaxImage() != null) {
-
-          FdahpStudyDesignerUtil.copyOrMoveStudyResources(
-              questionResponseType.getMaxImage(),
-              FdahpStudyDesignerConstants.QUESTIONNAIRE,
-              oldCustomStudyId,
-              delete,
-              oldFilePath,
-              newCustomStudyId);
+      for (List<Object[]> images : Arrays.asList(subTypeImages, responseTypeImages)) {
+        for (Object[] image : images) {
+          for (Object fileName : image) {
+            if (fileName != null) {
+              questionnaireImages.add((String) fileName);
+            }
+          }
         }
       }
     }
-    List<StudyPageBo> studyPageBoList =
+
+    Map<String, List<String>> resourceFiles = new LinkedHashMap<>();
+    resourceFiles.put(FdahpStudyDesignerConstants.STUDTYLOGO, logos);
+    resourceFiles.put(
+        FdahpStudyDesignerConstants.QUESTIONNAIRE, new ArrayList<String>(questionnaireImages));
+    resourceFiles.put(
+        FdahpStudyDesignerConstants.STUDTYPAGES,
         session
-            .createQuery("from StudyPageBo where studyId=:studyId")
+            .createQuery(
+                "SELECT DISTINCT imagePath from StudyPageBo where studyId=:studyId and imagePath IS NOT NULL")
             .setString("studyId", studyBo.getId())
-            .list();
-
-    for (StudyPageBo studyPageBo : studyPageBoList) {
-
-      if (studyPageBo.getImagePath() != null) {
-        FdahpStudyDesignerUtil.copyOrMoveStudyResources(
-            studyPageBo.getImagePath(),
-            FdahpStudyDesignerConstants.STUDTYPAGES,
-            oldCustomStudyId,
-            delete,
-            oldFilePath,
-            newCustomStudyId);
-      }
-    }
-
-    List<ResourceBO> resourceBoList =
+            .list());
+    resourceFiles.put(
+        FdahpStudyDesignerConstants.RESOURCEPDFFILES,
         session
-            .createQuery("from ResourceBO where studyId=:studyId")
+            .createQuery(
+                "SELECT DISTINCT pdfUrl from ResourceBO where studyId=:studyId and pdfUrl IS NOT NULL")
             .setString("studyId", studyBo.getId())
-            .list();
-
-    for (ResourceBO resourceBo : resourceBoList) {
-
-      if (resourceBo.getPdfUrl() != null) {
-        FdahpStudyDesignerUtil.copyOrMoveStudyResources(
-            resourceBo.getPdfUrl(),
-            FdahpStudyDesignerConstants.RESOURCEPDFFILES,
-            oldCustomStudyId,
-            delete,
-            oldFilePath,
-            newCustomStudyId);
-      }
-    }
+            .list());
+    return resourceFiles;
   }
 
   @Override
@@ -8116,12 +7852,14 @@ public class StudyDAOImpl implements StudyDAO {
   }
 
   @SuppressWarnings("unchecked")
-  public void getResourcesFromStorage(Session session, StudyBo studyBo) throws Exception {
+  public void getResourcesFromStorage(
+      Session session, StudyBo studyBo, File exportSqlFile, long exportSqlChecksum)
+      throws Exception {
     ServletContext context = ServletContextHolder.getServletContext();
 
     if (context != null) {
 
-      writeSqlFileToLocalExport(studyBo, context);
+      writeSqlFileToLocalExport(studyBo, exportSqlFile, exportSqlChecksum, context);
 
       if (studyBo.getThumbnailImage() != null) {
 
@@ -8335,17 +8073,12 @@ public class StudyDAOImpl implements StudyDAO {
     }
   }
 
-  public void writeSqlFileToLocalExport(StudyBo studyBo, ServletContext context)
-      throws FileNotFoundException, IOException {
+  public void writeSqlFileToLocalExport(
+      StudyBo studyBo, File exportSqlFile, long exportSqlChecksum, ServletContext context)
+      throws IOException {
     Map<String, String> map = FdahpStudyDesignerUtil.getAppProperties();
-    byte[] exportSqlBytes = studyBo.getExportSqlByte();
     String fileName =
-        studyBo.getId()
-            + "_"
-            + map.get("release.version")
-            + "_"
-            + studyExportImportService.getCRC32Checksum(exportSqlBytes)
-            + ".sql";
+        studyBo.getId() + "_" + map.get("release.version") + "_" + exportSqlChecksum + ".sql";
 
     File directoryOfExport = new File(context.getRealPath("/") + "/Export");
     if (!directoryOfExport.exists()) {
@@ -8358,9 +8091,7 @@ public class StudyDAOImpl implements StudyDAO {
 
     File sqlFile =
         new File(context.getRealPath("/") + EXPORT + studyBo.getCustomStudyId() + "/" + fileName);
-    FileOutputStream fosExportSql = new FileOutputStream(sqlFile);
-    fosExportSql.write(exportSqlBytes);
-    fosExportSql.close();
+    Files.move(exportSqlFile.toPath(), sqlFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
   }
 
   public void writeToFileExport(
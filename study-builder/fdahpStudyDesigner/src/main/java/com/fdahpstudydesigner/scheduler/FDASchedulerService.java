@@ -27,7 +27,6 @@ import static com.fdahpstudydesigner.common.StudyBuilderAuditEvent.NOTIFICATION_
 
 import com.fdahpstudydesigner.bean.AuditLogEventRequest;
 import com.fdahpstudydesigner.bean.PushNotificationBean;
-import com.fdahpstudydesigner.bo.NotificationHistoryBO;
 import com.fdahpstudydesigner.bo.StudyBo;
 import com.fdahpstudydesigner.common.PlatformComponent;
 import com.fdahpstudydesigner.common.StudyBuilderAuditEvent;
@@ -38,6 +37,7 @@ import com.fdahpstudydesigner.dao.StudyDAO;
 import com.fdahpstudydesigner.dao.UsersDAO;
 import com.fdahpstudydesigner.service.NotificationService;
 import com.fdahpstudydesigner.service.OAuthService;
+import com.fdahpstudydesigner.util.CloudStorageGateway;
 import com.fdahpstudydesigner.util.FdahpStudyDesignerConstants;
 import com.fdahpstudydesigner.util.FdahpStudyDesignerUtil;
 import java.io.File;
@@ -47,26 +47,25 @@ import java.text.SimpleDateFormat;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import javax.annotation.PreDestroy;
 import org.apache.commons.beanutils.BeanUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.ClientProtocolException;
-import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.DefaultHttpClient;
-import org.apache.http.params.BasicHttpParams;
-import org.apache.http.params.HttpConnectionParams;
-import org.apache.http.params.HttpParams;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
 import org.codehaus.jackson.map.ObjectMapper;
-import org.hibernate.Session;
-import org.hibernate.SessionFactory;
-import org.hibernate.Transaction;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.slf4j.ext.XLogger;
@@ -74,7 +73,6 @@ import org.slf4j.ext.XLoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.http.HttpStatus;
-import org.springframework.orm.hibernate3.HibernateTemplate;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
@@ -100,6 +98,13 @@ public class FDASchedulerService {
 
   @Autowired private StudyDAO studyDAO;
 
+  private final CloseableHttpClient httpClient =
+      HttpClients.custom()
+          .setConnectionManager(new PoolingHttpClientConnectionManager())
+          .setDefaultRequestConfig(
+              RequestConfig.custom().setConnectTimeout(30000).setSocketTimeout(30000).build())
+          .build();
+
   @Bean()
   public ThreadPoolTaskScheduler taskScheduler() {
     ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
@@ -107,13 +112,6 @@ public class FDASchedulerService {
     return taskScheduler;
   }
 
-  HibernateTemplate hibernateTemplate;
-
-  @Autowired
-  public void setSessionFactory(SessionFactory sessionFactory) {
-    this.hibernateTemplate = new HibernateTemplate(sessionFactory);
-  }
-
   @Scheduled(cron = "0 0 0 * * ?")
   public void createAuditLogs() {
     logger.entry("begin createAuditLogs()");
@@ -141,17 +139,28 @@ public class FDASchedulerService {
     logger.exit("createAuditLogs() - Ends");
   }
 
+  /** Logs the cloud storage traffic of the study builder since its start. */
+  @Scheduled(cron = "${cloud.storage.metrics.log.cron}")
+  public void logCloudStorageMetrics() {
+    logger.info("Cloud storage metrics: " + CloudStorageGateway.getInstance().getMetrics());
+  }
+
+  /**
+   * Sends the due notifications to the participant datastore in one request. The notifications are
+   * claimed and marked sent before the request, so that they are sent by one instance only, and are
+   * released for the next run when the request fails. A notification is sent at most once: the
+   * notifications claimed by an instance that stops before the request completes are not sent,
+   * whereas sending them again could notify the participants twice.
+   */
   @Scheduled(cron = "0 * * * * ?")
   public void sendPushNotification() {
     logger.entry("begin sendPushNotification()");
     List<PushNotificationBean> pushNotificationBeans;
-    List<PushNotificationBean> pushNotificationBeanswithAppId =
-        new ArrayList<PushNotificationBean>();
     List<PushNotificationBean> finalPushNotificationBeans = new ArrayList<PushNotificationBean>();
+    Set<String> notificationIds = new HashSet<>();
     String date;
     String time;
     ObjectMapper objectMapper = new ObjectMapper();
-    String responseString = "";
     try {
 
       date = FdahpStudyDesignerUtil.getCurrentDate();
@@ -161,90 +170,76 @@ public class FDASchedulerService {
               FdahpStudyDesignerConstants.DB_SDF_TIME,
               1);
       pushNotificationBeans =
-          notificationDAO.getPushNotificationList(
+          notificationDAO.claimPushNotifications(
               FdahpStudyDesignerUtil.getTimeStamp(date, time).toString());
-      if ((pushNotificationBeans != null) && !pushNotificationBeans.isEmpty()) {
-        for (PushNotificationBean p : pushNotificationBeans) {
-          if (p.getAppId() == null) {
-            List<String> appIds = notificationService.getGatwayAppList();
-            if (!appIds.isEmpty()) {
-              for (String appId : appIds) {
-                PushNotificationBean pushBean = new PushNotificationBean();
-                BeanUtils.copyProperties(pushBean, p);
-                pushBean.setAppId(appId);
-                pushNotificationBeanswithAppId.add(pushBean);
-              }
-            }
+      if (pushNotificationBeans.isEmpty()) {
+        logger.exit("sendPushNotification() - Ends");
+        return;
+      }
+
+      List<String> appIds = null;
+      Set<String> customStudyIds = new HashSet<>();
+      for (PushNotificationBean p : pushNotificationBeans) {
+        notificationIds.add(p.getNotificationId());
+        if (p.getAppId() == null) {
+          if (appIds == null) {
+            appIds = notificationService.getGatwayAppList();
           }
-        }
-        if (!pushNotificationBeanswithAppId.isEmpty()) {
-          for (PushNotificationBean pushBean : pushNotificationBeanswithAppId) {
-            pushNotificationBeans.add(pushBean);
+          for (String appId : appIds) {
+            PushNotificationBean pushBean = new PushNotificationBean();
+            BeanUtils.copyProperties(pushBean, p);
+            pushBean.setAppId(appId);
+            finalPushNotificationBeans.add(pushBean);
           }
+        } else {
+          finalPushNotificationBeans.add(p);
         }
-
-        if (!pushNotificationBeans.isEmpty()) {
-          for (PushNotificationBean pushBean : pushNotificationBeans) {
-            if (pushBean.getAppId() != null) {
-              finalPushNotificationBeans.add(pushBean);
-            }
-          }
+        if (StringUtils.isNotEmpty(p.getCustomStudyId())) {
+          customStudyIds.add(p.getCustomStudyId());
         }
-        List<PushNotificationBean> pushNotification = new ArrayList<>();
-        for (PushNotificationBean finalPushNotificationBean : finalPushNotificationBeans) {
-          StudyBo studyDetails =
-              studyDAO.getStudyByLatestVersion(finalPushNotificationBean.getCustomStudyId());
-          String deviceType = null;
-          if (studyDetails != null
-              && studyDetails.getPlatform().equalsIgnoreCase(FdahpStudyDesignerConstants.IOS)) {
-            deviceType = FdahpStudyDesignerConstants.DEVICE_IOS;
-          } else if (studyDetails != null
-              && studyDetails.getPlatform().equalsIgnoreCase(FdahpStudyDesignerConstants.ANDROID)) {
-            deviceType = FdahpStudyDesignerConstants.DEVICE_ANDROID;
-          }
-
-          finalPushNotificationBean.setDeviceType(deviceType);
-          pushNotification.add(finalPushNotificationBean);
+      }
 
-          JSONArray arrayToJson = new JSONArray(objectMapper.writeValueAsString(pushNotification));
-          logger.info("FDASchedulerService - sendPushNotification " + arrayToJson);
-          JSONObject json = new JSONObject();
-          json.put("notifications", arrayToJson);
-          logger.info("FDASchedulerService - sendPushNotification " + arrayToJson);
+      Map<String, StudyBo> studies = studyDAO.getStudiesByLatestVersion(customStudyIds);
+      for (PushNotificationBean finalPushNotificationBean : finalPushNotificationBeans) {
+        StudyBo studyDetails = studies.get(finalPushNotificationBean.getCustomStudyId());
+        String deviceType = null;
+        if (studyDetails != null
+            && studyDetails.getPlatform().equalsIgnoreCase(FdahpStudyDesignerConstants.IOS)) {
+          deviceType = FdahpStudyDesignerConstants.DEVICE_IOS;
+        } else if (studyDetails != null
+            && studyDetails.getPlatform().equalsIgnoreCase(FdahpStudyDesignerConstants.ANDROID)) {
+          deviceType = FdahpStudyDesignerConstants.DEVICE_ANDROID;
+        }
+        finalPushNotificationBean.setDeviceType(deviceType);
+      }
 
-          HttpParams httpParams = new BasicHttpParams();
-          HttpConnectionParams.setConnectionTimeout(httpParams, 30000);
-          HttpConnectionParams.setSoTimeout(httpParams, 30000);
-          HttpClient client = new DefaultHttpClient(httpParams);
+      JSONArray arrayToJson =
+          new JSONArray(objectMapper.writeValueAsString(finalPushNotificationBeans));
+      JSONObject json = new JSONObject();
+      json.put("notifications", arrayToJson);
+      logger.info(
+          String.format(
+              "FDASchedulerService - sendPushNotification %d notifications as %d app notifications",
+              notificationIds.size(), finalPushNotificationBeans.size()));
 
-          HttpResponse response =
-              invokePushNotificationApi(json, client, oauthService.getAccessToken());
-          if (response.getStatusLine().getStatusCode() == HttpStatus.UNAUTHORIZED.value()) {
-            // Below method is called to indicate that the content of this entity is no longer
-            // required.This will fix the error
-            // Invalid use of BasicClientConnManager: connection still allocated.
-            // Make sure to release the connection before allocating another one.
-            response.getEntity().consumeContent();
-            response = invokePushNotificationApi(json, client, oauthService.getNewAccessToken());
-          }
+      int status = invokePushNotificationApi(json, oauthService.getAccessToken());
+      if (status == HttpStatus.UNAUTHORIZED.value()) {
+        status = invokePushNotificationApi(json, oauthService.getNewAccessToken());
+      }
 
-          if (response.getStatusLine().getStatusCode() != HttpStatus.OK.value()) {
-            logger.error(
-                String.format(
-                    "Push notification API failed with status=%d",
-                    response.getStatusLine().getStatusCode()));
-            logSendNotificationFailedEvent(NOTIFICATION_METADATA_SEND_OPERATION_FAILED);
-          } else {
-            updateNotification(finalPushNotificationBean);
-            logSendNotificationFailedEvent(NOTIFICATION_METADATA_SENT_TO_PARTICIPANT_DATASTORE);
-          }
-          pushNotification.clear();
-        }
+      if (status != HttpStatus.OK.value()) {
+        logger.error(String.format("Push notification API failed with status=%d", status));
+        notificationDAO.releasePushNotifications(notificationIds);
+        logSendNotificationFailedEvent(NOTIFICATION_METADATA_SEND_OPERATION_FAILED);
+      } else {
+        notificationDAO.savePushNotificationHistory(finalPushNotificationBeans);
+        logSendNotificationFailedEvent(NOTIFICATION_METADATA_SENT_TO_PARTICIPANT_DATASTORE);
       }
     } catch (Exception e) {
-      logger.error("FDASchedulerService - sendPushNotification - ERROR", e.getCause());
-      e.printStackTrace();
-
+      logger.error("FDASchedulerService - sendPushNotification - ERROR", e);
+      if (!notificationIds.isEmpty()) {
+        notificationDAO.releasePushNotifications(notificationIds);
+      }
       logSendNotificationFailedEvent(NOTIFICATION_METADATA_SEND_OPERATION_FAILED);
     }
     logger.exit("sendPushNotification() - Ends");
@@ -261,9 +256,7 @@ public class FDASchedulerService {
     auditLogEventHelper.logEvent(eventEnum, auditRequest);
   }
 
-  private HttpResponse invokePushNotificationApi(
-      JSONObject json, HttpClient client, String accessToken)
-      throws IOException, ClientProtocolException {
+  private int invokePushNotificationApi(JSONObject json, String accessToken) throws IOException {
     HttpPost post =
         new HttpPost(
             FdahpStudyDesignerUtil.getAppProperties().get("fda.registration.root.url")
@@ -273,32 +266,19 @@ public class FDASchedulerService {
 
     StringEntity requestEntity = new StringEntity(json.toString(), ContentType.APPLICATION_JSON);
     post.setEntity(requestEntity);
-    return client.execute(post);
+    try (CloseableHttpResponse response = httpClient.execute(post)) {
+      // the response is read to the end so that its connection goes back to the pool
+      EntityUtils.consumeQuietly(response.getEntity());
+      return response.getStatusLine().getStatusCode();
+    }
   }
 
-  private void updateNotification(PushNotificationBean pushNotificationBean) {
-    String sb = "";
-    Session session = hibernateTemplate.getSessionFactory().openSession();
-    Transaction trans = session.beginTransaction();
-    if (null != pushNotificationBean) {
-      if ((pushNotificationBean.getNotificationSubType() == null)
-          || ((pushNotificationBean.getNotificationSubType() != null)
-              && !FdahpStudyDesignerConstants.RESOURCE.equals(
-                  pushNotificationBean.getNotificationSubType())
-              && !FdahpStudyDesignerConstants.STUDY_EVENT.equals(
-                  pushNotificationBean.getNotificationSubType()))) {
-        NotificationHistoryBO historyBO = new NotificationHistoryBO();
-        historyBO.setNotificationId(pushNotificationBean.getNotificationId());
-        historyBO.setNotificationSentDateTime(FdahpStudyDesignerUtil.getCurrentDateTime());
-        session.save(historyBO);
-      }
-      sb =
-          "update NotificationBO NBO set NBO.notificationSent = true  where NBO.notificationId = :notificationId";
-      session
-          .createQuery(sb)
-          .setParameter("notificationId", pushNotificationBean.getNotificationId())
-          .executeUpdate();
+  @PreDestroy
+  public void close() {
+    try {
+      httpClient.close();
+    } catch (IOException e) {
+      logger.warn("FDASchedulerService - close - ERROR", e);
     }
-    trans.commit();
   }
 }
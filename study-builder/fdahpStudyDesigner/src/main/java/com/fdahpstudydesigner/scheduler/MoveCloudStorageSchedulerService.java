@@ -26,7 +26,10 @@ package com.fdahpstudydesigner.scheduler;
 
 import com.fdahpstudydesigner.bo.StudyBo;
 import com.fdahpstudydesigner.dao.StudyDAOImpl;
+import com.fdahpstudydesigner.service.StudyResourceRelocationService;
+import java.sql.Timestamp;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import org.apache.log4j.Logger;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
@@ -45,9 +48,20 @@ public class MoveCloudStorageSchedulerService {
 
   @Autowired StudyDAOImpl study;
 
+  /**
+   * A study that is not moved yet, or whose move was left unfinished: released after failed copies,
+   * or without a lease or with an expired one when the instance moving it stopped.
+   */
+  private static final String CLAIMABLE =
+      "(SBO.isCloudStorageMoved = 0 or (SBO.isCloudStorageMoved = 1"
+          + " and (SBO.cloudStorageLeaseExpiry is null or SBO.cloudStorageLeaseExpiry < :now)))";
+
   @Value("${jobs.move.cloud.storage.scheduler.enable}")
   private boolean moveCloudStorageSchedulerEnable;
 
+  @Value("${move.cloud.storage.lease.minutes}")
+  private long leaseMinutes;
+
   @Bean()
   public ThreadPoolTaskScheduler taskScheduler() {
     ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
@@ -69,38 +83,79 @@ public class MoveCloudStorageSchedulerService {
   public void moveCloudStorageStructure() {
     logger.info("moveCloudStorageStructure  - Starts");
 
+    Session session = null;
     try {
 
       if (moveCloudStorageSchedulerEnable) {
 
-        Session session = hibernateTemplate.getSessionFactory().openSession();
-        // LIMIT = 10 add order by SBO.createdOn desc
+        session = hibernateTemplate.getSessionFactory().openSession();
+        // A study at 1 is being moved by the instance holding its lease. Once the lease is released
+        // or has expired, moving its files again skips the ones already moved
+        Timestamp now = new Timestamp(System.currentTimeMillis());
         List<StudyBo> studyBoList =
             session
                 .createQuery(
-                    "FROM StudyBo SBO WHERE SBO.live = 0 and SBO.isCloudStorageMoved=0 order by SBO.createdOn desc")
+                    "FROM StudyBo SBO WHERE SBO.live = 0 and "
+                        + CLAIMABLE
+                        + " order by SBO.createdOn desc")
+                .setTimestamp("now", now)
                 .list();
 
         for (StudyBo studyBo : studyBoList) {
 
-          session
-              .createQuery(
-                  "update StudyBo SBO set SBO.isCloudStorageMoved = 1 where SBO.customStudyId=:customStudyId")
-              .setString("customStudyId", studyBo.getCustomStudyId())
-              .executeUpdate();
-
-          study.moveOrCopyCloudStorage(session, studyBo, true, true, null);
-
-          session
-              .createQuery(
-                  "update StudyBo SBO set SBO.isCloudStorageMoved = 2 where SBO.customStudyId=:customStudyId")
-              .setString("customStudyId", studyBo.getCustomStudyId())
-              .executeUpdate();
+          // the claim only succeeds for one instance, the others skip the study
+          now = new Timestamp(System.currentTimeMillis());
+          int claimed =
+              session
+                  .createQuery(
+                      "update StudyBo SBO set SBO.isCloudStorageMoved = 1,"
+                          + " SBO.cloudStorageLeaseExpiry = :leaseExpiry"
+                          + " where SBO.customStudyId=:customStudyId and "
+                          + CLAIMABLE)
+                  .setTimestamp(
+                      "leaseExpiry",
+                      new Timestamp(now.getTime() + TimeUnit.MINUTES.toMillis(leaseMinutes)))
+                  .setString("customStudyId", studyBo.getCustomStudyId())
+                  .setTimestamp("now", now)
+                  .executeUpdate();
+          if (claimed == 0) {
+            continue;
+          }
+
+          StudyResourceRelocationService.Result result =
+              study.moveOrCopyCloudStorage(session, studyBo, true, true, null);
+
+          if (result.isComplete()) {
+            session
+                .createQuery(
+                    "update StudyBo SBO set SBO.isCloudStorageMoved = 2,"
+                        + " SBO.cloudStorageLeaseExpiry = null"
+                        + " where SBO.customStudyId=:customStudyId")
+                .setString("customStudyId", studyBo.getCustomStudyId())
+                .executeUpdate();
+          } else {
+            session
+                .createQuery(
+                    "update StudyBo SBO set SBO.cloudStorageLeaseExpiry = null"
+                        + " where SBO.customStudyId=:customStudyId and SBO.isCloudStorageMoved = 1")
+                .setString("customStudyId", studyBo.getCustomStudyId())
+                .executeUpdate();
+            logger.warn(
+                "moveCloudStorageStructure  - "
+                    + result.getFailed()
+                    + " files of study "
+                    + studyBo.getCustomStudyId()
+                    + " not moved, retrying on the next run");
+          }
         }
       }
     } catch (Exception e) {
       logger.error("moveCloudStorageStructure  - ERROR", e.getCause());
       e.printStackTrace();
+    } finally {
+      if ((null != session) && session.isOpen()) {
+        session.close();
+      }
     }
     logger.info("moveCloudStorageStructure  - Ends");
   }
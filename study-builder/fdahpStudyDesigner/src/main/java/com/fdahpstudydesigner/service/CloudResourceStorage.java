@@ -0,0 +1,75 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.fdahpstudydesigner.service;
+
+import com.fdahpstudydesigner.util.CloudStorageGateway;
+import com.fdahpstudydesigner.util.FdahpStudyDesignerUtil;
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the study resources in the cloud.bucket.name bucket. Copies are done by the storage service
+ * (rewrite), without transferring the content; lookups and deletes are sent as batch requests. The
+ * requests go through the client of CloudStorageGateway, which counts them.
+ */
+@Component
+public class CloudResourceStorage implements ResourceStorage {
+
+  /** The maximum number of calls of a batch request. */
+  private static final int BATCH_SIZE = 100;
+
+  private final String bucketName =
+      FdahpStudyDesignerUtil.getAppProperties().get("cloud.bucket.name");
+
+  private final CloudStorageGateway gateway = CloudStorageGateway.getInstance();
+
+  @Override
+  public Map<String, String> getChecksums(Collection<String> names) {
+    Map<String, String> checksums = new HashMap<>();
+    for (List<BlobId> blobIds : partition(names)) {
+      for (Blob blob : gateway.get(blobIds)) {
+        if (blob != null) {
+          checksums.put(blob.getName(), blob.getCrc32c());
+        }
+      }
+    }
+    return checksums;
+  }
+
+  @Override
+  public void copy(String source, String target) {
+    gateway.copy(BlobId.of(bucketName, source), BlobId.of(bucketName, target));
+  }
+
+  @Override
+  public void delete(Collection<String> names) {
+    for (List<BlobId> blobIds : partition(names)) {
+      gateway.delete(blobIds);
+    }
+  }
+
+  private List<List<BlobId>> partition(Collection<String> names) {
+    List<List<BlobId>> batches = new ArrayList<>();
+    List<BlobId> batch = null;
+    for (String name : names) {
+      if (batch == null || batch.size() == BATCH_SIZE) {
+        batch = new ArrayList<>(BATCH_SIZE);
+        batches.add(batch);
+      }
+      batch.add(BlobId.of(bucketName, name));
+    }
+    return batches;
+  }
+}
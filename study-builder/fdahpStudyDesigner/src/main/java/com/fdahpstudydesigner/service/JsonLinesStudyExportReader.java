@@ -0,0 +1,139 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.fdahpstudydesigner.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Reads a study export written by {@link JsonLinesStudyExportWriter}. The manifest is read first,
+ * and the rows of study.jsonl are then checked against its row count and CRC32 checksum.
+ */
+public class JsonLinesStudyExportReader implements Closeable {
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  /** Receives each row of the export, in the order the rows are to be imported. */
+  public interface RowHandler {
+
+    void row(String tableName, String[] columns, Object[] values) throws SQLException;
+  }
+
+  private final ZipFile zip;
+
+  private final JsonNode manifest;
+
+  public JsonLinesStudyExportReader(File file) throws IOException {
+    zip = new ZipFile(file);
+    try {
+      ZipEntry manifestEntry = zip.getEntry(JsonLinesStudyExportWriter.MANIFEST_ENTRY);
+      if (manifestEntry == null) {
+        throw new IOException("The export has no manifest");
+      }
+      try (InputStream in = zip.getInputStream(manifestEntry)) {
+        manifest = OBJECT_MAPPER.readTree(in);
+      }
+      if (!JsonLinesStudyExportWriter.FORMAT.equals(manifest.path("format").asText())
+          || manifest.path("formatVersion").asInt() < 1
+          || manifest.path("formatVersion").asInt() > JsonLinesStudyExportWriter.FORMAT_VERSION) {
+        throw new IOException("Unsupported export format " + manifest.path("format").asText());
+      }
+    } catch (IOException e) {
+      zip.close();
+      throw e;
+    }
+  }
+
+  /** Returns true if the archive is an export written by {@link JsonLinesStudyExportWriter}. */
+  public static boolean isJsonLinesExport(File file) throws IOException {
+    try (ZipFile zip = new ZipFile(file)) {
+      return zip.getEntry(JsonLinesStudyExportWriter.ROWS_ENTRY) != null;
+    }
+  }
+
+  /** Returns the release version of the study builder that wrote the export, or null. */
+  public String getReleaseVersion() {
+    return manifest.hasNonNull("releaseVersion") ? manifest.get("releaseVersion").asText() : null;
+  }
+
+  /**
+   * Passes each row to the handler, then checks the rows against the manifest. The rows read before
+   * a mismatch are already passed, so the handler should only keep them until this returns.
+   */
+  public void readRows(RowHandler handler) throws IOException, SQLException {
+    ZipEntry rowsEntry = zip.getEntry(manifest.path("rows").path("entry").asText());
+    if (rowsEntry == null) {
+      throw new SQLException("The export has no rows");
+    }
+    CRC32 crc32 = new CRC32();
+    long rowCount = 0;
+    try (BufferedReader reader =
+        new BufferedReader(
+            new InputStreamReader(zip.getInputStream(rowsEntry), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+        crc32.update(bytes, 0, bytes.length);
+        rowCount++;
+
+        JsonNode row = OBJECT_MAPPER.readTree(line);
+        JsonNode columnValues = row.path("row");
+        if (!row.path("table").isTextual() || !columnValues.isObject()) {
+          throw new SQLException("Invalid row " + rowCount);
+        }
+        String[] columns = new String[columnValues.size()];
+        Object[] values = new Object[columnValues.size()];
+        int i = 0;
+        for (Iterator<Map.Entry<String, JsonNode>> fields = columnValues.fields();
+            fields.hasNext();
+            i++) {
+          Map.Entry<String, JsonNode> field = fields.next();
+          columns[i] = field.getKey();
+          values[i] = getValue(field.getValue());
+        }
+        handler.row(row.get("table").asText(), columns, values);
+      }
+    }
+
+    if (rowCount != manifest.path("rows").path("count").asLong()
+        || crc32.getValue() != manifest.path("rows").path("crc32").asLong()) {
+      throw new SQLException("The rows don't match the manifest");
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    zip.close();
+  }
+
+  /** Returns the value as JsonLinesStudyExportWriter received it, dates and times as strings. */
+  private static Object getValue(JsonNode value) {
+    if (value.isNull()) {
+      return null;
+    } else if (value.isBoolean()) {
+      return value.booleanValue();
+    } else if (value.isNumber()) {
+      return value.numberValue();
+    }
+    return value.asText();
+  }
+}
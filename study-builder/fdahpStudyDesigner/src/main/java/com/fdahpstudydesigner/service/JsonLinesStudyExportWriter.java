@@ -0,0 +1,233 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.fdahpstudydesigner.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes a study export as a zip archive to a stream, such as the write channel of the exported
+ * file in cloud storage, without keeping the export in memory.
+ *
+ * <p>The archive has these entries, in this order:
+ *
+ * <ul>
+ *   <li>study.jsonl, with one line {"table":..., "row":{column: value, ...}} for each row, in the
+ *       order the rows are to be imported.
+ *   <li>the resource files of the study, as &lt;directory&gt;/&lt;file name&gt;.
+ *   <li>manifest.json, with the format and its version, the attributes given to finish(), the
+ *       number of rows and the CRC32 checksum of study.jsonl and of each table, and the size and
+ *       the CRC32 checksum of each resource file. An archive without a manifest is incomplete.
+ * </ul>
+ */
+public class JsonLinesStudyExportWriter implements StudyExportWriter {
+
+  public static final String FORMAT = "jsonl";
+
+  public static final int FORMAT_VERSION = 1;
+
+  public static final String ROWS_ENTRY = "study.jsonl";
+
+  public static final String MANIFEST_ENTRY = "manifest.json";
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  /** The table name and the column names of each INSERT template, parsed once. */
+  private static final Map<String, String[]> TABLE_COLUMNS = new ConcurrentHashMap<>();
+
+  private final ZipOutputStream zip;
+
+  private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+  private final JsonGenerator generator;
+
+  private final CRC32 rowsCrc32 = new CRC32();
+
+  private final Map<String, EntrySummary> tables = new LinkedHashMap<>();
+
+  private final Map<String, EntrySummary> resources = new LinkedHashMap<>();
+
+  private long rowCount;
+
+  private boolean rowsClosed;
+
+  public JsonLinesStudyExportWriter(OutputStream out) throws IOException {
+    zip = new ZipOutputStream(out);
+    zip.putNextEntry(new ZipEntry(ROWS_ENTRY));
+    generator = JSON_FACTORY.createGenerator(line);
+    generator.setRootValueSeparator(null);
+  }
+
+  @Override
+  public void write(String insertQuery, Object... values) throws IOException, SQLException {
+    if (rowsClosed) {
+      throw new IllegalStateException("Rows are written before the resource files");
+    }
+    String[] tableColumns = getTableColumns(insertQuery);
+    if (tableColumns.length - 1 != values.length) {
+      throw new SQLException("Column count doesn't match value count.");
+    }
+
+    line.reset();
+    generator.writeStartObject();
+    generator.writeStringField("table", tableColumns[0]);
+    generator.writeObjectFieldStart("row");
+    for (int i = 0; i < values.length; i++) {
+      generator.writeFieldName(tableColumns[i + 1]);
+      writeValue(values[i]);
+    }
+    generator.writeEndObject();
+    generator.writeEndObject();
+    generator.writeRaw('\n');
+    generator.flush();
+
+    byte[] bytes = line.toByteArray();
+    zip.write(bytes);
+    rowsCrc32.update(bytes, 0, bytes.length);
+    rowCount++;
+    EntrySummary table = tables.get(tableColumns[0]);
+    if (table == null) {
+      table = new EntrySummary();
+      tables.put(tableColumns[0], table);
+    }
+    table.add(bytes, bytes.length, 1);
+  }
+
+  /** Adds a resource file of the study, once all rows are written. */
+  public void writeResource(String name, InputStream content) throws IOException {
+    closeRows();
+    EntrySummary resource = new EntrySummary();
+    zip.putNextEntry(new ZipEntry(name));
+    byte[] buffer = new byte[8192];
+    int length;
+    while ((length = content.read(buffer)) > 0) {
+      zip.write(buffer, 0, length);
+      resource.add(buffer, length, length);
+    }
+    zip.closeEntry();
+    resources.put(name, resource);
+  }
+
+  /** Writes the manifest, with the given attributes, and completes the archive. */
+  public void finish(Map<String, String> attributes) throws IOException {
+    closeRows();
+    zip.putNextEntry(new ZipEntry(MANIFEST_ENTRY));
+    line.reset();
+    generator.writeStartObject();
+    generator.writeStringField("format", FORMAT);
+    generator.writeNumberField("formatVersion", FORMAT_VERSION);
+    for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+      generator.writeStringField(attribute.getKey(), attribute.getValue());
+    }
+    generator.writeObjectFieldStart("rows");
+    generator.writeStringField("entry", ROWS_ENTRY);
+    generator.writeNumberField("count", rowCount);
+    generator.writeNumberField("crc32", rowsCrc32.getValue());
+    generator.writeEndObject();
+    writeSummaries("tables", "rows", tables);
+    writeSummaries("resources", "size", resources);
+    generator.writeEndObject();
+    generator.flush();
+    line.writeTo(zip);
+    zip.closeEntry();
+    zip.finish();
+  }
+
+  @Override
+  public void close() throws IOException {
+    generator.close();
+    zip.close();
+  }
+
+  private void closeRows() throws IOException {
+    if (!rowsClosed) {
+      zip.closeEntry();
+      rowsClosed = true;
+    }
+  }
+
+  private void writeSummaries(
+      String fieldName, String countFieldName, Map<String, EntrySummary> summaries)
+      throws IOException {
+    generator.writeArrayFieldStart(fieldName);
+    for (Map.Entry<String, EntrySummary> summary : summaries.entrySet()) {
+      generator.writeStartObject();
+      generator.writeStringField("name", summary.getKey());
+      generator.writeNumberField(countFieldName, summary.getValue().count);
+      generator.writeNumberField("crc32", summary.getValue().crc32.getValue());
+      generator.writeEndObject();
+    }
+    generator.writeEndArray();
+  }
+
+  private void writeValue(Object value) throws IOException {
+    if (value == null) {
+      generator.writeNull();
+    } else if (value instanceof Boolean) {
+      generator.writeBoolean((Boolean) value);
+    } else if (value instanceof Integer || value instanceof Long || value instanceof Short) {
+      generator.writeNumber(((Number) value).longValue());
+    } else if (value instanceof Float || value instanceof Double) {
+      generator.writeNumber(((Number) value).doubleValue());
+    } else if (value instanceof BigDecimal) {
+      generator.writeNumber((BigDecimal) value);
+    } else if (value instanceof BigInteger) {
+      generator.writeNumber((BigInteger) value);
+    } else {
+      // strings, and dates and times as they are written in the SQL export
+      generator.writeString(value.toString());
+    }
+  }
+
+  /** Returns the table name of the INSERT template, followed by its column names. */
+  private static String[] getTableColumns(String insertQuery) {
+    String[] tableColumns = TABLE_COLUMNS.get(insertQuery);
+    if (tableColumns == null) {
+      String[] columns =
+          insertQuery
+              .substring(insertQuery.indexOf('(') + 1, insertQuery.indexOf(')'))
+              .replace("`", "")
+              .split(",");
+      tableColumns = new String[columns.length + 1];
+      int tableStart = insertQuery.indexOf('`') + 1;
+      tableColumns[0] = insertQuery.substring(tableStart, insertQuery.indexOf('`', tableStart));
+      for (int i = 0; i < columns.length; i++) {
+        tableColumns[i + 1] = columns[i].trim();
+      }
+      TABLE_COLUMNS.put(insertQuery, tableColumns);
+    }
+    return tableColumns;
+  }
+
+  /** The CRC32 checksum of a table or a file, with its number of rows or bytes. */
+  private static class EntrySummary {
+
+    private final CRC32 crc32 = new CRC32();
+
+    private long count;
+
+    private void add(byte[] bytes, int length, int count) {
+      crc32.update(bytes, 0, length);
+      this.count += count;
+    }
+  }
+}
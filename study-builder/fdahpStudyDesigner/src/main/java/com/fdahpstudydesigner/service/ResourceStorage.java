@@ -0,0 +1,28 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.fdahpstudydesigner.service;
+
+import java.util.Collection;
+import java.util.Map;
+
+/** The bucket the study resources (images and PDF files) are stored in. */
+public interface ResourceStorage {
+
+  /**
+   * Returns the checksum of each of the named files that exists, keyed by name. Names of files that
+   * do not exist are left out.
+   */
+  Map<String, String> getChecksums(Collection<String> names);
+
+  /** Copies the source file to the target file, replacing the target if it exists. */
+  void copy(String source, String target);
+
+  /** Deletes the named files; names of files that do not exist are ignored. */
+  void delete(Collection<String> names);
+}
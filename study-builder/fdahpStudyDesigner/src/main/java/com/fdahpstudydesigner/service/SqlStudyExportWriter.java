@@ -0,0 +1,108 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.fdahpstudydesigner.service;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.zip.CRC32;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+
+/**
+ * Writes a study export as INSERT statements, one per line, to a file. The checksum of the lines is
+ * computed as they are written, as the name of the exported file carries it.
+ */
+public class SqlStudyExportWriter implements StudyExportWriter {
+
+  private static XLogger logger = XLoggerFactory.getXLogger(SqlStudyExportWriter.class.getName());
+
+  private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes();
+
+  private final File file;
+
+  private final OutputStream out;
+
+  private final CRC32 crc32 = new CRC32();
+
+  public SqlStudyExportWriter(File file) throws IOException {
+    this.file = file;
+    this.out = new BufferedOutputStream(new FileOutputStream(file));
+  }
+
+  @Override
+  public void write(String insertQuery, Object... values) throws IOException, SQLException {
+    byte[] bytes = prepareInsertQuery(insertQuery, values).getBytes();
+    out.write(bytes);
+    out.write(LINE_SEPARATOR);
+    crc32.update(bytes, 0, bytes.length);
+    crc32.update(LINE_SEPARATOR, 0, LINE_SEPARATOR.length);
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  /** Returns the CRC32 checksum of the lines written so far. */
+  public long getChecksum() {
+    return crc32.getValue();
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+
+  static String prepareInsertQuery(String sqlQuery, Object... values) throws SQLException {
+    Object[] columns =
+        sqlQuery
+            .substring(sqlQuery.indexOf('(') + 1, sqlQuery.indexOf(")"))
+            .replace("`", "")
+            .split(",");
+    try {
+      if (columns.length != values.length) {
+        throw new SQLException("Column count doesn't match value count.");
+      }
+
+      int i = 0;
+      for (Object column : columns) {
+        column = ((String) column).trim();
+        if (column.equals("brief_summary")
+            || column.equals("description")
+            || column.equals("elaborated")
+            || column.equals("rich_text")
+            || column.equals("consent_doc_content")
+            || column.equals("learn_more_text")) {
+          String value = (String) values[i];
+          if (StringUtils.isNotEmpty(value)) {
+            values[i] = value.replaceAll("\r", "\\\\r").replaceAll("\n", "\\\\n");
+          }
+        }
+        if (values[i] instanceof String || values[i] instanceof Timestamp) {
+          sqlQuery =
+              sqlQuery.replace(
+                  "<" + column + ">", "'" + values[i].toString().replace("'", "") + "'");
+        } else {
+          sqlQuery = sqlQuery.replace("<" + column + ">", "" + values[i] + "");
+        }
+
+        i++;
+      }
+      return sqlQuery;
+    } catch (Exception e) {
+      logger.error("export study failed due to %s", e);
+      throw new SQLException(e.getMessage());
+    }
+  }
+}
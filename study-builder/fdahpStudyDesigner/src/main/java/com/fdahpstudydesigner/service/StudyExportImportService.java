@@ -63,15 +63,13 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.sql.SQLException;
+import java.nio.file.StandardCopyOption;
 import java.sql.Timestamp;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.zip.CRC32;
-import java.util.zip.Checksum;
 import javax.servlet.ServletContext;
 import javax.sql.DataSource;
 import org.apache.commons.collections.CollectionUtils;
@@ -130,6 +128,8 @@ public class StudyExportImportService {
 
   @Autowired StudyDAOImpl study;
 
+  @Autowired private StudySqlImporter studySqlImporter;
+
   private JdbcTemplate jdbcTemplate;
 
   HibernateTemplate hibernateTemplate;
@@ -197,45 +197,59 @@ public class StudyExportImportService {
 
       List<ResourceBO> resourceBOs = studyDao.getResourceList(studyBo.getId());
 
-      // This list contains INSERT SQL statements with original study content as values
-      List<String> insertSqlStatements = new ArrayList<>();
-
+      // The rows are written with the original study content as values, as they are read
+      StudyExportWriter exportWriter = null;
+      String exportUploadName = null;
       try {
+        if (JsonLinesStudyExportWriter.FORMAT.equals(
+            FdahpStudyDesignerUtil.getAppProperties().get("export.study.format"))) {
+          exportUploadName = FdahpStudyDesignerUtil.getExportUploadName(studyBo.getCustomStudyId());
+          exportWriter =
+              new JsonLinesStudyExportWriter(
+                  FdahpStudyDesignerUtil.getExportOutputStream(exportUploadName));
+        } else {
+          exportWriter = new SqlStudyExportWriter(File.createTempFile(studyBo.getId(), ".sql"));
+        }
 
-        // prepare INSERT SQL statements
-        addStudiesInsertSql(studyBo, insertSqlStatements, customIdsMap);
-        addStudySequenceInsertSql(studySequenceBo, insertSqlStatements, customIdsMap);
+        addStudiesInsertSql(studyBo, exportWriter, customIdsMap);
+        addStudySequenceInsertSql(studySequenceBo, exportWriter, customIdsMap);
 
-        addAnchorDateInsertSql(anchorDateList, insertSqlStatements, customIdsMap, studyBo.getId());
-        addStudypagesListInsertSql(studypageList, insertSqlStatements, customIdsMap);
+        addAnchorDateInsertSql(anchorDateList, exportWriter, customIdsMap, studyBo.getId());
+        addStudypagesListInsertSql(studypageList, exportWriter, customIdsMap);
 
-        addEligibilityInsertSql(eligibilityBo, insertSqlStatements, customIdsMap);
-        addEligibilityTestListInsertSql(eligibilityBoList, insertSqlStatements, customIdsMap);
+        addEligibilityInsertSql(eligibilityBo, exportWriter, customIdsMap);
+        addEligibilityTestListInsertSql(eligibilityBoList, exportWriter, customIdsMap);
 
-        addConsentBoListInsertSql(
-            consentBoList, insertSqlStatements, customIdsMap, studyBo.getId());
+        addConsentBoListInsertSql(consentBoList, exportWriter, customIdsMap, studyBo.getId());
         addConsentInfoBoListInsertSql(
-            consentInfoBoList, insertSqlStatements, customIdsMap, studyBo.getId());
+            consentInfoBoList, exportWriter, customIdsMap, studyBo.getId());
 
-        prepareInsertSqlQueriesForComprehensionTest(customIdsMap, insertSqlStatements, studyBo);
+        prepareInsertSqlQueriesForComprehensionTest(customIdsMap, exportWriter, studyBo);
 
-        prepareInsertSqlQueriesForQuestionnaires(
-            customIdsMap, insertSqlStatements, studyBo, copyVersion);
+        prepareInsertSqlQueriesForQuestionnaires(customIdsMap, exportWriter, studyBo, copyVersion);
 
         prepareInsertSqlQueriesForStudyActiveTasks(
-            customIdsMap, insertSqlStatements, studyBo, copyVersion);
+            customIdsMap, exportWriter, studyBo, copyVersion);
 
-        addNotificationInsertSql(
-            notificationBOs, insertSqlStatements, customIdsMap, copyVersion, studyBo);
+        addNotificationInsertSql(notificationBOs, exportWriter, customIdsMap, copyVersion, studyBo);
 
-        addResourceInsertSql(resourceBOs, insertSqlStatements, customIdsMap);
+        addResourceInsertSql(resourceBOs, exportWriter, customIdsMap);
 
         // This method export study to google cloud storage
-        return saveFileToCloudStorage(studyBo, insertSqlStatements);
+        return saveFileToCloudStorage(studyBo, exportWriter, exportUploadName);
 
       } catch (Exception e) {
         logger.error(String.format("export study failed due to %s", e.getMessage()), e);
         return FdahpStudyDesignerConstants.EXPORT_FAILURE_MSG;
+      } finally {
+        IOUtils.closeQuietly(exportWriter);
+        if (exportWriter instanceof SqlStudyExportWriter) {
+          ((SqlStudyExportWriter) exportWriter).getFile().delete();
+        }
+        if (exportUploadName != null) {
+          // a failed upload is closed above and never replaces the previous export
+          FdahpStudyDesignerUtil.deleteExportUpload(exportUploadName);
+        }
       }
     }
     return FdahpStudyDesignerConstants.EXPORT_FAILURE_MSG;
@@ -243,7 +257,7 @@ public class StudyExportImportService {
 
   private void prepareInsertSqlQueriesForStudyActiveTasks(
       final Map<String, String> customIdsMap,
-      List<String> insertSqlStatements,
+      StudyExportWriter exportWriter,
       StudyBo studyBo,
       String copyVersion)
       throws Exception {
@@ -296,21 +310,19 @@ public class StudyExportImportService {
     List<ActiveTaskAtrributeValuesBo> activeTaskAtrributeValuesBos =
         studyActiveTasksDAO.getActiveTaskAtrributeValuesByActiveTaskId(activeTaskIds);
 
-    addStudyActiveTaskInsertSql(activeTaskBos, insertSqlStatements, customIdsMap, studyBo.getId());
+    addStudyActiveTaskInsertSql(activeTaskBos, exportWriter, customIdsMap, studyBo.getId());
 
-    addActiveTaskAtrributeValuesInsertSql(
-        activeTaskAtrributeValuesBos, insertSqlStatements, customIdsMap);
+    addActiveTaskAtrributeValuesInsertSql(activeTaskAtrributeValuesBos, exportWriter, customIdsMap);
 
     addActiveTaskCustomScheduleBoInsertSqlQuery(
-        activeTaskcustomFrequencyList, insertSqlStatements, customIdsMap);
+        activeTaskcustomFrequencyList, exportWriter, customIdsMap);
 
-    addActiveTaskFrequencyBoInsertSqlQuery(
-        activeTaskFrequencyList, insertSqlStatements, customIdsMap);
+    addActiveTaskFrequencyBoInsertSqlQuery(activeTaskFrequencyList, exportWriter, customIdsMap);
   }
 
   private void prepareInsertSqlQueriesForQuestionnaires(
       final Map<String, String> customIdsMap,
-      List<String> insertSqlStatements,
+      StudyExportWriter exportWriter,
       StudyBo studyBo,
       String copyVersion)
       throws Exception {
@@ -428,31 +440,30 @@ public class StudyExportImportService {
         questionResponseTypeBo,
         customIdsMap);
 
-    addQuestionnaireBoListInsertSql(questionnairesList, insertSqlStatements, customIdsMap, studyBo);
+    addQuestionnaireBoListInsertSql(questionnairesList, exportWriter, customIdsMap, studyBo);
 
-    addQuestionnaireFrequenciesBoInsertSql(frequencyList, insertSqlStatements, customIdsMap);
+    addQuestionnaireFrequenciesBoInsertSql(frequencyList, exportWriter, customIdsMap);
 
-    addQuestionnaireCustomScheduleBoInsertSql(customList, insertSqlStatements, customIdsMap);
+    addQuestionnaireCustomScheduleBoInsertSql(customList, exportWriter, customIdsMap);
 
-    addQuestionListInsertSql(questionsList, insertSqlStatements, customIdsMap);
+    addQuestionListInsertSql(questionsList, exportWriter, customIdsMap);
 
-    addFormMappingListInsertSql(formMappingList, insertSqlStatements, customIdsMap);
+    addFormMappingListInsertSql(formMappingList, exportWriter, customIdsMap);
 
-    addFormsListInsertSql(formsList, insertSqlStatements, customIdsMap);
+    addFormsListInsertSql(formsList, exportWriter, customIdsMap);
 
-    addInstructionInsertSql(instructionList, insertSqlStatements, customIdsMap);
+    addInstructionInsertSql(instructionList, exportWriter, customIdsMap);
 
-    addQuestionsResponseSubTypeInsertSql(
-        responseList, insertSqlStatements, customIdsMap, questionMap);
+    addQuestionsResponseSubTypeInsertSql(responseList, exportWriter, customIdsMap, questionMap);
 
-    addQuestionsResponseTypeInsertSql(questionResponseTypeBo, insertSqlStatements, customIdsMap);
+    addQuestionsResponseTypeInsertSql(questionResponseTypeBo, exportWriter, customIdsMap);
 
     addQuestionnairesStepsListInsertSql(
-        questionnairesStepsList, insertSqlStatements, customIdsMap, questionMap);
+        questionnairesStepsList, exportWriter, customIdsMap, questionMap);
   }
 
   private void prepareInsertSqlQueriesForComprehensionTest(
-      final Map<String, String> customIdsMap, List<String> insertSqlStatements, StudyBo studyBo)
+      final Map<String, String> customIdsMap, StudyExportWriter exportWriter, StudyBo studyBo)
       throws Exception {
 
     List<ComprehensionTestQuestionBo> comprehensionTestQuestionBoList =
@@ -483,82 +494,74 @@ public class StudyExportImportService {
     }
 
     addComprehensionTestQuestionListInsertSql(
-        comprehensionTestQuestionBoList, insertSqlStatements, customIdsMap);
+        comprehensionTestQuestionBoList, exportWriter, customIdsMap);
 
     addComprehensionTestResponseBoListInsertSql(
-        comprehensionTestResponses, insertSqlStatements, customIdsMap);
+        comprehensionTestResponses, exportWriter, customIdsMap);
   }
 
   private void addFormsListInsertSql(
-      List<FormBo> formsList, List<String> insertSqlStatements, Map<String, String> customIdsMap)
+      List<FormBo> formsList, StudyExportWriter exportWriter, Map<String, String> customIdsMap)
       throws Exception {
-    List<String> formBoInsertQueryList = new ArrayList<>();
     if (CollectionUtils.isEmpty(formsList)) {
       return;
     }
 
-    String formInsertQuery = null;
     for (FormBo formBo : formsList) {
-      formInsertQuery =
-          prepareInsertQuery(
-              StudyExportSqlQueries.FORM,
-              customIdsMap.get(INSTRUCTION_FORM_ID + formBo.getFormId()),
-              formBo.getActive(),
-              formBo.getCreatedBy(),
-              formBo.getCreatedOn(),
-              formBo.getModifiedBy(),
-              formBo.getModifiedOn());
-      formBoInsertQueryList.add(formInsertQuery);
-    }
-    insertSqlStatements.addAll(formBoInsertQueryList);
+      exportWriter.write(
+          StudyExportSqlQueries.FORM,
+          customIdsMap.get(INSTRUCTION_FORM_ID + formBo.getFormId()),
+          formBo.getActive(),
+          formBo.getCreatedBy(),
+          formBo.getCreatedOn(),
+          formBo.getModifiedBy(),
+          formBo.getModifiedOn());
+    }
   }
 
   private void addComprehensionTestResponseBoListInsertSql(
       List<ComprehensionTestResponseBo> comprehensionTestResponseBoList,
-      List<String> insertSqlStatements,
+      StudyExportWriter exportWriter,
       Map<String, String> customIdsMap)
       throws Exception {
     if (CollectionUtils.isEmpty(comprehensionTestResponseBoList)) {
       return;
     }
 
-    List<String> comprehensionTestResponseBoInserQueryList = new ArrayList<>();
     for (ComprehensionTestResponseBo comprehensionTestResponseBo :
         comprehensionTestResponseBoList) {
-      String comprehensionTestResponseInsertQuery =
-          prepareInsertQuery(
-              StudyExportSqlQueries.COMPREHENSION_TEST_RESPONSE,
-              IdGenerator.id(),
-              customIdsMap.get(
-                  COMPREHENSION_TEST_QUESTION_ID
-                      + comprehensionTestResponseBo.getComprehensionTestQuestionId()),
-              comprehensionTestResponseBo.getCorrectAnswer(),
-              comprehensionTestResponseBo.getResponseOption(),
-              comprehensionTestResponseBo.getSequenceNumber());
-
-      comprehensionTestResponseBoInserQueryList.add(comprehensionTestResponseInsertQuery);
-    }
-    insertSqlStatements.addAll(comprehensionTestResponseBoInserQueryList);
+      exportWriter.write(
+          StudyExportSqlQueries.COMPREHENSION_TEST_RESPONSE,
+          IdGenerator.id(),
+          customIdsMap.get(
+              COMPREHENSION_TEST_QUESTION_ID
+                  + comprehensionTestResponseBo.getComprehensionTestQuestionId()),
+          comprehensionTestResponseBo.getCorrectAnswer(),
+          comprehensionTestResponseBo.getResponseOption(),
+          comprehensionTestResponseBo.getSequenceNumber());
+    }
   }
 
-  public String saveFileToCloudStorage(StudyBo studyBo, List<String> insertSqlStatements) {
-    StringBuilder content = new StringBuilder();
+  public String saveFileToCloudStorage(
+      StudyBo studyBo, StudyExportWriter exportWriter, String exportUploadName) {
     String message = FdahpStudyDesignerConstants.FAILURE;
+    Session session = null;
     try {
-      for (String insertSqlStatement : insertSqlStatements) {
-        if (StringUtils.isNotEmpty(insertSqlStatement)) {
-          content.append(insertSqlStatement);
-          content.append(System.lineSeparator());
-        }
-      }
-
-      byte[] bytes = content.toString().getBytes();
-      Map<String, String> map = FdahpStudyDesignerUtil.getAppProperties();
+      session = hibernateTemplate.getSessionFactory().openSession();
 
-      Session session = hibernateTemplate.getSessionFactory().openSession();
-
-      studyBo.setExportSqlByte(bytes);
-      study.getResourcesFromStorage(session, studyBo);
+      if (exportWriter instanceof JsonLinesStudyExportWriter) {
+        writeResourcesAndManifest(session, studyBo, (JsonLinesStudyExportWriter) exportWriter);
+      } else {
+        SqlStudyExportWriter sqlWriter = (SqlStudyExportWriter) exportWriter;
+        sqlWriter.close();
+        study.getResourcesFromStorage(
+            session, studyBo, sqlWriter.getFile(), sqlWriter.getChecksum());
+      }
+      // the export is complete once the writer is closed
+      exportWriter.close();
+      if (exportUploadName != null) {
+        FdahpStudyDesignerUtil.publishExport(exportUploadName, studyBo.getCustomStudyId());
+      }
 
       String signedUrl =
           FdahpStudyDesignerUtil.getSignedUrlForExportedStudy(
@@ -574,51 +577,78 @@ public class StudyExportImportService {
     } catch (Exception e) {
       logger.error("Save file to cloud storage failed", e);
       return e.getMessage();
+    } finally {
+      if (session != null) {
+        session.close();
+      }
     }
     return message;
   }
 
-  public long getCRC32Checksum(byte[] bytes) {
-    Checksum crc32 = new CRC32();
-    crc32.update(bytes, 0, bytes.length);
-    return crc32.getValue();
+  private void writeResourcesAndManifest(
+      Session session, StudyBo studyBo, JsonLinesStudyExportWriter exportWriter)
+      throws IOException {
+    for (Map.Entry<String, List<String>> resources :
+        study.getStudyResourceFiles(session, studyBo).entrySet()) {
+      for (String fileName : resources.getValue()) {
+        InputStream content =
+            FdahpStudyDesignerUtil.getResourceStream(
+                FdahpStudyDesignerConstants.STUDIES
+                    + PATH_SEPARATOR
+                    + studyBo.getCustomStudyId()
+                    + PATH_SEPARATOR
+                    + resources.getKey()
+                    + PATH_SEPARATOR
+                    + fileName);
+        if (content != null) {
+          try {
+            exportWriter.writeResource(resources.getKey() + PATH_SEPARATOR + fileName, content);
+          } finally {
+            IOUtils.closeQuietly(content);
+          }
+        }
+      }
+    }
+
+    Map<String, String> attributes = new LinkedHashMap<>();
+    attributes.put(
+        "releaseVersion", FdahpStudyDesignerUtil.getAppProperties().get("release.version"));
+    attributes.put("studyId", studyBo.getId());
+    attributes.put("customStudyId", studyBo.getCustomStudyId());
+    attributes.put("studyVersion", String.valueOf(studyBo.getVersion()));
+    attributes.put("exportedOn", FdahpStudyDesignerUtil.getCurrentDateTime());
+    exportWriter.finish(attributes);
   }
 
   private void addActiveTaskFrequencyBoInsertSqlQuery(
       List<ActiveTaskFrequencyBo> activeTaskFrequencyBoList,
-      List<String> insertSqlStatements,
+      StudyExportWriter exportWriter,
       Map<String, String> customIdsMap)
       throws Exception {
     if (CollectionUtils.isEmpty(activeTaskFrequencyBoList)) {
       return;
     }
 
-    List<String> activeTaskBoInsertQueryList = new ArrayList<>();
-    String activeTaskBoInsertQuery = null;
     for (ActiveTaskFrequencyBo activeTaskFrquencyBo : activeTaskFrequencyBoList) {
-      activeTaskBoInsertQuery =
-          prepareInsertQuery(
-              StudyExportSqlQueries.ACTIVETASK_FREQUENCIES,
-              IdGenerator.id(),
-              customIdsMap.get(ACTIVETASK_ID + activeTaskFrquencyBo.getActiveTaskId()),
-              activeTaskFrquencyBo.getFrequencyDate(),
-              activeTaskFrquencyBo.getFrequencyTime(),
-              activeTaskFrquencyBo.getIsLaunchStudy(),
-              activeTaskFrquencyBo.getIsStudyLifeTime(),
-              activeTaskFrquencyBo.getTimePeriodFromDays(),
-              activeTaskFrquencyBo.getTimePeriodToDays(),
-              activeTaskFrquencyBo.isxDaysSign(),
-              activeTaskFrquencyBo.isyDaysSign(),
-              activeTaskFrquencyBo.getSequenceNumber());
-
-      activeTaskBoInsertQueryList.add(activeTaskBoInsertQuery);
-    }
-    insertSqlStatements.addAll(activeTaskBoInsertQueryList);
+      exportWriter.write(
+          StudyExportSqlQueries.ACTIVETASK_FREQUENCIES,
+          IdGenerator.id(),
+          customIdsMap.get(ACTIVETASK_ID + activeTaskFrquencyBo.getActiveTaskId()),
+          activeTaskFrquencyBo.getFrequencyDate(),
+          activeTaskFrquencyBo.getFrequencyTime(),
+          activeTaskFrquencyBo.getIsLaunchStudy(),
+          activeTaskFrquencyBo.getIsStudyLifeTime(),
+          activeTaskFrquencyBo.getTimePeriodFromDays(),
+          activeTaskFrquencyBo.getTimePeriodToDays(),
+          activeTaskFrquencyBo.isxDaysSign(),
+          activeTaskFrquencyBo.isyDaysSign(),
+          activeTaskFrquencyBo.getSequenceNumber());
+    }
   }
 
   private void addActiveTaskCustomScheduleBoInsertSqlQuery(
       List<ActiveTaskCustomScheduleBo> activeTaskCustomScheduleBoList,
-      List<String> insertSqlStatements,
+      StudyExportWriter exportWriter,
       Map<String, String> customIdsMap)
       throws Exception {
 
@@ -626,33 +656,27 @@ public class StudyExportImportService {
       return;
     }
 
-    List<String> activeTaskCustomScheduleBoInsertQueryList = new ArrayList<>();
-    String activeTaskCustomScheduleBoInsertQuery = null;
     for (ActiveTaskCustomScheduleBo activeTaskCustomScheduleBo : activeTaskCustomScheduleBoList) {
-      activeTaskCustomScheduleBoInsertQuery =
-          prepareInsertQuery(
-              StudyExportSqlQueries.ACTIVETASK_CUSTOM_FREQUENCIES,
-              IdGenerator.id(),
-              customIdsMap.get(ACTIVETASK_ID + activeTaskCustomScheduleBo.getActiveTaskId()),
-              activeTaskCustomScheduleBo.getFrequencyEndDate(),
-              activeTaskCustomScheduleBo.getFrequencyStartDate(),
-              activeTaskCustomScheduleBo.getTimePeriodFromDays(),
-              activeTaskCustomScheduleBo.getTimePeriodToDays(),
-              "N", // setting isUsed value to false
-              activeTaskCustomScheduleBo.isxDaysSign(),
-              activeTaskCustomScheduleBo.isyDaysSign(),
-              activeTaskCustomScheduleBo.getFrequencyStartTime(),
-              activeTaskCustomScheduleBo.getFrequencyEndTime(),
-              activeTaskCustomScheduleBo.getSequenceNumber());
-
-      activeTaskCustomScheduleBoInsertQueryList.add(activeTaskCustomScheduleBoInsertQuery);
-    }
-    insertSqlStatements.addAll(activeTaskCustomScheduleBoInsertQueryList);
+      exportWriter.write(
+          StudyExportSqlQueries.ACTIVETASK_CUSTOM_FREQUENCIES,
+          IdGenerator.id(),
+          customIdsMap.get(ACTIVETASK_ID + activeTaskCustomScheduleBo.getActiveTaskId()),
+          activeTaskCustomScheduleBo.getFrequencyEndDate(),
+          activeTaskCustomScheduleBo.getFrequencyStartDate(),
+          activeTaskCustomScheduleBo.getTimePeriodFromDays(),
+          activeTaskCustomScheduleBo.getTimePeriodToDays(),
+          "N", // setting isUsed value to false
+          activeTaskCustomScheduleBo.isxDaysSign(),
+          activeTaskCustomScheduleBo.isyDaysSign(),
+          activeTaskCustomScheduleBo.getFrequencyStartTime(),
+          activeTaskCustomScheduleBo.getFrequencyEndTime(),
+          activeTaskCustomScheduleBo.getSequenceNumber());
+    }
   }
 
   private void addQuestionsResponseTypeInsertSql(
       List<QuestionReponseTypeBo> questionResponseTypeBoList,
-      List<String> insertSqlStatements,
+      StudyExportWriter exportWriter,
       Map<String, String> customIdsMap)
       throws Exception {
 
@@ -660,64 +684,59 @@ public class StudyExportImportService {
       return;
     }
 
-    String questionResponseTypeBoInsertQuery = null;
-    List<String> questionResponseTypeBoInsertQueryList = new ArrayList<>();
     for (QuestionReponseTypeBo questionResponseTypeBo : questionResponseTypeBoList) {
-      questionResponseTypeBoInsertQuery =
-          prepareInsertQuery(
-              StudyExportSqlQueries.RESPONSE_TYPE_VALUE,
-              customIdsMap.get(INSTRUCTION_FORM_ID + questionResponseTypeBo.getResponseTypeId()),
-              questionResponseTypeBo.getActive(),
-              questionResponseTypeBo.getConditionFormula(),
-              questionResponseTypeBo.getDefaultDate(),
-              questionResponseTypeBo.getDefaultTime(),
-              questionResponseTypeBo.getDefaultValue(),
-              questionResponseTypeBo.getFormulaBasedLogic(),
-              questionResponseTypeBo.getImageSize(),
-              questionResponseTypeBo.getInvalidMessage(),
-              questionResponseTypeBo.getMaxDate(),
-              questionResponseTypeBo.getMaxDescription(),
-              questionResponseTypeBo.getMaxFractionDigits(),
-              questionResponseTypeBo.getMaxImage(),
-              questionResponseTypeBo.getMaxLength(),
-              questionResponseTypeBo.getMaxValue(),
-              questionResponseTypeBo.getMeasurementSystem(),
-              questionResponseTypeBo.getMinDate(),
-              questionResponseTypeBo.getMinDescription(),
-              questionResponseTypeBo.getMinImage(),
-              questionResponseTypeBo.getMinValue(),
-              questionResponseTypeBo.getMultipleLines(),
-              questionResponseTypeBo.getOtherDescription(),
-              questionResponseTypeBo.getOtherDestinationStepId(),
-              questionResponseTypeBo.getOtherExclusive(),
-              questionResponseTypeBo.getOtherIncludeText(),
-              questionResponseTypeBo.getOtherParticipantFill(),
-              questionResponseTypeBo.getOtherPlaceholderText(),
-              questionResponseTypeBo.getOtherText(),
-              questionResponseTypeBo.getOtherType(),
-              questionResponseTypeBo.getOtherValue(),
-              questionResponseTypeBo.getPlaceholder(),
-              customIdsMap.get(
-                  INSTRUCTION_FORM_ID + questionResponseTypeBo.getQuestionsResponseTypeId()),
-              questionResponseTypeBo.getSelectionStyle(),
-              questionResponseTypeBo.getStep(),
-              questionResponseTypeBo.getStyle(),
-              questionResponseTypeBo.getTextChoices(),
-              questionResponseTypeBo.getUnit(),
-              questionResponseTypeBo.getUseCurrentLocation(),
-              questionResponseTypeBo.getValidationCharacters(),
-              questionResponseTypeBo.getValidationCondition(),
-              questionResponseTypeBo.getValidationExceptText(),
-              questionResponseTypeBo.getValidationRegex(),
-              questionResponseTypeBo.getVertical());
-      questionResponseTypeBoInsertQueryList.add(questionResponseTypeBoInsertQuery);
-    }
-    insertSqlStatements.addAll(questionResponseTypeBoInsertQueryList);
+      exportWriter.write(
+          StudyExportSqlQueries.RESPONSE_TYPE_VALUE,
+          customIdsMap.get(INSTRUCTION_FORM_ID + questionResponseTypeBo.getResponseTypeId()),
+          questionResponseTypeBo.getActive(),
+          questionResponseTypeBo.getConditionFormula(),
+          questionResponseTypeBo.getDefaultDate(),
+          questionResponseTypeBo.getDefaultTime(),
+          questionResponseTypeBo.getDefaultValue(),
+          questionResponseTypeBo.getFormulaBasedLogic(),
+          questionResponseTypeBo.getImageSize(),
+          questionResponseTypeBo.getInvalidMessage(),
+          questionResponseTypeBo.getMaxDate(),
+          questionResponseTypeBo.getMaxDescription(),
+          questionResponseTypeBo.getMaxFractionDigits(),
+          questionResponseTypeBo.getMaxImage(),
+          questionResponseTypeBo.getMaxLength(),
+          questionResponseTypeBo.getMaxValue(),
+          questionResponseTypeBo.getMeasurementSystem(),
+          questionResponseTypeBo.getMinDate(),
+          questionResponseTypeBo.getMinDescription(),
+          questionResponseTypeBo.getMinImage(),
+          questionResponseTypeBo.getMinValue(),
+          questionResponseTypeBo.getMultipleLines(),
+          questionResponseTypeBo.getOtherDescription(),
+          questionResponseTypeBo.getOtherDestinationStepId(),
+          questionResponseTypeBo.getOtherExclusive(),
+          questionResponseTypeBo.getOtherIncludeText(),
+          questionResponseTypeBo.getOtherParticipantFill(),
+          questionResponseTypeBo.getOtherPlaceholderText(),
+          questionResponseTypeBo.getOtherText(),
+          questionResponseTypeBo.getOtherType(),
+          questionResponseTypeBo.getOtherValue(),
+          questionResponseTypeBo.getPlaceholder(),
+          customIdsMap.get(
+              INSTRUCTION_FORM_ID + questionResponseTypeBo.getQuestionsResponseTypeId()),
+          questionResponseTypeBo.getSelectionStyle(),
+          questionResponseTypeBo.getStep(),
+          questionResponseTypeBo.getStyle(),
+          questionResponseTypeBo.getTextChoices(),
+          questionResponseTypeBo.getUnit(),
+          questionResponseTypeBo.getUseCurrentLocation(),
+          questionResponseTypeBo.getValidationCharacters(),
+          questionResponseTypeBo.getValidationCondition(),
+          questionResponseTypeBo.getValidationExceptText(),
+          questionResponseTypeBo.getValidationRegex(),
+          questionResponseTypeBo.getVertical());
+    }
   }
 
   private void addQuestionsResponseSubTypeInsertSql(
       List<QuestionResponseSubTypeBo> questionResponseSubTypeBoList,
-      List<String> insertSqlStatements,
+      StudyExportWriter exportWriter,
       Map<String, String> customIdsMap,
       Map<String, String> questionMap)
       throws Exception {
@@ -726,266 +745,229 @@ public class StudyExportImportService {
       return;
     }
 
-    String questionResponseSubTypeBoInsertQuery = null;
-    List<String> questionResponseSubTypeBoInsertQueryList = new ArrayList<>();
     for (QuestionResponseSubTypeBo questionResponseSubTypeBo : questionResponseSubTypeBoList) {
-      questionResponseSubTypeBoInsertQuery =
-          prepareInsertQuery(
-              StudyExportSqlQueries.RESPONSE_SUB_TYPE_VALUE,
-              customIdsMap.get(
-                  INSTRUCTION_FORM_ID + questionResponseSubTypeBo.getResponseSubTypeValueId()),
-              questionResponseSubTypeBo.getActive(),
-              questionResponseSubTypeBo.getDescription(),
-              StringUtils.isNotEmpty(questionResponseSubTypeBo.getDestinationStepId())
-                      && questionResponseSubTypeBo.getDestinationStepId().equals(String.valueOf(0))
-                  ? String.valueOf(0)
-                  : questionMap.get(questionResponseSubTypeBo.getDestinationStepId()),
-              questionResponseSubTypeBo.getDetail(),
-              questionResponseSubTypeBo.getExclusive(),
-              questionResponseSubTypeBo.getImage(),
-              customIdsMap.get(INSTRUCTION_FORM_ID + questionResponseSubTypeBo.getResponseTypeId()),
-              questionResponseSubTypeBo.getSelectedImage(),
-              questionResponseSubTypeBo.getText(),
-              questionResponseSubTypeBo.getValue(),
-              questionResponseSubTypeBo.getSequenceNumber());
-
-      questionResponseSubTypeBoInsertQueryList.add(questionResponseSubTypeBoInsertQuery);
-    }
-    insertSqlStatements.addAll(questionResponseSubTypeBoInsertQueryList);
+      exportWriter.write(
+          StudyExportSqlQueries.RESPONSE_SUB_TYPE_VALUE,
+          customIdsMap.get(
+              INSTRUCTION_FORM_ID + questionResponseSubTypeBo.getResponseSubTypeValueId()),
+          questionResponseSubTypeBo.getActive(),
+          questionResponseSubTypeBo.getDescription(),
+          StringUtils.isNotEmpty(questionResponseSubTypeBo.getDestinationStepId())
+                  && questionResponseSubTypeBo.getDestinationStepId().equals(String.valueOf(0))
+              ? String.valueOf(0)
+              : questionMap.get(questionResponseSubTypeBo.getDestinationStepId()),
+          questionResponseSubTypeBo.getDetail(),
+          questionResponseSubTypeBo.getExclusive(),
+          questionResponseSubTypeBo.getImage(),
+          customIdsMap.get(INSTRUCTION_FORM_ID + questionResponseSubTypeBo.getResponseTypeId()),
+          questionResponseSubTypeBo.getSelectedImage(),
+          questionResponseSubTypeBo.getText(),
+          questionResponseSubTypeBo.getValue(),
+          questionResponseSubTypeBo.getSequenceNumber());
+    }
   }
 
   private void addInstructionInsertSql(
       List<InstructionsBo> instructionList,
-      List<String> insertSqlStatements,
+      StudyExportWriter exportWriter,
       Map<String, String> customIdsMap)
       throws Exception {
-    List<String> instructionBoInsertQueryList = new ArrayList<>();
     if (CollectionUtils.isEmpty(instructionList)) {
       return;
     }
 
-    String instructionBoInsertQuery = null;
     for (InstructionsBo instructionBo : instructionList) {
-      instructionBoInsertQuery =
-          prepareInsertQuery(
-              StudyExportSqlQueries.INSTRUCTION,
-              customIdsMap.get(INSTRUCTION_FORM_ID + instructionBo.getId()),
-              instructionBo.getActive(),
-              instructionBo.getCreatedBy(),
-              instructionBo.getCreatedOn(),
-              instructionBo.getInstructionText(),
-              instructionBo.getInstructionTitle(),
-              instructionBo.getModifiedBy(),
-              instructionBo.getModifiedOn(),
-              instructionBo.getStatus());
-      instructionBoInsertQueryList.add(instructionBoInsertQuery);
-    }
-    insertSqlStatements.addAll(instructionBoInsertQueryList);
+      exportWriter.write(
+          StudyExportSqlQueries.INSTRUCTION,
+          customIdsMap.get(INSTRUCTION_FORM_ID + instructionBo.getId()),
+          instructionBo.getActive(),
+          instructionBo.getCreatedBy(),
+          instructionBo.getCreatedOn(),
+          instructionBo.getInstructionText(),
+          instructionBo.getInstructionTitle(),
+          instructionBo.getModifiedBy(),
+          instructionBo.getModifiedOn(),
+          instructionBo.getStatus());
+    }
   }
 
   private void addFormMappingListInsertSql(
       List<FormMappingBo> formsList,
-      List<String> insertSqlStatements,
+      StudyExportWriter exportWriter,
       Map<String, String> customIdsMap)
       throws Exception {
 
-    List<String> formMappingBoInsertQueryList = new ArrayList<>();
     if (CollectionUtils.isEmpty(formsList)) {
       return;
     }
 
-    String formMappingInsertQuery = null;
     for (FormMappingBo formMappingBo : formsList) {
-      formMappingInsertQuery =
-          prepareInsertQuery(
-              StudyExportSqlQueries.FORM_MAPPING,
-              customIdsMap.get(INSTRUCTION_FORM_ID + formMappingBo.getId()),
-              formMappingBo.getActive(),
-              customIdsMap.get(INSTRUCTION_FORM_ID + formMappingBo.getFormId()),
-              customIdsMap.get(INSTRUCTION_FORM_ID + formMappingBo.getQuestionId()),
-              formMappingBo.getSequenceNo());
-      formMappingBoInsertQueryList.add(formMappingInsertQuery);
-    }
-    insertSqlStatements.addAll(formMappingBoInsertQueryList);
+      exportWriter.write(
+          StudyExportSqlQueries.FORM_MAPPING,
+          customIdsMap.get(INSTRUCTION_FORM_ID + formMappingBo.getId()),
+          formMappingBo.getActive(),
+          customIdsMap.get(INSTRUCTION_FORM_ID + formMappingBo.getFormId()),
+          customIdsMap.get(INSTRUCTION_FORM_ID + formMappingBo.getQuestionId()),
+          formMappingBo.getSequenceNo());
+    }
   }
 
   private void addQuestionListInsertSql(
       List<QuestionsBo> questionsList,
-      List<String> insertSqlStatements,
+      StudyExportWriter exportWriter,
       Map<String, String> customIdsMap)
       throws Exception {
 
-    List<String> questionsBoInsertQueryList = new ArrayList<>();
     if (CollectionUtils.isEmpty(questionsList)) {
       return;
     }
 
-    String questionInsertQuery = null;
     for (QuestionsBo questionBo : questionsList) {
-      questionInsertQuery =
-          prepareInsertQuery(
-              StudyExportSqlQueries.QUESTIONS,
-              customIdsMap.get(INSTRUCTION_FORM_ID + questionBo.getId()),
-              questionBo.getActive(),
-              questionBo.getAddLineChart(),
-              questionBo.getAllowHealthKit(),
-              questionBo.getAllowRollbackChart(),
-              customIdsMap.get(ANCHORDATE_ID + questionBo.getAnchorDateId()),
-              questionBo.getChartTitle(),
-              questionBo.getCreatedBy(),
-              questionBo.getCreatedOn(),
-              questionBo.getDescription(),
-              questionBo.getHealthkitDatatype(),
-              questionBo.getLineChartTimeRange(),
-              questionBo.getModifiedBy(),
-              questionBo.getModifiedOn(),
-              questionBo.getQuestion(),
-              questionBo.getResponseType(),
-              questionBo.getShortTitle(),
-              questionBo.getSkippable(),
-              questionBo.getStatDisplayName(),
-              questionBo.getStatDisplayUnits(),
-              questionBo.getStatFormula(),
-              questionBo.getStatShortName(),
-              questionBo.getStatType(),
-              questionBo.getStatus(),
-              questionBo.getUseAnchorDate(),
-              questionBo.getUseStasticData());
-      questionsBoInsertQueryList.add(questionInsertQuery);
-    }
-    insertSqlStatements.addAll(questionsBoInsertQueryList);
+      exportWriter.write(
+          StudyExportSqlQueries.QUESTIONS,
+          customIdsMap.get(INSTRUCTION_FORM_ID + questionBo.getId()),
+          questionBo.getActive(),
+          questionBo.getAddLineChart(),
+          questionBo.getAllowHealthKit(),
+          questionBo.getAllowRollbackChart(),
+          customIdsMap.get(ANCHORDATE_ID + questionBo.getAnchorDateId()),
+          questionBo.getChartTitle(),
+          questionBo.getCreatedBy(),
+          questionBo.getCreatedOn(),
+          questionBo.getDescription(),
+          questionBo.getHealthkitDatatype(),
+          questionBo.getLineChartTimeRange(),
+          questionBo.getModifiedBy(),
+          questionBo.getModifiedOn(),
+          questionBo.getQuestion(),
+          questionBo.getResponseType(),
+          questionBo.getShortTitle(),
+          questionBo.getSkippable(),
+          questionBo.getStatDisplayName(),
+          questionBo.getStatDisplayUnits(),
+          questionBo.getStatFormula(),
+          questionBo.getStatShortName(),
+          questionBo.getStatType(),
+          questionBo.getStatus(),
+          questionBo.getUseAnchorDate(),
+          questionBo.getUseStasticData());
+    }
   }
 
   private void addQuestionnaireCustomScheduleBoInsertSql(
       List<QuestionnaireCustomScheduleBo> questionnairesCustomFrequenciesBoList,
-      List<String> insertSqlStatements,
+      StudyExportWriter exportWriter,
       Map<String, String> customIdsMap)
       throws Exception {
 
-    List<String> questionnairesCustomScheduleBoInsertQueryList = new ArrayList<>();
     if (CollectionUtils.isEmpty(questionnairesCustomFrequenciesBoList)) {
       return;
     }
 
-    String questionnairesCustomScheduleBoInsertQuery = null;
     for (QuestionnaireCustomScheduleBo questionnaireCustomScheduleBo :
         questionnairesCustomFrequenciesBoList) {
-      questionnairesCustomScheduleBoInsertQuery =
-          prepareInsertQuery(
-              StudyExportSqlQueries.QUESTIONNAIRES_CUSTOM_FREQUENCIES,
-              IdGenerator.id(),
-              questionnaireCustomScheduleBo.getFrequencyEndDate(),
-              questionnaireCustomScheduleBo.getFrequencyStartDate(),
-              customIdsMap.get(
-                  QUESTIONNAIRES_ID + questionnaireCustomScheduleBo.getQuestionnairesId()),
-              questionnaireCustomScheduleBo.getTimePeriodFromDays(),
-              questionnaireCustomScheduleBo.getTimePeriodToDays(),
-              "N", // setting isUsed value to false
-              questionnaireCustomScheduleBo.isxDaysSign(),
-              questionnaireCustomScheduleBo.isyDaysSign(),
-              questionnaireCustomScheduleBo.getFrequencyEndTime(),
-              questionnaireCustomScheduleBo.getFrequencyStartTime(),
-              questionnaireCustomScheduleBo.getSequenceNumber());
-
-      questionnairesCustomScheduleBoInsertQueryList.add(questionnairesCustomScheduleBoInsertQuery);
-    }
-    insertSqlStatements.addAll(questionnairesCustomScheduleBoInsertQueryList);
+      exportWriter.write(
+          StudyExportSqlQueries.QUESTIONNAIRES_CUSTOM_FREQUENCIES,
+          IdGenerator.id(),
+          questionnaireCustomScheduleBo.getFrequencyEndDate(),
+          questionnaireCustomScheduleBo.getFrequencyStartDate(),
+          customIdsMap.get(QUESTIONNAIRES_ID + questionnaireCustomScheduleBo.getQuestionnairesId()),
+          questionnaireCustomScheduleBo.getTimePeriodFromDays(),
+          questionnaireCustomScheduleBo.getTimePeriodToDays(),
+          "N", // setting isUsed value to false
+          questionnaireCustomScheduleBo.isxDaysSign(),
+          questionnaireCustomScheduleBo.isyDaysSign(),
+          questionnaireCustomScheduleBo.getFrequencyEndTime(),
+          questionnaireCustomScheduleBo.getFrequencyStartTime(),
+          questionnaireCustomScheduleBo.getSequenceNumber());
+    }
   }
 
   private void addQuestionnairesStepsListInsertSql(
       List<QuestionnairesStepsBo> questionnairesStepsList,
-      List<String> insertSqlStatements,
+      StudyExportWriter exportWriter,
       Map<String, String> customIdsMap,
       Map<String, String> questionMap)
       throws Exception {
     if (CollectionUtils.isEmpty(questionnairesStepsList)) {
       return;
     }
-    String questionnaireStepsBoInsertQuery = null;
-    List<String> questionnaireStepsBoInsertQueryList = new ArrayList<>();
     for (QuestionnairesStepsBo questionnairesStepsBo : questionnairesStepsList) {
-      questionnaireStepsBoInsertQuery =
-          prepareInsertQuery(
-              StudyExportSqlQueries.QUESTIONNAIRES_STEPS,
-              questionMap.get(questionnairesStepsBo.getStepId()),
-              questionnairesStepsBo.getActive(),
-              questionnairesStepsBo.getCreatedBy(),
-              questionnairesStepsBo.getCreatedOn(),
-              questionnairesStepsBo.getDestinationStep().equals(String.valueOf(0))
-                  ? String.valueOf(0)
-                  : questionMap.get(questionnairesStepsBo.getDestinationStep()),
-              customIdsMap.get(INSTRUCTION_FORM_ID + questionnairesStepsBo.getInstructionFormId()),
-              questionnairesStepsBo.getModifiedBy(),
-              questionnairesStepsBo.getModifiedOn(),
-              customIdsMap.get(QUESTIONNAIRES_ID + questionnairesStepsBo.getQuestionnairesId()),
-              questionnairesStepsBo.getRepeatable(),
-              questionnairesStepsBo.getRepeatableText(),
-              questionnairesStepsBo.getSequenceNo(),
-              questionnairesStepsBo.getSkiappable(),
-              questionnairesStepsBo.getStatus(),
-              questionnairesStepsBo.getStepShortTitle(),
-              questionnairesStepsBo.getStepType());
-
-      questionnaireStepsBoInsertQueryList.add(questionnaireStepsBoInsertQuery);
-    }
-    insertSqlStatements.addAll(questionnaireStepsBoInsertQueryList);
+      exportWriter.write(
+          StudyExportSqlQueries.QUESTIONNAIRES_STEPS,
+          questionMap.get(questionnairesStepsBo.getStepId()),
+          questionnairesStepsBo.getActive(),
+          questionnairesStepsBo.getCreatedBy(),
+          questionnairesStepsBo.getCreatedOn(),
+          questionnairesStepsBo.getDestinationStep().equals(String.valueOf(0))
+              ? String.valueOf(0)
+              : questionMap.get(questionnairesStepsBo.getDestinationStep()),
+          customIdsMap.get(INSTRUCTION_FORM_ID + questionnairesStepsBo.getInstructionFormId()),
+          questionnairesStepsBo.getModifiedBy(),
+          questionnairesStepsBo.getModifiedOn(),
+          customIdsMap.get(QUESTIONNAIRES_ID + questionnairesStepsBo.getQuestionnairesId()),
+          questionnairesStepsBo.getRepeatable(),
+          questionnairesStepsBo.getRepeatableText(),
+          questionnairesStepsBo.getSequenceNo(),
+          questionnairesStepsBo.getSkiappable(),
+          questionnairesStepsBo.getStatus(),
+          questionnairesStepsBo.getStepShortTitle(),
+          questionnairesStepsBo.getStepType());
+    }
   }
 
   private void addStudiesInsertSql(
-      StudyBo studyBo, List<String> insertSqlStatements, Map<String, String> customIdsMap)
+      StudyBo studyBo, StudyExportWriter exportWriter, Map<String, String> customIdsMap)
       throws Exception {
 
     if (studyBo == null) {
       return;
     }
 
-    String studiesInsertQuery =
-        prepareInsertQuery(
-            StudyExportSqlQueries.STUDIES,
-            customIdsMap.get(STUDY_ID + studyBo.getId()),
-            null,
-            studyBo.getCategory(),
-            studyBo.getCreatedBy(),
-            FdahpStudyDesignerUtil.getCurrentDateTime(),
-            customIdsMap.get(CUSTOM_STUDY_ID + studyBo.getCustomStudyId()),
-            studyBo.getDescription(),
-            YES,
-            studyBo.getFullName(),
-            studyBo.getHasActivetaskDraft(),
-            studyBo.getHasActivityDraft(),
-            studyBo.getHasConsentDraft(),
-            studyBo.getHasQuestionnaireDraft(),
-            studyBo.getHasStudyDraft(),
-            studyBo.getInboxEmailAddress(),
-            studyBo.getIrbReview(),
-            0,
-            studyBo.getMediaLink(),
-            studyBo.getModifiedBy(),
-            studyBo.getModifiedOn(),
-            IMPORTED + studyBo.getName(),
-            studyBo.getPlatform(),
-            studyBo.getResearchSponsor(),
-            studyBo.getSequenceNumber(),
-            PRE_LAUNCH,
-            studyBo.isStudyPreActiveFlag() ? "Y" : "N",
-            studyBo.getStudyTagLine(),
-            studyBo.getStudyWebsite(),
-            studyBo.getStudylunchDate(),
-            studyBo.getTentativeDuration(),
-            studyBo.getTentativeDurationWeekmonth(),
-            studyBo.getThumbnailImage(),
-            studyBo.getType(),
-            0f,
-            studyBo.isEnrollmentdateAsAnchordate() ? "Y" : "N",
-            studyBo.getCustomStudyId() + "@Export",
-            null);
-
-    insertSqlStatements.add(studiesInsertQuery);
+    exportWriter.write(
+        StudyExportSqlQueries.STUDIES,
+        customIdsMap.get(STUDY_ID + studyBo.getId()),
+        null,
+        studyBo.getCategory(),
+        studyBo.getCreatedBy(),
+        FdahpStudyDesignerUtil.getCurrentDateTime(),
+        customIdsMap.get(CUSTOM_STUDY_ID + studyBo.getCustomStudyId()),
+        studyBo.getDescription(),
+        YES,
+        studyBo.getFullName(),
+        studyBo.getHasActivetaskDraft(),
+        studyBo.getHasActivityDraft(),
+        studyBo.getHasConsentDraft(),
+        studyBo.getHasQuestionnaireDraft(),
+        studyBo.getHasStudyDraft(),
+        studyBo.getInboxEmailAddress(),
+        studyBo.getIrbReview(),
+        0,
+        studyBo.getMediaLink(),
+        studyBo.getModifiedBy(),
+        studyBo.getModifiedOn(),
+        IMPORTED + studyBo.getName(),
+        studyBo.getPlatform(),
+        studyBo.getResearchSponsor(),
+        studyBo.getSequenceNumber(),
+        PRE_LAUNCH,
+        studyBo.isStudyPreActiveFlag() ? "Y" : "N",
+        studyBo.getStudyTagLine(),
+        studyBo.getStudyWebsite(),
+        studyBo.getStudylunchDate(),
+        studyBo.getTentativeDuration(),
+        studyBo.getTentativeDurationWeekmonth(),
+        studyBo.getThumbnailImage(),
+        studyBo.getType(),
+        0f,
+        studyBo.isEnrollmentdateAsAnchordate() ? "Y" : "N",
+        studyBo.getCustomStudyId() + "@Export",
+        null);
   }
 
   private void addStudySequenceInsertSql(
       StudySequenceBo studySequenceBo,
-      List<String> insertSqlStatements,
+      StudyExportWriter exportWriter,
       Map<String, String> customIdsMap)
       throws Exception {
 
@@ -993,33 +975,31 @@ public class StudyExportImportService {
       return;
     }
 
-    String studySequeneInsertQuery =
-        prepareInsertQuery(
-            StudyExportSqlQueries.STUDY_SEQUENCE,
-            IdGenerator.id(),
-            "N",
-            "N",
-            "N",
-            "N",
-            "N",
-            "N",
-            "N",
-            "N",
-            "N",
-            "N",
-            "N",
-            "N",
-            "N",
-            "N",
-            "N",
-            "N",
-            customIdsMap.get(STUDY_ID + studySequenceBo.getStudyId()));
-    insertSqlStatements.add(studySequeneInsertQuery);
+    exportWriter.write(
+        StudyExportSqlQueries.STUDY_SEQUENCE,
+        IdGenerator.id(),
+        "N",
+        "N",
+        "N",
+        "N",
+        "N",
+        "N",
+        "N",
+        "N",
+        "N",
+        "N",
+        "N",
+        "N",
+        "N",
+        "N",
+        "N",
+        "N",
+        customIdsMap.get(STUDY_ID + studySequenceBo.getStudyId()));
   }
 
   private void addAnchorDateInsertSql(
       List<AnchorDateTypeBo> anchorDateList,
-      List<String> insertSqlStatements,
+      StudyExportWriter exportWriter,
       Map<String, String> customIdsMap,
       String studyId)
       throws Exception {
@@ -1028,26 +1008,21 @@ public class StudyExportImportService {
       return;
     }
 
-    List<String> anchorDateInsertQueryList = new ArrayList<>();
     for (AnchorDateTypeBo anchorDate : anchorDateList) {
-      String anchorDateTypeInsertQuery =
-          prepareInsertQuery(
-              StudyExportSqlQueries.ANCHORDATE_TYPE,
-              customIdsMap.get(ANCHORDATE_ID + anchorDate.getId()),
-              customIdsMap.get(CUSTOM_STUDY_ID + anchorDate.getCustomStudyId()),
-              anchorDate.getHasAnchortypeDraft(),
-              anchorDate.getName(),
-              customIdsMap.get(STUDY_ID + studyId),
-              anchorDate.getVersion());
-
-      anchorDateInsertQueryList.add(anchorDateTypeInsertQuery);
-    }
-    insertSqlStatements.addAll(anchorDateInsertQueryList);
+      exportWriter.write(
+          StudyExportSqlQueries.ANCHORDATE_TYPE,
+          customIdsMap.get(ANCHORDATE_ID + anchorDate.getId()),
+          customIdsMap.get(CUSTOM_STUDY_ID + anchorDate.getCustomStudyId()),
+          anchorDate.getHasAnchortypeDraft(),
+          anchorDate.getName(),
+          customIdsMap.get(STUDY_ID + studyId),
+          anchorDate.getVersion());
+    }
   }
 
   private void addStudypagesListInsertSql(
       List<StudyPageBo> studypageList,
-      List<String> insertSqlStatements,
+      StudyExportWriter exportWriter,
       Map<String, String> customIdsMap)
       throws Exception {
 
@@ -1055,57 +1030,47 @@ public class StudyExportImportService {
       return;
     }
 
-    List<String> studyPageBoInsertQueryList = new ArrayList<>();
     Integer sequenceNumber = 0;
     for (StudyPageBo studyPageBo : studypageList) {
-      String studyPageBoInsertQuery =
-          prepareInsertQuery(
-              StudyExportSqlQueries.STUDY_PAGE,
-              IdGenerator.id(),
-              studyPageBo.getCreatedBy(),
-              FdahpStudyDesignerUtil.getCurrentDateTime(),
-              studyPageBo.getDescription(),
-              studyPageBo.getImagePath(),
-              studyPageBo.getModifiedBy(),
-              studyPageBo.getModifiedOn(),
-              customIdsMap.get(STUDY_ID + studyPageBo.getStudyId()),
-              studyPageBo.getTitle(),
-              sequenceNumber++);
-
-      studyPageBoInsertQueryList.add(studyPageBoInsertQuery);
-    }
-    insertSqlStatements.addAll(studyPageBoInsertQueryList);
+      exportWriter.write(
+          StudyExportSqlQueries.STUDY_PAGE,
+          IdGenerator.id(),
+          studyPageBo.getCreatedBy(),
+          FdahpStudyDesignerUtil.getCurrentDateTime(),
+          studyPageBo.getDescription(),
+          studyPageBo.getImagePath(),
+          studyPageBo.getModifiedBy(),
+          studyPageBo.getModifiedOn(),
+          customIdsMap.get(STUDY_ID + studyPageBo.getStudyId()),
+          studyPageBo.getTitle(),
+          sequenceNumber++);
+    }
   }
 
   private void addEligibilityInsertSql(
-      EligibilityBo eligibilityBo,
-      List<String> insertSqlStatements,
-      Map<String, String> customIdsMap)
+      EligibilityBo eligibilityBo, StudyExportWriter exportWriter, Map<String, String> customIdsMap)
       throws Exception {
 
     if (eligibilityBo == null) {
       return;
     }
 
-    String eligibilityInsertQuery =
-        prepareInsertQuery(
-            StudyExportSqlQueries.ELIGIBILITY,
-            customIdsMap.get(NEW_ELIGIBILITY_ID + eligibilityBo.getId()),
-            eligibilityBo.getCreatedBy(),
-            FdahpStudyDesignerUtil.getCurrentDateTime(),
-            eligibilityBo.getEligibilityMechanism(),
-            eligibilityBo.getFailureOutcomeText(),
-            eligibilityBo.getInstructionalText(),
-            eligibilityBo.getModifiedBy(),
-            eligibilityBo.getModifiedOn(),
-            customIdsMap.get(STUDY_ID + eligibilityBo.getStudyId()));
-
-    insertSqlStatements.add(eligibilityInsertQuery);
+    exportWriter.write(
+        StudyExportSqlQueries.ELIGIBILITY,
+        customIdsMap.get(NEW_ELIGIBILITY_ID + eligibilityBo.getId()),
+        eligibilityBo.getCreatedBy(),
+        FdahpStudyDesignerUtil.getCurrentDateTime(),
+        eligibilityBo.getEligibilityMechanism(),
+        eligibilityBo.getFailureOutcomeText(),
+        eligibilityBo.getInstructionalText(),
+        eligibilityBo.getModifiedBy(),
+        eligibilityBo.getModifiedOn(),
+        customIdsMap.get(STUDY_ID + eligibilityBo.getStudyId()));
   }
 
   private void addNotificationInsertSql(
       List<NotificationBO> notificationBOs,
-      List<String> insertSqlStatements,
+      StudyExportWriter exportWriter,
       Map<String, String> customIdsMap,
       String copyVersion,
       StudyBo studyBo)
@@ -1114,7 +1079,6 @@ public class StudyExportImportService {
     if (CollectionUtils.isEmpty(notificationBOs)) {
       return;
     }
-    List<String> notificationBoBoInsertQueryList = new ArrayList<>();
     Integer sequenceNumber = 0;
     for (NotificationBO notificationBO : notificationBOs) {
 
@@ -1128,47 +1092,41 @@ public class StudyExportImportService {
       }
 
       if (copyVersion.equals(WORKING_VERSION) || (copyVersion.equals(PUBLISHED_VERSION) && flag)) {
-        String notificationBoInsertQuery;
-        notificationBoInsertQuery =
-            prepareInsertQuery(
-                StudyExportSqlQueries.NOTIFICATION,
-                IdGenerator.id(),
-                customIdsMap.get(ACTIVETASK_ID + notificationBO.getActiveTaskId()),
-                notificationBO.isAnchorDate(),
-                notificationBO.getAppId(),
-                notificationBO.getCreatedBy(),
-                notificationBO.getCreatedOn(),
-                customIdsMap.get(CUSTOM_STUDY_ID + notificationBO.getCustomStudyId()),
-                notificationBO.getModifiedBy(),
-                notificationBO.getModifiedOn(),
-                notificationBO.isNotificationStatus()
-                    ? notificationBO.isNotificationAction()
-                    : false,
-                notificationBO.isNotificationStatus() ? notificationBO.isNotificationDone() : false,
-                NOTIFICATION_NOTIMMEDIATE,
-                false,
-                notificationBO.isNotificationStatus(),
-                notificationBO.getNotificationSubType(),
-                notificationBO.getNotificationText(),
-                notificationBO.getNotificationType(),
-                customIdsMap.get(QUESTIONNAIRES_ID + notificationBO.getQuestionnarieId()),
-                notificationBO.getResourceId(),
-                notificationBO.getScheduleDate(),
-                notificationBO.getScheduleTime(),
-                customIdsMap.get(STUDY_ID + studyBo.getId()),
-                notificationBO.getxDays(),
-                notificationBO.getScheduleTimestamp(),
-                sequenceNumber++,
-                studyBo.getPlatform());
-        notificationBoBoInsertQueryList.add(notificationBoInsertQuery);
+        exportWriter.write(
+            StudyExportSqlQueries.NOTIFICATION,
+            IdGenerator.id(),
+            customIdsMap.get(ACTIVETASK_ID + notificationBO.getActiveTaskId()),
+            notificationBO.isAnchorDate(),
+            notificationBO.getAppId(),
+            notificationBO.getCreatedBy(),
+            notificationBO.getCreatedOn(),
+            customIdsMap.get(CUSTOM_STUDY_ID + notificationBO.getCustomStudyId()),
+            notificationBO.getModifiedBy(),
+            notificationBO.getModifiedOn(),
+            notificationBO.isNotificationStatus() ? notificationBO.isNotificationAction() : false,
+            notificationBO.isNotificationStatus() ? notificationBO.isNotificationDone() : false,
+            NOTIFICATION_NOTIMMEDIATE,
+            false,
+            notificationBO.isNotificationStatus(),
+            notificationBO.getNotificationSubType(),
+            notificationBO.getNotificationText(),
+            notificationBO.getNotificationType(),
+            customIdsMap.get(QUESTIONNAIRES_ID + notificationBO.getQuestionnarieId()),
+            notificationBO.getResourceId(),
+            notificationBO.getScheduleDate(),
+            notificationBO.getScheduleTime(),
+            customIdsMap.get(STUDY_ID + studyBo.getId()),
+            notificationBO.getxDays(),
+            notificationBO.getScheduleTimestamp(),
+            sequenceNumber++,
+            studyBo.getPlatform());
       }
     }
-    insertSqlStatements.addAll(notificationBoBoInsertQueryList);
   }
 
   private void addStudyActiveTaskInsertSql(
       List<ActiveTaskBo> activeTaskBos,
-      List<String> insertSqlStatements,
+      StudyExportWriter exportWriter,
       Map<String, String> customIdsMap,
       String studyId)
       throws Exception {
@@ -1176,159 +1134,137 @@ public class StudyExportImportService {
     if (CollectionUtils.isEmpty(activeTaskBos)) {
       return;
     }
-    List<String> activeTaskBoInsertQueryList = new ArrayList<>();
-    String activeTaskBoInsertQuery = null;
     for (ActiveTaskBo activeTaskBo : activeTaskBos) {
-      activeTaskBoInsertQuery =
-          prepareInsertQuery(
-              StudyExportSqlQueries.ACTIVETASK,
-              customIdsMap.get(ACTIVETASK_ID + activeTaskBo.getId()),
-              activeTaskBo.isAction(),
-              activeTaskBo.getActive(),
-              activeTaskBo.getActiveTaskLifetimeEnd(),
-              activeTaskBo.getActiveTaskLifetimeStart(),
-              customIdsMap.get(ANCHORDATE_ID + activeTaskBo.getAnchorDateId()),
-              activeTaskBo.getCreatedBy(),
-              activeTaskBo.getCreatedDate(),
-              customIdsMap.get(CUSTOM_STUDY_ID + activeTaskBo.getCustomStudyId()),
-              activeTaskBo.getDayOfTheWeek(),
-              activeTaskBo.getDisplayName(),
-              activeTaskBo.getDuration(),
-              activeTaskBo.getFrequency(),
-              activeTaskBo.getInstruction(),
-              activeTaskBo.getIsChange(),
-              0,
-              activeTaskBo.getModifiedBy(),
-              activeTaskBo.getModifiedDate(),
-              activeTaskBo.getRepeatActiveTask(),
-              activeTaskBo.getScheduleType(),
-              activeTaskBo.getShortTitle(),
-              customIdsMap.get(STUDY_ID + studyId),
-              activeTaskBo.getTaskTypeId(),
-              activeTaskBo.getTitle(),
-              activeTaskBo.getVersion());
-
-      activeTaskBoInsertQueryList.add(activeTaskBoInsertQuery);
-    }
-    insertSqlStatements.addAll(activeTaskBoInsertQueryList);
+      exportWriter.write(
+          StudyExportSqlQueries.ACTIVETASK,
+          customIdsMap.get(ACTIVETASK_ID + activeTaskBo.getId()),
+          activeTaskBo.isAction(),
+          activeTaskBo.getActive(),
+          activeTaskBo.getActiveTaskLifetimeEnd(),
+          activeTaskBo.getActiveTaskLifetimeStart(),
+          customIdsMap.get(ANCHORDATE_ID + activeTaskBo.getAnchorDateId()),
+          activeTaskBo.getCreatedBy(),
+          activeTaskBo.getCreatedDate(),
+          customIdsMap.get(CUSTOM_STUDY_ID + activeTaskBo.getCustomStudyId()),
+          activeTaskBo.getDayOfTheWeek(),
+          activeTaskBo.getDisplayName(),
+          activeTaskBo.getDuration(),
+          activeTaskBo.getFrequency(),
+          activeTaskBo.getInstruction(),
+          activeTaskBo.getIsChange(),
+          0,
+          activeTaskBo.getModifiedBy(),
+          activeTaskBo.getModifiedDate(),
+          activeTaskBo.getRepeatActiveTask(),
+          activeTaskBo.getScheduleType(),
+          activeTaskBo.getShortTitle(),
+          customIdsMap.get(STUDY_ID + studyId),
+          activeTaskBo.getTaskTypeId(),
+          activeTaskBo.getTitle(),
+          activeTaskBo.getVersion());
+    }
   }
 
   private void addActiveTaskAtrributeValuesInsertSql(
       List<ActiveTaskAtrributeValuesBo> activeTaskAttributeBos,
-      List<String> insertSqlStatements,
+      StudyExportWriter exportWriter,
       Map<String, String> customIdsMap)
       throws Exception {
 
     if (CollectionUtils.isEmpty(activeTaskAttributeBos)) {
       return;
     }
-    List<String> activeTaskAtrributeInsertQueryList = new ArrayList<>();
-    String activeTaskAtrributeInsertQuery = null;
     for (ActiveTaskAtrributeValuesBo activeTaskAtrributeValuesBo : activeTaskAttributeBos) {
-      activeTaskAtrributeInsertQuery =
-          prepareInsertQuery(
-              StudyExportSqlQueries.ACTIVETASK_ATTRIBUTES_VALUES,
-              IdGenerator.id(),
-              activeTaskAtrributeValuesBo.getActive(),
-              customIdsMap.get(ACTIVETASK_ID + activeTaskAtrributeValuesBo.getActiveTaskId()),
-              activeTaskAtrributeValuesBo.getActiveTaskMasterAttrId(),
-              activeTaskAtrributeValuesBo.isAddToLineChart() ? "Y" : "N",
-              activeTaskAtrributeValuesBo.getAttributeVal(),
-              activeTaskAtrributeValuesBo.getDisplayNameStat(),
-              activeTaskAtrributeValuesBo.getDisplayUnitStat(),
-              activeTaskAtrributeValuesBo.getFormulaAppliedStat(),
-              activeTaskAtrributeValuesBo.getIdentifierNameStat(),
-              activeTaskAtrributeValuesBo.getRollbackChat(),
-              activeTaskAtrributeValuesBo.getTimeRangeChart(),
-              activeTaskAtrributeValuesBo.getTimeRangeStat(),
-              activeTaskAtrributeValuesBo.getTitleChat(),
-              activeTaskAtrributeValuesBo.getUploadTypeStat(),
-              activeTaskAtrributeValuesBo.isUseForStatistic() ? "Y" : "N");
-
-      activeTaskAtrributeInsertQueryList.add(activeTaskAtrributeInsertQuery);
-    }
-    insertSqlStatements.addAll(activeTaskAtrributeInsertQueryList);
+      exportWriter.write(
+          StudyExportSqlQueries.ACTIVETASK_ATTRIBUTES_VALUES,
+          IdGenerator.id(),
+          activeTaskAtrributeValuesBo.getActive(),
+          customIdsMap.get(ACTIVETASK_ID + activeTaskAtrributeValuesBo.getActiveTaskId()),
+          activeTaskAtrributeValuesBo.getActiveTaskMasterAttrId(),
+          activeTaskAtrributeValuesBo.isAddToLineChart() ? "Y" : "N",
+          activeTaskAtrributeValuesBo.getAttributeVal(),
+          activeTaskAtrributeValuesBo.getDisplayNameStat(),
+          activeTaskAtrributeValuesBo.getDisplayUnitStat(),
+          activeTaskAtrributeValuesBo.getFormulaAppliedStat(),
+          activeTaskAtrributeValuesBo.getIdentifierNameStat(),
+          activeTaskAtrributeValuesBo.getRollbackChat(),
+          activeTaskAtrributeValuesBo.getTimeRangeChart(),
+          activeTaskAtrributeValuesBo.getTimeRangeStat(),
+          activeTaskAtrributeValuesBo.getTitleChat(),
+          activeTaskAtrributeValuesBo.getUploadTypeStat(),
+          activeTaskAtrributeValuesBo.isUseForStatistic() ? "Y" : "N");
+    }
   }
 
   private void addResourceInsertSql(
       List<ResourceBO> resourceBOs,
-      List<String> insertSqlStatements,
+      StudyExportWriter exportWriter,
       Map<String, String> customIdsMap)
       throws Exception {
 
     if (CollectionUtils.isEmpty(resourceBOs)) {
       return;
     }
-    List<String> resourceBoInsertQueryList = new ArrayList<>();
     for (ResourceBO resourceBO : resourceBOs) {
-      String resourceBoInsertQuery =
-          prepareInsertQuery(
-              StudyExportSqlQueries.RESOURCES,
-              IdGenerator.id(),
-              resourceBO.isAction(),
-              customIdsMap.get(ANCHORDATE_ID + resourceBO.getAnchorDateId()),
-              resourceBO.getCreatedBy(),
-              resourceBO.getCreatedOn(),
-              resourceBO.getEndDate(),
-              resourceBO.getModifiedBy(),
-              resourceBO.getModifiedOn(),
-              resourceBO.getPdfName(),
-              resourceBO.getPdfUrl(),
-              resourceBO.getResourceText(),
-              resourceBO.isResourceType(),
-              resourceBO.isResourceVisibility(),
-              resourceBO.getRichText(),
-              resourceBO.getSequenceNo(),
-              resourceBO.getStartDate(),
-              resourceBO.isStatus(),
-              customIdsMap.get(STUDY_ID + resourceBO.getStudyId()),
-              resourceBO.isStudyProtocol(),
-              resourceBO.isTextOrPdf(),
-              resourceBO.getTimePeriodFromDays(),
-              resourceBO.getTimePeriodToDays(),
-              resourceBO.getTitle(),
-              resourceBO.isxDaysSign(),
-              resourceBO.isyDaysSign());
-
-      resourceBoInsertQueryList.add(resourceBoInsertQuery);
-    }
-    insertSqlStatements.addAll(resourceBoInsertQueryList);
+      exportWriter.write(
+          StudyExportSqlQueries.RESOURCES,
+          IdGenerator.id(),
+          resourceBO.isAction(),
+          customIdsMap.get(ANCHORDATE_ID + resourceBO.getAnchorDateId()),
+          resourceBO.getCreatedBy(),
+          resourceBO.getCreatedOn(),
+          resourceBO.getEndDate(),
+          resourceBO.getModifiedBy(),
+          resourceBO.getModifiedOn(),
+          resourceBO.getPdfName(),
+          resourceBO.getPdfUrl(),
+          resourceBO.getResourceText(),
+          resourceBO.isResourceType(),
+          resourceBO.isResourceVisibility(),
+          resourceBO.getRichText(),
+          resourceBO.getSequenceNo(),
+          resourceBO.getStartDate(),
+          resourceBO.isStatus(),
+          customIdsMap.get(STUDY_ID + resourceBO.getStudyId()),
+          resourceBO.isStudyProtocol(),
+          resourceBO.isTextOrPdf(),
+          resourceBO.getTimePeriodFromDays(),
+          resourceBO.getTimePeriodToDays(),
+          resourceBO.getTitle(),
+          resourceBO.isxDaysSign(),
+          resourceBO.isyDaysSign());
+    }
   }
 
   private void addEligibilityTestListInsertSql(
       List<EligibilityTestBo> eligibilityTestBoList,
-      List<String> insertSqlStatements,
+      StudyExportWriter exportWriter,
       Map<String, String> customIdsMap)
       throws Exception {
     if (CollectionUtils.isEmpty(eligibilityTestBoList)) {
       return;
     }
-    List<String> eligibilityTestBoInsertQueryList = new ArrayList<>();
     for (EligibilityTestBo eligibilityTestBo : eligibilityTestBoList) {
       eligibilityTestBo.setUsed(false);
-      String eligibilityTestBoBoInsertQuery =
-          prepareInsertQuery(
-              StudyExportSqlQueries.ELIGIBILITY_TEST,
-              IdGenerator.id(),
-              eligibilityTestBo.getActive(),
-              customIdsMap.get(NEW_ELIGIBILITY_ID + eligibilityTestBo.getEligibilityId()),
-              eligibilityTestBo.getQuestion(),
-              eligibilityTestBo.getResponseFormat(),
-              eligibilityTestBo.getResponseNoOption(),
-              eligibilityTestBo.getResponseYesOption(),
-              eligibilityTestBo.getSequenceNo(),
-              eligibilityTestBo.getShortTitle(),
-              eligibilityTestBo.getStatus(),
-              eligibilityTestBo.isUsed());
-
-      eligibilityTestBoInsertQueryList.add(eligibilityTestBoBoInsertQuery);
-    }
-    insertSqlStatements.addAll(eligibilityTestBoInsertQueryList);
+      exportWriter.write(
+          StudyExportSqlQueries.ELIGIBILITY_TEST,
+          IdGenerator.id(),
+          eligibilityTestBo.getActive(),
+          customIdsMap.get(NEW_ELIGIBILITY_ID + eligibilityTestBo.getEligibilityId()),
+          eligibilityTestBo.getQuestion(),
+          eligibilityTestBo.getResponseFormat(),
+          eligibilityTestBo.getResponseNoOption(),
+          eligibilityTestBo.getResponseYesOption(),
+          eligibilityTestBo.getSequenceNo(),
+          eligibilityTestBo.getShortTitle(),
+          eligibilityTestBo.getStatus(),
+          eligibilityTestBo.isUsed());
+    }
   }
 
   private void addConsentBoListInsertSql(
       List<ConsentBo> consentBoList,
-      List<String> insertSqlStatements,
+      StudyExportWriter exportWriter,
       Map<String, String> customIdsMap,
       String studyId)
       throws Exception {
@@ -1337,46 +1273,42 @@ public class StudyExportImportService {
       return;
     }
 
-    List<String> consentBoListInsertQuery = new ArrayList<>();
     for (ConsentBo consentBo : consentBoList) {
-      String consentInsertSql =
-          prepareInsertQuery(
-              StudyExportSqlQueries.CONSENT,
-              IdGenerator.id(),
-              consentBo.getAllowWithoutPermission(),
-              consentBo.getComprehensionTestMinimumScore(),
-              consentBo.getConsentDocContent(),
-              consentBo.getConsentDocType(),
-              consentBo.getCreatedBy(),
-              consentBo.getCreatedOn(),
-              customIdsMap.get(CUSTOM_STUDY_ID + consentBo.getCustomStudyId()),
-              consentBo.geteConsentAgree(),
-              consentBo.geteConsentDatetime(),
-              consentBo.geteConsentFirstName(),
-              consentBo.geteConsentLastName(),
-              consentBo.geteConsentSignature(),
-              consentBo.getHtmlConsent(),
-              consentBo.getLearnMoreText(),
-              0,
-              consentBo.getLongDescription(),
-              consentBo.getModifiedBy(),
-              consentBo.getModifiedOn(),
-              consentBo.getNeedComprehensionTest(),
-              consentBo.getShareDataPermissions(),
-              consentBo.getShortDescription(),
-              customIdsMap.get(STUDY_ID + studyId),
-              consentBo.getTaglineDescription(),
-              consentBo.getTitle(),
-              0f,
-              consentBo.getEnrollAgain());
-      consentBoListInsertQuery.add(consentInsertSql);
-    }
-    insertSqlStatements.addAll(consentBoListInsertQuery);
+      exportWriter.write(
+          StudyExportSqlQueries.CONSENT,
+          IdGenerator.id(),
+          consentBo.getAllowWithoutPermission(),
+          consentBo.getComprehensionTestMinimumScore(),
+          consentBo.getConsentDocContent(),
+          consentBo.getConsentDocType(),
+          consentBo.getCreatedBy(),
+          consentBo.getCreatedOn(),
+          customIdsMap.get(CUSTOM_STUDY_ID + consentBo.getCustomStudyId()),
+          consentBo.geteConsentAgree(),
+          consentBo.geteConsentDatetime(),
+          consentBo.geteConsentFirstName(),
+          consentBo.geteConsentLastName(),
+          consentBo.geteConsentSignature(),
+          consentBo.getHtmlConsent(),
+          consentBo.getLearnMoreText(),
+          0,
+          consentBo.getLongDescription(),
+          consentBo.getModifiedBy(),
+          consentBo.getModifiedOn(),
+          consentBo.getNeedComprehensionTest(),
+          consentBo.getShareDataPermissions(),
+          consentBo.getShortDescription(),
+          customIdsMap.get(STUDY_ID + studyId),
+          consentBo.getTaglineDescription(),
+          consentBo.getTitle(),
+          0f,
+          consentBo.getEnrollAgain());
+    }
   }
 
   private void addConsentInfoBoListInsertSql(
       List<ConsentInfoBo> consentInfoBoList,
-      List<String> insertSqlStatements,
+      StudyExportWriter exportWriter,
       Map<String, String> customIdsMap,
       String studyId)
       throws Exception {
@@ -1385,41 +1317,36 @@ public class StudyExportImportService {
       return;
     }
 
-    List<String> consentInfoInsertQueryList = new ArrayList<>();
     for (ConsentInfoBo consentInfoBo : consentInfoBoList) {
-      String consentInfoInsertSql =
-          prepareInsertQuery(
-              StudyExportSqlQueries.CONSENT_INFO,
-              IdGenerator.id(),
-              consentInfoBo.getActive(),
-              consentInfoBo.getBriefSummary(),
-              consentInfoBo.getConsentItemTitleId(),
-              consentInfoBo.getConsentItemType(),
-              consentInfoBo.getContentType(),
-              consentInfoBo.getCreatedBy(),
-              consentInfoBo.getCreatedOn(),
-              customIdsMap.get(CUSTOM_STUDY_ID + consentInfoBo.getCustomStudyId()),
-              consentInfoBo.getDisplayTitle(),
-              consentInfoBo.getElaborated(),
-              consentInfoBo.getHtmlContent(),
-              0,
-              consentInfoBo.getModifiedBy(),
-              consentInfoBo.getModifiedOn(),
-              consentInfoBo.getSequenceNo(),
-              consentInfoBo.getStatus(),
-              customIdsMap.get(STUDY_ID + studyId),
-              consentInfoBo.getUrl(),
-              0f,
-              consentInfoBo.getVisualStep());
-
-      consentInfoInsertQueryList.add(consentInfoInsertSql);
-    }
-    insertSqlStatements.addAll(consentInfoInsertQueryList);
+      exportWriter.write(
+          StudyExportSqlQueries.CONSENT_INFO,
+          IdGenerator.id(),
+          consentInfoBo.getActive(),
+          consentInfoBo.getBriefSummary(),
+          consentInfoBo.getConsentItemTitleId(),
+          consentInfoBo.getConsentItemType(),
+          consentInfoBo.getContentType(),
+          consentInfoBo.getCreatedBy(),
+          consentInfoBo.getCreatedOn(),
+          customIdsMap.get(CUSTOM_STUDY_ID + consentInfoBo.getCustomStudyId()),
+          consentInfoBo.getDisplayTitle(),
+          consentInfoBo.getElaborated(),
+          consentInfoBo.getHtmlContent(),
+          0,
+          consentInfoBo.getModifiedBy(),
+          consentInfoBo.getModifiedOn(),
+          consentInfoBo.getSequenceNo(),
+          consentInfoBo.getStatus(),
+          customIdsMap.get(STUDY_ID + studyId),
+          consentInfoBo.getUrl(),
+          0f,
+          consentInfoBo.getVisualStep());
+    }
   }
 
   private void addComprehensionTestQuestionListInsertSql(
       List<ComprehensionTestQuestionBo> comprehensionTestQuestionList,
-      List<String> insertSqlStatements,
+      StudyExportWriter exportWriter,
       Map<String, String> customIdsMap)
       throws Exception {
 
@@ -1427,32 +1354,26 @@ public class StudyExportImportService {
       return;
     }
 
-    List<String> comprehensionTestQuestionInsertQueryList = new ArrayList<>();
     for (ComprehensionTestQuestionBo comprehensionTestQuestionBo : comprehensionTestQuestionList) {
-      String comprehensionTestQuestionInsertQuery =
-          prepareInsertQuery(
-              StudyExportSqlQueries.COMPREHENSION_TEST_QUESTIONS,
-              customIdsMap.get(
-                  COMPREHENSION_TEST_QUESTION_ID + comprehensionTestQuestionBo.getId()),
-              comprehensionTestQuestionBo.getActive(),
-              comprehensionTestQuestionBo.getCreatedBy(),
-              comprehensionTestQuestionBo.getCreatedOn(),
-              comprehensionTestQuestionBo.getModifiedBy(),
-              comprehensionTestQuestionBo.getModifiedOn(),
-              comprehensionTestQuestionBo.getQuestionText(),
-              comprehensionTestQuestionBo.getSequenceNo(),
-              comprehensionTestQuestionBo.getStatus(),
-              comprehensionTestQuestionBo.getStructureOfCorrectAns(),
-              customIdsMap.get(STUDY_ID + comprehensionTestQuestionBo.getStudyId()));
-
-      comprehensionTestQuestionInsertQueryList.add(comprehensionTestQuestionInsertQuery);
-    }
-    insertSqlStatements.addAll(comprehensionTestQuestionInsertQueryList);
+      exportWriter.write(
+          StudyExportSqlQueries.COMPREHENSION_TEST_QUESTIONS,
+          customIdsMap.get(COMPREHENSION_TEST_QUESTION_ID + comprehensionTestQuestionBo.getId()),
+          comprehensionTestQuestionBo.getActive(),
+          comprehensionTestQuestionBo.getCreatedBy(),
+          comprehensionTestQuestionBo.getCreatedOn(),
+          comprehensionTestQuestionBo.getModifiedBy(),
+          comprehensionTestQuestionBo.getModifiedOn(),
+          comprehensionTestQuestionBo.getQuestionText(),
+          comprehensionTestQuestionBo.getSequenceNo(),
+          comprehensionTestQuestionBo.getStatus(),
+          comprehensionTestQuestionBo.getStructureOfCorrectAns(),
+          customIdsMap.get(STUDY_ID + comprehensionTestQuestionBo.getStudyId()));
+    }
   }
 
   private void addQuestionnaireBoListInsertSql(
       List<QuestionnaireBo> questionnairesList,
-      List<String> insertSqlStatements,
+      StudyExportWriter exportWriter,
       Map<String, String> customIdsMap,
       StudyBo studyBo)
       throws Exception {
@@ -1461,116 +1382,59 @@ public class StudyExportImportService {
       return;
     }
 
-    List<String> questionnairesBoInsertQueryList = new ArrayList<>();
     for (QuestionnaireBo questionnaireBo : questionnairesList) {
-      String questionnairesBoInsertQuery = null;
-      questionnairesBoInsertQuery =
-          prepareInsertQuery(
-              StudyExportSqlQueries.QUESTIONNAIRES,
-              customIdsMap.get(QUESTIONNAIRES_ID + questionnaireBo.getId()),
-              questionnaireBo.getActive(),
-              customIdsMap.get(ANCHORDATE_ID + questionnaireBo.getAnchorDateId()),
-              questionnaireBo.getBranching(),
-              questionnaireBo.getCreatedBy(),
-              questionnaireBo.getCreatedDate(),
-              customIdsMap.get(CUSTOM_STUDY_ID + questionnaireBo.getCustomStudyId()),
-              questionnaireBo.getDayOfTheWeek(),
-              questionnaireBo.getFrequency(),
-              1, // setting isChange value to 1
-              0,
-              questionnaireBo.getModifiedBy(),
-              questionnaireBo.getModifiedDate(),
-              questionnaireBo.getRepeatQuestionnaire(),
-              questionnaireBo.getScheduleType(),
-              questionnaireBo.getShortTitle(),
-              questionnaireBo.getStatus(),
-              customIdsMap.get(STUDY_ID + studyBo.getId()),
-              questionnaireBo.getStudyLifetimeEnd(),
-              questionnaireBo.getStudyLifetimeStart(),
-              questionnaireBo.getTitle(),
-              0f,
-              questionnaireBo.getSequenceNumber());
-
-      questionnairesBoInsertQueryList.add(questionnairesBoInsertQuery);
-    }
-    insertSqlStatements.addAll(questionnairesBoInsertQueryList);
+      exportWriter.write(
+          StudyExportSqlQueries.QUESTIONNAIRES,
+          customIdsMap.get(QUESTIONNAIRES_ID + questionnaireBo.getId()),
+          questionnaireBo.getActive(),
+          customIdsMap.get(ANCHORDATE_ID + questionnaireBo.getAnchorDateId()),
+          questionnaireBo.getBranching(),
+          questionnaireBo.getCreatedBy(),
+          questionnaireBo.getCreatedDate(),
+          customIdsMap.get(CUSTOM_STUDY_ID + questionnaireBo.getCustomStudyId()),
+          questionnaireBo.getDayOfTheWeek(),
+          questionnaireBo.getFrequency(),
+          1, // setting isChange value to 1
+          0,
+          questionnaireBo.getModifiedBy(),
+          questionnaireBo.getModifiedDate(),
+          questionnaireBo.getRepeatQuestionnaire(),
+          questionnaireBo.getScheduleType(),
+          questionnaireBo.getShortTitle(),
+          questionnaireBo.getStatus(),
+          customIdsMap.get(STUDY_ID + studyBo.getId()),
+          questionnaireBo.getStudyLifetimeEnd(),
+          questionnaireBo.getStudyLifetimeStart(),
+          questionnaireBo.getTitle(),
+          0f,
+          questionnaireBo.getSequenceNumber());
+    }
   }
 
   private void addQuestionnaireFrequenciesBoInsertSql(
       List<QuestionnairesFrequenciesBo> questionnairesFrequenciesBoList,
-      List<String> insertSqlStatements,
+      StudyExportWriter exportWriter,
       Map<String, String> customIdsMap)
       throws Exception {
 
-    List<String> questionnairesFrequenciesBoInsertQueryList = new ArrayList<>();
     if (CollectionUtils.isEmpty(questionnairesFrequenciesBoList)) {
       return;
     }
-    String questionnairesFrequenciesBoInsertQuery = null;
     for (QuestionnairesFrequenciesBo questionnairesFrequenciesBo :
         questionnairesFrequenciesBoList) {
-      questionnairesFrequenciesBoInsertQuery =
-          prepareInsertQuery(
-              StudyExportSqlQueries.QUESTIONNAIRES_FREQUENCIES,
-              IdGenerator.id(),
-              questionnairesFrequenciesBo.getFrequencyDate(),
-              questionnairesFrequenciesBo.getFrequencyTime(),
-              questionnairesFrequenciesBo.getIsLaunchStudy(),
-              questionnairesFrequenciesBo.getIsStudyLifeTime(),
-              customIdsMap.get(
-                  QUESTIONNAIRES_ID + questionnairesFrequenciesBo.getQuestionnairesId()),
-              questionnairesFrequenciesBo.getTimePeriodFromDays(),
-              questionnairesFrequenciesBo.getTimePeriodToDays(),
-              questionnairesFrequenciesBo.isxDaysSign(),
-              questionnairesFrequenciesBo.isyDaysSign(),
-              questionnairesFrequenciesBo.getSequenceNumber());
-      questionnairesFrequenciesBoInsertQueryList.add(questionnairesFrequenciesBoInsertQuery);
-    }
-
-    insertSqlStatements.addAll(questionnairesFrequenciesBoInsertQueryList);
-  }
-
-  private String prepareInsertQuery(String sqlQuery, Object... values) throws Exception {
-    logger.info(" begin prepareInsertQuery()");
-
-    Object[] columns =
-        sqlQuery
-            .substring(sqlQuery.indexOf('(') + 1, sqlQuery.indexOf(")"))
-            .replace("`", "")
-            .split(",");
-    try {
-      if (columns.length != values.length) {
-        throw new SQLException("Column count doesn't match value count.");
-      }
-
-      int i = 0;
-      for (Object column : columns) {
-        column = ((String) column).trim();
-        if (column.equals("brief_summary")
-            || column.equals("description")
-            || column.equals("elaborated")
-            || column.equals("rich_text")
-            || column.equals("consent_doc_content")
-            || column.equals("learn_more_text")) {
-          String value = (String) values[i];
-          if (StringUtils.isNotEmpty(value)) {
-            values[i] = value.replaceAll("\r", "\\\\r").replaceAll("\n", "\\\\n");
-          }
-        }
-        if (values[i] instanceof String || values[i] instanceof Timestamp) {
-          sqlQuery =
-              sqlQuery.replace(
-                  "<" + column + ">", "'" + values[i].toString().replace("'", "") + "'");
-        } else {
-          sqlQuery = sqlQuery.replace("<" + column + ">", "" + values[i] + "");
-        }
-
-        i++;
-      }
-      return sqlQuery;
-    } catch (Exception e) {
-      logger.error("export study failed due to %s", e);
-      throw new SQLException(e.getMessage());
+      exportWriter.write(
+          StudyExportSqlQueries.QUESTIONNAIRES_FREQUENCIES,
+          IdGenerator.id(),
+          questionnairesFrequenciesBo.getFrequencyDate(),
+          questionnairesFrequenciesBo.getFrequencyTime(),
+          questionnairesFrequenciesBo.getIsLaunchStudy(),
+          questionnairesFrequenciesBo.getIsStudyLifeTime(),
+          customIdsMap.get(QUESTIONNAIRES_ID + questionnairesFrequenciesBo.getQuestionnairesId()),
+          questionnairesFrequenciesBo.getTimePeriodFromDays(),
+          questionnairesFrequenciesBo.getTimePeriodToDays(),
+          questionnairesFrequenciesBo.isxDaysSign(),
+          questionnairesFrequenciesBo.isyDaysSign(),
+          questionnairesFrequenciesBo.getSequenceNumber());
     }
   }
 
@@ -1641,12 +1505,13 @@ public class StudyExportImportService {
           String[] tokens = pathOfZipUrl.split("/");
           String customId = tokens[tokens.length - 1];
 
-          InputStream input = entity.getContent();
-          byte[] data = IOUtils.toByteArray(input);
-          String path = writeFileLocalImport(data, customId);
+          String path = writeFileLocalImport(entity.getContent(), customId);
           if (path != null) {
             Object[] obj = FdahpStudyDesignerUtil.unzip(path, customId);
             new File(path).deleteOnExit();
+            if (obj == null && JsonLinesStudyExportReader.isJsonLinesExport(new File(path))) {
+              return validateAndImportRows(new File(path), map, sessionObject.getUserId());
+            }
             sqlPath = (String) obj[0];
             bufferedReader = (BufferedReader) obj[1];
           }
@@ -1664,7 +1529,7 @@ public class StudyExportImportService {
     return validateAndExecuteQuries(sqlPath, map, bufferedReader, sessionObject.getUserId());
   }
 
-  private String writeFileLocalImport(byte[] data, String customId) {
+  private String writeFileLocalImport(InputStream data, String customId) {
     ServletContext context = ServletContextHolder.getServletContext();
     File directoryOfExport = new File(context.getRealPath("/") + "/Import");
     if (!directoryOfExport.exists()) {
@@ -1672,8 +1537,9 @@ public class StudyExportImportService {
     }
     String zipPath = context.getRealPath("/") + "/Import/" + customId + ".zip";
     Path path = Paths.get(zipPath);
-    try {
-      Files.write(path, data);
+    try (InputStream input = data) {
+      // the export is copied to the file as it is downloaded
+      Files.copy(input, path, StandardCopyOption.REPLACE_EXISTING);
       return zipPath;
     } catch (IOException e) {
       e.printStackTrace();
@@ -1681,6 +1547,36 @@ public class StudyExportImportService {
     return null;
   }
 
+  private String validateAndImportRows(File file, Map<String, String> map, String userId) {
+    try (JsonLinesStudyExportReader reader = new JsonLinesStudyExportReader(file)) {
+      if (reader.getReleaseVersion() == null) {
+        throw new Exception(IMPORT_FAILED_DUE_TO_ANOMOLIES_DETECTED_IN_FILLE);
+      }
+
+      // validating release version
+      ComparableVersion exportVersion = new ComparableVersion(reader.getReleaseVersion());
+      ComparableVersion releaseVersion = new ComparableVersion(map.get("release.version"));
+
+      if (exportVersion.compareTo(releaseVersion) > 0) {
+        throw new Exception(
+            IMPORT_FAILED_DUE_TO_INCOMPATIBLE_VERSION + " " + map.get("release.version") + ").");
+      }
+
+      // validating, then inserting the rows in one transaction
+      String studyId = studySqlImporter.importRows(reader);
+
+      // study permission
+      studyDao.giveStudyPermission(studyId, userId);
+    } catch (Exception e) {
+      logger.error("StudyExportService - importStudy() - ERROR ", e);
+      if (e instanceof DuplicateKeyException) {
+        return IMPORT_FAILED_DUE_TO_ALREADY_USED_URL;
+      }
+      return e.getMessage();
+    }
+    return SUCCESS;
+  }
+
   private String validateAndExecuteQuries(
       String sqlPath, Map<String, String> map, BufferedReader bufferedReader, String userId)
       throws Exception {
@@ -1702,48 +1598,11 @@ public class StudyExportImportService {
               IMPORT_FAILED_DUE_TO_INCOMPATIBLE_VERSION + " " + map.get("release.version") + ").");
         }
 
-        // validating tableName and insert statements
-        String line;
-        StringBuilder content = new StringBuilder();
-        List<String> insertStatements = new ArrayList<>();
-        String[] allowedTablesName = StudyExportSqlQueries.ALLOWED_STUDY_TABLE_NAMES;
-
-        while ((line = bufferedReader.readLine()) != null) {
-          if (!line.startsWith("INSERT")) {
-            throw new Exception(IMPORT_FAILED_DUE_TO_ANOMOLIES_DETECTED_IN_FILLE);
-          }
-
-          String tableName =
-              line.substring(line.indexOf('`') + 1, line.indexOf('`', line.indexOf('`') + 1));
-          if (!Arrays.asList(allowedTablesName).contains(tableName)) {
-            throw new Exception(IMPORT_FAILED_DUE_TO_ANOMOLIES_DETECTED_IN_FILLE);
-          }
-
-          insertStatements.add(line);
-          content.append(line);
-          content.append(System.lineSeparator());
-        }
-
-        // validating checksum
-        byte[] bytes = content.toString().getBytes();
-        if (checksum != getCRC32Checksum(bytes)) {
-          throw new Exception(IMPORT_FAILED_DUE_TO_ANOMOLIES_DETECTED_IN_FILLE);
-        }
-
-        // execution
-        String insertStatementofStudy = "";
-        for (String insert : insertStatements) {
-          if (insert.startsWith("INSERT INTO `studies`")) {
-            insertStatementofStudy = insert;
-          }
-          jdbcTemplate.execute(insert);
-        }
+        // validating, then executing the insert statements in one transaction
+        String studyId = studySqlImporter.importStatements(bufferedReader, checksum);
 
         // study permission
-        String[] values = insertStatementofStudy.split("VALUES");
-        String StudyId =
-            values[1].substring(values[1].indexOf("'") + 1, values[1].indexOf(",") - 1);
-        studyDao.giveStudyPermission(StudyId, userId);
+        studyDao.giveStudyPermission(studyId, userId);
       } else {
         return "FAILURE";
       }
@@ -1753,6 +1612,8 @@ public class StudyExportImportService {
         return IMPORT_FAILED_DUE_TO_ALREADY_USED_URL;
       }
       return e.getMessage();
+    } finally {
+      IOUtils.closeQuietly(bufferedReader);
     }
     return SUCCESS;
   }
@@ -0,0 +1,23 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.fdahpstudydesigner.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * Receives the rows of a study export as they are read, in the order they are to be imported. Each
+ * row is given as an INSERT template of StudyExportSqlQueries and one value for each column of the
+ * template.
+ */
+public interface StudyExportWriter extends Closeable {
+
+  void write(String insertQuery, Object... values) throws IOException, SQLException;
+}
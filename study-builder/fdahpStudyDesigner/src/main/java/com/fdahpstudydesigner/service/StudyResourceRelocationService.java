@@ -0,0 +1,211 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.fdahpstudydesigner.service;
+
+import com.fdahpstudydesigner.util.FdahpStudyDesignerUtil;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.PreDestroy;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Copies or moves the resource files of a study, as listed in a manifest of source and target
+ * paths.
+ *
+ * <p>The existing sources and targets are looked up at once, and the copies are run concurrently on
+ * cloud.storage.relocation.threads threads. A file is not copied again when the target already has
+ * the content of the source, and a source is deleted only after its target is in place, so an
+ * interrupted relocation is completed by running it again.
+ */
+@Component
+public class StudyResourceRelocationService {
+
+  private static XLogger logger =
+      XLoggerFactory.getXLogger(StudyResourceRelocationService.class.getName());
+
+  private static final int DEFAULT_THREADS = 8;
+
+  private final ResourceStorage storage;
+
+  private final ExecutorService executor;
+
+  @Autowired
+  public StudyResourceRelocationService(ResourceStorage storage) {
+    this(
+        storage,
+        NumberUtils.toInt(
+            FdahpStudyDesignerUtil.getAppProperties().get("cloud.storage.relocation.threads"),
+            DEFAULT_THREADS));
+  }
+
+  public StudyResourceRelocationService(ResourceStorage storage, int threads) {
+    this.storage = storage;
+    this.executor = Executors.newFixedThreadPool(threads);
+  }
+
+  /**
+   * Copies the source of each relocation to its target, and deletes the sources if delete is true.
+   */
+  public Result relocate(Collection<Relocation> manifest, boolean delete) {
+    logger.entry("begin relocate()");
+    Map<String, String> targetsBySource = new LinkedHashMap<>();
+    for (Relocation relocation : manifest) {
+      targetsBySource.put(relocation.getSource(), relocation.getTarget());
+    }
+
+    List<String> names = new ArrayList<>(targetsBySource.keySet());
+    names.addAll(targetsBySource.values());
+    Result result = new Result();
+    Map<String, String> checksums;
+    try {
+      checksums = storage.getChecksums(names);
+    } catch (Exception e) {
+      result.failed = targetsBySource.size();
+      logger.error("Lookup of study resources in cloud storage failed", e);
+      logger.exit(String.format("failed=%d", result.failed));
+      return result;
+    }
+
+    List<String> relocatedSources = new ArrayList<>();
+    Map<String, Future<Void>> copies = new LinkedHashMap<>();
+    for (Map.Entry<String, String> entry : targetsBySource.entrySet()) {
+      final String source = entry.getKey();
+      final String target = entry.getValue();
+      String sourceChecksum = checksums.get(source);
+      String targetChecksum = checksums.get(target);
+      if (sourceChecksum == null) {
+        // the source of a completed move is gone, and only its target is left
+        if (targetChecksum != null) {
+          result.skipped++;
+        } else {
+          result.missing++;
+        }
+      } else if (sourceChecksum.equals(targetChecksum)) {
+        result.skipped++;
+        relocatedSources.add(source);
+      } else {
+        copies.put(
+            source,
+            executor.submit(
+                new Callable<Void>() {
+                  @Override
+                  public Void call() {
+                    storage.copy(source, target);
+                    return null;
+                  }
+                }));
+      }
+    }
+
+    for (Map.Entry<String, Future<Void>> copy : copies.entrySet()) {
+      try {
+        copy.getValue().get();
+        result.copied++;
+        relocatedSources.add(copy.getKey());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        result.failed++;
+        logger.error("StudyResourceRelocationService - relocate() - interrupted", e);
+      } catch (ExecutionException e) {
+        result.failed++;
+        logger.error(
+            String.format("Copy of %s in cloud storage failed", copy.getKey()), e.getCause());
+      }
+    }
+
+    if (delete && !relocatedSources.isEmpty()) {
+      try {
+        storage.delete(relocatedSources);
+      } catch (Exception e) {
+        // the sources are deleted when the relocation is run again
+        result.failed += relocatedSources.size();
+        logger.error("Delete of relocated files in cloud storage failed", e);
+      }
+    }
+
+    logger.exit(
+        String.format(
+            "copied=%d skipped=%d missing=%d failed=%d",
+            result.copied, result.skipped, result.missing, result.failed));
+    return result;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  /** A resource file to be copied or moved from the source path to the target path. */
+  public static class Relocation {
+
+    private final String source;
+
+    private final String target;
+
+    public Relocation(String source, String target) {
+      this.source = source;
+      this.target = target;
+    }
+
+    public String getSource() {
+      return source;
+    }
+
+    public String getTarget() {
+      return target;
+    }
+  }
+
+  /** The number of files of a manifest by what was done with them. */
+  public static class Result {
+
+    private int copied;
+
+    private int skipped;
+
+    private int missing;
+
+    private int failed;
+
+    public int getCopied() {
+      return copied;
+    }
+
+    /** Returns the number of files whose target already had the content of the source. */
+    public int getSkipped() {
+      return skipped;
+    }
+
+    /** Returns the number of files with neither a source nor a target. */
+    public int getMissing() {
+      return missing;
+    }
+
+    public int getFailed() {
+      return failed;
+    }
+
+    /** Returns true if every file is in place, so the relocation need not be run again. */
+    public boolean isComplete() {
+      return failed == 0;
+    }
+  }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.fdahpstudydesigner.service;
+
+import static com.fdahpstudydesigner.util.FdahpStudyDesignerConstants.IMPORT_FAILED_DUE_TO_ANOMOLIES_DETECTED_IN_FILLE;
+
+import com.fdahpstudydesigner.util.FdahpStudyDesignerUtil;
+import com.fdahpstudydesigner.util.SqlInsertStatement;
+import com.fdahpstudydesigner.util.StudyExportSqlQueries;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import javax.sql.DataSource;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Imports the INSERT statements of a study export, or the rows of an export written by {@link
+ * JsonLinesStudyExportWriter}.
+ *
+ * <p>The statements are parsed into parameterized statements as they are read, and the rows are
+ * grouped by table, in the order the tables first appear in the export so that referenced rows are
+ * inserted first. Each table is inserted with JDBC batches of import.batch.size rows, all in one
+ * transaction, so a failed import leaves no rows behind.
+ */
+@Component
+public class StudySqlImporter {
+
+  private static XLogger logger = XLoggerFactory.getXLogger(StudySqlImporter.class.getName());
+
+  private static final int DEFAULT_BATCH_SIZE = 500;
+
+  private static final String STUDIES = "studies";
+
+  private static final Set<String> ALLOWED_TABLE_NAMES =
+      new HashSet<>(Arrays.asList(StudyExportSqlQueries.ALLOWED_STUDY_TABLE_NAMES));
+
+  private final int batchSize =
+      NumberUtils.toInt(
+          FdahpStudyDesignerUtil.getAppProperties().get("import.batch.size"), DEFAULT_BATCH_SIZE);
+
+  private JdbcTemplate jdbcTemplate;
+
+  private TransactionTemplate transactionTemplate;
+
+  @Autowired
+  public void setDataSource(DataSource dataSource) {
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+    this.transactionTemplate =
+        new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+  }
+
+  /**
+   * Validates the statements read from the export against the allowed tables and the checksum of
+   * the export, inserts their rows, and returns the id of the imported study.
+   */
+  public String importStatements(BufferedReader reader, long checksum) throws Exception {
+    logger.entry("begin importStatements()");
+    long start = System.nanoTime();
+
+    // the checksum is computed over the lines as they were joined by saveFileToCloudStorage
+    CRC32 crc32 = new CRC32();
+    byte[] lineSeparator = System.lineSeparator().getBytes();
+    Map<String, TableRows> tables = new LinkedHashMap<>();
+    String studyId = null;
+    String line;
+    while ((line = reader.readLine()) != null) {
+      SqlInsertStatement statement;
+      try {
+        statement = SqlInsertStatement.parse(line);
+      } catch (SQLException e) {
+        logger.error("StudySqlImporter - importStatements() - invalid statement", e);
+        throw new Exception(IMPORT_FAILED_DUE_TO_ANOMOLIES_DETECTED_IN_FILLE);
+      }
+      if (!ALLOWED_TABLE_NAMES.contains(statement.getTableName())) {
+        throw new Exception(IMPORT_FAILED_DUE_TO_ANOMOLIES_DETECTED_IN_FILLE);
+      }
+      if (STUDIES.equals(statement.getTableName())) {
+        studyId = (String) statement.getValues()[0];
+      }
+
+      TableRows rows = tables.get(statement.getSql());
+      if (rows == null) {
+        rows = new TableRows(statement.getTableName(), statement.getSql());
+        tables.put(statement.getSql(), rows);
+      }
+      rows.values.add(statement.getValues());
+
+      byte[] bytes = line.getBytes();
+      crc32.update(bytes, 0, bytes.length);
+      crc32.update(lineSeparator, 0, lineSeparator.length);
+    }
+
+    if (checksum != crc32.getValue() || studyId == null) {
+      throw new Exception(IMPORT_FAILED_DUE_TO_ANOMOLIES_DETECTED_IN_FILLE);
+    }
+    logger.info(
+        String.format(
+            "read %d tables of study %s in %d ms",
+            tables.size(), studyId, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+
+    insert(new ArrayList<>(tables.values()));
+    logger.exit(
+        String.format(
+            "imported study %s in %d ms",
+            studyId, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+    return studyId;
+  }
+
+  /**
+   * Validates the rows of the export against the allowed tables and its manifest, inserts them, and
+   * returns the id of the imported study.
+   */
+  public String importRows(JsonLinesStudyExportReader reader) throws Exception {
+    logger.entry("begin importRows()");
+    long start = System.nanoTime();
+
+    final Map<String, TableRows> tables = new LinkedHashMap<>();
+    final String[] studyId = new String[1];
+    try {
+      reader.readRows(
+          new JsonLinesStudyExportReader.RowHandler() {
+            @Override
+            public void row(String tableName, String[] columns, Object[] values)
+                throws SQLException {
+              if (!ALLOWED_TABLE_NAMES.contains(tableName)) {
+                throw new SQLException("Table not allowed: " + tableName);
+              }
+              StringBuilder sql = new StringBuilder("INSERT INTO `" + tableName + "` (");
+              for (int i = 0; i < columns.length; i++) {
+                if (!SqlInsertStatement.COLUMN_NAME.matcher(columns[i]).matches()) {
+                  throw new SQLException("Invalid column name: " + columns[i]);
+                }
+                if (STUDIES.equals(tableName) && "id".equals(columns[i])) {
+                  studyId[0] = (String) values[i];
+                }
+                sql.append(i == 0 ? "`" : ", `").append(columns[i]).append('`');
+              }
+              sql.append(") VALUES (");
+              for (int i = 0; i < columns.length; i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+              }
+              sql.append(')');
+
+              TableRows rows = tables.get(sql.toString());
+              if (rows == null) {
+                rows = new TableRows(tableName, sql.toString());
+                tables.put(sql.toString(), rows);
+              }
+              rows.values.add(values);
+            }
+          });
+    } catch (SQLException | IOException | ClassCastException e) {
+      logger.error("StudySqlImporter - importRows() - invalid export", e);
+      throw new Exception(IMPORT_FAILED_DUE_TO_ANOMOLIES_DETECTED_IN_FILLE);
+    }
+
+    if (studyId[0] == null) {
+      throw new Exception(IMPORT_FAILED_DUE_TO_ANOMOLIES_DETECTED_IN_FILLE);
+    }
+    logger.info(
+        String.format(
+            "read %d tables of study %s in %d ms",
+            tables.size(), studyId[0], TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+
+    insert(new ArrayList<>(tables.values()));
+    logger.exit(
+        String.format(
+            "imported study %s in %d ms",
+            studyId[0], TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+    return studyId[0];
+  }
+
+  private void insert(final List<TableRows> tables) {
+    transactionTemplate.execute(
+        new TransactionCallback<Void>() {
+          @Override
+          public Void doInTransaction(TransactionStatus status) {
+            for (int i = 0; i < tables.size(); i++) {
+              TableRows rows = tables.get(i);
+              long start = System.nanoTime();
+              for (int from = 0; from < rows.values.size(); from += batchSize) {
+                jdbcTemplate.batchUpdate(
+                    rows.sql,
+                    rows.values.subList(from, Math.min(from + batchSize, rows.values.size())));
+              }
+              logger.info(
+                  String.format(
+                      "imported table %d of %d: %d rows into %s in %d ms",
+                      i + 1,
+                      tables.size(),
+                      rows.values.size(),
+                      rows.tableName,
+                      TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+            }
+            return null;
+          }
+        });
+  }
+
+  private static class TableRows {
+
+    private final String tableName;
+
+    private final String sql;
+
+    private final List<Object[]> values = new ArrayList<>();
+
+    private TableRows(String tableName, String sql) {
+      this.tableName = tableName;
+      this.sql = sql;
+    }
+  }
+}
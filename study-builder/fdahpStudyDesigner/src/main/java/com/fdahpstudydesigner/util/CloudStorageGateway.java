@@ -0,0 +1,337 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.fdahpstudydesigner.util;
+
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.Storage;
+import com.google.cloud.storage.StorageOptions;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.lang3.math.NumberUtils;
+
+/**
+ * The cloud storage client of the study builder, shared by all requests, with a cache of the image
+ * data URIs shown on its pages.
+ *
+ * <p>The data URIs are kept by the MD5 hash of the image, so an image shared by several studies is
+ * kept once, up to cloud.storage.image.cache.max.bytes in all. The hash of each image path is kept
+ * for cloud.storage.image.cache.ttl.seconds, and is dropped when a file is written, copied or
+ * deleted through the gateway, so an uploaded image is shown right away.
+ *
+ * <p>The number of requests and bytes of each kind of operation, and of the cache hits and misses,
+ * are counted from the start of the application, and returned by getMetrics().
+ */
+public final class CloudStorageGateway {
+
+  private static final long DEFAULT_IMAGE_CACHE_MAX_BYTES = 32L * 1024 * 1024;
+
+  private static final long DEFAULT_IMAGE_CACHE_TTL_SECONDS = 600;
+
+  private static final int MAX_IMAGE_PATHS = 10000;
+
+  private static final String DATA_URI_PREFIX = "data:image/jpeg;base64,";
+
+  private static volatile CloudStorageGateway instance;
+
+  private final long imageCacheMaxBytes;
+
+  private final long imageCacheTtlMillis;
+
+  private final Map<String, ImagePath> imagePaths;
+
+  private final LinkedHashMap<String, String> imageDataUris =
+      new LinkedHashMap<String, String>(16, 0.75f, true);
+
+  private long imageDataUriBytes;
+
+  private final Map<String, AtomicLong> metrics = new LinkedHashMap<>();
+
+  private final AtomicLong reads = metric("reads");
+
+  private final AtomicLong bytesRead = metric("bytesRead");
+
+  private final AtomicLong writes = metric("writes");
+
+  private final AtomicLong bytesWritten = metric("bytesWritten");
+
+  private final AtomicLong copies = metric("copies");
+
+  private final AtomicLong deletes = metric("deletes");
+
+  private final AtomicLong metadataReads = metric("metadataReads");
+
+  private final AtomicLong signedUrls = metric("signedUrls");
+
+  private final AtomicLong imageCacheHits = metric("imageCacheHits");
+
+  private final AtomicLong imageCacheMisses = metric("imageCacheMisses");
+
+  private final AtomicLong imageCacheEvictions = metric("imageCacheEvictions");
+
+  private volatile Storage storage;
+
+  @SuppressWarnings("serial")
+  CloudStorageGateway(Storage storage, long imageCacheMaxBytes, long imageCacheTtlMillis) {
+    this.storage = storage;
+    this.imageCacheMaxBytes = imageCacheMaxBytes;
+    this.imageCacheTtlMillis = imageCacheTtlMillis;
+    this.imagePaths =
+        new LinkedHashMap<String, ImagePath>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, ImagePath> eldest) {
+            return size() > MAX_IMAGE_PATHS;
+          }
+        };
+  }
+
+  public static CloudStorageGateway getInstance() {
+    CloudStorageGateway current = instance;
+    if (current == null) {
+      synchronized (CloudStorageGateway.class) {
+        current = instance;
+        if (current == null) {
+          Map<String, String> configMap = FdahpStudyDesignerUtil.getAppProperties();
+          current =
+              new CloudStorageGateway(
+                  null,
+                  NumberUtils.toLong(
+                      configMap.get("cloud.storage.image.cache.max.bytes"),
+                      DEFAULT_IMAGE_CACHE_MAX_BYTES),
+                  TimeUnit.SECONDS.toMillis(
+                      NumberUtils.toLong(
+                          configMap.get("cloud.storage.image.cache.ttl.seconds"),
+                          DEFAULT_IMAGE_CACHE_TTL_SECONDS)));
+          instance = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  /** Returns the client, which is created on first use. */
+  public Storage getStorage() {
+    Storage current = storage;
+    if (current == null) {
+      synchronized (this) {
+        current = storage;
+        if (current == null) {
+          current = StorageOptions.getDefaultInstance().getService();
+          storage = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  /** Returns the content of the file, or null if there is none. */
+  public byte[] getContent(String bucketName, String name) {
+    Blob blob = getBlob(bucketName, name);
+    return blob != null ? read(blob) : null;
+  }
+
+  /** Returns a stream of the content of the file, or null if there is none. */
+  public InputStream getContentStream(String bucketName, String name) {
+    Blob blob = getBlob(bucketName, name);
+    if (blob == null) {
+      return null;
+    }
+    reads.incrementAndGet();
+    if (blob.getSize() != null) {
+      bytesRead.addAndGet(blob.getSize());
+    }
+    return Channels.newInputStream(blob.reader());
+  }
+
+  public void create(BlobInfo blobInfo, byte[] content) {
+    invalidate(blobInfo.getBucket(), blobInfo.getName());
+    getStorage().create(blobInfo, content);
+    writes.incrementAndGet();
+    bytesWritten.addAndGet(content.length);
+    invalidate(blobInfo.getBucket(), blobInfo.getName());
+  }
+
+  /** Returns a stream that writes the file as it is written to. */
+  public OutputStream getOutputStream(BlobInfo blobInfo) {
+    invalidate(blobInfo.getBucket(), blobInfo.getName());
+    writes.incrementAndGet();
+    return new CountingOutputStream(Channels.newOutputStream(getStorage().writer(blobInfo)));
+  }
+
+  /** Returns the files that exist, in the order of the ids, with null for a missing file. */
+  public List<Blob> get(List<BlobId> blobIds) {
+    metadataReads.addAndGet(blobIds.size());
+    return getStorage().get(blobIds);
+  }
+
+  public void copy(BlobId source, BlobId target) {
+    invalidate(target.getBucket(), target.getName());
+    Blob copied = getStorage().copy(Storage.CopyRequest.of(source, target)).getResult();
+    copies.incrementAndGet();
+    if (copied != null && copied.getSize() != null) {
+      bytesWritten.addAndGet(copied.getSize());
+    }
+    invalidate(target.getBucket(), target.getName());
+  }
+
+  public void delete(List<BlobId> blobIds) {
+    for (BlobId blobId : blobIds) {
+      invalidate(blobId.getBucket(), blobId.getName());
+    }
+    getStorage().delete(blobIds);
+    deletes.addAndGet(blobIds.size());
+  }
+
+  public URL signUrl(BlobInfo blobInfo, long duration, TimeUnit unit) {
+    signedUrls.incrementAndGet();
+    return getStorage().signUrl(blobInfo, duration, unit);
+  }
+
+  /**
+   * Returns the image as a data URI to be embedded in a page, or null if there is no such file. The
+   * image is downloaded only if its content is not in the cache.
+   */
+  public String getImageDataUri(String bucketName, String name) {
+    String path = bucketName + "/" + name;
+    long now = System.currentTimeMillis();
+    synchronized (this) {
+      ImagePath imagePath = imagePaths.get(path);
+      if (imagePath != null && imagePath.expiresAt > now) {
+        String dataUri = imageDataUris.get(imagePath.contentHash);
+        if (dataUri != null) {
+          imageCacheHits.incrementAndGet();
+          return dataUri;
+        }
+      }
+    }
+
+    Blob blob = getBlob(bucketName, name);
+    if (blob == null) {
+      return null;
+    }
+    String contentHash = blob.getMd5() != null ? blob.getMd5() : blob.getCrc32c();
+    String dataUri = null;
+    if (contentHash != null) {
+      synchronized (this) {
+        dataUri = imageDataUris.get(contentHash);
+      }
+    }
+    if (dataUri != null) {
+      imageCacheHits.incrementAndGet();
+    } else {
+      imageCacheMisses.incrementAndGet();
+      dataUri = DATA_URI_PREFIX + Base64.getEncoder().encodeToString(read(blob));
+    }
+    if (contentHash != null) {
+      cacheImage(path, contentHash, dataUri, now);
+    }
+    return dataUri;
+  }
+
+  /** Drops the cached image of the path, once the file is written or deleted. */
+  public void invalidate(String bucketName, String name) {
+    synchronized (this) {
+      imagePaths.remove(bucketName + "/" + name);
+    }
+  }
+
+  /** Returns the counts of requests, bytes and cache hits since the start of the application. */
+  public Map<String, Long> getMetrics() {
+    Map<String, Long> values = new LinkedHashMap<>();
+    for (Map.Entry<String, AtomicLong> metric : metrics.entrySet()) {
+      values.put(metric.getKey(), metric.getValue().get());
+    }
+    synchronized (this) {
+      values.put("imageCacheEntries", (long) imageDataUris.size());
+      values.put("imageCacheBytes", imageDataUriBytes);
+    }
+    return values;
+  }
+
+  private Blob getBlob(String bucketName, String name) {
+    metadataReads.incrementAndGet();
+    return getStorage().get(BlobId.of(bucketName, name));
+  }
+
+  private byte[] read(Blob blob) {
+    byte[] content = blob.getContent();
+    reads.incrementAndGet();
+    bytesRead.addAndGet(content.length);
+    return content;
+  }
+
+  private synchronized void cacheImage(String path, String contentHash, String dataUri, long now) {
+    imagePaths.put(path, new ImagePath(contentHash, now + imageCacheTtlMillis));
+    if (imageDataUris.containsKey(contentHash) || dataUri.length() > imageCacheMaxBytes) {
+      return;
+    }
+    imageDataUris.put(contentHash, dataUri);
+    imageDataUriBytes += dataUri.length();
+    List<String> evicted = new ArrayList<>();
+    for (Map.Entry<String, String> eldest : imageDataUris.entrySet()) {
+      if (imageDataUriBytes <= imageCacheMaxBytes) {
+        break;
+      }
+      evicted.add(eldest.getKey());
+      imageDataUriBytes -= eldest.getValue().length();
+    }
+    for (String key : evicted) {
+      imageDataUris.remove(key);
+    }
+    imageCacheEvictions.addAndGet(evicted.size());
+  }
+
+  private AtomicLong metric(String name) {
+    AtomicLong value = new AtomicLong();
+    metrics.put(name, value);
+    return value;
+  }
+
+  private static class ImagePath {
+
+    private final String contentHash;
+
+    private final long expiresAt;
+
+    private ImagePath(String contentHash, long expiresAt) {
+      this.contentHash = contentHash;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+  /** Counts the bytes written through the stream. */
+  private class CountingOutputStream extends java.io.FilterOutputStream {
+
+    private CountingOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws java.io.IOException {
+      out.write(b);
+      bytesWritten.incrementAndGet();
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws java.io.IOException {
+      out.write(b, off, len);
+      bytesWritten.addAndGet(len);
+    }
+  }
+}
@@ -27,11 +27,9 @@ import com.fdahpstudydesigner.bean.FormulaInfoBean;
 import com.fdahpstudydesigner.bo.StudyBo;
 import com.fdahpstudydesigner.bo.UserBO;
 import com.fdahpstudydesigner.bo.UserPermissions;
-import com.google.cloud.storage.Blob;
+import com.fdahpstudydesigner.service.StudyResourceRelocationService;
 import com.google.cloud.storage.BlobId;
 import com.google.cloud.storage.BlobInfo;
-import com.google.cloud.storage.Storage;
-import com.google.cloud.storage.StorageOptions;
 import java.awt.image.BufferedImage;
 import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
@@ -39,6 +37,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Paths;
@@ -48,6 +47,7 @@ import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.Calendar;
 import java.util.Collection;
@@ -61,6 +61,7 @@ import java.util.Properties;
 import java.util.ResourceBundle;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -1034,8 +1035,7 @@ public class FdahpStudyDesignerUtil {
         BlobInfo.newBuilder(configMap.get("cloud.bucket.name"), absoluteFileName).build();
 
     try {
-      Storage storage = StorageOptions.getDefaultInstance().getService();
-      storage.create(blobInfo, fileStream.getBytes());
+      CloudStorageGateway.getInstance().create(blobInfo, fileStream.getBytes());
 
     } catch (Exception e) {
       logger.error("Save Image in cloud storage failed", e);
@@ -1049,8 +1049,7 @@ public class FdahpStudyDesignerUtil {
     BlobInfo blobInfo =
         BlobInfo.newBuilder(configMap.get("cloud.bucket.name"), absoluteFileName).build();
     try {
-      Storage storage = StorageOptions.getDefaultInstance().getService();
-      storage.create(blobInfo, fileStream.getBytes());
+      CloudStorageGateway.getInstance().create(blobInfo, fileStream.getBytes());
     } catch (Exception e) {
       logger.error("Save Default Image to cloud storage failed", e);
     }
@@ -1067,11 +1066,15 @@ public class FdahpStudyDesignerUtil {
     return null;
   }
 
-  public static void copyOrMoveStudyResources(
+  /**
+   * Returns the relocation of a study resource file under studies/customStudyId to
+   * studies/newCustomStudyId, or of a file at the bucket root to studies/customStudyId if
+   * isOldFilePath is true.
+   */
+  public static StudyResourceRelocationService.Relocation getStudyResourceRelocation(
       String fileName,
       String underDirectory,
       String customStudyId,
-      boolean delete,
       boolean isOldFilePath,
       String newCustomStudyId) {
     String newFilePath;
@@ -1105,31 +1108,16 @@ public class FdahpStudyDesignerUtil {
               + PATH_SEPARATOR
               + fileName;
     }
-
-    try {
-      Storage storage = StorageOptions.getDefaultInstance().getService();
-      Blob blob = storage.get(BlobId.of(configMap.get("cloud.bucket.name"), oldFilePath));
-
-      if (blob != null) {
-        blob.copyTo(configMap.get("cloud.bucket.name"), newFilePath);
-        // Delete the original blob now that we've copied to where we want it, finishing the "move"
-        // operation
-        if (delete) {
-          blob.delete();
-        }
-      }
-
-    } catch (Exception e) {
-      logger.error("Save Image in cloud storage failed", e);
-    }
+    return new StudyResourceRelocationService.Relocation(oldFilePath, newFilePath);
   }
 
   public static String getSignedUrlForExportedStudy(String filePath, int signedUrlDurationInHours) {
     try {
       BlobInfo blobInfo =
           BlobInfo.newBuilder(configMap.get("cloud.bucket.name.export.studies"), filePath).build();
-      Storage storage = StorageOptions.getDefaultInstance().getService();
-      return storage.signUrl(blobInfo, signedUrlDurationInHours, TimeUnit.HOURS).toString();
+      return CloudStorageGateway.getInstance()
+          .signUrl(blobInfo, signedUrlDurationInHours, TimeUnit.HOURS)
+          .toString();
     } catch (Exception e) {
       logger.error("Unable to generate signed url", e);
     }
@@ -1148,12 +1136,55 @@ public class FdahpStudyDesignerUtil {
   }
 
   public static byte[] getResource(String filePath) {
-    Storage storage = StorageOptions.getDefaultInstance().getService();
-    Blob blob = storage.get(BlobId.of(configMap.get("cloud.bucket.name"), filePath));
-    if (blob != null) {
-      return blob.getContent();
+    return CloudStorageGateway.getInstance()
+        .getContent(configMap.get("cloud.bucket.name"), filePath);
+  }
+
+  /** Returns a stream of the content of the file in cloud storage, or null if there is none. */
+  public static InputStream getResourceStream(String filePath) {
+    return CloudStorageGateway.getInstance()
+        .getContentStream(configMap.get("cloud.bucket.name"), filePath);
+  }
+
+  /**
+   * Returns the name of a temporary file in cloud storage to which an export of the study is
+   * uploaded, so that the previous export is replaced only by a complete one.
+   */
+  public static String getExportUploadName(String customStudyId) {
+    return "export-studies/uploads/" + customStudyId + "-" + UUID.randomUUID() + ".zip";
+  }
+
+  /**
+   * Returns a stream that uploads an export to the temporary file as it is written. The upload is
+   * complete once the stream is closed, and is then published with {@link #publishExport}.
+   */
+  public static OutputStream getExportOutputStream(String uploadName) {
+    BlobInfo blobInfo =
+        BlobInfo.newBuilder(configMap.get("cloud.bucket.name.export.studies"), uploadName)
+            .setContentType("application/zip")
+            .build();
+    return CloudStorageGateway.getInstance().getOutputStream(blobInfo);
+  }
+
+  /** Replaces the exported study with the completed upload. */
+  public static void publishExport(String uploadName, String customStudyId) {
+    String bucketName = configMap.get("cloud.bucket.name.export.studies");
+    CloudStorageGateway.getInstance()
+        .copy(
+            BlobId.of(bucketName, uploadName),
+            BlobId.of(bucketName, "export-studies/" + customStudyId + ".zip"));
+  }
+
+  /** Deletes the temporary file of an export, once published or when the export failed. */
+  public static void deleteExportUpload(String uploadName) {
+    try {
+      CloudStorageGateway.getInstance()
+          .delete(
+              Arrays.asList(
+                  BlobId.of(configMap.get("cloud.bucket.name.export.studies"), uploadName)));
+    } catch (Exception e) {
+      logger.error("deleteExportUpload failed", e);
     }
-    return null;
   }
 
   public static void uplaodZip(String filePath, String customStudyId) throws IOException {
@@ -1164,8 +1195,7 @@ public class FdahpStudyDesignerUtil {
             .setContentType("application/zip")
             .build();
     try {
-      Storage storage = StorageOptions.getDefaultInstance().getService();
-      storage.create(blobInfo, Files.readAllBytes(Paths.get(filePath)));
+      CloudStorageGateway.getInstance().create(blobInfo, Files.readAllBytes(Paths.get(filePath)));
 
     } catch (Exception e) {
       logger.error("uplaodZip failed", e);
@@ -1274,16 +1304,15 @@ public class FdahpStudyDesignerUtil {
     return destFile;
   }
 
+  /**
+   * Returns the image as a data URI, from the cache of CloudStorageGateway if its content is
+   * already there.
+   */
   public static String getImageResources(String filepath) {
     try {
       if (StringUtils.isNotBlank(filepath)) {
-        Storage storage = StorageOptions.getDefaultInstance().getService();
-        Blob blob = storage.get(BlobId.of(configMap.get("cloud.bucket.name"), filepath));
-        if (blob != null) {
-          ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-          blob.downloadTo(outputStream);
-          return "data:image/jpeg;base64," + Base64.getEncoder().encodeToString(blob.getContent());
-        }
+        return CloudStorageGateway.getInstance()
+            .getImageDataUri(configMap.get("cloud.bucket.name"), filepath);
       }
     } catch (Exception e) {
       logger.error("Unable to getImageResources", e);
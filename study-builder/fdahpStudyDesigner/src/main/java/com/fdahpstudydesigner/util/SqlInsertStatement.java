@@ -0,0 +1,199 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.fdahpstudydesigner.util;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * An INSERT statement of a study export, as written by the templates of StudyExportSqlQueries,
+ * split into a parameterized statement and its values.
+ */
+public final class SqlInsertStatement {
+
+  private static final String INSERT_INTO = "INSERT INTO `";
+
+  private static final String VALUES = ") VALUES (";
+
+  /** The column names a statement may insert, which are written into the parameterized SQL. */
+  public static final Pattern COLUMN_NAME = Pattern.compile("[A-Za-z0-9_]+");
+
+  private final String tableName;
+
+  private final String sql;
+
+  private final Object[] values;
+
+  private SqlInsertStatement(String tableName, String sql, Object[] values) {
+    this.tableName = tableName;
+    this.sql = sql;
+    this.values = values;
+  }
+
+  public String getTableName() {
+    return tableName;
+  }
+
+  /** Returns the statement with a ? placeholder in place of each value. */
+  public String getSql() {
+    return sql;
+  }
+
+  public Object[] getValues() {
+    return values;
+  }
+
+  /**
+   * Parses a statement of the form INSERT INTO `table` (`column`, ...) VALUES (value, ...); where
+   * each value is a quoted string, a number, true, false or null. Quoted strings are read the way
+   * MySQL reads them, backslash escapes included. Each column must be a backquoted {@link
+   * #COLUMN_NAME}.
+   */
+  public static SqlInsertStatement parse(String statement) throws SQLException {
+    if (!statement.startsWith(INSERT_INTO)) {
+      throw new SQLException("Not an INSERT statement");
+    }
+    int tableEnd = statement.indexOf('`', INSERT_INTO.length());
+    int valuesStart = statement.indexOf(VALUES);
+    if (tableEnd < 0
+        || valuesStart < tableEnd + 2
+        || statement.charAt(tableEnd + 1) != ' '
+        || statement.charAt(tableEnd + 2) != '(') {
+      throw new SQLException("Malformed INSERT statement");
+    }
+    String tableName = statement.substring(INSERT_INTO.length(), tableEnd);
+    String[] columns = statement.substring(tableEnd + 3, valuesStart).split(",", -1);
+    int columnCount = columns.length;
+    StringBuilder sql = new StringBuilder(INSERT_INTO).append(tableName).append("` (");
+    for (int j = 0; j < columnCount; j++) {
+      String column = columns[j].trim();
+      if (column.length() < 2
+          || column.charAt(0) != '`'
+          || column.charAt(column.length() - 1) != '`'
+          || !COLUMN_NAME.matcher(column.substring(1, column.length() - 1)).matches()) {
+        throw new SQLException("Invalid column name: " + column);
+      }
+      sql.append(j == 0 ? "" : ", ").append(column);
+    }
+
+    List<Object> values = new ArrayList<>(columnCount);
+    int i = valuesStart + VALUES.length();
+    while (true) {
+      i = skipWhitespace(statement, i);
+      if (i >= statement.length()) {
+        throw new SQLException("Unterminated INSERT statement");
+      }
+      StringBuilder value = new StringBuilder();
+      if (statement.charAt(i) == '\'') {
+        i = readQuoted(statement, i + 1, value);
+        values.add(value.toString());
+      } else {
+        while (i < statement.length() && statement.charAt(i) != ',' && statement.charAt(i) != ')') {
+          value.append(statement.charAt(i++));
+        }
+        values.add(toLiteral(value.toString().trim()));
+      }
+      i = skipWhitespace(statement, i);
+      if (i >= statement.length()) {
+        throw new SQLException("Unterminated INSERT statement");
+      }
+      char separator = statement.charAt(i++);
+      if (separator == ')') {
+        break;
+      } else if (separator != ',') {
+        throw new SQLException("Malformed INSERT statement");
+      }
+    }
+    if (!statement.substring(i).trim().equals(";")) {
+      throw new SQLException("Malformed INSERT statement");
+    }
+    if (values.size() != columnCount) {
+      throw new SQLException("Column count doesn't match value count.");
+    }
+
+    sql.append(") VALUES (");
+    for (int j = 0; j < columnCount; j++) {
+      sql.append(j == 0 ? "?" : ", ?");
+    }
+    sql.append(")");
+    return new SqlInsertStatement(tableName, sql.toString(), values.toArray());
+  }
+
+  private static int skipWhitespace(String statement, int i) {
+    while (i < statement.length() && Character.isWhitespace(statement.charAt(i))) {
+      i++;
+    }
+    return i;
+  }
+
+  /** Reads a quoted string that starts at i into value, and returns the index after the quote. */
+  private static int readQuoted(String statement, int i, StringBuilder value) throws SQLException {
+    while (i < statement.length()) {
+      char c = statement.charAt(i++);
+      if (c == '\'') {
+        if (i < statement.length() && statement.charAt(i) == '\'') {
+          value.append('\'');
+          i++;
+        } else {
+          return i;
+        }
+      } else if (c == '\\' && i < statement.length()) {
+        char escaped = statement.charAt(i++);
+        switch (escaped) {
+          case '0':
+            value.append('\0');
+            break;
+          case 'b':
+            value.append('\b');
+            break;
+          case 'n':
+            value.append('\n');
+            break;
+          case 'r':
+            value.append('\r');
+            break;
+          case 't':
+            value.append('\t');
+            break;
+          case 'Z':
+            value.append('\u001A');
+            break;
+          case '%':
+          case '_':
+            // kept escaped, as they are only special in LIKE patterns
+            value.append('\\').append(escaped);
+            break;
+          default:
+            value.append(escaped);
+        }
+      } else {
+        value.append(c);
+      }
+    }
+    throw new SQLException("Unterminated string value");
+  }
+
+  private static Object toLiteral(String token) throws SQLException {
+    if ("null".equalsIgnoreCase(token)) {
+      return null;
+    } else if ("true".equalsIgnoreCase(token)) {
+      return Boolean.TRUE;
+    } else if ("false".equalsIgnoreCase(token)) {
+      return Boolean.FALSE;
+    }
+    try {
+      return new BigDecimal(token);
+    } catch (NumberFormatException e) {
+      throw new SQLException("Unexpected value " + token);
+    }
+  }
+}
@@ -11,21 +11,39 @@ package com.fdahpstudydesigner.controller;
 import static com.fdahpstudydesigner.common.StudyBuilderAuditEvent.APP_LEVEL_NOTIFICATION_CREATED;
 import static com.fdahpstudydesigner.common.StudyBuilderAuditEvent.APP_LEVEL_NOTIFICATION_LIST_VIEWED;
 import static com.fdahpstudydesigner.common.StudyBuilderAuditEvent.APP_LEVEL_NOTIFICATION_REPLICATED_FOR_RESEND;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
 
+import com.fdahpstudydesigner.bean.PushNotificationBean;
 import com.fdahpstudydesigner.bo.NotificationBO;
 import com.fdahpstudydesigner.common.BaseMockIT;
 import com.fdahpstudydesigner.common.PathMappingUri;
+import com.fdahpstudydesigner.dao.NotificationDAOImpl;
+import com.fdahpstudydesigner.util.FdahpStudyDesignerConstants;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
 import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
 public class NotificationControllerTest extends BaseMockIT {
 
+  private static final String SCHEDULED_TIMESTAMP = "2099-01-01 00:01:00.0";
+
+  @Autowired NotificationDAOImpl notificationDaoImpl;
+
+  @Autowired SessionFactory sessionFactory;
+
   @Test
   public void shouldViewNotificationList() throws Exception {
     HttpHeaders headers = getCommonHeaders();
@@ -90,4 +108,111 @@ public class NotificationControllerTest extends BaseMockIT {
 
     verifyAuditEventCall(APP_LEVEL_NOTIFICATION_CREATED);
   }
+
+  @Test
+  public void shouldClaimDueNotificationsOnce() {
+    String dueId = saveNotification("Announcement", true, "2099-01-01 00:00:00.0");
+    String notDoneId = saveNotification("Announcement", false, "2099-01-01 00:00:00.0");
+    String laterId = saveNotification("Announcement", true, "2099-01-01 00:02:00.0");
+
+    List<String> claimedIds =
+        getNotificationIds(notificationDaoImpl.claimPushNotifications(SCHEDULED_TIMESTAMP));
+
+    assertTrue(claimedIds.contains(dueId));
+    assertFalse(claimedIds.contains(notDoneId));
+    assertFalse(claimedIds.contains(laterId));
+    assertTrue(getNotification(dueId).isNotificationSent());
+    assertFalse(getNotification(laterId).isNotificationSent());
+    assertFalse(
+        getNotificationIds(notificationDaoImpl.claimPushNotifications(SCHEDULED_TIMESTAMP))
+            .contains(dueId));
+  }
+
+  @Test
+  public void shouldReleaseClaimedNotifications() {
+    String firstId = saveNotification("Announcement", true, "2099-01-01 00:00:00.0");
+    String secondId = saveNotification("Announcement", true, "2099-01-01 00:00:00.0");
+    notificationDaoImpl.claimPushNotifications(SCHEDULED_TIMESTAMP);
+
+    notificationDaoImpl.releasePushNotifications(Arrays.asList(firstId, secondId));
+
+    assertFalse(getNotification(firstId).isNotificationSent());
+    assertFalse(getNotification(secondId).isNotificationSent());
+    List<String> claimedIds =
+        getNotificationIds(notificationDaoImpl.claimPushNotifications(SCHEDULED_TIMESTAMP));
+    assertTrue(claimedIds.containsAll(Arrays.asList(firstId, secondId)));
+  }
+
+  @Test
+  public void shouldSavePushNotificationHistoryOfAnnouncements() {
+    String announcementId = saveNotification("Announcement", true, "2099-01-01 00:00:00.0");
+    String studyEventId =
+        saveNotification(FdahpStudyDesignerConstants.STUDY_EVENT, true, "2099-01-01 00:00:00.0");
+    List<PushNotificationBean> claimed = new ArrayList<>();
+    for (PushNotificationBean pushNotificationBean :
+        notificationDaoImpl.claimPushNotifications(SCHEDULED_TIMESTAMP)) {
+      if (pushNotificationBean.getNotificationId().equals(announcementId)
+          || pushNotificationBean.getNotificationId().equals(studyEventId)) {
+        claimed.add(pushNotificationBean);
+      }
+    }
+    assertEquals(2, claimed.size());
+
+    notificationDaoImpl.savePushNotificationHistory(claimed);
+
+    assertEquals(1, countNotificationHistory(announcementId));
+    assertEquals(0, countNotificationHistory(studyEventId));
+  }
+
+  private String saveNotification(
+      String notificationSubType, boolean notificationDone, String scheduleTimestamp) {
+    NotificationBO notificationBo = new NotificationBO();
+    notificationBo.setNotificationText("Scheduled notification");
+    notificationBo.setNotificationType(FdahpStudyDesignerConstants.NOTIFICATION_GT);
+    notificationBo.setNotificationSubType(notificationSubType);
+    notificationBo.setNotificationDone(notificationDone);
+    notificationBo.setAppId("GCPMS001");
+    notificationBo.setScheduleTimestamp(scheduleTimestamp);
+    Session session = sessionFactory.openSession();
+    try {
+      session.beginTransaction();
+      String notificationId = (String) session.save(notificationBo);
+      session.getTransaction().commit();
+      return notificationId;
+    } finally {
+      session.close();
+    }
+  }
+
+  private NotificationBO getNotification(String notificationId) {
+    Session session = sessionFactory.openSession();
+    try {
+      return (NotificationBO) session.get(NotificationBO.class, notificationId);
+    } finally {
+      session.close();
+    }
+  }
+
+  private long countNotificationHistory(String notificationId) {
+    Session session = sessionFactory.openSession();
+    try {
+      return (Long)
+          session
+              .createQuery(
+                  "select count(*) from NotificationHistoryBO NHBO"
+                      + " where NHBO.notificationId = :notificationId")
+              .setParameter("notificationId", notificationId)
+              .uniqueResult();
+    } finally {
+      session.close();
+    }
+  }
+
+  private static List<String> getNotificationIds(List<PushNotificationBean> pushNotificationBeans) {
+    List<String> notificationIds = new ArrayList<>();
+    for (PushNotificationBean pushNotificationBean : pushNotificationBeans) {
+      notificationIds.add(pushNotificationBean.getNotificationId());
+    }
+    return notificationIds;
+  }
 }
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.fdahpstudydesigner.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.fdahpstudydesigner.bean.StudyListBean;
+import com.fdahpstudydesigner.bo.ReferenceTablesBo;
+import com.fdahpstudydesigner.bo.StudyBo;
+import com.fdahpstudydesigner.bo.StudyPermissionBO;
+import com.fdahpstudydesigner.common.BaseMockIT;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.lang3.StringUtils;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+public class StudyDAOImplTest extends BaseMockIT {
+
+  private static final String SUPER_ADMIN_USER_ID = "1";
+
+  private static final String CUSTOM_STUDY_ID_PREFIX = "LISTTEST";
+
+  /** More than the 500 ids given to each IN (...) query of getStudyList(). */
+  private static final int LISTED_STUDIES = 505;
+
+  @Autowired private StudyDAO studyDAO;
+
+  @Autowired private SessionFactory sessionFactory;
+
+  private StudyBo liveStudy;
+
+  private StudyBo draftOfLiveStudy;
+
+  private StudyBo studyWithoutProjectLead;
+
+  @Before
+  public void createStudies() {
+    Session session = sessionFactory.openSession();
+    Transaction transaction = session.beginTransaction();
+    try {
+      liveStudy = newStudy(CUSTOM_STUDY_ID_PREFIX + "LIVE", 1.0f);
+      liveStudy.setLive(1);
+      session.save(liveStudy);
+      draftOfLiveStudy = newStudy(CUSTOM_STUDY_ID_PREFIX + "LIVE", 0f);
+      draftOfLiveStudy.setHasStudyDraft(1);
+      draftOfLiveStudy.setCategory("1");
+      draftOfLiveStudy.setResearchSponsor("Sponsor");
+      session.save(draftOfLiveStudy);
+      session.save(newProjectLead(draftOfLiveStudy));
+
+      studyWithoutProjectLead = newStudy(CUSTOM_STUDY_ID_PREFIX + "NOLEAD", 0f);
+      session.save(studyWithoutProjectLead);
+
+      for (int i = 0; i < LISTED_STUDIES; i++) {
+        StudyBo study = newStudy(CUSTOM_STUDY_ID_PREFIX + i, 0f);
+        study.setHasStudyDraft(i % 2);
+        session.save(study);
+        if (i % 3 != 0) {
+          session.save(newProjectLead(study));
+        }
+      }
+      transaction.commit();
+    } finally {
+      session.close();
+    }
+  }
+
+  @After
+  public void deleteStudies() {
+    Session session = sessionFactory.openSession();
+    Transaction transaction = session.beginTransaction();
+    try {
+      session
+          .createQuery(
+              "DELETE FROM StudyPermissionBO WHERE studyId IN"
+                  + " (SELECT s.id FROM StudyBo s WHERE s.customStudyId LIKE :prefix)")
+          .setString("prefix", CUSTOM_STUDY_ID_PREFIX + "%")
+          .executeUpdate();
+      session
+          .createQuery("DELETE FROM StudyBo WHERE customStudyId LIKE :prefix")
+          .setString("prefix", CUSTOM_STUDY_ID_PREFIX + "%")
+          .executeUpdate();
+      transaction.commit();
+    } finally {
+      session.close();
+    }
+  }
+
+  @Test
+  public void shouldSetStudyListDetailsAsQueriedForEachStudy() {
+    List<StudyListBean> studyListBeans = studyDAO.getStudyList(SUPER_ADMIN_USER_ID);
+
+    assertNotNull(studyListBeans);
+    assertTrue(studyListBeans.size() >= LISTED_STUDIES + 2);
+    Map<String, StudyListBean> beansById = new HashMap<>();
+    Session session = sessionFactory.openSession();
+    try {
+      for (StudyListBean bean : studyListBeans) {
+        StudyListBean expected = getStudyListDetails(session, bean.getId());
+        assertEquals(bean.getId(), expected.getCategory(), bean.getCategory());
+        assertEquals(bean.getId(), expected.getLiveStudyId(), bean.getLiveStudyId());
+        assertEquals(bean.getId(), expected.isFlag(), bean.isFlag());
+        assertEquals(bean.getId(), expected.getProjectLeadName(), bean.getProjectLeadName());
+        assertTrue(bean.getId(), bean.isViewPermission());
+        beansById.put(bean.getId(), bean);
+      }
+    } finally {
+      session.close();
+    }
+
+    StudyListBean draft = beansById.get(draftOfLiveStudy.getId());
+    assertEquals("Drug Safety", draft.getCategory());
+    assertEquals(liveStudy.getId(), draft.getLiveStudyId());
+    assertTrue(draft.isFlag());
+    assertEquals("abc", draft.getProjectLeadName());
+    assertEquals("None", beansById.get(studyWithoutProjectLead.getId()).getProjectLeadName());
+  }
+
+  /**
+   * Returns the details of the study as getStudyList() set them before it queried them for all the
+   * studies at once, with up to four queries for each study.
+   */
+  @SuppressWarnings("unchecked")
+  private StudyListBean getStudyListDetails(Session session, String id) {
+    StudyBo study =
+        (StudyBo)
+            session.createQuery("from StudyBo where id=:id").setParameter("id", id).uniqueResult();
+    StudyListBean bean = new StudyListBean(id, study.getCustomStudyId(), study.getName(), true);
+    bean.setCategory(study.getCategory());
+    if (StringUtils.isNotEmpty(study.getCategory())
+        && StringUtils.isNotEmpty(study.getResearchSponsor())) {
+      List<ReferenceTablesBo> referenceTablesBos =
+          session
+              .createQuery("from ReferenceTablesBo where id in(:category)")
+              .setParameter("category", study.getCategory())
+              .list();
+      if ((referenceTablesBos != null) && !referenceTablesBos.isEmpty()) {
+        bean.setCategory(referenceTablesBos.get(0).getValue());
+      }
+    }
+    if (StringUtils.isNotEmpty(study.getCustomStudyId())) {
+      StudyBo live =
+          (StudyBo)
+              session
+                  .createQuery("from StudyBo where customStudyId=:studyId and live=1")
+                  .setParameter("studyId", study.getCustomStudyId())
+                  .uniqueResult();
+      bean.setLiveStudyId(live != null ? live.getId() : null);
+    }
+    if ((bean.getLiveStudyId() != null) && (study.getHasStudyDraft() == 1)) {
+      bean.setFlag(true);
+    }
+    String userInfo =
+        (String)
+            session
+                .createQuery(
+                    "SELECT  u.firstName from StudyPermissionBO s , UserBO u where s.studyId=:id"
+                        + " and s.userId=u.userId and s.projectLead=1")
+                .setParameter("id", id)
+                .setMaxResults(1)
+                .uniqueResult();
+    bean.setProjectLeadName(StringUtils.isNotEmpty(userInfo) ? userInfo : "None");
+    return bean;
+  }
+
+  private static StudyBo newStudy(String customStudyId, float version) {
+    StudyBo study = new StudyBo();
+    study.setCustomStudyId(customStudyId);
+    study.setName("Study " + customStudyId);
+    study.setVersion(version);
+    study.setCreatedBy(SUPER_ADMIN_USER_ID);
+    study.setCreatedOn("2021-01-01 00:00:00");
+    study.setStatus("Pre-launch");
+    study.setAppId("APP" + customStudyId);
+    return study;
+  }
+
+  private static StudyPermissionBO newProjectLead(StudyBo study) {
+    StudyPermissionBO permission = new StudyPermissionBO();
+    permission.setStudyId(study.getId());
+    permission.setUserId(SUPER_ADMIN_USER_ID);
+    permission.setProjectLead(1);
+    permission.setViewPermission(true);
+    return permission;
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.fdahpstudydesigner.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+public class JsonLinesStudyExportWriterTest {
+
+  private static final String STUDIES =
+      "INSERT INTO `studies` (`id`, `description`, `version`, `status`, `created_on`) VALUES (<id>, <description>, <version>, <status>, <created_on>);";
+
+  private static final String QUESTIONS =
+      "INSERT INTO `questions` (`id`, `study_id`, `skippable`) VALUES (<id>, <study_id>, <skippable>);";
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  public void shouldWriteRowsResourcesAndManifest() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (JsonLinesStudyExportWriter writer = new JsonLinesStudyExportWriter(out)) {
+      writer.write(
+          STUDIES,
+          "STUDY001",
+          "First line\nSecond line, with a ' quote",
+          0f,
+          true,
+          Timestamp.valueOf("2021-03-04 05:06:07"));
+      writer.write(QUESTIONS, "Q1", "STUDY001", null);
+      writer.write(QUESTIONS, "Q2", "STUDY001", "Y");
+      writer.writeResource(
+          "studylogo/logo.png", new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5}));
+      Map<String, String> attributes = new LinkedHashMap<>();
+      attributes.put("releaseVersion", "2.0.7");
+      attributes.put("customStudyId", "CUSTOM001");
+      writer.finish(attributes);
+    }
+
+    Map<String, byte[]> entries = unzip(out.toByteArray());
+    assertEquals(
+        "[study.jsonl, studylogo/logo.png, manifest.json]", entries.keySet().toString());
+
+    String[] lines = new String(entries.get("study.jsonl"), "UTF-8").split("\n");
+    assertEquals(3, lines.length);
+    JsonNode study = objectMapper.readTree(lines[0]);
+    assertEquals("studies", study.get("table").asText());
+    assertEquals(
+        "First line\nSecond line, with a ' quote", study.get("row").get("description").asText());
+    assertEquals(0.0, study.get("row").get("version").asDouble(), 0);
+    assertTrue(study.get("row").get("status").asBoolean());
+    assertEquals("2021-03-04 05:06:07.0", study.get("row").get("created_on").asText());
+    JsonNode question = objectMapper.readTree(lines[1]);
+    assertEquals("questions", question.get("table").asText());
+    assertTrue(question.get("row").get("skippable").isNull());
+
+    JsonNode manifest = objectMapper.readTree(entries.get("manifest.json"));
+    assertEquals("jsonl", manifest.get("format").asText());
+    assertEquals(1, manifest.get("formatVersion").asInt());
+    assertEquals("2.0.7", manifest.get("releaseVersion").asText());
+    assertEquals("CUSTOM001", manifest.get("customStudyId").asText());
+    assertEquals(3, manifest.get("rows").get("count").asLong());
+    assertEquals(crc32(entries.get("study.jsonl")), manifest.get("rows").get("crc32").asLong());
+    assertEquals("studies", manifest.get("tables").get(0).get("name").asText());
+    assertEquals(1, manifest.get("tables").get(0).get("rows").asLong());
+    assertEquals("questions", manifest.get("tables").get(1).get("name").asText());
+    assertEquals(2, manifest.get("tables").get(1).get("rows").asLong());
+    assertEquals(
+        crc32((lines[1] + "\n" + lines[2] + "\n").getBytes("UTF-8")),
+        manifest.get("tables").get(1).get("crc32").asLong());
+    JsonNode resource = manifest.get("resources").get(0);
+    assertEquals("studylogo/logo.png", resource.get("name").asText());
+    assertEquals(5, resource.get("size").asLong());
+    assertEquals(crc32(entries.get("studylogo/logo.png")), resource.get("crc32").asLong());
+  }
+
+  @Test
+  public void shouldRejectValueCountMismatch() throws Exception {
+    try (JsonLinesStudyExportWriter writer =
+        new JsonLinesStudyExportWriter(new ByteArrayOutputStream())) {
+      writer.write(QUESTIONS, "Q1", "STUDY001");
+      fail("Expected SQLException");
+    } catch (SQLException e) {
+      assertEquals("Column count doesn't match value count.", e.getMessage());
+    }
+  }
+
+  @Test
+  public void shouldLeaveOutManifestOfIncompleteExport() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (JsonLinesStudyExportWriter writer = new JsonLinesStudyExportWriter(out)) {
+      writer.write(QUESTIONS, "Q1", "STUDY001", null);
+    }
+
+    Map<String, byte[]> entries = unzip(out.toByteArray());
+    assertEquals(Collections.singleton("study.jsonl"), entries.keySet());
+    assertFalse(entries.containsKey(JsonLinesStudyExportWriter.MANIFEST_ENTRY));
+  }
+
+  private static Map<String, byte[]> unzip(byte[] zip) throws IOException {
+    Map<String, byte[]> entries = new LinkedHashMap<>();
+    try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip))) {
+      ZipEntry entry;
+      while ((entry = in.getNextEntry()) != null) {
+        entries.put(entry.getName(), IOUtils.toByteArray(in));
+      }
+    }
+    return entries;
+  }
+
+  private static long crc32(byte[] bytes) {
+    CRC32 crc32 = new CRC32();
+    crc32.update(bytes, 0, bytes.length);
+    return crc32.getValue();
+  }
+}
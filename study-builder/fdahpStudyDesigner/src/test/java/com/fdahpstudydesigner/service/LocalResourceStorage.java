@@ -0,0 +1,101 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.fdahpstudydesigner.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+/** Keeps the files in a temporary directory, in place of the cloud storage bucket. */
+public class LocalResourceStorage implements ResourceStorage {
+
+  private final Path root;
+
+  private final AtomicInteger copies = new AtomicInteger();
+
+  public LocalResourceStorage() {
+    try {
+      root = Files.createTempDirectory("study-resources");
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public Map<String, String> getChecksums(Collection<String> names) {
+    Map<String, String> checksums = new HashMap<>();
+    for (String name : names) {
+      Path file = root.resolve(name);
+      if (Files.isRegularFile(file)) {
+        CRC32 crc = new CRC32();
+        crc.update(read(name));
+        checksums.put(name, Long.toHexString(crc.getValue()));
+      }
+    }
+    return checksums;
+  }
+
+  @Override
+  public void copy(String source, String target) {
+    try {
+      Path file = root.resolve(target);
+      Files.createDirectories(file.getParent());
+      Files.copy(root.resolve(source), file, StandardCopyOption.REPLACE_EXISTING);
+      copies.incrementAndGet();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void delete(Collection<String> names) {
+    try {
+      for (String name : names) {
+        Files.deleteIfExists(root.resolve(name));
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public void write(String name, String content) {
+    try {
+      Path file = root.resolve(name);
+      Files.createDirectories(file.getParent());
+      Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public boolean exists(String name) {
+    return Files.isRegularFile(root.resolve(name));
+  }
+
+  public byte[] read(String name) {
+    try {
+      return Files.readAllBytes(root.resolve(name));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** Returns the number of files copied so far. */
+  public int getCopies() {
+    return copies.get();
+  }
+}
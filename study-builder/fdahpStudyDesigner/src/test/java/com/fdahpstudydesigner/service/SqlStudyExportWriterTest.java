@@ -0,0 +1,58 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.fdahpstudydesigner.service;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.zip.CRC32;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SqlStudyExportWriterTest {
+
+  private static final String QUESTIONS =
+      "INSERT INTO `questions` (`id`, `description`, `skippable`, `sequence_no`) VALUES (<id>, <description>, <skippable>, <sequence_no>);";
+
+  private File file;
+
+  @Before
+  public void setUp() throws Exception {
+    file = File.createTempFile("export", ".sql");
+  }
+
+  @After
+  public void tearDown() {
+    file.delete();
+  }
+
+  @Test
+  public void shouldWriteStatementsWithChecksumOfTheFile() throws Exception {
+    SqlStudyExportWriter writer = new SqlStudyExportWriter(file);
+    writer.write(QUESTIONS, "Q1", "First line\nIt's the second line", null, 1);
+    writer.write(QUESTIONS, "Q2", null, "Y", 2);
+    writer.close();
+
+    List<String> lines = Files.readAllLines(file.toPath());
+    assertEquals(
+        "INSERT INTO `questions` (`id`, `description`, `skippable`, `sequence_no`) VALUES ('Q1', 'First line\\nIts the second line', null, 1);",
+        lines.get(0));
+    assertEquals(
+        "INSERT INTO `questions` (`id`, `description`, `skippable`, `sequence_no`) VALUES ('Q2', null, 'Y', 2);",
+        lines.get(1));
+
+    byte[] bytes = Files.readAllBytes(file.toPath());
+    CRC32 crc32 = new CRC32();
+    crc32.update(bytes, 0, bytes.length);
+    assertEquals(crc32.getValue(), writer.getChecksum());
+  }
+}
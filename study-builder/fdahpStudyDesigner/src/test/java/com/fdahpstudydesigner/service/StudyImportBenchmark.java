@@ -0,0 +1,201 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.fdahpstudydesigner.service;
+
+import com.fdahpstudydesigner.util.StudyExportSqlQueries;
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.net.ServerSocket;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import org.h2.tools.Server;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * Compares the import of a large synthetic study export, one statement at a time as
+ * validateAndExecuteQuries did, with the batched import of {@link StudySqlImporter}.
+ *
+ * <p>The database is an in-memory H2 database reached over a TCP connection on a free local port,
+ * so that each statement costs a round trip. The tables are created again before each import.
+ *
+ * <p>Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.fdahpstudydesigner.service.StudyImportBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StudyImportBenchmark {
+
+  private static final String[] QUESTION_TEMPLATES = {
+    StudyExportSqlQueries.QUESTIONNAIRES_STEPS,
+    StudyExportSqlQueries.QUESTIONS,
+    StudyExportSqlQueries.QUESTIONS_RESPONSE_TYPE,
+    StudyExportSqlQueries.RESPONSE_SUB_TYPE_VALUE,
+    StudyExportSqlQueries.RESPONSE_SUB_TYPE_VALUE
+  };
+
+  /** The number of questions of the study. */
+  @Param({"500", "2000"})
+  private int questions;
+
+  private Server server;
+
+  private Connection connection;
+
+  private JdbcTemplate jdbcTemplate;
+
+  private StudySqlImporter importer;
+
+  private List<String> lines;
+
+  private long checksum;
+
+  @Setup
+  public void setUp() throws Exception {
+    int port;
+    try (ServerSocket socket = new ServerSocket(0)) {
+      port = socket.getLocalPort();
+    }
+    server = Server.createTcpServer("-tcpPort", String.valueOf(port)).start();
+    // the database is created in process, as remote connections do not create databases
+    connection = DriverManager.getConnection("jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1");
+
+    DriverManagerDataSource dataSource = new DriverManagerDataSource();
+    dataSource.setDriverClassName("org.h2.Driver");
+    dataSource.setUrl("jdbc:h2:tcp://localhost:" + port + "/mem:benchmark;DB_CLOSE_DELAY=-1");
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    importer = new StudySqlImporter();
+    importer.setDataSource(dataSource);
+
+    lines = export(questions);
+    checksum = checksum(lines);
+  }
+
+  @Setup(Level.Invocation)
+  public void createTables() {
+    jdbcTemplate.execute("DROP ALL OBJECTS");
+    List<String> templates = new ArrayList<>();
+    templates.add(StudyExportSqlQueries.STUDIES);
+    for (String template : QUESTION_TEMPLATES) {
+      if (!templates.contains(template)) {
+        templates.add(template);
+      }
+    }
+    for (String template : templates) {
+      StringBuilder table =
+          new StringBuilder("CREATE TABLE ")
+              .append(template.substring(template.indexOf('`'), template.indexOf(" (")))
+              .append(" (");
+      String[] columns = columns(template);
+      for (int i = 0; i < columns.length; i++) {
+        table.append(i == 0 ? "" : ", ").append('`').append(columns[i]).append("` VARCHAR(255)");
+      }
+      jdbcTemplate.execute(table.append(")").toString());
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    connection.close();
+    server.stop();
+  }
+
+  /** The previous import, which executed each statement of the export on its own. */
+  @Benchmark
+  public int oneStatementAtATime() {
+    for (String line : lines) {
+      jdbcTemplate.execute(line);
+    }
+    return lines.size();
+  }
+
+  @Benchmark
+  public String batched() throws Exception {
+    return importer.importStatements(reader(lines), checksum);
+  }
+
+  /** Returns the statements of a study with the given number of questions, in export order. */
+  private static List<String> export(int questions) {
+    List<String> lines = new ArrayList<>();
+    lines.add(statement(StudyExportSqlQueries.STUDIES, "STUDY"));
+    for (int i = 0; i < questions; i++) {
+      for (int j = 0; j < QUESTION_TEMPLATES.length; j++) {
+        lines.add(statement(QUESTION_TEMPLATES[j], "Q" + i + "_" + j));
+      }
+    }
+    return lines;
+  }
+
+  /** Fills each column of the template with a quoted value made of the column name and a key. */
+  private static String statement(String template, String key) {
+    String statement = template;
+    for (String column : columns(template)) {
+      statement = statement.replace("<" + column + ">", "'" + column + "-" + key + "'");
+    }
+    return statement;
+  }
+
+  private static String[] columns(String template) {
+    String[] columns =
+        template
+            .substring(template.indexOf('(') + 1, template.indexOf(')'))
+            .replace("`", "")
+            .split(",");
+    for (int i = 0; i < columns.length; i++) {
+      columns[i] = columns[i].trim();
+    }
+    return columns;
+  }
+
+  private static BufferedReader reader(List<String> lines) {
+    StringBuilder content = new StringBuilder();
+    for (String line : lines) {
+      content.append(line).append(System.lineSeparator());
+    }
+    return new BufferedReader(new StringReader(content.toString()));
+  }
+
+  private static long checksum(List<String> lines) {
+    CRC32 crc32 = new CRC32();
+    for (String line : lines) {
+      byte[] bytes = (line + System.lineSeparator()).getBytes();
+      crc32.update(bytes, 0, bytes.length);
+    }
+    return crc32.getValue();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(StudyImportBenchmark.class.getSimpleName()).build())
+        .run();
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.fdahpstudydesigner.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.fdahpstudydesigner.service.StudyResourceRelocationService.Relocation;
+import com.fdahpstudydesigner.service.StudyResourceRelocationService.Result;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StudyResourceRelocationServiceTest {
+
+  private static final int FILES = 40;
+
+  private LocalResourceStorage storage;
+
+  private StudyResourceRelocationService relocationService;
+
+  private List<Relocation> manifest;
+
+  @Before
+  public void setUp() {
+    storage = new LocalResourceStorage();
+    relocationService = new StudyResourceRelocationService(storage, 4);
+    manifest = new ArrayList<>();
+    for (int i = 0; i < FILES; i++) {
+      String fileName = "image" + i + ".jpg";
+      storage.write("studyResources/questionnaire/" + fileName, "content " + i);
+      manifest.add(
+          new Relocation(
+              "studyResources/questionnaire/" + fileName,
+              "studies/NEW001/studyResources/questionnaire/" + fileName));
+    }
+  }
+
+  @After
+  public void tearDown() {
+    relocationService.shutdown();
+  }
+
+  @Test
+  public void shouldCopyFilesAndKeepSources() {
+    Result result = relocationService.relocate(manifest, false);
+
+    assertTrue(result.isComplete());
+    assertEquals(FILES, result.getCopied());
+    for (Relocation relocation : manifest) {
+      assertTrue(storage.exists(relocation.getSource()));
+      assertArrayEquals(storage.read(relocation.getSource()), storage.read(relocation.getTarget()));
+    }
+  }
+
+  @Test
+  public void shouldMoveFiles() {
+    Result result = relocationService.relocate(manifest, true);
+
+    assertTrue(result.isComplete());
+    assertEquals(FILES, result.getCopied());
+    for (Relocation relocation : manifest) {
+      assertFalse(storage.exists(relocation.getSource()));
+      assertTrue(storage.exists(relocation.getTarget()));
+    }
+  }
+
+  @Test
+  public void shouldSkipFilesAlreadyCopied() {
+    relocationService.relocate(manifest, false);
+    int copies = storage.getCopies();
+
+    Result result = relocationService.relocate(manifest, false);
+
+    assertTrue(result.isComplete());
+    assertEquals(0, result.getCopied());
+    assertEquals(FILES, result.getSkipped());
+    assertEquals(copies, storage.getCopies());
+  }
+
+  @Test
+  public void shouldResumeInterruptedMove() {
+    // the first half of the files was moved, and the third quarter copied but not deleted
+    for (Relocation relocation : manifest.subList(0, FILES * 3 / 4)) {
+      storage.copy(relocation.getSource(), relocation.getTarget());
+    }
+    List<String> movedSources = new ArrayList<>();
+    for (Relocation relocation : manifest.subList(0, FILES / 2)) {
+      movedSources.add(relocation.getSource());
+    }
+    storage.delete(movedSources);
+    // a target left with other content is copied again
+    storage.write(manifest.get(FILES - 1).getTarget(), "partial");
+
+    Result result = relocationService.relocate(manifest, true);
+
+    assertTrue(result.isComplete());
+    assertEquals(FILES / 4, result.getCopied());
+    assertEquals(FILES * 3 / 4, result.getSkipped());
+    for (int i = 0; i < FILES; i++) {
+      Relocation relocation = manifest.get(i);
+      assertFalse(storage.exists(relocation.getSource()));
+      assertArrayEquals(("content " + i).getBytes(), storage.read(relocation.getTarget()));
+    }
+  }
+
+  @Test
+  public void shouldCountMissingFiles() {
+    manifest.add(new Relocation("studyResources/studylogo/none.jpg", "studies/NEW001/none.jpg"));
+
+    Result result = relocationService.relocate(manifest, true);
+
+    assertTrue(result.isComplete());
+    assertEquals(FILES, result.getCopied());
+    assertEquals(1, result.getMissing());
+  }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.fdahpstudydesigner.service;
+
+import static com.fdahpstudydesigner.util.FdahpStudyDesignerConstants.IMPORT_FAILED_DUE_TO_ANOMOLIES_DETECTED_IN_FILLE;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.fdahpstudydesigner.util.SqlInsertStatement;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+public class StudySqlImporterTest {
+
+  private static final String STUDY =
+      "INSERT INTO `studies` (`id`, `custom_study_id`, `description`, `version`, `status`) VALUES ('STUDY001', 'CUSTOM001', 'First line\\nSecond line, (with) a \\\\ sign', 1.0, true);";
+
+  private static final String QUESTION =
+      "INSERT INTO `questions` (`id`, `study_id`, `short_title`, `skippable`) VALUES ('%s', 'STUDY001', 'Question %s', null);";
+
+  private static final String STUDIES_TEMPLATE =
+      "INSERT INTO `studies` (`id`, `custom_study_id`, `description`, `version`, `status`) VALUES (<id>, <custom_study_id>, <description>, <version>, <status>);";
+
+  private static final String QUESTIONS_TEMPLATE =
+      "INSERT INTO `questions` (`id`, `study_id`, `short_title`, `skippable`) VALUES (<id>, <study_id>, <short_title>, <skippable>);";
+
+  private JdbcTemplate jdbcTemplate;
+
+  private StudySqlImporter importer;
+
+  @Before
+  public void setUp() {
+    DriverManagerDataSource dataSource = new DriverManagerDataSource();
+    dataSource.setDriverClassName("org.h2.Driver");
+    dataSource.setUrl("jdbc:h2:mem:import;DB_CLOSE_DELAY=-1");
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    jdbcTemplate.execute(
+        "CREATE TABLE studies (id VARCHAR(255) PRIMARY KEY, custom_study_id VARCHAR(255), description VARCHAR(1000), version DOUBLE, status BOOLEAN)");
+    jdbcTemplate.execute(
+        "CREATE TABLE questions (id VARCHAR(255) PRIMARY KEY, study_id VARCHAR(255), short_title VARCHAR(255), skippable VARCHAR(1))");
+    importer = new StudySqlImporter();
+    importer.setDataSource(dataSource);
+  }
+
+  @After
+  public void tearDown() {
+    jdbcTemplate.execute("DROP TABLE questions");
+    jdbcTemplate.execute("DROP TABLE studies");
+  }
+
+  @Test
+  public void shouldParseStatement() throws Exception {
+    SqlInsertStatement statement = SqlInsertStatement.parse(STUDY);
+
+    assertEquals("studies", statement.getTableName());
+    assertEquals(
+        "INSERT INTO `studies` (`id`, `custom_study_id`, `description`, `version`, `status`) VALUES (?, ?, ?, ?, ?)",
+        statement.getSql());
+    assertArrayEquals(
+        new Object[] {
+          "STUDY001",
+          "CUSTOM001",
+          "First line\nSecond line, (with) a \\ sign",
+          new BigDecimal("1.0"),
+          Boolean.TRUE
+        },
+        statement.getValues());
+  }
+
+  @Test
+  public void shouldImportStatementsInBatches() throws Exception {
+    List<String> lines = new ArrayList<>();
+    lines.add(STUDY);
+    for (int i = 0; i < 1200; i++) {
+      lines.add(String.format(QUESTION, "Q" + i, i));
+    }
+
+    String studyId = importer.importStatements(reader(lines), checksum(lines));
+
+    assertEquals("STUDY001", studyId);
+    assertEquals(
+        "First line\nSecond line, (with) a \\ sign",
+        jdbcTemplate.queryForObject("SELECT description FROM studies", String.class));
+    assertEquals(1200, count("questions"));
+  }
+
+  @Test
+  public void shouldRejectExportWithWrongChecksum() throws Exception {
+    List<String> lines = new ArrayList<>();
+    lines.add(STUDY);
+
+    assertImportFails(lines, checksum(lines) + 1);
+    assertEquals(0, count("studies"));
+  }
+
+  @Test
+  public void shouldRejectTableNotAllowed() throws Exception {
+    List<String> lines = new ArrayList<>();
+    lines.add(STUDY);
+    lines.add("INSERT INTO `users` (`user_id`) VALUES ('admin');");
+
+    assertImportFails(lines, checksum(lines));
+    assertEquals(0, count("studies"));
+  }
+
+  @Test
+  public void shouldRejectInvalidColumnName() throws Exception {
+    List<String> lines = new ArrayList<>();
+    lines.add(STUDY);
+    lines.add(
+        "INSERT INTO `questions` (`id`, (SELECT `id` FROM `studies`)) VALUES ('Q1', 'STUDY001');");
+    assertImportFails(lines, checksum(lines));
+
+    lines.set(1, "INSERT INTO `questions` (`id`, `short title`) VALUES ('Q1', 'Question 1');");
+    assertImportFails(lines, checksum(lines));
+    assertEquals(0, count("studies"));
+  }
+
+  @Test
+  public void shouldRollBackFailedImport() throws Exception {
+    List<String> lines = new ArrayList<>();
+    lines.add(STUDY);
+    lines.add(String.format(QUESTION, "Q1", 1));
+    lines.add(String.format(QUESTION, "Q1", 2));
+
+    try {
+      importer.importStatements(reader(lines), checksum(lines));
+      fail("duplicate key not detected");
+    } catch (DataAccessException e) {
+      // expected
+    }
+    assertEquals(0, count("studies"));
+    assertEquals(0, count("questions"));
+  }
+
+  @Test
+  public void shouldImportRowsOfJsonLinesExport() throws Exception {
+    File file = File.createTempFile("STUDY001", ".zip");
+    try {
+      try (JsonLinesStudyExportWriter writer =
+          new JsonLinesStudyExportWriter(new FileOutputStream(file))) {
+        writer.write(STUDIES_TEMPLATE, "STUDY001", "CUSTOM001", "First line\nSecond", 1.0f, true);
+        for (int i = 0; i < 1200; i++) {
+          writer.write(QUESTIONS_TEMPLATE, "Q" + i, "STUDY001", "Question " + i, null);
+        }
+        writer.finish(Collections.singletonMap("releaseVersion", "2.0.7"));
+      }
+
+      assertTrue(JsonLinesStudyExportReader.isJsonLinesExport(file));
+      try (JsonLinesStudyExportReader reader = new JsonLinesStudyExportReader(file)) {
+        assertEquals("2.0.7", reader.getReleaseVersion());
+        assertEquals("STUDY001", importer.importRows(reader));
+      }
+      assertEquals(
+          "First line\nSecond",
+          jdbcTemplate.queryForObject("SELECT description FROM studies", String.class));
+      assertTrue(jdbcTemplate.queryForObject("SELECT status FROM studies", Boolean.class));
+      assertEquals(1200, count("questions"));
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void shouldRejectJsonLinesRowsNotMatchingManifest() throws Exception {
+    File file = File.createTempFile("STUDY001", ".zip");
+    try {
+      String rows = "{\"table\":\"studies\",\"row\":{\"id\":\"STUDY001\",\"status\":true}}\n";
+      try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(file))) {
+        zip.putNextEntry(new ZipEntry(JsonLinesStudyExportWriter.ROWS_ENTRY));
+        zip.write(rows.getBytes("UTF-8"));
+        zip.closeEntry();
+        zip.putNextEntry(new ZipEntry(JsonLinesStudyExportWriter.MANIFEST_ENTRY));
+        zip.write(
+            ("{\"format\":\"jsonl\",\"formatVersion\":1,\"releaseVersion\":\"2.0.7\","
+                    + "\"rows\":{\"entry\":\"study.jsonl\",\"count\":1,\"crc32\":1}}")
+                .getBytes("UTF-8"));
+        zip.closeEntry();
+      }
+
+      try (JsonLinesStudyExportReader reader = new JsonLinesStudyExportReader(file)) {
+        importer.importRows(reader);
+        fail("rows not matching the manifest imported");
+      } catch (Exception e) {
+        assertEquals(IMPORT_FAILED_DUE_TO_ANOMOLIES_DETECTED_IN_FILLE, e.getMessage());
+      }
+      assertEquals(0, count("studies"));
+    } finally {
+      file.delete();
+    }
+  }
+
+  private void assertImportFails(List<String> lines, long checksum) {
+    try {
+      importer.importStatements(reader(lines), checksum);
+      fail("invalid export imported");
+    } catch (Exception e) {
+      assertEquals(IMPORT_FAILED_DUE_TO_ANOMOLIES_DETECTED_IN_FILLE, e.getMessage());
+    }
+  }
+
+  private int count(String tableName) {
+    return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + tableName, Integer.class);
+  }
+
+  private static BufferedReader reader(List<String> lines) {
+    StringBuilder content = new StringBuilder();
+    for (String line : lines) {
+      content.append(line).append(System.lineSeparator());
+    }
+    return new BufferedReader(new StringReader(content.toString()));
+  }
+
+  private static long checksum(List<String> lines) {
+    CRC32 crc32 = new CRC32();
+    for (String line : lines) {
+      byte[] bytes = (line + System.lineSeparator()).getBytes();
+      crc32.update(bytes, 0, bytes.length);
+    }
+    return crc32.getValue();
+  }
+}
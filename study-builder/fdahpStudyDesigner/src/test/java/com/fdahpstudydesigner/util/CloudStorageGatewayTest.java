@@ -0,0 +1,115 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.fdahpstudydesigner.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.Storage;
+import java.util.Base64;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CloudStorageGatewayTest {
+
+  private static final String BUCKET = "bucket";
+
+  private Storage storage;
+
+  private CloudStorageGateway gateway;
+
+  @Before
+  public void setUp() {
+    storage = mock(Storage.class);
+    gateway = new CloudStorageGateway(storage, 1024, 60000);
+  }
+
+  @Test
+  public void shouldDownloadImageOnceAndServeItFromTheCache() {
+    Blob blob = blob("studies/S1/logo.jpg", "md5-logo", new byte[] {1, 2, 3});
+
+    String dataUri = gateway.getImageDataUri(BUCKET, "studies/S1/logo.jpg");
+    assertEquals(
+        "data:image/jpeg;base64," + Base64.getEncoder().encodeToString(new byte[] {1, 2, 3}),
+        dataUri);
+    assertEquals(dataUri, gateway.getImageDataUri(BUCKET, "studies/S1/logo.jpg"));
+
+    verify(storage, times(1)).get(BlobId.of(BUCKET, "studies/S1/logo.jpg"));
+    verify(blob, times(1)).getContent();
+    Map<String, Long> metrics = gateway.getMetrics();
+    assertEquals(Long.valueOf(1), metrics.get("imageCacheHits"));
+    assertEquals(Long.valueOf(1), metrics.get("imageCacheMisses"));
+    assertEquals(Long.valueOf(3), metrics.get("bytesRead"));
+  }
+
+  @Test
+  public void shouldKeepTheContentOfImagesWithTheSameHashOnce() {
+    Blob first = blob("studies/S1/logo.jpg", "md5-logo", new byte[] {1, 2, 3});
+    Blob second = blob("studies/S2/logo.jpg", "md5-logo", new byte[] {1, 2, 3});
+
+    gateway.getImageDataUri(BUCKET, "studies/S1/logo.jpg");
+    gateway.getImageDataUri(BUCKET, "studies/S2/logo.jpg");
+
+    verify(first, times(1)).getContent();
+    verify(second, times(0)).getContent();
+    assertEquals(Long.valueOf(1), gateway.getMetrics().get("imageCacheEntries"));
+  }
+
+  @Test
+  public void shouldReadImageAgainOnceItIsUploaded() {
+    blob("studies/S1/logo.jpg", "md5-old", new byte[] {1});
+    gateway.getImageDataUri(BUCKET, "studies/S1/logo.jpg");
+
+    gateway.create(BlobInfo.newBuilder(BUCKET, "studies/S1/logo.jpg").build(), new byte[] {2});
+    blob("studies/S1/logo.jpg", "md5-new", new byte[] {2});
+
+    assertEquals(
+        "data:image/jpeg;base64," + Base64.getEncoder().encodeToString(new byte[] {2}),
+        gateway.getImageDataUri(BUCKET, "studies/S1/logo.jpg"));
+    assertEquals(Long.valueOf(1), gateway.getMetrics().get("writes"));
+    assertEquals(Long.valueOf(2), gateway.getMetrics().get("imageCacheMisses"));
+  }
+
+  @Test
+  public void shouldEvictLeastRecentlyUsedImagesOverTheSizeLimit() {
+    byte[] content = new byte[300];
+    blob("a.jpg", "md5-a", content);
+    blob("b.jpg", "md5-b", content);
+    blob("c.jpg", "md5-c", content);
+
+    gateway.getImageDataUri(BUCKET, "a.jpg");
+    gateway.getImageDataUri(BUCKET, "b.jpg");
+    gateway.getImageDataUri(BUCKET, "c.jpg");
+
+    Map<String, Long> metrics = gateway.getMetrics();
+    assertEquals(Long.valueOf(2), metrics.get("imageCacheEntries"));
+    assertEquals(Long.valueOf(1), metrics.get("imageCacheEvictions"));
+  }
+
+  @Test
+  public void shouldReturnNullForMissingImage() {
+    assertNull(gateway.getImageDataUri(BUCKET, "missing.jpg"));
+  }
+
+  private Blob blob(String name, String md5, byte[] content) {
+    Blob blob = mock(Blob.class);
+    when(blob.getMd5()).thenReturn(md5);
+    when(blob.getContent()).thenReturn(content);
+    when(storage.get(BlobId.of(BUCKET, name))).thenReturn(blob);
+    return blob;
+  }
+}
@@ -132,3 +132,5 @@ INSERT INTO `notification` (`notification_id`, `active_task_id`, `is_anchor_date
 INSERT INTO `notification` (`notification_id`, `active_task_id`, `is_anchor_date`, `app_id`, `created_by`, `created_on`, `custom_study_id`, `modified_by`, `modified_on`, `notification_action`, `notification_done`, `notification_schedule_type`, `notification_sent`, `notification_status`, `notification_subType`, `notification_text`, `notification_type`, `questionnarie_id`, `resource_id`, `schedule_date`, `schedule_time`, `study_id`, `x_days`, `schedule_timestamp`) VALUES ('b025a161ud37cc4443ib3a5i436da38b686f', '0831dc60v8f4b449b9lb4f7hf156e3c273ca', false, 'VERYNESTUDY1', '1', '2021-04-28 18:15:20', 'VeryNeStudy_2.5', null, null, false, true, 'immediate', false, false, 'studyEvent', 'A new study is available in the app.', 'GT', '3abb46abje616g47c4vaeedf6d6828ea6891', null, '2021-04-28', '18:15:20', 'f24b5b94l66b1n4286v8884w9ccb90306363', null, '2021-04-28 18:15:20.0');
 
 INSERT INTO `resources` (`id`, `action`, `anchor_date_id`, `created_by`, `created_on`, `end_date`, `modified_by`, `modified_on`, `pdf_name`, `pdf_url`, `resource_text`, `resource_type`, `resource_visibility`, `rich_text`, `sequence_no`, `start_date`, `status`, `study_id`, `study_protocol`, `text_or_pdf`, `time_period_from_days`, `time_period_to_days`, `title`, `x_days_sign`, `y_days_sign`) VALUES ('fd1b14b3uc653t43d6e910ek4ed1ac364502', true, null, '1', '2021-04-28 18:14:47', '2021-04-30', null, null, '', '', 'edxwe', true, false, '&lt;p&gt;d2eds&lt;/p&gt;', 1, '2021-04-28', true, 'f24b5b94l66b1n4286v8884w9ccb90306363', false, false, null, null, 'e2sdx', false, false);
+
+INSERT INTO `reference_tables` (`id`, `category`, `type`, `str_value`) VALUES ('1', 'Categories', 'Pre-defined', 'Drug Safety');
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.hphc.mystudies.bean;
+
+/**
+ * A metadata response served from memory, with the entity tag of the publication it was built
+ * against. The entity tag is null when the response could not be built, or was built without some
+ * of its images and is not kept in memory.
+ */
+public class MetaDataDocument<T> {
+
+  private final String etag;
+
+  private final T content;
+
+  public MetaDataDocument(String etag, T content) {
+    this.etag = etag;
+    this.content = content;
+  }
+
+  public String getEtag() {
+    return etag;
+  }
+
+  public T getContent() {
+    return content;
+  }
+}
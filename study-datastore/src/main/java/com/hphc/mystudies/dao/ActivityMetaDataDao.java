@@ -88,7 +88,6 @@ import org.apache.commons.text.StringEscapeUtils;
 import org.hibernate.Query;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
-import org.hibernate.Transaction;
 import org.slf4j.ext.XLogger;
 import org.slf4j.ext.XLoggerFactory;
 
@@ -106,6 +105,8 @@ public class ActivityMetaDataDao {
   SessionFactory sessionFactory = HibernateUtil.getSessionFactory();
   Query query = null;
 
+  private final MetaDataStore activityMetaDataStore = MetaDataStore.getActivityStore();
+
   @SuppressWarnings("unchecked")
   public ActivityResponse studyActivityList(String studyId, String authorization)
       throws DAOException {
@@ -338,7 +339,8 @@ public class ActivityMetaDataDao {
   }
 
   public ActiveTaskActivityMetaDataResponse studyActiveTaskActivityMetadata(
-      String studyId, String activityId, String activityVersion) throws DAOException {
+      final String studyId, final String activityId, final String activityVersion)
+      throws DAOException {
     LOGGER.entry("begin studyActiveTaskActivityMetadata()");
     Session session = null;
     ActiveTaskActivityMetaDataResponse activeTaskActivityMetaDataResponse =
@@ -355,8 +357,22 @@ public class ActivityMetaDataDao {
                   .setString(StudyMetaDataEnum.QF_CUSTOM_STUDY_ID.value(), studyId)
                   .uniqueResult();
       if (studyDto != null) {
+        final Session activeTaskSession = session;
         activeTaskactivityStructureBean =
-            this.activeTaskMetadata(studyId, activityId, session, activityVersion);
+            activityMetaDataStore.get(
+                getActivityKey(
+                    StudyMetaDataConstants.ACTIVITY_ACTIVE_TASK,
+                    studyId,
+                    activityId,
+                    activityVersion),
+                getPublication(studyDto),
+                new MetaDataStore.Builder<ActiveTaskActivityStructureBean>() {
+                  @Override
+                  public ActiveTaskActivityStructureBean build() throws DAOException {
+                    return activeTaskMetadata(
+                        studyId, activityId, activeTaskSession, activityVersion);
+                  }
+                });
         activeTaskActivityMetaDataResponse.setActivity(activeTaskactivityStructureBean);
         activeTaskActivityMetaDataResponse.setMessage(StudyMetaDataConstants.SUCCESS);
       } else {
@@ -364,6 +380,7 @@ public class ActivityMetaDataDao {
       }
     } catch (Exception e) {
       LOGGER.error("ActivityMetaDataDao - studyActiveTaskActivityMetadata() :: ERROR", e);
+      activeTaskActivityMetaDataResponse.setMessage(StudyMetaDataConstants.FAILURE);
     } finally {
       if (session != null) {
         session.close();
@@ -374,7 +391,8 @@ public class ActivityMetaDataDao {
   }
 
   public QuestionnaireActivityMetaDataResponse studyQuestionnaireActivityMetadata(
-      String studyId, String activityId, String activityVersion) throws DAOException {
+      final String studyId, final String activityId, final String activityVersion)
+      throws DAOException {
     LOGGER.entry("begin studyQuestionnaireActivityMetadata()");
     Session session = null;
     QuestionnaireActivityMetaDataResponse activityMetaDataResponse =
@@ -391,8 +409,22 @@ public class ActivityMetaDataDao {
                   .setString(StudyMetaDataEnum.QF_CUSTOM_STUDY_ID.value(), studyId)
                   .uniqueResult();
       if (studyDto != null) {
+        final Session questionnaireSession = session;
         activityStructureBean =
-            this.questionnaireMetadata(studyId, activityId, session, activityVersion);
+            activityMetaDataStore.get(
+                getActivityKey(
+                    StudyMetaDataConstants.ACTIVITY_QUESTIONNAIRE,
+                    studyId,
+                    activityId,
+                    activityVersion),
+                getPublication(studyDto),
+                new MetaDataStore.Builder<QuestionnaireActivityStructureBean>() {
+                  @Override
+                  public QuestionnaireActivityStructureBean build() throws DAOException {
+                    return questionnaireMetadata(
+                        studyId, activityId, questionnaireSession, activityVersion);
+                  }
+                });
         activityMetaDataResponse.setActivity(activityStructureBean);
         activityMetaDataResponse.setMessage(StudyMetaDataConstants.SUCCESS);
       } else {
@@ -400,6 +432,7 @@ public class ActivityMetaDataDao {
       }
     } catch (Exception e) {
       LOGGER.error("ActivityMetaDataDao - studyQuestionnaireActivityMetadata() :: ERROR", e);
+      activityMetaDataResponse.setMessage(StudyMetaDataConstants.FAILURE);
     } finally {
       if (session != null) {
         session.close();
@@ -409,6 +442,20 @@ public class ActivityMetaDataDao {
     return activityMetaDataResponse;
   }
 
+  /** Identifies the metadata of a version of an activity in the activity store. */
+  static String getActivityKey(
+      String activityType, String studyId, String activityId, String activityVersion) {
+    return activityType + ":" + studyId + ":" + activityId + ":" + activityVersion;
+  }
+
+  /**
+   * Identifies the live publication of the study, which changes each time the study builder
+   * publishes the study.
+   */
+  static String getPublication(StudyDto studyDto) {
+    return studyDto.getId() + ":" + studyDto.getVersion() + ":" + studyDto.getModifiedOn();
+  }
+
   @SuppressWarnings("unchecked")
   public ActiveTaskActivityStructureBean activeTaskMetadata(
       String studyId, String activityId, Session session, String activityVersion)
@@ -603,6 +650,8 @@ public class ActivityMetaDataDao {
       }
     } catch (Exception e) {
       LOGGER.error("ActivityMetaDataDao - activeTaskMetadata() :: ERROR", e);
+      // an incomplete activity must not be kept in the metadata store
+      throw new DAOException(StudyMetaDataConstants.FAILURE, e);
     }
     LOGGER.exit("activeTaskMetadata() :: Ends");
     return activeTaskActivityStructureBean;
@@ -854,6 +903,8 @@ public class ActivityMetaDataDao {
       }
     } catch (Exception e) {
       LOGGER.error("ActivityMetaDataDao - questionnaireMetadata() :: ERROR", e);
+      // an incomplete activity must not be kept in the metadata store
+      throw new DAOException(StudyMetaDataConstants.FAILURE, e);
     }
     LOGGER.exit("questionnaireMetadata() :: Ends");
     return activityStructureBean;
@@ -1639,6 +1690,7 @@ public class ActivityMetaDataDao {
       }
     } catch (Exception e) {
       LOGGER.error("ActivityMetaDataDao - getStepsInfoForQuestionnaires() :: ERROR", e);
+      throw new DAOException(StudyMetaDataConstants.FAILURE, e);
     }
     LOGGER.exit("getStepsInfoForQuestionnaires() :: Ends");
     return stepsOrderSequenceTreeMap;
@@ -1730,7 +1782,6 @@ public class ActivityMetaDataDao {
       throws DAOException {
     LOGGER.entry("begin getQuestionDetailsForQuestionnaire()");
     List<QuestionResponseSubTypeDto> destinationConditionList = null;
-    Transaction transaction = null;
     try {
       if ((questionsDtoList != null) && !questionsDtoList.isEmpty()) {
         for (QuestionsDto questionsDto : questionsDtoList) {
@@ -1884,18 +1935,11 @@ public class ActivityMetaDataDao {
               }
 
               if (!isValueOfXSaved) {
+                // computed once per publication, as the assembled activity is kept in the
+                // metadata store, so the read path does not write the conditions back
                 destinationsList =
                     this.getConditionalBranchingDestinations(
                         reponseType, destinationsList, questionBean);
-
-                transaction = session.beginTransaction();
-                for (int i = 0; i < destinationsList.size(); i++) {
-                  QuestionResponseSubTypeDto destinationDto = destinationConditionList.get(i);
-                  destinationDto.setValueOfX(destinationsList.get(i).getCondition());
-                  destinationDto.setOperator(destinationsList.get(i).getOperator());
-                  session.save(destinationDto);
-                }
-                transaction.commit();
               }
             }
           }
@@ -1981,10 +2025,8 @@ public class ActivityMetaDataDao {
         }
       }
     } catch (Exception e) {
-      if (transaction != null) {
-        transaction.rollback();
-      }
       LOGGER.error("ActivityMetaDataDao - getQuestionDetailsForQuestionnaire() :: ERROR", e);
+      throw new DAOException(StudyMetaDataConstants.FAILURE, e);
     }
     LOGGER.exit("getQuestionDetailsForQuestionnaire() :: Ends");
     return stepsSequenceTreeMap;
@@ -2133,6 +2175,7 @@ public class ActivityMetaDataDao {
       }
     } catch (Exception e) {
       LOGGER.error("ActivityMetaDataDao - getFormDetailsForQuestionnaire() :: ERROR", e);
+      throw new DAOException(StudyMetaDataConstants.FAILURE, e);
     }
     LOGGER.exit("getFormDetailsForQuestionnaire() :: Ends");
     return stepsSequenceTreeMap;
@@ -2347,6 +2390,7 @@ public class ActivityMetaDataDao {
       }
     } catch (Exception e) {
       LOGGER.error("ActivityMetaDataDao - getQuestionaireQuestionFormatByType() :: ERROR", e);
+      throw new DAOException(StudyMetaDataConstants.FAILURE, e);
     }
     LOGGER.exit("getQuestionaireQuestionFormatByType() :: Ends");
     return questionFormat;
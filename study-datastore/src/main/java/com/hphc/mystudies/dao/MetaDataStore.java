@@ -0,0 +1,153 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.hphc.mystudies.dao;
+
+import com.hphc.mystudies.exception.DAOException;
+import com.hphc.mystudies.util.StudyMetaDataUtil;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+
+/**
+ * Keeps assembled metadata in memory, such as the metadata of an activity or the study list of an
+ * app. An entry is built once with the metadata queries, and is served as is until the study
+ * builder publishes again: each entry records the publication of the study rows it was built
+ * against, and an entry built against an older publication is built again.
+ *
+ * <p>Requests for an entry that is being built wait for that build rather than starting another
+ * one. The least recently used entries are dropped beyond the configured maximum. Entries are
+ * shared between requests and must not be modified.
+ */
+public final class MetaDataStore {
+
+  private static final XLogger LOGGER = XLoggerFactory.getXLogger(MetaDataStore.class.getName());
+
+  private static final MetaDataStore ACTIVITY_STORE =
+      new MetaDataStore("activity.metadata.cache.max.entries", 2000);
+
+  private static final MetaDataStore STUDY_STORE =
+      new MetaDataStore("study.metadata.cache.max.entries", 500);
+
+  /** Assembles the metadata of an entry. */
+  public interface Builder<T> {
+    T build() throws DAOException;
+  }
+
+  private final Map<String, Entry> entries;
+
+  private MetaDataStore(String maxEntriesProperty, int defaultMaxEntries) {
+    this(
+        NumberUtils.toInt(
+            (String) StudyMetaDataUtil.getAppProperties().get(maxEntriesProperty),
+            defaultMaxEntries));
+  }
+
+  MetaDataStore(final int maxEntries) {
+    entries =
+        new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+          private static final long serialVersionUID = 1L;
+
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxEntries;
+          }
+        };
+  }
+
+  /** Returns the store of the metadata of activities, keyed by study, activity and version. */
+  public static MetaDataStore getActivityStore() {
+    return ACTIVITY_STORE;
+  }
+
+  /** Returns the store of the study list and study information documents. */
+  public static MetaDataStore getStudyStore() {
+    return STUDY_STORE;
+  }
+
+  /**
+   * Returns the metadata stored under the key as built against the given publication, building it
+   * if it is not in the store yet.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T get(String key, String publication, Builder<T> builder) throws DAOException {
+    Entry entry;
+    boolean build = false;
+    synchronized (entries) {
+      entry = entries.get(key);
+      if (entry == null || !entry.publication.equals(publication)) {
+        entry = new Entry(publication, builder);
+        entries.put(key, entry);
+        build = true;
+      }
+    }
+
+    if (build) {
+      entry.metadata.run();
+      LOGGER.info(String.format("metadata built for %s", key));
+    }
+
+    try {
+      return (T) entry.metadata.get();
+    } catch (ExecutionException e) {
+      remove(key, entry);
+      if (e.getCause() instanceof DAOException) {
+        throw (DAOException) e.getCause();
+      }
+      throw new DAOException("metadata build failed", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DAOException("interrupted while waiting for metadata", e);
+    }
+  }
+
+  /**
+   * Removes the metadata stored under the key if it was built against the given publication, so
+   * that the next request builds it again.
+   */
+  public void remove(String key, String publication) {
+    synchronized (entries) {
+      Entry entry = entries.get(key);
+      if (entry != null && entry.publication.equals(publication)) {
+        entries.remove(key);
+      }
+    }
+  }
+
+  private void remove(String key, Entry entry) {
+    synchronized (entries) {
+      if (entries.get(key) == entry) {
+        entries.remove(key);
+      }
+    }
+  }
+
+  private static final class Entry {
+
+    private final String publication;
+
+    private final FutureTask<Object> metadata;
+
+    private Entry(String publication, final Builder<?> builder) {
+      this.publication = publication;
+      this.metadata =
+          new FutureTask<>(
+              new Callable<Object>() {
+                @Override
+                public Object call() throws DAOException {
+                  return builder.build();
+                }
+              });
+    }
+  }
+}
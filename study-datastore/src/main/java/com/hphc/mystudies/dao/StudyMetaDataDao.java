@@ -35,6 +35,7 @@ import com.hphc.mystudies.bean.EligibilityConsentResponse;
 import com.hphc.mystudies.bean.GatewayInfoResourceBean;
 import com.hphc.mystudies.bean.GatewayInfoResponse;
 import com.hphc.mystudies.bean.InfoBean;
+import com.hphc.mystudies.bean.MetaDataDocument;
 import com.hphc.mystudies.bean.QuestionInfoBean;
 import com.hphc.mystudies.bean.QuestionnaireActivityStepsBean;
 import com.hphc.mystudies.bean.ResourcesBean;
@@ -68,10 +69,12 @@ import com.hphc.mystudies.dto.StudyPageDto;
 import com.hphc.mystudies.dto.StudySequenceDto;
 import com.hphc.mystudies.dto.StudyVersionDto;
 import com.hphc.mystudies.exception.DAOException;
+import com.hphc.mystudies.util.CredentialVerifier;
 import com.hphc.mystudies.util.HibernateUtil;
 import com.hphc.mystudies.util.StudyMetaDataConstants;
 import com.hphc.mystudies.util.StudyMetaDataEnum;
 import com.hphc.mystudies.util.StudyMetaDataUtil;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.HashMap;
@@ -80,6 +83,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
 import java.util.TreeMap;
+import java.util.UUID;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.text.StringEscapeUtils;
 import org.hibernate.Query;
@@ -95,8 +99,7 @@ public class StudyMetaDataDao {
   @SuppressWarnings("unchecked")
   HashMap<String, String> propMap = StudyMetaDataUtil.getAppProperties();
 
-  @SuppressWarnings("unchecked")
-  HashMap<String, String> authPropMap = StudyMetaDataUtil.getAuthorizationProperties();
+  private final MetaDataStore studyMetaDataStore = MetaDataStore.getStudyStore();
 
   SessionFactory sessionFactory = HibernateUtil.getSessionFactory();
   Query query = null;
@@ -112,7 +115,9 @@ public class StudyMetaDataDao {
       final StringTokenizer tokenizer = new StringTokenizer(bundleIdAndAppToken, ":");
       final String bundleId = tokenizer.nextToken();
       final String appToken = tokenizer.nextToken();
-      if (authPropMap.containsValue(bundleId) && authPropMap.containsValue(appToken)) {
+      CredentialVerifier credentialVerifier = CredentialVerifier.getInstance();
+      if (credentialVerifier.isConfiguredValue(bundleId)
+          && credentialVerifier.isConfiguredValue(appToken)) {
         hasValidAuthorization = true;
       }
     } catch (Exception e) {
@@ -238,12 +243,16 @@ public class StudyMetaDataDao {
     return gatewayInfoResponse;
   }
 
+  /**
+   * Returns the study list of the app for the platform of the authorization. The list is built once
+   * per publication of the listed studies, and is then served from the {@link MetaDataStore}.
+   */
   @SuppressWarnings("unchecked")
-  public StudyResponse studyList(String authorization, String applicationId) throws DAOException {
+  public MetaDataDocument<StudyResponse> studyList(String authorization, String applicationId)
+      throws DAOException {
     LOGGER.entry("begin studyList()");
     Session session = null;
-    StudyResponse studyResponse = new StudyResponse();
-    List<StudyDto> studiesList = null;
+    MetaDataDocument<StudyResponse> studyList = new MetaDataDocument<>(null, new StudyResponse());
     String platformType = "";
     try {
       platformType =
@@ -253,7 +262,7 @@ public class StudyMetaDataDao {
         session = sessionFactory.openSession();
 
         /** Get all configured studies from the WCP by platform supported */
-        studiesList =
+        final List<StudyDto> studiesList =
             session
                 .createQuery(
                     "from StudyDto SDTO"
@@ -267,109 +276,32 @@ public class StudyMetaDataDao {
                 .setString("applicationId", applicationId)
                 .list();
 
-        if ((null != studiesList) && !studiesList.isEmpty()) {
-          List<StudyBean> studyBeanList = new ArrayList<>();
-          for (StudyDto studyDto : studiesList) {
-
-            StudyBean studyBean = new StudyBean();
-            studyBean.setStudyVersion(
-                studyDto.getVersion() == null
-                    ? StudyMetaDataConstants.STUDY_DEFAULT_VERSION
-                    : studyDto.getVersion().toString());
-            studyBean.setTagline(
-                StringUtils.isEmpty(studyDto.getStudyTagline()) ? "" : studyDto.getStudyTagline());
-
-            switch (studyDto.getStatus()) {
-              case StudyMetaDataConstants.STUDY_STATUS_ACTIVE:
-                studyBean.setStatus(StudyMetaDataConstants.STUDY_ACTIVE);
-                break;
-              case StudyMetaDataConstants.STUDY_STATUS_PAUSED:
-                studyBean.setStatus(StudyMetaDataConstants.STUDY_PAUSED);
-                break;
-              case StudyMetaDataConstants.STUDY_STATUS_PRE_PUBLISH:
-                studyBean.setStatus(StudyMetaDataConstants.STUDY_UPCOMING);
-                break;
-              case StudyMetaDataConstants.STUDY_STATUS_DEACTIVATED:
-                studyBean.setStatus(StudyMetaDataConstants.STUDY_CLOSED);
-                break;
-              default:
-                break;
-            }
-
-            studyBean.setTitle(StringUtils.isEmpty(studyDto.getName()) ? "" : studyDto.getName());
-            studyBean.setLogo(
-                StringUtils.isEmpty(studyDto.getThumbnailImage())
-                    ? ""
-                    : StudyMetaDataUtil.getResources(
-                        propMap.get("cloud.bucket.name"),
-                        StudyMetaDataConstants.STUDIES
-                            + "/"
-                            + studyDto.getCustomStudyId()
-                            + "/"
-                            + propMap
-                                .get(StudyMetaDataConstants.FDA_SMD_STUDY_THUMBNAIL_PATH)
-                                .trim()
-                            + studyDto.getThumbnailImage(),
-                        StudyMetaDataConstants.DATA_IMAGE));
-            studyBean.setStudyId(
-                StringUtils.isEmpty(studyDto.getCustomStudyId())
-                    ? ""
-                    : studyDto.getCustomStudyId());
-
-            studyBean.setSponsorName(
-                StringUtils.isEmpty(studyDto.getResearchSponsor())
-                    ? ""
-                    : studyDto.getResearchSponsor());
-
-            if (StringUtils.isNotEmpty(studyDto.getCategory())
-                && StringUtils.isNotEmpty(studyDto.getResearchSponsor())) {
-              List<ReferenceTablesDto> referenceTablesList =
-                  session
-                      .createQuery("from ReferenceTablesDto RTDTO where RTDTO.id IN (:category)")
-                      .setString("category", studyDto.getCategory())
-                      .list();
-              if ((null != referenceTablesList) && !referenceTablesList.isEmpty()) {
-                for (ReferenceTablesDto reference : referenceTablesList) {
-                  if (reference
-                      .getCategory()
-                      .equalsIgnoreCase(StudyMetaDataConstants.STUDY_REF_CATEGORIES)) {
-                    studyBean.setCategory(
-                        StringUtils.isEmpty(reference.getValue()) ? "" : reference.getValue());
+        StringBuilder publication = new StringBuilder();
+        for (StudyDto studyDto : studiesList) {
+          publication.append(getPublication(studyDto)).append(";");
+        }
+        final String key = "studyList:" + applicationId + ":" + platformType;
+        final String studyListPublication = publication.toString();
+        final Session studyListSession = session;
+        studyList =
+            studyMetaDataStore.get(
+                key,
+                studyListPublication,
+                new MetaDataStore.Builder<MetaDataDocument<StudyResponse>>() {
+                  @Override
+                  public MetaDataDocument<StudyResponse> build() {
+                    ImageLookup images = new ImageLookup();
+                    StudyResponse studyResponse =
+                        buildStudyList(studiesList, studyListSession, images);
+                    return new MetaDataDocument<>(
+                        images.failed ? null : getEntityTag(key, studyListPublication),
+                        studyResponse);
                   }
-                }
-              }
-            }
-
-            SettingsBean settings = new SettingsBean();
-            if (studyDto.getPlatform().contains(",")) {
-              settings.setPlatform(StudyMetaDataConstants.STUDY_PLATFORM_ALL);
-            } else {
-              switch (studyDto.getPlatform()) {
-                case StudyMetaDataConstants.STUDY_PLATFORM_TYPE_IOS:
-                  settings.setPlatform(StudyMetaDataConstants.STUDY_PLATFORM_IOS);
-                  break;
-                case StudyMetaDataConstants.STUDY_PLATFORM_TYPE_ANDROID:
-                  settings.setPlatform(StudyMetaDataConstants.STUDY_PLATFORM_ANDROID);
-                  break;
-                default:
-                  break;
-              }
-            }
-
-            if (StringUtils.isNotEmpty(studyDto.getEnrollingParticipants())
-                && studyDto
-                    .getEnrollingParticipants()
-                    .equalsIgnoreCase(StudyMetaDataConstants.YES)) {
-              settings.setEnrolling(true);
-            } else {
-              settings.setEnrolling(false);
-            }
-            studyBean.setSettings(settings);
-            studyBeanList.add(studyBean);
-          }
-          studyResponse.setStudies(studyBeanList);
+                });
+        if (studyList.getEtag() == null) {
+          // an image could not be read, so the list is built again for the next request
+          studyMetaDataStore.remove(key, studyListPublication);
         }
-        studyResponse.setMessage(StudyMetaDataConstants.SUCCESS);
       }
     } catch (Exception e) {
       LOGGER.error("StudyMetaDataDao - studyList() :: ERROR", e);
@@ -379,9 +311,160 @@ public class StudyMetaDataDao {
       }
     }
     LOGGER.exit("studyList() :: Ends");
+    return studyList;
+  }
+
+  @SuppressWarnings("unchecked")
+  private StudyResponse buildStudyList(
+      List<StudyDto> studiesList, Session session, ImageLookup images) {
+    StudyResponse studyResponse = new StudyResponse();
+    List<StudyBean> studyBeanList = new ArrayList<>();
+    String defaultLogo = null;
+    for (StudyDto studyDto : studiesList) {
+
+      StudyBean studyBean = new StudyBean();
+      studyBean.setStudyVersion(
+          studyDto.getVersion() == null
+              ? StudyMetaDataConstants.STUDY_DEFAULT_VERSION
+              : studyDto.getVersion().toString());
+      studyBean.setTagline(
+          StringUtils.isEmpty(studyDto.getStudyTagline()) ? "" : studyDto.getStudyTagline());
+
+      switch (studyDto.getStatus()) {
+        case StudyMetaDataConstants.STUDY_STATUS_ACTIVE:
+          studyBean.setStatus(StudyMetaDataConstants.STUDY_ACTIVE);
+          break;
+        case StudyMetaDataConstants.STUDY_STATUS_PAUSED:
+          studyBean.setStatus(StudyMetaDataConstants.STUDY_PAUSED);
+          break;
+        case StudyMetaDataConstants.STUDY_STATUS_PRE_PUBLISH:
+          studyBean.setStatus(StudyMetaDataConstants.STUDY_UPCOMING);
+          break;
+        case StudyMetaDataConstants.STUDY_STATUS_DEACTIVATED:
+          studyBean.setStatus(StudyMetaDataConstants.STUDY_CLOSED);
+          break;
+        default:
+          break;
+      }
+
+      studyBean.setTitle(StringUtils.isEmpty(studyDto.getName()) ? "" : studyDto.getName());
+      String logo =
+          StringUtils.isEmpty(studyDto.getThumbnailImage())
+              ? ""
+              : images.get(
+                  StudyMetaDataConstants.STUDIES
+                      + "/"
+                      + studyDto.getCustomStudyId()
+                      + "/"
+                      + propMap.get(StudyMetaDataConstants.FDA_SMD_STUDY_THUMBNAIL_PATH).trim()
+                      + studyDto.getThumbnailImage());
+      if (StringUtils.isEmpty(logo)) {
+        if (defaultLogo == null) {
+          defaultLogo =
+              images.get(
+                  StudyMetaDataConstants.DEFAULT_IMAGES
+                      + "/"
+                      + propMap.get(StudyMetaDataConstants.STUDY_BASICINFORMATION_DEFAULT_IMAGE));
+        }
+        logo = defaultLogo;
+      }
+      studyBean.setLogo(logo);
+      studyBean.setStudyId(
+          StringUtils.isEmpty(studyDto.getCustomStudyId()) ? "" : studyDto.getCustomStudyId());
+
+      studyBean.setSponsorName(
+          StringUtils.isEmpty(studyDto.getResearchSponsor()) ? "" : studyDto.getResearchSponsor());
+
+      if (StringUtils.isNotEmpty(studyDto.getCategory())
+          && StringUtils.isNotEmpty(studyDto.getResearchSponsor())) {
+        List<ReferenceTablesDto> referenceTablesList =
+            session
+                .createQuery("from ReferenceTablesDto RTDTO where RTDTO.id IN (:category)")
+                .setString("category", studyDto.getCategory())
+                .list();
+        if ((null != referenceTablesList) && !referenceTablesList.isEmpty()) {
+          for (ReferenceTablesDto reference : referenceTablesList) {
+            if (reference
+                .getCategory()
+                .equalsIgnoreCase(StudyMetaDataConstants.STUDY_REF_CATEGORIES)) {
+              studyBean.setCategory(
+                  StringUtils.isEmpty(reference.getValue()) ? "" : reference.getValue());
+            }
+          }
+        }
+      }
+
+      SettingsBean settings = new SettingsBean();
+      if (studyDto.getPlatform().contains(",")) {
+        settings.setPlatform(StudyMetaDataConstants.STUDY_PLATFORM_ALL);
+      } else {
+        switch (studyDto.getPlatform()) {
+          case StudyMetaDataConstants.STUDY_PLATFORM_TYPE_IOS:
+            settings.setPlatform(StudyMetaDataConstants.STUDY_PLATFORM_IOS);
+            break;
+          case StudyMetaDataConstants.STUDY_PLATFORM_TYPE_ANDROID:
+            settings.setPlatform(StudyMetaDataConstants.STUDY_PLATFORM_ANDROID);
+            break;
+          default:
+            break;
+        }
+      }
+
+      if (StringUtils.isNotEmpty(studyDto.getEnrollingParticipants())
+          && studyDto.getEnrollingParticipants().equalsIgnoreCase(StudyMetaDataConstants.YES)) {
+        settings.setEnrolling(true);
+      } else {
+        settings.setEnrolling(false);
+      }
+      studyBean.setSettings(settings);
+      studyBeanList.add(studyBean);
+    }
+    studyResponse.setStudies(studyBeanList);
+    studyResponse.setMessage(StudyMetaDataConstants.SUCCESS);
     return studyResponse;
   }
 
+  /**
+   * Identifies the publication of a study row, which changes each time the study builder publishes,
+   * pauses, resumes or closes the study.
+   */
+  static String getPublication(StudyDto studyDto) {
+    return studyDto.getId()
+        + ":"
+        + studyDto.getVersion()
+        + ":"
+        + studyDto.getModifiedOn()
+        + ":"
+        + studyDto.getStatus()
+        + ":"
+        + studyDto.getEnrollingParticipants();
+  }
+
+  static String getEntityTag(String key, String publication) {
+    return UUID.nameUUIDFromBytes((key + "|" + publication).getBytes(StandardCharsets.UTF_8))
+        .toString();
+  }
+
+  /**
+   * Looks up the images of a document being built, and records whether cloud storage failed to
+   * return one. A document with a failed lookup is served once, but not kept in the store.
+   */
+  private final class ImageLookup {
+
+    private boolean failed;
+
+    private String get(String filepath) {
+      try {
+        return StudyMetaDataUtil.getResourceDataUri(
+            propMap.get("cloud.bucket.name"), filepath, StudyMetaDataConstants.DATA_IMAGE);
+      } catch (Exception e) {
+        LOGGER.error("StudyMetaDataDao - image lookup failed for " + filepath, e);
+        failed = true;
+        return null;
+      }
+    }
+  }
+
   @SuppressWarnings("unchecked")
   public EligibilityConsentResponse eligibilityConsentMetadata(String studyId) throws DAOException {
     LOGGER.entry("begin eligibilityConsentMetadata()");
@@ -1113,12 +1196,15 @@ public class StudyMetaDataDao {
     return resourcesResponse;
   }
 
-  @SuppressWarnings("unchecked")
-  public StudyInfoResponse studyInfo(String studyId) throws DAOException {
+  /**
+   * Returns the information of the study, built once per publication of the study and then served
+   * from the {@link MetaDataStore}.
+   */
+  public MetaDataDocument<StudyInfoResponse> studyInfo(String studyId) throws DAOException {
     LOGGER.entry("begin studyInfo()");
     Session session = null;
-    StudyInfoResponse studyInfoResponse = new StudyInfoResponse();
-    List<StudyPageDto> studyPageDtoList = null;
+    MetaDataDocument<StudyInfoResponse> studyInfo =
+        new MetaDataDocument<>(null, new StudyInfoResponse());
     StudyDto studyDto = null;
     try {
       session = sessionFactory.openSession();
@@ -1138,151 +1224,225 @@ public class StudyMetaDataDao {
       }
 
       if (studyDto != null) {
+        final String key = "studyInfo:" + studyId;
+        final String publication = getPublication(studyDto);
+        final StudyDto study = studyDto;
+        final Session studyInfoSession = session;
+        studyInfo =
+            studyMetaDataStore.get(
+                key,
+                publication,
+                new MetaDataStore.Builder<MetaDataDocument<StudyInfoResponse>>() {
+                  @Override
+                  public MetaDataDocument<StudyInfoResponse> build() {
+                    ImageLookup images = new ImageLookup();
+                    StudyInfoResponse studyInfoResponse =
+                        buildStudyInfo(study, studyInfoSession, images);
+                    return new MetaDataDocument<>(
+                        images.failed ? null : getEntityTag(key, publication), studyInfoResponse);
+                  }
+                });
+        if (studyInfo.getEtag() == null) {
+          // an image could not be read, so the information is built again for the next request
+          studyMetaDataStore.remove(key, publication);
+        }
+      } else {
+        studyInfo.getContent().setMessage(StudyMetaDataConstants.INVALID_STUDY_ID);
+      }
+    } catch (Exception e) {
+      LOGGER.error("StudyMetaDataDao - studyInfo() :: ERROR", e);
+    } finally {
+      if (session != null) {
+        session.close();
+      }
+    }
+    LOGGER.exit("studyInfo() :: Ends");
+    return studyInfo;
+  }
 
-        studyInfoResponse.setStudyWebsite(
-            StringUtils.isEmpty(studyDto.getStudyWebsite()) ? "" : studyDto.getStudyWebsite());
-
-        List<InfoBean> infoList = new ArrayList<>();
-        studyPageDtoList =
-            session
-                .getNamedQuery("studyPageDetailsByStudyId")
-                .setString(StudyMetaDataEnum.QF_STUDY_ID.value(), studyDto.getId())
-                .list();
-        if ((null != studyPageDtoList) && !studyPageDtoList.isEmpty()) {
-          for (StudyPageDto studyPageInfo : studyPageDtoList) {
-            InfoBean info = new InfoBean();
-
-            if (infoList.isEmpty()) {
-              info.setType(StudyMetaDataConstants.TYPE_VIDEO);
-              info.setVideoLink(
-                  StringUtils.isEmpty(studyDto.getMediaLink()) ? "" : studyDto.getMediaLink());
-            } else {
-              info.setType(StudyMetaDataConstants.TYPE_TEXT);
-              info.setVideoLink("");
-            }
+  @SuppressWarnings("unchecked")
+  private StudyInfoResponse buildStudyInfo(StudyDto studyDto, Session session, ImageLookup images) {
+    StudyInfoResponse studyInfoResponse = new StudyInfoResponse();
+    List<StudyPageDto> studyPageDtoList = null;
 
-            info.setTitle(
-                StringUtils.isEmpty(studyPageInfo.getTitle()) ? "" : studyPageInfo.getTitle());
-            info.setImage(
-                StringUtils.isEmpty(studyPageInfo.getImagePath())
-                    ? ""
-                    : StudyMetaDataUtil.getResources(
-                        propMap.get("cloud.bucket.name"),
-                        StudyMetaDataConstants.STUDIES
-                            + "/"
-                            + studyDto.getCustomStudyId()
-                            + "/"
-                            + propMap.get(StudyMetaDataConstants.FDA_SMD_STUDY_PAGE_PATH).trim()
-                            + studyPageInfo.getImagePath(),
-                        StudyMetaDataConstants.DATA_IMAGE));
-            info.setText(
-                StringUtils.isEmpty(studyPageInfo.getDescription())
-                    ? ""
-                    : studyPageInfo.getDescription());
-            infoList.add(info);
-          }
+    studyInfoResponse.setStudyWebsite(
+        StringUtils.isEmpty(studyDto.getStudyWebsite()) ? "" : studyDto.getStudyWebsite());
+
+    List<InfoBean> infoList = new ArrayList<>();
+    studyPageDtoList =
+        session
+            .getNamedQuery("studyPageDetailsByStudyId")
+            .setString(StudyMetaDataEnum.QF_STUDY_ID.value(), studyDto.getId())
+            .list();
+    if ((null != studyPageDtoList) && !studyPageDtoList.isEmpty()) {
+      for (StudyPageDto studyPageInfo : studyPageDtoList) {
+        InfoBean info = new InfoBean();
+
+        if (infoList.isEmpty()) {
+          info.setType(StudyMetaDataConstants.TYPE_VIDEO);
+          info.setVideoLink(
+              StringUtils.isEmpty(studyDto.getMediaLink()) ? "" : studyDto.getMediaLink());
         } else {
+          info.setType(StudyMetaDataConstants.TYPE_TEXT);
+          info.setVideoLink("");
+        }
 
-          InfoBean info = new InfoBean();
+        info.setTitle(
+            StringUtils.isEmpty(studyPageInfo.getTitle()) ? "" : studyPageInfo.getTitle());
+        info.setImage(
+            StringUtils.isEmpty(studyPageInfo.getImagePath())
+                ? ""
+                : images.get(
+                    StudyMetaDataConstants.STUDIES
+                        + "/"
+                        + studyDto.getCustomStudyId()
+                        + "/"
+                        + propMap.get(StudyMetaDataConstants.FDA_SMD_STUDY_PAGE_PATH).trim()
+                        + studyPageInfo.getImagePath()));
+        info.setText(
+            StringUtils.isEmpty(studyPageInfo.getDescription())
+                ? ""
+                : studyPageInfo.getDescription());
+        infoList.add(info);
+      }
+    } else {
 
-          if (infoList.isEmpty()) {
-            info.setType(StudyMetaDataConstants.TYPE_VIDEO);
-            info.setVideoLink(
-                StringUtils.isEmpty(studyDto.getMediaLink()) ? "" : studyDto.getMediaLink());
-          } else {
-            info.setType(StudyMetaDataConstants.TYPE_TEXT);
-            info.setVideoLink("");
-          }
+      InfoBean info = new InfoBean();
 
-          info.setTitle(StringUtils.isEmpty(studyDto.getName()) ? "" : studyDto.getName());
-          info.setImage(
-              StringUtils.isEmpty(studyDto.getThumbnailImage())
-                  ? ""
-                  : StudyMetaDataUtil.getResources(
-                      propMap.get("cloud.bucket.name"),
-                      StudyMetaDataConstants.STUDIES
-                          + "/"
-                          + studyDto.getCustomStudyId()
-                          + "/"
-                          + propMap.get(StudyMetaDataConstants.FDA_SMD_STUDY_THUMBNAIL_PATH).trim()
-                          + studyDto.getThumbnailImage(),
-                      StudyMetaDataConstants.DATA_IMAGE));
-          info.setText(StringUtils.isEmpty(studyDto.getFullName()) ? "" : studyDto.getFullName());
-          infoList.add(info);
+      if (infoList.isEmpty()) {
+        info.setType(StudyMetaDataConstants.TYPE_VIDEO);
+        info.setVideoLink(
+            StringUtils.isEmpty(studyDto.getMediaLink()) ? "" : studyDto.getMediaLink());
+      } else {
+        info.setType(StudyMetaDataConstants.TYPE_TEXT);
+        info.setVideoLink("");
+      }
+
+      info.setTitle(StringUtils.isEmpty(studyDto.getName()) ? "" : studyDto.getName());
+      info.setImage(
+          StringUtils.isEmpty(studyDto.getThumbnailImage())
+              ? ""
+              : images.get(
+                  StudyMetaDataConstants.STUDIES
+                      + "/"
+                      + studyDto.getCustomStudyId()
+                      + "/"
+                      + propMap.get(StudyMetaDataConstants.FDA_SMD_STUDY_THUMBNAIL_PATH).trim()
+                      + studyDto.getThumbnailImage()));
+      info.setText(StringUtils.isEmpty(studyDto.getFullName()) ? "" : studyDto.getFullName());
+      infoList.add(info);
+    }
+    studyInfoResponse.setInfo(infoList);
+
+    if (!studyDto.getStatus().equalsIgnoreCase(StudyMetaDataConstants.STUDY_STATUS_PRE_PUBLISH)) {
+      List<QuestionnairesDto> questionnairesList =
+          session
+              .createQuery(
+                  "from QuestionnairesDto QDTO"
+                      + " where QDTO.customStudyId=:custStudyId"
+                      + " and QDTO.active=true"
+                      + " and QDTO.status=true and QDTO.live=1")
+              .setString("custStudyId", studyDto.getCustomStudyId())
+              .list();
+      if ((questionnairesList != null) && !questionnairesList.isEmpty()) {
+
+        List<String> questionnaireIdsList = new ArrayList<>();
+        Map<String, QuestionnairesDto> questionnaireMap = new TreeMap<>();
+        Map<String, QuestionnairesStepsDto> stepsMap = new TreeMap<>();
+        Map<String, QuestionsDto> questionsMap = null;
+        Map<String, FormMappingDto> formMappingMap = new TreeMap<>();
+
+        for (QuestionnairesDto questionnaire : questionnairesList) {
+          questionnaireIdsList.add(questionnaire.getId());
+          questionnaireMap.put(questionnaire.getId(), questionnaire);
         }
-        studyInfoResponse.setInfo(infoList);
 
-        if (!studyDto
-            .getStatus()
-            .equalsIgnoreCase(StudyMetaDataConstants.STUDY_STATUS_PRE_PUBLISH)) {
-          List<QuestionnairesDto> questionnairesList =
+        if (!questionnaireIdsList.isEmpty()) {
+
+          List<String> questionIdsList = new ArrayList<>();
+          List<String> formIdsList = new ArrayList<>();
+          List<QuestionnairesStepsDto> questionnairesStepsList =
               session
                   .createQuery(
-                      "from QuestionnairesDto QDTO"
-                          + " where QDTO.customStudyId=:custStudyId"
-                          + " and QDTO.active=true"
-                          + " and QDTO.status=true and QDTO.live=1")
-                  .setString("custStudyId", studyDto.getCustomStudyId())
+                      "from QuestionnairesStepsDto QSDTO"
+                          + " where QSDTO.active=true and QSDTO.status=true"
+                          + " and QSDTO.questionnairesId in (:questionnaireIdsList)"
+                          + " and QSDTO.stepType in (:questType,:questForm)")
+                  .setParameterList("questionnaireIdsList", questionnaireIdsList)
+                  .setString("questType", StudyMetaDataConstants.QUESTIONAIRE_STEP_TYPE_QUESTION)
+                  .setString("questForm", StudyMetaDataConstants.QUESTIONAIRE_STEP_TYPE_FORM)
                   .list();
-          if ((questionnairesList != null) && !questionnairesList.isEmpty()) {
+          if ((questionnairesStepsList != null) && !questionnairesStepsList.isEmpty()) {
+
+            for (QuestionnairesStepsDto stepsDto : questionnairesStepsList) {
+              if (stepsDto
+                  .getStepType()
+                  .equalsIgnoreCase(StudyMetaDataConstants.QUESTIONAIRE_STEP_TYPE_QUESTION)) {
+                questionIdsList.add(stepsDto.getInstructionFormId());
+                stepsMap.put(
+                    stepsDto.getInstructionFormId()
+                        + StudyMetaDataConstants.QUESTIONAIRE_STEP_TYPE_QUESTION,
+                    stepsDto);
+              } else {
+                formIdsList.add(stepsDto.getInstructionFormId());
+                stepsMap.put(
+                    stepsDto.getInstructionFormId()
+                        + StudyMetaDataConstants.QUESTIONAIRE_STEP_TYPE_FORM,
+                    stepsDto);
+              }
+            }
 
-            List<String> questionnaireIdsList = new ArrayList<>();
-            Map<String, QuestionnairesDto> questionnaireMap = new TreeMap<>();
-            Map<String, QuestionnairesStepsDto> stepsMap = new TreeMap<>();
-            Map<String, QuestionsDto> questionsMap = null;
-            Map<String, FormMappingDto> formMappingMap = new TreeMap<>();
+            if (!questionIdsList.isEmpty()) {
+              List<QuestionsDto> questionnsList =
+                  session
+                      .createQuery(
+                          "from QuestionsDto QDTO"
+                              + " where QDTO.active=true and QDTO.status=true"
+                              + " and QDTO.id in (:questionIdsList)"
+                              + " and QDTO.responseType=10 and QDTO.useAnchorDate=true")
+                      .setMaxResults(1)
+                      .setParameterList("questionIdsList", questionIdsList)
+                      .list();
+              if ((questionnsList != null) && !questionnsList.isEmpty()) {
 
-            for (QuestionnairesDto questionnaire : questionnairesList) {
-              questionnaireIdsList.add(questionnaire.getId());
-              questionnaireMap.put(questionnaire.getId(), questionnaire);
+                questionsMap = new TreeMap<>();
+                for (QuestionsDto question : questionnsList) {
+                  questionsMap.put(question.getId(), question);
+                }
+              }
             }
 
-            if (!questionnaireIdsList.isEmpty()) {
+            if ((questionsMap == null) && !formIdsList.isEmpty()) {
 
-              List<String> questionIdsList = new ArrayList<>();
-              List<String> formIdsList = new ArrayList<>();
-              List<QuestionnairesStepsDto> questionnairesStepsList =
+              List<String> formQuestionsList = new ArrayList<>();
+              List<FormMappingDto> formMappingList =
                   session
                       .createQuery(
-                          "from QuestionnairesStepsDto QSDTO"
-                              + " where QSDTO.active=true and QSDTO.status=true"
-                              + " and QSDTO.questionnairesId in (:questionnaireIdsList)"
-                              + " and QSDTO.stepType in (:questType,:questForm)")
-                      .setParameterList("questionnaireIdsList", questionnaireIdsList)
-                      .setString(
-                          "questType", StudyMetaDataConstants.QUESTIONAIRE_STEP_TYPE_QUESTION)
-                      .setString("questForm", StudyMetaDataConstants.QUESTIONAIRE_STEP_TYPE_FORM)
+                          "from FormMappingDto FMDTO"
+                              + " where FMDTO.formId in (select FDTO.formId"
+                              + " from FormDto FDTO"
+                              + " where FDTO.formId in (:formIdsList)"
+                              + " and FDTO.active=true) and FMDTO.active=true"
+                              + " ORDER BY FMDTO.formId, FMDTO.sequenceNo")
+                      .setParameterList("formIdsList", formIdsList)
                       .list();
-              if ((questionnairesStepsList != null) && !questionnairesStepsList.isEmpty()) {
-
-                for (QuestionnairesStepsDto stepsDto : questionnairesStepsList) {
-                  if (stepsDto
-                      .getStepType()
-                      .equalsIgnoreCase(StudyMetaDataConstants.QUESTIONAIRE_STEP_TYPE_QUESTION)) {
-                    questionIdsList.add(stepsDto.getInstructionFormId());
-                    stepsMap.put(
-                        stepsDto.getInstructionFormId()
-                            + StudyMetaDataConstants.QUESTIONAIRE_STEP_TYPE_QUESTION,
-                        stepsDto);
-                  } else {
-                    formIdsList.add(stepsDto.getInstructionFormId());
-                    stepsMap.put(
-                        stepsDto.getInstructionFormId()
-                            + StudyMetaDataConstants.QUESTIONAIRE_STEP_TYPE_FORM,
-                        stepsDto);
-                  }
+              if ((formMappingList != null) && !formMappingList.isEmpty()) {
+
+                for (FormMappingDto formMapping : formMappingList) {
+                  formQuestionsList.add(formMapping.getQuestionId());
+                  formMappingMap.put(formMapping.getQuestionId(), formMapping);
                 }
 
-                if (!questionIdsList.isEmpty()) {
+                if (!formQuestionsList.isEmpty()) {
                   List<QuestionsDto> questionnsList =
                       session
                           .createQuery(
                               "from QuestionsDto QDTO"
                                   + " where QDTO.active=true and QDTO.status=true"
-                                  + " and QDTO.id in (:questionIdsList)"
+                                  + " and QDTO.id in (:formQuestionsList)"
                                   + " and QDTO.responseType=10 and QDTO.useAnchorDate=true")
                           .setMaxResults(1)
-                          .setParameterList("questionIdsList", questionIdsList)
+                          .setParameterList("formQuestionsList", formQuestionsList)
                           .list();
                   if ((questionnsList != null) && !questionnsList.isEmpty()) {
 
@@ -1292,112 +1452,74 @@ public class StudyMetaDataDao {
                     }
                   }
                 }
+              }
+            }
 
-                if ((questionsMap == null) && !formIdsList.isEmpty()) {
-
-                  List<String> formQuestionsList = new ArrayList<>();
-                  List<FormMappingDto> formMappingList =
-                      session
-                          .createQuery(
-                              "from FormMappingDto FMDTO"
-                                  + " where FMDTO.formId in (select FDTO.formId"
-                                  + " from FormDto FDTO"
-                                  + " where FDTO.formId in (:formIdsList)"
-                                  + " and FDTO.active=true) and FMDTO.active=true"
-                                  + " ORDER BY FMDTO.formId, FMDTO.sequenceNo")
-                          .setParameterList("formIdsList", formIdsList)
-                          .list();
-                  if ((formMappingList != null) && !formMappingList.isEmpty()) {
-
-                    for (FormMappingDto formMapping : formMappingList) {
-                      formQuestionsList.add(formMapping.getQuestionId());
-                      formMappingMap.put(formMapping.getQuestionId(), formMapping);
-                    }
+            if (questionsMap != null) {
+              AnchorDateBean anchorDate = new AnchorDateBean();
+              anchorDate.setType(StudyMetaDataConstants.ANCHORDATE_TYPE_QUESTION);
+              for (Map.Entry<String, QuestionsDto> map : questionsMap.entrySet()) {
+                QuestionsDto questionDto = map.getValue();
+                if (questionDto != null) {
+                  QuestionnairesStepsDto questionnairesSteps;
+
+                  if (StringUtils.isNotEmpty(questionDto.getShortTitle())) {
+                    FormMappingDto formMapping = formMappingMap.get(questionDto.getId());
+                    questionnairesSteps =
+                        stepsMap.get(
+                            formMapping.getFormId()
+                                + StudyMetaDataConstants.QUESTIONAIRE_STEP_TYPE_FORM);
+                  } else {
+                    questionnairesSteps =
+                        stepsMap.get(
+                            questionDto.getId()
+                                + StudyMetaDataConstants.QUESTIONAIRE_STEP_TYPE_QUESTION);
+                  }
 
-                    if (!formQuestionsList.isEmpty()) {
-                      List<QuestionsDto> questionnsList =
-                          session
-                              .createQuery(
-                                  "from QuestionsDto QDTO"
-                                      + " where QDTO.active=true and QDTO.status=true"
-                                      + " and QDTO.id in (:formQuestionsList)"
-                                      + " and QDTO.responseType=10 and QDTO.useAnchorDate=true")
-                              .setMaxResults(1)
-                              .setParameterList("formQuestionsList", formQuestionsList)
-                              .list();
-                      if ((questionnsList != null) && !questionnsList.isEmpty()) {
+                  if (questionnairesSteps != null) {
+                    QuestionnairesDto questionnairesDto =
+                        questionnaireMap.get(questionnairesSteps.getQuestionnairesId());
 
-                        questionsMap = new TreeMap<>();
-                        for (QuestionsDto question : questionnsList) {
-                          questionsMap.put(question.getId(), question);
-                        }
-                      }
-                    }
-                  }
-                }
+                    if (questionnairesDto != null) {
+                      QuestionInfoBean questionInfoBean = new QuestionInfoBean();
+                      questionInfoBean.setActivityId(questionnairesDto.getShortTitle());
+                      questionInfoBean.setActivityVersion(
+                          questionnairesDto.getVersion().toString());
 
-                if (questionsMap != null) {
-                  AnchorDateBean anchorDate = new AnchorDateBean();
-                  anchorDate.setType(StudyMetaDataConstants.ANCHORDATE_TYPE_QUESTION);
-                  for (Map.Entry<String, QuestionsDto> map : questionsMap.entrySet()) {
-                    QuestionsDto questionDto = map.getValue();
-                    if (questionDto != null) {
-                      QuestionnairesStepsDto questionnairesSteps;
-
-                      if (StringUtils.isNotEmpty(questionDto.getShortTitle())) {
-                        FormMappingDto formMapping = formMappingMap.get(questionDto.getId());
-                        questionnairesSteps =
-                            stepsMap.get(
-                                formMapping.getFormId()
-                                    + StudyMetaDataConstants.QUESTIONAIRE_STEP_TYPE_FORM);
+                      if (questionnairesSteps
+                          .getStepType()
+                          .equalsIgnoreCase(StudyMetaDataConstants.QUESTIONAIRE_STEP_TYPE_FORM)) {
+                        questionInfoBean.setKey(questionDto.getShortTitle());
                       } else {
-                        questionnairesSteps =
-                            stepsMap.get(
-                                questionDto.getId()
-                                    + StudyMetaDataConstants.QUESTIONAIRE_STEP_TYPE_QUESTION);
-                      }
-
-                      if (questionnairesSteps != null) {
-                        QuestionnairesDto questionnairesDto =
-                            questionnaireMap.get(questionnairesSteps.getQuestionnairesId());
-
-                        if (questionnairesDto != null) {
-                          QuestionInfoBean questionInfoBean = new QuestionInfoBean();
-                          questionInfoBean.setActivityId(questionnairesDto.getShortTitle());
-                          questionInfoBean.setActivityVersion(
-                              questionnairesDto.getVersion().toString());
-
-                          if (questionnairesSteps
-                              .getStepType()
-                              .equalsIgnoreCase(
-                                  StudyMetaDataConstants.QUESTIONAIRE_STEP_TYPE_FORM)) {
-                            questionInfoBean.setKey(questionDto.getShortTitle());
-                          } else {
-                            questionInfoBean.setKey(questionnairesSteps.getStepShortTitle());
-                          }
-                          anchorDate.setQuestionInfo(questionInfoBean);
-                        }
+                        questionInfoBean.setKey(questionnairesSteps.getStepShortTitle());
                       }
+                      anchorDate.setQuestionInfo(questionInfoBean);
                     }
                   }
-                  studyInfoResponse.setAnchorDate(anchorDate);
                 }
               }
+              studyInfoResponse.setAnchorDate(anchorDate);
             }
           }
         }
-        studyInfoResponse.setMessage(StudyMetaDataConstants.SUCCESS);
-      } else {
-        studyInfoResponse.setMessage(StudyMetaDataConstants.INVALID_STUDY_ID);
       }
-    } catch (Exception e) {
-      LOGGER.error("StudyMetaDataDao - studyInfo() :: ERROR", e);
-    } finally {
-      if (session != null) {
-        session.close();
+    }
+
+    // pages without an image show the default images
+    for (int i = 0; i < studyInfoResponse.getInfo().size(); i++) {
+      InfoBean infoBean = studyInfoResponse.getInfo().get(i);
+      if (StringUtils.isEmpty(infoBean.getImage())) {
+        infoBean.setImage(
+            images.get(
+                StudyMetaDataConstants.DEFAULT_IMAGES
+                    + "/"
+                    + propMap.get(
+                        i == 0
+                            ? StudyMetaDataConstants.STUDY_DEFAULT_IMAGE
+                            : StudyMetaDataConstants.STUDY_PAGE2_DEFAULT_IMAGE)));
       }
     }
-    LOGGER.exit("studyInfo() :: Ends");
+    studyInfoResponse.setMessage(StudyMetaDataConstants.SUCCESS);
     return studyInfoResponse;
   }
 
@@ -26,6 +26,7 @@ package com.hphc.mystudies.integration;
 import com.hphc.mystudies.bean.ConsentDocumentResponse;
 import com.hphc.mystudies.bean.EligibilityConsentResponse;
 import com.hphc.mystudies.bean.GatewayInfoResponse;
+import com.hphc.mystudies.bean.MetaDataDocument;
 import com.hphc.mystudies.bean.ResourcesResponse;
 import com.hphc.mystudies.bean.StudyInfoResponse;
 import com.hphc.mystudies.bean.StudyResponse;
@@ -71,17 +72,17 @@ public class StudyMetaDataOrchestration {
     return gatewayInfo;
   }
 
-  public StudyResponse studyList(String authorization, String applicationId)
+  public MetaDataDocument<StudyResponse> studyList(String authorization, String applicationId)
       throws OrchestrationException {
     LOGGER.entry("begin studyList()");
-    StudyResponse studyResponse = new StudyResponse();
+    MetaDataDocument<StudyResponse> studyList = new MetaDataDocument<>(null, new StudyResponse());
     try {
-      studyResponse = studyMetaDataDao.studyList(authorization, applicationId);
+      studyList = studyMetaDataDao.studyList(authorization, applicationId);
     } catch (Exception e) {
       LOGGER.error("StudyMetaDataOrchestration - studyList() :: ERROR", e);
     }
     LOGGER.exit("studyList() :: Ends");
-    return studyResponse;
+    return studyList;
   }
 
   public EligibilityConsentResponse eligibilityConsentMetadata(String studyId)
@@ -124,16 +125,18 @@ public class StudyMetaDataOrchestration {
     return resourcesResponse;
   }
 
-  public StudyInfoResponse studyInfo(String studyId) throws OrchestrationException {
+  public MetaDataDocument<StudyInfoResponse> studyInfo(String studyId)
+      throws OrchestrationException {
     LOGGER.entry("begin studyInfo()");
-    StudyInfoResponse studyInfoResponse = new StudyInfoResponse();
+    MetaDataDocument<StudyInfoResponse> studyInfo =
+        new MetaDataDocument<>(null, new StudyInfoResponse());
     try {
-      studyInfoResponse = studyMetaDataDao.studyInfo(studyId);
+      studyInfo = studyMetaDataDao.studyInfo(studyId);
     } catch (Exception e) {
       LOGGER.error("StudyMetaDataOrchestration - studyInfo() :: ERROR", e);
     }
     LOGGER.exit("studyInfo() :: Ends");
-    return studyInfoResponse;
+    return studyInfo;
   }
 
   public boolean isValidStudy(String studyId) throws OrchestrationException {
@@ -33,11 +33,10 @@ import com.hphc.mystudies.bean.EligibilityConsentResponse;
 import com.hphc.mystudies.bean.EnrollmentTokenResponse;
 import com.hphc.mystudies.bean.ErrorResponse;
 import com.hphc.mystudies.bean.GatewayInfoResponse;
-import com.hphc.mystudies.bean.InfoBean;
+import com.hphc.mystudies.bean.MetaDataDocument;
 import com.hphc.mystudies.bean.NotificationsResponse;
 import com.hphc.mystudies.bean.QuestionnaireActivityMetaDataResponse;
 import com.hphc.mystudies.bean.ResourcesResponse;
-import com.hphc.mystudies.bean.StudyBean;
 import com.hphc.mystudies.bean.StudyDashboardResponse;
 import com.hphc.mystudies.bean.StudyInfoResponse;
 import com.hphc.mystudies.bean.StudyResponse;
@@ -57,7 +56,6 @@ import io.swagger.annotations.ApiParam;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import java.util.HashMap;
-import java.util.List;
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.Consumes;
@@ -68,8 +66,11 @@ import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 import org.apache.commons.lang3.StringUtils;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -156,36 +157,29 @@ public class StudyMetaDataService {
       @ApiParam(name = "applicationId", required = true) @HeaderParam("applicationId")
           String applicationId,
       @Context ServletContext context,
+      @Context Request request,
       @Context HttpServletResponse response) {
     LOGGER.entry("begin studyList()");
     StudyResponse studyResponse = new StudyResponse();
+    EntityTag entityTag = null;
     try {
       if (!StringUtils.isEmpty(authorization) && !StringUtils.isEmpty(applicationId)) {
-        studyResponse = studyMetaDataOrchestration.studyList(authorization, applicationId);
+        MetaDataDocument<StudyResponse> studyList =
+            studyMetaDataOrchestration.studyList(authorization, applicationId);
+        studyResponse = studyList.getContent();
         if (!studyResponse.getMessage().equals(StudyMetaDataConstants.SUCCESS)) {
           StudyMetaDataUtil.getFailureResponse(
               ErrorCodes.STATUS_103, ErrorCodes.NO_DATA, StudyMetaDataConstants.FAILURE, response);
           return Response.status(Response.Status.NOT_FOUND)
               .entity(StudyMetaDataConstants.NO_RECORD)
               .build();
-        } else {
-          List<StudyBean> studyBeanInfo = studyResponse.getStudies();
+        }
 
-          if (!studyBeanInfo.isEmpty()) {
-            for (StudyBean studyBeanObject : studyBeanInfo) {
-              String logo = studyBeanObject.getLogo();
-              if (logo == null || logo.isEmpty()) {
-                studyBeanObject.setLogo(
-                    StudyMetaDataUtil.getResources(
-                        propMap.get("cloud.bucket.name"),
-                        StudyMetaDataConstants.DEFAULT_IMAGES
-                            + "/"
-                            + propMap.get(
-                                StudyMetaDataConstants.STUDY_BASICINFORMATION_DEFAULT_IMAGE),
-                        StudyMetaDataConstants.DATA_IMAGE));
-              }
-            }
-          }
+        entityTag = getEntityTag(studyList);
+        ResponseBuilder notModified = evaluatePreconditions(request, entityTag);
+        if (notModified != null) {
+          LOGGER.exit("studyList() :: Not modified");
+          return notModified.build();
         }
       } else {
         return Response.status(Response.Status.BAD_REQUEST)
@@ -201,7 +195,7 @@ public class StudyMetaDataService {
           .build();
     }
     LOGGER.exit("studyList() :: Ends");
-    return studyResponse;
+    return Response.ok(studyResponse).tag(entityTag).build();
   }
 
   @ApiOperation(value = "Get the eligibility method configured for a particular study")
@@ -428,9 +422,11 @@ public class StudyMetaDataService {
   public Object studyInfo(
       @ApiParam(name = "studyId", required = true) @QueryParam("studyId") String studyId,
       @Context ServletContext context,
+      @Context Request request,
       @Context HttpServletResponse response) {
     LOGGER.entry("begin studyInfo()");
     StudyInfoResponse studyInfoResponse = new StudyInfoResponse();
+    EntityTag entityTag = null;
     Boolean isValidFlag = false;
     try {
       if (StringUtils.isNotEmpty(studyId)) {
@@ -446,7 +442,9 @@ public class StudyMetaDataService {
               .build();
         }
 
-        studyInfoResponse = studyMetaDataOrchestration.studyInfo(studyId);
+        MetaDataDocument<StudyInfoResponse> studyInfo =
+            studyMetaDataOrchestration.studyInfo(studyId);
+        studyInfoResponse = studyInfo.getContent();
         if (!studyInfoResponse.getMessage().equals(StudyMetaDataConstants.SUCCESS)) {
           StudyMetaDataUtil.getFailureResponse(
               ErrorCodes.STATUS_103, ErrorCodes.NO_DATA, StudyMetaDataConstants.FAILURE, response);
@@ -454,6 +452,13 @@ public class StudyMetaDataService {
               .entity(StudyMetaDataConstants.NO_RECORD)
               .build();
         }
+
+        entityTag = getEntityTag(studyInfo);
+        ResponseBuilder notModified = evaluatePreconditions(request, entityTag);
+        if (notModified != null) {
+          LOGGER.exit("studyInfo() :: Not modified");
+          return notModified.build();
+        }
       } else {
         StudyMetaDataUtil.getFailureResponse(
             ErrorCodes.STATUS_102,
@@ -465,34 +470,6 @@ public class StudyMetaDataService {
             .build();
       }
 
-      List<InfoBean> infoBeans = studyInfoResponse.getInfo();
-
-      int count = 0;
-
-      for (InfoBean infoBean : infoBeans) {
-        if (infoBean.getImage() == null || infoBean.getImage().equals("")) {
-          if (count == 0) {
-            infoBean.setImage(
-                StudyMetaDataUtil.getResources(
-                    propMap.get("cloud.bucket.name"),
-                    StudyMetaDataConstants.DEFAULT_IMAGES
-                        + "/"
-                        + propMap.get(StudyMetaDataConstants.STUDY_DEFAULT_IMAGE),
-                    StudyMetaDataConstants.DATA_IMAGE));
-
-          } else {
-            infoBean.setImage(
-                StudyMetaDataUtil.getResources(
-                    propMap.get("cloud.bucket.name"),
-                    StudyMetaDataConstants.DEFAULT_IMAGES
-                        + "/"
-                        + propMap.get(StudyMetaDataConstants.STUDY_PAGE2_DEFAULT_IMAGE),
-                    StudyMetaDataConstants.DATA_IMAGE));
-          }
-        }
-        count++;
-      }
-
     } catch (Exception e) {
       LOGGER.error("StudyMetaDataService - studyInfo() :: ERROR", e);
       StudyMetaDataUtil.getFailureResponse(
@@ -502,7 +479,7 @@ public class StudyMetaDataService {
           .build();
     }
     LOGGER.exit("studyInfo() :: Ends");
-    return studyInfoResponse;
+    return Response.ok(studyInfoResponse).tag(entityTag).build();
   }
 
   @ApiOperation(value = "Get the list of activities that are available for a particular study")
@@ -1272,4 +1249,17 @@ public class StudyMetaDataService {
     LOGGER.exit("storeJsonResponseFile() :: ends");
     return errorResponse;
   }
+
+  /** Returns the weak entity tag of the document, or null if the document has none. */
+  static EntityTag getEntityTag(MetaDataDocument<?> document) {
+    return document.getEtag() != null ? new EntityTag(document.getEtag(), true) : null;
+  }
+
+  /**
+   * Returns the not modified response if the request preconditions match the entity tag, or null if
+   * they don't or there is no entity tag.
+   */
+  static ResponseBuilder evaluatePreconditions(Request request, EntityTag entityTag) {
+    return entityTag != null ? request.evaluatePreconditions(entityTag) : null;
+  }
 }
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.hphc.mystudies.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.StringTokenizer;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.glassfish.jersey.internal.util.Base64;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+
+/**
+ * Verifies the Basic authorization header of the mobile apps and the response server against the
+ * bundle id and app token pairs of authorizationResource.properties.
+ *
+ * <p>The properties are read into a set of valid pairs, keyed by the platform prefix of the
+ * property names (android, ios, responseserver). The values come from environment variables, which
+ * do not change while the process runs, so the properties are read once. The verification of each
+ * distinct header is kept, up to auth.credentials.cache.max.entries headers.
+ */
+public final class CredentialVerifier {
+
+  private static final XLogger LOGGER =
+      XLoggerFactory.getXLogger(CredentialVerifier.class.getName());
+
+  private static final String AUTHORIZATION_PROPERTIES = "authorizationResource.properties";
+
+  private static final String BASIC = "Basic";
+
+  private static final int DEFAULT_MAX_ENTRIES = 1000;
+
+  private static final CredentialVerifier INSTANCE = newInstance();
+
+  /** The app a valid authorization header belongs to. */
+  public static final class Credential {
+
+    private final String platform;
+
+    private final String bundleId;
+
+    private Credential(String platform, String bundleId) {
+      this.platform = platform;
+      this.bundleId = bundleId;
+    }
+
+    /** Returns the prefix of the property names of the app, such as android or ios. */
+    public String getPlatform() {
+      return platform;
+    }
+
+    public String getBundleId() {
+      return bundleId;
+    }
+  }
+
+  /** Marks a header that was verified and found invalid. */
+  private static final Credential INVALID = new Credential(null, null);
+
+  private final Map<String, Credential> verifiedHeaders;
+
+  private final Credentials credentials;
+
+  @SuppressWarnings("unchecked")
+  private static CredentialVerifier newInstance() {
+    HashMap<String, String> propMap = StudyMetaDataUtil.getAppProperties();
+    int maxEntries =
+        NumberUtils.toInt(propMap.get("auth.credentials.cache.max.entries"), DEFAULT_MAX_ENTRIES);
+    return new CredentialVerifier(
+        maxEntries,
+        PropertiesUtil.makePropertiesWithEnvironmentVariables(AUTHORIZATION_PROPERTIES));
+  }
+
+  CredentialVerifier(final int maxEntries, Properties properties) {
+    verifiedHeaders =
+        new LinkedHashMap<String, Credential>(16, 0.75f, true) {
+          private static final long serialVersionUID = 1L;
+
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, Credential> eldest) {
+            return size() > maxEntries;
+          }
+        };
+    credentials = loadCredentials(properties);
+  }
+
+  public static CredentialVerifier getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns the app of a "Basic base64(bundleId:appToken)" authorization header, or null if the
+   * bundle id and the app token are not a configured pair.
+   */
+  public Credential verify(String authorization) {
+    if (StringUtils.isEmpty(authorization) || !authorization.contains(BASIC)) {
+      return null;
+    }
+
+    Credential credential;
+    synchronized (verifiedHeaders) {
+      credential = verifiedHeaders.get(authorization);
+    }
+    if (credential == null) {
+      credential = decode(authorization);
+      synchronized (verifiedHeaders) {
+        verifiedHeaders.put(authorization, credential);
+      }
+    }
+    return credential == INVALID ? null : credential;
+  }
+
+  /** Returns true if the value is a configured bundle id or app token. */
+  public boolean isConfiguredValue(String value) {
+    return credentials.values.contains(value);
+  }
+
+  /** Returns true if the verification of the header is kept. */
+  boolean isVerified(String authorization) {
+    synchronized (verifiedHeaders) {
+      return verifiedHeaders.containsKey(authorization);
+    }
+  }
+
+  private Credential decode(String authorization) {
+    try {
+      byte[] decodedBytes = Base64.decode(authorization.replaceFirst(BASIC + " ", "").getBytes());
+      String bundleIdAndAppToken = new String(decodedBytes, StudyMetaDataConstants.TYPE_UTF8);
+      if (bundleIdAndAppToken.contains(":")) {
+        StringTokenizer tokenizer = new StringTokenizer(bundleIdAndAppToken, ":");
+        String bundleId = tokenizer.nextToken();
+        String appToken = tokenizer.nextToken();
+        String platform = credentials.platformsByPair.get(bundleId + ":" + appToken);
+        if (platform != null) {
+          return new Credential(platform, bundleId);
+        }
+      }
+    } catch (Exception e) {
+      LOGGER.error("CredentialVerifier - decode() :: ERROR", e);
+    }
+    return INVALID;
+  }
+
+  /**
+   * Pairs the values of the properties that share a platform prefix, as the bundle id and the app
+   * token of an app are configured as &lt;platform&gt;.bundleid and &lt;platform&gt;.apptoken.
+   */
+  private static Credentials loadCredentials(Properties prop) {
+    Map<String, Set<String>> valuesByPlatform = new HashMap<>();
+    Set<String> values = new HashSet<>();
+    for (String key : prop.stringPropertyNames()) {
+      String value = prop.getProperty(key);
+      if (StringUtils.isEmpty(value)) {
+        continue;
+      }
+      String platform = new StringTokenizer(key, ".").nextToken();
+      if (!valuesByPlatform.containsKey(platform)) {
+        valuesByPlatform.put(platform, new HashSet<String>());
+      }
+      valuesByPlatform.get(platform).add(value);
+      values.add(value);
+    }
+
+    Map<String, String> platformsByPair = new HashMap<>();
+    for (Map.Entry<String, Set<String>> platformValues : valuesByPlatform.entrySet()) {
+      for (String bundleId : platformValues.getValue()) {
+        for (String appToken : platformValues.getValue()) {
+          platformsByPair.put(bundleId + ":" + appToken, platformValues.getKey());
+        }
+      }
+    }
+    return new Credentials(platformsByPair, values);
+  }
+
+  private static final class Credentials {
+
+    private final Map<String, String> platformsByPair;
+
+    private final Set<String> values;
+
+    private Credentials(Map<String, String> platformsByPair, Set<String> values) {
+      this.platformsByPair = Collections.unmodifiableMap(platformsByPair);
+      this.values = Collections.unmodifiableSet(values);
+    }
+  }
+}
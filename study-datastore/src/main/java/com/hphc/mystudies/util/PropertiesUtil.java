@@ -1,6 +1,7 @@
 package com.hphc.mystudies.util;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Properties;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -16,8 +17,12 @@ public class PropertiesUtil {
   // Expects environment variables to be in the form ${VAR_NAME}.
   public static Properties makePropertiesWithEnvironmentVariables(String properties_file) {
     Properties properties = new Properties();
-    try {
-      properties.load(PropertiesUtil.class.getClassLoader().getResourceAsStream(properties_file));
+    try (InputStream in =
+        PropertiesUtil.class.getClassLoader().getResourceAsStream(properties_file)) {
+      if (in == null) {
+        throw new IOException(properties_file + " not found on the class path");
+      }
+      properties.load(in);
     } catch (IOException ex) {
       logger.error("Unable to access " + properties_file, ex);
     }
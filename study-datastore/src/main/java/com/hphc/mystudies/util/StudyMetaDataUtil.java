@@ -29,7 +29,6 @@ import com.google.cloud.storage.Storage;
 import com.google.cloud.storage.StorageOptions;
 import com.hphc.mystudies.bean.FailureResponse;
 import java.io.BufferedOutputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.security.MessageDigest;
@@ -39,7 +38,6 @@ import java.util.Calendar;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.HashMap;
-import java.util.Map;
 import java.util.Properties;
 import java.util.ResourceBundle;
 import java.util.StringTokenizer;
@@ -442,62 +440,34 @@ public class StudyMetaDataUtil {
 
   public static String platformType(String authCredentials, String type) {
     LOGGER.entry("begin platformType() - Starts");
-    String bundleIdAndAppToken = null;
     String platform = "";
     try {
-      if (StringUtils.isNotEmpty(authCredentials) && authCredentials.contains("Basic")) {
-        final byte[] encodedUserPassword =
-            authCredentials.replaceFirst("Basic" + " ", "").getBytes();
-        byte[] decodedBytes = Base64.decode(encodedUserPassword);
-        bundleIdAndAppToken = new String(decodedBytes, "UTF-8");
-
-        if (bundleIdAndAppToken.contains(":")) {
-          final StringTokenizer tokenizer = new StringTokenizer(bundleIdAndAppToken, ":");
-          final String bundleId = tokenizer.nextToken();
-          final String appToken = tokenizer.nextToken();
-          if (authPropMap.containsValue(bundleId) && authPropMap.containsValue(appToken)) {
-            String appBundleId = "";
-            String appTokenId = "";
-            for (Map.Entry<String, String> map : authPropMap.entrySet()) {
-              if (map.getValue().equals(appToken)) {
-                appTokenId = map.getKey();
-              }
-
-              if (map.getValue().equals(bundleId)) {
-                appBundleId = map.getValue();
-              }
-            }
-
-            if (StringUtils.isNotEmpty(appBundleId) && StringUtils.isNotEmpty(appTokenId)) {
-              final StringTokenizer authTokenizer = new StringTokenizer(appTokenId, ".");
-              final String platformType = authTokenizer.nextToken();
-
-              if (platformType.equals(StudyMetaDataConstants.STUDY_PLATFORM_ANDROID)) {
-                switch (type) {
-                  case StudyMetaDataConstants.STUDY_AUTH_TYPE_PLATFORM:
-                    platform = StudyMetaDataConstants.STUDY_PLATFORM_TYPE_ANDROID;
-                    break;
-                  case StudyMetaDataConstants.STUDY_AUTH_TYPE_OS:
-                    platform = StudyMetaDataConstants.STUDY_PLATFORM_ANDROID;
-                    break;
-                  case StudyMetaDataConstants.STUDY_AUTH_TYPE_BUNDLE_ID:
-                    platform = bundleId;
-                    break;
-                }
-              } else {
-                switch (type) {
-                  case StudyMetaDataConstants.STUDY_AUTH_TYPE_PLATFORM:
-                    platform = StudyMetaDataConstants.STUDY_PLATFORM_TYPE_IOS;
-                    break;
-                  case StudyMetaDataConstants.STUDY_AUTH_TYPE_OS:
-                    platform = StudyMetaDataConstants.STUDY_PLATFORM_IOS;
-                    break;
-                  case StudyMetaDataConstants.STUDY_AUTH_TYPE_BUNDLE_ID:
-                    platform = bundleId;
-                    break;
-                }
-              }
-            }
+      CredentialVerifier.Credential credential =
+          CredentialVerifier.getInstance().verify(authCredentials);
+      if (credential != null) {
+        if (credential.getPlatform().equals(StudyMetaDataConstants.STUDY_PLATFORM_ANDROID)) {
+          switch (type) {
+            case StudyMetaDataConstants.STUDY_AUTH_TYPE_PLATFORM:
+              platform = StudyMetaDataConstants.STUDY_PLATFORM_TYPE_ANDROID;
+              break;
+            case StudyMetaDataConstants.STUDY_AUTH_TYPE_OS:
+              platform = StudyMetaDataConstants.STUDY_PLATFORM_ANDROID;
+              break;
+            case StudyMetaDataConstants.STUDY_AUTH_TYPE_BUNDLE_ID:
+              platform = credential.getBundleId();
+              break;
+          }
+        } else {
+          switch (type) {
+            case StudyMetaDataConstants.STUDY_AUTH_TYPE_PLATFORM:
+              platform = StudyMetaDataConstants.STUDY_PLATFORM_TYPE_IOS;
+              break;
+            case StudyMetaDataConstants.STUDY_AUTH_TYPE_OS:
+              platform = StudyMetaDataConstants.STUDY_PLATFORM_IOS;
+              break;
+            case StudyMetaDataConstants.STUDY_AUTH_TYPE_BUNDLE_ID:
+              platform = credential.getBundleId();
+              break;
           }
         }
       }
@@ -806,18 +776,25 @@ public class StudyMetaDataUtil {
 
   public static String getResources(String bucketName, String filepath, String dataFormat) {
     try {
-      if (StringUtils.isNotBlank(filepath)) {
-        Storage storage = StorageOptions.getDefaultInstance().getService();
-        Blob blob = storage.get(BlobId.of(bucketName, filepath));
-        if (blob != null) {
-          ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-          blob.downloadTo(outputStream);
-          return dataFormat + java.util.Base64.getEncoder().encodeToString(blob.getContent());
-        }
-      }
+      return getResourceDataUri(bucketName, filepath, dataFormat);
     } catch (Exception e) {
       LOGGER.error("Unable to getResources", e);
     }
     return null;
   }
+
+  /**
+   * Returns the file as a data URI, or null if there is no such file. Unlike {@link #getResources},
+   * an error of cloud storage is thrown rather than taken for a missing file.
+   */
+  public static String getResourceDataUri(String bucketName, String filepath, String dataFormat) {
+    if (StringUtils.isNotBlank(filepath)) {
+      Storage storage = StorageOptions.getDefaultInstance().getService();
+      Blob blob = storage.get(BlobId.of(bucketName, filepath));
+      if (blob != null) {
+        return dataFormat + java.util.Base64.getEncoder().encodeToString(blob.getContent());
+      }
+    }
+    return null;
+  }
 }
@@ -23,12 +23,7 @@
  */
 package com.hphc.mystudies.web.servlet;
 
-import com.hphc.mystudies.util.StudyMetaDataUtil;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.StringTokenizer;
-import org.apache.commons.lang3.StringUtils;
-import org.glassfish.jersey.internal.util.Base64;
+import com.hphc.mystudies.util.CredentialVerifier;
 import org.slf4j.ext.XLogger;
 import org.slf4j.ext.XLoggerFactory;
 
@@ -37,58 +32,12 @@ public class AuthenticationService {
   private static final XLogger LOGGER =
       XLoggerFactory.getXLogger(AuthenticationService.class.getName());
 
-  @SuppressWarnings("unchecked")
-  HashMap<String, String> authPropMap = StudyMetaDataUtil.getAuthorizationProperties();
+  private final CredentialVerifier credentialVerifier = CredentialVerifier.getInstance();
 
   public boolean authenticate(String authCredentials) {
     LOGGER.entry("begin authenticate()");
-    boolean authenticationStatus = false;
-    String bundleIdAndAppToken = null;
-    String bundleIdKey = "";
-    String appTokenKey = "";
-    try {
-      if (StringUtils.isNotEmpty(authCredentials) && authCredentials.contains("Basic")) {
-        final byte[] encodedUserPassword =
-            authCredentials.replaceFirst("Basic" + " ", "").getBytes();
-        byte[] decodedBytes = Base64.decode(encodedUserPassword);
-        bundleIdAndAppToken = new String(decodedBytes, "UTF-8");
-        if (bundleIdAndAppToken.contains(":")) {
-          final StringTokenizer tokenizer = new StringTokenizer(bundleIdAndAppToken, ":");
-          final String bundleId = tokenizer.nextToken();
-          final String appToken = tokenizer.nextToken();
-
-          for (Map.Entry<String, String> map : authPropMap.entrySet()) {
-            if (map.getValue().equals(appToken)) {
-              appTokenKey = map.getKey();
-            }
-            if (map.getValue().equals(bundleId)) {
-              bundleIdKey = map.getKey();
-            }
-          }
-
-          if (authPropMap.containsValue(bundleId)
-              && authPropMap.containsValue(appToken)
-              && isValidPlatformType(appTokenKey, bundleIdKey)) {
-            authenticationStatus = true;
-          }
-        }
-      }
-    } catch (Exception e) {
-      LOGGER.error("AuthenticationService - authenticate() :: ERROR", e);
-      return authenticationStatus;
-    }
+    boolean authenticationStatus = credentialVerifier.verify(authCredentials) != null;
     LOGGER.exit("authenticate() - Ends");
     return authenticationStatus;
   }
-
-  private static boolean isValidPlatformType(String appTokenKey, String bundleIdKey) {
-
-    final StringTokenizer appTokenizer = new StringTokenizer(appTokenKey, ".");
-    final String appTokenPlatFormType = appTokenizer.nextToken();
-
-    final StringTokenizer bundleIdTokenizer = new StringTokenizer(bundleIdKey, ".");
-    final String bundleIdPlatformType = bundleIdTokenizer.nextToken();
-
-    return StringUtils.equals(appTokenPlatFormType, bundleIdPlatformType);
-  }
 }
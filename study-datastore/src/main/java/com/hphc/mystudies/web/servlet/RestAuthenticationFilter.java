@@ -45,6 +45,8 @@ public class RestAuthenticationFilter implements Filter {
 
   public static final String AUTHENTICATION_HEADER = "Authorization";
 
+  private final AuthenticationService authenticationService = new AuthenticationService();
+
   @Override
   public void doFilter(ServletRequest request, ServletResponse response, FilterChain filter)
       throws IOException, ServletException {
@@ -53,7 +55,6 @@ public class RestAuthenticationFilter implements Filter {
       String authCredentials = httpServletRequest.getHeader(AUTHENTICATION_HEADER);
 
       if (StringUtils.isNotEmpty(authCredentials)) {
-        AuthenticationService authenticationService = new AuthenticationService();
         boolean authenticationStatus = authenticationService.authenticate(authCredentials);
         if (authenticationStatus) {
           filter.doFilter(request, response);
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.hphc.mystudies.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import com.hphc.mystudies.dto.StudyDto;
+import com.hphc.mystudies.exception.DAOException;
+import com.hphc.mystudies.util.StudyMetaDataConstants;
+import org.junit.Test;
+
+public class MetaDataStoreTest {
+
+  @Test
+  public void shouldBuildOncePerPublication() throws DAOException {
+    MetaDataStore store = new MetaDataStore(10);
+    CountingBuilder builder = new CountingBuilder();
+
+    String first = store.get("studyInfo:1", "1:1.0:2021-01-01", builder);
+    assertSame(first, store.get("studyInfo:1", "1:1.0:2021-01-01", builder));
+    assertEquals(1, builder.builds);
+
+    String republished = store.get("studyInfo:1", "1:1.0:2021-01-02", builder);
+    assertNotEquals(first, republished);
+    assertSame(republished, store.get("studyInfo:1", "1:1.0:2021-01-02", builder));
+    assertEquals(2, builder.builds);
+  }
+
+  @Test
+  public void shouldKeepEntriesOfOtherKeysWhenOnePublishes() throws DAOException {
+    MetaDataStore store = new MetaDataStore(10);
+    CountingBuilder builder = new CountingBuilder();
+
+    String android = store.get("studyList:app1:a", "1:1.0", builder);
+    store.get("studyList:app1:i", "1:1.0", builder);
+    store.get("studyList:app1:i", "1:1.1", builder);
+
+    assertSame(android, store.get("studyList:app1:a", "1:1.0", builder));
+    assertEquals(3, builder.builds);
+  }
+
+  @Test
+  public void shouldBuildAgainOnlyWhenRemovedPublicationIsStored() throws DAOException {
+    MetaDataStore store = new MetaDataStore(10);
+    CountingBuilder builder = new CountingBuilder();
+
+    String first = store.get("studyInfo:1", "1:1.1", builder);
+    store.remove("studyInfo:1", "1:1.0");
+    assertSame(first, store.get("studyInfo:1", "1:1.1", builder));
+
+    store.remove("studyInfo:1", "1:1.1");
+    assertNotEquals(first, store.get("studyInfo:1", "1:1.1", builder));
+    assertEquals(2, builder.builds);
+  }
+
+  @Test
+  public void shouldNotKeepFailedBuilds() throws DAOException {
+    MetaDataStore store = new MetaDataStore(10);
+    final DAOException failure = new DAOException("query failed", null);
+    try {
+      store.get(
+          "studyInfo:1",
+          "1:1.0",
+          new MetaDataStore.Builder<String>() {
+            @Override
+            public String build() throws DAOException {
+              throw failure;
+            }
+          });
+      fail("the build failure should be thrown");
+    } catch (DAOException e) {
+      assertSame(failure, e);
+    }
+
+    CountingBuilder builder = new CountingBuilder();
+    store.get("studyInfo:1", "1:1.0", builder);
+    assertEquals(1, builder.builds);
+  }
+
+  @Test
+  public void shouldStoreEachVersionOfAnActivitySeparately() throws DAOException {
+    MetaDataStore store = new MetaDataStore(10);
+    CountingBuilder builder = new CountingBuilder();
+    String publication = ActivityMetaDataDao.getPublication(newStudyDto("2021-01-01"));
+    String version1 = activityKey(StudyMetaDataConstants.ACTIVITY_QUESTIONNAIRE, "1.0");
+    String version2 = activityKey(StudyMetaDataConstants.ACTIVITY_QUESTIONNAIRE, "1.1");
+    String activeTask = activityKey(StudyMetaDataConstants.ACTIVITY_ACTIVE_TASK, "1.0");
+
+    String first = store.get(version1, publication, builder);
+    String second = store.get(version2, publication, builder);
+    String task = store.get(activeTask, publication, builder);
+
+    assertNotEquals(first, second);
+    assertNotEquals(first, task);
+    assertSame(first, store.get(version1, publication, builder));
+    assertSame(second, store.get(version2, publication, builder));
+    assertSame(task, store.get(activeTask, publication, builder));
+    assertEquals(3, builder.builds);
+  }
+
+  @Test
+  public void shouldBuildActivityAgainWhenTheStudyIsPublished() throws DAOException {
+    MetaDataStore store = new MetaDataStore(10);
+    CountingBuilder builder = new CountingBuilder();
+    String key = activityKey(StudyMetaDataConstants.ACTIVITY_QUESTIONNAIRE, "1.0");
+    String publication = ActivityMetaDataDao.getPublication(newStudyDto("2021-01-01"));
+    String republication = ActivityMetaDataDao.getPublication(newStudyDto("2021-01-02"));
+
+    String first = store.get(key, publication, builder);
+    String republished = store.get(key, republication, builder);
+
+    assertNotEquals(first, republished);
+    assertSame(republished, store.get(key, republication, builder));
+    assertEquals(2, builder.builds);
+  }
+
+  @Test
+  public void shouldEvictTheLeastRecentlyUsedActivity() throws DAOException {
+    MetaDataStore store = new MetaDataStore(2);
+    CountingBuilder builder = new CountingBuilder();
+    String publication = ActivityMetaDataDao.getPublication(newStudyDto("2021-01-01"));
+    String version1 = activityKey(StudyMetaDataConstants.ACTIVITY_QUESTIONNAIRE, "1.0");
+    String version2 = activityKey(StudyMetaDataConstants.ACTIVITY_QUESTIONNAIRE, "1.1");
+    String version3 = activityKey(StudyMetaDataConstants.ACTIVITY_QUESTIONNAIRE, "1.2");
+
+    String first = store.get(version1, publication, builder);
+    String second = store.get(version2, publication, builder);
+    // reading version1 makes version2 the least recently used
+    store.get(version1, publication, builder);
+    store.get(version3, publication, builder);
+    assertEquals(3, builder.builds);
+
+    assertSame(first, store.get(version1, publication, builder));
+    assertEquals(3, builder.builds);
+    assertNotEquals(second, store.get(version2, publication, builder));
+    assertEquals(4, builder.builds);
+  }
+
+  @Test
+  public void shouldChangeEntityTagWithPublication() {
+    String entityTag = StudyMetaDataDao.getEntityTag("studyInfo:1", "1:1.0");
+
+    assertEquals(entityTag, StudyMetaDataDao.getEntityTag("studyInfo:1", "1:1.0"));
+    assertNotEquals(entityTag, StudyMetaDataDao.getEntityTag("studyInfo:1", "1:1.1"));
+    assertNotEquals(entityTag, StudyMetaDataDao.getEntityTag("studyInfo:2", "1:1.0"));
+  }
+
+  private static String activityKey(String activityType, String activityVersion) {
+    return ActivityMetaDataDao.getActivityKey(activityType, "Study1", "Activity1", activityVersion);
+  }
+
+  private static StudyDto newStudyDto(String modifiedOn) {
+    StudyDto studyDto = new StudyDto();
+    studyDto.setId("1");
+    studyDto.setVersion(1.0f);
+    studyDto.setModifiedOn(modifiedOn);
+    return studyDto;
+  }
+
+  private static class CountingBuilder implements MetaDataStore.Builder<String> {
+
+    private int builds;
+
+    @Override
+    public String build() {
+      builds++;
+      return "metadata " + builds;
+    }
+  }
+}
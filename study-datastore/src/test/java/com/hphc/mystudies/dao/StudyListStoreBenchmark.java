@@ -0,0 +1,131 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.hphc.mystudies.dao;
+
+import com.hphc.mystudies.bean.MetaDataDocument;
+import com.hphc.mystudies.bean.StudyBean;
+import com.hphc.mystudies.bean.StudyResponse;
+import com.hphc.mystudies.dto.StudyDto;
+import com.hphc.mystudies.exception.DAOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the work of StudyMetaDataDao.studyList() after the study rows are queried: the list
+ * served from the {@link MetaDataStore} for an unchanged publication, and the list assembled again
+ * from the rows on each request. The assembly measured here leaves out the queries and the image
+ * downloads of buildStudyList(), which need a database and cloud storage and cost far more.
+ *
+ * <p>Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.hphc.mystudies.dao.StudyListStoreBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StudyListStoreBenchmark {
+
+  private static final String KEY = "studyList:GCPMS001:a";
+
+  @Param({"20", "200"})
+  private int studies;
+
+  private List<StudyDto> studiesList;
+
+  private MetaDataStore store;
+
+  private long publications;
+
+  @Setup
+  public void setUp() {
+    studiesList = new ArrayList<>();
+    for (int study = 0; study < studies; study++) {
+      StudyDto studyDto = new StudyDto();
+      studyDto.setId(String.valueOf(study));
+      studyDto.setCustomStudyId("Study" + study);
+      studyDto.setName("Study " + study);
+      studyDto.setCategory("Cardiology");
+      studyDto.setResearchSponsor("Sponsor " + study);
+      studyDto.setStudyTagline("Tagline of study " + study);
+      studyDto.setStatus("Active");
+      studyDto.setVersion(1.0f);
+      studyDto.setModifiedOn("2021-03-04 05:06:07");
+      studyDto.setEnrollingParticipants("Yes");
+      studiesList.add(studyDto);
+    }
+    store = new MetaDataStore(500);
+  }
+
+  /** The list of an unchanged publication, served from the store. */
+  @Benchmark
+  public MetaDataDocument<StudyResponse> stored() throws DAOException {
+    return studyList(getPublication());
+  }
+
+  /** A new publication for each request, so the list is assembled again as before the store. */
+  @Benchmark
+  public MetaDataDocument<StudyResponse> assembled() throws DAOException {
+    return studyList(getPublication() + publications++);
+  }
+
+  private String getPublication() {
+    StringBuilder publication = new StringBuilder();
+    for (StudyDto studyDto : studiesList) {
+      publication.append(StudyMetaDataDao.getPublication(studyDto)).append(";");
+    }
+    return publication.toString();
+  }
+
+  private MetaDataDocument<StudyResponse> studyList(final String publication) throws DAOException {
+    return store.get(
+        KEY,
+        publication,
+        new MetaDataStore.Builder<MetaDataDocument<StudyResponse>>() {
+          @Override
+          public MetaDataDocument<StudyResponse> build() {
+            StudyResponse studyResponse = new StudyResponse();
+            for (StudyDto studyDto : studiesList) {
+              StudyBean studyBean = new StudyBean();
+              studyBean.setStudyId(studyDto.getCustomStudyId());
+              studyBean.setStudyVersion(String.valueOf(studyDto.getVersion()));
+              studyBean.setTitle(studyDto.getName());
+              studyBean.setCategory(studyDto.getCategory());
+              studyBean.setSponsorName(studyDto.getResearchSponsor());
+              studyBean.setTagline(studyDto.getStudyTagline());
+              studyBean.setStatus(studyDto.getStatus());
+              studyResponse.getStudies().add(studyBean);
+            }
+            return new MetaDataDocument<>(
+                StudyMetaDataDao.getEntityTag(KEY, publication), studyResponse);
+          }
+        });
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(StudyListStoreBenchmark.class.getSimpleName()).build())
+        .run();
+  }
+}
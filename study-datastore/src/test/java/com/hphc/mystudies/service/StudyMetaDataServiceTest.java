@@ -0,0 +1,71 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.hphc.mystudies.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import com.hphc.mystudies.bean.MetaDataDocument;
+import java.net.URI;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import org.glassfish.jersey.internal.MapPropertiesDelegate;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.junit.Test;
+
+public class StudyMetaDataServiceTest {
+
+  private static final String ETAG = "5b0a6b1c-3c57-3a8e-9c5d-0f2b8a7f6e41";
+
+  @Test
+  public void shouldReturnNotModifiedWhenEntityTagMatches() {
+    EntityTag entityTag = StudyMetaDataService.getEntityTag(new MetaDataDocument<>(ETAG, "study"));
+
+    Response response =
+        StudyMetaDataService.evaluatePreconditions(request("W/\"" + ETAG + "\""), entityTag)
+            .build();
+
+    assertEquals(Response.Status.NOT_MODIFIED.getStatusCode(), response.getStatus());
+    assertEquals(entityTag, response.getEntityTag());
+  }
+
+  @Test
+  public void shouldServeDocumentWhenEntityTagDoesNotMatch() {
+    EntityTag entityTag = StudyMetaDataService.getEntityTag(new MetaDataDocument<>(ETAG, "study"));
+
+    assertNotNull(entityTag);
+    assertNull(StudyMetaDataService.evaluatePreconditions(request("W/\"other\""), entityTag));
+    assertNull(StudyMetaDataService.evaluatePreconditions(request(null), entityTag));
+  }
+
+  @Test
+  public void shouldServeDocumentWithoutEntityTag() {
+    EntityTag entityTag = StudyMetaDataService.getEntityTag(new MetaDataDocument<>(null, "study"));
+
+    assertNull(entityTag);
+    assertNull(StudyMetaDataService.evaluatePreconditions(request("*"), entityTag));
+  }
+
+  private static Request request(String ifNoneMatch) {
+    ContainerRequest request =
+        new ContainerRequest(
+            URI.create("http://localhost/StudyMetaData/"),
+            URI.create("http://localhost/StudyMetaData/studyInfo?studyId=1"),
+            "GET",
+            null,
+            new MapPropertiesDelegate());
+    if (ifNoneMatch != null) {
+      request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+    }
+    return request;
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.hphc.mystudies.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.StringTokenizer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the verification of authorization headers previously done by AuthenticationService for
+ * each request, which copied the authorization properties and scanned their values, with {@link
+ * CredentialVerifier}. The previous verification also read authorizationResource.properties from
+ * the class path for each request, which is left out here.
+ *
+ * <p>Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.hphc.mystudies.util.CredentialVerifierBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CredentialVerifierBenchmark {
+
+  private static final String[] PLATFORMS = {"android", "ios", "responseserver"};
+
+  /** The number of distinct headers, as the apps of several bundle ids send them. */
+  @Param({"3", "100"})
+  private int headers;
+
+  private Properties properties;
+
+  private CredentialVerifier verifier;
+
+  private String[] authorizations;
+
+  private int next;
+
+  @Setup
+  public void setUp() {
+    properties = new Properties();
+    for (String platform : PLATFORMS) {
+      properties.setProperty(platform + ".bundleid", "com.example." + platform);
+      properties.setProperty(platform + ".apptoken", platform + "-token");
+    }
+    verifier = new CredentialVerifier(1000, properties);
+    authorizations = new String[headers];
+    for (int i = 0; i < headers; i++) {
+      String platform = PLATFORMS[i % PLATFORMS.length];
+      // the apps of a platform send the same pair, so the other headers are invalid ones
+      String bundleId = i < PLATFORMS.length ? "com.example." + platform : "com.example.app" + i;
+      authorizations[i] =
+          "Basic "
+              + Base64.getEncoder()
+                  .encodeToString(
+                      (bundleId + ":" + platform + "-token").getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  @Benchmark
+  public boolean scan() throws Exception {
+    return authenticate(nextAuthorization());
+  }
+
+  @Benchmark
+  public boolean verifier() {
+    return verifier.verify(nextAuthorization()) != null;
+  }
+
+  private String nextAuthorization() {
+    next = (next + 1) % headers;
+    return authorizations[next];
+  }
+
+  /** The previous AuthenticationService.authenticate(). */
+  private boolean authenticate(String authCredentials) throws Exception {
+    Map<String, String> authPropMap = new HashMap<>();
+    for (String key : properties.stringPropertyNames()) {
+      authPropMap.put(key, properties.getProperty(key));
+    }
+    byte[] decodedBytes =
+        org.glassfish.jersey.internal.util.Base64.decode(
+            authCredentials.replaceFirst("Basic" + " ", "").getBytes());
+    String bundleIdAndAppToken = new String(decodedBytes, "UTF-8");
+    StringTokenizer tokenizer = new StringTokenizer(bundleIdAndAppToken, ":");
+    String bundleId = tokenizer.nextToken();
+    String appToken = tokenizer.nextToken();
+    String bundleIdKey = "";
+    String appTokenKey = "";
+    for (Map.Entry<String, String> map : authPropMap.entrySet()) {
+      if (map.getValue().equals(appToken)) {
+        appTokenKey = map.getKey();
+      }
+      if (map.getValue().equals(bundleId)) {
+        bundleIdKey = map.getKey();
+      }
+    }
+    return authPropMap.containsValue(bundleId)
+        && authPropMap.containsValue(appToken)
+        && new StringTokenizer(appTokenKey, ".")
+            .nextToken()
+            .equals(new StringTokenizer(bundleIdKey, ".").nextToken());
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(
+            new OptionsBuilder().include(CredentialVerifierBenchmark.class.getSimpleName()).build())
+        .run();
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package com.hphc.mystudies.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Properties;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CredentialVerifierTest {
+
+  private Properties properties;
+
+  @Before
+  public void setUp() {
+    properties = new Properties();
+    properties.setProperty("android.bundleid", "com.example.android");
+    properties.setProperty("android.apptoken", "android-token");
+    properties.setProperty("ios.bundleid", "com.example.ios");
+    properties.setProperty("ios.apptoken", "ios-token");
+    properties.setProperty("responseserver.bundleid", "");
+  }
+
+  @Test
+  public void shouldAcceptValuesOfOnePlatformInEitherOrder() {
+    CredentialVerifier verifier = newVerifier(10);
+
+    CredentialVerifier.Credential credential =
+        verifier.verify(basic("com.example.android:android-token"));
+    assertEquals("android", credential.getPlatform());
+    assertEquals("com.example.android", credential.getBundleId());
+
+    // as before the verifier, any two values of a platform are a pair, in either order
+    credential = verifier.verify(basic("android-token:com.example.android"));
+    assertEquals("android", credential.getPlatform());
+    assertEquals("android-token", credential.getBundleId());
+    assertEquals("ios", verifier.verify(basic("ios-token:ios-token")).getPlatform());
+
+    assertNull(verifier.verify(basic("com.example.android:ios-token")));
+    assertNull(verifier.verify(basic("com.example.ios:unknown-token")));
+    assertNull(verifier.verify(basic("com.example.android")));
+    assertNull(verifier.verify("Basic %%%"));
+    assertNull(verifier.verify("Bearer android-token"));
+    assertNull(verifier.verify(null));
+  }
+
+  @Test
+  public void shouldKeepMostRecentlyUsedHeaders() {
+    CredentialVerifier verifier = newVerifier(2);
+    String android = basic("com.example.android:android-token");
+    String ios = basic("com.example.ios:ios-token");
+    String invalid = basic("com.example.ios:android-token");
+
+    verifier.verify(android);
+    verifier.verify(ios);
+    verifier.verify(android);
+    assertNull(verifier.verify(invalid));
+
+    assertTrue(verifier.isVerified(android));
+    assertFalse(verifier.isVerified(ios));
+    assertTrue(verifier.isVerified(invalid));
+    assertEquals("ios", verifier.verify(ios).getPlatform());
+    assertFalse(verifier.isVerified(android));
+  }
+
+  @Test
+  public void shouldVerifyAgainstThePropertiesReadWhenCreated() {
+    CredentialVerifier verifier = newVerifier(10);
+
+    properties.setProperty("android.apptoken", "rotated-token");
+    assertEquals(
+        "android", verifier.verify(basic("com.example.android:android-token")).getPlatform());
+    assertNull(verifier.verify(basic("com.example.android:rotated-token")));
+    assertTrue(verifier.isConfiguredValue("android-token"));
+    assertFalse(verifier.isConfiguredValue("rotated-token"));
+    assertFalse(verifier.isConfiguredValue(""));
+  }
+
+  private CredentialVerifier newVerifier(int maxEntries) {
+    return new CredentialVerifier(maxEntries, properties);
+  }
+
+  private static String basic(String bundleIdAndAppToken) {
+    return "Basic "
+        + Base64.getEncoder().encodeToString(bundleIdAndAppToken.getBytes(StandardCharsets.UTF_8));
+  }
+}